@@ -199,6 +199,21 @@ public class HAJournal extends Journal {
      * @see HAJournalServer.ConfigurationOptions#HA_EXTRA_DELAY_FOR_RETRY_SEND
      */
     private final long haExtraDelayForRetrySend;
+
+    /**
+     * @see HAJournalServer.ConfigurationOptions#HA_PARALLEL_SEND
+     */
+    private final boolean haParallelSend;
+
+    /**
+     * @see HAJournalServer.ConfigurationOptions#HA_LOG_REPLAY_THREADS
+     */
+    private final int haLogReplayThreads;
+
+    /**
+     * The progress of the replay of HALog files during RESTORE and RESYNC.
+     */
+    private final HALogReplayCounters haLogReplayCounters = new HALogReplayCounters();
     
 //    /**
 //     * @see HAJournalServer.ConfigurationOptions#HA_LOG_DIR
@@ -416,6 +431,34 @@ public class HAJournal extends Journal {
 
         }
 
+        {
+            haParallelSend = (Boolean) config
+                    .getEntry(
+                            HAJournalServer.ConfigurationOptions.COMPONENT,
+                            HAJournalServer.ConfigurationOptions.HA_PARALLEL_SEND,
+                            Boolean.TYPE,
+                            HAJournalServer.ConfigurationOptions.DEFAULT_HA_PARALLEL_SEND);
+
+        }
+
+        {
+            haLogReplayThreads = (Integer) config
+                    .getEntry(
+                            HAJournalServer.ConfigurationOptions.COMPONENT,
+                            HAJournalServer.ConfigurationOptions.HA_LOG_REPLAY_THREADS,
+                            Integer.TYPE,
+                            HAJournalServer.ConfigurationOptions.DEFAULT_HA_LOG_REPLAY_THREADS);
+
+            if (haLogReplayThreads <= 0) {
+                throw new ConfigurationException(
+                        HAJournalServer.ConfigurationOptions.HA_LOG_REPLAY_THREADS
+                                + "="
+                                + haLogReplayThreads
+                                + " : must be positive");
+            }
+
+        }
+
         // HALog manager.
         haLogNexus = new HALogNexus(server, this, config);
         
@@ -616,6 +659,40 @@ public class HAJournal extends Journal {
         
     }
 
+    /**
+     * Return <code>true</code> iff the leader sends write cache blocks to the
+     * followers in parallel.
+     * 
+     * @see HAJournalServer.ConfigurationOptions#HA_PARALLEL_SEND
+     */
+    public final boolean isHAParallelSend() {
+
+        return haParallelSend;
+
+    }
+
+    /**
+     * Return the #of HALog files which are read concurrently when the service
+     * replays its HALog files.
+     * 
+     * @see HAJournalServer.ConfigurationOptions#HA_LOG_REPLAY_THREADS
+     */
+    public final int getHALogReplayThreads() {
+
+        return haLogReplayThreads;
+
+    }
+
+    /**
+     * Return the counters reporting the progress of the replay of HALog files
+     * when the service catches up with the quorum.
+     */
+    public final HALogReplayCounters getHALogReplayCounters() {
+
+        return haLogReplayCounters;
+
+    }
+
 //    @Override
 //    public final File getHALogDir() {
 //
@@ -757,6 +834,14 @@ public class HAJournal extends Journal {
          */
         String Volumes = "Volumes";
 
+        /**
+         * The namespace for counters pertaining to the replay of HALog files
+         * when the service catches up with the quorum.
+         * 
+         * @see HALogReplayCounters
+         */
+        String HALogReplay = "HALog Replay";
+
 //        /**
 //         * The configured service directory.
 //         */
@@ -888,6 +973,9 @@ public class HAJournal extends Journal {
 
         }
 
+        root.makePath(IHAJournalCounters.HALogReplay).attach(
+                haLogReplayCounters.getCounters());
+
         return root;
 
     }
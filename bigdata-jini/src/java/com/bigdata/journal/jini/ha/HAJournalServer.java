@@ -85,6 +85,7 @@ import com.bigdata.ha.msg.IHAWriteMessage;
 import com.bigdata.ha.msg.IHAWriteSetStateResponse;
 import com.bigdata.io.DirectBufferPool;
 import com.bigdata.io.IBufferAccess;
+import com.bigdata.io.compression.ParallelGZIPOutputStream;
 import com.bigdata.io.writecache.WriteCache;
 import com.bigdata.jini.start.config.ZookeeperClientConfig;
 import com.bigdata.jini.util.JiniUtil;
@@ -94,6 +95,7 @@ import com.bigdata.journal.IRootBlockView;
 import com.bigdata.journal.RootBlockUtility;
 import com.bigdata.journal.WORMStrategy;
 import com.bigdata.journal.jini.ha.HAClient.HAConnection;
+import com.bigdata.journal.jini.ha.HALogIndex.IHALogRecord;
 import com.bigdata.quorum.Quorum;
 import com.bigdata.quorum.QuorumEvent;
 import com.bigdata.quorum.QuorumException;
@@ -290,6 +292,38 @@ public class HAJournalServer extends AbstractServer {
 
         long DEFAULT_HA_EXTRA_DELAY_FOR_RETRY_SEND = 5000; // milliseconds.
 
+        /**
+         * When <code>true</code>, the leader sends each write cache block
+         * directly to every follower in parallel rather than relaying it
+         * along the chained write pipeline (default
+         * {@value #DEFAULT_HA_PARALLEL_SEND}). This reduces the commit
+         * latency for quorums with more than one follower at the expense of
+         * the outbound bandwidth of the leader. The payload is still
+         * compressed as configured by
+         * {@link com.bigdata.journal.Options#HALOG_COMPRESSOR}.
+         * <p>
+         * Note: This option MUST be the same for all services in the quorum.
+         * Followers do not relay write cache blocks when it is enabled.
+         */
+        String HA_PARALLEL_SEND = "haParallelSend";
+
+        boolean DEFAULT_HA_PARALLEL_SEND = false;
+
+        /**
+         * The #of HALog files which are read and decoded concurrently when
+         * the service replays its local HALog files onto the journal during
+         * RESTORE (default {@value #DEFAULT_HA_LOG_REPLAY_THREADS}). When
+         * GT ONE, the HALog files for the next commit points are read ahead
+         * while the current write set is applied. Each write set is still
+         * applied and committed in commit order. The progress of the catch
+         * up is reported by the {@link HALogReplayCounters}.
+         * 
+         * @see HALogReplayPrefetcher
+         */
+        String HA_LOG_REPLAY_THREADS = "haLogReplayThreads";
+
+        int DEFAULT_HA_LOG_REPLAY_THREADS = 1;
+
         /**
          * The property whose value is the name of the directory in which write
          * ahead log files will be created to support resynchronization services
@@ -411,6 +445,39 @@ public class HAJournalServer extends AbstractServer {
 
         ISnapshotPolicy DEFAULT_SNAPSHOT_POLICY = new DefaultSnapshotPolicy();
 
+        /**
+         * The #of snapshots in each cycle of full and differential snapshots
+         * (default {@value #DEFAULT_SNAPSHOT_FULL_INTERVAL}). When ONE (1),
+         * each snapshot is a full copy of the journal. When GT ONE (1), each
+         * full snapshot is followed by up to <code>N-1</code> differential
+         * snapshots. A differential snapshot records only the blocks of the
+         * journal that differ from the most recent full snapshot and is much
+         * smaller and faster to write than a full snapshot when the daily
+         * change is a small fraction of the journal.
+         * <p>
+         * Note: Differential snapshots are not restore points for the
+         * {@link #RESTORE_POLICY}. The HALogs are retained based on the full
+         * snapshots. A differential snapshot is used by {@link HARestore} to
+         * reduce the #of HALogs that must be replayed.
+         * 
+         * @see SnapshotDeltaUtility
+         */
+        String SNAPSHOT_FULL_INTERVAL = "snapshotFullInterval";
+
+        int DEFAULT_SNAPSHOT_FULL_INTERVAL = 1;
+
+        /**
+         * The #of threads used to compress a snapshot (default
+         * {@value #DEFAULT_SNAPSHOT_COMPRESSION_THREADS}). When GT ONE (1),
+         * blocks of the snapshot are compressed in parallel. The snapshot is
+         * still a valid GZIP file.
+         * 
+         * @see ParallelGZIPOutputStream
+         */
+        String SNAPSHOT_COMPRESSION_THREADS = "snapshotCompressionThreads";
+
+        int DEFAULT_SNAPSHOT_COMPRESSION_THREADS = 1;
+
         /**
          * The policy identifies the first commit point whose backups MUST NOT
          * be released. The policy may be based on the age of the commit point,
@@ -1501,6 +1568,18 @@ public class HAJournalServer extends AbstractServer {
             return ns;
             
         }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * @see ConfigurationOptions#HA_PARALLEL_SEND
+         */
+        @Override
+        protected boolean isParallelSend() {
+
+            return journal.isHAParallelSend();
+
+        }
         
         /**
          * {@inheritDoc}
@@ -2614,6 +2693,46 @@ public class HAJournalServer extends AbstractServer {
             @Override
             protected Void doRun() throws Exception {
 
+                {
+
+                    final IHALogRecord newest = journal.getHALogNexus()
+                            .getNewestHALog();
+
+                    journal.getHALogReplayCounters().start(
+                            journal.getRootBlockView().getCommitCounter(),
+                            newest == null ? -1L : newest.getRootBlock()
+                                    .getCommitCounter());
+
+                }
+
+                if (journal.getHALogReplayThreads() > 1) {
+
+                    parallelRestore(journal.getHALogReplayThreads());
+
+                } else {
+
+                    restore();
+
+                }
+
+                if (haLog.isInfoEnabled())
+                    haLog.info("Restore done: "
+                            + journal.getHALogReplayCounters());
+
+                // Submit task to seek consensus.
+                enterRunState(new SeekConsensusTask());
+
+                // Done.
+                return null;
+
+            }
+
+            /**
+             * Apply each HALog file in turn on the thread running the
+             * {@link RestoreTask}.
+             */
+            private void restore() throws Exception {
+
                 while (true) {
 
                     final long commitCounter = journal.getRootBlockView()
@@ -2652,6 +2771,9 @@ public class HAJournalServer extends AbstractServer {
 
                         doLocalCommit(r.getClosingRootBlock());
 
+                        journal.getHALogReplayCounters().writeSetApplied(
+                                commitCounter + 1);
+
                     } catch (FileNotFoundException ex) {
 
                         /*
@@ -2678,11 +2800,109 @@ public class HAJournalServer extends AbstractServer {
 
                 }
 
-                // Submit task to seek consensus.
-                enterRunState(new SeekConsensusTask());
+            }
 
-                // Done.
-                return null;
+            /**
+             * Apply each HALog file in turn while the HALog files for the
+             * following commit points are read and decoded by other threads.
+             * The write sets are still applied and committed in commit order.
+             * 
+             * @param nparallel
+             *            The maximum #of HALog files read concurrently.
+             * 
+             * @see HALogReplayPrefetcher
+             */
+            private void parallelRestore(final int nparallel) throws Exception {
+
+                final HALogReplayPrefetcher prefetcher = new HALogReplayPrefetcher(
+                        journal.getHALogNexus(), journal.getExecutorService(),
+                        nparallel, journal.getRootBlockView()
+                                .getCommitCounter() + 1);
+
+                try {
+
+                    while (true) {
+
+                        final long commitCounter = journal.getRootBlockView()
+                                .getCommitCounter();
+
+                        final HALogReplayPrefetcher.WriteSet ws = prefetcher
+                                .next();
+
+                        if (ws.getCommitCounter() != commitCounter + 1) {
+                            // Sanity check
+                            throw new AssertionError();
+                        }
+
+                        try {
+
+                            if (!ws.awaitOpen()) {
+
+                                /*
+                                 * No such HALog file or the HALog file is
+                                 * empty. This ends our restore procedure.
+                                 */
+
+                                break;
+
+                            }
+
+                            if (ws.getOpeningRootBlock().getCommitCounter() != commitCounter) {
+                                // Sanity check
+                                throw new AssertionError();
+                            }
+
+                            if (ws.getClosingRootBlock().getCommitCounter() != commitCounter + 1) {
+                                // Sanity check
+                                throw new AssertionError();
+                            }
+
+                            HALogReplayPrefetcher.Block b;
+
+                            while ((b = ws.take()) != null) {
+
+                                try {
+
+                                    writeWriteCacheBlock(b.getMessage(), b
+                                            .getBuffer().buffer());
+
+                                    journal.getHALogReplayCounters()
+                                            .blockApplied(
+                                                    b.getMessage().getSize());
+
+                                } finally {
+
+                                    b.release();
+
+                                }
+
+                            }
+
+                            haLog.warn("Applied HALog: closingCommitCounter="
+                                    + ws.getClosingRootBlock()
+                                            .getCommitCounter());
+
+                            doLocalCommit(ws.getClosingRootBlock());
+
+                            journal.getHALogReplayCounters().writeSetApplied(
+                                    commitCounter + 1);
+
+                        } catch (IOException ex) {
+
+                            log.error("Problem reading HALog file: commitCounter="
+                                    + commitCounter + ": " + ex, ex);
+
+                            break;
+
+                        }
+
+                    }
+
+                } finally {
+
+                    prefetcher.cancel();
+
+                }
 
             }
 
@@ -2711,6 +2931,9 @@ public class HAJournalServer extends AbstractServer {
                                 .buffer());
 
                         writeWriteCacheBlock(msg, buf.buffer());
+
+                        journal.getHALogReplayCounters().blockApplied(
+                                msg.getSize());
                         
                     }
 
@@ -2999,6 +3222,11 @@ public class HAJournalServer extends AbstractServer {
                 
                 final S leader = getLeader(token);
 
+                // Reset the catch up counters.
+                journal.getHALogReplayCounters().start(
+                        journal.getRootBlockView().getCommitCounter(),
+                        getLeaderCommitCounter(leader));
+
                 /*
                  * Loop until joined with the met quorum (and HAReady).
                  * 
@@ -3015,6 +3243,18 @@ public class HAJournalServer extends AbstractServer {
                     final long commitCounter = journal.getRootBlockView()
                             .getCommitCounter();
 
+                    if (journal.getHALogReplayCounters()
+                            .getWriteSetsRemaining() == 0L) {
+
+                        /*
+                         * The leader may have committed since we last looked.
+                         */
+                        journal.getHALogReplayCounters()
+                                .setTargetCommitCounter(
+                                        getLeaderCommitCounter(leader));
+
+                    }
+
                     // Replicate and apply the next write set
                     replicateAndApplyWriteSet(leaderId, leader, token,
                             commitCounter + 1);
@@ -3023,6 +3263,20 @@ public class HAJournalServer extends AbstractServer {
                 
             }
 
+            /**
+             * Return the commit counter of the last commit point on the
+             * leader.
+             */
+            private long getLeaderCommitCounter(final S leader)
+                    throws IOException {
+
+                return leader
+                        .getRootBlock(
+                                new HARootBlockRequest(null/* storeUUID */))
+                        .getRootBlock().getCommitCounter();
+
+            }
+
         } // class ResyncTask
 
         /**
@@ -3259,6 +3513,9 @@ public class HAJournalServer extends AbstractServer {
             // Local commit.
             doLocalCommit(closeRootBlock);
 
+            journal.getHALogReplayCounters().writeSetApplied(
+                    closingCommitCounter);
+
             // Close out the current HALog writer.
             logLock.lock();
             try {
@@ -3933,6 +4190,9 @@ public class HAJournalServer extends AbstractServer {
                     // log and write cache block.
                     acceptHAWriteMessage(msg, data);
 
+                    journal.getHALogReplayCounters().blockApplied(
+                            msg.getSize());
+
                 }
                 
             } finally {
@@ -861,6 +861,18 @@ public class HALogNexus implements IHALogWriter {
 
     }
 
+    /**
+     * Find the {@link IHALogRecord} for the most recent closed HALog (if any).
+     * 
+     * @return That {@link IHALogRecord} -or- <code>null</code> if there are no
+     *         closed HALogs.
+     */
+    public IHALogRecord getNewestHALog() {
+
+        return haLogIndex.getNewestEntry();
+
+    }
+
     /**
      * Return an iterator that will visit all known HALogs. The list will be in
      * order of increasing <code>commitTime</code>. This should also correspond
@@ -0,0 +1,368 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.journal.jini.ha;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
+
+/**
+ * Performance counters for the replay of HALog files when a service catches
+ * up with the quorum (RESTORE and RESYNC). The counters describe the current
+ * (or most recent) catch up and are reset each time a catch up begins.
+ * 
+ * @see HAJournalServer.ConfigurationOptions#HA_LOG_REPLAY_THREADS
+ */
+public class HALogReplayCounters implements ICounterSetAccess {
+
+    /**
+     * The names of the counters.
+     */
+    public interface IHALogReplayCounters {
+
+        /**
+         * The commit counter of the local journal when the catch up began.
+         */
+        String StartCommitCounter = "Start Commit Counter";
+
+        /**
+         * The commit counter of the last write set applied to the local
+         * journal.
+         */
+        String CommitCounter = "Commit Counter";
+
+        /**
+         * The commit counter which the service is trying to reach and
+         * <code>-1</code> if it is not known.
+         */
+        String TargetCommitCounter = "Target Commit Counter";
+
+        /**
+         * The #of write sets (HALog files) applied.
+         */
+        String WriteSetsApplied = "Write Sets Applied";
+
+        /**
+         * The #of write sets (HALog files) which remain to be applied and
+         * <code>-1</code> if this is not known.
+         */
+        String WriteSetsRemaining = "Write Sets Remaining";
+
+        /**
+         * The #of write cache blocks applied.
+         */
+        String BlocksApplied = "Blocks Applied";
+
+        /**
+         * The #of bytes of write cache blocks applied.
+         */
+        String BytesApplied = "Bytes Applied";
+
+        /**
+         * The average #of write sets applied per second.
+         */
+        String WriteSetsPerSecond = "Write Sets Per Second";
+
+        /**
+         * The average #of bytes applied per second.
+         */
+        String BytesPerSecond = "Bytes Per Second";
+
+        /**
+         * The estimated time in milliseconds until the service has caught up
+         * and <code>-1</code> if this is not known.
+         */
+        String ETA = "ETA Millis";
+
+    }
+
+    private volatile long beginNanos = System.nanoTime();
+
+    private volatile long startCommitCounter = -1L;
+
+    private volatile long commitCounter = -1L;
+
+    private volatile long targetCommitCounter = -1L;
+
+    private final AtomicLong writeSetsApplied = new AtomicLong();
+
+    private final AtomicLong blocksApplied = new AtomicLong();
+
+    private final AtomicLong bytesApplied = new AtomicLong();
+
+    /**
+     * Reset the counters at the start of a catch up.
+     * 
+     * @param commitCounter
+     *            The commit counter of the local journal.
+     * @param targetCommitCounter
+     *            The commit counter which the service is trying to reach and
+     *            <code>-1</code> if it is not known.
+     */
+    public void start(final long commitCounter, final long targetCommitCounter) {
+
+        writeSetsApplied.set(0L);
+        blocksApplied.set(0L);
+        bytesApplied.set(0L);
+
+        this.startCommitCounter = commitCounter;
+        this.commitCounter = commitCounter;
+        this.targetCommitCounter = targetCommitCounter;
+        this.beginNanos = System.nanoTime();
+
+    }
+
+    /**
+     * Update the commit counter which the service is trying to reach.
+     */
+    public void setTargetCommitCounter(final long targetCommitCounter) {
+
+        this.targetCommitCounter = targetCommitCounter;
+
+    }
+
+    /**
+     * Note that a write cache block was applied to the local journal.
+     * 
+     * @param nbytes
+     *            The #of bytes in the write cache block.
+     */
+    public void blockApplied(final long nbytes) {
+
+        blocksApplied.incrementAndGet();
+
+        bytesApplied.addAndGet(nbytes);
+
+    }
+
+    /**
+     * Note that a write set was applied and committed on the local journal.
+     * 
+     * @param closingCommitCounter
+     *            The commit counter of the closing root block of that write
+     *            set.
+     */
+    public void writeSetApplied(final long closingCommitCounter) {
+
+        writeSetsApplied.incrementAndGet();
+
+        this.commitCounter = closingCommitCounter;
+
+    }
+
+    /**
+     * The #of write sets applied since the catch up began.
+     */
+    public long getWriteSetsApplied() {
+
+        return writeSetsApplied.get();
+
+    }
+
+    /**
+     * The #of write sets which remain to be applied and <code>-1</code> if
+     * this is not known.
+     */
+    public long getWriteSetsRemaining() {
+
+        final long target = targetCommitCounter;
+
+        if (target < 0L || commitCounter < 0L)
+            return -1L;
+
+        return Math.max(0L, target - commitCounter);
+
+    }
+
+    /**
+     * The elapsed time in milliseconds since the catch up began.
+     */
+    public long getElapsedMillis() {
+
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - beginNanos);
+
+    }
+
+    /**
+     * The average #of write sets applied per second.
+     */
+    public double getWriteSetsPerSecond() {
+
+        return perSecond(writeSetsApplied.get());
+
+    }
+
+    /**
+     * The average #of bytes applied per second.
+     */
+    public double getBytesPerSecond() {
+
+        return perSecond(bytesApplied.get());
+
+    }
+
+    private double perSecond(final long n) {
+
+        final long elapsed = getElapsedMillis();
+
+        if (elapsed == 0L)
+            return 0d;
+
+        return n * 1000d / elapsed;
+
+    }
+
+    /**
+     * The estimated time in milliseconds until the service has caught up
+     * based on the average rate at which write sets have been applied and
+     * <code>-1</code> if this is not known.
+     */
+    public long getETA() {
+
+        final long remaining = getWriteSetsRemaining();
+
+        if (remaining < 0L)
+            return -1L;
+
+        if (remaining == 0L)
+            return 0L;
+
+        final double rate = getWriteSetsPerSecond();
+
+        if (rate == 0d)
+            return -1L;
+
+        return (long) (remaining * 1000d / rate);
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter(IHALogReplayCounters.StartCommitCounter,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(startCommitCounter);
+                    }
+                });
+
+        root.addCounter(IHALogReplayCounters.CommitCounter,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(commitCounter);
+                    }
+                });
+
+        root.addCounter(IHALogReplayCounters.TargetCommitCounter,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(targetCommitCounter);
+                    }
+                });
+
+        root.addCounter(IHALogReplayCounters.WriteSetsApplied,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(writeSetsApplied.get());
+                    }
+                });
+
+        root.addCounter(IHALogReplayCounters.WriteSetsRemaining,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(getWriteSetsRemaining());
+                    }
+                });
+
+        root.addCounter(IHALogReplayCounters.BlocksApplied,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(blocksApplied.get());
+                    }
+                });
+
+        root.addCounter(IHALogReplayCounters.BytesApplied,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(bytesApplied.get());
+                    }
+                });
+
+        root.addCounter(IHALogReplayCounters.WriteSetsPerSecond,
+                new Instrument<Double>() {
+                    @Override
+                    public void sample() {
+                        setValue(getWriteSetsPerSecond());
+                    }
+                });
+
+        root.addCounter(IHALogReplayCounters.BytesPerSecond,
+                new Instrument<Double>() {
+                    @Override
+                    public void sample() {
+                        setValue(getBytesPerSecond());
+                    }
+                });
+
+        root.addCounter(IHALogReplayCounters.ETA, new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(getETA());
+            }
+        });
+
+        return root;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "{startCommitCounter="
+                + startCommitCounter + ",commitCounter=" + commitCounter
+                + ",targetCommitCounter=" + targetCommitCounter
+                + ",writeSetsApplied=" + writeSetsApplied + ",bytesApplied="
+                + bytesApplied + ",writeSetsPerSecond="
+                + getWriteSetsPerSecond() + ",eta=" + getETA() + "ms}";
+
+    }
+
+}
@@ -0,0 +1,531 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.journal.jini.ha;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.ha.halog.IHALogReader;
+import com.bigdata.ha.msg.IHAWriteMessage;
+import com.bigdata.io.DirectBufferPool;
+import com.bigdata.io.IBufferAccess;
+import com.bigdata.journal.IRootBlockView;
+
+/**
+ * Reads and decodes the HALog files for a sequence of commit points in
+ * parallel so they may be applied to the local journal without waiting on
+ * the disk or on the decompression of the write cache blocks. Up to
+ * <i>nparallel</i> HALog files are read concurrently, beginning with the
+ * HALog file that is to be applied next. Each HALog file is decoded into a
+ * small bounded queue of write cache blocks, so the #of buffers taken from
+ * the {@link DirectBufferPool} is bounded by <i>nparallel</i> times
+ * {@link #QUEUE_CAPACITY}.
+ * <p>
+ * The caller consumes the {@link WriteSet}s in commit order using
+ * {@link #next()} and MUST {@link #cancel()} the prefetcher when it is done.
+ * This class is not thread-safe for the caller.
+ * 
+ * @see HAJournalServer.ConfigurationOptions#HA_LOG_REPLAY_THREADS
+ */
+public class HALogReplayPrefetcher {
+
+    private static final Logger log = Logger
+            .getLogger(HALogReplayPrefetcher.class);
+
+    /**
+     * The maximum #of decoded write cache blocks which are buffered for each
+     * HALog file.
+     */
+    static final int QUEUE_CAPACITY = 2;
+
+    /**
+     * Marks the end of the write cache blocks for an HALog file.
+     */
+    private static final Object EOF = new Object();
+
+    private final HALogNexus haLogNexus;
+
+    private final Executor executor;
+
+    private final int nparallel;
+
+    /**
+     * The closing commit counter of the next HALog file to be read.
+     */
+    private long nextCommitCounter;
+
+    /**
+     * The {@link WriteSet}s which have been submitted for decoding in commit
+     * order.
+     */
+    private final LinkedList<WriteSet> pending = new LinkedList<WriteSet>();
+
+    private boolean cancelled = false;
+
+    /**
+     * @param haLogNexus
+     *            Used to open the HALog files.
+     * @param executor
+     *            Used to read the HALog files.
+     * @param nparallel
+     *            The maximum #of HALog files which are read concurrently.
+     * @param commitCounter
+     *            The closing commit counter of the first HALog file to be
+     *            applied.
+     */
+    public HALogReplayPrefetcher(final HALogNexus haLogNexus,
+            final Executor executor, final int nparallel,
+            final long commitCounter) {
+
+        if (haLogNexus == null)
+            throw new IllegalArgumentException();
+
+        if (executor == null)
+            throw new IllegalArgumentException();
+
+        if (nparallel <= 0)
+            throw new IllegalArgumentException();
+
+        if (commitCounter <= 0)
+            throw new IllegalArgumentException();
+
+        this.haLogNexus = haLogNexus;
+        this.executor = executor;
+        this.nparallel = nparallel;
+        this.nextCommitCounter = commitCounter;
+
+    }
+
+    /**
+     * Return the {@link WriteSet} for the next commit point. The HALog files
+     * for the following commit points are read ahead while the caller applies
+     * this one.
+     */
+    public WriteSet next() {
+
+        if (cancelled)
+            throw new IllegalStateException();
+
+        fill();
+
+        final WriteSet ws = pending.removeFirst();
+
+        fill();
+
+        return ws;
+
+    }
+
+    private void fill() {
+
+        while (pending.size() < nparallel) {
+
+            final WriteSet ws = new WriteSet(nextCommitCounter++);
+
+            pending.add(ws);
+
+            executor.execute(ws.ft);
+
+        }
+
+    }
+
+    /**
+     * Cancel the read ahead and release any buffers held by the decoded write
+     * cache blocks.
+     */
+    public void cancel() {
+
+        if (cancelled)
+            return;
+
+        cancelled = true;
+
+        for (WriteSet ws : pending) {
+
+            ws.cancel();
+
+        }
+
+        pending.clear();
+
+    }
+
+    /**
+     * A write cache block read from an HALog file. The caller MUST
+     * {@link #release()} the block once it has been applied.
+     */
+    public static class Block {
+
+        private final IHAWriteMessage msg;
+
+        private final IBufferAccess buf;
+
+        private Block(final IHAWriteMessage msg, final IBufferAccess buf) {
+
+            this.msg = msg;
+            this.buf = buf;
+
+        }
+
+        /**
+         * The message for the write cache block.
+         */
+        public IHAWriteMessage getMessage() {
+
+            return msg;
+
+        }
+
+        /**
+         * The buffer containing the data for the write cache block.
+         */
+        public IBufferAccess getBuffer() {
+
+            return buf;
+
+        }
+
+        /**
+         * Release the buffer.
+         */
+        public void release() throws InterruptedException {
+
+            buf.release();
+
+        }
+
+    }
+
+    /**
+     * The write set in an HALog file.
+     */
+    public class WriteSet implements Callable<Void> {
+
+        private final long commitCounter;
+
+        private final FutureTask<Void> ft = new FutureTask<Void>(this);
+
+        private final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>(
+                QUEUE_CAPACITY);
+
+        /**
+         * Counted down once the root blocks are known (or the HALog file is
+         * known to be missing or empty).
+         */
+        private final CountDownLatch opened = new CountDownLatch(1);
+
+        /**
+         * Counted down once the reader is done.
+         */
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        /**
+         * Set by the reader when it starts or by {@link #cancel()} if the
+         * reader had not started.
+         */
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+        private volatile IRootBlockView openRootBlock = null;
+
+        private volatile IRootBlockView closeRootBlock = null;
+
+        private volatile Throwable cause = null;
+
+        private WriteSet(final long commitCounter) {
+
+            this.commitCounter = commitCounter;
+
+        }
+
+        /**
+         * The closing commit counter for the write set.
+         */
+        public long getCommitCounter() {
+
+            return commitCounter;
+
+        }
+
+        /**
+         * Await the root blocks for the HALog file.
+         * 
+         * @return <code>false</code> if there is no such HALog file or if the
+         *         HALog file is empty.
+         * 
+         * @throws IOException
+         *             if the HALog file could not be read.
+         */
+        public boolean awaitOpen() throws IOException, InterruptedException {
+
+            opened.await();
+
+            if (closeRootBlock == null) {
+
+                if (cause != null)
+                    throw launder(cause);
+
+                return false;
+
+            }
+
+            return true;
+
+        }
+
+        /**
+         * The opening root block of the write set.
+         */
+        public IRootBlockView getOpeningRootBlock() {
+
+            return openRootBlock;
+
+        }
+
+        /**
+         * The closing root block of the write set.
+         */
+        public IRootBlockView getClosingRootBlock() {
+
+            return closeRootBlock;
+
+        }
+
+        /**
+         * Return the next write cache block in the write set.
+         * 
+         * @return The next block -or- <code>null</code> if all blocks have
+         *         been visited.
+         * 
+         * @throws IOException
+         *             if the HALog file could not be read.
+         */
+        public Block take() throws IOException, InterruptedException {
+
+            while (true) {
+
+                final Object o = queue.poll(100, TimeUnit.MILLISECONDS);
+
+                if (o == EOF)
+                    return null;
+
+                if (o != null)
+                    return (Block) o;
+
+                if (done.getCount() == 0 && queue.isEmpty()) {
+
+                    /*
+                     * The reader is done and did not deliver the EOF marker.
+                     */
+
+                    if (cause != null)
+                        throw launder(cause);
+
+                    throw new IOException("HALog reader terminated: commitCounter="
+                            + commitCounter);
+
+                }
+
+            }
+
+        }
+
+        private IOException launder(final Throwable t) {
+
+            if (t instanceof IOException)
+                return (IOException) t;
+
+            return new IOException(t);
+
+        }
+
+        /**
+         * Reads the HALog file.
+         */
+        @Override
+        public Void call() throws Exception {
+
+            if (!claimed.compareAndSet(false, true)) {
+
+                // Cancelled before it started.
+                return null;
+
+            }
+
+            IHALogReader r = null;
+
+            try {
+
+                try {
+
+                    r = haLogNexus.getReader(commitCounter);
+
+                } catch (FileNotFoundException ex) {
+
+                    // No such HALog file.
+                    return null;
+
+                }
+
+                if (r.isEmpty()) {
+
+                    // Nothing to apply.
+                    return null;
+
+                }
+
+                openRootBlock = r.getOpeningRootBlock();
+
+                closeRootBlock = r.getClosingRootBlock();
+
+                opened.countDown();
+
+                while (r.hasMoreBuffers()) {
+
+                    final IBufferAccess buf = DirectBufferPool.INSTANCE
+                            .acquire();
+
+                    boolean queued = false;
+
+                    try {
+
+                        // get message and fill write cache buffer (unless
+                        // WORM).
+                        final IHAWriteMessage msg = r.processNextBuffer(buf
+                                .buffer());
+
+                        queue.put(new Block(msg, buf));
+
+                        queued = true;
+
+                    } finally {
+
+                        if (!queued)
+                            buf.release();
+
+                    }
+
+                }
+
+                queue.put(EOF);
+
+                if (log.isDebugEnabled())
+                    log.debug("Read HALog: commitCounter=" + commitCounter);
+
+                return null;
+
+            } catch (Throwable t) {
+
+                cause = t;
+
+                if (!(t instanceof InterruptedException))
+                    log.warn("Could not read HALog: commitCounter="
+                            + commitCounter + " : " + t);
+
+                throw new RuntimeException(t);
+
+            } finally {
+
+                opened.countDown();
+
+                done.countDown();
+
+                if (r != null) {
+
+                    r.close();
+
+                }
+
+            }
+
+        }
+
+        /**
+         * Cancel the reader and release any buffered blocks.
+         */
+        private void cancel() {
+
+            if (claimed.compareAndSet(false, true)) {
+
+                // The reader never started. Nothing is buffered.
+                ft.cancel(false/* mayInterruptIfRunning */);
+
+                return;
+
+            }
+
+            ft.cancel(true/* mayInterruptIfRunning */);
+
+            try {
+
+                // Release blocks until the reader is done.
+                do {
+
+                    drain();
+
+                } while (!done.await(100, TimeUnit.MILLISECONDS));
+
+                drain();
+
+            } catch (InterruptedException ex) {
+
+                // Propagate the interrupt.
+                Thread.currentThread().interrupt();
+
+            }
+
+        }
+
+        private void drain() throws InterruptedException {
+
+            Object o;
+
+            while ((o = queue.poll()) != null) {
+
+                if (o != EOF)
+                    ((Block) o).release();
+
+            }
+
+        }
+
+    }
+
+}
@@ -393,9 +393,12 @@ public class HARestore {
      *            where <code>journalOrSnapshotFileOrSnapshotDir</code> is the
      *            name of the journal file (ending in <code>.jnl</code>), the
      *            name of a specific snapshot file (ending in
-     *            <code>.jnl.gz</code>), or the name of the snapshot directory
-     *            (this is generally a directory named <code>snapshot</code>
-     *            that is a child of the service directory) <br>
+     *            <code>.jnl.gz</code>), the name of a specific differential
+     *            snapshot file (ending in <code>.jnl.delta.gz</code>), or the
+     *            name of the snapshot directory (this is generally a directory
+     *            named <code>snapshot</code> that is a child of the service
+     *            directory). A differential snapshot is applied to the full
+     *            snapshot against which it was taken. <br>
      *            where <code>haLogDir</code> is the name of a directory
      *            containing zero or more HALog files (this is generally a
      *            directory name <code>HALog</code> that is a child of the
@@ -528,11 +531,67 @@ public class HARestore {
 
             System.out.println("Most recent snapshot: " + tmp);
 
+            /*
+             * Prefer a more recent differential snapshot against that
+             * snapshot (if any).
+             */
+            final File delta = CommitCounterUtility.findGreatestCommitCounter(
+                    journalFile, SnapshotManager.SNAPSHOT_DELTA_FILTER);
+
             journalFile = tmp;
+
+            if (delta != null
+                    && SnapshotDeltaUtility.getBaseSnapshotFile(delta).equals(
+                            tmp.getAbsoluteFile())) {
+
+                System.out.println("Most recent differential snapshot: "
+                        + delta);
+
+                journalFile = delta;
+
+            }
             
         }
         
-        if (journalFile.getName().endsWith(SnapshotManager.SNAPSHOT_EXT)) {
+        if (journalFile.getName().endsWith(SnapshotManager.SNAPSHOT_DELTA_EXT)) {
+
+            /*
+             * File is a differential snapshot.
+             * 
+             * Decompress the full snapshot against which it was taken and
+             * apply the differential snapshot onto either a temporary file or
+             * the file specified by the caller (in which case the file must
+             * not exist).
+             */
+
+            final File base = SnapshotDeltaUtility
+                    .getBaseSnapshotFile(journalFile);
+
+            final long commitCounter = CommitCounterUtility
+                    .parseCommitCounterFile(journalFile.getName(),
+                            SnapshotManager.SNAPSHOT_DELTA_EXT);
+
+            final File out;
+            if (decompressTargetFile == null) {
+                out = File.createTempFile("restored-from-snapshot" + "-"
+                        + commitCounter + "-", Journal.Options.JNL, journalFile
+                        .getAbsoluteFile().getParentFile());
+            } else {
+                out = new File(decompressTargetFile);
+                if (out.exists()) {
+                    // Do not decompress onto an existing file.
+                    throw new IOException("File exists: " + out);
+                }
+            }
+
+            System.out.println("Applying " + journalFile + " to " + base
+                    + " as " + out);
+
+            SnapshotDeltaUtility.restore(base, journalFile, out);
+
+            journalFile = out;
+
+        } else if (journalFile.getName().endsWith(SnapshotManager.SNAPSHOT_EXT)) {
 
             /*
              * File is a snapshot.
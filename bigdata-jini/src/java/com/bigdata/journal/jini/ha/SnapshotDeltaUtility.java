@@ -0,0 +1,637 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.journal.jini.ha;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.journal.CommitCounterUtility;
+import com.bigdata.rawstore.Bytes;
+
+/**
+ * Utility class for differential snapshots. A differential snapshot records
+ * only the fixed size blocks of the journal image that differ from a full
+ * snapshot (the <em>base</em> snapshot).
+ * <p>
+ * When a full snapshot is taken and differential snapshots are enabled, an
+ * MD5 digest is computed for each block of the journal image and written onto
+ * a block digest file ({@link SnapshotManager#BLOCK_DIGEST_EXT}) stored next
+ * to the snapshot. A differential snapshot streams the journal image in the
+ * same manner as a full snapshot (including the atomically captured root
+ * blocks and RWStore allocation data) and writes only those blocks whose
+ * digest differs from the digest of the same block in the base snapshot. The
+ * journal image is restored by decompressing the base snapshot and then
+ * writing the blocks recorded in the differential snapshot onto that file.
+ * <p>
+ * The format of a differential snapshot (within its GZIP stream) is:
+ * 
+ * <pre>
+ * magic:int, version:int, baseCommitCounter:long, commitCounter:long, blockSize:int,
+ * {blockIndex:long, length:int, data:byte[length]}*,
+ * -1L, fileLength:long
+ * </pre>
+ * 
+ * The format of a block digest file is:
+ * 
+ * <pre>
+ * magic:int, blockSize:int, {md5:byte[16]}*
+ * </pre>
+ * 
+ * @see SnapshotManager#SNAPSHOT_DELTA_EXT
+ * @see HAJournalServer.ConfigurationOptions#SNAPSHOT_FULL_INTERVAL
+ */
+public class SnapshotDeltaUtility {
+
+    private static final Logger log = Logger
+            .getLogger(SnapshotDeltaUtility.class);
+
+    /**
+     * The size of the blocks that are compared.
+     */
+    public static final int BLOCK_SIZE = Bytes.megabyte32;
+
+    /**
+     * The magic value for a differential snapshot.
+     */
+    static final int DELTA_MAGIC = 0x44656c74;
+
+    /**
+     * The magic value for a block digest file.
+     */
+    static final int DIGEST_MAGIC = 0x426c6b44;
+
+    static final int VERSION0 = 0;
+
+    /**
+     * The #of bytes in a block digest.
+     */
+    private static final int DIGEST_LENGTH = 16;
+
+    /**
+     * Return the block digest file associated with a full snapshot.
+     * 
+     * @param snapshotFile
+     *            The snapshot file.
+     */
+    public static File getBlockDigestFile(final File snapshotFile) {
+
+        final String name = snapshotFile.getName();
+
+        if (!name.endsWith(SnapshotManager.SNAPSHOT_EXT))
+            throw new IllegalArgumentException(name);
+
+        return new File(snapshotFile.getParentFile(), name.substring(0,
+                name.length() - SnapshotManager.SNAPSHOT_EXT.length())
+                + SnapshotManager.BLOCK_DIGEST_EXT);
+
+    }
+
+    /**
+     * Return the commit counter of the base snapshot for a differential
+     * snapshot.
+     * 
+     * @param deltaFile
+     *            The differential snapshot.
+     * 
+     * @throws IOException
+     *             if the file is not a differential snapshot.
+     */
+    public static long getBaseCommitCounter(final File deltaFile)
+            throws IOException {
+
+        final DataInputStream is = new DataInputStream(new GZIPInputStream(
+                new FileInputStream(deltaFile)));
+
+        try {
+
+            readDeltaHeader(is, deltaFile);
+
+            return is.readLong();
+
+        } finally {
+
+            is.close();
+
+        }
+
+    }
+
+    /**
+     * Return the base snapshot for a differential snapshot. Differential
+     * snapshots are stored in the same directory structure as the snapshots.
+     * 
+     * @param deltaFile
+     *            The differential snapshot.
+     * 
+     * @return The base snapshot (which might not exist).
+     * 
+     * @throws IOException
+     *             if the file is not a differential snapshot.
+     */
+    public static File getBaseSnapshotFile(final File deltaFile)
+            throws IOException {
+
+        // Each commit counter file is nested this many directories deep.
+        final int depth = CommitCounterUtility.getBasenameDigits()
+                / CommitCounterUtility.getDigitsPerDirectory() - 1;
+
+        File snapshotDir = deltaFile.getAbsoluteFile().getParentFile();
+
+        for (int i = 0; i < depth && snapshotDir != null; i++) {
+
+            snapshotDir = snapshotDir.getParentFile();
+
+        }
+
+        if (snapshotDir == null)
+            throw new IOException("Not in a snapshot directory: " + deltaFile);
+
+        return SnapshotManager.getSnapshotFile(snapshotDir,
+                getBaseCommitCounter(deltaFile));
+
+    }
+
+    private static void readDeltaHeader(final DataInputStream is,
+            final File file) throws IOException {
+
+        final int magic = is.readInt();
+
+        if (magic != DELTA_MAGIC)
+            throw new IOException("Not a differential snapshot: " + file);
+
+        final int version = is.readInt();
+
+        if (version != VERSION0)
+            throw new IOException("Unknown version: " + version + ", file="
+                    + file);
+
+    }
+
+    /**
+     * Restore a journal from a full snapshot and a differential snapshot
+     * against that full snapshot.
+     * 
+     * @param baseFile
+     *            The full snapshot.
+     * @param deltaFile
+     *            The differential snapshot.
+     * @param dst
+     *            The file onto which the journal will be written.
+     * 
+     * @throws IOException
+     *             if the differential snapshot was not taken against that
+     *             full snapshot.
+     * @throws IOException
+     *             if the destination file exists and is not empty.
+     */
+    public static void restore(final File baseFile, final File deltaFile,
+            final File dst) throws IOException {
+
+        final long baseCommitCounter = SnapshotManager
+                .parseCommitCounterFile(baseFile.getName());
+
+        if (getBaseCommitCounter(deltaFile) != baseCommitCounter)
+            throw new IOException("Differential snapshot " + deltaFile
+                    + " was not taken against " + baseFile);
+
+        if (log.isInfoEnabled())
+            log.info("base=" + baseFile + ", delta=" + deltaFile + ", dst="
+                    + dst);
+
+        SnapshotManager.decompress(baseFile, dst);
+
+        final DataInputStream is = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(deltaFile))));
+
+        try {
+
+            final RandomAccessFile raf = new RandomAccessFile(dst, "rw");
+
+            try {
+
+                readDeltaHeader(is, deltaFile);
+
+                is.readLong(); // baseCommitCounter
+
+                is.readLong(); // commitCounter
+
+                final int blockSize = is.readInt();
+
+                final byte[] buf = new byte[blockSize];
+
+                long nblocks = 0;
+
+                while (true) {
+
+                    final long blockIndex = is.readLong();
+
+                    if (blockIndex == -1L)
+                        break;
+
+                    final int len = is.readInt();
+
+                    if (len < 0 || len > blockSize)
+                        throw new IOException("Bad block length: " + len);
+
+                    is.readFully(buf, 0, len);
+
+                    raf.seek(blockIndex * blockSize);
+
+                    raf.write(buf, 0, len);
+
+                    nblocks++;
+
+                }
+
+                final long fileLength = is.readLong();
+
+                raf.setLength(fileLength);
+
+                if (log.isInfoEnabled())
+                    log.info("Applied " + nblocks + " blocks, fileLength="
+                            + fileLength);
+
+            } finally {
+
+                raf.close();
+
+            }
+
+        } finally {
+
+            is.close();
+
+        }
+
+    }
+
+    private static MessageDigest getMD5() {
+
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+    }
+
+    /**
+     * Base class for streams which process the journal image as a sequence of
+     * fixed size blocks.
+     */
+    private static abstract class AbstractBlockOutputStream extends
+            OutputStream {
+
+        protected final OutputStream out;
+
+        private final MessageDigest md = getMD5();
+
+        private final byte[] block = new byte[BLOCK_SIZE];
+
+        private int pos = 0;
+
+        private long blockIndex = 0L;
+
+        /**
+         * The #of bytes written on this stream.
+         */
+        protected long nbytes = 0L;
+
+        private boolean closed = false;
+
+        protected AbstractBlockOutputStream(final OutputStream out) {
+
+            if (out == null)
+                throw new IllegalArgumentException();
+
+            this.out = out;
+
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+
+            block[pos++] = (byte) b;
+
+            nbytes++;
+
+            if (pos == BLOCK_SIZE)
+                endBlock();
+
+        }
+
+        @Override
+        public void write(final byte[] b, int off, int len) throws IOException {
+
+            while (len > 0) {
+
+                final int n = Math.min(len, BLOCK_SIZE - pos);
+
+                System.arraycopy(b, off, block, pos, n);
+
+                pos += n;
+                off += n;
+                len -= n;
+                nbytes += n;
+
+                if (pos == BLOCK_SIZE)
+                    endBlock();
+
+            }
+
+        }
+
+        private void endBlock() throws IOException {
+
+            md.reset();
+
+            md.update(block, 0, pos);
+
+            handleBlock(blockIndex++, block, pos, md.digest());
+
+            pos = 0;
+
+        }
+
+        /**
+         * Process a block.
+         * 
+         * @param blockIndex
+         *            The index of the block.
+         * @param block
+         *            The data.
+         * @param len
+         *            The #of bytes in the block (less than {@link #BLOCK_SIZE}
+         *            only for the last block).
+         * @param digest
+         *            The MD5 digest of the data.
+         */
+        abstract protected void handleBlock(long blockIndex, byte[] block,
+                int len, byte[] digest) throws IOException;
+
+        /**
+         * Invoked once all blocks have been handled and before the backing
+         * stream is closed.
+         */
+        abstract protected void done() throws IOException;
+
+        @Override
+        public void flush() throws IOException {
+
+            out.flush();
+
+        }
+
+        /**
+         * Handles the last (partial) block, if any, and closes the backing
+         * stream.
+         */
+        @Override
+        public void close() throws IOException {
+
+            if (closed)
+                return;
+
+            closed = true;
+
+            try {
+
+                if (pos > 0)
+                    endBlock();
+
+                done();
+
+            } finally {
+
+                out.close();
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Writes the journal image through onto the backing stream (a full
+     * snapshot) and writes the digest of each block onto a block digest file.
+     */
+    public static class BlockDigestOutputStream extends
+            AbstractBlockOutputStream {
+
+        private final DataOutputStream digests;
+
+        /**
+         * 
+         * @param out
+         *            The stream on which the full snapshot is written.
+         * @param digestFile
+         *            The file on which the block digests will be written.
+         */
+        public BlockDigestOutputStream(final OutputStream out,
+                final File digestFile) throws IOException {
+
+            super(out);
+
+            digests = new DataOutputStream(new FileOutputStream(digestFile));
+
+            digests.writeInt(DIGEST_MAGIC);
+
+            digests.writeInt(BLOCK_SIZE);
+
+        }
+
+        @Override
+        protected void handleBlock(final long blockIndex, final byte[] block,
+                final int len, final byte[] digest) throws IOException {
+
+            out.write(block, 0, len);
+
+            digests.write(digest);
+
+        }
+
+        @Override
+        protected void done() throws IOException {
+
+            digests.close();
+
+        }
+
+    }
+
+    /**
+     * Writes a differential snapshot of the journal image onto the backing
+     * stream. Only the blocks whose digests differ from the corresponding
+     * block of the base snapshot are written.
+     */
+    public static class DeltaOutputStream extends AbstractBlockOutputStream {
+
+        private final DataOutputStream dos;
+
+        private final DataInputStream baseDigests;
+
+        private final byte[] baseDigest = new byte[DIGEST_LENGTH];
+
+        /**
+         * <code>true</code> until we run out of block digests for the base
+         * snapshot.
+         */
+        private boolean haveBaseDigests = true;
+
+        /**
+         * The #of blocks written onto the differential snapshot.
+         */
+        private long nchanged = 0L;
+
+        /**
+         * 
+         * @param out
+         *            The stream on which the differential snapshot is written.
+         * @param baseSnapshotFile
+         *            The base snapshot. Its block digest file MUST exist.
+         * @param commitCounter
+         *            The commit counter of the journal image which will be
+         *            written onto this stream.
+         */
+        public DeltaOutputStream(final OutputStream out,
+                final File baseSnapshotFile, final long commitCounter)
+                throws IOException {
+
+            super(out);
+
+            final File digestFile = getBlockDigestFile(baseSnapshotFile);
+
+            baseDigests = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(digestFile)));
+
+            try {
+
+                if (baseDigests.readInt() != DIGEST_MAGIC)
+                    throw new IOException("Not a block digest file: "
+                            + digestFile);
+
+                final int blockSize = baseDigests.readInt();
+
+                if (blockSize != BLOCK_SIZE)
+                    throw new IOException("Block size: expected=" + BLOCK_SIZE
+                            + ", actual=" + blockSize + ", file=" + digestFile);
+
+            } catch (IOException ex) {
+
+                baseDigests.close();
+
+                throw ex;
+
+            }
+
+            dos = new DataOutputStream(out);
+
+            dos.writeInt(DELTA_MAGIC);
+            dos.writeInt(VERSION0);
+            dos.writeLong(SnapshotManager.parseCommitCounterFile(baseSnapshotFile
+                    .getName()));
+            dos.writeLong(commitCounter);
+            dos.writeInt(BLOCK_SIZE);
+
+        }
+
+        /**
+         * The #of blocks written onto the differential snapshot.
+         */
+        public long getChangedBlockCount() {
+
+            return nchanged;
+
+        }
+
+        @Override
+        protected void handleBlock(final long blockIndex, final byte[] block,
+                final int len, final byte[] digest) throws IOException {
+
+            if (haveBaseDigests) {
+
+                try {
+
+                    baseDigests.readFully(baseDigest);
+
+                    if (Arrays.equals(digest, baseDigest)) {
+
+                        // Block is unchanged.
+                        return;
+
+                    }
+
+                } catch (EOFException ex) {
+
+                    // The journal was extended since the base snapshot.
+                    haveBaseDigests = false;
+
+                }
+
+            }
+
+            dos.writeLong(blockIndex);
+            dos.writeInt(len);
+            dos.write(block, 0, len);
+
+            nchanged++;
+
+        }
+
+        @Override
+        protected void done() throws IOException {
+
+            baseDigests.close();
+
+            dos.writeLong(-1L);
+            dos.writeLong(nbytes);
+            dos.flush();
+
+            if (log.isInfoEnabled())
+                log.info("nbytes=" + nbytes + ", nchanged=" + nchanged);
+
+        }
+
+    }
+
+}
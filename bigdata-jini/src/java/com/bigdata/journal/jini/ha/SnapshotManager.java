@@ -37,6 +37,7 @@ import java.nio.ByteBuffer;
 import java.security.DigestException;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -78,6 +79,9 @@ import com.bigdata.journal.ITx;
 import com.bigdata.journal.RootBlockUtility;
 import com.bigdata.journal.RootBlockView;
 import com.bigdata.journal.jini.ha.SnapshotIndex.ISnapshotRecord;
+import com.bigdata.io.compression.ParallelGZIPOutputStream;
+import com.bigdata.journal.jini.ha.SnapshotDeltaUtility.BlockDigestOutputStream;
+import com.bigdata.journal.jini.ha.SnapshotDeltaUtility.DeltaOutputStream;
 import com.bigdata.journal.jini.ha.SnapshotIndex.SnapshotRecord;
 import com.bigdata.quorum.Quorum;
 import com.bigdata.quorum.QuorumException;
@@ -108,6 +112,21 @@ public class SnapshotManager implements IServiceInit<Void> {
      */
     public final static String SNAPSHOT_EXT = ".jnl.gz";
 
+    /**
+     * The file extension for differential snapshots.
+     * 
+     * @see SnapshotDeltaUtility
+     */
+    public final static String SNAPSHOT_DELTA_EXT = ".jnl.delta.gz";
+
+    /**
+     * The file extension for the block digests of a full snapshot. These are
+     * used to take differential snapshots against that full snapshot.
+     * 
+     * @see SnapshotDeltaUtility
+     */
+    public final static String BLOCK_DIGEST_EXT = ".jnl.blocks";
+
     /**
      * The prefix for the temporary files used to generate snapshots.
      */
@@ -140,6 +159,52 @@ public class SnapshotManager implements IServiceInit<Void> {
         }
 
     };
+
+    /**
+     * A {@link FileFilter} that visits all files ending with the
+     * {@link #SNAPSHOT_DELTA_EXT} and the names of all direct child
+     * directories.
+     */
+    static public final FileFilter SNAPSHOT_DELTA_FILTER = new FileFilter() {
+
+        @Override
+        public boolean accept(File f) {
+
+            if (f.isDirectory()) {
+
+                return true;
+
+            }
+
+            return f.getName().endsWith(SnapshotManager.SNAPSHOT_DELTA_EXT);
+
+        }
+
+    };
+
+    /**
+     * A {@link FileFilter} that visits all differential snapshots and block
+     * digest files and the names of all direct child directories.
+     */
+    static private final FileFilter SNAPSHOT_AUX_FILTER = new FileFilter() {
+
+        @Override
+        public boolean accept(final File f) {
+
+            if (f.isDirectory()) {
+
+                return true;
+
+            }
+
+            final String name = f.getName();
+
+            return name.endsWith(SNAPSHOT_DELTA_EXT)
+                    || name.endsWith(BLOCK_DIGEST_EXT);
+
+        }
+
+    };
     
     /**
      * A {@link FileFilter} that visits all temporary files used to generate
@@ -199,6 +264,16 @@ public class SnapshotManager implements IServiceInit<Void> {
      * @see HAJournalServer.ConfigurationOptions#STARTUP_THREADS
      */
     private final int startupThreads;
+
+    /**
+     * @see HAJournalServer.ConfigurationOptions#SNAPSHOT_FULL_INTERVAL
+     */
+    private final int snapshotFullInterval;
+
+    /**
+     * @see HAJournalServer.ConfigurationOptions#SNAPSHOT_COMPRESSION_THREADS
+     */
+    private final int snapshotCompressionThreads;
     
     /**
      * An in memory index over the last commit time of each snapshot. This is
@@ -331,6 +406,42 @@ public class SnapshotManager implements IServiceInit<Void> {
             }
 
         }
+
+        {
+
+            snapshotFullInterval = (Integer) config
+                    .getEntry(
+                            HAJournalServer.ConfigurationOptions.COMPONENT,
+                            HAJournalServer.ConfigurationOptions.SNAPSHOT_FULL_INTERVAL,
+                            Integer.TYPE,
+                            HAJournalServer.ConfigurationOptions.DEFAULT_SNAPSHOT_FULL_INTERVAL);
+
+            if (snapshotFullInterval <= 0) {
+                throw new ConfigurationException(
+                        HAJournalServer.ConfigurationOptions.SNAPSHOT_FULL_INTERVAL
+                                + "=" + snapshotFullInterval
+                                + " : must be GT ZERO");
+            }
+
+        }
+
+        {
+
+            snapshotCompressionThreads = (Integer) config
+                    .getEntry(
+                            HAJournalServer.ConfigurationOptions.COMPONENT,
+                            HAJournalServer.ConfigurationOptions.SNAPSHOT_COMPRESSION_THREADS,
+                            Integer.TYPE,
+                            HAJournalServer.ConfigurationOptions.DEFAULT_SNAPSHOT_COMPRESSION_THREADS);
+
+            if (snapshotCompressionThreads <= 0) {
+                throw new ConfigurationException(
+                        HAJournalServer.ConfigurationOptions.SNAPSHOT_COMPRESSION_THREADS
+                                + "=" + snapshotCompressionThreads
+                                + " : must be GT ZERO");
+            }
+
+        }
         
         snapshotIndex = SnapshotIndex.createTransient();
 
@@ -792,6 +903,15 @@ public class SnapshotManager implements IServiceInit<Void> {
 
         }
 
+        // Remove the block digests for that snapshot (if any).
+        final File digestFile = SnapshotDeltaUtility.getBlockDigestFile(file);
+
+        if (digestFile.exists() && !digestFile.delete()) {
+
+            log.warn("Could not delete: " + digestFile);
+
+        }
+
         return true;
 
     }
@@ -925,6 +1045,9 @@ public class SnapshotManager implements IServiceInit<Void> {
 
         try {
 
+            CommitCounterUtility.recursiveDelete(true/* errorIfDeleteFails */,
+                    snapshotDir, SNAPSHOT_AUX_FILTER);
+
             CommitCounterUtility.recursiveDelete(true/* errorIfDeleteFails */,
                     snapshotDir, SNAPSHOT_FILTER);
 
@@ -1070,6 +1193,28 @@ public class SnapshotManager implements IServiceInit<Void> {
         final long earliestRetainedSnapshotCommitCounter = oldestSnapshot == null ? 0L
                 : oldestSnapshot.getRootBlock().getCommitCounter();
 
+        if (oldestSnapshot != null) {
+
+            /*
+             * Differential snapshots taken against the deleted snapshots can
+             * no longer be restored.
+             */
+            for (File file : getSnapshotDeltaFiles(0L/* sinceCommitCounter */)) {
+
+                if (CommitCounterUtility.parseCommitCounterFile(
+                        file.getName(), SNAPSHOT_DELTA_EXT) >= earliestRetainedSnapshotCommitCounter)
+                    continue;
+
+                if (!file.delete()) {
+
+                    haLog.warn("COULD NOT DELETE FILE: " + file);
+
+                }
+
+            }
+
+        }
+
         if (haLog.isInfoEnabled())
             haLog.info("PURGED SNAPSHOTS: nbefore=" + nbefore + ", ndeleted="
                     + ndeleted + ", totalBytesReclaimed=" + totalBytesReclaimed
@@ -1286,6 +1431,134 @@ public class SnapshotManager implements IServiceInit<Void> {
         return CommitCounterUtility.parseCommitCounterFile(name, SNAPSHOT_EXT);
 
     }
+
+    /**
+     * Return the differential snapshot {@link File} associated with the
+     * commitCounter.
+     * 
+     * @param commitCounter
+     *            The commit counter for the current root block on the journal.
+     * 
+     * @return The name of the corresponding differential snapshot file.
+     */
+    public File getSnapshotDeltaFile(final long commitCounter) {
+
+        return CommitCounterUtility.getCommitCounterFile(snapshotDir,
+                commitCounter, SNAPSHOT_DELTA_EXT);
+
+    }
+
+    /**
+     * Return the differential snapshots whose commit counter is strictly
+     * greater than the given commit counter, in order of increasing commit
+     * counter.
+     * 
+     * @param sinceCommitCounter
+     *            The commit counter.
+     */
+    public List<File> getSnapshotDeltaFiles(final long sinceCommitCounter) {
+
+        final List<File> files = new ArrayList<File>();
+
+        getSnapshotDeltaFiles(snapshotDir, sinceCommitCounter, files);
+
+        return files;
+
+    }
+
+    private void getSnapshotDeltaFiles(final File f,
+            final long sinceCommitCounter, final List<File> files) {
+
+        if (f.isDirectory()) {
+
+            final File[] children = f.listFiles(SNAPSHOT_DELTA_FILTER);
+
+            if (children == null)
+                return;
+
+            // Note: lexical order is commit counter order.
+            Arrays.sort(children);
+
+            for (File child : children) {
+
+                getSnapshotDeltaFiles(child, sinceCommitCounter, files);
+
+            }
+
+        } else if (CommitCounterUtility.parseCommitCounterFile(f.getName(),
+                SNAPSHOT_DELTA_EXT) > sinceCommitCounter) {
+
+            files.add(f);
+
+        }
+
+    }
+
+    /**
+     * Return the full snapshot against which the next snapshot should be taken
+     * as a differential snapshot -or- <code>null</code> if the next snapshot
+     * should be a full snapshot. A differential snapshot is taken iff the most
+     * recent full snapshot has block digests and there have been fewer than
+     * {@link HAJournalServer.ConfigurationOptions#SNAPSHOT_FULL_INTERVAL}
+     * <code>-1</code> differential snapshots taken against it.
+     */
+    private ISnapshotRecord getSnapshotDeltaBase() {
+
+        if (snapshotFullInterval <= 1) {
+
+            // Differential snapshots are disabled.
+            return null;
+
+        }
+
+        final ISnapshotRecord newestSnapshot = getNewestSnapshot();
+
+        if (newestSnapshot == null) {
+
+            return null;
+
+        }
+
+        final long commitCounter = newestSnapshot.getRootBlock()
+                .getCommitCounter();
+
+        if (!SnapshotDeltaUtility.getBlockDigestFile(
+                getSnapshotFile(commitCounter)).exists()) {
+
+            // Not taken with block digests.
+            return null;
+
+        }
+
+        if (getSnapshotDeltaFiles(commitCounter).size() >= snapshotFullInterval - 1) {
+
+            // Time for a new full snapshot.
+            return null;
+
+        }
+
+        return newestSnapshot;
+
+    }
+
+    /**
+     * Return a stream which will compress the data written onto a snapshot.
+     * 
+     * @see HAJournalServer.ConfigurationOptions#SNAPSHOT_COMPRESSION_THREADS
+     */
+    private OutputStream newCompressedOutputStream(final OutputStream os)
+            throws IOException {
+
+        if (snapshotCompressionThreads > 1) {
+
+            return new ParallelGZIPOutputStream(os,
+                    journal.getExecutorService(), snapshotCompressionThreads);
+
+        }
+
+        return new GZIPOutputStream(os);
+
+    }
     
     /**
      * Find the commit counter for the most recent snapshot (if any). Count up
@@ -1318,9 +1591,31 @@ public class SnapshotManager implements IServiceInit<Void> {
 
         }
 
-        final long sinceCommitCounter = snapshotRootBlock == null ? 0L
+        long sinceCommitCounter = snapshotRootBlock == null ? 0L
                 : snapshotRootBlock.getCommitCounter();
 
+        if (snapshotRootBlock != null && snapshotFullInterval > 1) {
+
+            // Most recent differential snapshot (if any).
+            final List<File> deltas = getSnapshotDeltaFiles(sinceCommitCounter);
+
+            if (!deltas.isEmpty()) {
+
+                sinceCommitCounter = CommitCounterUtility
+                        .parseCommitCounterFile(deltas.get(deltas.size() - 1)
+                                .getName(), SNAPSHOT_DELTA_EXT);
+
+                if (journal.getRootBlockView().getCommitCounter() == sinceCommitCounter) {
+
+                    // Already have a differential snapshot for this commit.
+                    return false;
+
+                }
+
+            }
+
+        }
+
         // Get HALog bytes on disk since that commit counter (strictly GT).
         final long haLogBytesOnDisk = journal.getHALogNexus()
                 .getHALogFileBytesSinceCommitCounter(sinceCommitCounter);
@@ -1451,8 +1746,15 @@ public class SnapshotManager implements IServiceInit<Void> {
 				final ISnapshotData coreData = journal
 						.snapshotAllocationData(rbv);
 
-				final File file = snapshotManager.getSnapshotFile(rbv.get()
-						.getCommitCounter());
+				final long commitCounter = rbv.get().getCommitCounter();
+
+				// The base snapshot iff this will be a differential snapshot.
+				final ISnapshotRecord base = snapshotManager
+						.getSnapshotDeltaBase();
+
+				final File file = base == null ? snapshotManager
+						.getSnapshotFile(commitCounter) : snapshotManager
+						.getSnapshotDeltaFile(commitCounter);
 
 				if (file.exists() && file.length() != 0L) {
 
@@ -1492,12 +1794,38 @@ public class SnapshotManager implements IServiceInit<Void> {
 						SnapshotManager.SNAPSHOT_TMP_PREFIX,
 						SnapshotManager.SNAPSHOT_TMP_SUFFIX, parentDir);
 
-				DataOutputStream os = null;
+				/*
+				 * The block digests are written iff this is a full snapshot and
+				 * differential snapshots are enabled.
+				 */
+				final File digestTmp = base == null
+						&& snapshotManager.snapshotFullInterval > 1 ? File
+						.createTempFile(SnapshotManager.SNAPSHOT_TMP_PREFIX,
+								SnapshotManager.SNAPSHOT_TMP_SUFFIX, parentDir)
+						: null;
+
+				OutputStream os = null;
 				boolean success = false;
 				try {
 
-					os = new DataOutputStream(new GZIPOutputStream(
-							new FileOutputStream(tmp)));
+					final OutputStream zos = snapshotManager
+							.newCompressedOutputStream(new FileOutputStream(tmp));
+
+					try {
+						if (base != null) {
+							os = new DeltaOutputStream(zos,
+									snapshotManager.getSnapshotFile(base
+											.getRootBlock().getCommitCounter()),
+									commitCounter);
+						} else if (digestTmp != null) {
+							os = new BlockDigestOutputStream(zos, digestTmp);
+						} else {
+							os = zos;
+						}
+					} catch (IOException ex) {
+						zos.close();
+						throw ex;
+					}
 
 					// write out the file data.
 					((IHABufferStrategy) journal.getBufferStrategy())
@@ -1548,8 +1876,37 @@ public class SnapshotManager implements IServiceInit<Void> {
 
 							log.error("Could not rename " + tmp + " as " + file);
 
+						} else if (base != null) {
+
+							/*
+							 * Note: Differential snapshots are not restore points
+							 * so they are not added to the index and do not
+							 * allow HALogs to be purged.
+							 */
+
+							if (haLog.isInfoEnabled())
+								haLog.info("Captured differential snapshot: "
+										+ file + ", baseCommitCounter="
+										+ base.getRootBlock().getCommitCounter()
+										+ ", commitCounter=" + commitCounter
+										+ ", length=" + file.length());
+
 						} else {
 
+							if (digestTmp != null) {
+
+								final File digestFile = SnapshotDeltaUtility
+										.getBlockDigestFile(file);
+
+								if (!digestTmp.renameTo(digestFile)) {
+
+									log.error("Could not rename " + digestTmp
+											+ " as " + digestFile);
+
+								}
+
+							}
+
 							// Add to the set of known snapshots.
 							snapshotManager.addSnapshot(file);
 
@@ -1587,6 +1944,13 @@ public class SnapshotManager implements IServiceInit<Void> {
 
 						}
 
+						if (digestTmp != null && !digestTmp.delete()) {
+
+							log.warn("Could not delete temporary file: "
+									+ digestTmp);
+
+						}
+
 					}
 
 				}
@@ -68,6 +68,12 @@ public class TestAll extends TestCase {
         // commitTime => (HALog|Snapshot)Record test suites.
         suite.addTestSuite(TestHALogIndex.class);
         suite.addTestSuite(TestSnapshotIndex.class);
+
+        // Differential snapshot test suite.
+        suite.addTestSuite(TestSnapshotDeltaUtility.class);
+
+        // HALog replay counters test suite.
+        suite.addTestSuite(TestHALogReplayCounters.class);
         
         // Test suite for direct IBufferStrategy data xfer tests.
         suite.addTestSuite(TestRawTransfers.class);
@@ -95,6 +101,9 @@ public class TestAll extends TestCase {
         // HA3 test suite focusing on sudden kills.
         suite.addTestSuite(TestHA3JustKills.class);
 
+        // HA3 test suite for the parallel send of write cache blocks.
+        suite.addTestSuite(TestHA3ParallelSend.class);
+
         // HA3 snapshot policy test suite.
         suite.addTestSuite(TestHA3SnapshotPolicy.class);
         suite.addTestSuite(TestHA3SnapshotPolicy2.class);
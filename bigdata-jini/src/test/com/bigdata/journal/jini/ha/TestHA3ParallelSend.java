@@ -0,0 +1,246 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.journal.jini.ha;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import net.jini.config.Configuration;
+
+import com.bigdata.ha.HAGlue;
+import com.bigdata.ha.HAStatusEnum;
+import com.bigdata.ha.msg.HARootBlockRequest;
+import com.bigdata.ha.msg.IHASyncRequest;
+import com.bigdata.ha.msg.IHAWriteMessage;
+import com.bigdata.journal.jini.ha.HAJournalServer.HAQuorumService.IHAProgressListener;
+import com.bigdata.journal.jini.ha.HAJournalTest.HAGlueTest;
+
+/**
+ * HA3 test suite for the parallel send of write cache blocks from the leader
+ * to the followers.
+ * 
+ * @see HAJournalServer.ConfigurationOptions#HA_PARALLEL_SEND
+ */
+public class TestHA3ParallelSend extends AbstractHA3JournalServerTestCase {
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: This overrides some {@link Configuration} values for the
+     * {@link HAJournalServer} in order to enable the parallel send.
+     */
+    @Override
+    protected String[] getOverrides() {
+        
+        return new String[]{
+                "com.bigdata.journal.jini.ha.HAJournalServer.restorePolicy=new com.bigdata.journal.jini.ha.DefaultRestorePolicy(0L,1,0)",
+                "com.bigdata.journal.jini.ha.HAJournalServer.snapshotPolicy=new com.bigdata.journal.jini.ha.NoSnapshotPolicy()",
+                "com.bigdata.journal.jini.ha.HAJournalServer.onlineDisasterRecovery=true",
+                "com.bigdata.journal.jini.ha.HAJournalServer.haParallelSend=true",
+        };
+        
+    }
+    
+    public TestHA3ParallelSend() {
+    }
+
+    public TestHA3ParallelSend(String name) {
+        super(name);
+    }
+
+    /**
+     * Start A+B+C in strict sequence. Wait until the quorum fully meets. Go
+     * through a commit point and then a LOAD which spans many write cache
+     * blocks. Verify that the journals on the followers are binary equal to
+     * the journal on the leader after each commit.
+     */
+    public void testABC_parallelSend_commit() throws Exception {
+
+        // enforce join order
+        final ABC startup = new ABC(true /* sequential */);
+
+        final long token = awaitFullyMetQuorum();
+
+        awaitHAStatus(startup.serverA, HAStatusEnum.Leader);
+        awaitHAStatus(startup.serverB, HAStatusEnum.Follower);
+        awaitHAStatus(startup.serverC, HAStatusEnum.Follower);
+
+        // await the initial KB commit on all services.
+        awaitCommitCounter(1L, new HAGlue[] { startup.serverA,
+                startup.serverB, startup.serverC });
+
+        // Verify binary equality of ALL journals.
+        assertDigestsEquals(new HAGlue[] { startup.serverA, startup.serverB,
+                startup.serverC });
+
+        simpleTransaction();
+
+        awaitCommitCounter(2L, new HAGlue[] { startup.serverA,
+                startup.serverB, startup.serverC });
+
+        // Verify binary equality of ALL journals.
+        assertDigestsEquals(new HAGlue[] { startup.serverA, startup.serverB,
+                startup.serverC });
+
+        // LOAD enough data to replicate many write cache blocks.
+        final FutureTask<Void> ft = new FutureTask<Void>(new LargeLoadTask(
+                token));
+
+        executorService.submit(ft);
+
+        ft.get(longLoadTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        // token must remain unchanged to indicate same quorum
+        assertEquals(token, awaitFullyMetQuorum());
+
+        final long commitCounter = startup.serverA
+                .getRootBlock(new HARootBlockRequest(null/* storeUUID */))
+                .getRootBlock().getCommitCounter();
+
+        awaitCommitCounter(commitCounter, new HAGlue[] { startup.serverA,
+                startup.serverB, startup.serverC });
+
+        // Verify binary equality of ALL journals.
+        assertDigestsEquals(new HAGlue[] { startup.serverA, startup.serverB,
+                startup.serverC });
+
+    }
+
+    /**
+     * Sure kill of a process when it receives the first write cache block
+     * for the first commit point after the KB create.
+     * <p>
+     * Note: A concrete static instance of the {@link IHAProgressListener} MUST
+     * be used since this class MUST be {@link Serializable}.
+     */
+    private static class HAProgressListenerKillPID implements
+            IHAProgressListener, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final private int pid;
+
+        /**
+         * @param pid
+         *            The process to be killed.
+         */
+        public HAProgressListenerKillPID(final int pid) {
+            this.pid = pid;
+        }
+
+        @Override
+        public void incReceive(final IHASyncRequest req,
+                final IHAWriteMessage msg, final int nreads, final int rdlen,
+                final int rem) throws Exception {
+
+            // Note: This is the *opening* root block counter.
+            if (msg.getCommitCounter() == 1L) {
+
+                log.fatal("Will sure kill process: pid=" + pid);
+
+                trySignal(SignalEnum.KILL, pid);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Start A+B+C in strict sequence. Wait until the quorum fully meets. Sure
+     * kill C (the follower reached through its own send service) while it is
+     * receiving a write cache block during a LOAD. The failed send to C must
+     * propagate to the leader, which removes C from the quorum and resets the
+     * pipeline. Verify that the LOAD completes with the remaining services
+     * (A+B) in the same quorum and that their journals are binary equal.
+     */
+    public void testABC_parallelSend_kill_C_duringReplication()
+            throws Exception {
+
+        // enforce join order
+        final ABC startup = new ABC(true /* sequential */);
+
+        final long token = awaitFullyMetQuorum();
+
+        // await the initial KB commit on all services.
+        awaitCommitCounter(1L, new HAGlue[] { startup.serverA,
+                startup.serverB, startup.serverC });
+
+        // Set a trigger to sure kill C once it receives a write cache block.
+        ((HAGlueTest) startup.serverC)
+                .failWriteReplication(new HAProgressListenerKillPID(
+                        ((HAGlueTest) startup.serverC).getPID()));
+
+        final FutureTask<Void> ft = new FutureTask<Void>(new LargeLoadTask(
+                token));
+
+        executorService.submit(ft);
+
+        // Wait until C is killed.
+        assertCondition(new Runnable() {
+            public void run() {
+                try {
+                    startup.serverC.getWritePipelineAddr();
+                    fail("C is still running.");
+                } catch (IOException ex) {
+                    if (log.isInfoEnabled())
+                        log.info("Expected exception: C is no longer responding: "
+                                + ex);
+                    return;
+                }
+            }
+        }, 20000, TimeUnit.MILLISECONDS);
+
+        // The leader removes C from the pipeline and the quorum.
+        awaitPipeline(20, TimeUnit.SECONDS, new HAGlue[] { startup.serverA,
+                startup.serverB });
+
+        awaitMembers(new HAGlue[] { startup.serverA, startup.serverB });
+        awaitJoined(new HAGlue[] { startup.serverA, startup.serverB });
+
+        // token must remain unchanged to indicate same quorum
+        assertEquals(token, awaitMetQuorum());
+
+        // Await LOAD, but with a timeout.
+        ft.get(longLoadTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        // token must remain unchanged to indicate same quorum
+        assertEquals(token, awaitMetQuorum());
+
+        awaitHAStatus(startup.serverA, HAStatusEnum.Leader);
+        awaitHAStatus(startup.serverB, HAStatusEnum.Follower);
+
+        // Verify binary equality of the remaining journals.
+        assertDigestsEquals(new HAGlue[] { startup.serverA, startup.serverB });
+
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.journal.jini.ha;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounter;
+import com.bigdata.journal.jini.ha.HALogReplayCounters.IHALogReplayCounters;
+
+/**
+ * Test suite for the {@link HALogReplayCounters}.
+ */
+public class TestHALogReplayCounters extends TestCase2 {
+
+    public TestHALogReplayCounters() {
+        super();
+    }
+
+    public TestHALogReplayCounters(final String name) {
+        super(name);
+    }
+
+    public void test_unknownTarget() {
+
+        final HALogReplayCounters c = new HALogReplayCounters();
+
+        c.start(10L, -1L/* targetCommitCounter */);
+
+        assertEquals(0L, c.getWriteSetsApplied());
+        assertEquals(-1L, c.getWriteSetsRemaining());
+        assertEquals(-1L, c.getETA());
+
+    }
+
+    public void test_progress() throws InterruptedException {
+
+        final HALogReplayCounters c = new HALogReplayCounters();
+
+        c.start(10L, 20L/* targetCommitCounter */);
+
+        assertEquals(10L, c.getWriteSetsRemaining());
+
+        // no rate yet.
+        assertEquals(-1L, c.getETA());
+
+        Thread.sleep(20);
+
+        c.blockApplied(100L);
+        c.writeSetApplied(11L);
+        c.blockApplied(100L);
+        c.writeSetApplied(12L);
+
+        assertEquals(2L, c.getWriteSetsApplied());
+        assertEquals(8L, c.getWriteSetsRemaining());
+        assertTrue(c.getWriteSetsPerSecond() > 0d);
+        assertTrue(c.getBytesPerSecond() > 0d);
+        assertTrue(c.getETA() > 0L);
+
+        // the leader committed.
+        c.setTargetCommitCounter(25L);
+        assertEquals(13L, c.getWriteSetsRemaining());
+
+        // caught up.
+        c.writeSetApplied(25L);
+        assertEquals(0L, c.getWriteSetsRemaining());
+        assertEquals(0L, c.getETA());
+
+        // restart resets the counters.
+        c.start(25L, 30L);
+        assertEquals(0L, c.getWriteSetsApplied());
+        assertEquals(5L, c.getWriteSetsRemaining());
+
+    }
+
+    public void test_counters() {
+
+        final HALogReplayCounters c = new HALogReplayCounters();
+
+        c.start(1L, 3L);
+
+        c.writeSetApplied(2L);
+
+        final CounterSet counters = c.getCounters();
+
+        assertEquals(Long.valueOf(1L), ((ICounter<?>) counters
+                .getChild(IHALogReplayCounters.WriteSetsApplied)).getValue());
+
+        assertEquals(Long.valueOf(1L), ((ICounter<?>) counters
+                .getChild(IHALogReplayCounters.WriteSetsRemaining)).getValue());
+
+    }
+
+}
@@ -0,0 +1,292 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.journal.jini.ha;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.journal.CommitCounterUtility;
+import com.bigdata.journal.jini.ha.SnapshotDeltaUtility.BlockDigestOutputStream;
+import com.bigdata.journal.jini.ha.SnapshotDeltaUtility.DeltaOutputStream;
+
+/**
+ * Test suite for {@link SnapshotDeltaUtility}.
+ */
+public class TestSnapshotDeltaUtility extends TestCase2 {
+
+    public TestSnapshotDeltaUtility() {
+        super();
+    }
+
+    public TestSnapshotDeltaUtility(final String name) {
+        super(name);
+    }
+
+    private static final int BLOCK_SIZE = SnapshotDeltaUtility.BLOCK_SIZE;
+
+    private Random r = null;
+
+    private File snapshotDir = null;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        r = new Random();
+        snapshotDir = File.createTempFile(getName(), ".snapshot");
+        if (!snapshotDir.delete() || !snapshotDir.mkdirs())
+            fail("Could not create: " + snapshotDir);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (snapshotDir != null) {
+            recursiveDelete(snapshotDir);
+            snapshotDir = null;
+        }
+        r = null;
+        super.tearDown();
+    }
+
+    private static void recursiveDelete(final File f) {
+        if (f.isDirectory()) {
+            for (File child : f.listFiles()) {
+                recursiveDelete(child);
+            }
+        }
+        f.delete();
+    }
+
+    /**
+     * Write a full snapshot with block digests.
+     */
+    private File writeSnapshot(final long commitCounter, final byte[] image)
+            throws IOException {
+
+        final File file = SnapshotManager.getSnapshotFile(snapshotDir,
+                commitCounter);
+
+        file.getParentFile().mkdirs();
+
+        final BlockDigestOutputStream os = new BlockDigestOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file)),
+                SnapshotDeltaUtility.getBlockDigestFile(file));
+
+        os.write(image);
+
+        os.close();
+
+        return file;
+
+    }
+
+    /**
+     * Write a differential snapshot against a full snapshot.
+     * 
+     * @return The #of changed blocks.
+     */
+    private long writeDelta(final File base, final long commitCounter,
+            final byte[] image) throws IOException {
+
+        final File file = getDeltaFile(commitCounter);
+
+        file.getParentFile().mkdirs();
+
+        final DeltaOutputStream os = new DeltaOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file)), base,
+                commitCounter);
+
+        // Note: written in odd sized chunks.
+        int off = 0;
+        while (off < image.length) {
+            final int len = Math.min(image.length - off, 4093);
+            os.write(image, off, len);
+            off += len;
+        }
+
+        os.close();
+
+        return os.getChangedBlockCount();
+
+    }
+
+    private File getDeltaFile(final long commitCounter) {
+
+        return CommitCounterUtility.getCommitCounterFile(snapshotDir,
+                commitCounter, SnapshotManager.SNAPSHOT_DELTA_EXT);
+
+    }
+
+    private byte[] randomImage(final int len) {
+
+        final byte[] a = new byte[len];
+
+        r.nextBytes(a);
+
+        return a;
+
+    }
+
+    private static byte[] readFile(final File file) throws IOException {
+
+        final InputStream is = new FileInputStream(file);
+
+        try {
+
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+            final byte[] buf = new byte[8192];
+
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                baos.write(buf, 0, n);
+            }
+
+            return baos.toByteArray();
+
+        } finally {
+
+            is.close();
+
+        }
+
+    }
+
+    private byte[] restore(final File base, final File delta)
+            throws IOException {
+
+        final File out = new File(snapshotDir, "restored.jnl");
+
+        if (out.exists() && !out.delete())
+            fail("Could not delete: " + out);
+
+        SnapshotDeltaUtility.restore(base, delta, out);
+
+        return readFile(out);
+
+    }
+
+    /**
+     * Only the changed blocks are written onto the differential snapshot and
+     * the journal image is restored from the base plus the delta.
+     */
+    public void test_changedBlocks() throws IOException {
+
+        final byte[] image0 = randomImage(BLOCK_SIZE * 4 + 100);
+
+        final File base = writeSnapshot(10L, image0);
+
+        assertTrue(SnapshotDeltaUtility.getBlockDigestFile(base).exists());
+
+        // change one byte in block 2.
+        final byte[] image1 = image0.clone();
+        image1[BLOCK_SIZE * 2 + 17]++;
+
+        assertEquals(1L, writeDelta(base, 12L, image1));
+
+        final File delta = getDeltaFile(12L);
+
+        assertEquals(10L, SnapshotDeltaUtility.getBaseCommitCounter(delta));
+
+        assertEquals(base.getAbsoluteFile(),
+                SnapshotDeltaUtility.getBaseSnapshotFile(delta));
+
+        assertEquals(image1, restore(base, delta));
+
+    }
+
+    /**
+     * The journal was extended and the last partial block was modified.
+     */
+    public void test_extended() throws IOException {
+
+        final byte[] image0 = randomImage(BLOCK_SIZE * 2 + 100);
+
+        final File base = writeSnapshot(1L, image0);
+
+        final byte[] image1 = new byte[BLOCK_SIZE * 3 + 5];
+        System.arraycopy(image0, 0, image1, 0, image0.length);
+        for (int i = image0.length; i < image1.length; i++)
+            image1[i] = (byte) i;
+
+        // blocks 2 and 3 are written.
+        assertEquals(2L, writeDelta(base, 2L, image1));
+
+        assertEquals(image1, restore(base,
+                getDeltaFile(2L)));
+
+    }
+
+    /**
+     * The journal is unchanged.
+     */
+    public void test_unchanged() throws IOException {
+
+        final byte[] image0 = randomImage(BLOCK_SIZE + 1);
+
+        final File base = writeSnapshot(5L, image0);
+
+        assertEquals(0L, writeDelta(base, 6L, image0));
+
+        assertEquals(image0, restore(base,
+                getDeltaFile(6L)));
+
+    }
+
+    /**
+     * A differential snapshot can not be applied to a different base.
+     */
+    public void test_wrongBase() throws IOException {
+
+        final byte[] image0 = randomImage(100);
+
+        final File base = writeSnapshot(5L, image0);
+
+        final File other = writeSnapshot(7L, image0);
+
+        writeDelta(base, 8L, image0);
+
+        try {
+            restore(other, getDeltaFile(8L));
+            fail("Expecting: " + IOException.class);
+        } catch (IOException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+}
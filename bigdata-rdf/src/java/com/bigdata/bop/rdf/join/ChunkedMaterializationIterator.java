@@ -54,7 +54,7 @@ public class ChunkedMaterializationIterator implements
 
     private final ICloseableIterator<IBindingSet[]> src;
 
-    private boolean open = false;
+    private boolean open = true;
 
     /**
      * 
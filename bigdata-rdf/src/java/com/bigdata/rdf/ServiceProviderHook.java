@@ -50,6 +50,9 @@ import com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONParserForConstructFactor
 import com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONWriterFactory;
 import com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONWriterForConstructFactory;
 import com.bigdata.rdf.rio.ntriples.BigdataNTriplesParserFactory;
+import com.bigdata.rdf.rio.solutions.BinarySolutionsParserFactory;
+import com.bigdata.rdf.rio.solutions.BinarySolutionsWriterFactory;
+import com.bigdata.rdf.rio.tsv.BigdataSPARQLResultsTSVParserFactory;
 import com.bigdata.rdf.rio.turtle.BigdataTurtleParserFactory;
 import com.bigdata.rdf.rio.turtle.BigdataTurtleWriterFactory;
 
@@ -238,6 +241,9 @@ public class ServiceProviderHook {
         	// add our custom RDR-enabled JSON writer for SPARQL result sets.
         	r.add(new BigdataSPARQLResultsJSONWriterFactory());
         	
+        	// compact binary SPARQL result sets (also registers the format).
+        	r.add(new BinarySolutionsWriterFactory());
+        	
         }
 
         {
@@ -247,6 +253,12 @@ public class ServiceProviderHook {
             // add our custom RDR-enabled JSON parser for SPARQL result sets.
             r.add(new BigdataSPARQLResultsJSONParserFactory());
             
+            // compact binary SPARQL result sets.
+            r.add(new BinarySolutionsParserFactory());
+
+            // TSV parser which decodes all escapes in literal labels.
+            r.add(new BigdataSPARQLResultsTSVParserFactory());
+            
         }
 
         // Ditto, but for the writer.
@@ -0,0 +1,56 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.internal;
+
+import java.util.Collection;
+
+import com.bigdata.rdf.internal.impl.extensions.GeoSpatialExtension;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.vocab.GeoSpatialVocabulary;
+
+/**
+ * Adds inlining for the geospatial literal datatypes. The datatypes must be
+ * declared by the vocabulary, e.g., by using the {@link GeoSpatialVocabulary}.
+ * 
+ * @see com.bigdata.rdf.store.AbstractTripleStore.Options#EXTENSION_FACTORY_CLASS
+ */
+public class GeoSpatialExtensionFactory extends DefaultExtensionFactory {
+
+    protected void _init(final IDatatypeURIResolver resolver,
+            final ILexiconConfiguration<BigdataValue> lex,
+            final Collection<IExtension> extensions) {
+
+        // Extension to inline the geospatial datatypes.
+        extensions.add(new GeoSpatialExtension<BigdataLiteral>(resolver));
+
+    }
+    
+}
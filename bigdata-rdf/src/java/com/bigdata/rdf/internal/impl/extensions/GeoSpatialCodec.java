@@ -0,0 +1,340 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.internal.impl.extensions;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Encodes points (latitude, longitude and optionally a time) as z-order
+ * (Morton) keys. Each dimension is quantized onto an unsigned {@value #BITS}
+ * bit grid and the bits of the dimensions are interleaved, most significant
+ * bit first, with the latitude bit leading each group. Points which are close
+ * in space (and time) therefore tend to be close in the key order and an axis
+ * aligned box maps onto a small number of contiguous key ranges (see
+ * {@link ZOrderRangeDecomposer}).
+ * <p>
+ * The resolution of the grid is <code>180/2^32</code> degrees of latitude and
+ * <code>360/2^32</code> degrees of longitude (about 1cm). Coordinates are
+ * reported with {@value #SCALE} decimal digits when a key is decoded. The time
+ * dimension is not quantized, but must lie in <code>[0:2^32-1]</code> (which
+ * covers seconds since the epoch through 2106).
+ * 
+ * @see GeoSpatialExtension
+ */
+public class GeoSpatialCodec {
+
+    /**
+     * The #of bits in the grid for each dimension.
+     */
+    public static final int BITS = 32;
+
+    /**
+     * The largest grid coordinate.
+     */
+    public static final long MAX_COORD = (1L << BITS) - 1;
+
+    /**
+     * The largest legal time value.
+     */
+    public static final long MAX_TIME = MAX_COORD;
+
+    /**
+     * The separator between the components of the lexical form.
+     */
+    public static final char SEPARATOR = '#';
+
+    /**
+     * The #of decimal digits used to report decoded coordinates.
+     */
+    public static final int SCALE = 7;
+
+    /**
+     * Mean earth radius in kilometers.
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private GeoSpatialCodec() {
+    }
+
+    /**
+     * Quantize a latitude.
+     * 
+     * @throws IllegalArgumentException
+     *             unless the latitude is in <code>[-90:90]</code>.
+     */
+    public static long quantizeLatitude(final double lat) {
+
+        if (!(lat >= -90d && lat <= 90d))
+            throw new IllegalArgumentException("latitude: " + lat);
+
+        return Math.round((lat + 90d) / 180d * MAX_COORD);
+
+    }
+
+    /**
+     * Quantize a longitude.
+     * 
+     * @throws IllegalArgumentException
+     *             unless the longitude is in <code>[-180:180]</code>.
+     */
+    public static long quantizeLongitude(final double lon) {
+
+        if (!(lon >= -180d && lon <= 180d))
+            throw new IllegalArgumentException("longitude: " + lon);
+
+        return Math.round((lon + 180d) / 360d * MAX_COORD);
+
+    }
+
+    /**
+     * Validate a time value.
+     * 
+     * @throws IllegalArgumentException
+     *             unless the time is in <code>[0:2^32-1]</code>.
+     */
+    public static long checkTime(final long time) {
+
+        if (time < 0 || time > MAX_TIME)
+            throw new IllegalArgumentException("time: " + time);
+
+        return time;
+
+    }
+
+    /**
+     * The latitude for a grid coordinate.
+     */
+    public static double latitude(final long coord) {
+
+        return coord * 180d / MAX_COORD - 90d;
+
+    }
+
+    /**
+     * The longitude for a grid coordinate.
+     */
+    public static double longitude(final long coord) {
+
+        return coord * 360d / MAX_COORD - 180d;
+
+    }
+
+    /**
+     * Parse the lexical form of a point.
+     * 
+     * @param s
+     *            The lexical form, either <code>lat#lon</code> or
+     *            <code>lat#lon#time</code>.
+     * @param dims
+     *            The expected #of components (2 or 3).
+     * 
+     * @return The grid coordinates.
+     * 
+     * @throws IllegalArgumentException
+     *             if the lexical form is not valid.
+     */
+    public static long[] parse(final String s, final int dims) {
+
+        if (s == null)
+            throw new IllegalArgumentException();
+
+        if (dims != 2 && dims != 3)
+            throw new IllegalArgumentException();
+
+        final long[] coords = new long[dims];
+
+        int start = 0;
+
+        for (int d = 0; d < dims; d++) {
+
+            final int end = d + 1 < dims ? s.indexOf(SEPARATOR, start) : s
+                    .length();
+
+            if (end == -1)
+                throw new IllegalArgumentException("Expecting " + dims
+                        + " components: " + s);
+
+            final String t = s.substring(start, end).trim();
+
+            if (t.indexOf(SEPARATOR) != -1)
+                throw new IllegalArgumentException("Expecting " + dims
+                        + " components: " + s);
+
+            switch (d) {
+            case 0:
+                coords[d] = quantizeLatitude(Double.parseDouble(t));
+                break;
+            case 1:
+                coords[d] = quantizeLongitude(Double.parseDouble(t));
+                break;
+            default:
+                coords[d] = checkTime(Long.parseLong(t));
+                break;
+            }
+
+            start = end + 1;
+
+        }
+
+        return coords;
+
+    }
+
+    /**
+     * Format grid coordinates using the lexical form accepted by
+     * {@link #parse(String, int)}.
+     */
+    public static String format(final long[] coords) {
+
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append(format(latitude(coords[0])));
+
+        sb.append(SEPARATOR);
+
+        sb.append(format(longitude(coords[1])));
+
+        if (coords.length > 2) {
+
+            sb.append(SEPARATOR);
+
+            sb.append(coords[2]);
+
+        }
+
+        return sb.toString();
+
+    }
+
+    private static String format(final double d) {
+
+        final BigDecimal t = BigDecimal.valueOf(d).setScale(SCALE,
+                RoundingMode.HALF_UP);
+
+        if (t.signum() == 0)
+            return "0";
+
+        return t.stripTrailingZeros().toPlainString();
+
+    }
+
+    /**
+     * Interleave the bits of the grid coordinates.
+     * 
+     * @param coords
+     *            The grid coordinates, each in <code>[0:2^32-1]</code>.
+     * 
+     * @return The non-negative z-order key.
+     */
+    public static BigInteger interleave(final long[] coords) {
+
+        final int dims = coords.length;
+
+        // Note: leading zero byte keeps the value non-negative.
+        final byte[] b = new byte[(dims * BITS) / 8 + 1];
+
+        for (int i = 0; i < BITS; i++) {
+
+            for (int d = 0; d < dims; d++) {
+
+                if (((coords[d] >>> i) & 1L) != 0) {
+
+                    final int pos = i * dims + (dims - 1 - d);
+
+                    b[b.length - 1 - (pos >>> 3)] |= 1 << (pos & 7);
+
+                }
+
+            }
+
+        }
+
+        return new BigInteger(b);
+
+    }
+
+    /**
+     * Recover the grid coordinates from a z-order key.
+     * 
+     * @param z
+     *            The z-order key.
+     * @param dims
+     *            The #of dimensions.
+     * 
+     * @return The grid coordinates.
+     */
+    public static long[] deinterleave(final BigInteger z, final int dims) {
+
+        if (z.signum() < 0)
+            throw new IllegalArgumentException();
+
+        final byte[] b = z.toByteArray();
+
+        final long[] coords = new long[dims];
+
+        final int nbits = Math.min(dims * BITS, b.length * 8);
+
+        for (int pos = 0; pos < nbits; pos++) {
+
+            if ((b[b.length - 1 - (pos >>> 3)] & (1 << (pos & 7))) != 0) {
+
+                coords[dims - 1 - (pos % dims)] |= 1L << (pos / dims);
+
+            }
+
+        }
+
+        return coords;
+
+    }
+
+    /**
+     * The great circle distance in kilometers between two points given in
+     * decimal degrees (haversine formula).
+     */
+    public static double distance(final double lat1, final double lon1,
+            final double lat2, final double lon2) {
+
+        final double dLat = Math.toRadians(lat2 - lat1);
+        final double dLon = Math.toRadians(lon2 - lon1);
+
+        final double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2)
+                * Math.sin(dLon / 2);
+
+        return 2 * EARTH_RADIUS_KM
+                * Math.atan2(Math.sqrt(a), Math.sqrt(Math.max(0d, 1 - a)));
+
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.internal.impl.extensions;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+
+import com.bigdata.rdf.internal.IDatatypeURIResolver;
+import com.bigdata.rdf.internal.IExtension;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.impl.literal.AbstractLiteralIV;
+import com.bigdata.rdf.internal.impl.literal.LiteralExtensionIV;
+import com.bigdata.rdf.internal.impl.literal.XSDIntegerIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.vocab.decls.GeoSpatialVocabularyDecl;
+
+/**
+ * This implementation of {@link IExtension} implements inlining for
+ * geospatial literals. A <code>geo:latLon</code> literal has the lexical form
+ * <code>lat#lon</code> and a <code>geo:latLonTime</code> literal has the
+ * lexical form <code>lat#lon#time</code>. The point is encoded as a z-order
+ * key by the {@link GeoSpatialCodec} and stored as an inline
+ * {@link XSDIntegerIV} delegate. Since the key order of the delegate is the
+ * numeric order of the z-order key, literals sort spatially within the POS and
+ * OSP indices and a region may be read using a few key-range scans.
+ * <p>
+ * Note: The coordinates are quantized, so the lexical form of a decoded
+ * literal is normalized to {@link GeoSpatialCodec#SCALE} decimal digits.
+ * 
+ * @see GeoSpatialVocabularyDecl
+ * @see com.bigdata.rdf.sparql.ast.eval.GeoSpatialServiceFactory
+ */
+public class GeoSpatialExtension<V extends BigdataValue> implements
+        IExtension<V> {
+
+    private final Map<IV, BigdataURI> datatypes;
+
+    public GeoSpatialExtension(final IDatatypeURIResolver resolver) {
+
+        this.datatypes = new LinkedHashMap<IV, BigdataURI>();
+        resolve(resolver, GeoSpatialVocabularyDecl.LAT_LON);
+        resolve(resolver, GeoSpatialVocabularyDecl.LAT_LON_TIME);
+
+    }
+
+    private void resolve(final IDatatypeURIResolver resolver, final URI uri) {
+
+        final BigdataURI val = resolver.resolve(uri);
+        datatypes.put(val.getIV(), val);
+
+    }
+
+    @Override
+    public Set<BigdataURI> getDatatypes() {
+
+        return new LinkedHashSet<BigdataURI>(datatypes.values());
+
+    }
+
+    /**
+     * The #of dimensions for a geospatial datatype.
+     * 
+     * @throws IllegalArgumentException
+     *             if the datatype is not a geospatial datatype.
+     */
+    public static int getDimensions(final URI datatype) {
+
+        if (GeoSpatialVocabularyDecl.LAT_LON.equals(datatype))
+            return 2;
+
+        if (GeoSpatialVocabularyDecl.LAT_LON_TIME.equals(datatype))
+            return 3;
+
+        throw new IllegalArgumentException("datatype: " + datatype);
+
+    }
+
+    /**
+     * Parses the lexical form of the literal and encodes the point as a
+     * z-order key in a delegate {@link XSDIntegerIV}.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public LiteralExtensionIV createIV(final Value value) {
+
+        if (value instanceof Literal == false)
+            throw new IllegalArgumentException();
+
+        final Literal lit = (Literal) value;
+
+        final URI dt = lit.getDatatype();
+
+        if (dt == null)
+            throw new IllegalArgumentException();
+
+        BigdataURI resolvedDT = null;
+        for (BigdataURI val : datatypes.values()) {
+            // Note: URI.stringValue() is efficient....
+            if (val.stringValue().equals(dt.stringValue())) {
+                resolvedDT = val;
+            }
+        }
+
+        if (resolvedDT == null)
+            throw new IllegalArgumentException();
+
+        final long[] coords = GeoSpatialCodec.parse(lit.getLabel(),
+                getDimensions(resolvedDT));
+
+        final AbstractLiteralIV delegate = new XSDIntegerIV<BigdataLiteral>(
+                GeoSpatialCodec.interleave(coords));
+
+        return new LiteralExtensionIV(delegate, resolvedDT.getIV());
+
+    }
+
+    /**
+     * Decodes the z-order key of the delegate and formats the point.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public V asValue(final LiteralExtensionIV iv, final BigdataValueFactory vf) {
+
+        final BigdataURI dt = datatypes.get(iv.getExtensionIV());
+
+        if (dt == null)
+            throw new IllegalArgumentException("unrecognized datatype");
+
+        final BigInteger z = iv.getDelegate().integerValue();
+
+        final long[] coords = GeoSpatialCodec.deinterleave(z,
+                getDimensions(dt));
+
+        return (V) vf.createLiteral(GeoSpatialCodec.format(coords), dt);
+
+    }
+
+}
@@ -0,0 +1,293 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.internal.impl.extensions;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Decomposes an axis aligned box on the grid of a {@link GeoSpatialCodec}
+ * into a bounded set of z-order key ranges.
+ * <p>
+ * The grid is refined one level at a time (a quadtree for two dimensions and
+ * an octree for three). Cells which lie entirely within the box become exact
+ * key ranges. Cells which straddle the boundary of the box are split at the
+ * next level unless that would exceed the maximum #of ranges, in which case
+ * they are kept as they are. The key ranges of such boundary cells contain
+ * points outside of the box, so the caller MUST post-filter the tuples which
+ * are visited. Adjacent ranges are coalesced.
+ */
+public class ZOrderRangeDecomposer {
+
+    /**
+     * An inclusive range of z-order keys.
+     */
+    public static class KeyRange {
+
+        private final BigInteger from;
+
+        private BigInteger to;
+
+        public KeyRange(final BigInteger from, final BigInteger to) {
+
+            if (from == null || to == null)
+                throw new IllegalArgumentException();
+
+            if (from.compareTo(to) > 0)
+                throw new IllegalArgumentException();
+
+            this.from = from;
+            this.to = to;
+
+        }
+
+        /**
+         * The inclusive lower bound.
+         */
+        public BigInteger getFrom() {
+
+            return from;
+
+        }
+
+        /**
+         * The inclusive upper bound.
+         */
+        public BigInteger getTo() {
+
+            return to;
+
+        }
+
+        public String toString() {
+
+            return "KeyRange{from=" + from + ",to=" + to + "}";
+
+        }
+
+    }
+
+    /**
+     * A cell of the grid at some level of refinement.
+     */
+    private static class Cell {
+
+        /** The #of leading bits which are fixed in each dimension. */
+        final int level;
+
+        /** The fixed leading bits for each dimension. */
+        final long[] prefix;
+
+        /** <code>true</code> iff the cell lies entirely within the box. */
+        final boolean inside;
+
+        Cell(final int level, final long[] prefix, final boolean inside) {
+            this.level = level;
+            this.prefix = prefix;
+            this.inside = inside;
+        }
+
+        long min(final int d) {
+            return prefix[d] << (GeoSpatialCodec.BITS - level);
+        }
+
+        long max(final int d) {
+            return ((prefix[d] + 1) << (GeoSpatialCodec.BITS - level)) - 1;
+        }
+
+    }
+
+    private ZOrderRangeDecomposer() {
+    }
+
+    /**
+     * Decompose a box into z-order key ranges.
+     * 
+     * @param lo
+     *            The inclusive lower grid coordinate for each dimension.
+     * @param hi
+     *            The inclusive upper grid coordinate for each dimension.
+     * @param maxRanges
+     *            The maximum #of ranges to return (positive).
+     * 
+     * @return The key ranges, in key order. Together they cover all keys
+     *         within the box.
+     */
+    public static List<KeyRange> decompose(final long[] lo, final long[] hi,
+            final int maxRanges) {
+
+        if (lo == null || hi == null || lo.length != hi.length
+                || lo.length == 0)
+            throw new IllegalArgumentException();
+
+        if (maxRanges <= 0)
+            throw new IllegalArgumentException();
+
+        final int dims = lo.length;
+
+        for (int d = 0; d < dims; d++) {
+
+            if (lo[d] < 0 || hi[d] > GeoSpatialCodec.MAX_COORD
+                    || lo[d] > hi[d])
+                throw new IllegalArgumentException();
+
+        }
+
+        List<Cell> cells = new LinkedList<Cell>();
+
+        cells.add(newCell(0, new long[dims], lo, hi));
+
+        for (int level = 0; level < GeoSpatialCodec.BITS; level++) {
+
+            final List<Cell> next = new LinkedList<Cell>();
+
+            boolean refined = false;
+
+            for (Cell cell : cells) {
+
+                if (cell.inside) {
+
+                    next.add(cell);
+
+                    continue;
+
+                }
+
+                refined = true;
+
+                // Visit the children in z-order.
+                for (int child = 0; child < (1 << dims); child++) {
+
+                    final long[] prefix = new long[dims];
+
+                    for (int d = 0; d < dims; d++) {
+
+                        prefix[d] = (cell.prefix[d] << 1)
+                                | ((child >>> (dims - 1 - d)) & 1);
+
+                    }
+
+                    final Cell c = newCell(level + 1, prefix, lo, hi);
+
+                    if (c != null)
+                        next.add(c);
+
+                }
+
+            }
+
+            if (!refined || next.size() > maxRanges) {
+
+                // Nothing left to refine or over budget.
+                break;
+
+            }
+
+            cells = next;
+
+        }
+
+        final List<KeyRange> ranges = new ArrayList<KeyRange>(cells.size());
+
+        for (Cell cell : cells) {
+
+            final long[] min = new long[dims];
+            final long[] max = new long[dims];
+
+            for (int d = 0; d < dims; d++) {
+                min[d] = cell.min(d);
+                max[d] = cell.max(d);
+            }
+
+            ranges.add(new KeyRange(GeoSpatialCodec.interleave(min),
+                    GeoSpatialCodec.interleave(max)));
+
+        }
+
+        Collections.sort(ranges, new Comparator<KeyRange>() {
+            public int compare(final KeyRange o1, final KeyRange o2) {
+                return o1.from.compareTo(o2.from);
+            }
+        });
+
+        // Coalesce adjacent ranges.
+        final List<KeyRange> ret = new ArrayList<KeyRange>(ranges.size());
+
+        KeyRange last = null;
+
+        for (KeyRange r : ranges) {
+
+            if (last != null && last.to.add(BigInteger.ONE).equals(r.from)) {
+
+                last.to = r.to;
+
+                continue;
+
+            }
+
+            ret.add(last = r);
+
+        }
+
+        return ret;
+
+    }
+
+    /**
+     * Return the cell -or- <code>null</code> if it is disjoint from the box.
+     */
+    private static Cell newCell(final int level, final long[] prefix,
+            final long[] lo, final long[] hi) {
+
+        final Cell tmp = new Cell(level, prefix, false/* inside */);
+
+        boolean inside = true;
+
+        for (int d = 0; d < prefix.length; d++) {
+
+            final long min = tmp.min(d), max = tmp.max(d);
+
+            if (max < lo[d] || min > hi[d])
+                return null;
+
+            if (min < lo[d] || max > hi[d])
+                inside = false;
+
+        }
+
+        return inside ? new Cell(level, prefix, true) : tmp;
+
+    }
+
+}
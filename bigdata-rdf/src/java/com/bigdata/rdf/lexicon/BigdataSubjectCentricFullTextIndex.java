@@ -239,6 +239,17 @@ public class BigdataSubjectCentricFullTextIndex extends FullTextIndex implements
 
     }
     
+    /**
+     * The term dictionary is not maintained for the subject-centric text
+     * index.
+     */
+    @Override
+    public boolean isTermDictionaryEnabled() {
+        
+        return false;
+        
+    }
+    
     /**
      * The backing index.
      */
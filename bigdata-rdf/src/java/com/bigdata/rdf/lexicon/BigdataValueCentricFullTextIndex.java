@@ -204,6 +204,8 @@ public class BigdataValueCentricFullTextIndex extends FullTextIndex implements
             if (log.isInfoEnabled())
                 log.info("Registered new text index: name=" + name);
 
+            createTermDictionary();
+
             /*
              * Note: defer resolution of the index.
              */
@@ -237,6 +239,8 @@ public class BigdataValueCentricFullTextIndex extends FullTextIndex implements
         
         getIndexManager().dropIndex(name);
 
+        destroyTermDictionary();
+
     }
 
     public void index(final int capacity,
@@ -440,6 +440,15 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
                 
                 set.add(getNamespace() + "." + FullTextIndex.NAME_SEARCH);
 
+                if (Boolean.parseBoolean(getProperty(
+                        FullTextIndex.Options.TERM_DICTIONARY,
+                        FullTextIndex.Options.DEFAULT_TERM_DICTIONARY))) {
+
+                    set.add(getNamespace() + "."
+                            + FullTextIndex.NAME_TERM_DICTIONARY);
+
+                }
+
             }
             
             // @todo add names as registered to base class? but then how to
@@ -0,0 +1,414 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.rio.solutions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.openrdf.model.Value;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.NotMaterializedException;
+import com.bigdata.rdf.internal.impl.literal.AbstractLiteralIV;
+import com.bigdata.rdf.lexicon.LexiconRelation;
+
+/**
+ * Base class for writers which serialize chunks of native {@link IBindingSet}
+ * solutions directly onto an {@link OutputStream} using one of the standard
+ * SPARQL result formats. Unlike the openrdf
+ * {@link org.openrdf.query.resultio.TupleQueryResultWriter}s, these writers do
+ * not require the solutions to be converted into openrdf
+ * {@link org.openrdf.query.BindingSet}s first. {@link IV}s are rendered from
+ * their cached {@link Value} when materialized, directly for self-describing
+ * inline literals, and otherwise by {@link IV#asValue(LexiconRelation)} for
+ * inline {@link IV}s.
+ * <p>
+ * The output is UTF-8 encoded into a reusable byte buffer which is written
+ * onto the backing {@link OutputStream} each time it fills up. The caller is
+ * responsible for closing the {@link OutputStream}.
+ * <p>
+ * The protocol is {@link #startQueryResult(IVariable[])}, any number of calls
+ * to {@link #handleSolutions(IBindingSet[])}, and then
+ * {@link #endQueryResult()}. Instances are not thread-safe.
+ *
+ * @see IVSolutionWriterRegistry
+ */
+abstract public class AbstractIVSolutionWriter {
+
+    /**
+     * The default capacity of the output buffer.
+     */
+    static public final int DEFAULT_BUFFER_CAPACITY = 64 * 1024;
+
+    /**
+     * The backing output stream.
+     */
+    private final OutputStream os;
+
+    /**
+     * Used to materialize inline {@link IV}s (optional).
+     */
+    private final LexiconRelation lex;
+
+    /**
+     * The output buffer.
+     */
+    private final byte[] buf;
+
+    /**
+     * The #of bytes in {@link #buf}.
+     */
+    private int pos = 0;
+
+    /**
+     * A high surrogate which is waiting for its low surrogate (or
+     * <code>0</code>).
+     */
+    private char highSurrogate = 0;
+
+    /**
+     * The projected variables.
+     */
+    private IVariable<?>[] vars = null;
+
+    /**
+     * The #of solutions written.
+     */
+    private long nsolutions = 0L;
+
+    /**
+     * @param os
+     *            The output stream.
+     * @param lex
+     *            The lexicon used to materialize inline {@link IV}s which are
+     *            not self-describing. This MAY be <code>null</code>, in which
+     *            case all such {@link IV}s must already be materialized.
+     * @param bufferCapacity
+     *            The capacity of the output buffer.
+     */
+    protected AbstractIVSolutionWriter(final OutputStream os,
+            final LexiconRelation lex, final int bufferCapacity) {
+
+        if (os == null)
+            throw new IllegalArgumentException();
+
+        if (bufferCapacity <= 0)
+            throw new IllegalArgumentException();
+
+        this.os = os;
+
+        this.lex = lex;
+
+        this.buf = new byte[bufferCapacity];
+
+    }
+
+    /**
+     * The format written by this writer.
+     */
+    abstract public TupleQueryResultFormat getTupleQueryResultFormat();
+
+    /**
+     * The projected variables (available once
+     * {@link #startQueryResult(IVariable[])} has been called).
+     */
+    protected IVariable<?>[] getVars() {
+
+        return vars;
+
+    }
+
+    /**
+     * The #of solutions written so far.
+     */
+    public long getSolutionCount() {
+
+        return nsolutions;
+
+    }
+
+    /**
+     * Write the header of the result.
+     *
+     * @param vars
+     *            The projected variables, in the order in which they will be
+     *            reported.
+     */
+    public void startQueryResult(final IVariable<?>[] vars) throws IOException {
+
+        if (vars == null)
+            throw new IllegalArgumentException();
+
+        if (this.vars != null)
+            throw new IllegalStateException();
+
+        this.vars = vars;
+
+        writeHeader();
+
+    }
+
+    /**
+     * Write a chunk of solutions. Only the projected variables are written.
+     *
+     * @param chunk
+     *            The solutions.
+     */
+    public void handleSolutions(final IBindingSet[] chunk) throws IOException {
+
+        if (vars == null)
+            throw new IllegalStateException();
+
+        for (IBindingSet bset : chunk) {
+
+            writeSolution(bset);
+
+            nsolutions++;
+
+        }
+
+    }
+
+    /**
+     * Write the footer of the result and flush the output stream.
+     */
+    public void endQueryResult() throws IOException {
+
+        if (vars == null)
+            throw new IllegalStateException();
+
+        writeFooter();
+
+        flush();
+
+    }
+
+    /**
+     * Write any buffered bytes onto the output stream and then flush the
+     * output stream.
+     */
+    public void flush() throws IOException {
+
+        flushBuffer();
+
+        os.flush();
+
+    }
+
+    abstract protected void writeHeader() throws IOException;
+
+    abstract protected void writeSolution(IBindingSet bset) throws IOException;
+
+    abstract protected void writeFooter() throws IOException;
+
+    /**
+     * Return the {@link IV} bound to the variable in the solution.
+     *
+     * @return The {@link IV} -or- <code>null</code> if the variable is not
+     *         bound.
+     */
+    @SuppressWarnings("rawtypes")
+    protected IV getIV(final IBindingSet bset, final IVariable<?> var) {
+
+        final IConstant<?> c = bset.get(var);
+
+        if (c == null)
+            return null;
+
+        return (IV) c.get();
+
+    }
+
+    /**
+     * Return an RDF {@link Value} which may be used to render the {@link IV}.
+     * Where possible, this avoids allocating a new {@link Value}.
+     *
+     * @throws NotMaterializedException
+     *             if the {@link IV} is neither materialized nor inline.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    protected Value getValue(final IV iv) {
+
+        if (iv.hasValue())
+            return iv.getValue();
+
+        if (iv instanceof AbstractLiteralIV) {
+
+            /*
+             * Self-describing inline literal (xsd:int, xsd:dateTime, etc).
+             */
+
+            return (AbstractLiteralIV) iv;
+
+        }
+
+        if (iv.isInline() && lex != null) {
+
+            return iv.asValue(lex);
+
+        }
+
+        throw new NotMaterializedException(iv.toString());
+
+    }
+
+    /*
+     * Output.
+     */
+
+    /**
+     * Write a byte.
+     */
+    protected final void writeByte(final int b) throws IOException {
+
+        if (pos == buf.length)
+            flushBuffer();
+
+        buf[pos++] = (byte) b;
+
+    }
+
+    /**
+     * Write a character using the UTF-8 encoding. Surrogate pairs may be
+     * written using two successive calls. Unpaired surrogates are written as
+     * <code>?</code>.
+     */
+    protected final void write(final char c) throws IOException {
+
+        if (highSurrogate != 0) {
+
+            final char hi = highSurrogate;
+
+            highSurrogate = 0;
+
+            if (Character.isLowSurrogate(c)) {
+
+                final int cp = Character.toCodePoint(hi, c);
+
+                writeByte(0xF0 | (cp >> 18));
+                writeByte(0x80 | ((cp >> 12) & 0x3F));
+                writeByte(0x80 | ((cp >> 6) & 0x3F));
+                writeByte(0x80 | (cp & 0x3F));
+
+                return;
+
+            }
+
+            writeByte('?');
+
+        }
+
+        if (c < 0x80) {
+
+            writeByte(c);
+
+        } else if (c < 0x800) {
+
+            writeByte(0xC0 | (c >> 6));
+            writeByte(0x80 | (c & 0x3F));
+
+        } else if (Character.isHighSurrogate(c)) {
+
+            highSurrogate = c;
+
+        } else if (Character.isLowSurrogate(c)) {
+
+            writeByte('?');
+
+        } else {
+
+            writeByte(0xE0 | (c >> 12));
+            writeByte(0x80 | ((c >> 6) & 0x3F));
+            writeByte(0x80 | (c & 0x3F));
+
+        }
+
+    }
+
+    /**
+     * Write a string using the UTF-8 encoding without escaping.
+     */
+    protected final void write(final String s) throws IOException {
+
+        final int len = s.length();
+
+        for (int i = 0; i < len; i++) {
+
+            write(s.charAt(i));
+
+        }
+
+    }
+
+    /**
+     * Write a byte[] without interpretation.
+     */
+    protected final void write(final byte[] b) throws IOException {
+
+        if (b.length > buf.length - pos) {
+
+            flushBuffer();
+
+            if (b.length > buf.length) {
+
+                // Too large to buffer.
+                os.write(b);
+
+                return;
+
+            }
+
+        }
+
+        System.arraycopy(b, 0, buf, pos, b.length);
+
+        pos += b.length;
+
+    }
+
+    /**
+     * Write the buffered bytes onto the output stream.
+     */
+    private void flushBuffer() throws IOException {
+
+        if (pos > 0) {
+
+            os.write(buf, 0, pos);
+
+            pos = 0;
+
+        }
+
+    }
+
+}
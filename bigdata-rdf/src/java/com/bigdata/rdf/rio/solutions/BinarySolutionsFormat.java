@@ -0,0 +1,135 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.rio.solutions;
+
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+import com.bigdata.rdf.internal.encoder.IVSolutionSetEncoder;
+
+/**
+ * A compact binary interchange format for SPARQL solutions. Like the
+ * {@link IVSolutionSetEncoder}, each distinct RDF Value is written once per
+ * response and is thereafter referenced by its index in a per-response
+ * dictionary. Unlike that encoder, the format is self-contained: Values are
+ * written as RDF terms rather than as {@link com.bigdata.rdf.internal.IV}s so
+ * the client does not need access to the lexicon.
+ * <p>
+ * All integers are written as unsigned variable length quantities (7 bits per
+ * byte, least significant group first, high bit set on all but the last byte).
+ * Strings are written as the byte length followed by the UTF-8 bytes.
+ * 
+ * <pre>
+ * response := MAGIC VERSION nvars (varName)* (record)* END
+ * record   := SOLUTION (term)[nvars] | RESET
+ * term     := UNBOUND
+ *           | URI string
+ *           | BNODE string
+ *           | LITERAL string
+ *           | LANG_LITERAL string string
+ *           | TYPED_LITERAL string term
+ *           | (FIRST_REF + index)
+ * </pre>
+ * 
+ * Each new term (including the datatype of a typed literal) is assigned the
+ * next index in the dictionary. The datatype term is assigned its index before
+ * the literal in which it is nested. A {@link #RESET} record clears the
+ * dictionary and is used by the writer to bound the memory demand of the
+ * dictionary on both sides.
+ */
+public class BinarySolutionsFormat {
+
+    private BinarySolutionsFormat() {
+    }
+
+    /**
+     * The MIME type.
+     */
+    public static final String MIME_TYPE = "application/x-bigdata-binary-solutions";
+
+    /**
+     * The {@link TupleQueryResultFormat}. It is registered when this class is
+     * loaded.
+     */
+    public static final TupleQueryResultFormat FORMAT = new TupleQueryResultFormat(
+            "Bigdata Binary Solutions", MIME_TYPE, "bbs");
+
+    static {
+
+        TupleQueryResultFormat.register(FORMAT);
+
+    }
+
+    /**
+     * The magic value at the start of a response (<code>BDBS</code>).
+     */
+    static final int MAGIC = 0x42444253;
+
+    /**
+     * The current version of the format.
+     */
+    static final int VERSION = 1;
+
+    /*
+     * Record types.
+     */
+
+    static final int END = 0;
+
+    static final int SOLUTION = 1;
+
+    static final int RESET = 2;
+
+    /*
+     * Term codes.
+     */
+
+    static final int UNBOUND = 0;
+
+    static final int URI = 1;
+
+    static final int BNODE = 2;
+
+    static final int LITERAL = 3;
+
+    static final int LANG_LITERAL = 4;
+
+    static final int TYPED_LITERAL = 5;
+
+    /**
+     * A code GTE this value is a reference to the dictionary entry at
+     * <code>code - FIRST_REF</code>.
+     */
+    static final int FIRST_REF = 8;
+
+    /**
+     * The default maximum #of entries in the dictionary before it is reset.
+     */
+    static final int DEFAULT_DICTIONARY_CAPACITY = 1 << 16;
+
+}
@@ -0,0 +1,277 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.rio.solutions;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.query.TupleQueryResultHandlerException;
+import org.openrdf.query.impl.MapBindingSet;
+import org.openrdf.query.resultio.QueryResultParseException;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultParserBase;
+
+/**
+ * Parser for the {@link BinarySolutionsFormat}. Solutions are decoded and
+ * reported to the handler one at a time as they are read from the stream, so
+ * the response is never buffered in its entirety.
+ */
+public class BinarySolutionsParser extends TupleQueryResultParserBase {
+
+    /**
+     * The dictionary.
+     */
+    private final List<Value> dict = new ArrayList<Value>();
+
+    private InputStream in;
+
+    private byte[] buf = new byte[256];
+
+    public BinarySolutionsParser() {
+        super();
+    }
+
+    public BinarySolutionsParser(final ValueFactory valueFactory) {
+        super(valueFactory);
+    }
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+
+        return BinarySolutionsFormat.FORMAT;
+
+    }
+
+    @Override
+    public void parse(final InputStream is) throws IOException,
+            QueryResultParseException, TupleQueryResultHandlerException {
+
+        if (is == null)
+            throw new IllegalArgumentException();
+
+        in = is instanceof BufferedInputStream ? is
+                : new BufferedInputStream(is);
+
+        dict.clear();
+
+        try {
+
+            final int magic = (readByte() << 24) | (readByte() << 16)
+                    | (readByte() << 8) | readByte();
+
+            if (magic != BinarySolutionsFormat.MAGIC)
+                throw new QueryResultParseException("Bad magic: "
+                        + Integer.toHexString(magic));
+
+            final int version = readPackedInt();
+
+            if (version != BinarySolutionsFormat.VERSION)
+                throw new QueryResultParseException("Unknown version: "
+                        + version);
+
+            final String[] vars = new String[readPackedInt()];
+
+            for (int i = 0; i < vars.length; i++) {
+
+                vars[i] = readString();
+
+            }
+
+            if (handler != null)
+                handler.startQueryResult(Arrays.asList(vars));
+
+            while (true) {
+
+                final int type = readPackedInt();
+
+                if (type == BinarySolutionsFormat.END)
+                    break;
+
+                switch (type) {
+                case BinarySolutionsFormat.SOLUTION: {
+                    final MapBindingSet bset = new MapBindingSet(vars.length);
+                    for (String var : vars) {
+                        final Value value = readTerm();
+                        if (value != null)
+                            bset.addBinding(var, value);
+                    }
+                    if (handler != null)
+                        handler.handleSolution(bset);
+                    break;
+                }
+                case BinarySolutionsFormat.RESET:
+                    dict.clear();
+                    break;
+                default:
+                    throw new QueryResultParseException("Unknown record type: "
+                            + type);
+                }
+
+            }
+
+            if (handler != null)
+                handler.endQueryResult();
+
+        } catch (EOFException ex) {
+
+            throw new QueryResultParseException("Unexpected end of stream",
+                    ex);
+
+        } finally {
+
+            in = null;
+
+            dict.clear();
+
+        }
+
+    }
+
+    /**
+     * Read a term.
+     * 
+     * @return The term -or- <code>null</code> if the variable is not bound.
+     */
+    private Value readTerm() throws IOException, QueryResultParseException {
+
+        final int code = readPackedInt();
+
+        if (code >= BinarySolutionsFormat.FIRST_REF) {
+
+            final int index = code - BinarySolutionsFormat.FIRST_REF;
+
+            if (index >= dict.size())
+                throw new QueryResultParseException("Bad reference: " + index);
+
+            return dict.get(index);
+
+        }
+
+        final Value value;
+
+        switch (code) {
+        case BinarySolutionsFormat.UNBOUND:
+            return null;
+        case BinarySolutionsFormat.URI:
+            value = valueFactory.createURI(readString());
+            break;
+        case BinarySolutionsFormat.BNODE:
+            value = valueFactory.createBNode(readString());
+            break;
+        case BinarySolutionsFormat.LITERAL:
+            value = valueFactory.createLiteral(readString());
+            break;
+        case BinarySolutionsFormat.LANG_LITERAL: {
+            final String label = readString();
+            value = valueFactory.createLiteral(label, readString());
+            break;
+        }
+        case BinarySolutionsFormat.TYPED_LITERAL: {
+            final String label = readString();
+            // Note: The datatype is entered into the dictionary first.
+            final Value datatype = readTerm();
+            if (!(datatype instanceof URI))
+                throw new QueryResultParseException("Bad datatype: "
+                        + datatype);
+            value = valueFactory.createLiteral(label, (URI) datatype);
+            break;
+        }
+        default:
+            throw new QueryResultParseException("Unknown term code: " + code);
+        }
+
+        dict.add(value);
+
+        return value;
+
+    }
+
+    private String readString() throws IOException {
+
+        final int len = readPackedInt();
+
+        if (len > buf.length)
+            buf = new byte[Math.max(len, buf.length * 2)];
+
+        int off = 0;
+
+        while (off < len) {
+
+            final int n = in.read(buf, off, len - off);
+
+            if (n == -1)
+                throw new EOFException();
+
+            off += n;
+
+        }
+
+        return new String(buf, 0, len, "UTF-8");
+
+    }
+
+    private int readPackedInt() throws IOException {
+
+        int v = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+
+            final int b = readByte();
+
+            v |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0)
+                return v;
+
+        }
+
+        throw new IOException("Malformed packed integer");
+
+    }
+
+    private int readByte() throws IOException {
+
+        final int b = in.read();
+
+        if (b == -1)
+            throw new EOFException();
+
+        return b;
+
+    }
+
+}
@@ -0,0 +1,341 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.rio.solutions;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryResultHandlerException;
+import org.openrdf.query.TupleQueryResultHandlerException;
+import org.openrdf.query.resultio.QueryResultFormat;
+import org.openrdf.query.resultio.QueryResultWriterBase;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultWriter;
+
+/**
+ * Writes openrdf solutions using the {@link BinarySolutionsFormat}. This is
+ * used when the solutions are not available as native solutions.
+ * 
+ * @see IVSolutionBinaryWriter
+ */
+public class BinarySolutionsWriter extends QueryResultWriterBase implements
+        TupleQueryResultWriter {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final OutputStream os;
+
+    /**
+     * The dictionary.
+     */
+    private final Map<Value, Integer> dict = new HashMap<Value, Integer>();
+
+    /**
+     * The maximum #of entries in the dictionary before it is reset.
+     */
+    private final int dictionaryCapacity;
+
+    /**
+     * The projected variables.
+     */
+    private String[] vars = null;
+
+    public BinarySolutionsWriter(final OutputStream os) {
+
+        this(os, BinarySolutionsFormat.DEFAULT_DICTIONARY_CAPACITY);
+
+    }
+
+    public BinarySolutionsWriter(final OutputStream os,
+            final int dictionaryCapacity) {
+
+        if (os == null)
+            throw new IllegalArgumentException();
+
+        if (dictionaryCapacity <= 0)
+            throw new IllegalArgumentException();
+
+        this.os = new BufferedOutputStream(os);
+
+        this.dictionaryCapacity = dictionaryCapacity;
+
+    }
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+
+        return BinarySolutionsFormat.FORMAT;
+
+    }
+
+    @Override
+    public QueryResultFormat getQueryResultFormat() {
+
+        return getTupleQueryResultFormat();
+
+    }
+
+    @Override
+    public void startDocument() throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void handleStylesheet(final String stylesheetUrl)
+            throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void startHeader() throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void handleNamespace(final String prefix, final String uri)
+            throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void handleLinks(final List<String> linkUrls)
+            throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void endHeader() throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void handleBoolean(final boolean value)
+            throws QueryResultHandlerException {
+
+        throw new UnsupportedOperationException(
+                "Cannot handle boolean results");
+
+    }
+
+    @Override
+    public void startQueryResult(final List<String> bindingNames)
+            throws TupleQueryResultHandlerException {
+
+        if (vars != null)
+            throw new IllegalStateException();
+
+        vars = bindingNames.toArray(new String[bindingNames.size()]);
+
+        try {
+
+            final int magic = BinarySolutionsFormat.MAGIC;
+
+            os.write(magic >>> 24);
+            os.write(magic >>> 16);
+            os.write(magic >>> 8);
+            os.write(magic);
+
+            writePackedInt(BinarySolutionsFormat.VERSION);
+
+            writePackedInt(vars.length);
+
+            for (String var : vars) {
+
+                writeString(var);
+
+            }
+
+        } catch (IOException e) {
+
+            throw new TupleQueryResultHandlerException(e);
+
+        }
+
+    }
+
+    @Override
+    public void handleSolution(final BindingSet bindingSet)
+            throws TupleQueryResultHandlerException {
+
+        if (vars == null)
+            throw new IllegalStateException();
+
+        try {
+
+            // See IVSolutionBinaryWriter.
+            if (dict.size() + 2 * vars.length > dictionaryCapacity) {
+
+                writePackedInt(BinarySolutionsFormat.RESET);
+
+                dict.clear();
+
+            }
+
+            writePackedInt(BinarySolutionsFormat.SOLUTION);
+
+            for (String var : vars) {
+
+                final Value value = bindingSet.getValue(var);
+
+                if (value == null) {
+
+                    writePackedInt(BinarySolutionsFormat.UNBOUND);
+
+                } else {
+
+                    writeTerm(value);
+
+                }
+
+            }
+
+        } catch (IOException e) {
+
+            throw new TupleQueryResultHandlerException(e);
+
+        }
+
+    }
+
+    @Override
+    public void endQueryResult() throws TupleQueryResultHandlerException {
+
+        if (vars == null)
+            throw new IllegalStateException();
+
+        try {
+
+            writePackedInt(BinarySolutionsFormat.END);
+
+            os.flush();
+
+        } catch (IOException e) {
+
+            throw new TupleQueryResultHandlerException(e);
+
+        }
+
+    }
+
+    /**
+     * Write a reference to a term in the dictionary -or- a new term (which is
+     * then entered into the dictionary).
+     */
+    private void writeTerm(final Value value) throws IOException {
+
+        final Integer index = dict.get(value);
+
+        if (index != null) {
+
+            writePackedInt(BinarySolutionsFormat.FIRST_REF + index);
+
+            return;
+
+        }
+
+        if (value instanceof URI) {
+
+            writePackedInt(BinarySolutionsFormat.URI);
+            writeString(value.stringValue());
+
+        } else if (value instanceof BNode) {
+
+            writePackedInt(BinarySolutionsFormat.BNODE);
+            writeString(((BNode) value).getID());
+
+        } else if (value instanceof Literal) {
+
+            final Literal lit = (Literal) value;
+
+            if (lit.getLanguage() != null) {
+
+                writePackedInt(BinarySolutionsFormat.LANG_LITERAL);
+                writeString(lit.getLabel());
+                writeString(lit.getLanguage());
+
+            } else if (lit.getDatatype() != null) {
+
+                writePackedInt(BinarySolutionsFormat.TYPED_LITERAL);
+                writeString(lit.getLabel());
+                writeTerm(lit.getDatatype());
+
+            } else {
+
+                writePackedInt(BinarySolutionsFormat.LITERAL);
+                writeString(lit.getLabel());
+
+            }
+
+        } else {
+
+            throw new IOException("Unknown Value object type: "
+                    + value.getClass());
+
+        }
+
+        // Note: assigned after any nested datatype.
+        dict.put(value, dict.size());
+
+    }
+
+    private void writeString(final String s) throws IOException {
+
+        final byte[] b = s.getBytes(UTF8);
+
+        writePackedInt(b.length);
+
+        os.write(b);
+
+    }
+
+    private void writePackedInt(int v) throws IOException {
+
+        while ((v & ~0x7F) != 0) {
+
+            os.write((v & 0x7F) | 0x80);
+
+            v >>>= 7;
+
+        }
+
+        os.write(v);
+
+    }
+
+}
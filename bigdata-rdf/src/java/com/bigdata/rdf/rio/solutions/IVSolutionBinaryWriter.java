@@ -0,0 +1,284 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.rio.solutions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.lexicon.LexiconRelation;
+
+/**
+ * Writes native solutions using the {@link BinarySolutionsFormat}. The
+ * dictionary is keyed by the {@link IV}s so each distinct {@link IV} is
+ * resolved to an RDF Value and encoded at most once per response (or once
+ * per dictionary reset).
+ * 
+ * @see BinarySolutionsWriter
+ */
+public class IVSolutionBinaryWriter extends AbstractIVSolutionWriter {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The dictionary. The keys are {@link IV}s, except for the datatypes of
+     * typed literals which are keyed by their string value.
+     */
+    private final Map<Object, Integer> dict = new HashMap<Object, Integer>();
+
+    /**
+     * The maximum #of entries in the dictionary before it is reset.
+     */
+    private final int dictionaryCapacity;
+
+    public IVSolutionBinaryWriter(final OutputStream os,
+            final LexiconRelation lex) {
+
+        this(os, lex, DEFAULT_BUFFER_CAPACITY,
+                BinarySolutionsFormat.DEFAULT_DICTIONARY_CAPACITY);
+
+    }
+
+    /**
+     * @param os
+     *            The output stream.
+     * @param lex
+     *            The lexicon (optional).
+     * @param bufferCapacity
+     *            The capacity of the output buffer.
+     * @param dictionaryCapacity
+     *            The maximum #of entries in the dictionary before it is reset.
+     */
+    public IVSolutionBinaryWriter(final OutputStream os,
+            final LexiconRelation lex, final int bufferCapacity,
+            final int dictionaryCapacity) {
+
+        super(os, lex, bufferCapacity);
+
+        if (dictionaryCapacity <= 0)
+            throw new IllegalArgumentException();
+
+        this.dictionaryCapacity = dictionaryCapacity;
+
+    }
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+
+        return BinarySolutionsFormat.FORMAT;
+
+    }
+
+    @Override
+    protected void writeHeader() throws IOException {
+
+        final int magic = BinarySolutionsFormat.MAGIC;
+
+        writeByte(magic >>> 24);
+        writeByte(magic >>> 16);
+        writeByte(magic >>> 8);
+        writeByte(magic);
+
+        writePackedInt(BinarySolutionsFormat.VERSION);
+
+        final IVariable<?>[] vars = getVars();
+
+        writePackedInt(vars.length);
+
+        for (IVariable<?> var : vars) {
+
+            writeString(var.getName());
+
+        }
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    protected void writeSolution(final IBindingSet bset) throws IOException {
+
+        final IVariable<?>[] vars = getVars();
+
+        /*
+         * Each binding can add at most two entries (a typed literal and its
+         * datatype).
+         */
+        if (dict.size() + 2 * vars.length > dictionaryCapacity) {
+
+            writePackedInt(BinarySolutionsFormat.RESET);
+
+            dict.clear();
+
+        }
+
+        writePackedInt(BinarySolutionsFormat.SOLUTION);
+
+        for (IVariable<?> var : vars) {
+
+            final IV iv = getIV(bset, var);
+
+            if (iv == null) {
+
+                writePackedInt(BinarySolutionsFormat.UNBOUND);
+
+                continue;
+
+            }
+
+            final Integer index = dict.get(iv);
+
+            if (index != null) {
+
+                writePackedInt(BinarySolutionsFormat.FIRST_REF + index);
+
+                continue;
+
+            }
+
+            writeValue(getValue(iv));
+
+            // Note: assigned after any nested datatype.
+            dict.put(iv, dict.size());
+
+        }
+
+    }
+
+    @Override
+    protected void writeFooter() throws IOException {
+
+        writePackedInt(BinarySolutionsFormat.END);
+
+    }
+
+    /**
+     * Write a new term.
+     */
+    private void writeValue(final Value value) throws IOException {
+
+        if (value instanceof URI) {
+
+            writePackedInt(BinarySolutionsFormat.URI);
+            writeString(value.stringValue());
+
+        } else if (value instanceof BNode) {
+
+            writePackedInt(BinarySolutionsFormat.BNODE);
+            writeString(((BNode) value).getID());
+
+        } else if (value instanceof Literal) {
+
+            final Literal lit = (Literal) value;
+
+            if (lit.getLanguage() != null) {
+
+                writePackedInt(BinarySolutionsFormat.LANG_LITERAL);
+                writeString(lit.getLabel());
+                writeString(lit.getLanguage());
+
+            } else if (lit.getDatatype() != null) {
+
+                writePackedInt(BinarySolutionsFormat.TYPED_LITERAL);
+                writeString(lit.getLabel());
+                writeDatatype(lit.getDatatype().stringValue());
+
+            } else {
+
+                writePackedInt(BinarySolutionsFormat.LITERAL);
+                writeString(lit.getLabel());
+
+            }
+
+        } else {
+
+            throw new IOException("Unknown Value object type: "
+                    + value.getClass());
+
+        }
+
+    }
+
+    /**
+     * Write the datatype of a typed literal.
+     */
+    private void writeDatatype(final String datatype) throws IOException {
+
+        final Integer index = dict.get(datatype);
+
+        if (index != null) {
+
+            writePackedInt(BinarySolutionsFormat.FIRST_REF + index);
+
+            return;
+
+        }
+
+        writePackedInt(BinarySolutionsFormat.URI);
+        writeString(datatype);
+
+        dict.put(datatype, dict.size());
+
+    }
+
+    private void writeString(final String s) throws IOException {
+
+        final byte[] b = s.getBytes(UTF8);
+
+        writePackedInt(b.length);
+
+        write(b);
+
+    }
+
+    private void writePackedInt(int v) throws IOException {
+
+        while ((v & ~0x7F) != 0) {
+
+            writeByte((v & 0x7F) | 0x80);
+
+            v >>>= 7;
+
+        }
+
+        writeByte(v);
+
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.rio.solutions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.lexicon.LexiconRelation;
+
+/**
+ * Writes native solutions using the SPARQL 1.1 Query Results CSV format. This
+ * format is lossy: literals are written as their lexical form without their
+ * language tag or datatype. Blank nodes are written as <code>_:id</code> and
+ * unbound variables as empty fields. Records are terminated by CRLF.
+ */
+public class IVSolutionCSVWriter extends AbstractIVSolutionWriter {
+
+    public IVSolutionCSVWriter(final OutputStream os,
+            final LexiconRelation lex) {
+
+        this(os, lex, DEFAULT_BUFFER_CAPACITY);
+
+    }
+
+    public IVSolutionCSVWriter(final OutputStream os,
+            final LexiconRelation lex, final int bufferCapacity) {
+
+        super(os, lex, bufferCapacity);
+
+    }
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+
+        return TupleQueryResultFormat.CSV;
+
+    }
+
+    @Override
+    protected void writeHeader() throws IOException {
+
+        final IVariable<?>[] vars = getVars();
+
+        for (int i = 0; i < vars.length; i++) {
+
+            if (i > 0)
+                write(',');
+
+            writeField(vars[i].getName());
+
+        }
+
+        write("\r\n");
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    protected void writeSolution(final IBindingSet bset) throws IOException {
+
+        final IVariable<?>[] vars = getVars();
+
+        for (int i = 0; i < vars.length; i++) {
+
+            if (i > 0)
+                write(',');
+
+            final IV iv = getIV(bset, vars[i]);
+
+            if (iv != null)
+                writeValue(getValue(iv));
+
+        }
+
+        write("\r\n");
+
+    }
+
+    @Override
+    protected void writeFooter() throws IOException {
+
+        // NOP
+
+    }
+
+    protected void writeValue(final Value value) throws IOException {
+
+        if (value instanceof URI) {
+
+            writeField(value.stringValue());
+
+        } else if (value instanceof BNode) {
+
+            writeField("_:" + ((BNode) value).getID());
+
+        } else if (value instanceof Literal) {
+
+            writeField(((Literal) value).getLabel());
+
+        } else {
+
+            throw new IOException("Unknown Value object type: "
+                    + value.getClass());
+
+        }
+
+    }
+
+    /**
+     * Write a field. The field is quoted iff it contains a comma, a double
+     * quote, or a line break, in which case embedded double quotes are
+     * doubled.
+     */
+    protected void writeField(final String s) throws IOException {
+
+        final int len = s.length();
+
+        boolean quote = false;
+
+        for (int i = 0; i < len && !quote; i++) {
+
+            final char c = s.charAt(i);
+
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+
+        }
+
+        if (!quote) {
+
+            write(s);
+
+            return;
+
+        }
+
+        write('"');
+
+        for (int i = 0; i < len; i++) {
+
+            final char c = s.charAt(i);
+
+            if (c == '"')
+                write('"');
+
+            write(c);
+
+        }
+
+        write('"');
+
+    }
+
+}
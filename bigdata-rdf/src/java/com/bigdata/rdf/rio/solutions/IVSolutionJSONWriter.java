@@ -0,0 +1,305 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.rio.solutions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.lexicon.LexiconRelation;
+import com.bigdata.rdf.model.BigdataBNode;
+import com.bigdata.rdf.model.BigdataStatement;
+import com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONParser;
+import com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONWriter;
+
+/**
+ * Writes native solutions using the SPARQL 1.1 Query Results JSON format. The
+ * output is compatible with {@link BigdataSPARQLResultsJSONWriter}, including
+ * the representation of statement identifiers.
+ */
+public class IVSolutionJSONWriter extends AbstractIVSolutionWriter {
+
+    /**
+     * <code>true</code> until the first solution has been written.
+     */
+    private boolean firstSolution = true;
+
+    public IVSolutionJSONWriter(final OutputStream os,
+            final LexiconRelation lex) {
+
+        this(os, lex, DEFAULT_BUFFER_CAPACITY);
+
+    }
+
+    public IVSolutionJSONWriter(final OutputStream os,
+            final LexiconRelation lex, final int bufferCapacity) {
+
+        super(os, lex, bufferCapacity);
+
+    }
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+
+        return TupleQueryResultFormat.JSON;
+
+    }
+
+    @Override
+    protected void writeHeader() throws IOException {
+
+        write("{\n  \"head\" : {\n    \"vars\" : [ ");
+
+        final IVariable<?>[] vars = getVars();
+
+        for (int i = 0; i < vars.length; i++) {
+
+            if (i > 0)
+                write(", ");
+
+            writeString(vars[i].getName());
+
+        }
+
+        write(" ]\n  },\n  \"results\" : {\n    \"bindings\" : [ ");
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    protected void writeSolution(final IBindingSet bset) throws IOException {
+
+        if (firstSolution) {
+            firstSolution = false;
+        } else {
+            write(", ");
+        }
+
+        write('{');
+
+        boolean firstBinding = true;
+
+        for (IVariable<?> var : getVars()) {
+
+            final IV iv = getIV(bset, var);
+
+            if (iv == null)
+                continue;
+
+            if (firstBinding) {
+                firstBinding = false;
+            } else {
+                write(',');
+            }
+
+            write("\n      ");
+
+            writeString(var.getName());
+
+            write(" : ");
+
+            writeValue(getValue(iv));
+
+        }
+
+        write("\n    }");
+
+    }
+
+    @Override
+    protected void writeFooter() throws IOException {
+
+        write(" ]\n  }\n}\n");
+
+    }
+
+    protected void writeValue(final Value value) throws IOException {
+
+        if (value instanceof BigdataBNode
+                && ((BigdataBNode) value).isStatementIdentifier()) {
+
+            writeSid((BigdataBNode) value);
+
+            return;
+
+        }
+
+        write("{ \"type\" : ");
+
+        if (value instanceof URI) {
+
+            write("\"uri\", \"value\" : ");
+
+            writeString(value.stringValue());
+
+        } else if (value instanceof BNode) {
+
+            write("\"bnode\", \"value\" : ");
+
+            writeString(((BNode) value).getID());
+
+        } else if (value instanceof Literal) {
+
+            final Literal lit = (Literal) value;
+
+            write("\"literal\"");
+
+            if (lit.getLanguage() != null) {
+
+                write(", \"xml:lang\" : ");
+
+                writeString(lit.getLanguage());
+
+            }
+
+            if (lit.getDatatype() != null) {
+
+                write(", \"datatype\" : ");
+
+                writeString(lit.getDatatype().stringValue());
+
+            }
+
+            write(", \"value\" : ");
+
+            writeString(lit.getLabel());
+
+        } else {
+
+            throw new IOException("Unknown Value object type: "
+                    + value.getClass());
+
+        }
+
+        write(" }");
+
+    }
+
+    /**
+     * Write a statement identifier.
+     *
+     * @see BigdataSPARQLResultsJSONWriter#writeSid(BigdataBNode)
+     */
+    protected void writeSid(final BigdataBNode sid) throws IOException {
+
+        final BigdataStatement stmt = sid.getStatement();
+
+        write("{ \"type\" : ");
+        writeString(BigdataSPARQLResultsJSONParser.SID);
+
+        write(", ");
+        writeString(BigdataSPARQLResultsJSONParser.SUBJECT);
+        write(" : ");
+        writeValue(stmt.getSubject());
+
+        write(", ");
+        writeString(BigdataSPARQLResultsJSONParser.PREDICATE);
+        write(" : ");
+        writeValue(stmt.getPredicate());
+
+        write(", ");
+        writeString(BigdataSPARQLResultsJSONParser.OBJECT);
+        write(" : ");
+        writeValue(stmt.getObject());
+
+        if (stmt.getContext() != null) {
+
+            write(", ");
+            writeString(BigdataSPARQLResultsJSONParser.CONTEXT);
+            write(" : ");
+            writeValue(stmt.getContext());
+
+        }
+
+        write(" }");
+
+    }
+
+    /**
+     * Write a quoted and escaped JSON string.
+     */
+    protected void writeString(final String s) throws IOException {
+
+        write('"');
+
+        final int len = s.length();
+
+        for (int i = 0; i < len; i++) {
+
+            final char c = s.charAt(i);
+
+            switch (c) {
+            case '"':
+                write("\\\"");
+                break;
+            case '\\':
+                write("\\\\");
+                break;
+            case '\n':
+                write("\\n");
+                break;
+            case '\r':
+                write("\\r");
+                break;
+            case '\t':
+                write("\\t");
+                break;
+            case '\b':
+                write("\\b");
+                break;
+            case '\f':
+                write("\\f");
+                break;
+            default:
+                if (c < 0x20) {
+                    write("\\u00");
+                    write(HEX[c >> 4]);
+                    write(HEX[c & 0xF]);
+                } else {
+                    write(c);
+                }
+            }
+
+        }
+
+        write('"');
+
+    }
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+}
@@ -0,0 +1,201 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.rio.solutions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.lexicon.LexiconRelation;
+
+/**
+ * Writes native solutions using the SPARQL 1.1 Query Results TSV format. RDF
+ * terms are written using the Turtle / N-Triples syntax and unbound variables
+ * are written as empty fields.
+ */
+public class IVSolutionTSVWriter extends AbstractIVSolutionWriter {
+
+    public IVSolutionTSVWriter(final OutputStream os,
+            final LexiconRelation lex) {
+
+        this(os, lex, DEFAULT_BUFFER_CAPACITY);
+
+    }
+
+    public IVSolutionTSVWriter(final OutputStream os,
+            final LexiconRelation lex, final int bufferCapacity) {
+
+        super(os, lex, bufferCapacity);
+
+    }
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+
+        return TupleQueryResultFormat.TSV;
+
+    }
+
+    @Override
+    protected void writeHeader() throws IOException {
+
+        final IVariable<?>[] vars = getVars();
+
+        for (int i = 0; i < vars.length; i++) {
+
+            if (i > 0)
+                write('\t');
+
+            write('?');
+            write(vars[i].getName());
+
+        }
+
+        write('\n');
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    protected void writeSolution(final IBindingSet bset) throws IOException {
+
+        final IVariable<?>[] vars = getVars();
+
+        for (int i = 0; i < vars.length; i++) {
+
+            if (i > 0)
+                write('\t');
+
+            final IV iv = getIV(bset, vars[i]);
+
+            if (iv != null)
+                writeValue(getValue(iv));
+
+        }
+
+        write('\n');
+
+    }
+
+    @Override
+    protected void writeFooter() throws IOException {
+
+        // NOP
+
+    }
+
+    protected void writeValue(final Value value) throws IOException {
+
+        if (value instanceof URI) {
+
+            write('<');
+            writeEscaped(value.stringValue());
+            write('>');
+
+        } else if (value instanceof BNode) {
+
+            write("_:");
+            write(((BNode) value).getID());
+
+        } else if (value instanceof Literal) {
+
+            final Literal lit = (Literal) value;
+
+            write('"');
+            writeEscaped(lit.getLabel());
+            write('"');
+
+            if (lit.getLanguage() != null) {
+
+                write('@');
+                write(lit.getLanguage());
+
+            } else if (lit.getDatatype() != null) {
+
+                write("^^<");
+                writeEscaped(lit.getDatatype().stringValue());
+                write('>');
+
+            }
+
+        } else {
+
+            throw new IOException("Unknown Value object type: "
+                    + value.getClass());
+
+        }
+
+    }
+
+    /**
+     * Write a string using the Turtle string escapes. Tab and line break
+     * characters are always escaped since they are the field and record
+     * separators.
+     */
+    protected void writeEscaped(final String s) throws IOException {
+
+        final int len = s.length();
+
+        for (int i = 0; i < len; i++) {
+
+            final char c = s.charAt(i);
+
+            switch (c) {
+            case '\\':
+                write("\\\\");
+                break;
+            case '"':
+                write("\\\"");
+                break;
+            case '\t':
+                write("\\t");
+                break;
+            case '\n':
+                write("\\n");
+                break;
+            case '\r':
+                write("\\r");
+                break;
+            default:
+                write(c);
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.rio.solutions;
+
+import java.io.OutputStream;
+
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+import com.bigdata.rdf.lexicon.LexiconRelation;
+
+/**
+ * Resolves the {@link AbstractIVSolutionWriter} for a
+ * {@link TupleQueryResultFormat}.
+ */
+public class IVSolutionWriterRegistry {
+
+    private IVSolutionWriterRegistry() {
+    }
+
+    /**
+     * Return <code>true</code> iff there is a native writer for that format.
+     */
+    static public boolean isSupported(final TupleQueryResultFormat format) {
+
+        return TupleQueryResultFormat.JSON.equals(format)
+                || TupleQueryResultFormat.SPARQL.equals(format)
+                || TupleQueryResultFormat.TSV.equals(format)
+                || TupleQueryResultFormat.CSV.equals(format)
+                || BinarySolutionsFormat.FORMAT.equals(format);
+
+    }
+
+    /**
+     * Return a native writer for the format.
+     * 
+     * @param format
+     *            The format.
+     * @param os
+     *            The output stream.
+     * @param lex
+     *            The lexicon used to materialize inline IVs (optional).
+     * 
+     * @return The writer -or- <code>null</code> if there is no native writer
+     *         for that format.
+     */
+    static public AbstractIVSolutionWriter getWriter(
+            final TupleQueryResultFormat format, final OutputStream os,
+            final LexiconRelation lex) {
+
+        if (TupleQueryResultFormat.JSON.equals(format))
+            return new IVSolutionJSONWriter(os, lex);
+
+        if (TupleQueryResultFormat.SPARQL.equals(format))
+            return new IVSolutionXMLWriter(os, lex);
+
+        if (TupleQueryResultFormat.TSV.equals(format))
+            return new IVSolutionTSVWriter(os, lex);
+
+        if (TupleQueryResultFormat.CSV.equals(format))
+            return new IVSolutionCSVWriter(os, lex);
+
+        if (BinarySolutionsFormat.FORMAT.equals(format))
+            return new IVSolutionBinaryWriter(os, lex);
+
+        return null;
+
+    }
+
+}
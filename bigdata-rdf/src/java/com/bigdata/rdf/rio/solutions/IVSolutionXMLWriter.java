@@ -0,0 +1,212 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.rio.solutions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.lexicon.LexiconRelation;
+
+/**
+ * Writes native solutions using the SPARQL Query Results XML format.
+ */
+public class IVSolutionXMLWriter extends AbstractIVSolutionWriter {
+
+    public IVSolutionXMLWriter(final OutputStream os,
+            final LexiconRelation lex) {
+
+        this(os, lex, DEFAULT_BUFFER_CAPACITY);
+
+    }
+
+    public IVSolutionXMLWriter(final OutputStream os,
+            final LexiconRelation lex, final int bufferCapacity) {
+
+        super(os, lex, bufferCapacity);
+
+    }
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+
+        return TupleQueryResultFormat.SPARQL;
+
+    }
+
+    @Override
+    protected void writeHeader() throws IOException {
+
+        write("<?xml version='1.0' encoding='UTF-8'?>\n");
+        write("<sparql xmlns='http://www.w3.org/2005/sparql-results#'>\n");
+        write("\t<head>\n");
+
+        for (IVariable<?> var : getVars()) {
+
+            write("\t\t<variable name='");
+            writeEscaped(var.getName());
+            write("'/>\n");
+
+        }
+
+        write("\t</head>\n");
+        write("\t<results>\n");
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    protected void writeSolution(final IBindingSet bset) throws IOException {
+
+        write("\t\t<result>\n");
+
+        for (IVariable<?> var : getVars()) {
+
+            final IV iv = getIV(bset, var);
+
+            if (iv == null)
+                continue;
+
+            write("\t\t\t<binding name='");
+            writeEscaped(var.getName());
+            write("'>\n\t\t\t\t");
+
+            writeValue(getValue(iv));
+
+            write("\n\t\t\t</binding>\n");
+
+        }
+
+        write("\t\t</result>\n");
+
+    }
+
+    @Override
+    protected void writeFooter() throws IOException {
+
+        write("\t</results>\n");
+        write("</sparql>\n");
+
+    }
+
+    protected void writeValue(final Value value) throws IOException {
+
+        if (value instanceof URI) {
+
+            write("<uri>");
+            writeEscaped(value.stringValue());
+            write("</uri>");
+
+        } else if (value instanceof BNode) {
+
+            write("<bnode>");
+            writeEscaped(((BNode) value).getID());
+            write("</bnode>");
+
+        } else if (value instanceof Literal) {
+
+            final Literal lit = (Literal) value;
+
+            write("<literal");
+
+            if (lit.getLanguage() != null) {
+
+                write(" xml:lang='");
+                writeEscaped(lit.getLanguage());
+                write('\'');
+
+            } else if (lit.getDatatype() != null) {
+
+                write(" datatype='");
+                writeEscaped(lit.getDatatype().stringValue());
+                write('\'');
+
+            }
+
+            write('>');
+            writeEscaped(lit.getLabel());
+            write("</literal>");
+
+        } else {
+
+            throw new IOException("Unknown Value object type: "
+                    + value.getClass());
+
+        }
+
+    }
+
+    /**
+     * Write character data or an attribute value, escaping the XML markup
+     * characters.
+     */
+    protected void writeEscaped(final String s) throws IOException {
+
+        final int len = s.length();
+
+        for (int i = 0; i < len; i++) {
+
+            final char c = s.charAt(i);
+
+            switch (c) {
+            case '<':
+                write("&lt;");
+                break;
+            case '>':
+                write("&gt;");
+                break;
+            case '&':
+                write("&amp;");
+                break;
+            case '\'':
+                write("&apos;");
+                break;
+            case '"':
+                write("&quot;");
+                break;
+            case '\r':
+                write("&#xD;");
+                break;
+            default:
+                write(c);
+            }
+
+        }
+
+    }
+
+}
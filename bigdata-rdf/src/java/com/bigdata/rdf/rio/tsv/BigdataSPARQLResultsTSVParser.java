@@ -0,0 +1,193 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.rio.tsv;
+
+import org.openrdf.model.Literal;
+import org.openrdf.query.resultio.text.tsv.SPARQLResultsTSVParser;
+
+/**
+ * Parser for SPARQL 1.1 TSV results which decodes the escape sequences in
+ * the labels of quoted literals. The openrdf parser only decodes
+ * <code>\"</code> and drops the backslash of any other escape sequence, so
+ * literals containing tab or line break characters (which MUST be escaped
+ * since they are the field and record separators) do not survive a round
+ * trip.
+ * 
+ * @see <a href="http://www.w3.org/TR/sparql11-results-csv-tsv/">SPARQL 1.1
+ *      Query Results CSV and TSV Formats</a>
+ */
+public class BigdataSPARQLResultsTSVParser extends SPARQLResultsTSVParser {
+
+    @Override
+    protected Literal parseLiteral(final String literal)
+            throws IllegalArgumentException {
+
+        if (!literal.startsWith("\"")) {
+
+            // Not a quoted literal (e.g., a numeric literal).
+            return super.parseLiteral(literal);
+
+        }
+
+        final int endOfLabel = findEndOfLabel(literal);
+
+        if (endOfLabel == -1)
+            throw new IllegalArgumentException("Unterminated literal: "
+                    + literal);
+
+        final String label = unescape(literal.substring(1, endOfLabel));
+
+        final String suffix = literal.substring(endOfLabel + 1);
+
+        if (suffix.length() == 0) {
+
+            return valueFactory.createLiteral(label);
+
+        } else if (suffix.startsWith("@")) {
+
+            return valueFactory.createLiteral(label, suffix.substring(1));
+
+        } else if (suffix.startsWith("^^<") && suffix.endsWith(">")) {
+
+            return valueFactory.createLiteral(label, valueFactory
+                    .createURI(suffix.substring(3, suffix.length() - 1)));
+
+        }
+
+        throw new IllegalArgumentException("Not a legal literal: " + literal);
+
+    }
+
+    /**
+     * Return the index of the closing quote of the label of a quoted literal
+     * -or- <code>-1</code> if the label is not terminated.
+     */
+    private static int findEndOfLabel(final String literal) {
+
+        final int len = literal.length();
+
+        for (int i = 1; i < len; i++) {
+
+            final char c = literal.charAt(i);
+
+            if (c == '\\') {
+
+                // skip the escaped character.
+                i++;
+
+            } else if (c == '"') {
+
+                return i;
+
+            }
+
+        }
+
+        return -1;
+
+    }
+
+    /**
+     * Decode the Turtle string escapes.
+     * 
+     * @throws IllegalArgumentException
+     *             if the string contains an illegal escape sequence.
+     */
+    static String unescape(final String s) {
+
+        final int len = s.length();
+
+        if (s.indexOf('\\') == -1)
+            return s;
+
+        final StringBuilder sb = new StringBuilder(len);
+
+        for (int i = 0; i < len; i++) {
+
+            final char c = s.charAt(i);
+
+            if (c != '\\') {
+
+                sb.append(c);
+
+                continue;
+
+            }
+
+            if (++i == len)
+                throw new IllegalArgumentException(
+                        "Unterminated escape sequence: " + s);
+
+            final char e = s.charAt(i);
+
+            switch (e) {
+            case 't':
+                sb.append('\t');
+                break;
+            case 'b':
+                sb.append('\b');
+                break;
+            case 'n':
+                sb.append('\n');
+                break;
+            case 'r':
+                sb.append('\r');
+                break;
+            case 'f':
+                sb.append('\f');
+                break;
+            case '"':
+            case '\'':
+            case '\\':
+                sb.append(e);
+                break;
+            case 'u':
+            case 'U': {
+                final int n = e == 'u' ? 4 : 8;
+                if (i + n >= len)
+                    throw new IllegalArgumentException(
+                            "Incomplete escape sequence: " + s);
+                final int cp = Integer.parseInt(s.substring(i + 1, i + 1 + n),
+                        16);
+                sb.appendCodePoint(cp);
+                i += n;
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Illegal escape sequence: \\"
+                        + e);
+            }
+
+        }
+
+        return sb.toString();
+
+    }
+
+}
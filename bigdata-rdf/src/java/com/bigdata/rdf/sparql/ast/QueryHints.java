@@ -156,6 +156,23 @@ public interface QueryHints {
 
     double DEFAULT_OPTIMISTIC = ASTStaticJoinOptimizer.Annotations.DEFAULT_OPTIMISTIC;
 
+    /**
+     * Query hint enables the use of the
+     * {@link com.bigdata.rdf.sparql.ast.optimizers.StatisticsCatalog} by the static
+     * join order optimizer (default {@value #DEFAULT_STATISTICS_CATALOG}). The
+     * catalog records the #of distinct subjects and objects for each predicate
+     * and the characteristic sets of the data, which are used to estimate the
+     * cardinality of joins on shared variables and of star joins. The catalog
+     * is built in the background, so the optimizer falls back on range counts
+     * until it becomes available.
+     * 
+     * @see com.bigdata.rdf.sparql.ast.optimizers.StatisticsCatalogManager
+     */
+    String STATISTICS_CATALOG = "statisticsCatalog";
+
+    boolean DEFAULT_STATISTICS_CATALOG = Boolean.valueOf(System.getProperty(
+            QueryHints.class.getName() + "." + STATISTICS_CATALOG, "false"));
+
 //    /**
 //     * A label which may be used to tag the instances of some SPARQL query
 //     * template in manner which makes sense to the application (default
@@ -255,6 +272,133 @@ public interface QueryHints {
 
     boolean DEFAULT_NATIVE_HASH_JOINS = DEFAULT_ANALYTIC;
 
+    /**
+     * When <code>true</code>, hash joins against an access path use the
+     * {@link com.bigdata.bop.join.HybridHashJoinOp}, which buffers solutions
+     * on the Java heap and spills hash partitions onto the native heap once
+     * the heap budget for the query is exceeded (see
+     * {@link #HYBRID_HASH_JOIN_MAX_HEAP_SOLUTIONS}). This takes precedence over
+     * {@link #NATIVE_HASH_JOINS} for those joins.
+     * <p>
+     * Note: This query hint MUST be applied in the {@link QueryHintScope#Query}.
+     */
+    String HYBRID_HASH_JOINS = "hybridHashJoins";
+
+    boolean DEFAULT_HYBRID_HASH_JOINS = Boolean.valueOf(System.getProperty(
+            QueryHints.class.getName() + "." + HYBRID_HASH_JOINS, "false"));
+
+    /**
+     * The maximum #of solutions which the hybrid hash joins of a query may
+     * buffer on the Java heap before hash partitions are spilled onto the
+     * native heap.
+     * 
+     * @see #HYBRID_HASH_JOINS
+     */
+    String HYBRID_HASH_JOIN_MAX_HEAP_SOLUTIONS = "hybridHashJoinMaxHeapSolutions";
+
+    long DEFAULT_HYBRID_HASH_JOIN_MAX_HEAP_SOLUTIONS = Long.valueOf(System
+            .getProperty(QueryHints.class.getName() + "."
+                    + HYBRID_HASH_JOIN_MAX_HEAP_SOLUTIONS, "1000000"));
+
+    /**
+     * When <code>true</code>, a hash join against an access path uses the
+     * distinct values bound for a join variable by the buffered solutions as
+     * a semi-join filter for the access path. Elements which can not join are
+     * dropped at the index and, when possible, the scan skips over the key
+     * ranges which can not join.
+     * <p>
+     * Note: This query hint MUST be applied in the {@link QueryHintScope#Query}.
+     * 
+     * @see com.bigdata.bop.join.HashJoinOp.Annotations#SEMI_JOIN_FILTER
+     */
+    String SEMI_JOIN_FILTER = "semiJoinFilter";
+
+    boolean DEFAULT_SEMI_JOIN_FILTER = Boolean.valueOf(System.getProperty(
+            QueryHints.class.getName() + "." + SEMI_JOIN_FILTER, "true"));
+
+    /**
+     * The maximum #of distinct values in a semi-join filter.
+     * 
+     * @see #SEMI_JOIN_FILTER
+     * @see com.bigdata.bop.join.HashJoinOp.Annotations#SEMI_JOIN_FILTER_MAX_VALUES
+     */
+    String SEMI_JOIN_FILTER_MAX_VALUES = "semiJoinFilterMaxValues";
+
+    int DEFAULT_SEMI_JOIN_FILTER_MAX_VALUES = Integer.valueOf(System
+            .getProperty(QueryHints.class.getName() + "."
+                    + SEMI_JOIN_FILTER_MAX_VALUES, "100000"));
+
+    /**
+     * When <code>true</code>, a GROUP BY whose group variables are a prefix of
+     * the order in which the solutions are produced by the WHERE clause is
+     * evaluated by the {@link com.bigdata.bop.solutions.OrderedGroupByOp}.
+     * Each group is emitted as soon as the next group begins, so only one
+     * group is held in memory at a time.
+     * <p>
+     * Note: This query hint MUST be applied in the {@link QueryHintScope#Query}.
+     * 
+     * @see StaticAnalysis#getOrderedVariables(QueryBase)
+     */
+    String ORDERED_GROUP_BY = "orderedGroupBy";
+
+    boolean DEFAULT_ORDERED_GROUP_BY = Boolean.valueOf(System.getProperty(
+            QueryHints.class.getName() + "." + ORDERED_GROUP_BY, "true"));
+
+    /**
+     * The #of partitions into which the solutions for a GROUP BY are hash
+     * partitioned on the GROUP BY expressions. When greater than ONE, the
+     * {@link com.bigdata.bop.solutions.MemoryGroupByOp} groups and aggregates
+     * each partition in a separate task, which allows an aggregation query to
+     * use more than one core. This is used for all GROUP BY queries (other
+     * than those evaluated by an ordered GROUP BY) since the pipelined
+     * aggregation operator is single threaded. However, the
+     * {@link com.bigdata.bop.solutions.MemoryGroupByOp} buffers all solutions
+     * on the JVM heap before aggregating them. The default is ONE.
+     * <p>
+     * Note: This query hint MUST be applied in the {@link QueryHintScope#Query}.
+     * 
+     * @see com.bigdata.bop.solutions.MemoryGroupByOp.Annotations#PARTITION_COUNT
+     */
+    String AGGREGATION_PARTITIONS = "aggregationPartitions";
+
+    int DEFAULT_AGGREGATION_PARTITIONS = Integer.valueOf(System.getProperty(
+            QueryHints.class.getName() + "." + AGGREGATION_PARTITIONS, "1"));
+
+    /**
+     * When <code>true</code>, a DISTINCT projection which does not need to
+     * preserve the order of the solutions is evaluated by the
+     * {@link com.bigdata.bop.solutions.SpillingDistinctBindingSetsOp}. That
+     * operator keeps the distinct solutions in a hash table of packed
+     * {@link com.bigdata.rdf.internal.IV}s on the JVM heap up to a fixed
+     * budget and then spills sorted runs onto the native heap, which are
+     * merged on the last pass. This takes precedence over
+     * {@link #NATIVE_DISTINCT_SOLUTIONS}. The default is <code>false</code>.
+     * <p>
+     * Note: This query hint MUST be applied in the {@link QueryHintScope#Query}.
+     * 
+     * @see com.bigdata.bop.solutions.SpillingDistinctBindingSetsOp.Annotations#MAX_HEAP_BYTES
+     */
+    String SPILLING_DISTINCT_SOLUTIONS = "spillingDistinctSolutions";
+
+    boolean DEFAULT_SPILLING_DISTINCT_SOLUTIONS = Boolean.valueOf(System
+            .getProperty(QueryHints.class.getName() + "."
+                    + SPILLING_DISTINCT_SOLUTIONS, "false"));
+
+    /**
+     * The capacity of the cache of recently seen solutions used to evaluate a
+     * REDUCED projection by the
+     * {@link com.bigdata.bop.solutions.JVMReducedBindingSetsOp}. That
+     * operator only drops those duplicates which are found in the cache, which
+     * is permitted by REDUCED, and its heap use is bounded by this capacity.
+     * When ZERO, REDUCED is evaluated in the same manner as DISTINCT.
+     * <p>
+     * Note: This query hint MUST be applied in the {@link QueryHintScope#Query}.
+     */
+    String REDUCED_CACHE_CAPACITY = "reducedCacheCapacity";
+
+    int DEFAULT_REDUCED_CACHE_CAPACITY = Integer.valueOf(System.getProperty(
+            QueryHints.class.getName() + "." + REDUCED_CACHE_CAPACITY, "10000"));
+
     /**
      * When <code>true</code>, a merge-join pattern will be recognized if it
      * appears in a join group. When <code>false</code>, this can still be
@@ -264,6 +408,56 @@ public interface QueryHints {
 
     boolean DEFAULT_MERGE_JOIN = true;
 
+    /**
+     * When <code>true</code>, a leading pair of statement patterns in a join
+     * group which share a variable and which can both be read using a
+     * key-range scan of a statement index ordered on that variable (e.g.,
+     * <code>?x :p1 ?o . ?y :p2 ?o</code> on POS) will be evaluated using a
+     * {@link com.bigdata.bop.join.SortMergeJoinOp} if their estimated
+     * cardinalities are at least {@link #SORT_MERGE_JOIN_MIN_CARDINALITY}.
+     * <p>
+     * Note: This is disabled by default. The estimated cardinalities do not
+     * say how many distinct join values will be visited by the merge, which
+     * is what determines its cost.
+     * <p>
+     * Note: This query hint MUST be applied in the {@link QueryHintScope#Query}.
+     */
+    String SORT_MERGE_JOIN = "sortMergeJoin";
+
+    boolean DEFAULT_SORT_MERGE_JOIN = Boolean.valueOf(System.getProperty(
+            QueryHints.class.getName() + "." + SORT_MERGE_JOIN, "false"));
+
+    /**
+     * The minimum estimated cardinality of each statement pattern for a
+     * sort-merge join.
+     * 
+     * @see #SORT_MERGE_JOIN
+     */
+    String SORT_MERGE_JOIN_MIN_CARDINALITY = "sortMergeJoinMinCardinality";
+
+    long DEFAULT_SORT_MERGE_JOIN_MIN_CARDINALITY = Long.valueOf(System
+            .getProperty(QueryHints.class.getName() + "."
+                    + SORT_MERGE_JOIN_MIN_CARDINALITY, "100000"));
+
+    /**
+     * When <code>true</code>, required statement patterns in a join group
+     * which form a cycle on their variables (for example, a triangle
+     * <code>?a :knows ?b . ?b :knows ?c . ?c :knows ?a</code>) will be
+     * evaluated together using a
+     * {@link com.bigdata.bop.join.LeapfrogTriejoinOp} rather than as a
+     * sequence of binary joins.
+     * <p>
+     * Note: This query hint MUST be applied in the {@link QueryHintScope#Query}.
+     * <p>
+     * Note: This is disabled by default.
+     * 
+     * @see com.bigdata.rdf.sparql.ast.optimizers.ASTLeapfrogTriejoinOptimizer
+     */
+    String LEAPFROG_TRIEJOIN = "leapfrogTriejoin";
+
+    boolean DEFAULT_LEAPFROG_TRIEJOIN = Boolean.valueOf(System.getProperty(
+            QueryHints.class.getName() + "." + LEAPFROG_TRIEJOIN, "false"));
+
     /**
      * When <code>true</code>, force the use of REMOTE access paths in scale-out
      * joins. This is intended as a tool when analyzing query patterns in
@@ -482,11 +676,35 @@ public interface QueryHints {
     boolean DEFAULT_DESCRIBE_CACHE = false;
 
     /**
-     * FIXME Hack enables the cache feature if the describe cache is enabled.
+     * When <code>true</code> a cache of the solutions for SELECT queries will
+     * be maintained for each KB. The cache is keyed by the optimized AST and
+     * used for queries against a read-only view of a commit point. The encoded
+     * solutions are stored on the native heap. Entries are invalidated when a
+     * write set which could change their solutions is committed through a
+     * {@link com.bigdata.rdf.sail.BigdataSail.BigdataSailConnection}. The
+     * default is <code>false</code>.
+     * <p>
+     * When the cache is enabled, the query hint may be used to disable the
+     * cache for a given query.
+     * <p>
+     * Note: This query hint MUST be applied in the {@link QueryHintScope#Query}.
+     * 
+     * @see com.bigdata.rdf.sparql.ast.cache.ISolutionCache
+     * @see com.bigdata.rdf.sparql.ast.cache.SolutionCache.Options
+     */
+    String SOLUTION_CACHE = "solutionCache";
+
+    boolean DEFAULT_SOLUTION_CACHE = Boolean.valueOf(System
+            .getProperty(QueryHints.class.getName() + "." + SOLUTION_CACHE,
+                    "false"));
+
+    /**
+     * FIXME Hack enables the cache feature if the describe cache or the
+     * solution cache is enabled.
      * 
      * @see CacheConnectionFactory#getCacheConnection(QueryEngine)
      */
-    boolean CACHE_ENABLED = DEFAULT_DESCRIBE_CACHE;
+    boolean CACHE_ENABLED = DEFAULT_DESCRIBE_CACHE || DEFAULT_SOLUTION_CACHE;
 
     /**
      * Query hint controls the manner in which a DESCRIBE query is evaluated.
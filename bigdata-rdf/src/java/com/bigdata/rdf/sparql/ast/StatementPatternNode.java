@@ -215,6 +215,18 @@ public class StatementPatternNode extends
 		 *      PREDICATEs query is slow </a>
 		 */
         String DISTINCT_TERM_SCAN_VAR = "distinctTermScanVar";
+
+        /**
+         * When <code>true</code>, the statement pattern belongs to a cycle of
+         * statement patterns in its group which are evaluated together by a
+         * {@link com.bigdata.bop.join.LeapfrogTriejoinOp}. Those statement
+         * patterns are adjacent in the group.
+         * 
+         * @see com.bigdata.rdf.sparql.ast.optimizers.ASTLeapfrogTriejoinOptimizer
+         */
+        String LEAPFROG_TRIEJOIN = "leapfrogTriejoin";
+
+        boolean DEFAULT_LEAPFROG_TRIEJOIN = false;
         
     }
     
@@ -459,6 +471,25 @@ public class StatementPatternNode extends
 		setProperty(Annotations.DISTINCT_TERM_SCAN_VAR, var);
 
 	}
+
+    /**
+     * @see Annotations#LEAPFROG_TRIEJOIN
+     */
+    final public boolean isLeapfrogTriejoin() {
+
+        return getProperty(Annotations.LEAPFROG_TRIEJOIN,
+                Annotations.DEFAULT_LEAPFROG_TRIEJOIN);
+
+    }
+
+    /**
+     * @see Annotations#LEAPFROG_TRIEJOIN
+     */
+    final public void setLeapfrogTriejoin(final boolean leapfrogTriejoin) {
+
+        setProperty(Annotations.LEAPFROG_TRIEJOIN, leapfrogTriejoin);
+
+    }
     
     /**
      * {@inheritDoc}
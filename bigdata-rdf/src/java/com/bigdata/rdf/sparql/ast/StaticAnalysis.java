@@ -27,11 +27,15 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.sparql.ast;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -43,6 +47,7 @@ import com.bigdata.bop.IConstraint;
 import com.bigdata.bop.IValueExpression;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.aggregate.IAggregate;
+import com.bigdata.bop.ap.Predicate;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.internal.constraints.INeedsMaterialization;
 import com.bigdata.rdf.internal.constraints.INeedsMaterialization.Requirement;
@@ -56,6 +61,8 @@ import com.bigdata.rdf.sparql.ast.optimizers.ASTLiftPreFiltersOptimizer;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTOptimizerList;
 import com.bigdata.rdf.sparql.ast.service.ServiceNode;
 import com.bigdata.rdf.sparql.ast.ssets.ISolutionSetManager;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.SPOKeyOrder;
 
 /**
  * Methods for static analysis of a query. There is one method which looks "up".
@@ -2385,6 +2392,282 @@ public class StaticAnalysis extends StaticAnalysis_CanJoin {
 
     }
 
+    /**
+     * Return the variables on which the solutions produced by the WHERE clause
+     * of the query are known to be ordered. The solutions are ordered on the
+     * first variable, then on the second variable, etc.
+     * <p>
+     * The order is only known when the WHERE clause is a single required
+     * triple pattern which is read from a local index for a single source
+     * solution. The solutions are then produced in the natural order of the
+     * index used for the access path. For example, <code>?s ?p ?o</code> is
+     * read from SPO and is ordered on <code>?s, ?p, ?o</code> while
+     * <code>?s :p ?o</code> is read from POS and is ordered on
+     * <code>?o, ?s</code>. A distinct term scan is ordered on its distinct
+     * term variable.
+     * 
+     * @param queryBase
+     *            The query.
+     * 
+     * @return The ordered variables. This is an empty list if the order of
+     *         the solutions is not known.
+     */
+    public List<IVariable<?>> getOrderedVariables(final QueryBase queryBase) {
+
+        final List<IVariable<?>> vars = new LinkedList<IVariable<?>>();
+
+        if (evaluationContext == null || evaluationContext.isQuads()
+                || evaluationContext.isCluster()) {
+            // Quads use an expander for the default graph and shards are read in parallel.
+            return vars;
+        }
+
+        if (evaluationContext.getSolutionSetStats().getSolutionSetSize() > 1) {
+            // More than one exogenous solution.
+            return vars;
+        }
+
+        if (!(queryBase instanceof QueryRoot))
+            return vars;
+
+        final QueryRoot queryRoot = (QueryRoot) queryBase;
+
+        if (queryRoot.getNamedSubqueries() != null
+                && !queryRoot.getNamedSubqueries().isEmpty())
+            return vars;
+
+        if (queryRoot.getBindingsClause() != null)
+            return vars;
+
+        final GraphPatternGroup<IGroupMemberNode> whereClause = queryRoot
+                .getWhereClause();
+
+        if (!(whereClause instanceof JoinGroupNode) || whereClause.arity() != 1)
+            return vars;
+
+        if (((JoinGroupNode) whereClause).isOptional()
+                || ((JoinGroupNode) whereClause).isMinus())
+            return vars;
+
+        if (!(whereClause.get(0) instanceof StatementPatternNode))
+            return vars;
+
+        final StatementPatternNode sp = (StatementPatternNode) whereClause
+                .get(0);
+
+        if (sp.isOptional() || !sp.getAttachedJoinFilters().isEmpty()
+                || sp.getFastRangeCountVar() != null) {
+            // Filters may be evaluated out of order after materialization.
+            return vars;
+        }
+
+        if (sp.getQueryHintAsBoolean(QueryHints.HASH_JOIN,
+                QueryHints.DEFAULT_HASH_JOIN)) {
+            // The solutions are not ordered by a hash join.
+            return vars;
+        }
+
+        if (sp.getDistinctTermScanVar() != null) {
+
+            vars.add(sp.getDistinctTermScanVar().getValueExpression());
+
+            return vars;
+
+        }
+
+        final BOp[] args = new BOp[] { sp.s().getValueExpression(),
+                sp.p().getValueExpression(), sp.o().getValueExpression() };
+
+        final SPOKeyOrder keyOrder = SPOKeyOrder.getKeyOrder(
+                new Predicate<ISPO>(args), 3/* keyArity */);
+
+        for (int i = 0; i < 3; i++) {
+
+            final BOp t = args[keyOrder.getKeyOrder(i)];
+
+            if (t instanceof IVariable<?>) {
+
+                if (vars.contains(t)) {
+                    // The same variable appears more than once.
+                    vars.clear();
+                    return vars;
+                }
+
+                vars.add((IVariable<?>) t);
+
+            }
+
+        }
+
+        return vars;
+
+    }
+
+    /**
+     * Return the statement patterns which form a cycle on their variables.
+     * Each statement pattern having exactly two distinct variables (each used
+     * once) is an edge between those variables. Edges are repeatedly removed
+     * if one of their variables is not used by any other remaining edge, so
+     * only the edges which lie on some cycle remain (the 2-core of the
+     * variable graph). For example, the three statement patterns of
+     * <code>?a :knows ?b . ?b :knows ?c . ?c :knows ?a</code> form a cycle
+     * while <code>?a :knows ?b . ?b :knows ?c</code> does not.
+     * 
+     * @param sps
+     *            The statement patterns.
+     * 
+     * @return The statement patterns in the connected component of the 2-core
+     *         having the most statement patterns, in their given order. This is
+     *         an empty list unless that component has at least three
+     *         statement patterns and at least three variables.
+     */
+    public List<StatementPatternNode> getCyclicStatementPatterns(
+            final List<StatementPatternNode> sps) {
+
+        // The two variables of each statement pattern which is an edge.
+        final Map<StatementPatternNode, IVariable<?>[]> edges = new LinkedHashMap<StatementPatternNode, IVariable<?>[]>();
+
+        for (StatementPatternNode sp : sps) {
+
+            final List<IVariable<?>> vars = new ArrayList<IVariable<?>>(3);
+
+            boolean ok = true;
+
+            for (int i = 0; i < 3 && ok; i++) {
+
+                final Object t = ((TermNode) sp.get(i)).getValueExpression();
+
+                if (t instanceof IVariable<?>) {
+
+                    if (vars.contains(t)) {
+                        // The same variable is used more than once.
+                        ok = false;
+                    } else {
+                        vars.add((IVariable<?>) t);
+                    }
+
+                }
+
+            }
+
+            if (ok && vars.size() == 2)
+                edges.put(sp, vars.toArray(new IVariable<?>[2]));
+
+        }
+
+        // Prune edges until every remaining variable has at least two edges.
+        boolean modified = true;
+
+        while (modified) {
+
+            modified = false;
+
+            final Map<IVariable<?>, Integer> degree = new LinkedHashMap<IVariable<?>, Integer>();
+
+            for (IVariable<?>[] e : edges.values()) {
+
+                for (IVariable<?> v : e) {
+
+                    final Integer d = degree.get(v);
+
+                    degree.put(v, d == null ? 1 : d + 1);
+
+                }
+
+            }
+
+            final Iterator<IVariable<?>[]> itr = edges.values().iterator();
+
+            while (itr.hasNext()) {
+
+                final IVariable<?>[] e = itr.next();
+
+                if (degree.get(e[0]) < 2 || degree.get(e[1]) < 2) {
+
+                    itr.remove();
+
+                    modified = true;
+
+                }
+
+            }
+
+        }
+
+        // Find the connected component having the most edges.
+        List<StatementPatternNode> best = new LinkedList<StatementPatternNode>();
+
+        int bestVars = 0;
+
+        final Set<StatementPatternNode> visited = new LinkedHashSet<StatementPatternNode>();
+
+        for (StatementPatternNode root : edges.keySet()) {
+
+            if (visited.contains(root))
+                continue;
+
+            final Set<IVariable<?>> vars = new LinkedHashSet<IVariable<?>>();
+
+            final Set<StatementPatternNode> component = new LinkedHashSet<StatementPatternNode>();
+
+            vars.addAll(Arrays.asList(edges.get(root)));
+
+            component.add(root);
+
+            boolean grown = true;
+
+            while (grown) {
+
+                grown = false;
+
+                for (Map.Entry<StatementPatternNode, IVariable<?>[]> e : edges
+                        .entrySet()) {
+
+                    if (component.contains(e.getKey()))
+                        continue;
+
+                    if (vars.contains(e.getValue()[0])
+                            || vars.contains(e.getValue()[1])) {
+
+                        component.add(e.getKey());
+
+                        vars.addAll(Arrays.asList(e.getValue()));
+
+                        grown = true;
+
+                    }
+
+                }
+
+            }
+
+            visited.addAll(component);
+
+            if (component.size() > best.size()) {
+
+                best = new LinkedList<StatementPatternNode>();
+
+                // Preserve the given order.
+                for (StatementPatternNode sp : sps) {
+
+                    if (component.contains(sp))
+                        best.add(sp);
+
+                }
+
+                bestVars = vars.size();
+
+            }
+
+        }
+
+        if (best.size() < 3 || bestVars < 3)
+            return new LinkedList<StatementPatternNode>();
+
+        return best;
+
+    }
+
     /**
      * Return <code>true</code> if any of the {@link ProjectionNode},
      * {@link GroupByNode}, or {@link HavingNode} indicate that this is an
@@ -27,8 +27,10 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.sparql.ast.cache;
 
+import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -37,7 +39,9 @@ import com.bigdata.bfs.BigdataFileSystem;
 import com.bigdata.bop.engine.QueryEngine;
 import com.bigdata.btree.HTreeIndexMetadata;
 import com.bigdata.btree.view.FusedView;
+import com.bigdata.counters.CounterSet;
 import com.bigdata.htree.HTree;
+import com.bigdata.io.DirectBufferPool;
 import com.bigdata.journal.AbstractJournal;
 import com.bigdata.journal.AbstractLocalTransactionManager;
 import com.bigdata.journal.BufferMode;
@@ -53,6 +57,7 @@ import com.bigdata.rawstore.Bytes;
 import com.bigdata.rdf.sparql.ast.QueryHints;
 import com.bigdata.relation.locator.DefaultResourceLocator;
 import com.bigdata.resources.IndexManager;
+import com.bigdata.rwstore.sector.MemoryManager;
 import com.bigdata.service.IDataService;
 import com.bigdata.sparse.SparseRowStore;
 
@@ -98,6 +103,23 @@ public class CacheConnectionImpl implements ICacheConnection {
      */
     private boolean enableDescribeCache;
 
+    /**
+     * When <code>true</code> the SPARQL solution cache is enabled.
+     * 
+     * @see QueryHints#SOLUTION_CACHE
+     */
+    private final boolean enableSolutionCache;
+
+    /**
+     * The SPARQL solution caches by KB namespace.
+     */
+    private final ConcurrentHashMap<String, SolutionCache> solutionCaches = new ConcurrentHashMap<String, SolutionCache>();
+
+    /**
+     * The native memory backing each SPARQL solution cache.
+     */
+    private final ConcurrentHashMap<String, MemoryManager> solutionCacheMemory = new ConcurrentHashMap<String, MemoryManager>();
+
     /**
      * Boolean determines whether or not the main database is used for the
      * cache. When the main database is used, the cache winds up being durable.
@@ -194,6 +216,16 @@ public class CacheConnectionImpl implements ICacheConnection {
         this.enableDescribeCache = QueryHints.DEFAULT_DESCRIBE_CACHE
                 && queryEngine.getFederation() == null;
 
+        /*
+         * Note: The solution cache is invalidated from the change log of the
+         * local write sets, which are not observed by an HA follower (the
+         * write sets are replicated) or on a federation.
+         */
+        this.enableSolutionCache = QueryHints.DEFAULT_SOLUTION_CACHE
+                && queryEngine.getFederation() == null
+                && cacheStore instanceof AbstractJournal
+                && ((AbstractJournal) cacheStore).getQuorum() == null;
+
     }
     
     @Override
@@ -208,6 +240,12 @@ public class CacheConnectionImpl implements ICacheConnection {
 
 //        cacheMap.clear();
 
+        for (String namespace : solutionCaches.keySet()) {
+
+            destroySolutionCache(namespace);
+
+        }
+
         if (!useMainDatabaseForCache) {
 
             /*
@@ -234,6 +272,29 @@ public class CacheConnectionImpl implements ICacheConnection {
 
         }
 
+        // SOLUTION cache (if enabled)
+        destroySolutionCache(namespace);
+
+    }
+
+    private void destroySolutionCache(final String namespace) {
+
+        final SolutionCache solutionCache = solutionCaches.remove(namespace);
+
+        if (solutionCache != null) {
+
+            solutionCache.clear();
+
+        }
+
+        final MemoryManager mmgr = solutionCacheMemory.remove(namespace);
+
+        if (mmgr != null) {
+
+            mmgr.clear();
+
+        }
+
     }
     
     /**
@@ -332,6 +393,89 @@ public class CacheConnectionImpl implements ICacheConnection {
      * END OF DESCRIBE CACHE SUPPORT
      */
 
+    /**
+     * 
+     * @return The solution cache for that KB -or- <code>null</code> if the
+     *         solution cache is not enabled.
+     * 
+     * @see QueryHints#SOLUTION_CACHE
+     */
+    @Override
+    public ISolutionCache getSolutionCache(final String namespace,
+            final long timestamp) {
+
+        if (!enableSolutionCache) {
+
+            // Not enabled.
+            return null;
+
+        }
+
+        if (namespace == null)
+            throw new IllegalArgumentException();
+
+        SolutionCache solutionCache = solutionCaches.get(namespace);
+
+        if (solutionCache == null) {
+
+            synchronized (this) {
+
+                if ((solutionCache = solutionCaches.get(namespace)) == null) {
+
+                    final MemoryManager mmgr = new MemoryManager(
+                            DirectBufferPool.INSTANCE);
+
+                    final long maxMemory = Long.valueOf(System.getProperty(
+                            SolutionCache.Options.MAX_MEMORY, ""
+                                    + SolutionCache.Options.DEFAULT_MAX_MEMORY));
+
+                    final int maxEntryBytes = Integer.valueOf(System
+                            .getProperty(
+                                    SolutionCache.Options.MAX_ENTRY_BYTES,
+                                    ""
+                                            + SolutionCache.Options.DEFAULT_MAX_ENTRY_BYTES));
+
+                    /*
+                     * Note: Write sets committed before the cache existed were
+                     * not observed, so entries computed against earlier commit
+                     * points are not accepted.
+                     */
+                    solutionCache = new SolutionCache(namespace, mmgr,
+                            maxMemory, maxEntryBytes,
+                            cacheStore.getLastCommitTime());
+
+                    solutionCacheMemory.put(namespace, mmgr);
+
+                    solutionCaches.put(namespace, solutionCache);
+
+                }
+
+            }
+
+        }
+
+        return solutionCache;
+
+    }
+
+    /**
+     * Reports the counters for the solution cache of each KB namespace.
+     */
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        for (Map.Entry<String, SolutionCache> e : solutionCaches.entrySet()) {
+
+            root.makePath(e.getKey()).attach(e.getValue().getCounters());
+
+        }
+
+        return root;
+
+    }
+
     /**
      * The {@link InnerCacheJournal} provides the backing store for transient
      * named solution sets.
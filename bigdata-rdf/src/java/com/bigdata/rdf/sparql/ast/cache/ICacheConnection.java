@@ -23,13 +23,15 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
  */
 package com.bigdata.rdf.sparql.ast.cache;
 
+import com.bigdata.counters.ICounterSetAccess;
+
 /**
  * Interface for an abstraction used to support application specific local
  * caches, remote caches, and cache fabrics.
  * 
  * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
  */
-public interface ICacheConnection {
+public interface ICacheConnection extends ICounterSetAccess {
 
     /**
      * Initialize the cache / cache connection.
@@ -76,4 +78,17 @@ public interface ICacheConnection {
      */
     IDescribeCache getDescribeCache(final String namespace, final long timestamp);
 
+    /**
+     * Return the SPARQL solution cache for a KB.
+     * 
+     * @param namespace
+     *            The KB namespace.
+     * @param timestamp
+     *            The timestamp of the view.
+     * 
+     * @return The solution cache -or- <code>null</code> if no cache is
+     *         available for that KB.
+     */
+    ISolutionCache getSolutionCache(final String namespace, final long timestamp);
+
 }
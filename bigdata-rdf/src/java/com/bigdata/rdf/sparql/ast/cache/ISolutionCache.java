@@ -0,0 +1,128 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sparql.ast.cache;
+
+import java.util.Set;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.rdf.internal.IV;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A cache of the solutions for SPARQL queries against a KB namespace. Entries
+ * are identified by a {@link SolutionCacheKey} and are valid for any view
+ * which reads on the commit point against which the solutions were computed
+ * or on a later commit point, until a write set is committed which could
+ * change those solutions.
+ * <p>
+ * Entries are invalidated from the {@link com.bigdata.rdf.changesets.IChangeLog}
+ * of the write sets. Entries which could be changed by a write set are
+ * removed when that write set is prepared. New entries are refused while any
+ * write set is between prepare and commit and, after that commit, if they
+ * were computed against an earlier commit point than the last commit which
+ * changed the KB.
+ * 
+ * @see SolutionCacheKey
+ * @see SolutionCacheServiceFactory
+ * @see com.bigdata.rdf.sparql.ast.QueryHints#SOLUTION_CACHE
+ */
+public interface ISolutionCache extends ICounterSetAccess {
+
+    /**
+     * Return the cached solutions.
+     * 
+     * @param key
+     *            The key.
+     * 
+     * @return The solutions -or- <code>null</code> if there is no valid entry
+     *         for that key.
+     */
+    ICloseableIterator<IBindingSet> get(final SolutionCacheKey key);
+
+    /**
+     * Insert (or replace) a cache entry.
+     * 
+     * @param key
+     *            The key.
+     * @param data
+     *            The solutions as encoded by an
+     *            {@link com.bigdata.rdf.internal.encoder.IVSolutionSetEncoder}.
+     * @param len
+     *            The #of bytes of <i>data</i> which are used.
+     * @param solutionCount
+     *            The #of solutions.
+     * 
+     * @return <code>true</code> iff the entry was inserted.
+     */
+    boolean put(final SolutionCacheKey key, final byte[] data, final int len,
+            final long solutionCount);
+
+    /**
+     * The maximum #of bytes for an encoded cache entry. Larger results are
+     * not cached.
+     */
+    int getMaxEntryBytes();
+
+    /**
+     * Notice that a write set is being prepared. The entries which could be
+     * changed by that write set are removed and no entries will be inserted
+     * until the write set has been committed or aborted.
+     * 
+     * @param predicates
+     *            The predicates of the statements in the write set.
+     * @param graphs
+     *            The named graphs of the statements in the write set.
+     * @param anyGraph
+     *            <code>true</code> if the write set contains statements which
+     *            do not have a named graph.
+     */
+    void prepare(final Set<IV<?, ?>> predicates, final Set<IV<?, ?>> graphs,
+            final boolean anyGraph);
+
+    /**
+     * Notice that a prepared write set has been committed.
+     * 
+     * @param commitTime
+     *            The commit time.
+     */
+    void commit(final long commitTime);
+
+    /**
+     * Notice that a prepared write set has been discarded.
+     */
+    void abort();
+
+    /**
+     * Discard all entries.
+     */
+    void clear();
+
+}
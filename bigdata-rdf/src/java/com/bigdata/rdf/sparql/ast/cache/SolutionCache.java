@@ -0,0 +1,590 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sparql.ast.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.Instrument;
+import com.bigdata.io.DataInputBuffer;
+import com.bigdata.rawstore.Bytes;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.encoder.IVSolutionSetDecoder;
+import com.bigdata.rwstore.sector.IMemoryManager;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * An {@link ISolutionCache} for a single KB namespace. The encoded solutions
+ * are stored on an {@link IMemoryManager} (native memory). Only the keys and
+ * the dependencies of the entries are on the JVM heap. Once the native memory
+ * budget would be exceeded, entries are evicted in LRU order.
+ * 
+ * @see SolutionCacheKey
+ */
+public class SolutionCache implements ISolutionCache {
+
+    private static final Logger log = Logger.getLogger(SolutionCache.class);
+
+    /**
+     * Configuration options (these are read from the environment).
+     */
+    public interface Options {
+
+        /**
+         * The maximum #of bytes of native memory used to store the encoded
+         * solutions of the cache entries for a KB namespace.
+         */
+        String MAX_MEMORY = SolutionCache.class.getName() + ".maxMemory";
+
+        long DEFAULT_MAX_MEMORY = 256 * Bytes.megabyte;
+
+        /**
+         * The maximum #of bytes for the encoded solutions of a single cache
+         * entry. Queries having larger results are not cached. The encoded
+         * solutions are buffered on the JVM heap up to this limit while the
+         * query runs.
+         */
+        String MAX_ENTRY_BYTES = SolutionCache.class.getName()
+                + ".maxEntryBytes";
+
+        int DEFAULT_MAX_ENTRY_BYTES = 4 * Bytes.megabyte32;
+
+    }
+
+    /**
+     * Interface declaring the counters reported by the {@link SolutionCache}.
+     */
+    public interface ISolutionCacheCounters {
+
+        /**
+         * The #of lookups which found a valid entry.
+         */
+        String HitCount = "hitCount";
+
+        /**
+         * The #of lookups which did not find a valid entry.
+         */
+        String MissCount = "missCount";
+
+        /**
+         * The #of entries inserted.
+         */
+        String InsertCount = "insertCount";
+
+        /**
+         * The #of entries which were refused because they were too large or
+         * were computed against a commit point which is no longer current.
+         */
+        String RefusedCount = "refusedCount";
+
+        /**
+         * The #of entries removed by write sets.
+         */
+        String InvalidationCount = "invalidationCount";
+
+        /**
+         * The #of entries evicted to stay within the native memory budget.
+         */
+        String EvictionCount = "evictionCount";
+
+        /**
+         * The #of entries in the cache.
+         */
+        String EntryCount = "entryCount";
+
+        /**
+         * The #of bytes of encoded solutions in the cache.
+         */
+        String BytesInUse = "bytesInUse";
+
+        /**
+         * The #of bytes of encoded solutions served from the cache.
+         */
+        String BytesServed = "bytesServed";
+
+        /**
+         * The maximum #of bytes of encoded solutions in the cache.
+         */
+        String MaxMemory = "maxMemory";
+
+    }
+
+    /**
+     * An entry in the cache.
+     */
+    private static class Entry {
+
+        final SolutionCacheKey key;
+
+        /**
+         * The address of the encoded solutions on the {@link IMemoryManager}
+         * (ZERO if there are no solutions).
+         */
+        final long addr;
+
+        /** The #of bytes of encoded solutions. */
+        final int nbytes;
+
+        /** The #of solutions. */
+        final long solutionCount;
+
+        Entry(final SolutionCacheKey key, final long addr, final int nbytes,
+                final long solutionCount) {
+            this.key = key;
+            this.addr = addr;
+            this.nbytes = nbytes;
+            this.solutionCount = solutionCount;
+        }
+
+    }
+
+    private final String namespace;
+
+    private final IMemoryManager mmgr;
+
+    private final long maxMemory;
+
+    private final int maxEntryBytes;
+
+    /**
+     * The entries in LRU order (guarded by <code>this</code>).
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(
+            16/* initialCapacity */, .75f/* loadFactor */, true/* accessOrder */);
+
+    /**
+     * The #of bytes of encoded solutions in the cache (guarded by
+     * <code>this</code>).
+     */
+    private long bytesInUse = 0L;
+
+    /**
+     * The commit time of the last commit which changed the KB (guarded by
+     * <code>this</code>).
+     */
+    private long lastChangeCommitTime;
+
+    /**
+     * The #of write sets which have been prepared but not yet committed or
+     * aborted (guarded by <code>this</code>).
+     */
+    private int preparedCount = 0;
+
+    private final CAT hitCount = new CAT();
+    private final CAT missCount = new CAT();
+    private final CAT insertCount = new CAT();
+    private final CAT refusedCount = new CAT();
+    private final CAT invalidationCount = new CAT();
+    private final CAT evictionCount = new CAT();
+    private final CAT bytesServed = new CAT();
+
+    /**
+     * @param namespace
+     *            The KB namespace.
+     * @param mmgr
+     *            The native memory on which the encoded solutions are stored.
+     * @param maxMemory
+     *            The maximum #of bytes of encoded solutions.
+     * @param maxEntryBytes
+     *            The maximum #of bytes of encoded solutions for an entry.
+     * @param lastCommitTime
+     *            The last commit time for the KB. Entries will not be accepted
+     *            if they were computed against an earlier commit point since
+     *            the write sets of the earlier commits were not observed by
+     *            the cache.
+     */
+    public SolutionCache(final String namespace, final IMemoryManager mmgr,
+            final long maxMemory, final int maxEntryBytes,
+            final long lastCommitTime) {
+
+        if (namespace == null)
+            throw new IllegalArgumentException();
+
+        if (mmgr == null)
+            throw new IllegalArgumentException();
+
+        if (maxMemory <= 0)
+            throw new IllegalArgumentException();
+
+        if (maxEntryBytes <= 0)
+            throw new IllegalArgumentException();
+
+        this.namespace = namespace;
+        this.mmgr = mmgr;
+        this.maxMemory = maxMemory;
+        this.maxEntryBytes = maxEntryBytes;
+        this.lastChangeCommitTime = lastCommitTime;
+
+    }
+
+    @Override
+    public int getMaxEntryBytes() {
+
+        return maxEntryBytes;
+
+    }
+
+    @Override
+    public ICloseableIterator<IBindingSet> get(final SolutionCacheKey key) {
+
+        final Entry e;
+        final byte[] data;
+        synchronized (this) {
+
+            e = entries.get(key.getKey());
+
+            if (e == null || e.key.getCommitTime() > key.getCommitTime()) {
+
+                /*
+                 * Note: An entry computed against a later commit point than
+                 * the one read by the view can not be used since the solutions
+                 * may include writes which are not visible to the view.
+                 */
+
+                missCount.increment();
+
+                return null;
+
+            }
+
+            // Copy the data while holding the lock (the entry may be freed).
+            data = e.addr == 0L ? null : mmgr.read(e.addr);
+
+        }
+
+        hitCount.increment();
+
+        bytesServed.add(e.nbytes);
+
+        if (log.isDebugEnabled())
+            log.debug("hit: namespace=" + namespace + ", key=" + e.key
+                    + ", solutionCount=" + e.solutionCount);
+
+        return new DecoderIterator(data, e.solutionCount);
+
+    }
+
+    @Override
+    synchronized public boolean put(final SolutionCacheKey key,
+            final byte[] data, final int len, final long solutionCount) {
+
+        if (len > maxEntryBytes || len > maxMemory || preparedCount > 0
+                || key.getCommitTime() < lastChangeCommitTime) {
+
+            refusedCount.increment();
+
+            return false;
+
+        }
+
+        // Evict entries in LRU order until the new entry will fit.
+        final Iterator<Entry> itr = entries.values().iterator();
+
+        while (bytesInUse + len > maxMemory && itr.hasNext()) {
+
+            final Entry e = itr.next();
+
+            itr.remove();
+
+            release(e);
+
+            evictionCount.increment();
+
+        }
+
+        final long addr = len == 0 ? 0L : mmgr.allocate(ByteBuffer.wrap(data,
+                0, len));
+
+        final Entry e = new Entry(key, addr, len, solutionCount);
+
+        final Entry old = entries.put(key.getKey(), e);
+
+        if (old != null)
+            release(old);
+
+        bytesInUse += len;
+
+        insertCount.increment();
+
+        if (log.isDebugEnabled())
+            log.debug("insert: namespace=" + namespace + ", key=" + key
+                    + ", solutionCount=" + solutionCount + ", nbytes=" + len);
+
+        return true;
+
+    }
+
+    @Override
+    synchronized public void prepare(final Set<IV<?, ?>> predicates,
+            final Set<IV<?, ?>> graphs, final boolean anyGraph) {
+
+        preparedCount++;
+
+        final Iterator<Entry> itr = entries.values().iterator();
+
+        while (itr.hasNext()) {
+
+            final Entry e = itr.next();
+
+            if (e.key.isInvalidatedBy(predicates, graphs, anyGraph)) {
+
+                itr.remove();
+
+                release(e);
+
+                invalidationCount.increment();
+
+            }
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("prepare: namespace=" + namespace + ", predicates="
+                    + predicates.size() + ", graphs=" + graphs.size()
+                    + ", entryCount=" + entries.size());
+
+    }
+
+    @Override
+    synchronized public void commit(final long commitTime) {
+
+        if (preparedCount > 0)
+            preparedCount--;
+
+        if (commitTime > lastChangeCommitTime)
+            lastChangeCommitTime = commitTime;
+
+    }
+
+    @Override
+    synchronized public void abort() {
+
+        if (preparedCount > 0)
+            preparedCount--;
+
+    }
+
+    @Override
+    synchronized public void clear() {
+
+        for (Entry e : entries.values()) {
+
+            release(e);
+
+        }
+
+        entries.clear();
+
+    }
+
+    /**
+     * Release the native memory for an entry which has been removed from the
+     * map.
+     */
+    private void release(final Entry e) {
+
+        if (e.addr != 0L)
+            mmgr.free(e.addr);
+
+        bytesInUse -= e.nbytes;
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter(ISolutionCacheCounters.HitCount, new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(hitCount.get());
+            }
+        });
+
+        root.addCounter(ISolutionCacheCounters.MissCount,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(missCount.get());
+                    }
+                });
+
+        root.addCounter(ISolutionCacheCounters.InsertCount,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(insertCount.get());
+                    }
+                });
+
+        root.addCounter(ISolutionCacheCounters.RefusedCount,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(refusedCount.get());
+                    }
+                });
+
+        root.addCounter(ISolutionCacheCounters.InvalidationCount,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(invalidationCount.get());
+                    }
+                });
+
+        root.addCounter(ISolutionCacheCounters.EvictionCount,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(evictionCount.get());
+                    }
+                });
+
+        root.addCounter(ISolutionCacheCounters.EntryCount,
+                new Instrument<Integer>() {
+                    @Override
+                    public void sample() {
+                        synchronized (SolutionCache.this) {
+                            setValue(entries.size());
+                        }
+                    }
+                });
+
+        root.addCounter(ISolutionCacheCounters.BytesInUse,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        synchronized (SolutionCache.this) {
+                            setValue(bytesInUse);
+                        }
+                    }
+                });
+
+        root.addCounter(ISolutionCacheCounters.BytesServed,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(bytesServed.get());
+                    }
+                });
+
+        root.addCounter(ISolutionCacheCounters.MaxMemory,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(maxMemory);
+                    }
+                });
+
+        return root;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "{namespace=" + namespace
+                + ",maxMemory=" + maxMemory + ",maxEntryBytes="
+                + maxEntryBytes + "}";
+
+    }
+
+    /**
+     * Visits the solutions decoded from a cache entry.
+     */
+    private static class DecoderIterator implements
+            ICloseableIterator<IBindingSet> {
+
+        private final DataInputBuffer in;
+
+        private final IVSolutionSetDecoder decoder;
+
+        private final long solutionCount;
+
+        private long n = 0;
+
+        DecoderIterator(final byte[] data, final long solutionCount) {
+
+            this.in = data == null ? null : new DataInputBuffer(data);
+
+            this.decoder = new IVSolutionSetDecoder();
+
+            this.solutionCount = solutionCount;
+
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            return n < solutionCount;
+
+        }
+
+        @Override
+        public IBindingSet next() {
+
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            n++;
+
+            return decoder.decodeSolution(in, true/* resolveCachedValues */);
+
+        }
+
+        @Override
+        public void remove() {
+
+            throw new UnsupportedOperationException();
+
+        }
+
+        @Override
+        public void close() {
+
+            n = solutionCount;
+
+            decoder.release();
+
+        }
+
+    }
+
+}
@@ -0,0 +1,447 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sparql.ast.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.journal.IIndexManager;
+import com.bigdata.journal.ICommitRecord;
+import com.bigdata.journal.IJournal;
+import com.bigdata.journal.ITx;
+import com.bigdata.journal.TimestampUtility;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.sparql.ast.ASTContainer;
+import com.bigdata.rdf.sparql.ast.ArbitraryLengthPathNode;
+import com.bigdata.rdf.sparql.ast.ConstantNode;
+import com.bigdata.rdf.sparql.ast.FunctionNode;
+import com.bigdata.rdf.sparql.ast.FunctionRegistry;
+import com.bigdata.rdf.sparql.ast.NamedSubqueriesNode;
+import com.bigdata.rdf.sparql.ast.NamedSubqueryInclude;
+import com.bigdata.rdf.sparql.ast.NamedSubqueryRoot;
+import com.bigdata.rdf.sparql.ast.PropertyPathNode;
+import com.bigdata.rdf.sparql.ast.QueryRoot;
+import com.bigdata.rdf.sparql.ast.StatementPatternNode;
+import com.bigdata.rdf.sparql.ast.TermNode;
+import com.bigdata.rdf.sparql.ast.ZeroLengthPathNode;
+import com.bigdata.rdf.sparql.ast.service.ServiceNode;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * The key for an entry in an {@link ISolutionCache}. This combines the
+ * optimized AST and the source solutions of a query with the commit point
+ * against which the query is (or was) evaluated and the predicates and named
+ * graphs on which its solutions depend.
+ * <p>
+ * The dependencies are conservative. A statement pattern whose predicate
+ * (context) is not a known constant depends on all predicates (graphs), as
+ * does any property path since a negated property set or a zero length path
+ * can match any predicate.
+ * 
+ * @see ISolutionCache
+ */
+public class SolutionCacheKey {
+
+    /**
+     * The functions whose value is not determined by their arguments. A query
+     * using any of these functions is not cached.
+     */
+    private static final Set<String> nonDeterministicFunctions;
+    static {
+
+        final Set<String> tmp = new HashSet<String>();
+
+        tmp.add(FunctionRegistry.RAND.stringValue());
+        tmp.add(FunctionRegistry.NOW.stringValue());
+        tmp.add(FunctionRegistry.UUID.stringValue());
+        tmp.add(FunctionRegistry.STRUUID.stringValue());
+        tmp.add(FunctionRegistry.BNODE.stringValue());
+
+        nonDeterministicFunctions = Collections.unmodifiableSet(tmp);
+
+    }
+
+    private final String key;
+
+    private final long commitTime;
+
+    private final Set<IV<?, ?>> predicates;
+
+    private final boolean anyPredicate;
+
+    private final Set<IV<?, ?>> graphs;
+
+    private final boolean anyGraph;
+
+    /**
+     * @param key
+     *            The cache key.
+     * @param commitTime
+     *            The commit time of the commit point against which the query
+     *            is evaluated.
+     * @param predicates
+     *            The predicates on which the solutions depend.
+     * @param anyPredicate
+     *            <code>true</code> iff the solutions depend on all predicates.
+     * @param graphs
+     *            The named graphs on which the solutions depend.
+     * @param anyGraph
+     *            <code>true</code> iff the solutions depend on all graphs.
+     */
+    public SolutionCacheKey(final String key, final long commitTime,
+            final Set<IV<?, ?>> predicates, final boolean anyPredicate,
+            final Set<IV<?, ?>> graphs, final boolean anyGraph) {
+
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        if (commitTime <= 0)
+            throw new IllegalArgumentException();
+
+        if (predicates == null)
+            throw new IllegalArgumentException();
+
+        if (graphs == null)
+            throw new IllegalArgumentException();
+
+        this.key = key;
+        this.commitTime = commitTime;
+        this.predicates = predicates;
+        this.anyPredicate = anyPredicate;
+        this.graphs = graphs;
+        this.anyGraph = anyGraph;
+
+    }
+
+    /**
+     * The cache key.
+     */
+    public String getKey() {
+
+        return key;
+
+    }
+
+    /**
+     * The commit time of the commit point against which the query is
+     * evaluated.
+     */
+    public long getCommitTime() {
+
+        return commitTime;
+
+    }
+
+    /**
+     * Return <code>true</code> iff a write set having the given predicates and
+     * named graphs could change the solutions for this key.
+     * 
+     * @param changedPredicates
+     *            The predicates of the statements in the write set.
+     * @param changedGraphs
+     *            The named graphs of the statements in the write set.
+     * @param anyChangedGraph
+     *            <code>true</code> if the write set contains statements which
+     *            do not have a named graph (triples or sids mode).
+     */
+    public boolean isInvalidatedBy(final Set<IV<?, ?>> changedPredicates,
+            final Set<IV<?, ?>> changedGraphs, final boolean anyChangedGraph) {
+
+        if (changedPredicates.isEmpty())
+            return false;
+
+        if (!anyPredicate && !intersects(predicates, changedPredicates))
+            return false;
+
+        if (!anyGraph && !anyChangedGraph && !intersects(graphs, changedGraphs))
+            return false;
+
+        return true;
+
+    }
+
+    private static boolean intersects(final Set<IV<?, ?>> a,
+            final Set<IV<?, ?>> b) {
+
+        final Set<IV<?, ?>> small = a.size() <= b.size() ? a : b;
+
+        final Set<IV<?, ?>> large = small == a ? b : a;
+
+        for (IV<?, ?> iv : small) {
+
+            if (large.contains(iv))
+                return true;
+
+        }
+
+        return false;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "{commitTime=" + commitTime
+                + ",predicates=" + (anyPredicate ? "*" : predicates)
+                + ",graphs=" + (anyGraph ? "*" : graphs) + "}";
+
+    }
+
+    /**
+     * Return the key for a query which has already been optimized.
+     * 
+     * @param db
+     *            The view of the KB against which the query will be evaluated.
+     * @param astContainer
+     *            The query (the optimized AST must be available).
+     * @param bindingSets
+     *            The source solutions.
+     * 
+     * @return The key -or- <code>null</code> if the solutions for the query
+     *         can not be cached. This is the case for mutable views, for
+     *         read-committed views, and for queries having a SERVICE call, an
+     *         INCLUDE of a named solution set, or a non-deterministic
+     *         function.
+     */
+    static public SolutionCacheKey newInstance(final AbstractTripleStore db,
+            final ASTContainer astContainer, final IBindingSet[] bindingSets) {
+
+        final QueryRoot optimizedQuery = astContainer.getOptimizedAST();
+
+        if (optimizedQuery == null)
+            throw new IllegalArgumentException();
+
+        final long commitTime = getReadsOnCommitTime(db.getIndexManager(),
+                db.getTimestamp());
+
+        if (commitTime <= 0) {
+
+            // Not a read-only view of a known commit point.
+            return null;
+
+        }
+
+        final Dependencies deps = new Dependencies();
+
+        /*
+         * Note: The original AST is also examined since the optimizer can
+         * prune a statement pattern using a constant which is not (yet) in the
+         * lexicon, and such a query must be invalidated when that constant is
+         * first used.
+         */
+        if (!deps.scan(astContainer.getOriginalAST())
+                || !deps.scan(optimizedQuery)) {
+
+            return null;
+
+        }
+
+        final String key = optimizedQuery.toString()
+                + (bindingSets == null ? "" : Arrays.toString(bindingSets));
+
+        return new SolutionCacheKey(key, commitTime, deps.predicates,
+                deps.anyPredicate, deps.graphs, deps.anyGraph);
+
+    }
+
+    /**
+     * Return the commit time of the commit point which is read by a view.
+     * 
+     * @param indexManager
+     *            The index manager for the view.
+     * @param timestamp
+     *            The timestamp of the view.
+     * 
+     * @return The commit time -or- <code>-1L</code> if the view is mutable,
+     *         read-committed, or does not read on a known commit point.
+     */
+    static public long getReadsOnCommitTime(final IIndexManager indexManager,
+            final long timestamp) {
+
+        if (!(indexManager instanceof IJournal))
+            return -1L;
+
+        if (!TimestampUtility.isReadOnly(timestamp)
+                || timestamp == ITx.READ_COMMITTED) {
+
+            return -1L;
+
+        }
+
+        final IJournal jnl = (IJournal) indexManager;
+
+        final ITx tx = jnl.getLocalTransactionManager().getTx(timestamp);
+
+        if (tx != null) {
+
+            // A read-only transaction.
+            return tx.getReadsOnCommitTime();
+
+        }
+
+        // A historical view of some commit point.
+        final ICommitRecord commitRecord = jnl.getCommitRecord(timestamp);
+
+        if (commitRecord == null)
+            return -1L;
+
+        return commitRecord.getTimestamp();
+
+    }
+
+    /**
+     * Collects the dependencies of a query.
+     */
+    private static class Dependencies {
+
+        final Set<IV<?, ?>> predicates = new LinkedHashSet<IV<?, ?>>();
+
+        final Set<IV<?, ?>> graphs = new LinkedHashSet<IV<?, ?>>();
+
+        boolean anyPredicate = false;
+
+        boolean anyGraph = false;
+
+        /**
+         * Scan the query.
+         * 
+         * @return <code>false</code> iff the query can not be cached.
+         */
+        boolean scan(final QueryRoot queryRoot) {
+
+            if (queryRoot == null)
+                return true;
+
+            final Set<String> namedSubqueries = new HashSet<String>();
+
+            final NamedSubqueriesNode namedSubqueriesNode = queryRoot
+                    .getNamedSubqueries();
+
+            if (namedSubqueriesNode != null) {
+
+                for (NamedSubqueryRoot nsr : namedSubqueriesNode) {
+
+                    namedSubqueries.add(nsr.getName());
+
+                }
+
+            }
+
+            final Iterator<BOp> itr = BOpUtility
+                    .preOrderIteratorWithAnnotations(queryRoot);
+
+            while (itr.hasNext()) {
+
+                final BOp op = itr.next();
+
+                if (op instanceof StatementPatternNode) {
+
+                    final StatementPatternNode sp = (StatementPatternNode) op;
+
+                    final IV<?, ?> p = getIV(sp.p());
+
+                    if (p == null)
+                        anyPredicate = true;
+                    else
+                        predicates.add(p);
+
+                    final IV<?, ?> c = getIV(sp.c());
+
+                    if (c == null)
+                        anyGraph = true;
+                    else
+                        graphs.add(c);
+
+                } else if (op instanceof PropertyPathNode
+                        || op instanceof ArbitraryLengthPathNode
+                        || op instanceof ZeroLengthPathNode) {
+
+                    anyPredicate = anyGraph = true;
+
+                } else if (op instanceof ServiceNode) {
+
+                    // The solutions depend on something other than the KB.
+                    return false;
+
+                } else if (op instanceof NamedSubqueryInclude) {
+
+                    if (!namedSubqueries.contains(((NamedSubqueryInclude) op)
+                            .getName())) {
+
+                        // INCLUDE of a named solution set.
+                        return false;
+
+                    }
+
+                } else if (op instanceof FunctionNode) {
+
+                    if (nonDeterministicFunctions
+                            .contains(((FunctionNode) op).getFunctionURI()
+                                    .stringValue())) {
+
+                        return false;
+
+                    }
+
+                }
+
+            }
+
+            return true;
+
+        }
+
+        /**
+         * Return the {@link IV} for a constant which is known to the lexicon
+         * and otherwise <code>null</code>.
+         */
+        private static IV<?, ?> getIV(final TermNode t) {
+
+            if (t == null || !(t instanceof ConstantNode))
+                return null;
+
+            final IV<?, ?> iv = ((ConstantNode) t).getValueExpression().get();
+
+            if (iv == null || iv.isNullIV())
+                return null;
+
+            return iv;
+
+        }
+
+    }
+
+}
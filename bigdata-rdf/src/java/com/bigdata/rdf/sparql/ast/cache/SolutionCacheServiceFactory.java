@@ -0,0 +1,241 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sparql.ast.cache;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.rdf.changesets.IChangeLog;
+import com.bigdata.rdf.changesets.IChangeRecord;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.sail.BigdataSail.BigdataSailConnection;
+import com.bigdata.rdf.sparql.ast.service.BigdataNativeServiceOptions;
+import com.bigdata.rdf.sparql.ast.service.CustomServiceFactory;
+import com.bigdata.rdf.sparql.ast.service.IServiceOptions;
+import com.bigdata.rdf.sparql.ast.service.ServiceCall;
+import com.bigdata.rdf.sparql.ast.service.ServiceCallCreateParams;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * This service tracks KB updates via an {@link IChangeLog} and is responsible
+ * for the invalidation of the {@link ISolutionCache} entries which could be
+ * changed by the write set of a connection. There is no SERVICE invocation.
+ * <p>
+ * Note: Only the write sets of a {@link BigdataSailConnection} are observed.
+ * The solution cache must not be enabled if the KB is also modified by other
+ * means (for example, by direct writes on the {@link AbstractTripleStore}).
+ * 
+ * @see ISolutionCache
+ * @see com.bigdata.rdf.sparql.ast.QueryHints#SOLUTION_CACHE
+ */
+public class SolutionCacheServiceFactory implements CustomServiceFactory {
+
+    static private transient final Logger log = Logger
+            .getLogger(SolutionCacheServiceFactory.class);
+
+    private final IServiceOptions serviceOptions;
+
+    public SolutionCacheServiceFactory() {
+
+        this.serviceOptions = new BigdataNativeServiceOptions();
+
+    }
+
+    @Override
+    public IServiceOptions getServiceOptions() {
+
+        return serviceOptions;
+
+    }
+
+    @Override
+    public ServiceCall<?> create(final ServiceCallCreateParams params) {
+
+        throw new UnsupportedOperationException();
+
+    }
+
+    /**
+     * Register an {@link IChangeLog} listener that will invalidate the
+     * solution cache.
+     */
+    @Override
+    public void startConnection(final BigdataSailConnection conn) {
+
+        final ICacheConnection cacheConn = CacheConnectionFactory
+                .getCacheConnection(conn.getBigdataSail().getQueryEngine());
+
+        if (cacheConn == null) {
+
+            // Cache is not enabled.
+            return;
+
+        }
+
+        final AbstractTripleStore tripleStore = conn.getTripleStore();
+
+        final ISolutionCache solutionCache = cacheConn.getSolutionCache(
+                tripleStore.getNamespace(), tripleStore.getTimestamp());
+
+        if (solutionCache == null) {
+
+            // Solution cache is not enabled.
+            return;
+
+        }
+
+        conn.addChangeLog(new SolutionCacheChangeLogListener(solutionCache));
+
+    }
+
+    /**
+     * Collects the predicates and named graphs of the statements in the write
+     * set and notifies the {@link ISolutionCache} when the write set is
+     * prepared, committed, or aborted.
+     */
+    static private class SolutionCacheChangeLogListener implements IChangeLog {
+
+        private final ISolutionCache cache;
+
+        /** The predicates of the statements in the write set. */
+        private final Set<IV<?, ?>> predicates = new LinkedHashSet<IV<?, ?>>();
+
+        /** The named graphs of the statements in the write set. */
+        private final Set<IV<?, ?>> graphs = new LinkedHashSet<IV<?, ?>>();
+
+        /**
+         * <code>true</code> if the write set has statements without a named
+         * graph.
+         */
+        private boolean anyGraph = false;
+
+        /**
+         * <code>true</code> once the write set has been prepared against the
+         * cache.
+         */
+        private boolean prepared = false;
+
+        SolutionCacheChangeLogListener(final ISolutionCache cache) {
+
+            if (cache == null)
+                throw new IllegalArgumentException();
+
+            this.cache = cache;
+
+        }
+
+        @Override
+        public void changeEvent(final IChangeRecord record) {
+
+            /*
+             * Note: Unlike the DESCRIBE cache, ChangeAction.UPDATED is not
+             * ignored. A change in the {Axiom, Inference, Explicit} state of a
+             * statement can change the solutions of a query which does not
+             * include inferences.
+             */
+
+            final ISPO spo = record.getStatement();
+
+            if (log.isTraceEnabled())
+                log.trace("Invalidation notice: spo=" + spo);
+
+            predicates.add(spo.p());
+
+            final IV<?, ?> c = spo.c();
+
+            if (c == null)
+                anyGraph = true;
+            else
+                graphs.add(c);
+
+        }
+
+        @Override
+        public void transactionBegin() {
+
+        }
+
+        @Override
+        public void transactionPrepare() {
+
+            if (!predicates.isEmpty()) {
+
+                cache.prepare(predicates, graphs, anyGraph);
+
+                prepared = true;
+
+            }
+
+        }
+
+        @Override
+        public void transactionCommited(final long commitTime) {
+
+            if (prepared) {
+
+                cache.commit(commitTime);
+
+            }
+
+            reset();
+
+        }
+
+        @Override
+        public void transactionAborted() {
+
+            if (prepared) {
+
+                cache.abort();
+
+            }
+
+            reset();
+
+        }
+
+        /** Reset the buffer. */
+        private void reset() {
+
+            predicates.clear();
+
+            graphs.clear();
+
+            anyGraph = false;
+
+            prepared = false;
+
+        }
+
+    } // class SolutionCacheChangeLogListener
+
+}
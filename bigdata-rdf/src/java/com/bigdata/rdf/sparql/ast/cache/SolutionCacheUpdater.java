@@ -0,0 +1,202 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sparql.ast.cache;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.rdf.internal.encoder.IVSolutionSetEncoder;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * Encodes the solutions of a query as they are visited and inserts them into
+ * the {@link ISolutionCache} once the query is done. Nothing is inserted if
+ * the encoded solutions exceed {@link ISolutionCache#getMaxEntryBytes()}, if
+ * the iterator is closed before it is exhausted, or if the query did not
+ * complete normally.
+ */
+public class SolutionCacheUpdater implements ICloseableIterator<IBindingSet> {
+
+    static private transient final Logger log = Logger
+            .getLogger(SolutionCacheUpdater.class);
+
+    /**
+     * The cache to be updated.
+     */
+    private final ISolutionCache cache;
+
+    private final SolutionCacheKey key;
+
+    /**
+     * The query whose solutions are being visited.
+     */
+    private final IRunningQuery runningQuery;
+
+    private final ICloseableIterator<IBindingSet> src;
+
+    private final int maxEntryBytes;
+
+    /**
+     * The encoded solutions (<code>null</code> once the entry has been
+     * inserted or abandoned).
+     */
+    private DataOutputBuffer out;
+
+    private IVSolutionSetEncoder encoder;
+
+    private long solutionCount = 0L;
+
+    /**
+     * @param cache
+     *            The cache to be updated.
+     * @param key
+     *            The key for the query.
+     * @param runningQuery
+     *            The query.
+     * @param src
+     *            The solutions for the query.
+     */
+    public SolutionCacheUpdater(final ISolutionCache cache,
+            final SolutionCacheKey key, final IRunningQuery runningQuery,
+            final ICloseableIterator<IBindingSet> src) {
+
+        if (cache == null)
+            throw new IllegalArgumentException();
+
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        if (runningQuery == null)
+            throw new IllegalArgumentException();
+
+        if (src == null)
+            throw new IllegalArgumentException();
+
+        this.cache = cache;
+        this.key = key;
+        this.runningQuery = runningQuery;
+        this.src = src;
+        this.maxEntryBytes = cache.getMaxEntryBytes();
+        this.out = new DataOutputBuffer();
+        this.encoder = new IVSolutionSetEncoder();
+
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        if (src.hasNext())
+            return true;
+
+        if (out != null) {
+
+            if (runningQuery.isDone() && !runningQuery.isCancelled()
+                    && runningQuery.getCause() == null) {
+
+                cache.put(key, out.array(), out.pos(), solutionCount);
+
+            } else if (log.isDebugEnabled()) {
+
+                log.debug("Not cached: query did not complete normally: "
+                        + runningQuery.getQueryId());
+
+            }
+
+            abandon();
+
+        }
+
+        return false;
+
+    }
+
+    @Override
+    public IBindingSet next() {
+
+        final IBindingSet bset = src.next();
+
+        if (out != null) {
+
+            encoder.encodeSolution(out, bset);
+
+            solutionCount++;
+
+            if (out.pos() > maxEntryBytes) {
+
+                if (log.isDebugEnabled())
+                    log.debug("Not cached: more than " + maxEntryBytes
+                            + " bytes: " + runningQuery.getQueryId());
+
+                abandon();
+
+            }
+
+        }
+
+        return bset;
+
+    }
+
+    @Override
+    public void remove() {
+
+        throw new UnsupportedOperationException();
+
+    }
+
+    @Override
+    public void close() {
+
+        abandon();
+
+        src.close();
+
+    }
+
+    /**
+     * Release the buffered solutions.
+     */
+    private void abandon() {
+
+        if (out != null) {
+
+            out = null;
+
+            encoder.release();
+
+            encoder = null;
+
+        }
+
+    }
+
+}
@@ -65,6 +65,7 @@ import com.bigdata.rdf.sparql.ast.StaticAnalysis;
 import com.bigdata.rdf.sparql.ast.cache.CacheConnectionFactory;
 import com.bigdata.rdf.sparql.ast.cache.ICacheConnection;
 import com.bigdata.rdf.sparql.ast.cache.IDescribeCache;
+import com.bigdata.rdf.sparql.ast.cache.ISolutionCache;
 import com.bigdata.rdf.sparql.ast.hints.IQueryHint;
 import com.bigdata.rdf.sparql.ast.hints.QueryHintRegistry;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTBottomUpOptimizer;
@@ -118,6 +119,12 @@ public class AST2BOpContext implements IdFactory, IEvaluationContext {
      */
     public final IDescribeCache describeCache;
 
+    /**
+     * The {@link ISolutionCache} -or- <code>null</code> iff that cache is not
+     * enabled.
+     */
+    public final ISolutionCache solutionCache;
+
     /**
      * The query hints from the original {@link #query}.
      * <p>
@@ -191,6 +198,105 @@ public class AST2BOpContext implements IdFactory, IEvaluationContext {
      * @see QueryHints#NATIVE_HASH_JOINS
      */
     public boolean nativeHashJoins = QueryHints.DEFAULT_NATIVE_HASH_JOINS;
+
+    /**
+     * When <code>true</code>, hash joins against an access path start on the
+     * Java heap and spill hash partitions onto the native heap once the heap
+     * budget for the query is exceeded.
+     * 
+     * @see QueryHints#HYBRID_HASH_JOINS
+     */
+    public boolean hybridHashJoins = QueryHints.DEFAULT_HYBRID_HASH_JOINS;
+
+    /**
+     * The maximum #of solutions which the hybrid hash joins of a query may
+     * buffer on the Java heap.
+     * 
+     * @see QueryHints#HYBRID_HASH_JOIN_MAX_HEAP_SOLUTIONS
+     */
+    public long hybridHashJoinMaxHeapSolutions = QueryHints.DEFAULT_HYBRID_HASH_JOIN_MAX_HEAP_SOLUTIONS;
+
+    /**
+     * When <code>true</code>, hash joins against an access path use a
+     * semi-join filter for the values bound for a join variable by the
+     * buffered solutions.
+     * 
+     * @see QueryHints#SEMI_JOIN_FILTER
+     */
+    public boolean semiJoinFilter = QueryHints.DEFAULT_SEMI_JOIN_FILTER;
+
+    /**
+     * The maximum #of distinct values in a semi-join filter.
+     * 
+     * @see QueryHints#SEMI_JOIN_FILTER_MAX_VALUES
+     */
+    public int semiJoinFilterMaxValues = QueryHints.DEFAULT_SEMI_JOIN_FILTER_MAX_VALUES;
+
+    /**
+     * When <code>true</code>, a GROUP BY over solutions which are known to be
+     * ordered on the group variables is evaluated one group at a time.
+     * 
+     * @see QueryHints#ORDERED_GROUP_BY
+     */
+    public boolean orderedGroupBy = QueryHints.DEFAULT_ORDERED_GROUP_BY;
+
+    /**
+     * The #of partitions into which the solutions for a GROUP BY are hash
+     * partitioned in order to aggregate them in parallel.
+     * 
+     * @see QueryHints#AGGREGATION_PARTITIONS
+     */
+    public int aggregationPartitions = QueryHints.DEFAULT_AGGREGATION_PARTITIONS;
+
+    /**
+     * When <code>true</code>, a DISTINCT projection which need not preserve
+     * order spills sorted runs of solutions onto the native heap once its
+     * in-memory hash table is full.
+     * 
+     * @see QueryHints#SPILLING_DISTINCT_SOLUTIONS
+     */
+    public boolean spillingDistinctSolutions = QueryHints.DEFAULT_SPILLING_DISTINCT_SOLUTIONS;
+
+    /**
+     * The capacity of the cache of recently seen solutions for a REDUCED
+     * projection (ZERO to evaluate REDUCED as DISTINCT).
+     * 
+     * @see QueryHints#REDUCED_CACHE_CAPACITY
+     */
+    public int reducedCacheCapacity = QueryHints.DEFAULT_REDUCED_CACHE_CAPACITY;
+
+    /**
+     * When <code>false</code>, the {@link #solutionCache} is not used for this
+     * query.
+     * 
+     * @see QueryHints#SOLUTION_CACHE
+     */
+    public boolean useSolutionCache = true;
+
+    /**
+     * When <code>true</code>, a leading pair of high cardinality statement
+     * patterns which are ordered on a shared variable may be evaluated using a
+     * sort-merge join.
+     * 
+     * @see QueryHints#SORT_MERGE_JOIN
+     */
+    public boolean sortMergeJoin = QueryHints.DEFAULT_SORT_MERGE_JOIN;
+
+    /**
+     * The minimum estimated cardinality of each statement pattern for a
+     * sort-merge join.
+     * 
+     * @see QueryHints#SORT_MERGE_JOIN_MIN_CARDINALITY
+     */
+    public long sortMergeJoinMinCardinality = QueryHints.DEFAULT_SORT_MERGE_JOIN_MIN_CARDINALITY;
+
+    /**
+     * When <code>true</code>, cyclic statement patterns in a join group may be
+     * evaluated using a leapfrog triejoin.
+     * 
+     * @see QueryHints#LEAPFROG_TRIEJOIN
+     */
+    public boolean leapfrogTriejoin = QueryHints.DEFAULT_LEAPFROG_TRIEJOIN;
     
     /**
      * When <code>true</code>, a merge-join pattern will be recognized if it
@@ -491,11 +597,17 @@ public class AST2BOpContext implements IdFactory, IEvaluationContext {
             this.describeCache = cacheConn.getDescribeCache(namespace,
                     timestamp);
 
+            // SOLUTION cache (if enabled)
+            this.solutionCache = cacheConn.getSolutionCache(namespace,
+                    timestamp);
+
         } else {
             
 //            this.sparqlCache = null;
             
             this.describeCache = null;
+
+            this.solutionCache = null;
             
         }
 
@@ -656,6 +768,18 @@ public class AST2BOpContext implements IdFactory, IEvaluationContext {
 
     }
 
+    /**
+     * Return the {@link ISolutionCache} -or- <code>null</code> if that cache
+     * is not enabled or has been disabled for this query.
+     * 
+     * @see QueryHints#SOLUTION_CACHE
+     */
+    public ISolutionCache getSolutionCache() {
+
+        return useSolutionCache ? solutionCache : null;
+
+    }
+
     /**
      * Return the effective {@link DescribeModeEnum}.
      * 
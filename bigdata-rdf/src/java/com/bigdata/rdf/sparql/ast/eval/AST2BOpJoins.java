@@ -59,6 +59,8 @@ import com.bigdata.bop.join.HTreeHashJoinAnnotations;
 import com.bigdata.bop.join.HTreeHashJoinOp;
 import com.bigdata.bop.join.HashJoinAnnotations;
 import com.bigdata.bop.join.HashJoinOp;
+import com.bigdata.bop.join.HybridHashJoinAnnotations;
+import com.bigdata.bop.join.HybridHashJoinOp;
 import com.bigdata.bop.join.JVMHashJoinOp;
 import com.bigdata.bop.join.JoinAnnotations;
 import com.bigdata.bop.join.PipelineJoin;
@@ -1342,7 +1344,25 @@ public class AST2BOpJoins extends AST2BOpFilters {
 
             map.put(PipelineOp.Annotations.MAX_PARALLEL, 1);
 
-            if (useHTree) {
+            map.put(HashJoinOp.Annotations.SEMI_JOIN_FILTER,
+                    ctx.semiJoinFilter);
+
+            map.put(HashJoinOp.Annotations.SEMI_JOIN_FILTER_MAX_VALUES,
+                    ctx.semiJoinFilterMaxValues);
+
+            if (ctx.hybridHashJoins) {
+
+                map.put(PipelineOp.Annotations.LAST_PASS, true);
+
+                map.put(HybridHashJoinAnnotations.RELATION_NAME,
+                        pred.getRequiredProperty(Predicate.Annotations.RELATION_NAME));
+
+                map.put(HybridHashJoinAnnotations.MAX_HEAP_SOLUTIONS,
+                        ctx.hybridHashJoinMaxHeapSolutions);
+
+                left = new HybridHashJoinOp(leftOrEmpty(left), map);
+
+            } else if (useHTree) {
 
                 map.put(PipelineOp.Annotations.MAX_MEMORY, Long.MAX_VALUE);
                 
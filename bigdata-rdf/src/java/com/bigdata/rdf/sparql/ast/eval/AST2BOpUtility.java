@@ -59,8 +59,10 @@ import com.bigdata.bop.join.JVMMergeJoin;
 import com.bigdata.bop.join.JVMSolutionSetHashJoinOp;
 import com.bigdata.bop.join.JoinAnnotations;
 import com.bigdata.bop.join.JoinTypeEnum;
+import com.bigdata.bop.join.LeapfrogTriejoinOp;
 import com.bigdata.bop.join.NestedLoopJoinOp;
 import com.bigdata.bop.join.SolutionSetHashJoinOp;
+import com.bigdata.bop.join.SortMergeJoinOp;
 import com.bigdata.bop.paths.ArbitraryLengthPathOp;
 import com.bigdata.bop.paths.ZeroLengthPathOp;
 import com.bigdata.bop.rdf.join.ChunkedMaterializationOp;
@@ -77,12 +79,15 @@ import com.bigdata.bop.solutions.IGroupByState;
 import com.bigdata.bop.solutions.ISortOrder;
 import com.bigdata.bop.solutions.IVComparator;
 import com.bigdata.bop.solutions.JVMDistinctBindingSetsOp;
+import com.bigdata.bop.solutions.JVMReducedBindingSetsOp;
 import com.bigdata.bop.solutions.MemoryGroupByOp;
 import com.bigdata.bop.solutions.MemorySortOp;
+import com.bigdata.bop.solutions.OrderedGroupByOp;
 import com.bigdata.bop.solutions.PipelinedAggregationOp;
 import com.bigdata.bop.solutions.ProjectionOp;
 import com.bigdata.bop.solutions.SliceOp;
 import com.bigdata.bop.solutions.SortOrder;
+import com.bigdata.bop.solutions.SpillingDistinctBindingSetsOp;
 import com.bigdata.btree.IRangeQuery;
 import com.bigdata.rdf.error.SparqlTypeErrorException;
 import com.bigdata.rdf.internal.IV;
@@ -445,7 +450,8 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
             if (isAggregate) {
 
-                left = addAggregation(left, projection, groupBy, having, ctx);
+                left = addAggregation(left, queryBase, projection, groupBy,
+                        having, ctx);
 
             } else {
 
@@ -2862,6 +2868,21 @@ public class AST2BOpUtility extends AST2BOpRTO {
             
         }
 
+        if (start.get() == 0
+                && !QueryOptimizerEnum.Runtime.equals(joinGroup
+                        .getQueryOptimizer())
+                && joinGroup.getQueryHintAsBoolean(QueryHints.SORT_MERGE_JOIN,
+                        ctx.sortMergeJoin)) {
+
+            /*
+             * Attempt to interpret the leading statement patterns in the group
+             * as a sort-merge join.
+             */
+
+            left = doSortMergeJoin(left, joinGroup, doneSet, start, ctx);
+
+        }
+
         if (QueryOptimizerEnum.Runtime.equals(joinGroup.getQueryOptimizer())) {
 
             /*
@@ -2891,6 +2912,20 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
             if (child instanceof StatementPatternNode) {
                 final StatementPatternNode sp = (StatementPatternNode) child;
+                if (sp.isLeapfrogTriejoin()) {
+                    /*
+                     * A cycle of statement patterns gathered by the
+                     * ASTLeapfrogTriejoinOptimizer.
+                     */
+                    final AtomicInteger next = new AtomicInteger(i);
+                    final PipelineOp tmp = doLeapfrogTriejoin(left,
+                            joinGroup, doneSet, next, ctx);
+                    if (next.get() > i) {
+                        left = tmp;
+                        i = next.get() - 1;
+                        continue;
+                    }
+                }
                 /*
                  * Add statement pattern joins and the filters on those joins.
                  * 
@@ -3504,6 +3539,263 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
     }
 
+    /**
+     * Attempt to interpret the leading pair of statement patterns in the group
+     * as a {@link SortMergeJoinOp}. This is done when both statement patterns
+     * are required, have a high estimated cardinality (see
+     * {@link QueryHints#SORT_MERGE_JOIN_MIN_CARDINALITY}), share a variable,
+     * and can each be read using a key-range scan of a statement index which
+     * is ordered on that variable. For example, <code>?x :p1 ?o . ?y :p2
+     * ?o</code> is merged on <code>?o</code> using the POS index for both
+     * statement patterns. In this case a nested index join would do one probe
+     * of the index for <code>:p2</code> per solution for <code>:p1</code>.
+     * <p>
+     * Note: A join variable which is the first component of the key (e.g.,
+     * <code>?s :p1 ?a . ?s :p2 ?b</code> on SPO) is NOT merged. Each side
+     * would be a full index scan which skips over every distinct subject in
+     * the index, so the cost would not depend on the cardinality of the
+     * statement patterns.
+     * <p>
+     * The sort-merge join is only used in triples mode against local indices
+     * when there is at most one source solution and neither statement pattern
+     * has any attached join filters or variables which are already bound.
+     * 
+     * @param left
+     * @param joinGroup
+     * @param doneSet
+     * @param start
+     *            Modified by side-effect to indicate how many children were
+     *            absorbed by the sort-merge join IFF it was used.
+     * @param ctx
+     * 
+     * @return <i>left</i> if no sort-merge join was recognized and otherwise
+     *         the sort-merge join plan.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static PipelineOp doSortMergeJoin(final PipelineOp left,
+            final JoinGroupNode joinGroup,
+            final Set<IVariable<?>> doneSet,
+            final AtomicInteger start,
+            final AST2BOpContext ctx) {
+
+        if (ctx.isQuads() || ctx.isCluster()
+                || ctx.getAbstractTripleStore().isStatementIdentifiers()
+                || ctx.getAbstractTripleStore().getSPORelation().oneAccessPath) {
+            // Only the triples mode SPO, POS, and OSP indices are supported.
+            return left;
+        }
+
+        if (ctx.getSolutionSetStats().getSolutionSetSize() > 1) {
+            // One merge per source solution.
+            return left;
+        }
+
+        final int i = start.get();
+
+        if (joinGroup.arity() < i + 2
+                || !(joinGroup.get(i) instanceof StatementPatternNode)
+                || !(joinGroup.get(i + 1) instanceof StatementPatternNode))
+            return left;
+
+        final StatementPatternNode sp1 = (StatementPatternNode) joinGroup
+                .get(i);
+
+        final StatementPatternNode sp2 = (StatementPatternNode) joinGroup
+                .get(i + 1);
+
+        if (!isSortMergeJoinCandidate(sp1, doneSet, ctx)
+                || !isSortMergeJoinCandidate(sp2, doneSet, ctx))
+            return left;
+
+        /*
+         * Choose the join variable. The key orders are checked first against
+         * a predicate which is not assigned a bopId.
+         */
+        final Predicate<?> tmp1 = new Predicate(new BOp[] {
+                sp1.s().getValueExpression(), sp1.p().getValueExpression(),
+                sp1.o().getValueExpression() });
+
+        final Predicate<?> tmp2 = new Predicate(new BOp[] {
+                sp2.s().getValueExpression(), sp2.p().getValueExpression(),
+                sp2.o().getValueExpression() });
+
+        final Set<IVariable<?>> vars2 = sp2.getProducedBindings();
+
+        IVariable<?> joinVar = null;
+
+        for (IVariable<?> v : sp1.getProducedBindings()) {
+
+            if (vars2.contains(v)
+                    && SortMergeJoinOp.isKeyRangeScan(tmp1, v)
+                    && SortMergeJoinOp.isKeyRangeScan(tmp2, v)) {
+
+                joinVar = v;
+
+                break;
+
+            }
+
+        }
+
+        if (joinVar == null)
+            return left;
+
+        final Predicate<?> pred1 = toPredicate(sp1, ctx);
+
+        final Predicate<?> pred2 = toPredicate(sp2, ctx);
+
+        if (!SortMergeJoinOp.isKeyRangeScan(pred1, joinVar)
+                || !SortMergeJoinOp.isKeyRangeScan(pred2, joinVar)) {
+            // Access path filters are not supported.
+            return left;
+        }
+
+        final PipelineOp op = new SortMergeJoinOp(leftOrEmpty(left),//
+                new NV(BOp.Annotations.BOP_ID, ctx.nextId()),//
+                new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER),//
+                new NV(SortMergeJoinOp.Annotations.LEFT_PREDICATE, pred1),//
+                new NV(SortMergeJoinOp.Annotations.RIGHT_PREDICATE, pred2),//
+                new NV(SortMergeJoinOp.Annotations.JOIN_VAR, joinVar)//
+        );
+
+        start.set(i + 2);
+
+        return applyQueryHints(op, joinGroup.getQueryHints(), ctx);
+
+    }
+
+    /**
+     * Return <code>true</code> if the statement pattern could be one side of
+     * a {@link SortMergeJoinOp}.
+     */
+    private static boolean isSortMergeJoinCandidate(
+            final StatementPatternNode sp, final Set<IVariable<?>> doneSet,
+            final AST2BOpContext ctx) {
+
+        if (sp.isOptional() || !sp.getAttachedJoinFilters().isEmpty()
+                || sp.getDistinctTermScanVar() != null
+                || sp.getFastRangeCountVar() != null
+                || sp.isLeapfrogTriejoin())
+            return false;
+
+        if (sp.getQueryHintAsBoolean(QueryHints.HASH_JOIN,
+                QueryHints.DEFAULT_HASH_JOIN))
+            return false;
+
+        final Long estimatedCardinality = (Long) sp
+                .getProperty(Annotations.ESTIMATED_CARDINALITY);
+
+        if (estimatedCardinality == null
+                || estimatedCardinality < ctx.sortMergeJoinMinCardinality)
+            return false;
+
+        for (IVariable<?> v : sp.getProducedBindings()) {
+
+            if (doneSet.contains(v))
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Add a {@link LeapfrogTriejoinOp} for the adjacent statement patterns
+     * starting at the given index in the group which were marked by the
+     * {@link com.bigdata.rdf.sparql.ast.optimizers.ASTLeapfrogTriejoinOptimizer}.
+     * The join filters attached to those
+     * statement patterns are evaluated once all of their variables are bound,
+     * followed by any materialization steps required by those filters.
+     * 
+     * @param left
+     * @param joinGroup
+     * @param doneSet
+     * @param next
+     *            The index of the first marked statement pattern. This is
+     *            modified by side-effect to the index of the first child
+     *            following the marked statement patterns IFF the leapfrog
+     *            triejoin was used.
+     * @param ctx
+     * 
+     * @return The plan.
+     */
+    @SuppressWarnings("rawtypes")
+    private static PipelineOp doLeapfrogTriejoin(final PipelineOp left,
+            final JoinGroupNode joinGroup,
+            final Set<IVariable<?>> doneSet,
+            final AtomicInteger next,
+            final AST2BOpContext ctx) {
+
+        final List<StatementPatternNode> sps = new LinkedList<StatementPatternNode>();
+
+        int j = next.get();
+
+        while (j < joinGroup.arity()
+                && joinGroup.get(j) instanceof StatementPatternNode
+                && ((StatementPatternNode) joinGroup.get(j))
+                        .isLeapfrogTriejoin()) {
+
+            sps.add((StatementPatternNode) joinGroup.get(j++));
+
+        }
+
+        final IPredicate[] preds = new IPredicate[sps.size()];
+
+        final List<IConstraint> constraints = new LinkedList<IConstraint>();
+
+        int k = 0;
+
+        for (StatementPatternNode sp : sps) {
+
+            preds[k++] = toPredicate(sp, ctx);
+
+            final List<IConstraint> spConstraints = getJoinConstraints(sp);
+
+            if (spConstraints != null) {
+
+                constraints.addAll(spConstraints);
+
+            }
+
+        }
+
+        final IVariable<?>[] order = LeapfrogTriejoinOp
+                .getVariableOrder(preds);
+
+        if (order == null) {
+            // Fall back on a join for each statement pattern.
+            return left;
+        }
+
+        final Map<IConstraint, Set<IVariable<IV>>> needsMaterialization = new LinkedHashMap<IConstraint, Set<IVariable<IV>>>();
+
+        PipelineOp op = new LeapfrogTriejoinOp(leftOrEmpty(left),//
+                new NV(BOp.Annotations.BOP_ID, ctx.nextId()),//
+                new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER),//
+                new NV(LeapfrogTriejoinOp.Annotations.PREDICATES, preds),//
+                new NV(LeapfrogTriejoinOp.Annotations.ORDER, order),//
+                new NV(LeapfrogTriejoinOp.Annotations.CONSTRAINTS,
+                        getJoinConstraints(constraints, needsMaterialization))//
+        );
+
+        op = applyQueryHints(op, joinGroup.getQueryHints(), ctx);
+
+        if (!needsMaterialization.isEmpty()) {
+
+            op = addMaterializationSteps3(op, doneSet, needsMaterialization,
+                    joinGroup.getQueryHints(), ctx);
+
+        }
+
+        next.set(j);
+
+        return op;
+
+    }
+
     /**
      * Add an assignment to the query plan. Note that this method does not
      * resolve the IV of the bound variable (which might be bound to a mocked
@@ -4097,7 +4389,49 @@ public class AST2BOpUtility extends AST2BOpRTO {
         final IVariable<?>[] vars = projection.getProjectionVars();
 
         final PipelineOp op;
-        if (!ctx.nativeDistinctSolutions || preserveOrder) {
+        if (projection.isReduced() && ctx.reducedCacheCapacity > 0) {
+            /*
+             * REDUCED using a bounded cache of recently seen solutions. The
+             * operator emits each solution as it arrives, so the order is
+             * preserved when it runs single-threaded.
+             */
+            final List<NV> anns = new LinkedList<NV>();
+            anns.add(new NV(JVMReducedBindingSetsOp.Annotations.BOP_ID, bopId));
+            anns.add(new NV(JVMReducedBindingSetsOp.Annotations.VARIABLES,
+                    vars));
+            anns.add(new NV(
+                    JVMReducedBindingSetsOp.Annotations.EVALUATION_CONTEXT,
+                    BOpEvaluationContext.CONTROLLER));
+            anns.add(new NV(JVMReducedBindingSetsOp.Annotations.SHARED_STATE,
+                    true));
+            anns.add(new NV(JVMReducedBindingSetsOp.Annotations.CACHE_CAPACITY,
+                    ctx.reducedCacheCapacity));
+            if (preserveOrder) {
+                anns.add(new NV(PipelineOp.Annotations.MAX_PARALLEL, 1));
+                anns.add(new NV(SliceOp.Annotations.REORDER_SOLUTIONS, false));
+            }
+            op = new JVMReducedBindingSetsOp(leftOrEmpty(left),//
+                    anns.toArray(new NV[anns.size()])//
+            );
+        } else if (ctx.spillingDistinctSolutions && !preserveOrder
+                && vars.length > 0) {
+            /*
+             * DISTINCT on the JVM heap up to a budget, then spilling sorted
+             * runs onto the native heap.
+             */
+            op = new SpillingDistinctBindingSetsOp(leftOrEmpty(left),//
+                    new NV(SpillingDistinctBindingSetsOp.Annotations.BOP_ID,
+                           bopId),//
+                    new NV(SpillingDistinctBindingSetsOp.Annotations.VARIABLES,
+                           vars),//
+                    new NV(PipelineOp.Annotations.EVALUATION_CONTEXT,
+                           BOpEvaluationContext.CONTROLLER),//
+                    new NV(PipelineOp.Annotations.SHARED_STATE, true),//
+                    new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                    new NV(PipelineOp.Annotations.PIPELINED, true),//
+                    new NV(PipelineOp.Annotations.LAST_PASS, true)//
+            );
+        } else if (!ctx.nativeDistinctSolutions || preserveOrder) {
             /*
              * DISTINCT on the JVM heap.
              */
@@ -4180,6 +4514,8 @@ public class AST2BOpUtility extends AST2BOpRTO {
      * 
      * @param left
      *            The previous operator in the pipeline.
+     * @param queryBase
+     *            The query.
      * @param projection
      *            The projected select expressions (MUST be aggregates when
      *            interpreted in context with groupBy and having).
@@ -4193,6 +4529,7 @@ public class AST2BOpUtility extends AST2BOpRTO {
      */
     @SuppressWarnings("rawtypes")
     private static final PipelineOp addAggregation(PipelineOp left,
+            final QueryBase queryBase,
             final ProjectionNode projection, final GroupByNode groupBy,
             final HavingNode having, final AST2BOpContext ctx) {
 
@@ -4299,7 +4636,19 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
         left = addMaterializationSteps2(left, bopId, vars, queryHints, ctx);
 
-        if (!groupByState.isAnyDistinct() && !groupByState.isSelectDependency()
+        final boolean ordered = ctx.orderedGroupBy && vars.isEmpty()
+                && isOrderedGroupBy(queryBase, groupByExprs, ctx);
+
+        /*
+         * When partitioned aggregation was requested, a GROUP BY is evaluated
+         * by partitioning the solutions across several tasks rather than by
+         * the (single threaded) pipelined aggregation operator.
+         */
+        final boolean partitioned = ctx.aggregationPartitions > 1
+                && groupByExprs != null && !ordered;
+
+        if (!partitioned && !groupByState.isAnyDistinct()
+                && !groupByState.isSelectDependency()
                 && !groupByState.isNestedAggregates()) {
 
             /*
@@ -4317,8 +4666,7 @@ public class AST2BOpUtility extends AST2BOpRTO {
              * LET operator after the aggregates have been combined.
              */
 
-            op = new PipelinedAggregationOp(leftOrEmpty(left),//
-                    NV.asMap(new NV[] {//
+            final NV[] anns = new NV[] {//
                             new NV(BOp.Annotations.BOP_ID, bopId),//
                             new NV(BOp.Annotations.EVALUATION_CONTEXT,
                                     BOpEvaluationContext.CONTROLLER),//
@@ -4330,7 +4678,23 @@ public class AST2BOpUtility extends AST2BOpRTO {
                             new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
                                     groupByRewrite), //
                             new NV(PipelineOp.Annotations.LAST_PASS, true),//
-                    }));
+                    };
+
+            if (ordered) {
+
+                /*
+                 * The solutions arrive in order on the GROUP BY variables, so
+                 * each group is emitted once the next group begins.
+                 */
+
+                op = new OrderedGroupByOp(leftOrEmpty(left), NV.asMap(anns));
+
+            } else {
+
+                op = new PipelinedAggregationOp(leftOrEmpty(left),
+                        NV.asMap(anns));
+
+            }
 
         } else {
 
@@ -4352,6 +4716,8 @@ public class AST2BOpUtility extends AST2BOpRTO {
                                     BOpEvaluationContext.CONTROLLER),//
                             new NV(PipelineOp.Annotations.PIPELINED, false),//
                             new NV(PipelineOp.Annotations.MAX_MEMORY, 0),//
+                            new NV(MemoryGroupByOp.Annotations.PARTITION_COUNT,
+                                    ctx.aggregationPartitions),//
                             new NV(GroupByOp.Annotations.GROUP_BY_STATE,
                                     groupByState), //
                             new NV(GroupByOp.Annotations.GROUP_BY_REWRITE,
@@ -4366,6 +4732,41 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
     }
 
+    /**
+     * Return <code>true</code> iff the GROUP BY expressions are bare variables
+     * and the solutions produced by the WHERE clause are known to be ordered
+     * on those variables (in any order of the GROUP BY expressions).
+     * 
+     * @see StaticAnalysis#getOrderedVariables(QueryBase)
+     */
+    private static boolean isOrderedGroupBy(final QueryBase queryBase,
+            final IValueExpression<?>[] groupByExprs, final AST2BOpContext ctx) {
+
+        if (groupByExprs == null || groupByExprs.length == 0)
+            return false;
+
+        final Set<IVariable<?>> groupVars = new LinkedHashSet<IVariable<?>>();
+
+        for (IValueExpression<?> expr : groupByExprs) {
+
+            if (!(expr instanceof IVariable<?>))
+                return false;
+
+            groupVars.add((IVariable<?>) expr);
+
+        }
+
+        final List<IVariable<?>> orderedVars = ctx.sa
+                .getOrderedVariables(queryBase);
+
+        if (orderedVars.size() < groupVars.size())
+            return false;
+
+        return groupVars.equals(new LinkedHashSet<IVariable<?>>(orderedVars
+                .subList(0, groupVars.size())));
+
+    }
+
     /**
      * Add an ORDER BY operator.
      */
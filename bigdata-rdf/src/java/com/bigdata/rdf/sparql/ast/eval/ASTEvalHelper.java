@@ -38,6 +38,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
@@ -94,8 +95,12 @@ import com.bigdata.rdf.sparql.ast.UpdateRoot;
 import com.bigdata.rdf.sparql.ast.cache.DescribeBindingsCollector;
 import com.bigdata.rdf.sparql.ast.cache.DescribeCacheUpdater;
 import com.bigdata.rdf.sparql.ast.cache.IDescribeCache;
+import com.bigdata.rdf.sparql.ast.cache.ISolutionCache;
+import com.bigdata.rdf.sparql.ast.cache.SolutionCacheKey;
+import com.bigdata.rdf.sparql.ast.cache.SolutionCacheUpdater;
 import com.bigdata.rdf.store.AbstractTripleStore;
 import com.bigdata.rdf.store.BigdataBindingSetResolverator;
+import com.bigdata.striterator.Chunkerator;
 import com.bigdata.striterator.ChunkedWrappedIterator;
 import com.bigdata.striterator.Dechunkerator;
 import com.bigdata.striterator.IChunkedOrderedIterator;
@@ -258,11 +263,40 @@ public class ASTEvalHelper {
         final boolean materializeProjectionInQuery = context.materializeProjectionInQuery
                 && !optimizedQuery.hasSlice();
 
-        final CloseableIteration<BindingSet, QueryEvaluationException> itr = ASTEvalHelper
-                .evaluateQuery(astContainer, context, bindingSets,
-                        materializeProjectionInQuery//
-                        , projected//
-                );
+        // The solution cache (if enabled).
+        final ISolutionCache solutionCache = context.getSolutionCache();
+
+        // The key for the solution cache (null if the query is not cachable).
+        final SolutionCacheKey cacheKey = solutionCache == null ? null
+                : SolutionCacheKey.newInstance(context.db, astContainer,
+                        bindingSets);
+
+        // The cached solutions (if any).
+        final ICloseableIterator<IBindingSet> cached = cacheKey == null ? null
+                : solutionCache.get(cacheKey);
+
+        final CloseableIteration<BindingSet, QueryEvaluationException> itr;
+
+        if (cached != null) {
+
+            /*
+             * Note: The cached solutions are exactly those produced by the
+             * query plan, so they are materialized in the same manner.
+             */
+            itr = iterator(cached, astContainer.getQueryPlan(),
+                    context.queryId, context.db, materializeProjectionInQuery,
+                    projected);
+
+        } else {
+
+            itr = ASTEvalHelper.evaluateQuery(astContainer, context,
+                    bindingSets, materializeProjectionInQuery//
+                    , projected//
+                    , solutionCache//
+                    , cacheKey//
+                    );
+
+        }
 
         TupleQueryResult r = null;
         try {
@@ -306,6 +340,8 @@ public class ASTEvalHelper {
      * @return An object from which the solutions may be drained.
      * 
      * @throws QueryEvaluationException
+     * 
+     * @see com.bigdata.rdf.sparql.ast.QueryHints#SOLUTION_CACHE
      */
     static public ICloseableIterator<IBindingSet[]> evaluateTupleQuery2(
             final AbstractTripleStore store, final ASTContainer astContainer,
@@ -331,82 +367,82 @@ public class ASTEvalHelper {
         final boolean materializeProjectionInQuery = materialize && context.materializeProjectionInQuery
                 && !optimizedQuery.hasSlice();
 
-        final List<String> projectedSet;
+        // Get the projection for the query.
+        final IVariable<?>[] projected = optimizedQuery.getProjection()
+                .getProjectionVars();
 
-        if (materialize) {
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
 
-            /*
-             * Add a materialization step.
-             */
-            
-            // Get the projection for the query.
-            final IVariable<?>[] projected = astContainer.getOptimizedAST()
-                    .getProjection().getProjectionVars();
+        final int chunkCapacity = queryPlan.getProperty(
+                PipelineOp.Annotations.CHUNK_CAPACITY,
+                PipelineOp.Annotations.DEFAULT_CHUNK_CAPACITY);
 
-            projectedSet = new LinkedList<String>();
+        // The solution cache (if enabled).
+        final ISolutionCache solutionCache = context.getSolutionCache();
 
-            for (IVariable<?> var : projected)
-                projectedSet.add(var.getName());
+        // The key for the solution cache (null if the query is not cachable).
+        final SolutionCacheKey cacheKey = solutionCache == null ? null
+                : SolutionCacheKey.newInstance(context.db, astContainer,
+                        bindingSets);
+
+        // The cached solutions (if any).
+        final ICloseableIterator<IBindingSet> cached = cacheKey == null ? null
+                : solutionCache.get(cacheKey);
+
+        if (cached != null) {
 
-        } else {
-        
             /*
-             * Do not add a materialization step.
+             * Note: The cached solutions are exactly those produced by the
+             * query plan, so they are materialized in the same manner.
              */
+            return materialize(context, materialize,
+                    materializeProjectionInQuery, projected,
+                    new Chunkerator<IBindingSet>(cached, chunkCapacity,
+                            IBindingSet.class));
 
-            projectedSet = null;
-            
         }
 
         doSparqlLogging(context);
         
-        final PipelineOp queryPlan = astContainer.getQueryPlan();
-        
         IRunningQuery runningQuery = null;
         try {
 
+            // Optional attributes to be attached to the query.
+            final Map<Object, Object> queryAttributes = context
+                    .getQueryAttributes();
+
             // Submit query for evaluation.
-            runningQuery = context.queryEngine.eval(queryPlan, bindingSets);
+            runningQuery = context.queryEngine.eval(queryPlan, bindingSets,
+                    queryAttributes);
 
             // The iterator draining the query solutions.
-            final ICloseableIterator<IBindingSet[]> it1 = runningQuery
-                    .iterator();
+            ICloseableIterator<IBindingSet[]> it1 = runningQuery.iterator();
 
-            final ICloseableIterator<IBindingSet[]> it2;
-
-            if (materialize && !materializeProjectionInQuery
-                    && !projectedSet.isEmpty()) {
+            if (cacheKey != null) {
 
                 /*
-                 * Materialize IVs as RDF Values.
-                 * 
-                 * Note: This is the code path when we want to materialize the
-                 * IVs and we can not do so within the query plan because the
-                 * query uses a SLICE. If we want to materialize IVs and there
-                 * is no slice, then the materialization step is done inside of
-                 * the query plan.
+                 * Insert the solutions into the cache once the query is done.
                  * 
-                 * Note: This does not materialize the IVCache for inline IVs.
-                 * The assumption is that the consumer is bigdata aware and can
-                 * use inline IVs directly.
+                 * Note: The solutions are only dechunked when they are being
+                 * cached.
                  */
-                
-                // The variables to be materialized.
-                final IVariable<?>[] vars = projectedSet
-                        .toArray(new IVariable[projectedSet.size()]);
+                it1 = new Chunkerator<IBindingSet>(new SolutionCacheUpdater(
+                        solutionCache, cacheKey, runningQuery,
+                        new Dechunkerator<IBindingSet>(it1)), chunkCapacity,
+                        IBindingSet.class);
 
-                // Wrap with chunked materialization logic.
-                it2 = new ChunkedMaterializationIterator(vars,
-                        context.db.getLexiconRelation(),
-                        false/* materializeInlineIVs */, it1);
-
-            } else {
-                
-                it2 = it1;
-                
             }
-            
-            return it2;
+
+            final ICloseableIterator<IBindingSet[]> it2 = materialize(
+                    context, materialize, materializeProjectionInQuery,
+                    projected, it1);
+
+            /*
+             * Note: This will cancel the query when the iterator is closed and
+             * will report an abnormal termination of the query to the caller.
+             */
+            return new RunningQueryCloseableIterator<IBindingSet[]>(
+                    runningQuery, it2);
 
         } catch (Throwable t) {
             if (runningQuery != null) {
@@ -417,6 +453,67 @@ public class ASTEvalHelper {
         }
 
     }
+
+    /**
+     * Layer in the materialization of the projected {@link IV}s for
+     * {@link #evaluateTupleQuery2(AbstractTripleStore, ASTContainer,
+     * QueryBindingSet, boolean)} when that was requested but could not be done
+     * within the query plan.
+     * 
+     * @param context
+     *            The evaluation context.
+     * @param materialize
+     *            When <code>true</code>, the {@link IV}s should be
+     *            materialized.
+     * @param materializeProjectionInQuery
+     *            When <code>true</code>, the projection was materialized within
+     *            query plan.
+     * @param projected
+     *            The projected variables.
+     * @param it1
+     *            The solutions.
+     * 
+     * @return The solutions with the materialization step (if required).
+     */
+    private static ICloseableIterator<IBindingSet[]> materialize(
+            final AST2BOpContext context, final boolean materialize,
+            final boolean materializeProjectionInQuery,
+            final IVariable<?>[] projected,
+            final ICloseableIterator<IBindingSet[]> it1) {
+
+        final ICloseableIterator<IBindingSet[]> it2;
+
+        if (materialize && !materializeProjectionInQuery
+                && projected.length > 0) {
+
+            /*
+             * Materialize IVs as RDF Values.
+             * 
+             * Note: This is the code path when we want to materialize the
+             * IVs and we can not do so within the query plan because the
+             * query uses a SLICE. If we want to materialize IVs and there
+             * is no slice, then the materialization step is done inside of
+             * the query plan.
+             * 
+             * Note: This does not materialize the IVCache for inline IVs.
+             * The assumption is that the consumer is bigdata aware and can
+             * use inline IVs directly.
+             */
+            
+            // Wrap with chunked materialization logic.
+            it2 = new ChunkedMaterializationIterator(projected,
+                    context.db.getLexiconRelation(),
+                    false/* materializeInlineIVs */, it1);
+
+        } else {
+            
+            it2 = it1;
+            
+        }
+
+        return it2;
+
+    }
     
     /**
      * Optimize a SELECT query.
@@ -781,6 +878,34 @@ public class ASTEvalHelper {
             final boolean materializeProjectionInQuery,
             final IVariable<?>[] required) throws QueryEvaluationException {
 
+        return evaluateQuery(astContainer, ctx, bindingSets,
+                materializeProjectionInQuery, required,
+                null/* solutionCache */, null/* cacheKey */);
+
+    }
+
+    /**
+     * Evaluate a query plan, inserting its solutions into the
+     * {@link ISolutionCache} once the query is done.
+     * 
+     * @param solutionCache
+     *            The solution cache (optional).
+     * @param cacheKey
+     *            The key for the solutions of the query (optional). The
+     *            solutions are not cached unless this is given.
+     * 
+     * @see #evaluateQuery(ASTContainer, AST2BOpContext, IBindingSet[],
+     *      boolean, IVariable[])
+     */
+    private static CloseableIteration<BindingSet, QueryEvaluationException> evaluateQuery(
+            final ASTContainer astContainer,
+            final AST2BOpContext ctx,            
+            final IBindingSet[] bindingSets, 
+            final boolean materializeProjectionInQuery,
+            final IVariable<?>[] required,
+            final ISolutionCache solutionCache,
+            final SolutionCacheKey cacheKey) throws QueryEvaluationException {
+
         doSparqlLogging(ctx);
         
         final PipelineOp queryPlan = astContainer.getQueryPlan();
@@ -801,7 +926,8 @@ public class ASTEvalHelper {
              * compatible iteration with materialized RDF Values.
              */
             return iterator(runningQuery, ctx.db,
-                    materializeProjectionInQuery, required);
+                    materializeProjectionInQuery, required, solutionCache,
+                    cacheKey);
 
         } catch (Throwable t) {
             if (runningQuery != null) {
@@ -1057,6 +1183,10 @@ public class ASTEvalHelper {
      *            responsibility for that materialization step.
      * @param required
      *            The variables which must be materialized (optional).
+     * @param solutionCache
+     *            The solution cache (optional).
+     * @param cacheKey
+     *            The key under which the solutions will be cached (optional).
      * 
      * @return A Sesame {@link CloseableIteration} which will drain
      *         {@link BindingSet}s of materialized RDF {@link Value}s.
@@ -1064,7 +1194,8 @@ public class ASTEvalHelper {
     private static CloseableIteration<BindingSet, QueryEvaluationException> iterator(
             final IRunningQuery runningQuery, final AbstractTripleStore db,
             final boolean materializeProjectionInQuery,
-            final IVariable<?>[] required) {
+            final IVariable<?>[] required, final ISolutionCache solutionCache,
+            final SolutionCacheKey cacheKey) {
     
         /*
          * FIXME We should not dechunk just to rechunk here. This is not very
@@ -1093,10 +1224,51 @@ public class ASTEvalHelper {
          */
         
         // Dechunkify the running query and monitor the Sesame iterator.
-        final ICloseableIterator<IBindingSet> it1 = iterator(runningQuery);
-        
-        final BOp query = runningQuery.getQuery();
-        
+        ICloseableIterator<IBindingSet> it1 = iterator(runningQuery);
+
+        if (cacheKey != null) {
+
+            // Insert the solutions into the cache once the query is done.
+            it1 = new SolutionCacheUpdater(solutionCache, cacheKey,
+                    runningQuery, it1);
+
+        }
+
+        return iterator(it1, runningQuery.getQuery(),
+                runningQuery.getQueryId(), db, materializeProjectionInQuery,
+                required);
+
+    }
+
+    /**
+     * Wrap solutions with the logic to materialize {@link IV}s as RDF
+     * {@link Value}s.
+     * 
+     * @param it1
+     *            The solutions.
+     * @param query
+     *            The query plan (used to configure the chunk sizes).
+     * @param queryId
+     *            The query identifier.
+     * @param db
+     *            The view of the {@link AbstractTripleStore} against which the
+     *            query is running.
+     * @param materializeProjectionInQuery
+     *            When <code>true</code>, the projection was materialized within
+     *            query plan. When <code>false</code>, this method will take
+     *            responsibility for that materialization step.
+     * @param required
+     *            The variables which must be materialized (optional).
+     * 
+     * @return A Sesame {@link CloseableIteration} which will drain
+     *         {@link BindingSet}s of materialized RDF {@link Value}s.
+     */
+    private static CloseableIteration<BindingSet, QueryEvaluationException> iterator(
+            final ICloseableIterator<IBindingSet> it1, final BOp query,
+            final UUID queryId, final AbstractTripleStore db,
+            final boolean materializeProjectionInQuery,
+            final IVariable<?>[] required) {
+
         final int chunkCapacity = query.getProperty(
                 PipelineOp.Annotations.CHUNK_CAPACITY,
                 PipelineOp.Annotations.DEFAULT_CHUNK_CAPACITY);
@@ -1182,7 +1354,7 @@ public class ASTEvalHelper {
             it3 = new Bigdata2Sesame2BindingSetIterator(
                     // Materialize IVs as RDF Values.
                     new BigdataBindingSetResolverator(db, it2,
-                            runningQuery.getQueryId(), required, chunkCapacity,
+                            queryId, required, chunkCapacity,
                             chunkOfChunksCapacity, chunkTimeout,
                             termsChunkSize, blobsChunkSize).start(db
                             .getExecutorService()));
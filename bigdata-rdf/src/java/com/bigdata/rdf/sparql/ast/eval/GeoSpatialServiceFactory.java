@@ -0,0 +1,818 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.sparql.ast.eval;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.URIImpl;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.constraints.RangeBOp;
+import com.bigdata.rdf.internal.impl.extensions.GeoSpatialCodec;
+import com.bigdata.rdf.internal.impl.extensions.GeoSpatialExtension;
+import com.bigdata.rdf.internal.impl.extensions.ZOrderRangeDecomposer;
+import com.bigdata.rdf.internal.impl.extensions.ZOrderRangeDecomposer.KeyRange;
+import com.bigdata.rdf.internal.impl.literal.LiteralExtensionIV;
+import com.bigdata.rdf.internal.impl.literal.XSDIntegerIV;
+import com.bigdata.rdf.sparql.ast.GroupNodeBase;
+import com.bigdata.rdf.sparql.ast.IGroupMemberNode;
+import com.bigdata.rdf.sparql.ast.StatementPatternNode;
+import com.bigdata.rdf.sparql.ast.TermNode;
+import com.bigdata.rdf.sparql.ast.service.BigdataNativeServiceOptions;
+import com.bigdata.rdf.sparql.ast.service.BigdataServiceCall;
+import com.bigdata.rdf.sparql.ast.service.IServiceOptions;
+import com.bigdata.rdf.sparql.ast.service.ServiceCallCreateParams;
+import com.bigdata.rdf.sparql.ast.service.ServiceNode;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rdf.store.BD;
+import com.bigdata.rdf.vocab.decls.GeoSpatialVocabularyDecl;
+import com.bigdata.relation.accesspath.ThickCloseableIterator;
+import com.bigdata.striterator.IChunkedOrderedIterator;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A factory for a geospatial search service over inline geospatial literals
+ * (see {@link GeoSpatialExtension}). It accepts a group with a single triple
+ * pattern having a constant predicate:
+ * 
+ * <pre>
+ * service geo:search {
+ *   ?s ex:location ?loc .
+ *   
+ *   # either a rectangle
+ *     bd:serviceParam geo:search.southWest "40.5#-74.3" .
+ *     bd:serviceParam geo:search.northEast "40.9#-73.7" .
+ *     # or a circle (radius in kilometers)
+ *     bd:serviceParam geo:search.center "40.71#-74.0" .
+ *     bd:serviceParam geo:search.radius "10" .
+ *   
+ *   # optional time bounds (geo:latLonTime literals)
+ *     bd:serviceParam geo:search.timeStart 1420070400 .
+ *     bd:serviceParam geo:search.timeEnd 1451606399 .
+ * }
+ * </pre>
+ * 
+ * The region is decomposed into at most {@link GeoSpatialParams#MAX_RANGES}
+ * z-order key ranges per box (a rectangle which crosses the date line, or a
+ * circle which does so, is two boxes). Each key range is read with a range
+ * constrained access path and the visited literals are post-filtered against
+ * the exact region.
+ * 
+ * @see GeoSpatialVocabularyDecl
+ * @see ZOrderRangeDecomposer
+ */
+public class GeoSpatialServiceFactory extends AbstractServiceFactory {
+
+    private static final Logger log = Logger
+            .getLogger(GeoSpatialServiceFactory.class);
+
+    /**
+     * The URI service key.
+     */
+    public static final URI SERVICE_KEY = new URIImpl(
+            GeoSpatialVocabularyDecl.NAMESPACE + "search");
+
+    /**
+     * The service params for this service.
+     */
+    public static interface GeoSpatialParams {
+
+        /**
+         * The south west corner of a rectangle (<code>lat#lon</code>).
+         */
+        URI SOUTH_WEST = new URIImpl(SERVICE_KEY.stringValue() + ".southWest");
+
+        /**
+         * The north east corner of a rectangle (<code>lat#lon</code>).
+         */
+        URI NORTH_EAST = new URIImpl(SERVICE_KEY.stringValue() + ".northEast");
+
+        /**
+         * The center of a circle (<code>lat#lon</code>).
+         */
+        URI CENTER = new URIImpl(SERVICE_KEY.stringValue() + ".center");
+
+        /**
+         * The radius of a circle in kilometers.
+         */
+        URI RADIUS = new URIImpl(SERVICE_KEY.stringValue() + ".radius");
+
+        /**
+         * The inclusive lower bound on the time (optional).
+         */
+        URI TIME_START = new URIImpl(SERVICE_KEY.stringValue() + ".timeStart");
+
+        /**
+         * The inclusive upper bound on the time (optional).
+         */
+        URI TIME_END = new URIImpl(SERVICE_KEY.stringValue() + ".timeEnd");
+
+        /**
+         * The datatype of the literals to be searched (optional). The default
+         * is {@link GeoSpatialVocabularyDecl#LAT_LON_TIME} if a time bound is
+         * given and {@link GeoSpatialVocabularyDecl#LAT_LON} otherwise.
+         */
+        URI DATATYPE = new URIImpl(SERVICE_KEY.stringValue() + ".datatype");
+
+        /**
+         * The maximum #of key ranges into which each box of the region is
+         * decomposed. Fewer ranges means fewer index probes but more tuples
+         * which are visited and then rejected by the post-filter.
+         */
+        URI MAX_RANGES = new URIImpl(SERVICE_KEY.stringValue() + ".maxRanges");
+
+        /**
+         * Default = 32.
+         */
+        int DEFAULT_MAX_RANGES = 32;
+
+    }
+
+    private final BigdataNativeServiceOptions serviceOptions;
+
+    public GeoSpatialServiceFactory() {
+
+        serviceOptions = new BigdataNativeServiceOptions();
+
+    }
+
+    @Override
+    public BigdataNativeServiceOptions getServiceOptions() {
+
+        return serviceOptions;
+
+    }
+
+    @Override
+    public BigdataServiceCall create(final ServiceCallCreateParams params,
+            final ServiceParams serviceParams) {
+
+        final AbstractTripleStore store = params.getTripleStore();
+
+        final ServiceNode serviceNode = params.getServiceNode();
+
+        /*
+         * Validate the predicates for a given service call.
+         */
+        final StatementPatternNode sp = verifyGraphPattern(store,
+                serviceNode.getGraphPattern(), serviceParams);
+
+        final URI datatype = serviceParams.getAsURI(
+                GeoSpatialParams.DATATYPE,
+                serviceParams.contains(GeoSpatialParams.TIME_START)
+                        || serviceParams.contains(GeoSpatialParams.TIME_END) ? GeoSpatialVocabularyDecl.LAT_LON_TIME
+                        : GeoSpatialVocabularyDecl.LAT_LON);
+
+        @SuppressWarnings("rawtypes")
+        final IV datatypeIV = store.getVocabulary().get(datatype);
+
+        if (datatypeIV == null) {
+
+            throw new RuntimeException(
+                    "datatype not declared by the vocabulary: " + datatype);
+
+        }
+
+        final GeoSpatialRegion region = new GeoSpatialRegion(serviceParams,
+                GeoSpatialExtension.getDimensions(datatype));
+
+        /*
+         * Create and return the ServiceCall object which will execute this
+         * query.
+         */
+        return new GeoSpatialCall(store, sp, serviceOptions, datatypeIV,
+                region);
+
+    }
+
+    /**
+     * Verify that there is only a single statement pattern node having a
+     * constant predicate and that the service parameters are valid.
+     */
+    private StatementPatternNode verifyGraphPattern(
+            final AbstractTripleStore database,
+            final GroupNodeBase<IGroupMemberNode> group,
+            final ServiceParams params) {
+
+        final Iterator<Map.Entry<URI, List<TermNode>>> it = params.iterator();
+
+        while (it.hasNext()) {
+
+            final URI param = it.next().getKey();
+
+            if (GeoSpatialParams.SOUTH_WEST.equals(param)
+                    || GeoSpatialParams.NORTH_EAST.equals(param)
+                    || GeoSpatialParams.CENTER.equals(param)
+                    || GeoSpatialParams.RADIUS.equals(param)) {
+
+                if (params.getAsString(param, null) == null) {
+                    throw new RuntimeException("must provide a value for: "
+                            + param);
+                }
+
+            } else if (GeoSpatialParams.TIME_START.equals(param)
+                    || GeoSpatialParams.TIME_END.equals(param)) {
+
+                if (params.getAsLong(param, null) == null) {
+                    throw new RuntimeException("must provide a value for: "
+                            + param);
+                }
+
+            } else if (GeoSpatialParams.MAX_RANGES.equals(param)) {
+
+                if (params.getAsInt(param, null) == null) {
+                    throw new RuntimeException("must provide a value for: "
+                            + param);
+                }
+
+            } else if (GeoSpatialParams.DATATYPE.equals(param)) {
+
+                if (params.getAsURI(param, null) == null) {
+                    throw new RuntimeException("must provide a URI for: "
+                            + param);
+                }
+
+            } else {
+
+                throw new RuntimeException("unrecognized param: " + param);
+
+            }
+
+        }
+
+        StatementPatternNode sp = null;
+
+        for (IGroupMemberNode node : group) {
+
+            if (!(node instanceof StatementPatternNode)) {
+
+                throw new RuntimeException("only statement patterns allowed");
+
+            }
+
+            final StatementPatternNode tmp = (StatementPatternNode) node;
+
+            if (tmp.s().isConstant()
+                    && BD.SERVICE_PARAM.equals(tmp.s().getValue())) {
+
+                continue;
+
+            }
+
+            if (sp != null) {
+
+                throw new RuntimeException(
+                        "group must contain a single statement pattern");
+
+            }
+
+            sp = tmp;
+
+        }
+
+        if (sp == null) {
+
+            throw new RuntimeException(
+                    "group must contain a single statement pattern");
+
+        }
+
+        if (!sp.p().isConstant()) {
+
+            throw new RuntimeException("predicate must be a constant");
+
+        }
+
+        return sp;
+
+    }
+
+    /**
+     * The region to be searched, expressed as one or two boxes on the grid of
+     * the {@link GeoSpatialCodec} and an optional circle.
+     */
+    private static class GeoSpatialRegion {
+
+        /** The #of dimensions. */
+        private final int dims;
+
+        /** The inclusive lower grid coordinates of each box. */
+        private final List<long[]> lo = new ArrayList<long[]>(2);
+
+        /** The inclusive upper grid coordinates of each box. */
+        private final List<long[]> hi = new ArrayList<long[]>(2);
+
+        /** The center of the circle and its radius (if a circle). */
+        private final double lat, lon, radius;
+
+        private final boolean circle;
+
+        /** The key ranges covering the boxes. */
+        private final List<KeyRange> ranges;
+
+        GeoSpatialRegion(final ServiceParams params, final int dims) {
+
+            this.dims = dims;
+
+            final long timeStart = GeoSpatialCodec.checkTime(params.getAsLong(
+                    GeoSpatialParams.TIME_START, 0L));
+
+            final long timeEnd = GeoSpatialCodec.checkTime(params.getAsLong(
+                    GeoSpatialParams.TIME_END, GeoSpatialCodec.MAX_TIME));
+
+            if (dims == 2
+                    && (params.contains(GeoSpatialParams.TIME_START) || params
+                            .contains(GeoSpatialParams.TIME_END))) {
+
+                throw new RuntimeException(
+                        "time bounds require a datatype with a time dimension");
+
+            }
+
+            if (params.contains(GeoSpatialParams.CENTER)) {
+
+                if (!params.contains(GeoSpatialParams.RADIUS)) {
+                    throw new RuntimeException("must provide a value for: "
+                            + GeoSpatialParams.RADIUS);
+                }
+
+                final double[] center = parsePoint(params
+                        .getAsString(GeoSpatialParams.CENTER));
+
+                this.circle = true;
+                this.lat = center[0];
+                this.lon = center[1];
+                this.radius = Double.parseDouble(params
+                        .getAsString(GeoSpatialParams.RADIUS));
+
+                if (!(radius >= 0d))
+                    throw new RuntimeException("illegal radius: " + radius);
+
+                // Angular radius.
+                final double a = radius / GeoSpatialCodec.EARTH_RADIUS_KM;
+
+                final double dLat = Math.toDegrees(a);
+
+                final double south = Math.max(-90d, lat - dLat);
+                final double north = Math.min(90d, lat + dLat);
+
+                final double sinDLon = Math.sin(a)
+                        / Math.cos(Math.toRadians(lat));
+
+                if (south == -90d || north == 90d || a >= Math.PI / 2
+                        || sinDLon >= 1d) {
+
+                    // Covers a pole : all longitudes.
+                    addBoxes(south, -180d, north, 180d, timeStart, timeEnd);
+
+                } else {
+
+                    final double dLon = Math.toDegrees(Math.asin(sinDLon));
+
+                    addBoxes(south, lon - dLon, north, lon + dLon, timeStart,
+                            timeEnd);
+
+                }
+
+            } else if (params.contains(GeoSpatialParams.SOUTH_WEST)
+                    && params.contains(GeoSpatialParams.NORTH_EAST)) {
+
+                final double[] sw = parsePoint(params
+                        .getAsString(GeoSpatialParams.SOUTH_WEST));
+
+                final double[] ne = parsePoint(params
+                        .getAsString(GeoSpatialParams.NORTH_EAST));
+
+                if (sw[0] > ne[0])
+                    throw new RuntimeException(
+                            "south west corner is north of north east corner");
+
+                this.circle = false;
+                this.lat = this.lon = this.radius = 0d;
+
+                // Note: a west bound east of the east bound crosses the date line.
+                addBoxes(sw[0], sw[1], ne[0], sw[1] > ne[1] ? ne[1] + 360d
+                        : ne[1], timeStart, timeEnd);
+
+            } else {
+
+                throw new RuntimeException("must specify either "
+                        + GeoSpatialParams.SOUTH_WEST + " and "
+                        + GeoSpatialParams.NORTH_EAST + " -or- "
+                        + GeoSpatialParams.CENTER + " and "
+                        + GeoSpatialParams.RADIUS);
+
+            }
+
+            final int maxRanges = params.getAsInt(GeoSpatialParams.MAX_RANGES,
+                    GeoSpatialParams.DEFAULT_MAX_RANGES);
+
+            if (maxRanges <= 0)
+                throw new RuntimeException("illegal value for: "
+                        + GeoSpatialParams.MAX_RANGES);
+
+            this.ranges = new ArrayList<KeyRange>();
+
+            for (int i = 0; i < lo.size(); i++) {
+
+                ranges.addAll(ZOrderRangeDecomposer.decompose(lo.get(i),
+                        hi.get(i), maxRanges));
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info("boxes=" + lo.size() + ", ranges=" + ranges.size());
+
+        }
+
+        private static double[] parsePoint(final String s) {
+
+            final int i = s.indexOf(GeoSpatialCodec.SEPARATOR);
+
+            if (i == -1)
+                throw new RuntimeException("Expecting lat#lon: " + s);
+
+            return new double[] {
+                    Double.parseDouble(s.substring(0, i).trim()),
+                    Double.parseDouble(s.substring(i + 1).trim()) };
+
+        }
+
+        /**
+         * Add one box, or two boxes if the longitude interval crosses the date
+         * line. The longitude interval may extend up to 360 degrees beyond
+         * <code>[-180:180]</code> on either side.
+         */
+        private void addBoxes(final double south, final double west,
+                final double north, final double east, final long timeStart,
+                final long timeEnd) {
+
+            if (east - west >= 360d) {
+
+                addBox(south, -180d, north, 180d, timeStart, timeEnd);
+
+            } else if (west < -180d) {
+
+                addBox(south, west + 360d, north, 180d, timeStart, timeEnd);
+                addBox(south, -180d, north, east, timeStart, timeEnd);
+
+            } else if (east > 180d) {
+
+                addBox(south, west, north, 180d, timeStart, timeEnd);
+                addBox(south, -180d, north, east - 360d, timeStart, timeEnd);
+
+            } else {
+
+                addBox(south, west, north, east, timeStart, timeEnd);
+
+            }
+
+        }
+
+        private void addBox(final double south, final double west,
+                final double north, final double east, final long timeStart,
+                final long timeEnd) {
+
+            final long[] l = new long[dims];
+            final long[] h = new long[dims];
+
+            l[0] = GeoSpatialCodec.quantizeLatitude(south);
+            h[0] = GeoSpatialCodec.quantizeLatitude(north);
+            l[1] = GeoSpatialCodec.quantizeLongitude(west);
+            h[1] = GeoSpatialCodec.quantizeLongitude(east);
+
+            if (dims > 2) {
+                l[2] = timeStart;
+                h[2] = timeEnd;
+            }
+
+            for (int d = 0; d < dims; d++) {
+
+                if (l[d] > h[d]) {
+
+                    // Empty box.
+                    return;
+
+                }
+
+            }
+
+            lo.add(l);
+            hi.add(h);
+
+        }
+
+        /**
+         * Return <code>true</code> iff the grid coordinates lie within the
+         * region.
+         */
+        boolean accept(final long[] coords) {
+
+            boolean inBox = false;
+
+            for (int i = 0; i < lo.size() && !inBox; i++) {
+
+                final long[] l = lo.get(i), h = hi.get(i);
+
+                inBox = true;
+
+                for (int d = 0; d < dims; d++) {
+
+                    if (coords[d] < l[d] || coords[d] > h[d]) {
+
+                        inBox = false;
+
+                        break;
+
+                    }
+
+                }
+
+            }
+
+            if (!inBox)
+                return false;
+
+            if (circle) {
+
+                return GeoSpatialCodec.distance(lat, lon,
+                        GeoSpatialCodec.latitude(coords[0]),
+                        GeoSpatialCodec.longitude(coords[1])) <= radius;
+
+            }
+
+            return true;
+
+        }
+
+    }
+
+    /**
+     * 
+     * Note: This has the {@link AbstractTripleStore} reference attached. This
+     * is not a {@link Serializable} object. It MUST run on the query
+     * controller.
+     */
+    private static class GeoSpatialCall implements BigdataServiceCall {
+
+        private final AbstractTripleStore db;
+        private final StatementPatternNode sp;
+        private final IServiceOptions serviceOptions;
+        @SuppressWarnings("rawtypes")
+        private final IV datatypeIV;
+        private final GeoSpatialRegion region;
+
+        @SuppressWarnings("rawtypes")
+        public GeoSpatialCall(
+                final AbstractTripleStore db,
+                final StatementPatternNode sp,
+                final IServiceOptions serviceOptions,
+                final IV datatypeIV,
+                final GeoSpatialRegion region) {
+
+            if(db == null)
+                throw new IllegalArgumentException();
+
+            if(sp == null)
+                throw new IllegalArgumentException();
+
+            if(serviceOptions == null)
+                throw new IllegalArgumentException();
+
+            if(datatypeIV == null)
+                throw new IllegalArgumentException();
+
+            if(region == null)
+                throw new IllegalArgumentException();
+
+            this.db = db;
+            this.sp = sp;
+            this.serviceOptions = serviceOptions;
+            this.datatypeIV = datatypeIV;
+            this.region = region;
+
+        }
+
+        /**
+         * Run the key-range scans for each source solution and join the
+         * accepted statements with that solution.
+         */
+        @SuppressWarnings("rawtypes")
+        @Override
+        public ICloseableIterator<IBindingSet> call(final IBindingSet[] bc) {
+
+            final List<IBindingSet> out = new LinkedList<IBindingSet>();
+
+            long nvisited = 0;
+
+            for (IBindingSet bs : bc) {
+
+                final IV s = getTerm(sp, bs, 0);
+                final IV p = getTerm(sp, bs, 1);
+                final IV o = getTerm(sp, bs, 2);
+                final IV c = getTerm(sp, bs, 3);
+
+                if (o != null) {
+
+                    /*
+                     * The object is already bound, so there is nothing to
+                     * range scan. Just filter the bound object.
+                     */
+                    nvisited += scan(bs, s, p, o, c, null/* range */, out);
+
+                    continue;
+
+                }
+
+                for (KeyRange r : region.ranges) {
+
+                    final RangeBOp range = new RangeBOp(new Constant<IV>(
+                            asIV(r.getFrom())), new Constant<IV>(
+                            asIV(r.getTo())));
+
+                    nvisited += scan(bs, s, p, null/* o */, c, range, out);
+
+                }
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info("visited=" + nvisited + ", accepted=" + out.size());
+
+            return new ThickCloseableIterator<IBindingSet>(
+                    out.toArray(new IBindingSet[out.size()]));
+
+        }
+
+        /**
+         * Scan an access path, adding a solution for each accepted statement.
+         * 
+         * @return The #of statements visited.
+         */
+        @SuppressWarnings("rawtypes")
+        private long scan(final IBindingSet bs, final IV s, final IV p,
+                final IV o, final IV c, final RangeBOp range,
+                final List<IBindingSet> out) {
+
+            long n = 0;
+
+            final IChunkedOrderedIterator<ISPO> itr = db.getSPORelation()
+                    .getAccessPath(s, p, o, c, range).iterator();
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final ISPO spo = itr.next();
+
+                    n++;
+
+                    if (!accept(spo.o()))
+                        continue;
+
+                    final IBindingSet tmp = bs.clone();
+
+                    for (int pos = 0; pos < 4; pos++) {
+
+                        final TermNode t = sp.get(pos);
+
+                        if (t == null || !t.isVariable())
+                            continue;
+
+                        final IVariable<IV> v = (IVariable<IV>) t
+                                .getValueExpression();
+
+                        if (!tmp.isBound(v))
+                            tmp.set(v, new Constant<IV>(spo.get(pos)));
+
+                    }
+
+                    out.add(tmp);
+
+                }
+
+            } finally {
+
+                itr.close();
+
+            }
+
+            return n;
+
+        }
+
+        /**
+         * Return <code>true</code> iff the object is a geospatial literal of
+         * the searched datatype which lies within the region.
+         */
+        @SuppressWarnings("rawtypes")
+        private boolean accept(final IV o) {
+
+            if (!(o instanceof LiteralExtensionIV))
+                return false;
+
+            final LiteralExtensionIV lit = (LiteralExtensionIV) o;
+
+            if (!datatypeIV.equals(lit.getExtensionIV()))
+                return false;
+
+            final BigInteger z = lit.getDelegate().integerValue();
+
+            return region.accept(GeoSpatialCodec.deinterleave(z, region.dims));
+
+        }
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        private IV asIV(final BigInteger z) {
+
+            return new LiteralExtensionIV(new XSDIntegerIV(z), datatypeIV);
+
+        }
+
+        /**
+         * Get the IV in the statement pattern at the specified position, or
+         * get the value from the binding set for the variable at that position.
+         * Return null if not bound in either place. 
+         */
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        private IV getTerm(final StatementPatternNode sp, final IBindingSet bs,
+                final int pos) {
+
+            final TermNode t = sp.get(pos);
+
+            if (t == null)
+                return null;
+
+            if (t.isConstant()) {
+
+                return ((IConstant<IV>) t.getValueExpression()).get();
+
+            } else {
+
+                final IVariable<IV> v = (IVariable<IV>) t.getValueExpression();
+
+                if (bs != null && bs.isBound(v)) {
+
+                    return ((IConstant<IV>) bs.get(v)).get();
+
+                } else {
+
+                    return null;
+
+                }
+
+            }
+
+        }
+
+        @Override
+        public IServiceOptions getServiceOptions() {
+
+            return serviceOptions;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.sparql.ast.hints;
+
+import com.bigdata.bop.join.HybridHashJoinOp;
+import com.bigdata.rdf.sparql.ast.ASTBase;
+import com.bigdata.rdf.sparql.ast.QueryHints;
+import com.bigdata.rdf.sparql.ast.QueryRoot;
+import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
+
+/**
+ * Query hint for the maximum #of solutions which the {@link HybridHashJoinOp}s
+ * of a query may buffer on the Java heap.
+ */
+final class HybridHashJoinMaxHeapSolutionsHint extends AbstractLongQueryHint {
+
+    protected HybridHashJoinMaxHeapSolutionsHint() {
+        super(QueryHints.HYBRID_HASH_JOIN_MAX_HEAP_SOLUTIONS,
+                QueryHints.DEFAULT_HYBRID_HASH_JOIN_MAX_HEAP_SOLUTIONS);
+    }
+
+    @Override
+    public Long validate(final String value) {
+
+        final Long v = super.validate(value);
+
+        if (v < 0)
+            throw new IllegalArgumentException(getName() + "=" + value);
+
+        return v;
+
+    }
+
+    @Override
+    public void handle(final AST2BOpContext context,
+            final QueryRoot queryRoot,
+            final QueryHintScope scope, final ASTBase op, final Long value) {
+
+        if (scope == QueryHintScope.Query) {
+
+            context.hybridHashJoinMaxHeapSolutions = value;
+
+            return;
+
+        }
+
+        throw new QueryHintException(scope, op, getName(), value);
+
+    }
+
+}
@@ -102,6 +102,7 @@ public class QueryHintRegistry {
         add(new RTOLimitQueryHint());
         add(new RTONEdgesQueryHint());
         add(new OptimisticQueryHint());
+        add(new StatisticsCatalogHint());
 
         // Analytic query mode.
         add(new AnalyticQueryHint());
@@ -109,9 +110,21 @@ public class QueryHintRegistry {
         add(new NativeDistinctSPOHint());
         add(new NativeDistinctSPOThresholdHint());
         add(new NativeHashJoinsHint());
+        add(new HybridHashJoinsHint());
+        add(new HybridHashJoinMaxHeapSolutionsHint());
+        add(new SemiJoinFilterHint());
+        add(new SemiJoinFilterMaxValuesHint());
+        add(new OrderedGroupByHint());
+        add(new AggregationPartitionsHint());
+        add(new SpillingDistinctSolutionsHint());
+        add(new ReducedCacheCapacityHint());
+        add(new SolutionCacheHint());
         
         // JOIN hints.
         add(new MergeJoinHint());
+        add(new SortMergeJoinHint());
+        add(new SortMergeJoinMinCardinalityHint());
+        add(new LeapfrogTriejoinHint());
         add(new HashJoinHint());
         add(new KeyOrderHint());
         add(new RemoteAPHint());
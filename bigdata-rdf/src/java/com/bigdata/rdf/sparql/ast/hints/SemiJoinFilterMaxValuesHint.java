@@ -0,0 +1,80 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.sparql.ast.hints;
+
+import com.bigdata.bop.join.HashJoinOp;
+import com.bigdata.rdf.sparql.ast.ASTBase;
+import com.bigdata.rdf.sparql.ast.QueryHints;
+import com.bigdata.rdf.sparql.ast.QueryRoot;
+import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
+
+/**
+ * Query hint for the maximum #of distinct values in the semi-join filters for
+ * the hash joins against an access path.
+ * 
+ * @see HashJoinOp.Annotations#SEMI_JOIN_FILTER_MAX_VALUES
+ */
+final class SemiJoinFilterMaxValuesHint extends AbstractIntQueryHint {
+
+    protected SemiJoinFilterMaxValuesHint() {
+        super(QueryHints.SEMI_JOIN_FILTER_MAX_VALUES,
+                QueryHints.DEFAULT_SEMI_JOIN_FILTER_MAX_VALUES);
+    }
+
+    @Override
+    public Integer validate(final String value) {
+
+        final Integer v = super.validate(value);
+
+        if (v < 0)
+            throw new IllegalArgumentException(getName() + "=" + value);
+
+        return v;
+
+    }
+
+    @Override
+    public void handle(final AST2BOpContext context,
+            final QueryRoot queryRoot,
+            final QueryHintScope scope, final ASTBase op, final Integer value) {
+
+        if (scope == QueryHintScope.Query) {
+
+            context.semiJoinFilterMaxValues = value;
+
+            return;
+
+        }
+
+        throw new QueryHintException(scope, op, getName(), value);
+
+    }
+
+}
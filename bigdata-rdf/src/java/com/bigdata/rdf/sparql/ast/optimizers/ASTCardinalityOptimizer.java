@@ -24,6 +24,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.sparql.ast.optimizers;
 
+import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -32,6 +33,7 @@ import com.bigdata.bop.IBindingSet;
 import com.bigdata.rdf.sparql.ast.ArbitraryLengthPathNode;
 import com.bigdata.rdf.sparql.ast.IBindingProducerNode;
 import com.bigdata.rdf.sparql.ast.IGroupMemberNode;
+import com.bigdata.rdf.sparql.ast.IReorderableNode;
 import com.bigdata.rdf.sparql.ast.JoinGroupNode;
 import com.bigdata.rdf.sparql.ast.StaticAnalysis;
 import com.bigdata.rdf.sparql.ast.UnionNode;
@@ -155,13 +157,71 @@ public class ASTCardinalityOptimizer extends AbstractJoinGroupOptimizer
 		    
 		    /*
 		     * TODO Calculate estimated cardinality according to logic in
-		     * ASTStaticJoinOptimizer.
+		     * ASTStaticJoinOptimizer when the statistics catalog is not
+		     * available.
 		     */
 		    
+		    final StatisticsCatalog catalog = ASTStaticJoinOptimizer
+		            .getStatisticsCatalog(ctx, group);
+		    
+		    if (catalog != null) {
+		        
+		        estimateWithCatalog(sa, group, nodes, catalog);
+		        
+		    }
+		    
 		}
 		
 //		group.setProperty(Annotations.ESTIMATED_CARDINALITY, cardinality);
         
     }
+
+    /**
+     * Estimate the cardinality of a join group using the
+     * {@link StatisticsCatalog}. This is only done when every child is a
+     * reorderable node with an estimated cardinality and the children are
+     * connected by shared variables.
+     */
+    private void estimateWithCatalog(final StaticAnalysis sa,
+            final JoinGroupNode group, final List<IBindingProducerNode> nodes,
+            final StatisticsCatalog catalog) {
+
+        final List<IReorderableNode> reorderables = new LinkedList<IReorderableNode>();
+
+        for (IBindingProducerNode node : nodes) {
+
+            if (!(node instanceof IReorderableNode)
+                    || !((IReorderableNode) node).isReorderable()
+                    || node.getProperty(Annotations.ESTIMATED_CARDINALITY) == null) {
+
+                return;
+
+            }
+
+            reorderables.add((IReorderableNode) node);
+
+        }
+
+        final long cardinality = new StaticOptimizer(sa,
+                new IBindingProducerNode[0], reorderables,
+                group.getProperty(Annotations.OPTIMISTIC,
+                        Annotations.DEFAULT_OPTIMISTIC), catalog)
+                .getCardinality();
+
+        if (cardinality >= StaticOptimizer.NO_SHARED_VARS) {
+
+            // Cross product: no useful estimate.
+            return;
+
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("setting cardinality on a join group from the statistics catalog: "
+                    + cardinality);
+        }
+
+        group.setProperty(Annotations.ESTIMATED_CARDINALITY, cardinality);
+
+    }
 	
 }
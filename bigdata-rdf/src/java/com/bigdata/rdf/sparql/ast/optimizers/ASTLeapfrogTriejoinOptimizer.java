@@ -0,0 +1,260 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sparql.ast.optimizers;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.rdf.sparql.ast.FilterNode;
+import com.bigdata.rdf.sparql.ast.GraphPatternGroup;
+import com.bigdata.rdf.sparql.ast.IGroupMemberNode;
+import com.bigdata.rdf.sparql.ast.IQueryNode;
+import com.bigdata.rdf.sparql.ast.JoinGroupNode;
+import com.bigdata.rdf.sparql.ast.NamedSubqueriesNode;
+import com.bigdata.rdf.sparql.ast.NamedSubqueryRoot;
+import com.bigdata.rdf.sparql.ast.QueryHints;
+import com.bigdata.rdf.sparql.ast.QueryOptimizerEnum;
+import com.bigdata.rdf.sparql.ast.QueryRoot;
+import com.bigdata.rdf.sparql.ast.StatementPatternNode;
+import com.bigdata.rdf.sparql.ast.StaticAnalysis;
+import com.bigdata.rdf.sparql.ast.SubqueryRoot;
+import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
+import com.bigdata.rdf.sparql.ast.service.ServiceNode;
+
+/**
+ * Marks the required statement patterns in a join group which form a cycle
+ * on their variables (see
+ * {@link StaticAnalysis#getCyclicStatementPatterns(List)}) so they will be
+ * evaluated together by a {@link com.bigdata.bop.join.LeapfrogTriejoinOp}.
+ * For example, the triangle
+ * 
+ * <pre>
+ * ?a :knows ?b . ?b :knows ?c . ?c :knows ?a .
+ * </pre>
+ * 
+ * produces one intermediate solution for each path of length two when
+ * evaluated as a sequence of binary joins, while the leapfrog triejoin only
+ * visits the bindings which extend to a triangle.
+ * <p>
+ * Only a run of adjacent required statement patterns (and filters) in the
+ * join order is considered. The cyclic statement patterns are moved so they
+ * are adjacent, starting at the position of the first of them. Since they
+ * are all required joins in the same run, this does not change the results.
+ * <p>
+ * This is only done in triples mode against local indices. This optimizer
+ * MUST run after the {@link ASTStaticJoinOptimizer} and before the
+ * {@link ASTAttachJoinFiltersOptimizer}.
+ * 
+ * @see QueryHints#LEAPFROG_TRIEJOIN
+ * @see StatementPatternNode.Annotations#LEAPFROG_TRIEJOIN
+ */
+public class ASTLeapfrogTriejoinOptimizer implements IASTOptimizer {
+
+    public ASTLeapfrogTriejoinOptimizer() {
+    }
+
+    @Override
+    public IQueryNode optimize(final AST2BOpContext context,
+            final IQueryNode queryNode, final IBindingSet[] bindingSets) {
+
+        if (!context.leapfrogTriejoin)
+            return queryNode;
+
+        if (context.isQuads() || context.isCluster()
+                || context.getAbstractTripleStore().isStatementIdentifiers()
+                || context.getAbstractTripleStore().getSPORelation().oneAccessPath) {
+            // Only the triples mode SPO, POS, and OSP indices are supported.
+            return queryNode;
+        }
+
+        final QueryRoot queryRoot = (QueryRoot) queryNode;
+
+        final StaticAnalysis sa = new StaticAnalysis(queryRoot, context);
+
+        final NamedSubqueriesNode namedSubqueries = queryRoot
+                .getNamedSubqueries();
+
+        if (namedSubqueries != null) {
+
+            // Note: works around concurrent modification error.
+            final List<NamedSubqueryRoot> list = BOpUtility.toList(
+                    namedSubqueries, NamedSubqueryRoot.class);
+
+            for (NamedSubqueryRoot namedSubquery : list) {
+
+                optimize(sa, namedSubquery.getWhereClause());
+
+            }
+
+        }
+
+        if (queryRoot.getWhereClause() != null)
+            optimize(sa, queryRoot.getWhereClause());
+
+        return queryNode;
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private void optimize(final StaticAnalysis sa,
+            final GraphPatternGroup<IGroupMemberNode> group) {
+
+        for (int i = 0; i < group.arity(); i++) {
+
+            final BOp child = (BOp) group.get(i);
+
+            if (child instanceof GraphPatternGroup<?>) {
+
+                optimize(sa, (GraphPatternGroup<IGroupMemberNode>) child);
+
+            } else if (child instanceof SubqueryRoot) {
+
+                final GraphPatternGroup<IGroupMemberNode> whereClause = ((SubqueryRoot) child)
+                        .getWhereClause();
+
+                if (whereClause != null)
+                    optimize(sa, whereClause);
+
+            } else if (child instanceof ServiceNode) {
+
+                // Do not rewrite things inside of a SERVICE node.
+                continue;
+
+            }
+
+        }
+
+        if (group instanceof JoinGroupNode)
+            optimizeJoinGroup(sa, (JoinGroupNode) group);
+
+    }
+
+    /**
+     * Mark and gather the cyclic statement patterns in each run of required
+     * statement patterns in the join group.
+     */
+    private void optimizeJoinGroup(final StaticAnalysis sa,
+            final JoinGroupNode group) {
+
+        if (QueryOptimizerEnum.Runtime.equals(group.getQueryOptimizer())) {
+            // The RTO decides the join order.
+            return;
+        }
+
+        // The candidates in the current run.
+        final List<StatementPatternNode> run = new LinkedList<StatementPatternNode>();
+
+        int i = 0;
+
+        while (i <= group.arity()) {
+
+            final Object child = i < group.arity() ? group.get(i) : null;
+
+            if (child instanceof FilterNode) {
+
+                i++;
+
+                continue;
+
+            }
+
+            if (child instanceof StatementPatternNode
+                    && !((StatementPatternNode) child).isOptional()) {
+
+                if (isCandidate((StatementPatternNode) child))
+                    run.add((StatementPatternNode) child);
+
+                i++;
+
+                continue;
+
+            }
+
+            // The end of a run.
+            final List<StatementPatternNode> cycle = sa
+                    .getCyclicStatementPatterns(run);
+
+            run.clear();
+
+            if (!cycle.isEmpty()) {
+
+                final int first = group.indexOf(cycle.get(0));
+
+                for (StatementPatternNode sp : cycle) {
+
+                    group.removeArg(sp);
+
+                }
+
+                int pos = first;
+
+                for (StatementPatternNode sp : cycle) {
+
+                    sp.setLeapfrogTriejoin(true);
+
+                    group.addArg(pos++, sp);
+
+                }
+
+                /*
+                 * Note: The arity is unchanged and the child at [i] is the
+                 * same child since the cyclic statement patterns were all
+                 * before it.
+                 */
+
+            }
+
+            i++;
+
+        }
+
+    }
+
+    /**
+     * Return <code>true</code> iff the statement pattern could be evaluated by
+     * a {@link com.bigdata.bop.join.LeapfrogTriejoinOp}.
+     */
+    private static boolean isCandidate(final StatementPatternNode sp) {
+
+        if (sp.c() != null || sp.getDistinctTermScanVar() != null
+                || sp.getFastRangeCountVar() != null || sp.getRange() != null)
+            return false;
+
+        if (sp.getQueryHintAsBoolean(QueryHints.HASH_JOIN,
+                QueryHints.DEFAULT_HASH_JOIN))
+            return false;
+
+        return true;
+
+    }
+
+}
@@ -113,6 +113,21 @@ public class ASTStaticJoinOptimizer implements IASTOptimizer {
     	 */
     	Double DEFAULT_OPTIMISTIC = 1.0d;
     	
+        /**
+         * When <code>true</code>, the optimizer uses the
+         * {@link StatisticsCatalog} (if one is available) to estimate the
+         * cardinality of joins.
+         * 
+         * @see QueryHints#STATISTICS_CATALOG
+         */
+        String STATISTICS_CATALOG = ASTStaticJoinOptimizer.class.getName()
+                + ".statisticsCatalog";
+
+        /**
+         * See {@link #STATISTICS_CATALOG}.
+         */
+        boolean DEFAULT_STATISTICS_CATALOG = QueryHints.DEFAULT_STATISTICS_CATALOG;
+    	
     }
     
     /**
@@ -520,7 +535,8 @@ public class ASTStaticJoinOptimizer implements IASTOptimizer {
 		     * tails.
 		     */
 		    final StaticOptimizer opt = new StaticOptimizer(queryRoot,
-		            ctx, ancestry, required, optimistic);
+		            ctx, ancestry, required, optimistic,
+		            getStatisticsCatalog(ctx, joinGroup));
 
 		    final int[] order = opt.getOrder();
 
@@ -548,6 +564,35 @@ public class ASTStaticJoinOptimizer implements IASTOptimizer {
 
 	
     
+    /**
+     * Return the {@link StatisticsCatalog} for the KB iff its use is enabled
+     * for the join group (see {@link Annotations#STATISTICS_CATALOG}).
+     * 
+     * @return The catalog -or- <code>null</code> if the catalog is not
+     *         enabled or is not yet available.
+     */
+    static StatisticsCatalog getStatisticsCatalog(final AST2BOpContext ctx,
+            final JoinGroupNode joinGroup) {
+
+        if (!joinGroup.getProperty(Annotations.STATISTICS_CATALOG,
+                Annotations.DEFAULT_STATISTICS_CATALOG)) {
+
+            return null;
+
+        }
+
+        final AbstractTripleStore db = ctx.getAbstractTripleStore();
+
+        if (db == null) {
+
+            return null;
+
+        }
+
+        return StatisticsCatalogManager.getCatalog(db);
+
+    }
+
     /**
      * Use the SPORelation from the database to grab the appropriate range
      * counts for the {@link StatementPatternNode}s.  Only tries to attach them
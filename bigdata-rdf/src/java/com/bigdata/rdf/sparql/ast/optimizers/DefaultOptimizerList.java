@@ -573,6 +573,13 @@ public class DefaultOptimizerList extends ASTOptimizerList {
          */
         add(new ASTStaticJoinOptimizer());
 
+        /**
+         * Gather the required statement patterns which form a cycle (e.g., a
+         * triangle) so they are evaluated together by a leapfrog triejoin.
+         * This only moves required joins within a run of required joins.
+         */
+        add(new ASTLeapfrogTriejoinOptimizer());
+
         /*
          * The joins are now ordered. Everything from here down MUST NOT change
          * the join order when making changes to the join groups and MAY rely on
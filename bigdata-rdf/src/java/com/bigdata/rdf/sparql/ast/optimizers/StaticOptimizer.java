@@ -4,18 +4,21 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.joinGraph.fast.DefaultEvaluationPlan2;
 import com.bigdata.journal.ITx;
+import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.sparql.ast.IBindingProducerNode;
 import com.bigdata.rdf.sparql.ast.IReorderableNode;
 import com.bigdata.rdf.sparql.ast.QueryHints;
 import com.bigdata.rdf.sparql.ast.QueryRoot;
 import com.bigdata.rdf.sparql.ast.StatementPatternNode;
 import com.bigdata.rdf.sparql.ast.StaticAnalysis;
+import com.bigdata.rdf.sparql.ast.TermNode;
 import com.bigdata.rdf.sparql.ast.VarNode;
 import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTStaticJoinOptimizer.Annotations;
@@ -43,7 +46,7 @@ public final class StaticOptimizer {
 	 */
 	private final long cardinality;
 
-	private static final long NO_SHARED_VARS = Long.MAX_VALUE - 3;
+	static final long NO_SHARED_VARS = Long.MAX_VALUE - 3;
 
 	/**
 	 * The computed evaluation order. The elements in this array are the order
@@ -99,20 +102,36 @@ public final class StaticOptimizer {
 	 */
 	private final double optimistic;
 
+	/**
+	 * The statistics catalog (optional). When present, it is used to estimate
+	 * the cardinality of joins on shared variables. See
+	 * {@link Annotations#STATISTICS_CATALOG}.
+	 */
+	private final StatisticsCatalog catalog;
+
 	public StaticOptimizer(StaticOptimizer parent, List<IReorderableNode> nodes) {
-		this(parent.sa, parent.ancestry, nodes, parent.optimistic);
+		this(parent.sa, parent.ancestry, nodes, parent.optimistic,
+				parent.catalog);
 	}
 
 	StaticOptimizer(final QueryRoot queryRoot, final AST2BOpContext context,
 			final IBindingProducerNode[] ancestry,
 			final List<IReorderableNode> nodes, final double optimistic) {
+		this(queryRoot, context, ancestry, nodes, optimistic, null/* catalog */);
+	}
+
+	StaticOptimizer(final QueryRoot queryRoot, final AST2BOpContext context,
+			final IBindingProducerNode[] ancestry,
+			final List<IReorderableNode> nodes, final double optimistic,
+			final StatisticsCatalog catalog) {
 		this(new StaticAnalysis(queryRoot, context), ancestry, nodes,
-				optimistic);
+				optimistic, catalog);
 	}
 
-	private StaticOptimizer(final StaticAnalysis sa,
+	StaticOptimizer(final StaticAnalysis sa,
 			final IBindingProducerNode[] ancestry,
-			final List<IReorderableNode> nodes, final double optimistic) {
+			final List<IReorderableNode> nodes, final double optimistic,
+			final StatisticsCatalog catalog) {
 
 		if (ancestry == null)
 			throw new IllegalArgumentException();
@@ -136,6 +155,8 @@ public final class StaticOptimizer {
 
 		this.optimistic = optimistic;
 
+		this.catalog = catalog;
+
 		this.cardinality = calc();
 
 		if (ASTStaticJoinOptimizer.log.isDebugEnabled()) {
@@ -289,6 +310,13 @@ public final class StaticOptimizer {
 			order[i] = ((Tail) join.getD2()).getTailIndex();
 			used[order[i]] = true;
 		}
+		if (catalog != null) {
+			/*
+			 * The catalog estimates the cardinality of each join, so report
+			 * the estimate for the last join rather than the first one.
+			 */
+			cardinality = join.cardinality;
+		}
 		return cardinality;
 	}
 
@@ -589,7 +617,12 @@ public final class StaticOptimizer {
 		final boolean sharedVars = hasSharedVars(d1, d2);
 		final boolean unsharedVars = hasUnsharedVars(d1, d2);
 		final long joinCardinality;
-		if (sharedVars == false) {
+		final long catalogCardinality;
+		if (sharedVars && catalog != null
+				&& (catalogCardinality = computeCatalogJoinCardinality(d1, d2)) >= 0) {
+			// estimate from the statistics catalog.
+			joinCardinality = catalogCardinality;
+		} else if (sharedVars == false) {
 			// no shared vars - take the sum
 			// joinCardinality = d1.getCardinality() + d2.getCardinality();
 			// different approach - give preference to shared variables
@@ -658,6 +691,53 @@ public final class StaticOptimizer {
 		return joinCardinality;
 	}
 
+	/**
+	 * Estimate the cardinality of a join using the {@link StatisticsCatalog}.
+	 * A star join on a shared subject variable is estimated from the
+	 * characteristic sets. Otherwise the estimate is the product of the
+	 * cardinality of the join dimensions divided by the larger of the #of
+	 * distinct values of each shared variable in either join dimension.
+	 * 
+	 * @return The estimate -or- <code>-1L</code> if the catalog can not
+	 *         provide one, in which case the heuristic is used.
+	 */
+	protected long computeCatalogJoinCardinality(final IJoinDimension d1,
+			final IJoinDimension d2) {
+		final Set<String> shared = new LinkedHashSet<String>();
+		for (String var : d1.getVars()) {
+			if (d2.getVars().contains(var)) {
+				shared.add(var);
+			}
+		}
+		double estimate = -1d;
+		final Star s1 = d1.getStar(), s2 = d2.getStar();
+		if (s1 != null && s2 != null && shared.size() == 1
+				&& shared.contains(s1.subject) && s1.subject.equals(s2.subject)) {
+			final Star star = s1.merge(s2);
+			estimate = catalog.estimateStar(star.preds, star.selectivity);
+		}
+		if (estimate < 0) {
+			estimate = (double) d1.getCardinality() * d2.getCardinality();
+			for (String var : shared) {
+				final long n1 = d1.getDistinct(var), n2 = d2.getDistinct(var);
+				if (n1 < 0 || n2 < 0) {
+					return -1L;
+				}
+				final long n = Math.max(n1, n2);
+				if (n == 0) {
+					return 0L;
+				}
+				estimate /= n;
+			}
+		}
+		if (ASTStaticJoinOptimizer.log.isDebugEnabled()) {
+			ASTStaticJoinOptimizer.log.debug("catalog estimate: "
+					+ d1.toJoinString() + " X " + d2.toJoinString() + " = "
+					+ estimate);
+		}
+		return (long) Math.min(NO_SHARED_VARS - 1, Math.ceil(estimate));
+	}
+
 	/**
 	 * Get the named variables for a given tail. Is there a better way to do
 	 * this?
@@ -792,6 +872,18 @@ public final class StaticOptimizer {
 
 		Set<String> getVars();
 
+		/**
+		 * The #of distinct bindings for the variable -or- <code>-1L</code> if
+		 * this is not known.
+		 */
+		long getDistinct(String var);
+
+		/**
+		 * The star join on a subject variable represented by this join
+		 * dimension -or- <code>null</code> if it is not such a star join.
+		 */
+		Star getStar();
+
 		String toJoinString();
 		// boolean isOptional();
 	}
@@ -831,6 +923,26 @@ public final class StaticOptimizer {
 			return cardinality;
 		}
 
+		public long getDistinct(final String var) {
+			long n = cardinality;
+			for (IJoinDimension d : new IJoinDimension[] { d1, d2 }) {
+				if (d.getVars().contains(var)) {
+					final long tmp = d.getDistinct(var);
+					if (tmp < 0)
+						return -1L;
+					n = Math.min(n, tmp);
+				}
+			}
+			return n;
+		}
+
+		public Star getStar() {
+			final Star s1 = d1.getStar(), s2 = d2.getStar();
+			if (s1 == null || s2 == null || !s1.subject.equals(s2.subject))
+				return null;
+			return s1.merge(s2);
+		}
+
 		public String toJoinString() {
 			return d1.toJoinString() + " X " + d2.toJoinString();
 		}
@@ -864,6 +976,54 @@ public final class StaticOptimizer {
 			return vars;
 		}
 
+		/**
+		 * Return the catalog statistics for the constant predicate of a
+		 * statement pattern -or- <code>null</code>.
+		 */
+		private StatisticsCatalog.PredicateStatistics getStats() {
+			if (catalog == null
+					|| !(nodes.get(tailIndex) instanceof StatementPatternNode))
+				return null;
+			final TermNode p = ((StatementPatternNode) nodes.get(tailIndex))
+					.p();
+			if (p == null || !p.isConstant())
+				return null;
+			return catalog.get((IV) p.getValueExpression().get());
+		}
+
+		public long getDistinct(final String var) {
+			final StatisticsCatalog.PredicateStatistics stats = getStats();
+			if (stats == null)
+				return -1L;
+			final StatementPatternNode sp = (StatementPatternNode) nodes
+					.get(tailIndex);
+			if (sp.s().isVariable()
+					&& var.equals(((VarNode) sp.s()).getValueExpression()
+							.getName()))
+				return Math.min(cardinality, stats.getDistinctSubjects());
+			if (sp.o().isVariable()
+					&& var.equals(((VarNode) sp.o()).getValueExpression()
+							.getName()))
+				return Math.min(cardinality, stats.getDistinctObjects());
+			return -1L;
+		}
+
+		public Star getStar() {
+			final StatisticsCatalog.PredicateStatistics stats = getStats();
+			if (stats == null || stats.getStatementCount() == 0)
+				return null;
+			final StatementPatternNode sp = (StatementPatternNode) nodes
+					.get(tailIndex);
+			if (!sp.s().isVariable() || sp.s().equals(sp.o()))
+				return null;
+			final List<IV> preds = new LinkedList<IV>();
+			preds.add((IV) sp.p().getValueExpression().get());
+			return new Star(
+					((VarNode) sp.s()).getValueExpression().getName(), preds,
+					Math.min(1d, cardinality
+							/ (double) stats.getStatementCount()));
+		}
+
 		// public boolean isOptional() {
 		// return nodes.get(tail).isOptional();
 		// }
@@ -874,6 +1034,31 @@ public final class StaticOptimizer {
 
 	}
 
+	/**
+	 * A star join on a subject variable: the predicates of its statement
+	 * patterns and the product of the selectivity of each statement pattern
+	 * with respect to all statements using its predicate.
+	 */
+	private static class Star {
+
+		private final String subject;
+		private final List<IV> preds;
+		private final double selectivity;
+
+		public Star(String subject, List<IV> preds, double selectivity) {
+			this.subject = subject;
+			this.preds = preds;
+			this.selectivity = selectivity;
+		}
+
+		public Star merge(Star o) {
+			final List<IV> tmp = new LinkedList<IV>(preds);
+			tmp.addAll(o.preds);
+			return new Star(subject, tmp, selectivity * o.selectivity);
+		}
+
+	}
+
 	public long getCardinality() {
 		return cardinality;
 	}
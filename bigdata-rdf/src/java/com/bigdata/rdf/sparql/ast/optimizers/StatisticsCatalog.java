@@ -0,0 +1,588 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.sparql.ast.optimizers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.IVUtility;
+import com.bigdata.rdf.spo.DistinctMultiTermAdvancer;
+import com.bigdata.rdf.spo.SPOKeyOrder;
+import com.bigdata.rdf.spo.SPORelation;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * A catalog of statistics for the statements in a KB instance which can not
+ * be obtained from a fast range count. For each predicate the catalog records
+ * the #of statements and the #of distinct subjects and objects. It also
+ * records the characteristic sets of the data, i.e., for each distinct set of
+ * predicates which is used by some subject, the #of subjects which use
+ * exactly that set of predicates.
+ * <p>
+ * The {@link StaticOptimizer} uses the distinct counts to estimate the
+ * selectivity of a join on a shared variable and the characteristic sets to
+ * estimate the cardinality of a star join on a shared subject (e.g.,
+ * <code>?x rdf:type :A . ?x :p ?y</code>), where the independence assumption
+ * behind a pair of range counts is often badly wrong.
+ * <p>
+ * The catalog is an immutable snapshot. See {@link StatisticsCatalogManager}
+ * for how catalogs are built and refreshed.
+ * 
+ * @see <a href="http://dx.doi.org/10.1109/ICDE.2011.5767868">Characteristic
+ *      sets: Accurate cardinality estimation for RDF queries with multiple
+ *      joins</a>
+ */
+public class StatisticsCatalog {
+
+    private static final transient Logger log = Logger
+            .getLogger(StatisticsCatalog.class);
+
+    /**
+     * Statistics for a single predicate.
+     */
+    public static class PredicateStatistics {
+
+        private final long statementCount;
+
+        private final long distinctSubjects;
+
+        private final long distinctObjects;
+
+        public PredicateStatistics(final long statementCount,
+                final long distinctSubjects, final long distinctObjects) {
+
+            if (statementCount < 0 || distinctSubjects < 0
+                    || distinctObjects < 0)
+                throw new IllegalArgumentException();
+
+            this.statementCount = statementCount;
+            this.distinctSubjects = distinctSubjects;
+            this.distinctObjects = distinctObjects;
+
+        }
+
+        /**
+         * The #of statements using the predicate.
+         */
+        public long getStatementCount() {
+            return statementCount;
+        }
+
+        /**
+         * The #of distinct subjects of statements using the predicate.
+         */
+        public long getDistinctSubjects() {
+            return distinctSubjects;
+        }
+
+        /**
+         * The #of distinct objects of statements using the predicate.
+         */
+        public long getDistinctObjects() {
+            return distinctObjects;
+        }
+
+        /**
+         * The average #of statements using the predicate per distinct
+         * subject.
+         */
+        public double getSubjectFanOut() {
+            return distinctSubjects == 0 ? 0d : statementCount
+                    / (double) distinctSubjects;
+        }
+
+        public String toString() {
+            return "{statements=" + statementCount + ",distinctSubjects="
+                    + distinctSubjects + ",distinctObjects=" + distinctObjects
+                    + "}";
+        }
+
+    }
+
+    /**
+     * A characteristic set: a set of predicates and the #of subjects which use
+     * exactly that set of predicates.
+     */
+    public static class CharacteristicSet {
+
+        @SuppressWarnings("rawtypes")
+        private final Set<IV> predicates;
+
+        private final long subjectCount;
+
+        @SuppressWarnings("rawtypes")
+        public CharacteristicSet(final Set<IV> predicates,
+                final long subjectCount) {
+
+            if (predicates == null || predicates.isEmpty())
+                throw new IllegalArgumentException();
+
+            if (subjectCount <= 0)
+                throw new IllegalArgumentException();
+
+            this.predicates = Collections.unmodifiableSet(predicates);
+            this.subjectCount = subjectCount;
+
+        }
+
+        @SuppressWarnings("rawtypes")
+        public Set<IV> getPredicates() {
+            return predicates;
+        }
+
+        public long getSubjectCount() {
+            return subjectCount;
+        }
+
+        public String toString() {
+            return "{predicates=" + predicates + ",subjects=" + subjectCount
+                    + "}";
+        }
+
+    }
+
+    /**
+     * The time at which the catalog was created.
+     */
+    private final long createTime;
+
+    /**
+     * The commit time of the view from which the catalog was built.
+     */
+    private final long commitTime;
+
+    /**
+     * The #of statements in the KB when the catalog was built.
+     */
+    private final long statementCount;
+
+    @SuppressWarnings("rawtypes")
+    private final Map<IV, PredicateStatistics> predicates;
+
+    private final List<CharacteristicSet> characteristicSets;
+
+    /**
+     * <code>true</code> iff some characteristic sets were not recorded
+     * because there were too many of them.
+     */
+    private final boolean truncated;
+
+    /**
+     * Cache for {@link #getStarSubjectCount(Collection)}.
+     */
+    @SuppressWarnings("rawtypes")
+    private final ConcurrentHashMap<Set<IV>, Long> starCache = new ConcurrentHashMap<Set<IV>, Long>();
+
+    /**
+     * @param commitTime
+     *            The commit time of the view from which the statistics were
+     *            collected.
+     * @param statementCount
+     *            The #of statements in that view.
+     * @param predicates
+     *            The statistics for each predicate.
+     * @param characteristicSets
+     *            The characteristic sets.
+     * @param truncated
+     *            <code>true</code> iff some characteristic sets are missing.
+     */
+    @SuppressWarnings("rawtypes")
+    public StatisticsCatalog(final long commitTime, final long statementCount,
+            final Map<IV, PredicateStatistics> predicates,
+            final List<CharacteristicSet> characteristicSets,
+            final boolean truncated) {
+
+        if (predicates == null)
+            throw new IllegalArgumentException();
+
+        if (characteristicSets == null)
+            throw new IllegalArgumentException();
+
+        this.createTime = System.currentTimeMillis();
+        this.commitTime = commitTime;
+        this.statementCount = statementCount;
+        this.predicates = Collections.unmodifiableMap(predicates);
+        this.characteristicSets = Collections
+                .unmodifiableList(characteristicSets);
+        this.truncated = truncated;
+
+    }
+
+    /**
+     * The time (milliseconds) at which the catalog was created.
+     */
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    /**
+     * The commit time of the view from which the catalog was built.
+     */
+    public long getCommitTime() {
+        return commitTime;
+    }
+
+    /**
+     * The #of statements in the KB when the catalog was built.
+     */
+    public long getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * The statistics for a predicate -or- <code>null</code> if the predicate
+     * was not in use when the catalog was built.
+     */
+    @SuppressWarnings("rawtypes")
+    public PredicateStatistics get(final IV p) {
+        return predicates.get(p);
+    }
+
+    /**
+     * The #of predicates in the catalog.
+     */
+    public int getPredicateCount() {
+        return predicates.size();
+    }
+
+    public List<CharacteristicSet> getCharacteristicSets() {
+        return characteristicSets;
+    }
+
+    /**
+     * <code>true</code> iff some characteristic sets were not recorded, in
+     * which case star join estimates are not available.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Return the #of subjects which use each of the given predicates -or- -1L
+     * if that can not be determined from the characteristic sets.
+     * 
+     * @param preds
+     *            The predicates.
+     */
+    @SuppressWarnings("rawtypes")
+    public long getStarSubjectCount(final Collection<IV> preds) {
+
+        if (truncated || preds.isEmpty())
+            return -1L;
+
+        final Set<IV> key = new HashSet<IV>(preds);
+
+        Long n = starCache.get(key);
+
+        if (n == null) {
+
+            long tmp = 0;
+
+            for (CharacteristicSet cs : characteristicSets) {
+
+                if (cs.predicates.containsAll(key))
+                    tmp += cs.subjectCount;
+
+            }
+
+            starCache.put(key, n = tmp);
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * Estimate the #of solutions for a star join on a shared subject variable
+     * in which each statement pattern has a constant predicate and a distinct
+     * variable or constant object. The estimate is the #of subjects having all
+     * of the predicates times the average fan-out of each predicate, scaled by
+     * the given selectivity of the patterns.
+     * 
+     * @param preds
+     *            The predicate of each pattern in the star (a predicate may
+     *            appear more than once).
+     * @param selectivity
+     *            The product of the selectivity of each pattern with respect
+     *            to all statements using its predicate.
+     * 
+     * @return The estimate -or- a negative value if no estimate is
+     *         available.
+     */
+    @SuppressWarnings("rawtypes")
+    public double estimateStar(final List<IV> preds, final double selectivity) {
+
+        final long subjects = getStarSubjectCount(preds);
+
+        if (subjects < 0)
+            return -1d;
+
+        double est = subjects;
+
+        for (IV p : preds) {
+
+            final PredicateStatistics stats = predicates.get(p);
+
+            if (stats == null)
+                return -1d;
+
+            est *= stats.getSubjectFanOut();
+
+        }
+
+        return est * selectivity;
+
+    }
+
+    public String toString() {
+
+        return getClass().getSimpleName() + "{commitTime=" + commitTime
+                + ",statements=" + statementCount + ",predicates="
+                + predicates.size() + ",characteristicSets="
+                + characteristicSets.size() + ",truncated=" + truncated + "}";
+
+    }
+
+    /**
+     * Build a catalog from a view of a KB instance. This does a distinct
+     * (subject, predicate) scan of the primary statement index and a distinct
+     * (predicate, object) scan of the POS index, so the cost is linear in the
+     * #of distinct such pairs rather than the #of statements.
+     * <p>
+     * Note: The characteristic sets do not record how often a predicate is
+     * used by each subject. The average fan-out of the predicate is used
+     * instead.
+     * 
+     * @param db
+     *            The view of the KB instance. This SHOULD be a read-only view.
+     * @param commitTime
+     *            The commit time of that view.
+     * @param maxCharacteristicSets
+     *            The maximum #of characteristic sets which will be recorded.
+     * 
+     * @return The catalog.
+     */
+    @SuppressWarnings("rawtypes")
+    public static StatisticsCatalog build(final AbstractTripleStore db,
+            final long commitTime, final int maxCharacteristicSets) {
+
+        if (maxCharacteristicSets < 0)
+            throw new IllegalArgumentException();
+
+        final long begin = System.currentTimeMillis();
+
+        final SPORelation r = db.getSPORelation();
+
+        final int arity = r.getKeyArity();
+
+        final Map<IV, long[]/* distinctSubjects,distinctObjects */> counts = new LinkedHashMap<IV, long[]>();
+
+        final Map<Set<IV>, long[]> sets = new LinkedHashMap<Set<IV>, long[]>();
+
+        boolean truncated = false;
+
+        /*
+         * Distinct (S,P) scan of the primary index.
+         */
+        {
+
+            final IIndex ndx = r.getPrimaryIndex();
+
+            final ITupleIterator<?> itr = ndx.rangeIterator(null, null,
+                    0/* capacity */, IRangeQuery.KEYS | IRangeQuery.CURSOR,
+                    new DistinctMultiTermAdvancer(arity, 1/* boundEntries */));
+
+            IV lastS = null;
+
+            Set<IV> cs = new HashSet<IV>();
+
+            while (itr.hasNext()) {
+
+                final IV[] a = IVUtility.decode(itr.next().getKey(), 2);
+
+                final IV s = a[0], p = a[1];
+
+                if (lastS != null && !lastS.equals(s)) {
+
+                    truncated |= !addSet(sets, cs, maxCharacteristicSets);
+
+                    cs = new HashSet<IV>();
+
+                }
+
+                lastS = s;
+
+                cs.add(p);
+
+                getCounts(counts, p)[0]++;
+
+            }
+
+            if (lastS != null) {
+
+                truncated |= !addSet(sets, cs, maxCharacteristicSets);
+
+            }
+
+        }
+
+        /*
+         * Distinct (P,O) scan of the POS index.
+         */
+        {
+
+            final SPOKeyOrder keyOrder = arity == 3 ? SPOKeyOrder.POS
+                    : SPOKeyOrder.POCS;
+
+            final IIndex ndx = r.getIndex(keyOrder);
+
+            final ITupleIterator<?> itr = ndx.rangeIterator(null, null,
+                    0/* capacity */, IRangeQuery.KEYS | IRangeQuery.CURSOR,
+                    new DistinctMultiTermAdvancer(arity, 1/* boundEntries */));
+
+            while (itr.hasNext()) {
+
+                final IV[] a = IVUtility.decode(itr.next().getKey(), 1);
+
+                getCounts(counts, a[0])[1]++;
+
+            }
+
+        }
+
+        final Map<IV, PredicateStatistics> predicates = new LinkedHashMap<IV, PredicateStatistics>();
+
+        long statementCount = 0;
+
+        for (Map.Entry<IV, long[]> e : counts.entrySet()) {
+
+            final IV p = e.getKey();
+
+            // Fast range count.
+            final long n = r.getAccessPath(null/* s */, p, null/* o */,
+                    null/* c */).rangeCount(false/* exact */);
+
+            statementCount += n;
+
+            predicates.put(p, new PredicateStatistics(n, e.getValue()[0], e
+                    .getValue()[1]));
+
+        }
+
+        final List<CharacteristicSet> characteristicSets = new LinkedList<CharacteristicSet>();
+
+        for (Map.Entry<Set<IV>, long[]> e : sets.entrySet()) {
+
+            characteristicSets.add(new CharacteristicSet(e.getKey(), e
+                    .getValue()[0]));
+
+        }
+
+        final StatisticsCatalog catalog = new StatisticsCatalog(commitTime,
+                statementCount, predicates, characteristicSets, truncated);
+
+        if (log.isInfoEnabled())
+            log.info("namespace=" + db.getNamespace() + ", elapsed="
+                    + (System.currentTimeMillis() - begin) + "ms, " + catalog);
+
+        return catalog;
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static long[] getCounts(final Map<IV, long[]> counts, final IV p) {
+
+        long[] a = counts.get(p);
+
+        if (a == null) {
+
+            counts.put(p, a = new long[2]);
+
+        }
+
+        return a;
+
+    }
+
+    /**
+     * Count one more subject for a characteristic set.
+     * 
+     * @return <code>false</code> iff the set was not recorded because there
+     *         are already too many characteristic sets.
+     */
+    @SuppressWarnings("rawtypes")
+    private static boolean addSet(final Map<Set<IV>, long[]> sets,
+            final Set<IV> cs, final int maxCharacteristicSets) {
+
+        final long[] n = sets.get(cs);
+
+        if (n != null) {
+
+            n[0]++;
+
+            return true;
+
+        }
+
+        if (sets.size() >= maxCharacteristicSets)
+            return false;
+
+        sets.put(cs, new long[] { 1L });
+
+        return true;
+
+    }
+
+    /**
+     * Helper for unit tests.
+     */
+    @SuppressWarnings("rawtypes")
+    static Set<IV> asSet(final IV... a) {
+
+        return new HashSet<IV>(Arrays.asList(a));
+
+    }
+
+}
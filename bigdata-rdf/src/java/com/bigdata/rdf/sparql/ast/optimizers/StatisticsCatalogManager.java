@@ -0,0 +1,298 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.sparql.ast.optimizers;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.journal.IIndexManager;
+import com.bigdata.journal.TimestampUtility;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * Maintains a {@link StatisticsCatalog} for each KB instance. Catalogs are
+ * built by a background task on the executor service of the
+ * {@link IIndexManager} against the last commit point and are rebuilt once
+ * they are both older than {@link Options#MIN_REBUILD_INTERVAL} and the #of
+ * statements in the KB has changed by more than
+ * {@link Options#REBUILD_THRESHOLD}. Query evaluation never waits for a
+ * catalog: until the first catalog is available the optimizers fall back on
+ * their range count based estimates.
+ */
+public class StatisticsCatalogManager {
+
+    private static final transient Logger log = Logger
+            .getLogger(StatisticsCatalogManager.class);
+
+    /**
+     * Options understood by the {@link StatisticsCatalogManager}. These are
+     * specified as system properties.
+     */
+    public interface Options {
+
+        /**
+         * The minimum interval in milliseconds between rebuilds of the
+         * catalog for a KB instance.
+         */
+        String MIN_REBUILD_INTERVAL = StatisticsCatalogManager.class.getName()
+                + ".minRebuildInterval";
+
+        String DEFAULT_MIN_REBUILD_INTERVAL = "60000";
+
+        /**
+         * The catalog is rebuilt when the #of statements in the KB has
+         * changed by more than this fraction since the catalog was built.
+         */
+        String REBUILD_THRESHOLD = StatisticsCatalogManager.class.getName()
+                + ".rebuildThreshold";
+
+        String DEFAULT_REBUILD_THRESHOLD = "0.1";
+
+        /**
+         * The maximum #of characteristic sets recorded for a KB instance.
+         * When there are more characteristic sets than this the catalog does
+         * not provide star join estimates.
+         */
+        String MAX_CHARACTERISTIC_SETS = StatisticsCatalogManager.class
+                .getName() + ".maxCharacteristicSets";
+
+        String DEFAULT_MAX_CHARACTERISTIC_SETS = "10000";
+
+    }
+
+    private static final long minRebuildInterval = Long.valueOf(System
+            .getProperty(Options.MIN_REBUILD_INTERVAL,
+                    Options.DEFAULT_MIN_REBUILD_INTERVAL));
+
+    private static final double rebuildThreshold = Double.valueOf(System
+            .getProperty(Options.REBUILD_THRESHOLD,
+                    Options.DEFAULT_REBUILD_THRESHOLD));
+
+    private static final int maxCharacteristicSets = Integer.valueOf(System
+            .getProperty(Options.MAX_CHARACTERISTIC_SETS,
+                    Options.DEFAULT_MAX_CHARACTERISTIC_SETS));
+
+    /**
+     * The catalog state for one KB instance.
+     */
+    private static class Entry {
+
+        /**
+         * The current catalog (if any).
+         */
+        volatile StatisticsCatalog catalog;
+
+        /**
+         * <code>true</code> while a rebuild is running.
+         */
+        final AtomicBoolean building = new AtomicBoolean(false);
+
+    }
+
+    /**
+     * The catalogs for each KB instance, by index manager and namespace. The
+     * index managers are weakly held.
+     */
+    private static final Map<IIndexManager, ConcurrentHashMap<String, Entry>> catalogs = new WeakHashMap<IIndexManager, ConcurrentHashMap<String, Entry>>();
+
+    private StatisticsCatalogManager() {
+    }
+
+    private static Entry getEntry(final IIndexManager indexManager,
+            final String namespace) {
+
+        ConcurrentHashMap<String, Entry> map;
+
+        synchronized (catalogs) {
+
+            map = catalogs.get(indexManager);
+
+            if (map == null) {
+
+                catalogs.put(indexManager,
+                        map = new ConcurrentHashMap<String, Entry>());
+
+            }
+
+        }
+
+        Entry e = map.get(namespace);
+
+        if (e == null) {
+
+            final Entry tmp = map.putIfAbsent(namespace, e = new Entry());
+
+            if (tmp != null)
+                e = tmp;
+
+        }
+
+        return e;
+
+    }
+
+    /**
+     * Return the current catalog for the KB instance. If there is no catalog
+     * or the catalog is stale then a rebuild is scheduled.
+     * 
+     * @param db
+     *            The KB instance.
+     * 
+     * @return The current catalog, which may be stale, -or-
+     *         <code>null</code> if no catalog has been built yet.
+     */
+    public static StatisticsCatalog getCatalog(final AbstractTripleStore db) {
+
+        final Entry e = getEntry(db.getIndexManager(), db.getNamespace());
+
+        final StatisticsCatalog catalog = e.catalog;
+
+        if (catalog == null || isStale(db, catalog)) {
+
+            scheduleRebuild(db.getIndexManager(), db.getNamespace(), e);
+
+        }
+
+        return catalog;
+
+    }
+
+    /**
+     * Discard the catalog for a KB instance (if any).
+     */
+    public static void clear(final IIndexManager indexManager,
+            final String namespace) {
+
+        synchronized (catalogs) {
+
+            final ConcurrentHashMap<String, Entry> map = catalogs
+                    .get(indexManager);
+
+            if (map != null)
+                map.remove(namespace);
+
+        }
+
+    }
+
+    private static boolean isStale(final AbstractTripleStore db,
+            final StatisticsCatalog catalog) {
+
+        if (System.currentTimeMillis() - catalog.getCreateTime() < minRebuildInterval)
+            return false;
+
+        final long was = catalog.getStatementCount();
+
+        final long now = db.getStatementCount();
+
+        return Math.abs(now - was) > rebuildThreshold * Math.max(1L, was);
+
+    }
+
+    private static void scheduleRebuild(final IIndexManager indexManager,
+            final String namespace, final Entry e) {
+
+        if (!e.building.compareAndSet(false/* expect */, true/* update */)) {
+
+            // Already running.
+            return;
+
+        }
+
+        try {
+
+            indexManager.getExecutorService().execute(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    try {
+
+                        rebuild(indexManager, namespace, e);
+
+                    } catch (Throwable t) {
+
+                        log.error("namespace=" + namespace + " : " + t, t);
+
+                    } finally {
+
+                        e.building.set(false);
+
+                    }
+
+                }
+
+            });
+
+        } catch (RejectedExecutionException ex) {
+
+            e.building.set(false);
+
+            if (log.isInfoEnabled())
+                log.info("Rebuild rejected: namespace=" + namespace);
+
+        }
+
+    }
+
+    private static void rebuild(final IIndexManager indexManager,
+            final String namespace, final Entry e) {
+
+        final long commitTime = indexManager.getLastCommitTime();
+
+        if (commitTime == 0L) {
+
+            // Nothing committed yet.
+            return;
+
+        }
+
+        final AbstractTripleStore view = (AbstractTripleStore) indexManager
+                .getResourceLocator().locate(namespace,
+                        TimestampUtility.asHistoricalRead(commitTime));
+
+        if (view == null) {
+
+            // KB not found as of that commit point.
+            return;
+
+        }
+
+        e.catalog = StatisticsCatalog.build(view, commitTime,
+                maxCharacteristicSets);
+
+    }
+
+}
@@ -13,6 +13,8 @@ import org.openrdf.model.impl.URIImpl;
 import com.bigdata.rdf.graph.impl.bd.GASService;
 import com.bigdata.rdf.sparql.ast.QueryHints;
 import com.bigdata.rdf.sparql.ast.cache.DescribeServiceFactory;
+import com.bigdata.rdf.sparql.ast.cache.SolutionCacheServiceFactory;
+import com.bigdata.rdf.sparql.ast.eval.GeoSpatialServiceFactory;
 import com.bigdata.rdf.sparql.ast.eval.SampleServiceFactory;
 import com.bigdata.rdf.sparql.ast.eval.SearchInSearchServiceFactory;
 import com.bigdata.rdf.sparql.ast.eval.SearchServiceFactory;
@@ -93,12 +95,22 @@ public class ServiceRegistry {
         // Add the values service.
         add(ValuesServiceFactory.SERVICE_KEY, new ValuesServiceFactory());
 
+        // Add the geospatial search service.
+        add(GeoSpatialServiceFactory.SERVICE_KEY, new GeoSpatialServiceFactory());
+
         if (QueryHints.DEFAULT_DESCRIBE_CACHE) {
 
             add(new URIImpl(BD.NAMESPACE + "describe"),
                     new DescribeServiceFactory());
 
         }
+
+        if (QueryHints.DEFAULT_SOLUTION_CACHE) {
+
+            add(new URIImpl(BD.NAMESPACE + "solutionCache"),
+                    new SolutionCacheServiceFactory());
+
+        }
         
         if (true) {
 
@@ -0,0 +1,75 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.vocab;
+
+import com.bigdata.rdf.internal.GeoSpatialExtensionFactory;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rdf.vocab.decls.GeoSpatialVocabularyDecl;
+
+/**
+ * A {@link Vocabulary} which extends the {@link DefaultBigdataVocabulary} with
+ * the geospatial literal datatypes. Use this together with the
+ * {@link GeoSpatialExtensionFactory}.
+ * 
+ * @see AbstractTripleStore.Options#VOCABULARY_CLASS
+ */
+public class GeoSpatialVocabulary extends DefaultBigdataVocabulary {
+
+    /**
+     * De-serialization ctor.
+     */
+    public GeoSpatialVocabulary() {
+        
+        super();
+        
+    }
+    
+    /**
+     * Used by {@link AbstractTripleStore#create()}.
+     * 
+     * @param namespace
+     *            The namespace of the KB instance.
+     */
+    public GeoSpatialVocabulary(final String namespace) {
+
+        super(namespace);
+        
+    }
+
+    @Override
+    protected void addValues() {
+
+        super.addValues();
+        
+        addDecl(new GeoSpatialVocabularyDecl());
+
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.vocab.decls;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.URIImpl;
+
+import com.bigdata.rdf.vocab.VocabularyDecl;
+
+/**
+ * Vocabulary and namespace for the geospatial literal datatypes. These
+ * datatypes MUST be declared by the {@link com.bigdata.rdf.vocab.Vocabulary}
+ * of a KB instance in order to be inlined by the
+ * {@link com.bigdata.rdf.internal.impl.extensions.GeoSpatialExtension}.
+ * 
+ * @see com.bigdata.rdf.vocab.GeoSpatialVocabulary
+ */
+public class GeoSpatialVocabularyDecl implements VocabularyDecl {
+
+    public static final String NAMESPACE = "http://www.bigdata.com/rdf/geospatial#";
+
+    /**
+     * The datatype for a point given as <code>lat#lon</code> (decimal
+     * degrees).
+     */
+    public static final URI LAT_LON = new URIImpl(NAMESPACE + "latLon");
+
+    /**
+     * The datatype for a point and a time given as <code>lat#lon#time</code>.
+     * The time is a non-negative integer, e.g., seconds since the epoch.
+     */
+    public static final URI LAT_LON_TIME = new URIImpl(NAMESPACE + "latLonTime");
+
+    static private final URI[] uris = new URI[]{//
+        new URIImpl(NAMESPACE),//
+        LAT_LON,//
+        LAT_LON_TIME,//
+    };
+
+    public GeoSpatialVocabularyDecl() {
+    }
+    
+    public Iterator<URI> values() {
+
+        return Collections.unmodifiableList(Arrays.asList(uris)).iterator();
+        
+    }
+
+}
@@ -63,6 +63,9 @@ public class TestAll extends TestCase {
 
         suite.addTestSuite(TestDataSetJoin.class);
 
+        // Test suite for the materialization of chunks of solutions.
+        suite.addTestSuite(TestChunkedMaterializationIterator.class);
+
         return suite;
         
     }
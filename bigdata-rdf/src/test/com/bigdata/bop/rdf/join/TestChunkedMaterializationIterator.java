@@ -0,0 +1,139 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.bop.rdf.join;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.sparql.ast.AbstractASTEvaluationTestCase;
+import com.bigdata.striterator.Chunkerator;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * Test suite for the {@link ChunkedMaterializationIterator}.
+ */
+public class TestChunkedMaterializationIterator extends
+        AbstractASTEvaluationTestCase {
+
+    public TestChunkedMaterializationIterator() {
+    }
+
+    public TestChunkedMaterializationIterator(String name) {
+        super(name);
+    }
+
+    /**
+     * Verify that each chunk is visited and that the {@link IV}s for the
+     * required variables are materialized.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_materialize() {
+
+        final IVariable<?> x = Var.var("x");
+
+        final int n = 10;
+
+        final BigdataURI[] terms = new BigdataURI[n];
+
+        for (int i = 0; i < n; i++) {
+
+            terms[i] = valueFactory.createURI("http://example.org/s" + i);
+
+        }
+
+        store.addTerms(terms);
+
+        final List<IBindingSet> solutions = new LinkedList<IBindingSet>();
+
+        for (int i = 0; i < n; i++) {
+
+            final IV iv = terms[i].getIV();
+
+            assertNotNull(iv);
+
+            // A copy of the IV without its cached value.
+            final IV tmp = (IV) iv.clone(true/* clearCache */);
+
+            assertFalse(tmp.hasValue());
+
+            final IBindingSet bset = new ListBindingSet();
+
+            bset.set(x, new Constant<IV>(tmp));
+
+            solutions.add(bset);
+
+        }
+
+        final ICloseableIterator<IBindingSet[]> itr = new ChunkedMaterializationIterator(
+                new IVariable[] { x }, store.getLexiconRelation(),
+                false/* materializeInlineIVs */,
+                new Chunkerator<IBindingSet>(solutions.iterator(), 3/* chunkSize */,
+                        IBindingSet.class));
+
+        int i = 0;
+
+        try {
+
+            while (itr.hasNext()) {
+
+                for (IBindingSet bset : itr.next()) {
+
+                    final IV iv = (IV) bset.get(x).get();
+
+                    assertTrue(iv.hasValue());
+
+                    assertEquals(terms[i], (BigdataValue) iv.getValue());
+
+                    i++;
+
+                }
+
+            }
+
+        } finally {
+
+            itr.close();
+
+        }
+
+        assertEquals(n, i);
+
+    }
+
+}
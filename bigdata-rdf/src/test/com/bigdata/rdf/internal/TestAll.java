@@ -98,6 +98,9 @@ public class TestAll extends TestCase {
         // test suite for encode/decode of xsd:decimal IVs
         suite.addTestSuite(TestEncodeDecodeXSDDecimalIVs.class);
 
+        // test suite for the inline geospatial literals.
+        suite.addTestSuite(TestGeoSpatialExtension.class);
+
         /*
          * Test suite for encode/decode of IVs which inline Unicode data.
          * 
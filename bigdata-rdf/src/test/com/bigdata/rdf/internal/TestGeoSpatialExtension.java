@@ -0,0 +1,320 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.internal;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.LiteralImpl;
+
+import com.bigdata.rdf.internal.impl.extensions.GeoSpatialCodec;
+import com.bigdata.rdf.internal.impl.extensions.GeoSpatialExtension;
+import com.bigdata.rdf.internal.impl.extensions.ZOrderRangeDecomposer;
+import com.bigdata.rdf.internal.impl.extensions.ZOrderRangeDecomposer.KeyRange;
+import com.bigdata.rdf.internal.impl.literal.LiteralExtensionIV;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+import com.bigdata.rdf.vocab.decls.GeoSpatialVocabularyDecl;
+
+/**
+ * Unit tests for the {@link GeoSpatialExtension}, the z-order encoding of the
+ * {@link GeoSpatialCodec} and the {@link ZOrderRangeDecomposer}.
+ */
+public class TestGeoSpatialExtension extends AbstractEncodeDecodeKeysTestCase {
+
+    public TestGeoSpatialExtension() {
+    }
+
+    public TestGeoSpatialExtension(final String name) {
+        super(name);
+    }
+
+    private GeoSpatialExtension<BigdataValue> newExtension(
+            final BigdataValueFactory vf) {
+
+        return new GeoSpatialExtension<BigdataValue>(
+                new IDatatypeURIResolver() {
+                    public BigdataURI resolve(final URI uri) {
+                        final BigdataURI buri = vf.createURI(uri.stringValue());
+                        buri.setIV(newTermId(VTE.URI));
+                        return buri;
+                    }
+                });
+
+    }
+
+    public void test_parseFormat() {
+
+        final long[] a = GeoSpatialCodec.parse("40.7128#-74.006", 2);
+
+        assertEquals(2, a.length);
+
+        assertEquals("40.7128#-74.006", GeoSpatialCodec.format(a));
+
+        final long[] b = GeoSpatialCodec.parse("-90#180#1420070400", 3);
+
+        assertEquals(0L, b[0]);
+        assertEquals(GeoSpatialCodec.MAX_COORD, b[1]);
+        assertEquals(1420070400L, b[2]);
+
+        assertEquals("-90#180#1420070400", GeoSpatialCodec.format(b));
+
+        assertEquals("0#0", GeoSpatialCodec.format(GeoSpatialCodec.parse(
+                "0#0", 2)));
+
+        for (String s : new String[] { "91#0", "0#-181", "1", "1#2#3",
+                "1#2#-3", "a#b" }) {
+
+            try {
+                GeoSpatialCodec.parse(s, s.equals("1#2#-3") ? 3 : 2);
+                fail("Expecting: " + IllegalArgumentException.class + " : "
+                        + s);
+            } catch (IllegalArgumentException ex) {
+                if (log.isInfoEnabled())
+                    log.info("Ignoring expected exception: " + ex);
+            }
+
+        }
+
+    }
+
+    public void test_interleave() {
+
+        // Latitude bit leads each group.
+        assertEquals(BigInteger.valueOf(2L),
+                GeoSpatialCodec.interleave(new long[] { 1L, 0L }));
+
+        assertEquals(BigInteger.valueOf(1L),
+                GeoSpatialCodec.interleave(new long[] { 0L, 1L }));
+
+        assertEquals(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE),
+                GeoSpatialCodec.interleave(new long[] {
+                        GeoSpatialCodec.MAX_COORD, GeoSpatialCodec.MAX_COORD }));
+
+        final Random r = new Random();
+
+        for (int i = 0; i < 1000; i++) {
+
+            final int dims = 2 + r.nextInt(2);
+
+            final long[] a = new long[dims];
+
+            for (int d = 0; d < dims; d++)
+                a[d] = r.nextLong() & GeoSpatialCodec.MAX_COORD;
+
+            final BigInteger z = GeoSpatialCodec.interleave(a);
+
+            assertTrue(z.signum() >= 0);
+
+            assertTrue(z.bitLength() <= dims * GeoSpatialCodec.BITS);
+
+            assertEquals(a, GeoSpatialCodec.deinterleave(z, dims));
+
+        }
+
+    }
+
+    public void test_encodeDecode() {
+
+        final BigdataValueFactory vf = BigdataValueFactoryImpl
+                .getInstance(getName());
+
+        final GeoSpatialExtension<BigdataValue> ext = newExtension(vf);
+
+        assertEquals(2, ext.getDatatypes().size());
+
+        final Random r = new Random();
+
+        final IV<?, ?>[] e = new IV[100];
+
+        for (int i = 0; i < e.length; i++) {
+
+            final double lat = r.nextDouble() * 180d - 90d;
+
+            final double lon = r.nextDouble() * 360d - 180d;
+
+            final Literal lit = (i % 2 == 0) ? new LiteralImpl(lat + "#" + lon,
+                    GeoSpatialVocabularyDecl.LAT_LON) : new LiteralImpl(lat
+                    + "#" + lon + "#" + r.nextInt(Integer.MAX_VALUE),
+                    GeoSpatialVocabularyDecl.LAT_LON_TIME);
+
+            final LiteralExtensionIV<?> iv = ext.createIV(lit);
+
+            if (iv == null)
+                fail("Did not create IV: lit=" + lit);
+
+            // The decoded literal is stable under re-encoding.
+            final BigdataValue val = ext.asValue(iv, vf);
+
+            assertEquals(lit.getDatatype(), ((Literal) val).getDatatype());
+
+            final LiteralExtensionIV<?> iv2 = ext.createIV(val);
+
+            assertEquals(val, ext.asValue(iv2, vf));
+
+            e[i] = iv;
+
+        }
+
+        doEncodeDecodeTest(e);
+
+        doComparatorTest(e);
+
+    }
+
+    /**
+     * Verify that the ranges cover the box, are ordered, disjoint and bounded
+     * in number.
+     */
+    public void test_decompose() {
+
+        final Random r = new Random();
+
+        for (int trial = 0; trial < 200; trial++) {
+
+            final int dims = 2 + r.nextInt(2);
+
+            final long[] lo = new long[dims];
+            final long[] hi = new long[dims];
+
+            for (int d = 0; d < dims; d++) {
+                final long a = r.nextLong() & GeoSpatialCodec.MAX_COORD;
+                final long b = r.nextLong() & GeoSpatialCodec.MAX_COORD;
+                lo[d] = Math.min(a, b);
+                hi[d] = Math.max(a, b);
+            }
+
+            final int maxRanges = 1 + r.nextInt(64);
+
+            final List<KeyRange> ranges = ZOrderRangeDecomposer.decompose(lo,
+                    hi, maxRanges);
+
+            assertTrue(ranges.size() >= 1);
+
+            assertTrue(ranges.size() <= maxRanges);
+
+            for (int i = 1; i < ranges.size(); i++) {
+
+                // ordered, disjoint and not adjacent.
+                assertTrue(ranges.get(i - 1).getTo().add(BigInteger.ONE)
+                        .compareTo(ranges.get(i).getFrom()) < 0);
+
+            }
+
+            // The corners of the box and random points within the box.
+            for (int i = 0; i < 100; i++) {
+
+                final long[] p = new long[dims];
+
+                for (int d = 0; d < dims; d++) {
+
+                    if (i < 2) {
+                        p[d] = i == 0 ? lo[d] : hi[d];
+                    } else {
+                        p[d] = lo[d]
+                                + (long) (r.nextDouble() * (hi[d] - lo[d] + 1));
+                        p[d] = Math.min(p[d], hi[d]);
+                    }
+
+                }
+
+                assertTrue(covered(ranges, GeoSpatialCodec.interleave(p)));
+
+            }
+
+        }
+
+    }
+
+    public void test_decompose_alignedBox() {
+
+        final long half = GeoSpatialCodec.MAX_COORD >>> 1;
+
+        // The south west quadrant is a single range.
+        final List<KeyRange> a = ZOrderRangeDecomposer.decompose(new long[] {
+                0L, 0L }, new long[] { half, half }, 1);
+
+        assertEquals(1, a.size());
+
+        assertEquals(BigInteger.ZERO, a.get(0).getFrom());
+
+        assertEquals(BigInteger.ONE.shiftLeft(62).subtract(BigInteger.ONE), a
+                .get(0).getTo());
+
+        // The southern half is two adjacent quadrants : coalesced.
+        final List<KeyRange> b = ZOrderRangeDecomposer.decompose(new long[] {
+                0L, 0L }, new long[] { half, GeoSpatialCodec.MAX_COORD }, 4);
+
+        assertEquals(1, b.size());
+
+        // A single point.
+        final long[] p = new long[] { 12345L, 67890L };
+
+        final List<KeyRange> c = ZOrderRangeDecomposer.decompose(p, p, 1);
+
+        assertEquals(1, c.size());
+
+        assertEquals(GeoSpatialCodec.interleave(p), c.get(0).getFrom());
+
+        assertEquals(GeoSpatialCodec.interleave(p), c.get(0).getTo());
+
+    }
+
+    public void test_distance() {
+
+        // One degree of latitude.
+        assertEquals(111.195, GeoSpatialCodec.distance(0d, 0d, 1d, 0d), 0.001);
+
+        // Across the date line.
+        assertEquals(GeoSpatialCodec.distance(0d, 179.5d, 0d, -179.5d),
+                GeoSpatialCodec.distance(0d, 0d, 0d, 1d), 0.001);
+
+    }
+
+    private static boolean covered(final List<KeyRange> ranges,
+            final BigInteger z) {
+
+        for (KeyRange r : ranges) {
+
+            if (r.getFrom().compareTo(z) <= 0 && r.getTo().compareTo(z) >= 0)
+                return true;
+
+        }
+
+        return false;
+
+    }
+
+}
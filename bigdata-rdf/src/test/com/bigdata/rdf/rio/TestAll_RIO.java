@@ -63,6 +63,8 @@ public class TestAll_RIO extends TestCase {
 
         suite.addTest(com.bigdata.rdf.rio.ntriples.TestAll.suite());
 
+        suite.addTest(com.bigdata.rdf.rio.solutions.TestAll.suite());
+
         return suite;
     }
 
@@ -0,0 +1,362 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.rio.solutions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import junit.framework.TestCase2;
+
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.impl.MapBindingSet;
+import org.openrdf.query.impl.TupleQueryResultBuilder;
+import org.openrdf.query.resultio.QueryResultParseException;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultParserFactory;
+import org.openrdf.query.resultio.TupleQueryResultParserRegistry;
+import org.openrdf.query.resultio.TupleQueryResultWriterFactory;
+import org.openrdf.query.resultio.TupleQueryResultWriterRegistry;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.rdf.ServiceProviderHook;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+import com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONParserFactory;
+import com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONWriterFactory;
+
+/**
+ * Unit tests for the {@link BinarySolutionsFormat}.
+ */
+public class TestBinarySolutions extends TestCase2 {
+
+    public TestBinarySolutions() {
+    }
+
+    public TestBinarySolutions(final String name) {
+        super(name);
+    }
+
+    private final ValueFactoryImpl vf = ValueFactoryImpl.getInstance();
+
+    /**
+     * Parse a response.
+     */
+    private List<BindingSet> parse(final byte[] b, final List<String> vars)
+            throws Exception {
+
+        final TupleQueryResultBuilder builder = new TupleQueryResultBuilder();
+
+        final BinarySolutionsParser parser = new BinarySolutionsParser();
+
+        parser.setTupleQueryResultHandler(builder);
+
+        parser.parse(new ByteArrayInputStream(b));
+
+        final TupleQueryResult result = builder.getQueryResult();
+
+        assertEquals(vars, result.getBindingNames());
+
+        final List<BindingSet> list = new LinkedList<BindingSet>();
+
+        while (result.hasNext()) {
+
+            list.add(result.next());
+
+        }
+
+        return list;
+
+    }
+
+    private MapBindingSet solution(final Value s, final Value o) {
+
+        final MapBindingSet bs = new MapBindingSet();
+
+        if (s != null)
+            bs.addBinding("s", s);
+
+        if (o != null)
+            bs.addBinding("o", o);
+
+        return bs;
+
+    }
+
+    private List<BindingSet> getData() {
+
+        return Arrays.asList(new BindingSet[] {//
+                solution(vf.createURI("http://example.org/a"),
+                        vf.createLiteral("plain")),//
+                solution(vf.createURI("http://example.org/a"),
+                        vf.createLiteral("chat", "fr")),//
+                solution(vf.createURI("http://example.org/b"),
+                        vf.createLiteral("12", XMLSchema.INT)),//
+                solution(vf.createBNode("b1"),
+                        vf.createLiteral("13", XMLSchema.INT)),//
+                solution(null, vf.createURI("http://example.org/a")),//
+                solution(vf.createLiteral("\u6771\u4eac \ud83d\ude00"), null),//
+        });
+
+    }
+
+    /**
+     * Write openrdf solutions and verify that they are recovered by the
+     * parser, including when the dictionary is reset.
+     */
+    public void test_roundTrip() throws Exception {
+
+        final List<String> vars = Arrays.asList("s", "o");
+
+        for (int capacity : new int[] { 1, 5,
+                BinarySolutionsFormat.DEFAULT_DICTIONARY_CAPACITY }) {
+
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+            final BinarySolutionsWriter w = new BinarySolutionsWriter(os,
+                    capacity);
+
+            w.startQueryResult(vars);
+
+            for (BindingSet bs : getData())
+                w.handleSolution(bs);
+
+            w.endQueryResult();
+
+            assertEquals(getData(), parse(os.toByteArray(), vars));
+
+        }
+
+    }
+
+    /**
+     * Repeated values are written once.
+     */
+    public void test_dictionary() throws Exception {
+
+        final List<String> vars = Arrays.asList("s");
+
+        final ByteArrayOutputStream os1 = new ByteArrayOutputStream();
+        {
+            final BinarySolutionsWriter w = new BinarySolutionsWriter(os1);
+            w.startQueryResult(vars);
+            w.handleSolution(solution(vf.createURI("http://example.org/a"),
+                    null));
+            w.endQueryResult();
+        }
+
+        final ByteArrayOutputStream os2 = new ByteArrayOutputStream();
+        {
+            final BinarySolutionsWriter w = new BinarySolutionsWriter(os2);
+            w.startQueryResult(vars);
+            for (int i = 0; i < 10; i++)
+                w.handleSolution(solution(
+                        vf.createURI("http://example.org/a"), null));
+            w.endQueryResult();
+        }
+
+        // Each additional solution is a record type and a reference.
+        assertEquals(os1.size() + 9 * 2, os2.size());
+
+    }
+
+    /**
+     * Write native solutions and verify that they are recovered by the
+     * parser.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_nativeRoundTrip() throws Exception {
+
+        final BigdataValueFactory f = BigdataValueFactoryImpl
+                .getInstance(getName());
+
+        final IVariable<?> s = Var.var("s");
+        final IVariable<?> o = Var.var("o");
+
+        final TermId a = new TermId<BigdataValue>(VTE.URI, 1L);
+        a.setValue(f.createURI("http://example.org/a"));
+
+        final TermId lang = new TermId<BigdataValue>(VTE.LITERAL, 2L);
+        lang.setValue(f.createLiteral("chat", "fr"));
+
+        final IV num = new XSDNumericIV<BigdataLiteral>(12);
+
+        final IBindingSet[] data = new IBindingSet[3];
+
+        data[0] = new ListBindingSet();
+        data[0].set(s, new Constant<IV>(a));
+        data[0].set(o, new Constant<IV>(lang));
+
+        data[1] = new ListBindingSet();
+        data[1].set(s, new Constant<IV>(a));
+        data[1].set(o, new Constant<IV>(num));
+
+        data[2] = new ListBindingSet();
+        data[2].set(o, new Constant<IV>(a));
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        final AbstractIVSolutionWriter w = IVSolutionWriterRegistry.getWriter(
+                BinarySolutionsFormat.FORMAT, os, null/* lex */);
+
+        w.startQueryResult(new IVariable[] { s, o });
+        w.handleSolutions(data);
+        w.endQueryResult();
+
+        final List<BindingSet> actual = parse(os.toByteArray(),
+                Arrays.asList("s", "o"));
+
+        assertEquals(Arrays.asList(new BindingSet[] {//
+                solution(vf.createURI("http://example.org/a"),
+                        vf.createLiteral("chat", "fr")),//
+                solution(vf.createURI("http://example.org/a"),
+                        vf.createLiteral("12", XMLSchema.INT)),//
+                solution(null, vf.createURI("http://example.org/a")),//
+                }), actual);
+
+    }
+
+    /**
+     * A truncated response is reported as a parse error.
+     */
+    public void test_truncated() throws Exception {
+
+        final List<String> vars = Arrays.asList("s", "o");
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        final BinarySolutionsWriter w = new BinarySolutionsWriter(os);
+
+        w.startQueryResult(vars);
+
+        for (BindingSet bs : getData())
+            w.handleSolution(bs);
+
+        w.endQueryResult();
+
+        final byte[] b = Arrays.copyOf(os.toByteArray(), os.size() - 1);
+
+        try {
+            parse(b, vars);
+            fail("Expecting: " + QueryResultParseException.class);
+        } catch (QueryResultParseException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    public void test_format() {
+
+        assertEquals(BinarySolutionsFormat.FORMAT, TupleQueryResultFormat
+                .forMIMEType(BinarySolutionsFormat.MIME_TYPE));
+
+    }
+
+    /**
+     * Verify that the parser and writer factories are declared correctly
+     * for the {@link ServiceLoader} (one class name per line) and that each
+     * format resolves to the bigdata factory through the registries.
+     */
+    public void test_serviceRegistry() {
+
+        final Set<String> parsers = new HashSet<String>();
+
+        for (TupleQueryResultParserFactory f : ServiceLoader
+                .load(TupleQueryResultParserFactory.class)) {
+
+            parsers.add(f.getClass().getName());
+
+        }
+
+        assertTrue(parsers.toString(), parsers
+                .contains(BigdataSPARQLResultsJSONParserFactory.class
+                        .getName()));
+
+        assertTrue(parsers.toString(), parsers
+                .contains(BinarySolutionsParserFactory.class.getName()));
+
+        final Set<String> writers = new HashSet<String>();
+
+        for (TupleQueryResultWriterFactory f : ServiceLoader
+                .load(TupleQueryResultWriterFactory.class)) {
+
+            writers.add(f.getClass().getName());
+
+        }
+
+        assertTrue(writers.toString(), writers
+                .contains(BigdataSPARQLResultsJSONWriterFactory.class
+                        .getName()));
+
+        assertTrue(writers.toString(), writers
+                .contains(BinarySolutionsWriterFactory.class.getName()));
+
+        /*
+         * Note: The ServiceProviderHook decides which provider remains in the
+         * registry when there is more than one for a format.
+         */
+        ServiceProviderHook.forceLoad();
+
+        final TupleQueryResultParserRegistry parserRegistry = TupleQueryResultParserRegistry
+                .getInstance();
+
+        assertTrue(parserRegistry.get(BinarySolutionsFormat.FORMAT) instanceof BinarySolutionsParserFactory);
+
+        assertTrue(parserRegistry.get(TupleQueryResultFormat.JSON) instanceof BigdataSPARQLResultsJSONParserFactory);
+
+        final TupleQueryResultWriterRegistry writerRegistry = TupleQueryResultWriterRegistry
+                .getInstance();
+
+        assertTrue(writerRegistry.get(BinarySolutionsFormat.FORMAT) instanceof BinarySolutionsWriterFactory);
+
+        assertTrue(writerRegistry.get(TupleQueryResultFormat.JSON) instanceof BigdataSPARQLResultsJSONWriterFactory);
+
+    }
+
+}
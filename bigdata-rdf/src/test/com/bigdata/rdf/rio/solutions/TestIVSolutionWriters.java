@@ -0,0 +1,304 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.rio.solutions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase2;
+
+import org.openrdf.model.Literal;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.resultio.QueryResultIO;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.rdf.ServiceProviderHook;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.NotMaterializedException;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+
+/**
+ * Unit tests for the {@link AbstractIVSolutionWriter}s.
+ */
+public class TestIVSolutionWriters extends TestCase2 {
+
+    public TestIVSolutionWriters() {
+    }
+
+    public TestIVSolutionWriters(final String name) {
+        super(name);
+    }
+
+    private BigdataValueFactory f;
+
+    private final IVariable<?> s = Var.var("s");
+    private final IVariable<?> o = Var.var("o");
+
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        // Ensure that the bigdata parsers are registered.
+        ServiceProviderHook.forceLoad();
+
+        f = BigdataValueFactoryImpl.getInstance(getName());
+
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private IV termId(final VTE vte, final long id, final BigdataValue value) {
+
+        final TermId iv = new TermId<BigdataValue>(vte, id);
+
+        iv.setValue(value);
+
+        return iv;
+
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private IBindingSet solution(final IV sval, final IV oval) {
+
+        final IBindingSet bset = new ListBindingSet();
+
+        if (sval != null)
+            bset.set(s, new Constant<IV>(sval));
+
+        if (oval != null)
+            bset.set(o, new Constant<IV>(oval));
+
+        return bset;
+
+    }
+
+    /**
+     * The test data: a URI with a plain literal, a language literal, an
+     * inline xsd:int, and a blank node with an unbound variable.
+     */
+    @SuppressWarnings("rawtypes")
+    private IBindingSet[] getData() {
+
+        final IV uri = termId(VTE.URI, 1L, f.createURI("http://example.org/a"));
+
+        final IV bnode = termId(VTE.BNODE, 2L, f.createBNode("b1"));
+
+        final IV plain = termId(VTE.LITERAL, 3L,
+                f.createLiteral("say \"hi\",\tthere\n"));
+
+        final IV lang = termId(VTE.LITERAL, 4L, f.createLiteral("chat", "fr"));
+
+        final IV num = new XSDNumericIV<BigdataLiteral>(12);
+
+        return new IBindingSet[] {//
+                solution(uri, plain),//
+                solution(uri, lang),//
+                solution(uri, num),//
+                solution(bnode, null),//
+        };
+
+    }
+
+    private byte[] write(final AbstractIVSolutionWriter w,
+            final ByteArrayOutputStream os) throws Exception {
+
+        final IBindingSet[] data = getData();
+
+        w.startQueryResult(new IVariable[] { s, o });
+
+        // Write the data in two chunks.
+        w.handleSolutions(Arrays.copyOfRange(data, 0, 1));
+        w.handleSolutions(Arrays.copyOfRange(data, 1, data.length));
+
+        w.endQueryResult();
+
+        assertEquals(data.length, w.getSolutionCount());
+
+        return os.toByteArray();
+
+    }
+
+    /**
+     * Parse the output using the openrdf parser for the format and verify
+     * the solutions.
+     */
+    private void assertRoundTrip(final TupleQueryResultFormat format)
+            throws Exception {
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        final AbstractIVSolutionWriter w = IVSolutionWriterRegistry.getWriter(
+                format, os, null/* lex */);
+
+        assertEquals(format, w.getTupleQueryResultFormat());
+
+        final byte[] b = write(w, os);
+
+        final TupleQueryResult r = QueryResultIO.parse(
+                new ByteArrayInputStream(b), format);
+
+        try {
+
+            assertEquals(Arrays.asList("s", "o"), r.getBindingNames());
+
+            BindingSet bs = r.next();
+            assertEquals(f.createURI("http://example.org/a"), bs.getValue("s"));
+            assertEquals("say \"hi\",\tthere\n",
+                    ((Literal) bs.getValue("o")).getLabel());
+
+            bs = r.next();
+            assertEquals(f.createLiteral("chat", "fr"), bs.getValue("o"));
+
+            bs = r.next();
+            assertEquals(f.createLiteral("12", XMLSchema.INT), bs.getValue("o"));
+
+            bs = r.next();
+            assertEquals("b1", bs.getValue("s").stringValue());
+            assertNull(bs.getValue("o"));
+
+            assertFalse(r.hasNext());
+
+        } finally {
+
+            r.close();
+
+        }
+
+    }
+
+    public void test_json() throws Exception {
+
+        assertRoundTrip(TupleQueryResultFormat.JSON);
+
+    }
+
+    public void test_xml() throws Exception {
+
+        assertRoundTrip(TupleQueryResultFormat.SPARQL);
+
+    }
+
+    public void test_tsv() throws Exception {
+
+        assertRoundTrip(TupleQueryResultFormat.TSV);
+
+    }
+
+    public void test_csv() throws Exception {
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        final byte[] b = write(new IVSolutionCSVWriter(os, null/* lex */), os);
+
+        assertEquals("s,o\r\n" + //
+                "http://example.org/a,\"say \"\"hi\"\",\tthere\n\"\r\n" + //
+                "http://example.org/a,chat\r\n" + //
+                "http://example.org/a,12\r\n" + //
+                "_:b1,\r\n", new String(b, "UTF-8"));
+
+    }
+
+    /**
+     * Verify the UTF-8 encoding, including a supplementary character written
+     * as a surrogate pair, using a buffer which is smaller than the output.
+     */
+    @SuppressWarnings("rawtypes")
+    public void test_utf8() throws Exception {
+
+        final String label = "caf\u00e9 \u6771\u4eac \ud83d\ude00";
+
+        final IV lit = termId(VTE.LITERAL, 1L, f.createLiteral(label));
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        final AbstractIVSolutionWriter w = new IVSolutionCSVWriter(os,
+                null/* lex */, 3/* bufferCapacity */);
+
+        w.startQueryResult(new IVariable[] { s });
+        w.handleSolutions(new IBindingSet[] { solution(lit, null) });
+        w.endQueryResult();
+
+        assertEquals(("s\r\n" + label + "\r\n").getBytes("UTF-8"),
+                os.toByteArray());
+
+    }
+
+    /**
+     * An {@link IV} which is neither materialized nor inline can not be
+     * written.
+     */
+    @SuppressWarnings("rawtypes")
+    public void test_notMaterialized() throws Exception {
+
+        final IV iv = new TermId<BigdataValue>(VTE.URI, 1L);
+
+        final AbstractIVSolutionWriter w = new IVSolutionJSONWriter(
+                new ByteArrayOutputStream(), null/* lex */);
+
+        w.startQueryResult(new IVariable[] { s });
+
+        try {
+            w.handleSolutions(new IBindingSet[] { solution(iv, null) });
+            fail("Expecting: " + NotMaterializedException.class);
+        } catch (NotMaterializedException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    public void test_registry() {
+
+        assertTrue(IVSolutionWriterRegistry
+                .isSupported(TupleQueryResultFormat.JSON));
+
+        assertFalse(IVSolutionWriterRegistry
+                .isSupported(TupleQueryResultFormat.BINARY));
+
+        assertNull(IVSolutionWriterRegistry.getWriter(
+                TupleQueryResultFormat.BINARY, new ByteArrayOutputStream(),
+                null/* lex */));
+
+    }
+
+}
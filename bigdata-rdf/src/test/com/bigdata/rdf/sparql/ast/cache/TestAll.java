@@ -64,6 +64,16 @@ public class TestAll extends TestCase {
             suite.addTestSuite(TestCacheConnectionFactory.class);
 
         }
+
+        // SPARQL solution cache.
+        suite.addTestSuite(TestSolutionCache.class);
+
+        if (QueryHints.DEFAULT_SOLUTION_CACHE) {
+
+            // SELECT query evaluation against the SPARQL solution cache.
+            suite.addTestSuite(TestSolutionCacheEvaluation.class);
+
+        }
                 
         /*
          * Note: Data-driven unit tests are used for the SPARQL named solution
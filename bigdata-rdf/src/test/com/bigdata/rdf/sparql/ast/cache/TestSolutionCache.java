@@ -0,0 +1,353 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sparql.ast.cache;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.io.DirectBufferPool;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.encoder.IVSolutionSetEncoder;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rwstore.sector.MemoryManager;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * Test suite for the {@link SolutionCache}.
+ */
+public class TestSolutionCache extends TestCase2 {
+
+    public TestSolutionCache() {
+    }
+
+    public TestSolutionCache(String name) {
+        super(name);
+    }
+
+    private static final IVariable<?> x = Var.var("x");
+
+    private final IV<?, ?> p1 = new TermId<BigdataURI>(VTE.URI, 1L);
+    private final IV<?, ?> p2 = new TermId<BigdataURI>(VTE.URI, 2L);
+    private final IV<?, ?> g1 = new TermId<BigdataURI>(VTE.URI, 3L);
+    private final IV<?, ?> g2 = new TermId<BigdataURI>(VTE.URI, 4L);
+
+    private final Set<IV<?, ?>> none = Collections.emptySet();
+
+    private MemoryManager mmgr;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mmgr = new MemoryManager(DirectBufferPool.INSTANCE);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mmgr != null) {
+            mmgr.clear();
+            mmgr = null;
+        }
+        super.tearDown();
+    }
+
+    private static Set<IV<?, ?>> asSet(final IV<?, ?>... a) {
+
+        final Set<IV<?, ?>> s = new LinkedHashSet<IV<?, ?>>();
+
+        for (IV<?, ?> iv : a)
+            s.add(iv);
+
+        return s;
+
+    }
+
+    private SolutionCacheKey key(final String key, final long commitTime,
+            final Set<IV<?, ?>> predicates, final Set<IV<?, ?>> graphs) {
+
+        return new SolutionCacheKey(key, commitTime, predicates,
+                false/* anyPredicate */, graphs, graphs.isEmpty()/* anyGraph */);
+
+    }
+
+    /**
+     * Encode solutions binding <code>x</code> to each of the given values.
+     */
+    private static DataOutputBuffer encode(final int... values) {
+
+        final DataOutputBuffer out = new DataOutputBuffer();
+
+        final IVSolutionSetEncoder encoder = new IVSolutionSetEncoder();
+
+        for (int v : values) {
+
+            final IBindingSet bset = new ListBindingSet();
+
+            bset.set(x, new Constant<IV>(new XSDNumericIV(v)));
+
+            encoder.encodeSolution(out, bset);
+
+        }
+
+        encoder.release();
+
+        return out;
+
+    }
+
+    private boolean put(final ISolutionCache cache, final SolutionCacheKey key,
+            final int... values) {
+
+        final DataOutputBuffer out = encode(values);
+
+        return cache.put(key, out.array(), out.pos(), values.length);
+
+    }
+
+    private void assertSolutions(final int[] expected,
+            final ICloseableIterator<IBindingSet> actual) {
+
+        assertNotNull(actual);
+
+        try {
+
+            for (int v : expected) {
+
+                assertTrue(actual.hasNext());
+
+                assertEquals(new XSDNumericIV(v), actual.next().get(x).get());
+
+            }
+
+            assertFalse(actual.hasNext());
+
+        } finally {
+
+            actual.close();
+
+        }
+
+    }
+
+    public void test_putGet() {
+
+        final SolutionCache cache = new SolutionCache("kb", mmgr,
+                Long.MAX_VALUE, Integer.MAX_VALUE, 10L/* lastCommitTime */);
+
+        final SolutionCacheKey k = key("q", 10L, asSet(p1), none);
+
+        assertNull(cache.get(k));
+
+        assertTrue(put(cache, k, 1, 2, 3));
+
+        // Same commit point.
+        assertSolutions(new int[] { 1, 2, 3 }, cache.get(k));
+
+        // A later commit point.
+        assertSolutions(new int[] { 1, 2, 3 },
+                cache.get(key("q", 12L, asSet(p1), none)));
+
+        // An earlier commit point can not use that entry.
+        assertNull(cache.get(key("q", 9L, asSet(p1), none)));
+
+        // A different query.
+        assertNull(cache.get(key("r", 10L, asSet(p1), none)));
+
+        // An empty result is also cached.
+        final SolutionCacheKey k2 = key("empty", 10L, asSet(p2), none);
+
+        assertTrue(put(cache, k2));
+
+        assertSolutions(new int[] {}, cache.get(k2));
+
+    }
+
+    /**
+     * Entries computed against a commit point before the last commit which
+     * changed the KB are refused.
+     */
+    public void test_refuseStaleEntries() {
+
+        final SolutionCache cache = new SolutionCache("kb", mmgr,
+                Long.MAX_VALUE, Integer.MAX_VALUE, 10L/* lastCommitTime */);
+
+        assertFalse(put(cache, key("q", 9L, asSet(p1), none), 1));
+
+        assertTrue(put(cache, key("q", 10L, asSet(p1), none), 1));
+
+    }
+
+    public void test_invalidateByPredicate() {
+
+        final SolutionCache cache = new SolutionCache("kb", mmgr,
+                Long.MAX_VALUE, Integer.MAX_VALUE, 10L/* lastCommitTime */);
+
+        final SolutionCacheKey k1 = key("q1", 10L, asSet(p1), none);
+
+        final SolutionCacheKey k2 = key("q2", 10L, asSet(p2), none);
+
+        assertTrue(put(cache, k1, 1));
+
+        assertTrue(put(cache, k2, 2));
+
+        // A write set on p2.
+        cache.prepare(asSet(p2), none, true/* anyGraph */);
+
+        // The entry for p1 is still valid.
+        assertSolutions(new int[] { 1 }, cache.get(k1));
+
+        // The entry for p2 was invalidated.
+        assertNull(cache.get(k2));
+
+        // Nothing is cached while the write set is prepared.
+        assertFalse(put(cache, key("q3", 10L, asSet(p1), none), 3));
+
+        cache.commit(20L);
+
+        // Entries computed before that commit are refused.
+        assertFalse(put(cache, k2, 2));
+
+        // Entries computed after that commit are accepted.
+        final SolutionCacheKey k3 = key("q2", 20L, asSet(p2), none);
+
+        assertTrue(put(cache, k3, 4));
+
+        assertSolutions(new int[] { 4 }, cache.get(k3));
+
+        // An aborted write set only blocks inserts while prepared.
+        cache.prepare(asSet(p1), none, true/* anyGraph */);
+
+        assertNull(cache.get(k1));
+
+        cache.abort();
+
+        assertTrue(put(cache, key("q1", 20L, asSet(p1), none), 5));
+
+    }
+
+    public void test_invalidateByGraph() {
+
+        final SolutionCache cache = new SolutionCache("kb", mmgr,
+                Long.MAX_VALUE, Integer.MAX_VALUE, 10L/* lastCommitTime */);
+
+        final SolutionCacheKey k1 = key("q1", 10L, asSet(p1), asSet(g1));
+
+        // Any graph.
+        final SolutionCacheKey k2 = key("q2", 10L, asSet(p1), none);
+
+        assertTrue(put(cache, k1, 1));
+
+        assertTrue(put(cache, k2, 2));
+
+        // A write set on p1 in g2.
+        cache.prepare(asSet(p1), asSet(g2), false/* anyGraph */);
+
+        cache.commit(11L);
+
+        assertSolutions(new int[] { 1 }, cache.get(key("q1", 11L, asSet(p1),
+                asSet(g1))));
+
+        assertNull(cache.get(k2));
+
+        // A write set on p1 in g1.
+        cache.prepare(asSet(p1), asSet(g1), false/* anyGraph */);
+
+        cache.commit(12L);
+
+        assertNull(cache.get(k1));
+
+    }
+
+    public void test_anyPredicate() {
+
+        final SolutionCacheKey k = new SolutionCacheKey("q", 10L, none,
+                true/* anyPredicate */, none, true/* anyGraph */);
+
+        assertTrue(k.isInvalidatedBy(asSet(p1), none, true/* anyGraph */));
+
+        // An empty write set does not invalidate anything.
+        assertFalse(k.isInvalidatedBy(none, none, true/* anyGraph */));
+
+    }
+
+    public void test_maxEntryBytes() {
+
+        final DataOutputBuffer out = encode(1, 2, 3);
+
+        final SolutionCache cache = new SolutionCache("kb", mmgr,
+                Long.MAX_VALUE, out.pos() - 1/* maxEntryBytes */, 10L);
+
+        assertFalse(put(cache, key("q", 10L, asSet(p1), none), 1, 2, 3));
+
+        assertTrue(put(cache, key("q", 10L, asSet(p1), none), 1));
+
+    }
+
+    public void test_evictLRU() {
+
+        final int nbytes = encode(1, 2, 3).pos();
+
+        // Room for two entries.
+        final SolutionCache cache = new SolutionCache("kb", mmgr,
+                2 * nbytes/* maxMemory */, Integer.MAX_VALUE, 10L);
+
+        final SolutionCacheKey k1 = key("q1", 10L, asSet(p1), none);
+        final SolutionCacheKey k2 = key("q2", 10L, asSet(p1), none);
+        final SolutionCacheKey k3 = key("q3", 10L, asSet(p1), none);
+
+        assertTrue(put(cache, k1, 1, 2, 3));
+
+        assertTrue(put(cache, k2, 1, 2, 3));
+
+        // Touch k1 so k2 is the LRU entry.
+        assertSolutions(new int[] { 1, 2, 3 }, cache.get(k1));
+
+        assertTrue(put(cache, k3, 1, 2, 3));
+
+        assertNull(cache.get(k2));
+
+        assertNotNull(cache.get(k1));
+
+        assertNotNull(cache.get(k3));
+
+    }
+
+}
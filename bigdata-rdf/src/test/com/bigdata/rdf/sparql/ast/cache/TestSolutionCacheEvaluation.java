@@ -0,0 +1,232 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.sparql.ast.cache;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+
+import org.openrdf.model.URI;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.algebra.evaluation.QueryBindingSet;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.counters.ICounter;
+import com.bigdata.rdf.sail.sparql.Bigdata2ASTSPARQLParser;
+import com.bigdata.rdf.sparql.ast.ASTContainer;
+import com.bigdata.rdf.sparql.ast.AbstractASTEvaluationTestCase;
+import com.bigdata.rdf.sparql.ast.QueryHints;
+import com.bigdata.rdf.sparql.ast.cache.SolutionCache.ISolutionCacheCounters;
+import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
+import com.bigdata.rdf.sparql.ast.eval.ASTEvalHelper;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * Test suite for the use of the {@link ISolutionCache} when evaluating SELECT
+ * queries. The native solution path (
+ * {@link ASTEvalHelper#evaluateTupleQuery2(AbstractTripleStore, ASTContainer, QueryBindingSet, boolean)}
+ * ) and the openrdf solution path (
+ * {@link ASTEvalHelper#evaluateTupleQuery(AbstractTripleStore, ASTContainer, QueryBindingSet)}
+ * ) must each read and fill the same cache entries.
+ * <p>
+ * Note: This test suite is only run when the solution cache is enabled.
+ * 
+ * @see QueryHints#SOLUTION_CACHE
+ */
+public class TestSolutionCacheEvaluation extends AbstractASTEvaluationTestCase {
+
+    public TestSolutionCacheEvaluation() {
+    }
+
+    public TestSolutionCacheEvaluation(String name) {
+        super(name);
+    }
+
+    @Override
+    public Properties getProperties() {
+
+        final Properties properties = new Properties(super.getProperties());
+
+        // turn off quads.
+        properties.setProperty(AbstractTripleStore.Options.QUADS, "false");
+
+        return properties;
+
+    }
+
+    private static final String queryStr = "SELECT ?s ?o WHERE { ?s <http://example.org/p> ?o }";
+
+    /**
+     * Return a read-only view of the last commit point of the KB having some
+     * data.
+     */
+    private AbstractTripleStore getReadOnlyView() {
+
+        final URI p = valueFactory.createURI("http://example.org/p");
+
+        for (int i = 0; i < 10; i++) {
+
+            store.addStatement(
+                    valueFactory.createURI("http://example.org/s" + i), p,
+                    valueFactory.createLiteral(i));
+
+        }
+
+        final long commitTime = store.commit();
+
+        assertTrue(commitTime > 0);
+
+        return (AbstractTripleStore) store.getIndexManager()
+                .getResourceLocator().locate(store.getNamespace(), commitTime);
+
+    }
+
+    private static long getCounter(final ISolutionCache cache,
+            final String name) {
+
+        return ((Number) ((ICounter<?>) cache.getCounters().getChild(name))
+                .getValue()).longValue();
+
+    }
+
+    private static List<IBindingSet> drain2(
+            final ICloseableIterator<IBindingSet[]> itr) {
+
+        final List<IBindingSet> list = new LinkedList<IBindingSet>();
+
+        try {
+
+            while (itr.hasNext()) {
+
+                for (IBindingSet bset : itr.next()) {
+
+                    list.add(bset);
+
+                }
+
+            }
+
+        } finally {
+
+            itr.close();
+
+        }
+
+        return list;
+
+    }
+
+    private static List<BindingSet> drain(final TupleQueryResult itr)
+            throws Exception {
+
+        final List<BindingSet> list = new LinkedList<BindingSet>();
+
+        try {
+
+            while (itr.hasNext()) {
+
+                list.add(itr.next());
+
+            }
+
+        } finally {
+
+            itr.close();
+
+        }
+
+        return list;
+
+    }
+
+    /**
+     * The native solution path fills the cache, is served from the cache on
+     * the next evaluation, and fills an entry which is also used by the
+     * openrdf solution path.
+     */
+    public void test_evaluateTupleQuery2() throws Exception {
+
+        final AbstractTripleStore view = getReadOnlyView();
+
+        final ISolutionCache cache = new AST2BOpContext(
+                new Bigdata2ASTSPARQLParser(view).parseQuery2(queryStr,
+                        baseURI), view).getSolutionCache();
+
+        assertNotNull(cache);
+
+        final long hits0 = getCounter(cache, ISolutionCacheCounters.HitCount);
+
+        final long inserts0 = getCounter(cache,
+                ISolutionCacheCounters.InsertCount);
+
+        // Miss: the query is run and its solutions are inserted.
+        final List<IBindingSet> expected = drain2(ASTEvalHelper
+                .evaluateTupleQuery2(view, new Bigdata2ASTSPARQLParser(view)
+                        .parseQuery2(queryStr, baseURI), new QueryBindingSet(),
+                        true/* materialize */));
+
+        assertEquals(10, expected.size());
+
+        assertEquals(inserts0 + 1, getCounter(cache,
+                ISolutionCacheCounters.InsertCount));
+
+        assertEquals(hits0, getCounter(cache, ISolutionCacheCounters.HitCount));
+
+        // Hit on the native solution path.
+        final List<IBindingSet> actual = drain2(ASTEvalHelper
+                .evaluateTupleQuery2(view, new Bigdata2ASTSPARQLParser(view)
+                        .parseQuery2(queryStr, baseURI), new QueryBindingSet(),
+                        true/* materialize */));
+
+        assertEquals(hits0 + 1, getCounter(cache,
+                ISolutionCacheCounters.HitCount));
+
+        assertSameSolutionsAnyOrder(expected.toArray(new IBindingSet[0]),
+                actual.iterator());
+
+        // Hit on the openrdf solution path.
+        final List<BindingSet> actual2 = drain(ASTEvalHelper
+                .evaluateTupleQuery(view, new Bigdata2ASTSPARQLParser(view)
+                        .parseQuery2(queryStr, baseURI), new QueryBindingSet()));
+
+        assertEquals(hits0 + 2, getCounter(cache,
+                ISolutionCacheCounters.HitCount));
+
+        assertEquals(10, actual2.size());
+
+        assertEquals(inserts0 + 1, getCounter(cache,
+                ISolutionCacheCounters.InsertCount));
+
+    }
+
+}
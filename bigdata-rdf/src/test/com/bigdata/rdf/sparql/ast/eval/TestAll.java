@@ -192,6 +192,12 @@ public class TestAll extends TestCase {
         // @see #1035 (distinct-term-scan optimizer)
         suite.addTest(TestDistinctTermScanOptimizer.suite());
 
+        // Sort-merge join of statement patterns ordered on a shared variable.
+        suite.addTestSuite(TestSortMergeJoin.class);
+
+        // Leapfrog triejoin of cyclic statement patterns.
+        suite.addTestSuite(TestLeapfrogTriejoin.class);
+
         // SELECT (COUNT(*) as ?count) ?z WHERE {  ?x rdf:type ?z  } GROUP BY ?z
         // @see #1059 (combination of fast-range-count and distinct-term-scan)
         suite.addTest(TestSimpleGroupByAndCountOptimizer.suite());
@@ -0,0 +1,143 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sparql.ast.eval;
+
+import java.util.Properties;
+
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.join.LeapfrogTriejoinOp;
+import com.bigdata.rdf.sparql.ast.QueryHints;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * SPARQL level test suite for the {@link LeapfrogTriejoinOp}.
+ * 
+ * @see QueryHints#LEAPFROG_TRIEJOIN
+ */
+public class TestLeapfrogTriejoin extends AbstractDataDrivenSPARQLTestCase {
+
+    public TestLeapfrogTriejoin() {
+    }
+
+    public TestLeapfrogTriejoin(String name) {
+        super(name);
+    }
+
+    @Override
+    public Properties getProperties() {
+
+        final Properties properties = new Properties(super.getProperties());
+
+        // turn off quads.
+        properties.setProperty(AbstractTripleStore.Options.QUADS, "false");
+
+        // turn on triples
+        properties.setProperty(AbstractTripleStore.Options.TRIPLES_MODE,
+                "true");
+
+        return properties;
+
+    }
+
+    /**
+     * A triangle query. Each triangle is reported once for each of its
+     * rotations. The leapfrog triejoin is enabled by a query hint.
+     * 
+     * <pre>
+     * SELECT ?a ?b ?c WHERE { ?a :knows ?b . ?b :knows ?c . ?c :knows ?a . }
+     * </pre>
+     */
+    public void test_leapfrogTriejoin_01() throws Exception {
+
+        final TestHelper h = new TestHelper("leapfrogTriejoin_01", // testURI,
+                "leapfrogTriejoin_01.rq",// queryFileURL
+                "leapfrogTriejoin_01.ttl",// dataFileURL
+                "leapfrogTriejoin_01.srx"// resultFileURL
+        );
+
+        h.runTest();
+
+        // Verify that one LeapfrogTriejoinOp was used for all three patterns.
+        assertEquals(
+                1,
+                BOpUtility.toList(h.getASTContainer().getQueryPlan(),
+                        LeapfrogTriejoinOp.class).size());
+
+    }
+
+    /**
+     * Correct rejection test when the leapfrog triejoin is disabled by a query
+     * hint.
+     */
+    public void test_leapfrogTriejoin_01b() throws Exception {
+
+        final TestHelper h = new TestHelper("leapfrogTriejoin_01b", // testURI,
+                "leapfrogTriejoin_01b.rq",// queryFileURL
+                "leapfrogTriejoin_01.ttl",// dataFileURL
+                "leapfrogTriejoin_01.srx"// resultFileURL
+        );
+
+        h.runTest();
+
+        assertEquals(
+                0,
+                BOpUtility.toList(h.getASTContainer().getQueryPlan(),
+                        LeapfrogTriejoinOp.class).size());
+
+    }
+
+    /**
+     * A triangle query with a join filter, which is evaluated by the leapfrog
+     * triejoin once all of the variables are bound. The leapfrog triejoin is
+     * enabled by a query hint.
+     * 
+     * <pre>
+     * SELECT ?a ?b ?c WHERE {
+     *   ?a :knows ?b . ?b :knows ?c . ?c :knows ?a . FILTER(?a != :a)
+     * }
+     * </pre>
+     */
+    public void test_leapfrogTriejoin_02() throws Exception {
+
+        final TestHelper h = new TestHelper("leapfrogTriejoin_02", // testURI,
+                "leapfrogTriejoin_02.rq",// queryFileURL
+                "leapfrogTriejoin_01.ttl",// dataFileURL
+                "leapfrogTriejoin_02.srx"// resultFileURL
+        );
+
+        h.runTest();
+
+        assertEquals(
+                1,
+                BOpUtility.toList(h.getASTContainer().getQueryPlan(),
+                        LeapfrogTriejoinOp.class).size());
+
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sparql.ast.eval;
+
+import java.util.Properties;
+
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.join.SortMergeJoinOp;
+import com.bigdata.rdf.sparql.ast.QueryHints;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * SPARQL level test suite for the {@link SortMergeJoinOp}.
+ * 
+ * @see QueryHints#SORT_MERGE_JOIN
+ */
+public class TestSortMergeJoin extends AbstractDataDrivenSPARQLTestCase {
+
+    public TestSortMergeJoin() {
+    }
+
+    public TestSortMergeJoin(String name) {
+        super(name);
+    }
+
+    @Override
+    public Properties getProperties() {
+
+        final Properties properties = new Properties(super.getProperties());
+
+        // turn off quads.
+        properties.setProperty(AbstractTripleStore.Options.QUADS, "false");
+
+        // turn on triples
+        properties.setProperty(AbstractTripleStore.Options.TRIPLES_MODE,
+                "true");
+
+        return properties;
+
+    }
+
+    /**
+     * Correct rejection test for a join on the subject. The SPO index would be
+     * read for both statement patterns with the join variable as the first
+     * component of the key, which is a full index scan. The plan must not use
+     * the sort-merge join even though it is enabled by a query hint.
+     * 
+     * <pre>
+     * SELECT ?s ?a ?b WHERE { ?s :p1 ?a . ?s :p2 ?b . }
+     * </pre>
+     */
+    public void test_sortMergeJoin_01() throws Exception {
+
+        final TestHelper h = new TestHelper("sortMergeJoin_01", // testURI,
+                "sortMergeJoin_01.rq",// queryFileURL
+                "sortMergeJoin_01.ttl",// dataFileURL
+                "sortMergeJoin_01.srx"// resultFileURL
+        );
+
+        h.runTest();
+
+        // Verify that the SortMergeJoinOp was NOT used in the query plan.
+        assertEquals(
+                0,
+                BOpUtility.toList(h.getASTContainer().getQueryPlan(),
+                        SortMergeJoinOp.class).size());
+
+    }
+
+    /**
+     * Correct rejection test when the sort-merge join is disabled by a query
+     * hint.
+     */
+    public void test_sortMergeJoin_01b() throws Exception {
+
+        final TestHelper h = new TestHelper("sortMergeJoin_01b", // testURI,
+                "sortMergeJoin_01b.rq",// queryFileURL
+                "sortMergeJoin_01.ttl",// dataFileURL
+                "sortMergeJoin_01.srx"// resultFileURL
+        );
+
+        h.runTest();
+
+        assertEquals(
+                0,
+                BOpUtility.toList(h.getASTContainer().getQueryPlan(),
+                        SortMergeJoinOp.class).size());
+
+    }
+
+    /**
+     * A join on the object, which reads the POS index for both statement
+     * patterns.
+     * 
+     * <pre>
+     * SELECT ?x ?y ?o WHERE { ?x :p1 ?o . ?y :p2 ?o . }
+     * </pre>
+     */
+    public void test_sortMergeJoin_02() throws Exception {
+
+        final TestHelper h = new TestHelper("sortMergeJoin_02", // testURI,
+                "sortMergeJoin_02.rq",// queryFileURL
+                "sortMergeJoin_01.ttl",// dataFileURL
+                "sortMergeJoin_02.srx"// resultFileURL
+        );
+
+        h.runTest();
+
+        // Verify that the SortMergeJoinOp was used in the query plan.
+        assertEquals(
+                1,
+                BOpUtility.toList(h.getASTContainer().getQueryPlan(),
+                        SortMergeJoinOp.class).size());
+
+    }
+
+    /**
+     * Correct rejection test when the sort-merge join is not enabled by a
+     * query hint (it is disabled by default).
+     * 
+     * @see QueryHints#DEFAULT_SORT_MERGE_JOIN
+     */
+    public void test_sortMergeJoin_02b() throws Exception {
+
+        final TestHelper h = new TestHelper("sortMergeJoin_02b", // testURI,
+                "sortMergeJoin_02b.rq",// queryFileURL
+                "sortMergeJoin_01.ttl",// dataFileURL
+                "sortMergeJoin_02.srx"// resultFileURL
+        );
+
+        h.runTest();
+
+        assertEquals(
+                0,
+                BOpUtility.toList(h.getASTContainer().getQueryPlan(),
+                        SortMergeJoinOp.class).size());
+
+    }
+
+}
@@ -134,6 +134,9 @@ public class TestAll extends TestCase {
         // Unit tests for static join ordering optimizer.
         suite.addTestSuite(TestASTStaticJoinOptimizer.class);
 
+        // test suite for the statistics catalog used by the static optimizer.
+        suite.addTestSuite(TestStatisticsCatalog.class);
+
         // Unit tests for optimizer which attaches join filters to SPs.
         suite.addTestSuite(TestASTAttachJoinFiltersOptimizer.class);
         
@@ -0,0 +1,272 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.rdf.sparql.ast.optimizers;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.openrdf.model.vocabulary.RDF;
+
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.sparql.ast.ASTContainer;
+import com.bigdata.rdf.sparql.ast.AbstractASTEvaluationTestCase;
+import com.bigdata.rdf.sparql.ast.ConstantNode;
+import com.bigdata.rdf.sparql.ast.IBindingProducerNode;
+import com.bigdata.rdf.sparql.ast.IReorderableNode;
+import com.bigdata.rdf.sparql.ast.JoinGroupNode;
+import com.bigdata.rdf.sparql.ast.ProjectionNode;
+import com.bigdata.rdf.sparql.ast.QueryRoot;
+import com.bigdata.rdf.sparql.ast.QueryType;
+import com.bigdata.rdf.sparql.ast.StatementPatternNode;
+import com.bigdata.rdf.sparql.ast.StaticAnalysis;
+import com.bigdata.rdf.sparql.ast.VarNode;
+import com.bigdata.rdf.sparql.ast.eval.AST2BOpBase;
+import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
+import com.bigdata.rdf.sparql.ast.optimizers.StatisticsCatalog.CharacteristicSet;
+import com.bigdata.rdf.sparql.ast.optimizers.StatisticsCatalog.PredicateStatistics;
+
+/**
+ * Test suite for the {@link StatisticsCatalog} and its use by the
+ * {@link StaticOptimizer}.
+ */
+public class TestStatisticsCatalog extends AbstractASTEvaluationTestCase {
+
+    public TestStatisticsCatalog() {
+    }
+
+    public TestStatisticsCatalog(final String name) {
+        super(name);
+    }
+
+    /**
+     * Build a catalog from a small KB and verify the per-predicate statistics,
+     * the characteristic sets and the star join estimates.
+     */
+    @SuppressWarnings("rawtypes")
+    public void test_build() {
+
+        final BigdataURI a1 = valueFactory.createURI("http://example.org/a1");
+        final BigdataURI a2 = valueFactory.createURI("http://example.org/a2");
+        final BigdataURI a3 = valueFactory.createURI("http://example.org/a3");
+        final BigdataURI b1 = valueFactory.createURI("http://example.org/b1");
+        final BigdataURI A = valueFactory.createURI("http://example.org/A");
+        final BigdataURI name = valueFactory.createURI("http://example.org/name");
+        final BigdataURI knows = valueFactory.createURI("http://example.org/knows");
+        final BigdataURI type = valueFactory.asValue(RDF.TYPE);
+        final BigdataURI g = valueFactory.createURI("http://example.org/g");
+
+        final BigdataLiteral n1 = valueFactory.createLiteral("one");
+        final BigdataLiteral n2 = valueFactory.createLiteral("two");
+        final BigdataLiteral n3 = valueFactory.createLiteral("three");
+        final BigdataLiteral n4 = valueFactory.createLiteral("four");
+
+        store.addStatement(a1, type, A, g);
+        store.addStatement(a2, type, A, g);
+        store.addStatement(a3, type, A, g);
+        store.addStatement(a1, name, n1, g);
+        store.addStatement(a2, name, n2, g);
+        store.addStatement(a3, name, n3, g);
+        store.addStatement(b1, name, n4, g);
+        store.addStatement(a1, knows, b1, g);
+        store.addStatement(a2, knows, b1, g);
+        store.addStatement(a1, knows, a2, g);
+
+        store.commit();
+
+        final IV typeIV = store.getIV(type);
+        final IV nameIV = store.getIV(name);
+        final IV knowsIV = store.getIV(knows);
+
+        final StatisticsCatalog catalog = StatisticsCatalog.build(store,
+                store.getIndexManager().getLastCommitTime(), 100/* maxCharacteristicSets */);
+
+        assertEquals(3, catalog.getPredicateCount());
+        assertEquals(10L, catalog.getStatementCount());
+        assertFalse(catalog.isTruncated());
+
+        assertEquals(3L, catalog.get(typeIV).getStatementCount());
+        assertEquals(3L, catalog.get(typeIV).getDistinctSubjects());
+        assertEquals(1L, catalog.get(typeIV).getDistinctObjects());
+
+        assertEquals(4L, catalog.get(nameIV).getStatementCount());
+        assertEquals(4L, catalog.get(nameIV).getDistinctSubjects());
+        assertEquals(4L, catalog.get(nameIV).getDistinctObjects());
+
+        assertEquals(3L, catalog.get(knowsIV).getStatementCount());
+        assertEquals(2L, catalog.get(knowsIV).getDistinctSubjects());
+        assertEquals(2L, catalog.get(knowsIV).getDistinctObjects());
+
+        // {type,name,knows}, {type,name} and {name}.
+        assertEquals(3, catalog.getCharacteristicSets().size());
+
+        assertEquals(4L, catalog.getStarSubjectCount(Arrays.asList(nameIV)));
+        assertEquals(3L, catalog.getStarSubjectCount(Arrays.asList(typeIV,
+                nameIV)));
+        assertEquals(2L, catalog.getStarSubjectCount(Arrays.asList(typeIV,
+                knowsIV)));
+
+        // ?x rdf:type ?t . ?x :knows ?y has 3 solutions.
+        assertEquals(3d, catalog.estimateStar(
+                Arrays.asList(typeIV, knowsIV), 1d/* selectivity */));
+
+        // Too many characteristic sets.
+        final StatisticsCatalog truncated = StatisticsCatalog.build(store,
+                store.getIndexManager().getLastCommitTime(), 1/* maxCharacteristicSets */);
+
+        assertTrue(truncated.isTruncated());
+        assertEquals(-1L, truncated.getStarSubjectCount(Arrays.asList(nameIV)));
+        assertEquals(3L, truncated.get(typeIV).getDistinctSubjects());
+
+    }
+
+    private static final IV<?, ?> type = new TermId<BigdataURI>(VTE.URI, 1L);
+
+    private static final IV<?, ?> knows = new TermId<BigdataURI>(VTE.URI, 2L);
+
+    private static final IV<?, ?> A = new TermId<BigdataURI>(VTE.URI, 3L);
+
+    /**
+     * A synthetic catalog: 1000 typed subjects of which 100 also know someone
+     * and 400 other subjects which know someone.
+     */
+    @SuppressWarnings("rawtypes")
+    private static StatisticsCatalog newCatalog() {
+
+        final Map<IV, PredicateStatistics> predicates = new LinkedHashMap<IV, PredicateStatistics>();
+
+        predicates.put(type, new PredicateStatistics(1000L, 1000L, 10L));
+
+        predicates.put(knows, new PredicateStatistics(5000L, 500L, 800L));
+
+        final List<CharacteristicSet> sets = new LinkedList<CharacteristicSet>();
+
+        sets.add(new CharacteristicSet(StatisticsCatalog.asSet(type, knows),
+                100L));
+
+        sets.add(new CharacteristicSet(StatisticsCatalog.asSet(type), 900L));
+
+        sets.add(new CharacteristicSet(StatisticsCatalog.asSet(knows), 400L));
+
+        return new StatisticsCatalog(0L/* commitTime */, 6000L, predicates,
+                sets, false/* truncated */);
+
+    }
+
+    private static StatementPatternNode newSP(final String s, final IV<?, ?> p,
+            final Object o, final long cardinality) {
+
+        final StatementPatternNode sp = new StatementPatternNode(
+                new VarNode(s), new ConstantNode(p),
+                o instanceof String ? new VarNode((String) o)
+                        : new ConstantNode((IV<?, ?>) o));
+
+        sp.setProperty(AST2BOpBase.Annotations.ESTIMATED_CARDINALITY,
+                cardinality);
+
+        return sp;
+
+    }
+
+    private long getCardinality(final StatisticsCatalog catalog,
+            final StatementPatternNode... sps) {
+
+        final QueryRoot queryRoot = new QueryRoot(QueryType.SELECT);
+
+        final ProjectionNode projection = new ProjectionNode();
+        projection.addProjectionVar(new VarNode("x"));
+        queryRoot.setProjection(projection);
+
+        final JoinGroupNode where = new JoinGroupNode();
+
+        final List<IReorderableNode> nodes = new LinkedList<IReorderableNode>();
+
+        for (StatementPatternNode sp : sps) {
+            where.addChild(sp);
+            nodes.add(sp);
+        }
+
+        queryRoot.setWhereClause(where);
+
+        final AST2BOpContext context = new AST2BOpContext(new ASTContainer(
+                queryRoot), store);
+
+        return new StaticOptimizer(new StaticAnalysis(queryRoot, context),
+                new IBindingProducerNode[0], nodes, 0.5d/* optimistic */,
+                catalog).getCardinality();
+
+    }
+
+    /**
+     * A star join on a shared subject is estimated from the characteristic
+     * sets.
+     * 
+     * <pre>
+     * ?x rdf:type :A . ?x :knows ?y
+     * </pre>
+     */
+    public void test_starJoin() {
+
+        // 0.5 * min + 0.5 * max
+        assertEquals(2550L, getCardinality(null/* catalog */,
+                newSP("x", type, A, 100L), newSP("x", knows, "y", 5000L)));
+
+        // 100 subjects * fan-out 1 * fan-out 10 * selectivity 0.1
+        assertEquals(100L, getCardinality(newCatalog(),
+                newSP("x", type, A, 100L), newSP("x", knows, "y", 5000L)));
+
+    }
+
+    /**
+     * A join on a variable which is the object of one pattern and the subject
+     * of the other is estimated from the #of distinct values.
+     * 
+     * <pre>
+     * ?z :knows ?x . ?x rdf:type :A
+     * </pre>
+     */
+    public void test_chainJoin() {
+
+        assertEquals(2550L, getCardinality(null/* catalog */,
+                newSP("z", knows, "x", 5000L), newSP("x", type, A, 100L)));
+
+        // 5000 * 100 / max(800, 100)
+        assertEquals(625L, getCardinality(newCatalog(),
+                newSP("z", knows, "x", 5000L), newSP("x", type, A, 100L)));
+
+    }
+
+}
@@ -8,6 +8,7 @@ import org.openrdf.query.TupleQueryResult;
 import org.openrdf.query.algebra.evaluation.QueryBindingSet;
 import org.openrdf.repository.sail.SailTupleQuery;
 
+import com.bigdata.bop.IBindingSet;
 import com.bigdata.rdf.sparql.ast.ASTContainer;
 import com.bigdata.rdf.sparql.ast.BindingsClause;
 import com.bigdata.rdf.sparql.ast.DatasetNode;
@@ -15,6 +16,8 @@ import com.bigdata.rdf.sparql.ast.QueryRoot;
 import com.bigdata.rdf.sparql.ast.eval.ASTEvalHelper;
 import com.bigdata.rdf.store.AbstractTripleStore;
 
+import cutthecrap.utils.striterators.ICloseableIterator;
+
 public class BigdataSailTupleQuery extends SailTupleQuery 
         implements BigdataSailQuery {
 
@@ -98,6 +101,36 @@ public class BigdataSailTupleQuery extends SailTupleQuery
 
     }
     
+    /**
+     * Evaluate the query without converting the solutions into openrdf
+     * {@link org.openrdf.query.BindingSet}s. The projected variables are
+     * materialized, except that inline {@link com.bigdata.rdf.internal.IV}s
+     * might not have their cached RDF Value set. The projection is available
+     * from the optimized AST once this method returns.
+     * 
+     * @return An iterator visiting chunks of solutions. The caller MUST close
+     *         the iterator.
+     * 
+     * @see ASTEvalHelper#evaluateTupleQuery2(AbstractTripleStore,
+     *      ASTContainer, QueryBindingSet, boolean)
+     */
+    public ICloseableIterator<IBindingSet[]> evaluateSolutions()
+            throws QueryEvaluationException {
+
+        final QueryRoot originalQuery = astContainer.getOriginalAST();
+
+        if (getMaxQueryTime() > 0)
+            originalQuery.setTimeout(TimeUnit.SECONDS
+                    .toMillis(getMaxQueryTime()));
+
+        originalQuery.setIncludeInferred(getIncludeInferred());
+
+        return ASTEvalHelper.evaluateTupleQuery2(getTripleStore(),
+                astContainer, new QueryBindingSet(getBindings()),
+                true/* materialize */);
+
+    }
+
     public QueryRoot optimize() throws QueryEvaluationException {
 
         return optimize((BindingsClause) null);
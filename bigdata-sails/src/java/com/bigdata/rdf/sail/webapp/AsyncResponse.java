@@ -0,0 +1,855 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sail.webapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.util.LinkedList;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A response wrapper which writes the response using Servlet 3.1 non-blocking
+ * I/O. The thread which produces the response (e.g., the thread running a
+ * SPARQL query) writes onto a {@link ProducerOutputStream}. The produced bytes
+ * are queued and handed off to the container as the client is able to accept
+ * them, as signaled by the {@link WriteListener}. Up to a configured #of bytes
+ * are buffered in memory. Up to a second configured #of bytes beyond that are
+ * spilled onto a temporary file and read back in FIFO order. This decouples
+ * the query from the rate at which the client consumes the response, so the
+ * query thread (and its read locks and native memory) are released as soon
+ * as the query has produced its last solution rather than when the last byte
+ * has been transferred to a slow client. Once both limits are reached, the
+ * producer blocks until the client has accepted enough of the response, just
+ * as it would for blocking I/O.
+ * <p>
+ * Note: Only the transfer of the response is asynchronous. The servlet
+ * itself is not. The request thread still waits for the task which produces
+ * the response to finish, so one request thread is held per running query.
+ * <p>
+ * If the client disconnects, then the next write by the producer will throw
+ * an {@link IOException} and the query will be cancelled, just as it would
+ * be for blocking I/O.
+ * <p>
+ * Note: The async request is completed once the producer has closed the
+ * stream (or {@link #done(HttpServletResponse)} was invoked) and all buffered
+ * bytes have been written to the client.
+ * 
+ * @see ConfigParams#ASYNC_RESPONSE_BUFFER_BYTES
+ */
+public class AsyncResponse extends HttpServletResponseWrapper {
+
+    static private final transient Logger log = Logger
+            .getLogger(AsyncResponse.class);
+
+    /**
+     * Wrap the response for non-blocking I/O.
+     * 
+     * @param req
+     *            The request.
+     * @param resp
+     *            The response.
+     * @param maxMemory
+     *            The maximum #of bytes to buffer in memory before spilling
+     *            onto a temporary file.
+     * @param maxSpill
+     *            The maximum #of bytes to spill onto the temporary file before
+     *            the producer blocks -or- ZERO (0) to never spill.
+     * 
+     * @return The wrapped response -or- <i>resp</i> if async processing is
+     *         not supported for the request, has already been started, or
+     *         <i>maxMemory</i> is ZERO (0).
+     * 
+     * @throws IOException
+     */
+    static public HttpServletResponse startAsync(final HttpServletRequest req,
+            final HttpServletResponse resp, final long maxMemory,
+            final long maxSpill) throws IOException {
+
+        if (maxMemory <= 0L || !req.isAsyncSupported() || req.isAsyncStarted()
+                || resp.isCommitted()) {
+
+            return resp;
+
+        }
+
+        if (maxSpill < 0L)
+            throw new IllegalArgumentException();
+
+        final AsyncContext asyncContext = req.startAsync(req, resp);
+
+        // The response is completed by the producer, not by a timeout.
+        asyncContext.setTimeout(0L);
+
+        return new AsyncResponse(resp, asyncContext, maxMemory, maxSpill);
+
+    }
+
+    /**
+     * Close the response if it was wrapped by
+     * {@link #startAsync(HttpServletRequest, HttpServletResponse, long, long)}. The
+     * async request will be completed once all buffered bytes have been
+     * written. This is a NOP for any other response and may be invoked more
+     * than once.
+     * 
+     * @param resp
+     *            The response.
+     */
+    static public void done(final HttpServletResponse resp) {
+
+        if (resp instanceof AsyncResponse) {
+
+            ((AsyncResponse) resp).close();
+
+        }
+
+    }
+
+    private final ProducerOutputStream os;
+
+    private PrintWriter writer = null;
+
+    private boolean usingOutputStream = false;
+
+    private AsyncResponse(final HttpServletResponse resp,
+            final AsyncContext asyncContext, final long maxMemory,
+            final long maxSpill) throws IOException {
+
+        super(resp);
+
+        final ServletOutputStream out = resp.getOutputStream();
+
+        os = new ProducerOutputStream(out, maxMemory, maxSpill) {
+
+            @Override
+            protected void complete() {
+
+                asyncContext.complete();
+
+            }
+
+        };
+
+        out.setWriteListener(os);
+
+    }
+
+    @Override
+    synchronized public ServletOutputStream getOutputStream() {
+
+        if (writer != null)
+            throw new IllegalStateException("getWriter() already invoked");
+
+        usingOutputStream = true;
+
+        return os;
+
+    }
+
+    @Override
+    synchronized public PrintWriter getWriter() throws IOException {
+
+        if (usingOutputStream)
+            throw new IllegalStateException("getOutputStream() already invoked");
+
+        if (writer == null) {
+
+            writer = new PrintWriter(new OutputStreamWriter(os,
+                    getCharacterEncoding()));
+
+        }
+
+        return writer;
+
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+
+        final PrintWriter w;
+        synchronized (this) {
+            w = writer;
+        }
+
+        if (w != null)
+            w.flush();
+
+        os.flush();
+
+    }
+
+    /**
+     * Reports <code>true</code> once any bytes have been handed off to the
+     * container since the status and headers can no longer be changed.
+     */
+    @Override
+    public boolean isCommitted() {
+
+        return os.isWriting() || super.isCommitted();
+
+    }
+
+    @Override
+    public void resetBuffer() {
+
+        if (isCommitted())
+            throw new IllegalStateException();
+
+        os.discard();
+
+        super.resetBuffer();
+
+    }
+
+    @Override
+    public void reset() {
+
+        if (isCommitted())
+            throw new IllegalStateException();
+
+        os.discard();
+
+        super.reset();
+
+    }
+
+    private void close() {
+
+        try {
+
+            final PrintWriter w;
+            synchronized (this) {
+                w = writer;
+            }
+
+            if (w != null) {
+                w.close();
+            } else {
+                os.close();
+            }
+
+        } catch (IOException ex) {
+
+            // Client is gone. The async request was already completed.
+            if (log.isInfoEnabled())
+                log.info(ex);
+
+        }
+
+    }
+
+    /**
+     * An {@link ServletOutputStream} which does not block the producer until
+     * a bounded amount of the response is waiting for the client. Bytes are
+     * accumulated into fixed size chunks which are queued for the container.
+     * The chunks are held in memory up to a limit and then spilled onto a
+     * temporary file up to a second limit. Beyond that, the producer waits
+     * until the queue has been drained far enough for the next chunk. The
+     * queue is drained by whichever thread observes that the container is
+     * able to accept more data (either the producer or the container thread
+     * running {@link WriteListener#onWritePossible()}).
+     */
+    static abstract class ProducerOutputStream extends ServletOutputStream
+            implements WriteListener {
+
+        /**
+         * The size of the chunks handed off to the container.
+         */
+        static final int CHUNK_SIZE = 8192;
+
+        /**
+         * The container's output stream.
+         */
+        private final ServletOutputStream out;
+
+        /**
+         * The maximum #of bytes buffered in memory.
+         */
+        private final long maxMemory;
+
+        /**
+         * The maximum #of bytes on the spill file.
+         */
+        private final long maxSpill;
+
+        /**
+         * Full chunks which are buffered in memory (FIFO).
+         */
+        private final LinkedList<byte[]> queue = new LinkedList<byte[]>();
+
+        /**
+         * The #of bytes in {@link #queue}.
+         */
+        private long memoryBytes = 0L;
+
+        /**
+         * The chunk which is being filled by the producer.
+         */
+        private byte[] chunk = new byte[CHUNK_SIZE];
+
+        /**
+         * The #of bytes in {@link #chunk}.
+         */
+        private int chunkLen = 0;
+
+        /**
+         * The spill file (lazily created) and the offsets at which the next
+         * chunk will be written and read. Chunks are only written onto the
+         * spill file once the memory limit is reached and continue to be
+         * written onto the file until it has been drained so the bytes are
+         * always handed off in the order in which they were produced.
+         */
+        private File spillFile = null;
+        private RandomAccessFile spill = null;
+        private long spillWriteOffset = 0L;
+        private long spillReadOffset = 0L;
+
+        /**
+         * <code>true</code> once the producer has closed the stream.
+         */
+        private boolean closed = false;
+
+        /**
+         * <code>true</code> if the producer has requested a flush which has
+         * not yet been passed on to the container.
+         */
+        private boolean flushRequested = false;
+
+        /**
+         * <code>true</code> once the async request has been completed.
+         */
+        private boolean completed = false;
+
+        /**
+         * Guards against reentrant invocations of {@link #drain()}.
+         */
+        private boolean draining = false;
+
+        /**
+         * The #of bytes handed off to the container.
+         */
+        private long bytesWritten = 0L;
+
+        /**
+         * The #of bytes which were spilled onto the temporary file.
+         */
+        private long bytesSpilled = 0L;
+
+        /**
+         * The error reported by the container (typically because the client
+         * disconnected).
+         */
+        private Throwable cause = null;
+
+        ProducerOutputStream(final ServletOutputStream out,
+                final long maxMemory, final long maxSpill) {
+
+            if (out == null)
+                throw new IllegalArgumentException();
+
+            if (maxMemory <= 0L)
+                throw new IllegalArgumentException();
+
+            if (maxSpill < 0L)
+                throw new IllegalArgumentException();
+
+            this.out = out;
+
+            this.maxMemory = maxMemory;
+
+            this.maxSpill = maxSpill;
+
+        }
+
+        /**
+         * Complete the async request. This is invoked exactly once, after
+         * the producer closed the stream and all bytes were written -or- the
+         * container reported an error.
+         */
+        abstract protected void complete();
+
+        /**
+         * The producer is always permitted to write. It blocks (within the
+         * write) only once the memory and spill limits have been reached.
+         */
+        @Override
+        public boolean isReady() {
+
+            return true;
+
+        }
+
+        @Override
+        public void setWriteListener(final WriteListener writeListener) {
+
+            throw new UnsupportedOperationException();
+
+        }
+
+        synchronized boolean isWriting() {
+
+            return bytesWritten > 0L;
+
+        }
+
+        /**
+         * The #of bytes which were spilled onto the temporary file.
+         */
+        synchronized long getBytesSpilled() {
+
+            return bytesSpilled;
+
+        }
+
+        /**
+         * The #of bytes buffered and not yet handed off to the container.
+         */
+        synchronized long getBytesBuffered() {
+
+            return memoryBytes + chunkLen
+                    + (spillWriteOffset - spillReadOffset);
+
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+
+            write(new byte[] { (byte) b }, 0, 1);
+
+        }
+
+        @Override
+        public void write(final byte[] b, int off, int len)
+                throws IOException {
+
+            synchronized (this) {
+
+                assertOpen();
+
+                while (len > 0) {
+
+                    final int n = Math.min(len, CHUNK_SIZE - chunkLen);
+
+                    System.arraycopy(b, off, chunk, chunkLen, n);
+
+                    chunkLen += n;
+                    off += n;
+                    len -= n;
+
+                    if (chunkLen == CHUNK_SIZE)
+                        enqueueChunk();
+
+                }
+
+            }
+
+            drain();
+
+        }
+
+        @Override
+        public void flush() throws IOException {
+
+            synchronized (this) {
+
+                assertOpen();
+
+                enqueueChunk();
+
+                flushRequested = true;
+
+            }
+
+            drain();
+
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            synchronized (this) {
+
+                if (closed)
+                    return;
+
+                if (cause == null)
+                    enqueueChunk();
+
+                closed = true;
+
+            }
+
+            drain();
+
+            synchronized (this) {
+
+                if (cause != null)
+                    throw new IOException(cause);
+
+            }
+
+        }
+
+        /**
+         * Discard any bytes which have not been handed off to the container.
+         */
+        synchronized void discard() {
+
+            queue.clear();
+            memoryBytes = 0L;
+            chunkLen = 0;
+            spillWriteOffset = spillReadOffset = 0L;
+
+            notifyAll();
+
+        }
+
+        private void assertOpen() throws IOException {
+
+            if (cause != null)
+                throw new IOException("Client disconnected?", cause);
+
+            if (closed)
+                throw new IOException("Closed");
+
+        }
+
+        /**
+         * Queue the partial chunk (if any) either in memory or on the spill
+         * file. If neither has room for the chunk, then the producer blocks
+         * until enough bytes have been handed off to the container.
+         */
+        private void enqueueChunk() throws IOException {
+
+            if (chunkLen == 0)
+                return;
+
+            while (!(spillWriteOffset == spillReadOffset && memoryBytes
+                    + chunkLen <= maxMemory)
+                    && spillWriteOffset - spillReadOffset + chunkLen > maxSpill) {
+
+                awaitDrain();
+
+            }
+
+            if (spillWriteOffset == spillReadOffset
+                    && memoryBytes + chunkLen <= maxMemory) {
+
+                if (chunkLen == CHUNK_SIZE) {
+
+                    queue.add(chunk);
+
+                } else {
+
+                    final byte[] a = new byte[chunkLen];
+
+                    System.arraycopy(chunk, 0, a, 0, chunkLen);
+
+                    queue.add(a);
+
+                }
+
+                memoryBytes += chunkLen;
+
+                chunk = new byte[CHUNK_SIZE];
+
+            } else {
+
+                if (spill == null) {
+
+                    spillFile = File.createTempFile("response", ".spill");
+
+                    spill = new RandomAccessFile(spillFile, "rw");
+
+                    if (log.isInfoEnabled())
+                        log.info("Spilling response: file=" + spillFile);
+
+                }
+
+                spill.seek(spillWriteOffset);
+
+                spill.write(chunk, 0, chunkLen);
+
+                spillWriteOffset += chunkLen;
+
+                bytesSpilled += chunkLen;
+
+            }
+
+            chunkLen = 0;
+
+        }
+
+        /**
+         * Hand off what the container will accept now and, if that does not
+         * free up any room, wait until the container thread drains the queue
+         * or reports an error.
+         */
+        private void awaitDrain() throws IOException {
+
+            final long before = bytesWritten;
+
+            drain();
+
+            if (bytesWritten == before) {
+
+                if (cause == null && !completed) {
+
+                    try {
+
+                        wait();
+
+                    } catch (InterruptedException ex) {
+
+                        throw new InterruptedIOException();
+
+                    }
+
+                }
+
+            }
+
+            if (cause != null)
+                throw new IOException("Client disconnected?", cause);
+
+            if (completed)
+                throw new IOException("Closed");
+
+        }
+
+        /**
+         * Return the next chunk to be handed off to the container -or-
+         * <code>null</code> if there is nothing queued.
+         */
+        private byte[] nextChunk() throws IOException {
+
+            if (!queue.isEmpty()) {
+
+                final byte[] a = queue.removeFirst();
+
+                memoryBytes -= a.length;
+
+                return a;
+
+            }
+
+            if (spillReadOffset < spillWriteOffset) {
+
+                final byte[] a = new byte[(int) Math.min(CHUNK_SIZE,
+                        spillWriteOffset - spillReadOffset)];
+
+                spill.seek(spillReadOffset);
+
+                spill.readFully(a);
+
+                spillReadOffset += a.length;
+
+                if (spillReadOffset == spillWriteOffset) {
+
+                    // Drained. Reuse the file from the start.
+                    spillReadOffset = spillWriteOffset = 0L;
+
+                }
+
+                return a;
+
+            }
+
+            return null;
+
+        }
+
+        /**
+         * Hand off queued chunks to the container for as long as it is able
+         * to accept them without blocking. The async request is completed
+         * once the producer has closed the stream and the last chunk was
+         * written.
+         */
+        private void drain() {
+
+            synchronized (this) {
+
+                if (draining || completed)
+                    return;
+
+                draining = true;
+
+                try {
+
+                    while (cause == null && out.isReady()) {
+
+                        final byte[] a = nextChunk();
+
+                        if (a != null) {
+
+                            out.write(a);
+
+                            bytesWritten += a.length;
+
+                            continue;
+
+                        }
+
+                        if (closed) {
+
+                            done();
+
+                        } else if (flushRequested) {
+
+                            flushRequested = false;
+
+                            out.flush();
+
+                            continue;
+
+                        }
+
+                        break;
+
+                    }
+
+                    if (cause != null && closed)
+                        done();
+
+                } catch (IOException ex) {
+
+                    if (cause == null)
+                        cause = ex;
+
+                    if (closed)
+                        done();
+
+                } finally {
+
+                    draining = false;
+
+                    // Wake up a producer waiting for room in the queue.
+                    notifyAll();
+
+                }
+
+            }
+
+        }
+
+        /**
+         * Release the spill file and complete the async request.
+         */
+        private void done() {
+
+            if (completed)
+                return;
+
+            completed = true;
+
+            queue.clear();
+
+            memoryBytes = 0L;
+
+            if (spill != null) {
+
+                try {
+                    spill.close();
+                } catch (IOException ex) {
+                    log.warn(ex);
+                }
+
+                if (!spillFile.delete())
+                    log.warn("Could not delete: " + spillFile);
+
+                spill = null;
+
+            }
+
+            if (log.isDebugEnabled())
+                log.debug("bytesWritten=" + bytesWritten + ", bytesSpilled="
+                        + bytesSpilled + ", cause=" + cause);
+
+            try {
+
+                complete();
+
+            } catch (IllegalStateException ex) {
+
+                // Already completed by the container.
+                if (log.isInfoEnabled())
+                    log.info(ex);
+
+            }
+
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+
+            drain();
+
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+
+            synchronized (this) {
+
+                if (cause == null)
+                    cause = t;
+
+                if (log.isInfoEnabled())
+                    log.info("Response aborted: " + t);
+
+                // Release the buffered data now. The producer will fail on
+                // its next write (or when it closes the stream).
+                queue.clear();
+                memoryBytes = 0L;
+                chunkLen = 0;
+                spillWriteOffset = spillReadOffset = 0L;
+
+                if (closed)
+                    done();
+
+                notifyAll();
+
+            }
+
+        }
+
+    }
+
+}
@@ -43,6 +43,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -72,6 +74,8 @@ import org.openrdf.rio.RDFWriter;
 import org.openrdf.rio.RDFWriterRegistry;
 
 import com.bigdata.BigdataStatics;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
 import com.bigdata.bop.engine.IRunningQuery;
 import com.bigdata.bop.engine.QueryEngine;
 import com.bigdata.bop.fed.QueryEngineFactory;
@@ -85,6 +89,8 @@ import com.bigdata.journal.Journal;
 import com.bigdata.journal.TimestampUtility;
 import com.bigdata.rdf.changesets.IChangeLog;
 import com.bigdata.rdf.changesets.IChangeRecord;
+import com.bigdata.rdf.rio.solutions.AbstractIVSolutionWriter;
+import com.bigdata.rdf.rio.solutions.IVSolutionWriterRegistry;
 import com.bigdata.rdf.sail.BigdataSail.BigdataSailConnection;
 import com.bigdata.rdf.sail.BigdataSailBooleanQuery;
 import com.bigdata.rdf.sail.BigdataSailGraphQuery;
@@ -110,6 +116,8 @@ import com.bigdata.sparse.SparseRowStore;
 import com.bigdata.util.concurrent.DaemonThreadFactory;
 import com.bigdata.util.concurrent.ThreadPoolExecutorBaseStatisticsTask;
 
+import cutthecrap.utils.striterators.ICloseableIterator;
+
 /**
  * Class encapsulates state shared by {@link QueryServlet}(s) for the same
  * {@link IIndexManager}.
@@ -213,6 +221,15 @@ public class BigdataRDFContext extends BigdataBaseContext {
     * @see InsertServlet
     */
     protected static final String CONTEXT_URI = "context-uri";
+
+    /**
+     * URL query parameter used to request streaming ingest with group commit
+     * for INSERT (POST-WITH-BODY).
+     * 
+     * @see InsertServlet
+     * @see GroupCommitIngester
+     */
+    protected static final String INGEST = "ingest";
     
     /**
      * URL query parameter used to specify a URI in the set of named graphs for
@@ -246,6 +263,33 @@ public class BigdataRDFContext extends BigdataBaseContext {
      * @see SparqlEndpointConfig#queryThreadPoolSize
      */
     /*package*/final ExecutorService queryService;
+
+    /**
+     * A thread pool for running queries which are predicted to be short -or-
+     * <code>null</code> if there is no fast lane.
+     * 
+     * @see SparqlEndpointConfig#fastLaneThreadPoolSize
+     */
+    private final ExecutorService fastLaneService;
+
+    /**
+     * Admission control and scheduling of requests onto the
+     * {@link #queryService}.
+     */
+    private final QueryScheduler m_queryScheduler;
+
+    /**
+     * Streaming ingest with group commit.
+     */
+    private final GroupCommitIngester m_ingester;
+
+    /**
+     * Runs the compressor stage for large compressed responses -or-
+     * <code>null</code> if responses are not compressed.
+     * 
+     * @see SparqlEndpointConfig#responseCompressionLevel
+     */
+    private final ExecutorService compressionService;
 	
 	private final ScheduledFuture<?> m_queueStatsFuture;
 	private final ThreadPoolExecutorBaseStatisticsTask m_queueSampleTask;
@@ -333,6 +377,36 @@ public class BigdataRDFContext extends BigdataBaseContext {
                     config.queryThreadPoolSize, new DaemonThreadFactory(
                             getClass().getName() + ".queryService"));
 
+        }
+
+        if (config.fastLaneThreadPoolSize == 0) {
+
+            fastLaneService = null;
+
+        } else {
+
+            fastLaneService = Executors.newFixedThreadPool(
+                    config.fastLaneThreadPoolSize, new DaemonThreadFactory(
+                            getClass().getName() + ".fastLaneService"));
+
+        }
+
+        m_queryScheduler = new QueryScheduler(queryService,
+                config.queryThreadPoolSize, fastLaneService, config);
+
+        m_ingester = new GroupCommitIngester(indexManager,
+                config.ingestGroupCommitMillis, config.ingestBatchSize);
+
+        if (config.responseCompressionLevel == 0) {
+
+            compressionService = null;
+
+        } else {
+
+            compressionService = Executors
+                    .newCachedThreadPool(new DaemonThreadFactory(getClass()
+                            .getName() + ".compressionService"));
+
         }
 
 		if (indexManager.getCollectQueueStatistics()) {
@@ -396,8 +470,20 @@ public class BigdataRDFContext extends BigdataBaseContext {
         if (m_queueStatsFuture != null)
             m_queueStatsFuture.cancel(true/* mayInterruptIfRunning */);
 
+        // Cancel all queued requests.
+        m_queryScheduler.shutdownNow();
+
+        // Fail all unacknowledged ingest requests.
+        m_ingester.shutdownNow();
+
+        if (compressionService != null)
+            compressionService.shutdownNow();
+
         // Interrupt all running queries.
         queryService.shutdownNow();
+
+        if (fastLaneService != null)
+            fastLaneService.shutdownNow();
         
     }
 
@@ -407,6 +493,76 @@ public class BigdataRDFContext extends BigdataBaseContext {
 	    
 	}
 
+    /**
+     * The admission control and scheduling for SPARQL QUERY and UPDATE
+     * requests.
+     */
+    public QueryScheduler getQueryScheduler() {
+
+        return m_queryScheduler;
+
+    }
+
+    /**
+     * The group commit writer for streaming ingest requests.
+     */
+    public GroupCommitIngester getIngester() {
+
+        return m_ingester;
+
+    }
+
+    /**
+     * Wrap the response for compression as negotiated with the client.
+     * 
+     * @return The wrapped response -or- <i>resp</i> if the response will not
+     *         be compressed.
+     * 
+     * @see CompressedResponse#done(HttpServletResponse)
+     */
+    HttpServletResponse compress(final HttpServletRequest req,
+            final HttpServletResponse resp) {
+
+        return CompressedResponse.wrap(req, resp,
+                getConfig().responseCompressionLevel, compressionService);
+
+    }
+
+    /**
+     * Schedule a SPARQL QUERY or UPDATE request for evaluation. The caller
+     * waits on the {@link FutureTask} for the outcome of the request.
+     * 
+     * @param task
+     *            The request.
+     * @param ft
+     *            The {@link FutureTask} for that request.
+     * 
+     * @throws HttpOperationException
+     *             with a <code>503</code> (Service Unavailable) status if the
+     *             request was refused by the {@link QueryScheduler}.
+     */
+    void execute(final AbstractQueryTask task, final FutureTask<Void> ft)
+            throws HttpOperationException {
+
+        final boolean shortQuery = !task.update && task.astContainer != null
+                && QueryScheduler.isShortQuery(task.astContainer);
+
+        try {
+
+            m_queryScheduler.execute(task.namespace,
+                    task.req == null ? null : task.req.getRemoteAddr(),
+                    shortQuery, ft);
+
+        } catch (RejectedExecutionException ex) {
+
+            throw new HttpOperationException(
+                    HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    BigdataServlet.MIME_TEXT_PLAIN, ex.getMessage());
+
+        }
+
+    }
+
 	public ThreadPoolExecutorBaseStatisticsTask getSampleTask() {
 
 	    return m_queueSampleTask;
@@ -1442,6 +1598,16 @@ public class BigdataRDFContext extends BigdataBaseContext {
                 final TupleQueryResultFormat format = TupleQueryResultWriterRegistry
                         .getInstance().getFileFormatForMIMEType(mimeType);
 
+                if (getConfig().nativeSolutionWriters
+                        && IVSolutionWriterRegistry.isSupported(format)) {
+
+                    // Write the native solutions directly.
+                    doNativeQuery(query, format, os);
+
+                    return;
+
+                }
+
                 w = TupleQueryResultWriterRegistry.getInstance().get(format)
                         .getWriter(os);
                 
@@ -1451,6 +1617,48 @@ public class BigdataRDFContext extends BigdataBaseContext {
 
 		}
 
+        /**
+         * Evaluate the query and write the native solutions directly onto the
+         * output stream, bypassing the conversion into openrdf binding sets.
+         * 
+         * @see ConfigParams#NATIVE_SOLUTION_WRITERS
+         */
+        private void doNativeQuery(final BigdataSailTupleQuery query,
+                final TupleQueryResultFormat format, final OutputStream os)
+                throws Exception {
+
+            final AbstractIVSolutionWriter w = IVSolutionWriterRegistry
+                    .getWriter(format, os, query.getTripleStore()
+                            .getLexiconRelation());
+
+            final ICloseableIterator<IBindingSet[]> itr = query
+                    .evaluateSolutions();
+
+            try {
+
+                // Note: The optimized AST exists once the query is running.
+                final IVariable<?>[] projected = query.getASTContainer()
+                        .getOptimizedAST().getProjection()
+                        .getProjectionVars();
+
+                w.startQueryResult(projected);
+
+                while (itr.hasNext()) {
+
+                    w.handleSolutions(itr.next());
+
+                }
+
+                w.endQueryResult();
+
+            } finally {
+
+                itr.close();
+
+            }
+
+        }
+
 	}
     
     private static class MyXMLWriter extends XMLWriter {
@@ -411,9 +411,223 @@ public class BigdataRDFServletContextListener implements
 
         }
 
+        final boolean nativeSolutionWriters;
+        {
+
+            final String s = getInitParameter( ConfigParams.NATIVE_SOLUTION_WRITERS);
+
+            nativeSolutionWriters = s == null ? ConfigParams.DEFAULT_NATIVE_SOLUTION_WRITERS
+                    : Boolean.valueOf(s);
+
+            if (log.isInfoEnabled())
+                log.info(ConfigParams.NATIVE_SOLUTION_WRITERS + "="
+                        + nativeSolutionWriters);
+
+        }
+
+        final int maxNamespaceQueries;
+        {
+
+            final String s = getInitParameter( ConfigParams.MAX_NAMESPACE_QUERIES);
+
+            maxNamespaceQueries = s == null ? ConfigParams.DEFAULT_MAX_NAMESPACE_QUERIES
+                    : Integer.valueOf(s);
+
+            if (maxNamespaceQueries < 0) {
+
+                throw new RuntimeException(ConfigParams.MAX_NAMESPACE_QUERIES
+                        + " : Must be non-negative, not: " + s);
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info(ConfigParams.MAX_NAMESPACE_QUERIES + "=" + maxNamespaceQueries);
+
+        }
+
+        final int maxClientQueries;
+        {
+
+            final String s = getInitParameter( ConfigParams.MAX_CLIENT_QUERIES);
+
+            maxClientQueries = s == null ? ConfigParams.DEFAULT_MAX_CLIENT_QUERIES
+                    : Integer.valueOf(s);
+
+            if (maxClientQueries < 0) {
+
+                throw new RuntimeException(ConfigParams.MAX_CLIENT_QUERIES
+                        + " : Must be non-negative, not: " + s);
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info(ConfigParams.MAX_CLIENT_QUERIES + "=" + maxClientQueries);
+
+        }
+
+        final int maxQueuedQueries;
+        {
+
+            final String s = getInitParameter( ConfigParams.MAX_QUEUED_QUERIES);
+
+            maxQueuedQueries = s == null ? ConfigParams.DEFAULT_MAX_QUEUED_QUERIES
+                    : Integer.valueOf(s);
+
+            if (maxQueuedQueries < 0) {
+
+                throw new RuntimeException(ConfigParams.MAX_QUEUED_QUERIES
+                        + " : Must be non-negative, not: " + s);
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info(ConfigParams.MAX_QUEUED_QUERIES + "=" + maxQueuedQueries);
+
+        }
+
+        final int fastLaneThreadPoolSize;
+        {
+
+            final String s = getInitParameter( ConfigParams.FAST_LANE_THREAD_POOL_SIZE);
+
+            fastLaneThreadPoolSize = s == null ? ConfigParams.DEFAULT_FAST_LANE_THREAD_POOL_SIZE
+                    : Integer.valueOf(s);
+
+            if (fastLaneThreadPoolSize < 0) {
+
+                throw new RuntimeException(ConfigParams.FAST_LANE_THREAD_POOL_SIZE
+                        + " : Must be non-negative, not: " + s);
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info(ConfigParams.FAST_LANE_THREAD_POOL_SIZE + "=" + fastLaneThreadPoolSize);
+
+        }
+
+        final long asyncResponseBufferBytes;
+        {
+
+            final String s = getInitParameter( ConfigParams.ASYNC_RESPONSE_BUFFER_BYTES);
+
+            asyncResponseBufferBytes = s == null ? ConfigParams.DEFAULT_ASYNC_RESPONSE_BUFFER_BYTES
+                    : Long.valueOf(s);
+
+            if (asyncResponseBufferBytes < 0L) {
+
+                throw new RuntimeException(ConfigParams.ASYNC_RESPONSE_BUFFER_BYTES
+                        + " : Must be non-negative, not: " + s);
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info(ConfigParams.ASYNC_RESPONSE_BUFFER_BYTES + "=" + asyncResponseBufferBytes);
+
+        }
+
+        final long asyncResponseMaxSpillBytes;
+        {
+
+            final String s = getInitParameter( ConfigParams.ASYNC_RESPONSE_MAX_SPILL_BYTES);
+
+            asyncResponseMaxSpillBytes = s == null ? ConfigParams.DEFAULT_ASYNC_RESPONSE_MAX_SPILL_BYTES
+                    : Long.valueOf(s);
+
+            if (asyncResponseMaxSpillBytes < 0L) {
+
+                throw new RuntimeException(ConfigParams.ASYNC_RESPONSE_MAX_SPILL_BYTES
+                        + " : Must be non-negative, not: " + s);
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info(ConfigParams.ASYNC_RESPONSE_MAX_SPILL_BYTES + "=" + asyncResponseMaxSpillBytes);
+
+        }
+
+        final long ingestGroupCommitMillis;
+        {
+
+            final String s = getInitParameter( ConfigParams.INGEST_GROUP_COMMIT_MILLIS);
+
+            ingestGroupCommitMillis = s == null ? ConfigParams.DEFAULT_INGEST_GROUP_COMMIT_MILLIS
+                    : Long.valueOf(s);
+
+            if (ingestGroupCommitMillis < 0L) {
+
+                throw new RuntimeException(ConfigParams.INGEST_GROUP_COMMIT_MILLIS
+                        + " : Must be non-negative, not: " + s);
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info(ConfigParams.INGEST_GROUP_COMMIT_MILLIS + "=" + ingestGroupCommitMillis);
+
+        }
+
+        final int ingestBatchSize;
+        {
+
+            final String s = getInitParameter( ConfigParams.INGEST_BATCH_SIZE);
+
+            ingestBatchSize = s == null ? ConfigParams.DEFAULT_INGEST_BATCH_SIZE
+                    : Integer.valueOf(s);
+
+            if (ingestBatchSize <= 0) {
+
+                throw new RuntimeException(ConfigParams.INGEST_BATCH_SIZE
+                        + " : Must be positive, not: " + s);
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info(ConfigParams.INGEST_BATCH_SIZE + "=" + ingestBatchSize);
+
+        }
+
+        final int responseCompressionLevel;
+        {
+
+            final String s = getInitParameter( ConfigParams.RESPONSE_COMPRESSION_LEVEL);
+
+            responseCompressionLevel = s == null ? ConfigParams.DEFAULT_RESPONSE_COMPRESSION_LEVEL
+                    : Integer.valueOf(s);
+
+            if (responseCompressionLevel < 0 || responseCompressionLevel > 9) {
+
+                throw new RuntimeException(ConfigParams.RESPONSE_COMPRESSION_LEVEL
+                        + " : Must be in [0:9], not: " + s);
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info(ConfigParams.RESPONSE_COMPRESSION_LEVEL + "=" + responseCompressionLevel);
+
+        }
+
+        final Map<String, Integer> namespaceWeights;
+        {
+
+            final String s = getInitParameter( ConfigParams.NAMESPACE_WEIGHTS);
+
+            namespaceWeights = QueryScheduler
+                    .parseWeights(s == null ? ConfigParams.DEFAULT_NAMESPACE_WEIGHTS
+                            : s);
+
+            if (log.isInfoEnabled())
+                log.info(ConfigParams.NAMESPACE_WEIGHTS + "="
+                        + namespaceWeights);
+
+        }
+
         final SparqlEndpointConfig config = new SparqlEndpointConfig(namespace,
                 timestamp, queryThreadPoolSize, describeEachNamedGraph,
-                readOnly, queryTimeout);
+                readOnly, queryTimeout, nativeSolutionWriters,
+                maxNamespaceQueries, maxClientQueries, maxQueuedQueries,
+                namespaceWeights, fastLaneThreadPoolSize,
+                asyncResponseBufferBytes, ingestGroupCommitMillis,
+                ingestBatchSize, responseCompressionLevel,
+                asyncResponseMaxSpillBytes);
 
         rdfContext = new BigdataRDFContext(config, indexManager);
 
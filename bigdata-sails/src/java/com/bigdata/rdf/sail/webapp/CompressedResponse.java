@@ -0,0 +1,706 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sail.webapp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A response wrapper which compresses the response using the
+ * <code>gzip</code> or <code>deflate</code> content coding negotiated from
+ * the <code>Accept-Encoding</code> request header.
+ * <p>
+ * Small responses are compressed on the thread which writes the response.
+ * Once a response fills its first block, the remaining blocks are handed off
+ * to a compressor running on another thread. This forms a two stage pipeline
+ * so that serialization of the results (e.g., a large CONSTRUCT) and their
+ * compression proceed in parallel on different cores. The hand off is
+ * bounded, so the writer blocks if the compressor falls behind.
+ * 
+ * @see ConfigParams#RESPONSE_COMPRESSION_LEVEL
+ */
+public class CompressedResponse extends HttpServletResponseWrapper {
+
+    static private final transient Logger log = Logger
+            .getLogger(CompressedResponse.class);
+
+    static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    static final String CONTENT_ENCODING = "Content-Encoding";
+
+    static final String VARY = "Vary";
+
+    static final String GZIP = "gzip";
+
+    static final String DEFLATE = "deflate";
+
+    /**
+     * Wrap the response for compression if the client accepts a supported
+     * content coding.
+     * 
+     * @param req
+     *            The request.
+     * @param resp
+     *            The response.
+     * @param level
+     *            The compression level (1 is fastest, 9 is best) -or- ZERO
+     *            (0) to disable compression.
+     * @param executor
+     *            Used to run the compressor stage for large responses (may be
+     *            <code>null</code>, in which case all compression is done by
+     *            the thread writing the response).
+     * 
+     * @return The wrapped response -or- <i>resp</i> if the response will not
+     *         be compressed (or is already compressed).
+     */
+    static public HttpServletResponse wrap(final HttpServletRequest req,
+            final HttpServletResponse resp, final int level,
+            final Executor executor) {
+
+        if (level <= 0 || resp.isCommitted()
+                || resp instanceof CompressedResponse)
+            return resp;
+
+        // The response depends on the Accept-Encoding header.
+        resp.addHeader(VARY, ACCEPT_ENCODING);
+
+        final String coding = getContentCoding(req.getHeader(ACCEPT_ENCODING));
+
+        if (coding == null)
+            return resp;
+
+        return new CompressedResponse(resp, coding, level, executor);
+
+    }
+
+    /**
+     * Finish the compressed response (if the response was wrapped and a body
+     * was written). This is a NOP for any other response and may be invoked
+     * more than once.
+     * 
+     * @param resp
+     *            The response.
+     */
+    static public void done(final HttpServletResponse resp) {
+
+        if (resp instanceof CompressedResponse) {
+
+            ((CompressedResponse) resp).close();
+
+        }
+
+    }
+
+    /**
+     * Return the content coding to use for the response given the value of
+     * the <code>Accept-Encoding</code> request header. <code>gzip</code> is
+     * preferred when the client accepts both codings with the same quality.
+     * 
+     * @param acceptEncoding
+     *            The header value (may be <code>null</code>).
+     * 
+     * @return Either {@value #GZIP} or {@value #DEFLATE} -or- <code>null</code>
+     *         if the response should not be compressed.
+     */
+    static String getContentCoding(final String acceptEncoding) {
+
+        if (acceptEncoding == null)
+            return null;
+
+        float gzip = -1f, deflate = -1f, any = -1f;
+
+        for (String s : acceptEncoding.split(",")) {
+
+            final String[] a = s.split(";");
+
+            final String coding = a[0].trim().toLowerCase();
+
+            float q = 1f;
+
+            for (int i = 1; i < a.length; i++) {
+
+                final String p = a[i].trim();
+
+                if (p.startsWith("q=")) {
+
+                    try {
+                        q = Float.parseFloat(p.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        q = 0f;
+                    }
+
+                }
+
+            }
+
+            if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+                gzip = q;
+            } else if (coding.equals(DEFLATE)) {
+                deflate = q;
+            } else if (coding.equals("*")) {
+                any = q;
+            }
+
+        }
+
+        if (gzip < 0f)
+            gzip = any;
+
+        if (deflate < 0f)
+            deflate = any;
+
+        if (gzip > 0f && gzip >= deflate)
+            return GZIP;
+
+        if (deflate > 0f)
+            return DEFLATE;
+
+        return null;
+
+    }
+
+    private final String coding;
+
+    private final int level;
+
+    private final Executor executor;
+
+    private PipelinedDeflaterOutputStream os = null;
+
+    private PrintWriter writer = null;
+
+    private CompressedResponse(final HttpServletResponse resp,
+            final String coding, final int level, final Executor executor) {
+
+        super(resp);
+
+        this.coding = coding;
+
+        this.level = level;
+
+        this.executor = executor;
+
+        resp.setHeader(CONTENT_ENCODING, coding);
+
+    }
+
+    @Override
+    synchronized public ServletOutputStream getOutputStream()
+            throws IOException {
+
+        if (writer != null)
+            throw new IllegalStateException("getWriter() already invoked");
+
+        if (os == null) {
+
+            os = new PipelinedDeflaterOutputStream(super.getOutputStream(),
+                    GZIP.equals(coding), level, executor);
+
+        }
+
+        return os;
+
+    }
+
+    @Override
+    synchronized public PrintWriter getWriter() throws IOException {
+
+        if (writer == null) {
+
+            if (os != null)
+                throw new IllegalStateException(
+                        "getOutputStream() already invoked");
+
+            os = new PipelinedDeflaterOutputStream(super.getOutputStream(),
+                    GZIP.equals(coding), level, executor);
+
+            writer = new PrintWriter(new OutputStreamWriter(os,
+                    getCharacterEncoding()));
+
+        }
+
+        return writer;
+
+    }
+
+    /**
+     * Ignored. The length of the compressed response is not known.
+     */
+    @Override
+    public void setContentLength(final int len) {
+
+    }
+
+    /**
+     * Ignored. The length of the compressed response is not known.
+     */
+    @Override
+    public void setContentLengthLong(final long len) {
+
+    }
+
+    @Override
+    public void setHeader(final String name, final String value) {
+
+        if (!"Content-Length".equalsIgnoreCase(name))
+            super.setHeader(name, value);
+
+    }
+
+    @Override
+    public void reset() {
+
+        super.reset();
+
+        // Restore the headers for the content coding.
+        super.setHeader(CONTENT_ENCODING, coding);
+
+        addHeader(VARY, ACCEPT_ENCODING);
+
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+
+        final PrintWriter w;
+        final PipelinedDeflaterOutputStream s;
+        synchronized (this) {
+            w = writer;
+            s = os;
+        }
+
+        if (w != null)
+            w.flush();
+        else if (s != null)
+            s.flush();
+
+        super.flushBuffer();
+
+    }
+
+    private void close() {
+
+        final PrintWriter w;
+        final PipelinedDeflaterOutputStream s;
+        synchronized (this) {
+            w = writer;
+            s = os;
+        }
+
+        try {
+
+            if (w != null) {
+                w.close();
+            } else if (s != null) {
+                s.close();
+            }
+
+        } catch (IOException ex) {
+
+            // Client is gone.
+            if (log.isInfoEnabled())
+                log.info(ex);
+
+        }
+
+    }
+
+    /**
+     * Compresses the bytes written onto the stream. Bytes are accumulated
+     * into blocks. The blocks are compressed by the caller until the first
+     * full block, at which point a compressor is started on the
+     * {@link Executor} and the remaining blocks are handed off to that
+     * compressor through a bounded queue.
+     * <p>
+     * Note: Like any {@link ServletOutputStream}, this is not thread-safe.
+     */
+    static class PipelinedDeflaterOutputStream extends ServletOutputStream {
+
+        /**
+         * The size of a block.
+         */
+        static final int BLOCK_SIZE = 65536;
+
+        /**
+         * The maximum #of blocks waiting for the compressor.
+         */
+        static final int QUEUE_CAPACITY = 4;
+
+        /**
+         * Marker blocks for the compressor.
+         */
+        private static final byte[] FLUSH = new byte[0], EOF = new byte[0];
+
+        private final OutputStream out;
+
+        private final boolean gzip;
+
+        private final int level;
+
+        private final Executor executor;
+
+        private byte[] block = new byte[BLOCK_SIZE];
+
+        private int blockLen = 0;
+
+        /**
+         * The compressor when compression is done by the caller.
+         */
+        private DeflaterOutputStream inline = null;
+
+        /**
+         * The queue feeding the compressor stage and its {@link FutureTask}
+         * when compression is pipelined.
+         */
+        private BlockingQueue<byte[]> queue = null;
+
+        private FutureTask<Void> compressor = null;
+
+        private boolean closed = false;
+
+        /**
+         * @param out
+         *            The stream onto which the compressed bytes are written.
+         * @param gzip
+         *            <code>true</code> for the <code>gzip</code> content
+         *            coding and <code>false</code> for <code>deflate</code>.
+         * @param level
+         *            The compression level.
+         * @param executor
+         *            Used to run the compressor for large responses (
+         *            optional).
+         */
+        PipelinedDeflaterOutputStream(final OutputStream out,
+                final boolean gzip, final int level, final Executor executor) {
+
+            if (out == null)
+                throw new IllegalArgumentException();
+
+            if (level < Deflater.BEST_SPEED
+                    || level > Deflater.BEST_COMPRESSION)
+                throw new IllegalArgumentException();
+
+            this.out = out;
+            this.gzip = gzip;
+            this.level = level;
+            this.executor = executor;
+
+        }
+
+        /**
+         * <code>true</code> iff the compressor is running on another thread.
+         */
+        boolean isPipelined() {
+
+            return compressor != null;
+
+        }
+
+        @Override
+        public boolean isReady() {
+
+            return true;
+
+        }
+
+        @Override
+        public void setWriteListener(final WriteListener writeListener) {
+
+            throw new UnsupportedOperationException();
+
+        }
+
+        private DeflaterOutputStream newDeflaterStream() throws IOException {
+
+            if (gzip) {
+
+                return new GZIPOutputStream(out, 8192, true/* syncFlush */) {
+                    {
+                        def.setLevel(level);
+                    }
+                };
+
+            }
+
+            return new DeflaterOutputStream(out, new Deflater(level), 8192,
+                    true/* syncFlush */);
+
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+
+            write(new byte[] { (byte) b }, 0, 1);
+
+        }
+
+        @Override
+        public void write(final byte[] b, int off, int len) throws IOException {
+
+            if (closed)
+                throw new IOException("Closed");
+
+            while (len > 0) {
+
+                final int n = Math.min(len, BLOCK_SIZE - blockLen);
+
+                System.arraycopy(b, off, block, blockLen, n);
+
+                blockLen += n;
+                off += n;
+                len -= n;
+
+                if (blockLen == BLOCK_SIZE)
+                    handOff();
+
+            }
+
+        }
+
+        /**
+         * Compress the current block -or- hand it off to the compressor.
+         */
+        private void handOff() throws IOException {
+
+            if (inline == null && compressor == null && executor != null
+                    && blockLen == BLOCK_SIZE) {
+
+                startCompressor();
+
+            }
+
+            if (compressor != null) {
+
+                if (blockLen > 0) {
+
+                    put(blockLen == BLOCK_SIZE ? block : Arrays.copyOf(block,
+                            blockLen));
+
+                    block = new byte[BLOCK_SIZE];
+
+                }
+
+            } else {
+
+                if (inline == null)
+                    inline = newDeflaterStream();
+
+                inline.write(block, 0, blockLen);
+
+            }
+
+            blockLen = 0;
+
+        }
+
+        private void startCompressor() throws IOException {
+
+            final BlockingQueue<byte[]> q = new ArrayBlockingQueue<byte[]>(
+                    QUEUE_CAPACITY);
+
+            final DeflaterOutputStream dos = newDeflaterStream();
+
+            final FutureTask<Void> ft = new FutureTask<Void>(
+                    new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            while (true) {
+                                final byte[] a = q.take();
+                                if (a == EOF) {
+                                    dos.finish();
+                                    return null;
+                                } else if (a == FLUSH) {
+                                    dos.flush();
+                                } else {
+                                    dos.write(a);
+                                }
+                            }
+                        }
+                    });
+
+            try {
+
+                executor.execute(ft);
+
+            } catch (RejectedExecutionException ex) {
+
+                // Compress on the caller's thread instead.
+                inline = dos;
+
+                return;
+
+            }
+
+            queue = q;
+
+            compressor = ft;
+
+        }
+
+        /**
+         * Hand off a block, failing if the compressor is done (which means
+         * that it failed).
+         */
+        private void put(final byte[] a) throws IOException {
+
+            try {
+
+                while (!queue.offer(a, 100, TimeUnit.MILLISECONDS)) {
+
+                    if (compressor.isDone())
+                        awaitCompressor();
+
+                }
+
+            } catch (InterruptedException ex) {
+
+                compressor.cancel(true/* mayInterruptIfRunning */);
+
+                throw new InterruptedIOException(ex.toString());
+
+            }
+
+        }
+
+        /**
+         * Wait for the compressor to terminate, throwing out its error (if
+         * any).
+         */
+        private void awaitCompressor() throws IOException {
+
+            try {
+
+                compressor.get();
+
+            } catch (InterruptedException ex) {
+
+                compressor.cancel(true/* mayInterruptIfRunning */);
+
+                throw new InterruptedIOException(ex.toString());
+
+            } catch (ExecutionException ex) {
+
+                if (ex.getCause() instanceof IOException)
+                    throw (IOException) ex.getCause();
+
+                throw new IOException(ex.getCause());
+
+            }
+
+            if (!closed)
+                throw new IOException("Compressor terminated");
+
+        }
+
+        @Override
+        public void flush() throws IOException {
+
+            if (closed)
+                throw new IOException("Closed");
+
+            handOff();
+
+            if (compressor != null) {
+
+                put(FLUSH);
+
+            } else {
+
+                inline.flush();
+
+            }
+
+        }
+
+        /**
+         * Compress any buffered bytes, finish the compressed stream, and
+         * close the underlying stream.
+         */
+        @Override
+        public void close() throws IOException {
+
+            if (closed)
+                return;
+
+            try {
+
+                handOff();
+
+                if (compressor != null) {
+
+                    put(EOF);
+
+                    closed = true;
+
+                    awaitCompressor();
+
+                } else {
+
+                    closed = true;
+
+                    inline.finish();
+
+                }
+
+            } finally {
+
+                closed = true;
+
+                out.close();
+
+            }
+
+        }
+
+    }
+
+}
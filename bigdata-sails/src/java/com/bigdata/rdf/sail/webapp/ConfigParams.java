@@ -26,6 +26,7 @@ import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 
 import com.bigdata.journal.IIndexManager;
+import com.bigdata.rawstore.Bytes;
 
 /**
  * Interface declaring the <code>config-param</code>s understood by the
@@ -132,6 +133,157 @@ public interface ConfigParams {
 
     long DEFAULT_QUERY_TIMEOUT = 0L;
 
+    /**
+     * When <code>true</code>, SELECT query results in the SPARQL JSON, XML,
+     * TSV, CSV, and binary solutions formats are written directly from the
+     * native solutions rather than being converted into openrdf binding sets
+     * and passed through the openrdf result writers (default
+     * {@value #DEFAULT_NATIVE_SOLUTION_WRITERS}).
+     * 
+     * @see com.bigdata.rdf.rio.solutions.IVSolutionWriterRegistry
+     */
+    String NATIVE_SOLUTION_WRITERS = "nativeSolutionWriters";
+
+    boolean DEFAULT_NATIVE_SOLUTION_WRITERS = false;
+
+    /**
+     * The maximum #of SPARQL QUERY and UPDATE requests which may execute
+     * concurrently against any one namespace -OR- ZERO (0) for no limit
+     * (default {@value #DEFAULT_MAX_NAMESPACE_QUERIES}). Additional requests
+     * are queued by the {@link QueryScheduler}.
+     */
+    String MAX_NAMESPACE_QUERIES = "maxNamespaceQueries";
+
+    int DEFAULT_MAX_NAMESPACE_QUERIES = 0;
+
+    /**
+     * The maximum #of SPARQL QUERY and UPDATE requests which may execute
+     * concurrently on behalf of any one client address -OR- ZERO (0) for no
+     * limit (default {@value #DEFAULT_MAX_CLIENT_QUERIES}).
+     */
+    String MAX_CLIENT_QUERIES = "maxClientQueries";
+
+    int DEFAULT_MAX_CLIENT_QUERIES = 0;
+
+    /**
+     * The maximum #of requests which may be queued for any one namespace
+     * -OR- ZERO (0) for no limit (default {@value #DEFAULT_MAX_QUEUED_QUERIES}
+     * ). Requests which would exceed this limit are refused with a
+     * <code>503</code> (Service Unavailable).
+     */
+    String MAX_QUEUED_QUERIES = "maxQueuedQueries";
+
+    int DEFAULT_MAX_QUEUED_QUERIES = 0;
+
+    /**
+     * The relative weights of the namespaces when the {@link QueryScheduler}
+     * chooses the next queued request to run, given as a comma separated list
+     * of <code>namespace=weight</code> pairs. A namespace which is not listed
+     * has a weight of ONE (1). A namespace with a weight of N receives N times
+     * the share of the query thread pool of a namespace with a weight of ONE
+     * when both have queued requests (default
+     * {@value #DEFAULT_NAMESPACE_WEIGHTS}).
+     */
+    String NAMESPACE_WEIGHTS = "namespaceWeights";
+
+    String DEFAULT_NAMESPACE_WEIGHTS = "";
+
+    /**
+     * The size of a separate thread pool used to run queries which are
+     * predicted to be short -OR- ZERO (0) to run all queries on the query
+     * thread pool (default {@value #DEFAULT_FAST_LANE_THREAD_POOL_SIZE}).
+     * Queries which run in the fast lane are not subject to the per-namespace
+     * and per-client limits.
+     * 
+     * @see QueryScheduler#isShortQuery(com.bigdata.rdf.sparql.ast.ASTContainer)
+     */
+    String FAST_LANE_THREAD_POOL_SIZE = "fastLaneThreadPoolSize";
+
+    int DEFAULT_FAST_LANE_THREAD_POOL_SIZE = 0;
+
+    /**
+     * The maximum #of bytes of a SPARQL QUERY or UPDATE response which will be
+     * buffered in memory for a client that is not reading the response as
+     * fast as it is produced -OR- ZERO (0) to write responses using blocking
+     * I/O (default {@value #DEFAULT_ASYNC_RESPONSE_BUFFER_BYTES}). When
+     * positive, the response is written using Servlet 3.1 non-blocking I/O.
+     * Output which exceeds this limit is spilled onto a temporary file (up to
+     * {@link #ASYNC_RESPONSE_MAX_SPILL_BYTES}) so the query does not block on
+     * a slow client.
+     * <p>
+     * Note: Only the transfer of the response is asynchronous. The request
+     * thread still waits until the query or update is done.
+     * 
+     * @see AsyncResponse
+     */
+    String ASYNC_RESPONSE_BUFFER_BYTES = "asyncResponseBufferBytes";
+
+    long DEFAULT_ASYNC_RESPONSE_BUFFER_BYTES = Bytes.megabyte;
+
+    /**
+     * The maximum #of bytes of a SPARQL QUERY or UPDATE response which will be
+     * spilled onto a temporary file once {@link #ASYNC_RESPONSE_BUFFER_BYTES}
+     * are buffered in memory -OR- ZERO (0) to never spill (default
+     * {@value #DEFAULT_ASYNC_RESPONSE_MAX_SPILL_BYTES}). Once this limit is
+     * reached, the query blocks until the client has read enough of the
+     * response.
+     * 
+     * @see AsyncResponse
+     */
+    String ASYNC_RESPONSE_MAX_SPILL_BYTES = "asyncResponseMaxSpillBytes";
+
+    long DEFAULT_ASYNC_RESPONSE_MAX_SPILL_BYTES = 100 * Bytes.megabyte;
+
+    /**
+     * The maximum time in milliseconds that a commit group for streaming
+     * ingest (<code>POST ?ingest</code>) remains open waiting for statements
+     * from concurrent requests (default
+     * {@value #DEFAULT_INGEST_GROUP_COMMIT_MILLIS}). Larger values amortize
+     * each commit over more requests at the expense of the latency before a
+     * request is acknowledged. A group is committed immediately when there
+     * are no other open ingest requests for the namespace.
+     * 
+     * @see GroupCommitIngester
+     */
+    String INGEST_GROUP_COMMIT_MILLIS = "ingestGroupCommitMillis";
+
+    long DEFAULT_INGEST_GROUP_COMMIT_MILLIS = 250L;
+
+    /**
+     * The #of parsed statements which a streaming ingest request buffers
+     * before handing them off to be written (default
+     * {@value #DEFAULT_INGEST_BATCH_SIZE}).
+     * 
+     * @see GroupCommitIngester
+     */
+    String INGEST_BATCH_SIZE = "ingestBatchSize";
+
+    int DEFAULT_INGEST_BATCH_SIZE = 10000;
+
+    /**
+     * The compression level (1 is fastest, 9 is best) for responses to read
+     * requests when the client sends an <code>Accept-Encoding</code> header
+     * for <code>gzip</code> or <code>deflate</code> -OR- ZERO (0) to never
+     * compress responses (default
+     * {@value #DEFAULT_RESPONSE_COMPRESSION_LEVEL}). Large responses are
+     * compressed on a separate thread so that serialization and compression
+     * overlap.
+     * <p>
+     * This applies to SPARQL QUERY (including a linked data GET, which is run
+     * as a DESCRIBE query), DESCRIBE cache hits, ESTCARD, CONTEXTS, SHARDS
+     * and the service description. Responses to SPARQL UPDATE and the other
+     * mutation requests, the multi-tenancy API and the status pages are
+     * never compressed.
+     * 
+     * @see CompressedResponse
+     */
+    String RESPONSE_COMPRESSION_LEVEL = "responseCompressionLevel";
+
+    /**
+     * The default favors throughput (<code>Deflater.BEST_SPEED</code>).
+     */
+    int DEFAULT_RESPONSE_COMPRESSION_LEVEL = 1;
+
     /**
      * A class that extends {@link BigdataRDFServletContextListener}. This
      * offers applications a means to hook the {@link ServletContextListener}
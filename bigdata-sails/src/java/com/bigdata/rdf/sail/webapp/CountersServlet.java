@@ -103,6 +103,25 @@ public class CountersServlet extends BigdataServlet {
         final CounterSet counterSet = ((ICounterSetAccess) indexManager)
                 .getCounters();
 
+        {
+
+            /*
+             * Admission control and queue wait times for the SPARQL end point.
+             * 
+             * Note: The counters are replaced on each request since the set of
+             * namespaces known to the scheduler changes over time.
+             */
+            counterSet.makePath("queryScheduler").attach(
+                    getBigdataRDFContext().getQueryScheduler().getCounters(),
+                    true/* replace */);
+
+            // Streaming ingest and group commit.
+            counterSet.makePath("ingest").attach(
+                    getBigdataRDFContext().getIngester().getCounters(),
+                    true/* replace */);
+
+        }
+
         final CounterSetSelector counterSelector = new CounterSetSelector(
                 counterSet);
 
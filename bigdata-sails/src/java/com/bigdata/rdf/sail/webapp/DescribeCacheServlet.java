@@ -335,11 +335,15 @@ public class DescribeCacheServlet extends BigdataRDFServlet {
         /*
          * Generate response.
          */
+
+        // Compress the response iff negotiated with the client.
+        final HttpServletResponse cresp = context.compress(req, resp);
+
         try {
            
             final String mimeType = format.getDefaultMIMEType();
             
-            resp.setContentType(mimeType);
+            cresp.setContentType(mimeType);
 
             if (isAttachment(mimeType)) {
                 /*
@@ -347,7 +351,7 @@ public class DescribeCacheServlet extends BigdataRDFServlet {
                  * just a hint to the user agent. How the user agent handles
                  * this hint is up to it.
                  */
-                resp.setHeader("Content-disposition",
+                cresp.setHeader("Content-disposition",
                         "attachment; filename=query" + UUID.randomUUID()
                                 + "." + format.getDefaultFileExtension());
             }
@@ -355,11 +359,11 @@ public class DescribeCacheServlet extends BigdataRDFServlet {
             if (format.hasCharset()) {
 
                 // Note: Binary encodings do not specify charset.
-                resp.setCharacterEncoding(format.getCharset().name());
+                cresp.setCharacterEncoding(format.getCharset().name());
 
             }
             
-            final OutputStream os = resp.getOutputStream();
+            final OutputStream os = cresp.getOutputStream();
 
             final RDFWriter w = RDFWriterRegistry.getInstance().get(format)
                     .getWriter(os);
@@ -374,9 +378,13 @@ public class DescribeCacheServlet extends BigdataRDFServlet {
 
         } catch (Throwable e) {
 
-            BigdataRDFServlet.launderThrowable(e, resp,
+            BigdataRDFServlet.launderThrowable(e, cresp,
                     "DESCRIBE: uris=" + internalURIs);
             
+        } finally {
+
+            CompressedResponse.done(cresp);
+
         }
 
     }
@@ -0,0 +1,761 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sail.webapp;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
+import com.bigdata.journal.IIndexManager;
+import com.bigdata.journal.ITx;
+import com.bigdata.rdf.sail.BigdataSail.BigdataSailConnection;
+import com.bigdata.rdf.sail.BigdataSailRepositoryConnection;
+import com.bigdata.rdf.sail.webapp.InsertServlet.AddStatementHandler;
+import com.bigdata.rdf.task.AbstractApiTask;
+import com.bigdata.util.concurrent.DaemonThreadFactory;
+
+/**
+ * Streaming ingest with group commit. Each request parses its RDF payload on
+ * its own thread, handing off batches of statements as they are parsed. The
+ * batches for a namespace are written onto the UNISOLATED connection by a
+ * single writer and are committed in groups: a group remains open for up to
+ * a configured latency target so that the statements from concurrent
+ * requests are made durable by a single commit. A request is acknowledged
+ * once the group containing its last batch has been committed.
+ * <p>
+ * The #of batches buffered for a namespace is bounded. When the writer falls
+ * behind, the request threads block, which in turn stops reading the request
+ * bodies and pushes back on the clients.
+ * <p>
+ * Note: Ingest is NOT atomic. A large request will span several commit
+ * groups and statements which were parsed before an error are still
+ * committed. The mutation count reported for a request is the #of statements
+ * which were committed for that request.
+ * 
+ * @see ConfigParams#INGEST_GROUP_COMMIT_MILLIS
+ * @see ConfigParams#INGEST_BATCH_SIZE
+ */
+public class GroupCommitIngester implements ICounterSetAccess {
+
+    static private final transient Logger log = Logger
+            .getLogger(GroupCommitIngester.class);
+
+    /**
+     * The maximum #of batches queued for a namespace before the request
+     * threads block.
+     */
+    static final int QUEUE_CAPACITY = 16;
+
+    private final IIndexManager indexManager;
+
+    /**
+     * The maximum time that a commit group remains open.
+     */
+    private final long groupCommitMillis;
+
+    /**
+     * The #of statements in each batch handed off by a request.
+     */
+    private final int batchSize;
+
+    /**
+     * Runs the writer for each namespace having pending batches.
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * The writer for each namespace.
+     */
+    private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<String, Lane>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong failedRequestCount = new AtomicLong();
+    private final AtomicLong groupCount = new AtomicLong();
+    private final AtomicLong failedGroupCount = new AtomicLong();
+    private final AtomicLong statementCount = new AtomicLong();
+    private final AtomicLong groupNanos = new AtomicLong();
+
+    /**
+     * @param indexManager
+     *            The database.
+     * @param groupCommitMillis
+     *            The maximum time that a commit group remains open waiting
+     *            for more statements.
+     * @param batchSize
+     *            The #of statements in each batch handed off by a request.
+     */
+    public GroupCommitIngester(final IIndexManager indexManager,
+            final long groupCommitMillis, final int batchSize) {
+
+        if (indexManager == null)
+            throw new IllegalArgumentException();
+
+        if (groupCommitMillis < 0L)
+            throw new IllegalArgumentException();
+
+        if (batchSize <= 0)
+            throw new IllegalArgumentException();
+
+        this.indexManager = indexManager;
+
+        this.groupCommitMillis = groupCommitMillis;
+
+        this.batchSize = batchSize;
+
+        this.executorService = Executors
+                .newCachedThreadPool(new DaemonThreadFactory(getClass()
+                        .getName() + ".writer"));
+
+    }
+
+    /**
+     * Cancel the writers. Requests which have not been acknowledged will
+     * fail.
+     */
+    public void shutdownNow() {
+
+        executorService.shutdownNow();
+
+    }
+
+    /**
+     * Return a new request. The caller must pass each parsed statement to
+     * {@link IngestRequest#handleStatement(Statement)} and then invoke
+     * {@link IngestRequest#close()} to await the commit.
+     * 
+     * @param namespace
+     *            The namespace of the target KB instance.
+     * @param defaultContext
+     *            The context(s) for triples without an explicit named graph
+     *            when the KB instance is operating in a quads mode.
+     */
+    public IngestRequest newRequest(final String namespace,
+            final Resource[] defaultContext) {
+
+        if (namespace == null)
+            throw new IllegalArgumentException();
+
+        Lane lane = lanes.get(namespace);
+
+        if (lane == null) {
+
+            final Lane tmp = lanes.putIfAbsent(namespace,
+                    lane = new Lane(namespace));
+
+            if (tmp != null)
+                lane = tmp;
+
+        }
+
+        requestCount.incrementAndGet();
+
+        return new IngestRequest(lane, defaultContext);
+
+    }
+
+    /**
+     * A request which streams statements into the group commit writer for a
+     * namespace.
+     */
+    public class IngestRequest extends RDFHandlerBase {
+
+        private final Lane lane;
+
+        private final Resource[] defaultContext;
+
+        private List<Statement> buffer = new ArrayList<Statement>(batchSize);
+
+        /**
+         * The #of statements committed for this request.
+         */
+        private final AtomicLong nmodified = new AtomicLong();
+
+        /**
+         * Released when the last batch was committed or the request failed.
+         */
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile Throwable cause = null;
+
+        private boolean closed = false;
+
+        private IngestRequest(final Lane lane, final Resource[] defaultContext) {
+
+            this.lane = lane;
+
+            this.defaultContext = defaultContext;
+
+            lane.activeRequests.incrementAndGet();
+
+        }
+
+        /**
+         * Buffer a statement, handing off a batch once it is full.
+         * 
+         * @throws RDFHandlerException
+         *             if the writer has already failed this request.
+         */
+        @Override
+        public void handleStatement(final Statement stmt)
+                throws RDFHandlerException {
+
+            if (cause != null)
+                throw new RDFHandlerException(cause);
+
+            buffer.add(stmt);
+
+            if (buffer.size() >= batchSize) {
+
+                submit(false/* last */);
+
+            }
+
+        }
+
+        private void submit(final boolean last) throws RDFHandlerException {
+
+            final Batch b = new Batch(this, buffer, last);
+
+            buffer = last ? null : new ArrayList<Statement>(batchSize);
+
+            try {
+
+                lane.put(b);
+
+            } catch (InterruptedException ex) {
+
+                Thread.currentThread().interrupt();
+
+                fail(ex);
+
+                throw new RDFHandlerException(ex);
+
+            }
+
+        }
+
+        /**
+         * Hand off any buffered statements and wait until they have been
+         * committed. Statements which were handed off before an error are
+         * still committed, so this should be invoked (and the mutation count
+         * reported) even if the parser failed.
+         * 
+         * @return The #of statements committed for this request.
+         * 
+         * @throws ExecutionException
+         *             if a commit group including statements for this request
+         *             failed.
+         */
+        public long close() throws InterruptedException, ExecutionException {
+
+            if (!closed) {
+
+                closed = true;
+
+                try {
+
+                    submit(true/* last */);
+
+                } catch (RDFHandlerException ex) {
+
+                    // Already failed.
+
+                } catch (RuntimeException ex) {
+
+                    fail(ex);
+
+                } finally {
+
+                    lane.activeRequests.decrementAndGet();
+
+                }
+
+            }
+
+            done.await();
+
+            if (cause != null)
+                throw new ExecutionException(cause);
+
+            return nmodified.get();
+
+        }
+
+        /**
+         * The #of statements committed so far for this request.
+         */
+        public long getMutationCount() {
+
+            return nmodified.get();
+
+        }
+
+        private void committed(final long n, final boolean last) {
+
+            if (cause != null)
+                return;
+
+            nmodified.addAndGet(n);
+
+            if (last)
+                done.countDown();
+
+        }
+
+        private void fail(final Throwable t) {
+
+            if (cause == null) {
+
+                cause = t;
+
+                failedRequestCount.incrementAndGet();
+
+            }
+
+            done.countDown();
+
+        }
+
+    }
+
+    /**
+     * A batch of statements from a request.
+     */
+    private static class Batch {
+
+        final IngestRequest request;
+
+        List<Statement> stmts;
+
+        final boolean last;
+
+        /**
+         * The #of statements written (set by the writer).
+         */
+        long nmodified = 0L;
+
+        Batch(final IngestRequest request, final List<Statement> stmts,
+                final boolean last) {
+
+            this.request = request;
+            this.stmts = stmts;
+            this.last = last;
+
+        }
+
+    }
+
+    /**
+     * The queue of batches and the writer for a namespace. The writer runs
+     * only while there are batches to be written.
+     */
+    private class Lane implements Runnable {
+
+        private final String namespace;
+
+        private final LinkedBlockingQueue<Batch> queue = new LinkedBlockingQueue<Batch>(
+                QUEUE_CAPACITY);
+
+        /**
+         * The #of requests which might still hand off batches.
+         */
+        private final AtomicInteger activeRequests = new AtomicInteger();
+
+        /**
+         * <code>true</code> iff the writer is running (guarded by
+         * <code>this</code>).
+         */
+        private boolean running = false;
+
+        Lane(final String namespace) {
+
+            this.namespace = namespace;
+
+        }
+
+        void put(final Batch b) throws InterruptedException {
+
+            queue.put(b);
+
+            synchronized (this) {
+
+                if (!running) {
+
+                    try {
+
+                        executorService.execute(this);
+
+                    } catch (RejectedExecutionException ex) {
+
+                        // Shutdown.
+                        queue.remove(b);
+
+                        throw ex;
+
+                    }
+
+                    running = true;
+
+                }
+
+            }
+
+        }
+
+        @Override
+        public void run() {
+
+            try {
+
+                while (true) {
+
+                    synchronized (this) {
+
+                        if (queue.isEmpty()) {
+
+                            running = false;
+
+                            return;
+
+                        }
+
+                    }
+
+                    runGroup();
+
+                }
+
+            } catch (Throwable t) {
+
+                log.error("namespace=" + namespace + " : " + t, t);
+
+                synchronized (this) {
+
+                    running = false;
+
+                    // Fail anything which is still queued.
+                    final List<Batch> a = new LinkedList<Batch>();
+
+                    queue.drainTo(a);
+
+                    for (Batch b : a)
+                        b.request.fail(t);
+
+                }
+
+            }
+
+        }
+
+        /**
+         * Write and commit one group.
+         */
+        private void runGroup() throws InterruptedException {
+
+            final long begin = System.nanoTime();
+
+            final IngestGroupTask task = new IngestGroupTask(this);
+
+            Throwable cause = null;
+
+            try {
+
+                AbstractApiTask.submitApiTask(indexManager, task).get();
+
+            } catch (ExecutionException ex) {
+
+                cause = ex.getCause();
+
+            }
+
+            groupNanos.addAndGet(System.nanoTime() - begin);
+
+            if (cause == null) {
+
+                groupCount.incrementAndGet();
+
+                long n = 0L;
+
+                for (Batch b : task.batches) {
+
+                    b.request.committed(b.nmodified, b.last);
+
+                    n += b.nmodified;
+
+                }
+
+                statementCount.addAndGet(n);
+
+                if (log.isInfoEnabled())
+                    log.info("namespace=" + namespace + ", batches="
+                            + task.batches.size() + ", nmodified=" + n);
+
+            } else {
+
+                failedGroupCount.incrementAndGet();
+
+                log.error("namespace=" + namespace + " : " + cause, cause);
+
+                if (task.batches.isEmpty()) {
+
+                    /*
+                     * The task failed before it took any batches (e.g., the
+                     * namespace does not exist). Fail the next batch so the
+                     * writer always makes progress.
+                     */
+
+                    final Batch b = queue.poll();
+
+                    if (b != null)
+                        task.batches.add(b);
+
+                }
+
+                for (Batch b : task.batches)
+                    b.request.fail(cause);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Writes batches onto the UNISOLATED connection and commits them. The
+     * group is closed once the latency target has expired -or- the queue is
+     * empty and there are no open requests which could add to it.
+     */
+    private class IngestGroupTask extends AbstractApiTask<Void> {
+
+        private final Lane lane;
+
+        /**
+         * The batches taken by this group.
+         */
+        final List<Batch> batches = new LinkedList<Batch>();
+
+        IngestGroupTask(final Lane lane) {
+
+            super(lane.namespace, ITx.UNISOLATED);
+
+            this.lane = lane;
+
+        }
+
+        @Override
+        public boolean isReadOnly() {
+
+            return false;
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final long deadline = System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+
+            BigdataSailRepositoryConnection conn = null;
+            boolean success = false;
+            try {
+
+                conn = getUnisolatedConnection();
+
+                final BigdataSailConnection sailConn = conn.getSailConnection();
+
+                while (true) {
+
+                    Batch b = lane.queue.poll();
+
+                    if (b == null) {
+
+                        if (lane.activeRequests.get() == 0) {
+
+                            // Nobody else to wait for.
+                            break;
+
+                        }
+
+                        final long remaining = deadline - System.nanoTime();
+
+                        if (remaining <= 0L)
+                            break;
+
+                        b = lane.queue.poll(remaining, TimeUnit.NANOSECONDS);
+
+                        if (b == null)
+                            break;
+
+                    }
+
+                    batches.add(b);
+
+                    if (b.request.cause == null && !b.stmts.isEmpty()) {
+
+                        final AtomicLong nmodified = new AtomicLong();
+
+                        final AddStatementHandler h = new AddStatementHandler(
+                                sailConn, nmodified, b.request.defaultContext);
+
+                        for (Statement stmt : b.stmts) {
+
+                            h.handleStatement(stmt);
+
+                        }
+
+                        b.nmodified = nmodified.get();
+
+                    }
+
+                    // Release the statements (they are in the write set).
+                    b.stmts = null;
+
+                    if (System.nanoTime() - deadline >= 0L)
+                        break;
+
+                }
+
+                conn.commit();
+
+                success = true;
+
+                return null;
+
+            } finally {
+
+                if (conn != null) {
+
+                    if (!success)
+                        conn.rollback();
+
+                    conn.close();
+
+                }
+
+            }
+
+        }
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter("requestCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(requestCount.get());
+            }
+        });
+
+        root.addCounter("failedRequestCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(failedRequestCount.get());
+            }
+        });
+
+        root.addCounter("groupCommitCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(groupCount.get());
+            }
+        });
+
+        root.addCounter("failedGroupCommitCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(failedGroupCount.get());
+            }
+        });
+
+        root.addCounter("statementCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(statementCount.get());
+            }
+        });
+
+        root.addCounter("averageGroupCommitMillis", new Instrument<Double>() {
+            @Override
+            public void sample() {
+                final long n = groupCount.get() + failedGroupCount.get();
+                setValue(n == 0 ? 0d : groupNanos.get() / (n * 1000000d));
+            }
+        });
+
+        root.addCounter("averageStatementsPerGroup", new Instrument<Double>() {
+            @Override
+            public void sample() {
+                final long n = groupCount.get();
+                setValue(n == 0 ? 0d : statementCount.get() / (double) n);
+            }
+        });
+
+        for (Map.Entry<String, Lane> e : lanes.entrySet()) {
+
+            final Lane lane = e.getValue();
+
+            root.makePath(e.getKey()).addCounter("queuedBatches",
+                    new Instrument<Integer>() {
+                        @Override
+                        public void sample() {
+                            setValue(lane.queue.size());
+                        }
+                    });
+
+        }
+
+        return root;
+
+    }
+
+}
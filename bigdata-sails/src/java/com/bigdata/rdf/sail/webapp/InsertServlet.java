@@ -23,6 +23,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package com.bigdata.rdf.sail.webapp;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
@@ -46,6 +47,7 @@ import org.openrdf.rio.helpers.RDFHandlerBase;
 import org.openrdf.sail.SailException;
 
 import com.bigdata.journal.ITx;
+import com.bigdata.rdf.store.AbstractTripleStore;
 import com.bigdata.rdf.sail.BigdataSail.BigdataSailConnection;
 import com.bigdata.rdf.sail.BigdataSailRepositoryConnection;
 import com.bigdata.rdf.sail.webapp.client.MiniMime;
@@ -102,6 +104,26 @@ public class InsertServlet extends BigdataRDFServlet {
 	 * continue to execute queries against the last commit point while this
 	 * operation is executed.
 	 * </p>
+	 * <p>
+	 * -OR-
+	 * </p>
+	 * 
+	 * <pre>
+	 * POST [/namespace/NAMESPACE] ?ingest
+	 * ...
+	 * Content-Type: 
+	 * ...
+	 * 
+	 * BODY
+	 * </pre>
+	 * <p>
+	 * Where <code>BODY</code> is streamed into the database. The statements are
+	 * parsed and handed off in batches as the body is read and are committed
+	 * together with the statements from concurrent <code>ingest</code>
+	 * requests for the same namespace (group commit). The response is sent
+	 * once all statements for the request have been committed. This is NOT
+	 * atomic. See {@link GroupCommitIngester}.
+	 * </p>
 	 */
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp)
@@ -115,6 +137,9 @@ public class InsertServlet extends BigdataRDFServlet {
         if (req.getParameter(BigdataRDFContext.URI) != null) {
             doPostWithURIs(req, resp);
             return;
+        } else if (req.getParameter(BigdataRDFContext.INGEST) != null) {
+            doPostIngest(req, resp);
+            return;
         } else {
             doPostWithBody(req, resp);
             return;
@@ -218,6 +243,145 @@ public class InsertServlet extends BigdataRDFServlet {
 
     }
 
+    /**
+     * POST with request body containing statements to be streamed into the
+     * database using group commit.
+     * 
+     * @param req
+     *            The request.
+     * @param resp
+     *            The response.
+     * 
+     * @see GroupCommitIngester
+     */
+    private void doPostIngest(final HttpServletRequest req,
+            final HttpServletResponse resp) throws IOException {
+
+        final long begin = System.currentTimeMillis();
+
+        final String baseURI = req.getRequestURL().toString();
+
+        final String contentType = req.getContentType();
+
+        if (contentType == null) {
+
+            buildAndCommitResponse(resp, HTTP_BADREQUEST, MIME_TEXT_PLAIN,
+                    "Content-Type not specified.");
+
+            return;
+
+        }
+
+        final RDFFormat format = RDFFormat.forMIMEType(new MiniMime(
+                contentType).getMimeType());
+
+        final RDFParserFactory rdfParserFactory = format == null ? null
+                : RDFParserRegistry.getInstance().get(format);
+
+        if (rdfParserFactory == null) {
+
+            buildAndCommitResponse(resp, HTTP_BADREQUEST, MIME_TEXT_PLAIN,
+                    "Content-Type not recognized as RDF: " + contentType);
+
+            return;
+
+        }
+
+        final Resource[] defaultContext;
+        {
+            final String[] s = req.getParameterValues(BigdataRDFContext.CONTEXT_URI);
+            if (s != null && s.length > 0) {
+                try {
+                    defaultContext = toURIs(s);
+                } catch (IllegalArgumentException ex) {
+                    buildAndCommitResponse(resp, HTTP_INTERNALERROR, MIME_TEXT_PLAIN,
+                            ex.getLocalizedMessage());
+                    return;
+                }
+            } else {
+                defaultContext = new Resource[0];
+            }
+        }
+
+        final String namespace = getNamespace(req);
+
+        GroupCommitIngester.IngestRequest ingestRequest = null;
+
+        try {
+
+            final AbstractTripleStore tripleStore = getBigdataRDFContext()
+                    .getTripleStore(namespace, ITx.READ_COMMITTED);
+
+            if (tripleStore == null) {
+
+                throw new DatasetNotFoundException("Not found: namespace="
+                        + namespace);
+
+            }
+
+            ingestRequest = getBigdataRDFContext().getIngester().newRequest(
+                    namespace, defaultContext);
+
+            /*
+             * Note: The parser runs on this thread, concurrently with the
+             * parsers for other ingest requests. Only the writes onto the
+             * UNISOLATED connection are serialized.
+             */
+            final RDFParser rdfParser = rdfParserFactory.getParser();
+
+            rdfParser.setValueFactory(tripleStore.getValueFactory());
+
+            rdfParser.setVerifyData(true);
+
+            rdfParser.setStopAtFirstError(true);
+
+            rdfParser.setDatatypeHandling(RDFParser.DatatypeHandling.IGNORE);
+
+            rdfParser.setRDFHandler(ingestRequest);
+
+            rdfParser.parse(req.getInputStream(), baseURI);
+
+            // Await the group commit.
+            final long nmodified = ingestRequest.close();
+
+            final long elapsed = System.currentTimeMillis() - begin;
+
+            final StringWriter w = new StringWriter();
+
+            new XMLBuilder(w).root("data").attr("modified", nmodified)
+                    .attr("milliseconds", elapsed).close();
+
+            buildAndCommitResponse(resp, HTTP_OK, MIME_APPLICATION_XML,
+                    w.toString());
+
+        } catch (Throwable t) {
+
+            long nmodified = 0L;
+
+            if (ingestRequest != null) {
+
+                /*
+                 * Statements which were already handed off are still
+                 * committed. Wait for them so the client is told how many
+                 * were made durable.
+                 */
+                try {
+                    nmodified = ingestRequest.close();
+                } catch (Throwable t2) {
+                    nmodified = ingestRequest.getMutationCount();
+                }
+
+            }
+
+            BigdataRDFServlet.launderThrowable(t, resp, "INGEST: baseURI="
+                    + baseURI + ", " + BigdataRDFContext.CONTEXT_URI + "="
+                    + Arrays.toString(defaultContext) + ", committed="
+                    + nmodified);
+
+        }
+
+    }
+
     /**
 	 * 
 	 * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan
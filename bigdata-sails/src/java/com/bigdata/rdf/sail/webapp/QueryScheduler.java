@@ -0,0 +1,801 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sail.webapp;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounterSet;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
+import com.bigdata.rdf.sparql.ast.ASTContainer;
+import com.bigdata.rdf.sparql.ast.ArbitraryLengthPathNode;
+import com.bigdata.rdf.sparql.ast.PropertyPathNode;
+import com.bigdata.rdf.sparql.ast.QueryRoot;
+import com.bigdata.rdf.sparql.ast.QueryType;
+import com.bigdata.rdf.sparql.ast.StatementPatternNode;
+import com.bigdata.rdf.sparql.ast.StaticAnalysis;
+import com.bigdata.rdf.sparql.ast.SubqueryRoot;
+import com.bigdata.rdf.sparql.ast.service.ServiceNode;
+
+/**
+ * Admission control and scheduling for the SPARQL QUERY and UPDATE requests
+ * run by the {@link BigdataRDFContext}. Requests are queued per namespace and
+ * dispatched onto the query thread pool by weighted fair queuing (stride
+ * scheduling): each namespace advances a virtual clock by the inverse of its
+ * weight each time one of its requests is started, and the namespace with the
+ * smallest clock whose requests are eligible to run goes next. A request is
+ * eligible if neither its namespace nor its client address are already at
+ * their concurrency limit. This prevents one tenant from occupying every
+ * thread of the shared pool while other tenants are waiting.
+ * <p>
+ * Queries which are predicted to be short by a static inspection of their
+ * AST (see {@link #isShortQuery(ASTContainer)}) may instead be run on a
+ * separate, smaller thread pool (the fast lane) so that they do not wait
+ * behind long running analytic queries.
+ * <p>
+ * The queue wait times, queue lengths and rejections are reported through
+ * {@link #getCounters()}, which is published by the {@link CountersServlet}.
+ * 
+ * @see ConfigParams#MAX_NAMESPACE_QUERIES
+ * @see ConfigParams#MAX_CLIENT_QUERIES
+ * @see ConfigParams#MAX_QUEUED_QUERIES
+ * @see ConfigParams#NAMESPACE_WEIGHTS
+ * @see ConfigParams#FAST_LANE_THREAD_POOL_SIZE
+ */
+public class QueryScheduler implements ICounterSetAccess {
+
+    private static final transient Logger log = Logger
+            .getLogger(QueryScheduler.class);
+
+    /**
+     * A query whose LIMIT exceeds this value is not predicted to be short.
+     */
+    static final long FAST_LANE_MAX_LIMIT = 1000L;
+
+    /**
+     * A query having more statement patterns than this is not predicted to be
+     * short.
+     */
+    static final int FAST_LANE_MAX_PATTERNS = 3;
+
+    /**
+     * The thread pool on which queued requests are run.
+     */
+    private final ExecutorService queryService;
+
+    /**
+     * The thread pool for short queries -or- <code>null</code> if there is no
+     * fast lane.
+     */
+    private final ExecutorService fastLaneService;
+
+    /**
+     * The maximum #of requests dispatched onto the {@link #queryService} at
+     * any time -or- ZERO (0) for no limit. This is normally the size of that
+     * thread pool, which ensures that waiting requests are ordered by this
+     * class rather than by the FIFO work queue of the pool.
+     */
+    private final int maxRunning;
+
+    private final int maxNamespaceQueries;
+
+    private final int maxClientQueries;
+
+    private final int maxQueuedQueries;
+
+    private final Map<String, Integer> weights;
+
+    /**
+     * Guards the scheduler state.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The per-namespace state (guarded by {@link #lock}).
+     */
+    private final Map<String, Tenant> tenants = new LinkedHashMap<String, Tenant>();
+
+    /**
+     * The #of running requests for each client address (guarded by
+     * {@link #lock}).
+     */
+    private final Map<String, Integer> clients = new HashMap<String, Integer>();
+
+    /**
+     * The #of requests dispatched onto the {@link #queryService} which are not
+     * yet done (guarded by {@link #lock}).
+     */
+    private int running = 0;
+
+    /**
+     * The virtual time of the scheduler. This is the clock of the last
+     * namespace to be dispatched. A namespace which becomes active is started
+     * at this time so that it does not accumulate credit while idle (guarded
+     * by {@link #lock}).
+     */
+    private double virtualTime = 0d;
+
+    /**
+     * The #of queries run in the fast lane.
+     */
+    private final AtomicLong fastLaneCount = new AtomicLong();
+
+    /**
+     * Per-namespace scheduler state.
+     */
+    private static class Tenant {
+
+        final String namespace;
+
+        final int weight;
+
+        final LinkedList<Admission> pending = new LinkedList<Admission>();
+
+        int running = 0;
+
+        /**
+         * The virtual clock of the namespace.
+         */
+        double pass = 0d;
+
+        final AtomicLong admittedCount = new AtomicLong();
+
+        final AtomicLong rejectedCount = new AtomicLong();
+
+        final AtomicLong totalQueueWaitNanos = new AtomicLong();
+
+        final AtomicLong maxQueueWaitNanos = new AtomicLong();
+
+        Tenant(final String namespace, final int weight) {
+            this.namespace = namespace;
+            this.weight = weight;
+        }
+
+    }
+
+    /**
+     * A queued request.
+     */
+    private static class Admission {
+
+        final FutureTask<?> ft;
+
+        final String client;
+
+        final long queuedNanos = System.nanoTime();
+
+        Admission(final FutureTask<?> ft, final String client) {
+            this.ft = ft;
+            this.client = client;
+        }
+
+    }
+
+    /**
+     * 
+     * @param queryService
+     *            The thread pool on which queued requests are run.
+     * @param maxRunning
+     *            The maximum #of requests to dispatch onto that pool at any
+     *            time -or- ZERO (0) for no limit.
+     * @param fastLaneService
+     *            The thread pool for short queries (optional).
+     * @param config
+     *            The limits and weights.
+     */
+    public QueryScheduler(final ExecutorService queryService,
+            final int maxRunning, final ExecutorService fastLaneService,
+            final SparqlEndpointConfig config) {
+
+        if (queryService == null)
+            throw new IllegalArgumentException();
+
+        if (maxRunning < 0)
+            throw new IllegalArgumentException();
+
+        if (config == null)
+            throw new IllegalArgumentException();
+
+        this.queryService = queryService;
+        this.maxRunning = maxRunning;
+        this.fastLaneService = fastLaneService;
+        this.maxNamespaceQueries = config.maxNamespaceQueries;
+        this.maxClientQueries = config.maxClientQueries;
+        this.maxQueuedQueries = config.maxQueuedQueries;
+        this.weights = config.namespaceWeights;
+
+    }
+
+    /**
+     * Schedule a request.
+     * 
+     * @param namespace
+     *            The namespace of the request.
+     * @param client
+     *            The client address (optional).
+     * @param shortQuery
+     *            <code>true</code> iff the request is a query which is
+     *            predicted to be short.
+     * @param ft
+     *            The request. The caller waits on this {@link FutureTask} for
+     *            the outcome of the request.
+     * 
+     * @throws RejectedExecutionException
+     *             if the queue for the namespace is full.
+     */
+    public void execute(final String namespace, final String client,
+            final boolean shortQuery, final FutureTask<?> ft) {
+
+        if (namespace == null)
+            throw new IllegalArgumentException();
+
+        if (ft == null)
+            throw new IllegalArgumentException();
+
+        if (shortQuery && fastLaneService != null) {
+
+            fastLaneCount.incrementAndGet();
+
+            fastLaneService.execute(ft);
+
+            return;
+
+        }
+
+        lock.lock();
+        try {
+
+            final Tenant t = getTenant(namespace);
+
+            if (maxQueuedQueries > 0 && t.pending.size() >= maxQueuedQueries) {
+
+                t.rejectedCount.incrementAndGet();
+
+                throw new RejectedExecutionException("Too many queued requests: namespace="
+                        + namespace + ", queued=" + t.pending.size());
+
+            }
+
+            if (t.running == 0 && t.pending.isEmpty()) {
+
+                // Do not let an idle namespace accumulate credit.
+                t.pass = Math.max(t.pass, virtualTime);
+
+            }
+
+            t.pending.add(new Admission(ft, client));
+
+            dispatch();
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    /**
+     * Start queued requests while there is capacity. The caller must hold the
+     * {@link #lock}.
+     */
+    private void dispatch() {
+
+        while (maxRunning == 0 || running < maxRunning) {
+
+            Tenant best = null;
+            Admission next = null;
+
+            for (Tenant t : tenants.values()) {
+
+                if (t.pending.isEmpty())
+                    continue;
+
+                if (maxNamespaceQueries > 0 && t.running >= maxNamespaceQueries)
+                    continue;
+
+                if (best != null && t.pass >= best.pass)
+                    continue;
+
+                final Admission a = firstEligible(t);
+
+                if (a == null)
+                    continue;
+
+                best = t;
+                next = a;
+
+            }
+
+            if (best == null) {
+
+                // Nothing can be started.
+                return;
+
+            }
+
+            best.pending.remove(next);
+
+            start(best, next);
+
+        }
+
+    }
+
+    /**
+     * Return the first queued request for the namespace whose client is not at
+     * its concurrency limit.
+     */
+    private Admission firstEligible(final Tenant t) {
+
+        if (maxClientQueries == 0)
+            return t.pending.getFirst();
+
+        for (Admission a : t.pending) {
+
+            if (a.client == null)
+                return a;
+
+            final Integer n = clients.get(a.client);
+
+            if (n == null || n < maxClientQueries)
+                return a;
+
+        }
+
+        return null;
+
+    }
+
+    private void start(final Tenant t, final Admission a) {
+
+        t.running++;
+
+        running++;
+
+        if (a.client != null) {
+
+            final Integer n = clients.get(a.client);
+
+            clients.put(a.client, n == null ? 1 : n + 1);
+
+        }
+
+        virtualTime = t.pass;
+
+        t.pass += 1d / t.weight;
+
+        final long waitNanos = System.nanoTime() - a.queuedNanos;
+
+        t.admittedCount.incrementAndGet();
+
+        t.totalQueueWaitNanos.addAndGet(waitNanos);
+
+        if (waitNanos > t.maxQueueWaitNanos.get())
+            t.maxQueueWaitNanos.set(waitNanos);
+
+        if (log.isDebugEnabled())
+            log.debug("namespace=" + t.namespace + ", client=" + a.client
+                    + ", waitMillis="
+                    + TimeUnit.NANOSECONDS.toMillis(waitNanos) + ", running="
+                    + running);
+
+        try {
+
+            queryService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        a.ft.run();
+                    } finally {
+                        done(t, a);
+                    }
+                }
+            });
+
+        } catch (RejectedExecutionException ex) {
+
+            // The thread pool was shutdown.
+            undo(t, a);
+
+            a.ft.cancel(true/* mayInterruptIfRunning */);
+
+        }
+
+    }
+
+    private void done(final Tenant t, final Admission a) {
+
+        lock.lock();
+        try {
+
+            undo(t, a);
+
+            dispatch();
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    private void undo(final Tenant t, final Admission a) {
+
+        t.running--;
+
+        running--;
+
+        if (a.client != null) {
+
+            final int n = clients.get(a.client) - 1;
+
+            if (n == 0)
+                clients.remove(a.client);
+            else
+                clients.put(a.client, n);
+
+        }
+
+    }
+
+    private Tenant getTenant(final String namespace) {
+
+        Tenant t = tenants.get(namespace);
+
+        if (t == null) {
+
+            final Integer w = weights.get(namespace);
+
+            t = new Tenant(namespace, w == null ? 1 : w);
+
+            tenants.put(namespace, t);
+
+        }
+
+        return t;
+
+    }
+
+    /**
+     * Cancel any queued requests.
+     */
+    public void shutdownNow() {
+
+        lock.lock();
+        try {
+
+            for (Tenant t : tenants.values()) {
+
+                final Iterator<Admission> itr = t.pending.iterator();
+
+                while (itr.hasNext()) {
+
+                    itr.next().ft.cancel(true/* mayInterruptIfRunning */);
+
+                    itr.remove();
+
+                }
+
+            }
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    /**
+     * Return <code>true</code> if a query is predicted to be short. This is a
+     * static estimate from the original AST of the query. An ASK query, or a
+     * query having a LIMIT of at most {@link #FAST_LANE_MAX_LIMIT}, is short
+     * unless it has ORDER BY, GROUP BY or aggregates, subqueries, SERVICE
+     * calls, property paths, or more than {@link #FAST_LANE_MAX_PATTERNS}
+     * statement patterns, any of which may force the evaluation of the entire
+     * WHERE clause before the first solution is produced.
+     * 
+     * @param astContainer
+     *            The parsed query.
+     */
+    public static boolean isShortQuery(final ASTContainer astContainer) {
+
+        if (!astContainer.isQuery())
+            return false;
+
+        final QueryRoot q = astContainer.getOriginalAST();
+
+        if (q == null || q.getWhereClause() == null)
+            return false;
+
+        if (q.getQueryType() != QueryType.ASK) {
+
+            if (!q.hasSlice() || q.getSlice().getLimit() > FAST_LANE_MAX_LIMIT)
+                return false;
+
+        }
+
+        if (q.getOrderBy() != null || q.getGroupBy() != null
+                || q.getHaving() != null || StaticAnalysis.isAggregate(q))
+            return false;
+
+        if (q.getNamedSubqueries() != null
+                && !q.getNamedSubqueries().isEmpty())
+            return false;
+
+        if (BOpUtility.visitAll(q.getWhereClause(), SubqueryRoot.class)
+                .hasNext()
+                || BOpUtility.visitAll(q.getWhereClause(), ServiceNode.class)
+                        .hasNext()
+                || BOpUtility.visitAll(q.getWhereClause(),
+                        PropertyPathNode.class).hasNext()
+                || BOpUtility.visitAll(q.getWhereClause(),
+                        ArbitraryLengthPathNode.class).hasNext())
+            return false;
+
+        int n = 0;
+
+        final Iterator<StatementPatternNode> itr = BOpUtility.visitAll(
+                q.getWhereClause(), StatementPatternNode.class);
+
+        while (itr.hasNext()) {
+
+            itr.next();
+
+            if (++n > FAST_LANE_MAX_PATTERNS)
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Parse the value of {@link ConfigParams#NAMESPACE_WEIGHTS}.
+     * 
+     * @param s
+     *            A comma separated list of <code>namespace=weight</code>
+     *            pairs.
+     * 
+     * @return The weights.
+     * 
+     * @throws IllegalArgumentException
+     *             if the value can not be parsed or a weight is not positive.
+     */
+    public static Map<String, Integer> parseWeights(final String s) {
+
+        if (s == null)
+            throw new IllegalArgumentException();
+
+        final Map<String, Integer> weights = new LinkedHashMap<String, Integer>();
+
+        for (String pair : s.split(",")) {
+
+            pair = pair.trim();
+
+            if (pair.length() == 0)
+                continue;
+
+            final int pos = pair.lastIndexOf('=');
+
+            if (pos <= 0)
+                throw new IllegalArgumentException(
+                        ConfigParams.NAMESPACE_WEIGHTS + "=" + s);
+
+            final int weight;
+            try {
+                weight = Integer.parseInt(pair.substring(pos + 1).trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException(
+                        ConfigParams.NAMESPACE_WEIGHTS + "=" + s, ex);
+            }
+
+            if (weight <= 0)
+                throw new IllegalArgumentException(
+                        ConfigParams.NAMESPACE_WEIGHTS + "=" + s);
+
+            weights.put(pair.substring(0, pos).trim(), weight);
+
+        }
+
+        return Collections.unmodifiableMap(weights);
+
+    }
+
+    /**
+     * Interface declaring the counters reported by the {@link QueryScheduler}.
+     */
+    public interface IQuerySchedulerCounters {
+
+        /**
+         * The #of requests dispatched onto the query thread pool which are not
+         * yet done.
+         */
+        String Running = "running";
+
+        /**
+         * The #of queries run in the fast lane.
+         */
+        String FastLaneCount = "fastLaneCount";
+
+        /**
+         * The #of requests queued for a namespace.
+         */
+        String Queued = "queued";
+
+        /**
+         * The #of requests started for a namespace.
+         */
+        String AdmittedCount = "admittedCount";
+
+        /**
+         * The #of requests refused for a namespace because its queue was full.
+         */
+        String RejectedCount = "rejectedCount";
+
+        /**
+         * The average time (milliseconds) that the requests for a namespace
+         * waited in the queue.
+         */
+        String AverageQueueWaitMillis = "averageQueueWaitMillis";
+
+        /**
+         * The maximum time (milliseconds) that a request for a namespace waited
+         * in the queue.
+         */
+        String MaxQueueWaitMillis = "maxQueueWaitMillis";
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter(IQuerySchedulerCounters.Running,
+                new Instrument<Integer>() {
+                    @Override
+                    public void sample() {
+                        lock.lock();
+                        try {
+                            setValue(running);
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                });
+
+        root.addCounter(IQuerySchedulerCounters.FastLaneCount,
+                new Instrument<Long>() {
+                    @Override
+                    public void sample() {
+                        setValue(fastLaneCount.get());
+                    }
+                });
+
+        final Tenant[] a;
+        lock.lock();
+        try {
+            a = tenants.values().toArray(new Tenant[tenants.size()]);
+        } finally {
+            lock.unlock();
+        }
+
+        for (final Tenant t : a) {
+
+            final CounterSet tmp = root.makePath("namespace"
+                    + ICounterSet.pathSeparator + t.namespace);
+
+            tmp.addCounter(IQuerySchedulerCounters.Queued,
+                    new Instrument<Integer>() {
+                        @Override
+                        public void sample() {
+                            lock.lock();
+                            try {
+                                setValue(t.pending.size());
+                            } finally {
+                                lock.unlock();
+                            }
+                        }
+                    });
+
+            tmp.addCounter(IQuerySchedulerCounters.Running,
+                    new Instrument<Integer>() {
+                        @Override
+                        public void sample() {
+                            lock.lock();
+                            try {
+                                setValue(t.running);
+                            } finally {
+                                lock.unlock();
+                            }
+                        }
+                    });
+
+            tmp.addCounter(IQuerySchedulerCounters.AdmittedCount,
+                    new Instrument<Long>() {
+                        @Override
+                        public void sample() {
+                            setValue(t.admittedCount.get());
+                        }
+                    });
+
+            tmp.addCounter(IQuerySchedulerCounters.RejectedCount,
+                    new Instrument<Long>() {
+                        @Override
+                        public void sample() {
+                            setValue(t.rejectedCount.get());
+                        }
+                    });
+
+            tmp.addCounter(IQuerySchedulerCounters.AverageQueueWaitMillis,
+                    new Instrument<Double>() {
+                        @Override
+                        public void sample() {
+                            final long n = t.admittedCount.get();
+                            setValue(n == 0 ? 0d : TimeUnit.NANOSECONDS
+                                    .toMillis(t.totalQueueWaitNanos.get())
+                                    / (double) n);
+                        }
+                    });
+
+            tmp.addCounter(IQuerySchedulerCounters.MaxQueueWaitMillis,
+                    new Instrument<Long>() {
+                        @Override
+                        public void sample() {
+                            setValue(TimeUnit.NANOSECONDS
+                                    .toMillis(t.maxQueueWaitNanos.get()));
+                        }
+                    });
+
+        }
+
+        return root;
+
+    }
+
+}
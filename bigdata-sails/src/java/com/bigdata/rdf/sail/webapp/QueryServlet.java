@@ -260,6 +260,10 @@ public class QueryServlet extends BigdataRDFServlet {
          */
         final long tx = getBigdataRDFContext().newTx(getTimestamp(req));
         
+        // Compress the response iff negotiated with the client.
+        final HttpServletResponse cresp = getBigdataRDFContext().compress(req,
+                resp);
+
         try {
             
             final AbstractTripleStore tripleStore = getBigdataRDFContext()
@@ -269,7 +273,7 @@ public class QueryServlet extends BigdataRDFServlet {
                 /*
                  * There is no such triple/quad store instance.
                  */
-                buildAndCommitNamespaceNotFoundResponse(req, resp);
+                buildAndCommitNamespaceNotFoundResponse(req, cresp);
                 return;
             }
 
@@ -294,14 +298,16 @@ public class QueryServlet extends BigdataRDFServlet {
 
             }
 
-            sendGraph(req, resp, g);
+            sendGraph(req, cresp, g);
             
 		} catch (Throwable t) {
 
-			launderThrowable(t, resp, "");
+			launderThrowable(t, cresp, "");
 
         } finally {
 
+            CompressedResponse.done(cresp);
+
             getBigdataRDFContext().abortTx(tx);
 
         }
@@ -341,6 +347,21 @@ public class QueryServlet extends BigdataRDFServlet {
 
       }
 
+      /*
+       * Note: The response is written using non-blocking I/O (if enabled).
+       * The update task is not held up by a client which is slow to read the
+       * response unless the buffered response exceeds the memory and spill
+       * limits. The async request is completed by done() once the buffered
+       * response has been written.
+       * 
+       * Note: This servlet is NOT asynchronous. The request thread still
+       * blocks below until the task is done. Only the transfer of the
+       * response is decoupled from the task.
+       */
+      final HttpServletResponse aresp = AsyncResponse.startAsync(req, resp,
+            getBigdataRDFContext().getConfig().asyncResponseBufferBytes,
+            getBigdataRDFContext().getConfig().asyncResponseMaxSpillBytes);
+
       try {
 
          final String namespace = getNamespace(req);
@@ -357,12 +378,16 @@ public class QueryServlet extends BigdataRDFServlet {
           * visibility guarantees.
           */
          submitApiTask(
-               new SparqlUpdateTask(req, resp, namespace, timestamp, updateStr,
+               new SparqlUpdateTask(req, aresp, namespace, timestamp, updateStr,
                      getBigdataRDFContext())).get();
 
       } catch (Throwable t) {
 
-         launderThrowable(t, resp, "SPARQL-UPDATE: updateStr=" + updateStr);
+         launderThrowable(t, aresp, "SPARQL-UPDATE: updateStr=" + updateStr);
+
+      } finally {
+
+         AsyncResponse.done(aresp);
 
       }
 
@@ -454,7 +479,7 @@ public class QueryServlet extends BigdataRDFServlet {
 					 * Note: UPDATEs currently contend with QUERYs against the
 					 * same thread pool.
 					 */
-					context.queryService.execute(ft);
+					context.execute(updateTask, ft);
 
 					// Wait for the Future.
 					ft.get();
@@ -523,6 +548,26 @@ public class QueryServlet extends BigdataRDFServlet {
 
       }
 
+      /*
+       * Note: The solutions are written using non-blocking I/O (if enabled).
+       * The query runs to completion (releasing its thread, locks, and
+       * buffers) even if the client is slow to read the response. Output
+       * which the client has not yet accepted is buffered and spilled onto a
+       * temporary file beyond the configured limit. Once the spill limit is
+       * reached, the query blocks until the client catches up.
+       * 
+       * Note: This servlet is NOT asynchronous. The request thread still
+       * blocks below until the query is done. Only the transfer of the
+       * response is decoupled from the query.
+       */
+      final HttpServletResponse aresp = AsyncResponse.startAsync(req, resp,
+            getBigdataRDFContext().getConfig().asyncResponseBufferBytes,
+            getBigdataRDFContext().getConfig().asyncResponseMaxSpillBytes);
+
+      // Compress the response iff negotiated with the client.
+      final HttpServletResponse cresp = getBigdataRDFContext().compress(req,
+            aresp);
+
       try {
 
          final String namespace = getNamespace(req);
@@ -530,12 +575,18 @@ public class QueryServlet extends BigdataRDFServlet {
          final long timestamp = getTimestamp(req);
 
          submitApiTask(
-               new SparqlQueryTask(req, resp, namespace, timestamp, queryStr,
+               new SparqlQueryTask(req, cresp, namespace, timestamp, queryStr,
                      getBigdataRDFContext())).get();
 
       } catch (Throwable t) {
 
-         launderThrowable(t, resp, "SPARQL-QUERY: queryStr=" + queryStr);
+         launderThrowable(t, cresp, "SPARQL-QUERY: queryStr=" + queryStr);
+
+      } finally {
+
+         CompressedResponse.done(cresp);
+
+         AsyncResponse.done(aresp);
 
       }
 
@@ -644,7 +695,7 @@ public class QueryServlet extends BigdataRDFServlet {
 								queryTask.charset);
 						try {
 							// Begin executing the query (asynchronous)
-							context.queryService.execute(ft);
+							context.execute(queryTask, ft);
 							// Send an explanation instead of the query results.
 							explainQuery(queryStr, queryTask, ft, w);
 						} finally {
@@ -719,7 +770,7 @@ public class QueryServlet extends BigdataRDFServlet {
 						}
 
 						// Begin executing the query (asynchronous)
-						context.queryService.execute(ft);
+						context.execute(queryTask, ft);
 
 						// Wait for the Future.
 						ft.get();
@@ -1146,18 +1197,26 @@ public class QueryServlet extends BigdataRDFServlet {
             log.info("ESTCARD: access path: (s=" + s + ", p=" + p + ", o="
                     + o + ", c=" + c + ")");
 
+        // Compress the response iff negotiated with the client.
+        final HttpServletResponse cresp = getBigdataRDFContext().compress(req,
+                resp);
+
         try {
             
             submitApiTask(
-                    new EstCardTask(req, resp, getNamespace(req),
+                    new EstCardTask(req, cresp, getNamespace(req),
                             getTimestamp(req), //
                             s, p, o, c)).get();
 
         } catch (Throwable t) {
 
-            launderThrowable(t, resp, "ESTCARD: access path: (s=" + s + ", p="
+            launderThrowable(t, cresp, "ESTCARD: access path: (s=" + s + ", p="
                     + p + ", o=" + o + ", c=" + c + ")");
 
+        } finally {
+
+            CompressedResponse.done(cresp);
+
         }
         
     }
@@ -1249,15 +1308,23 @@ public class QueryServlet extends BigdataRDFServlet {
             return;
         }
 
+        // Compress the response iff negotiated with the client.
+        final HttpServletResponse cresp = getBigdataRDFContext().compress(req,
+                resp);
+
         try {
             
             submitApiTask(
-                    new RestApiGetContextsTask(req, resp, getNamespace(req),
+                    new RestApiGetContextsTask(req, cresp, getNamespace(req),
                             getTimestamp(req))).get();
 
         } catch (Throwable t) {
 
-            launderThrowable(t, resp, "GET-CONTEXTS");
+            launderThrowable(t, cresp, "GET-CONTEXTS");
+
+        } finally {
+
+            CompressedResponse.done(cresp);
 
         }
 
@@ -1304,17 +1371,25 @@ public class QueryServlet extends BigdataRDFServlet {
             log.info("SHARDS: access path: (s=" + s + ", p=" + p + ", o="
                     + o + ", c=" + c + ")");
 
+        // Compress the response iff negotiated with the client.
+        final HttpServletResponse cresp = getBigdataRDFContext().compress(req,
+                resp);
+
         try {
             
             submitApiTask(
-                    new ShardsTask(req, resp, getNamespace(req),
+                    new ShardsTask(req, cresp, getNamespace(req),
                             getTimestamp(req), s, p, o, c, doRangeCount)).get();
 
         } catch (Throwable t) {
 
-            launderThrowable(t, resp, "SHARDS: access path: (s=" + s + ", p="
+            launderThrowable(t, cresp, "SHARDS: access path: (s=" + s + ", p="
                     + p + ", o=" + o + ", c=" + c + ")");
 
+        } finally {
+
+            CompressedResponse.done(cresp);
+
         }
 
     }
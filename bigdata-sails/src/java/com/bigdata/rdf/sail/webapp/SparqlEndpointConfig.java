@@ -22,6 +22,10 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 */
 package com.bigdata.rdf.sail.webapp;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Configuration object.
  * 
@@ -86,10 +90,203 @@ public class SparqlEndpointConfig {
      */
     final public long queryTimeout;
     
+    /**
+     * When <code>true</code>, SELECT query results are written directly from
+     * the native solutions for the formats which support this.
+     * 
+     * @see ConfigParams#NATIVE_SOLUTION_WRITERS
+     */
+    final public boolean nativeSolutionWriters;
+
+    /**
+     * The maximum #of concurrent requests per namespace -or- ZERO (0) for no
+     * limit.
+     * 
+     * @see ConfigParams#MAX_NAMESPACE_QUERIES
+     */
+    final public int maxNamespaceQueries;
+
+    /**
+     * The maximum #of concurrent requests per client address -or- ZERO (0) for
+     * no limit.
+     * 
+     * @see ConfigParams#MAX_CLIENT_QUERIES
+     */
+    final public int maxClientQueries;
+
+    /**
+     * The maximum #of queued requests per namespace -or- ZERO (0) for no
+     * limit.
+     * 
+     * @see ConfigParams#MAX_QUEUED_QUERIES
+     */
+    final public int maxQueuedQueries;
+
+    /**
+     * The relative weights of the namespaces (a namespace which is not listed
+     * has a weight of ONE).
+     * 
+     * @see ConfigParams#NAMESPACE_WEIGHTS
+     */
+    final public Map<String, Integer> namespaceWeights;
+
+    /**
+     * The #of threads used to run queries which are predicted to be short
+     * -or- ZERO (0) if there is no fast lane.
+     * 
+     * @see ConfigParams#FAST_LANE_THREAD_POOL_SIZE
+     */
+    final public int fastLaneThreadPoolSize;
+
+    /**
+     * The maximum #of bytes of a response which are buffered in memory before
+     * spilling onto a temporary file -or- ZERO (0) if responses are written
+     * using blocking I/O.
+     * 
+     * @see ConfigParams#ASYNC_RESPONSE_BUFFER_BYTES
+     */
+    final public long asyncResponseBufferBytes;
+
+    /**
+     * The maximum #of bytes of a response which are spilled onto a temporary
+     * file before the producer blocks -or- ZERO (0) to never spill.
+     * 
+     * @see ConfigParams#ASYNC_RESPONSE_MAX_SPILL_BYTES
+     */
+    final public long asyncResponseMaxSpillBytes;
+
+    /**
+     * The maximum time in milliseconds that a commit group for streaming
+     * ingest remains open.
+     * 
+     * @see ConfigParams#INGEST_GROUP_COMMIT_MILLIS
+     */
+    final public long ingestGroupCommitMillis;
+
+    /**
+     * The #of statements in each batch handed off by a streaming ingest
+     * request.
+     * 
+     * @see ConfigParams#INGEST_BATCH_SIZE
+     */
+    final public int ingestBatchSize;
+
+    /**
+     * The compression level for responses -or- ZERO (0) if responses are
+     * never compressed.
+     * 
+     * @see ConfigParams#RESPONSE_COMPRESSION_LEVEL
+     */
+    final public int responseCompressionLevel;
+
+    public SparqlEndpointConfig(final String namespace, final long timestamp,
+            final int queryThreadPoolSize,
+            final boolean describeEachNamedGraph, final boolean readOnly,
+            final long queryTimeout, final boolean nativeSolutionWriters) {
+
+        this(namespace, timestamp, queryThreadPoolSize,
+                describeEachNamedGraph, readOnly, queryTimeout,
+                nativeSolutionWriters,
+                ConfigParams.DEFAULT_MAX_NAMESPACE_QUERIES,
+                ConfigParams.DEFAULT_MAX_CLIENT_QUERIES,
+                ConfigParams.DEFAULT_MAX_QUEUED_QUERIES,
+                Collections.<String, Integer> emptyMap(),
+                ConfigParams.DEFAULT_FAST_LANE_THREAD_POOL_SIZE);
+
+    }
+
     public SparqlEndpointConfig(final String namespace, final long timestamp,
             final int queryThreadPoolSize,
             final boolean describeEachNamedGraph, final boolean readOnly,
-            final long queryTimeout) {
+            final long queryTimeout, final boolean nativeSolutionWriters,
+            final int maxNamespaceQueries, final int maxClientQueries,
+            final int maxQueuedQueries,
+            final Map<String, Integer> namespaceWeights,
+            final int fastLaneThreadPoolSize) {
+
+        this(namespace, timestamp, queryThreadPoolSize,
+                describeEachNamedGraph, readOnly, queryTimeout,
+                nativeSolutionWriters, maxNamespaceQueries, maxClientQueries,
+                maxQueuedQueries, namespaceWeights, fastLaneThreadPoolSize,
+                ConfigParams.DEFAULT_ASYNC_RESPONSE_BUFFER_BYTES);
+
+    }
+
+    public SparqlEndpointConfig(final String namespace, final long timestamp,
+            final int queryThreadPoolSize,
+            final boolean describeEachNamedGraph, final boolean readOnly,
+            final long queryTimeout, final boolean nativeSolutionWriters,
+            final int maxNamespaceQueries, final int maxClientQueries,
+            final int maxQueuedQueries,
+            final Map<String, Integer> namespaceWeights,
+            final int fastLaneThreadPoolSize,
+            final long asyncResponseBufferBytes) {
+
+        this(namespace, timestamp, queryThreadPoolSize,
+                describeEachNamedGraph, readOnly, queryTimeout,
+                nativeSolutionWriters, maxNamespaceQueries, maxClientQueries,
+                maxQueuedQueries, namespaceWeights, fastLaneThreadPoolSize,
+                asyncResponseBufferBytes,
+                ConfigParams.DEFAULT_INGEST_GROUP_COMMIT_MILLIS,
+                ConfigParams.DEFAULT_INGEST_BATCH_SIZE);
+
+    }
+
+    public SparqlEndpointConfig(final String namespace, final long timestamp,
+            final int queryThreadPoolSize,
+            final boolean describeEachNamedGraph, final boolean readOnly,
+            final long queryTimeout, final boolean nativeSolutionWriters,
+            final int maxNamespaceQueries, final int maxClientQueries,
+            final int maxQueuedQueries,
+            final Map<String, Integer> namespaceWeights,
+            final int fastLaneThreadPoolSize,
+            final long asyncResponseBufferBytes,
+            final long ingestGroupCommitMillis, final int ingestBatchSize) {
+
+        this(namespace, timestamp, queryThreadPoolSize,
+                describeEachNamedGraph, readOnly, queryTimeout,
+                nativeSolutionWriters, maxNamespaceQueries, maxClientQueries,
+                maxQueuedQueries, namespaceWeights, fastLaneThreadPoolSize,
+                asyncResponseBufferBytes, ingestGroupCommitMillis,
+                ingestBatchSize,
+                ConfigParams.DEFAULT_RESPONSE_COMPRESSION_LEVEL);
+
+    }
+
+    public SparqlEndpointConfig(final String namespace, final long timestamp,
+            final int queryThreadPoolSize,
+            final boolean describeEachNamedGraph, final boolean readOnly,
+            final long queryTimeout, final boolean nativeSolutionWriters,
+            final int maxNamespaceQueries, final int maxClientQueries,
+            final int maxQueuedQueries,
+            final Map<String, Integer> namespaceWeights,
+            final int fastLaneThreadPoolSize,
+            final long asyncResponseBufferBytes,
+            final long ingestGroupCommitMillis, final int ingestBatchSize,
+            final int responseCompressionLevel) {
+
+        this(namespace, timestamp, queryThreadPoolSize,
+                describeEachNamedGraph, readOnly, queryTimeout,
+                nativeSolutionWriters, maxNamespaceQueries, maxClientQueries,
+                maxQueuedQueries, namespaceWeights, fastLaneThreadPoolSize,
+                asyncResponseBufferBytes, ingestGroupCommitMillis,
+                ingestBatchSize, responseCompressionLevel,
+                ConfigParams.DEFAULT_ASYNC_RESPONSE_MAX_SPILL_BYTES);
+
+    }
+
+    public SparqlEndpointConfig(final String namespace, final long timestamp,
+            final int queryThreadPoolSize,
+            final boolean describeEachNamedGraph, final boolean readOnly,
+            final long queryTimeout, final boolean nativeSolutionWriters,
+            final int maxNamespaceQueries, final int maxClientQueries,
+            final int maxQueuedQueries,
+            final Map<String, Integer> namespaceWeights,
+            final int fastLaneThreadPoolSize,
+            final long asyncResponseBufferBytes,
+            final long ingestGroupCommitMillis, final int ingestBatchSize,
+            final int responseCompressionLevel,
+            final long asyncResponseMaxSpillBytes) {
 
         if (namespace == null)
             throw new IllegalArgumentException();
@@ -109,6 +306,59 @@ public class SparqlEndpointConfig {
         
         this.queryTimeout = queryTimeout;
         
+        this.nativeSolutionWriters = nativeSolutionWriters;
+
+        if (maxNamespaceQueries < 0)
+            throw new IllegalArgumentException();
+
+        if (maxClientQueries < 0)
+            throw new IllegalArgumentException();
+
+        if (maxQueuedQueries < 0)
+            throw new IllegalArgumentException();
+
+        if (namespaceWeights == null)
+            throw new IllegalArgumentException();
+
+        if (fastLaneThreadPoolSize < 0)
+            throw new IllegalArgumentException();
+
+        if (asyncResponseBufferBytes < 0L)
+            throw new IllegalArgumentException();
+
+        if (asyncResponseMaxSpillBytes < 0L)
+            throw new IllegalArgumentException();
+
+        if (ingestGroupCommitMillis < 0L)
+            throw new IllegalArgumentException();
+
+        if (ingestBatchSize <= 0)
+            throw new IllegalArgumentException();
+
+        if (responseCompressionLevel < 0 || responseCompressionLevel > 9)
+            throw new IllegalArgumentException();
+
+        this.maxNamespaceQueries = maxNamespaceQueries;
+
+        this.maxClientQueries = maxClientQueries;
+
+        this.maxQueuedQueries = maxQueuedQueries;
+
+        this.namespaceWeights = Collections
+                .unmodifiableMap(new HashMap<String, Integer>(namespaceWeights));
+
+        this.fastLaneThreadPoolSize = fastLaneThreadPoolSize;
+
+        this.asyncResponseBufferBytes = asyncResponseBufferBytes;
+
+        this.asyncResponseMaxSpillBytes = asyncResponseMaxSpillBytes;
+
+        this.ingestGroupCommitMillis = ingestGroupCommitMillis;
+
+        this.ingestBatchSize = ingestBatchSize;
+
+        this.responseCompressionLevel = responseCompressionLevel;
+
     }
 
 }
@@ -53,6 +53,8 @@ import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.engine.AbstractRunningQuery;
 import com.bigdata.bop.engine.BOpStats;
 import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.OperatorProfiler;
+import com.bigdata.bop.engine.OperatorProfiler.OperatorProfile;
 import com.bigdata.bop.engine.QueryEngine;
 import com.bigdata.bop.engine.QueryLog;
 import com.bigdata.bop.fed.QueryEngineFactory;
@@ -71,6 +73,8 @@ import com.bigdata.rdf.sail.webapp.BigdataRDFContext.UpdateTask;
 import com.bigdata.rdf.sparql.ast.ASTContainer;
 import com.bigdata.rdf.sparql.ast.QueryRoot;
 import com.bigdata.rdf.sparql.ast.UpdateRoot;
+import com.bigdata.rdf.sparql.ast.cache.CacheConnectionFactory;
+import com.bigdata.rdf.sparql.ast.cache.ICacheConnection;
 import com.bigdata.rdf.store.AbstractTripleStore;
 import com.bigdata.util.InnerCause;
 
@@ -202,6 +206,25 @@ public class StatusServlet extends BigdataRDFServlet {
      * Request basic server health information.
      */
     static final String HEALTH = "health";
+
+    /**
+     * Request the operators having the greatest cumulative time over the
+     * sliding window of the {@link OperatorProfiler}. The optional value is
+     * the maximum #of operators to report (default
+     * {@value #DEFAULT_TOP_OPERATORS}). The response is plain text.
+     * 
+     * @see #FOLDED
+     */
+    static final String TOP_OPERATORS = "topOperators";
+
+    static final int DEFAULT_TOP_OPERATORS = 20;
+
+    /**
+     * When specified with {@link #TOP_OPERATORS}, the operators are reported
+     * as folded stacks (<code>signature;operator#bopId wallMicros</code>),
+     * which is the input format for flame graph tools.
+     */
+    static final String FOLDED = "folded";
     
     /**
      * Handles CANCEL requests (terminate a running query).
@@ -429,6 +452,14 @@ public class StatusServlet extends BigdataRDFServlet {
          return;
       }
 
+        if (req.getParameter(TOP_OPERATORS) != null) {
+
+            doTopOperators(req, resp);
+
+            return;
+
+        }
+
         // IRunningQuery objects currently running on the query controller.
         final boolean showQueries = req.getParameter(SHOW_QUERIES) != null;
 
@@ -645,6 +676,20 @@ public class StatusServlet extends BigdataRDFServlet {
 
                 }
 
+                /*
+                 * Performance counters for the SPARQL solution cache (if
+                 * enabled).
+                 */
+                final ICacheConnection cacheConn = CacheConnectionFactory
+                        .getExistingCacheConnection(queryEngine);
+
+                if (cacheConn != null) {
+
+                    counterSet.makePath("solutionCache").attach(
+                            cacheConn.getCounters(), true/* replace */);
+
+                }
+
                 // @SuppressWarnings("rawtypes")
                 // final Iterator<ICounter> itr = counterSet
                 // .getCounters(null/* filter */);
@@ -1365,6 +1410,112 @@ public class StatusServlet extends BigdataRDFServlet {
 	 * @see <a href="http://trac.blazegraph.com/ticket/1082" > Add ability to dump
 	 *      threads to status page </a>
 	 */
+    /**
+     * Write the operators having the greatest cumulative time over the
+     * sliding window of the {@link OperatorProfiler} onto the response.
+     * 
+     * @see #TOP_OPERATORS
+     */
+    private void doTopOperators(final HttpServletRequest req,
+            final HttpServletResponse resp) throws IOException {
+
+        int limit = DEFAULT_TOP_OPERATORS;
+        {
+            final String s = req.getParameter(TOP_OPERATORS);
+            if (s != null && s.length() > 0) {
+                try {
+                    limit = Integer.valueOf(s);
+                } catch (NumberFormatException ex) {
+                    limit = -1;
+                }
+                if (limit <= 0) {
+                    buildAndCommitResponse(resp, HTTP_BADREQUEST,
+                            MIME_TEXT_PLAIN, TOP_OPERATORS + "=" + s);
+                    return;
+                }
+            }
+        }
+
+        final boolean folded = req.getParameter(FOLDED) != null;
+
+        final QueryEngine queryEngine = (QueryEngine) QueryEngineFactory
+                .getQueryController(getIndexManager());
+
+        final OperatorProfiler profiler = OperatorProfiler
+                .getInstance(queryEngine);
+
+        final List<OperatorProfile> a = profiler.getTopOperators(limit);
+
+        resp.setStatus(HTTP_OK);
+
+        // Do not cache the response.
+        resp.addHeader("Cache-Control", "no-cache");
+
+        // Plain text response.
+        resp.setContentType(MIME_TEXT_PLAIN);
+
+        final PrintWriter w = resp.getWriter();
+
+        try {
+
+            if (folded) {
+
+                for (OperatorProfile p : a) {
+
+                    w.println(p.getSignature() + ";" + p.getBOpName() + "#"
+                            + p.getBOpId() + " " + p.getWallNanos() / 1000);
+
+                }
+
+            } else {
+
+                w.println(profiler);
+
+                w.println();
+
+                w.println(String.format("%-10s %6s %-32s %8s %12s %12s %14s",
+                        "signature", "bopId", "operator", "samples",
+                        "wallMillis", "cpuMillis", "allocatedBytes"));
+
+                // The plans for the reported signatures.
+                final Map<String, String> plans = new LinkedHashMap<String, String>();
+
+                for (OperatorProfile p : a) {
+
+                    w.println(String.format(
+                            "%-10s %6d %-32s %8d %12d %12d %14d",
+                            p.getSignature(), p.getBOpId(), p.getBOpName(),
+                            p.getSampleCount(), p.getWallNanos() / 1000000,
+                            p.getCPUNanos() / 1000000, p.getAllocatedBytes()));
+
+                    plans.put(p.getSignature(), p.getPlan());
+
+                }
+
+                w.println();
+
+                for (Map.Entry<String, String> e : plans.entrySet()) {
+
+                    w.println(e.getKey() + " : " + e.getValue());
+
+                }
+
+            }
+
+            w.flush();
+
+        } catch (Throwable t) {
+
+            launderThrowable(t, resp, "");
+
+        } finally {
+
+            w.close();
+
+        }
+
+    }
+
 	private static void doThreadDump(final HttpServletRequest req,
 			final HttpServletResponse resp) throws IOException {
 
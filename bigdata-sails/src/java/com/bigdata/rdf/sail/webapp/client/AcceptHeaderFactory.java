@@ -47,6 +47,9 @@ import org.openrdf.query.resultio.TupleQueryResultParserRegistry;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFParserRegistry;
 
+import com.bigdata.rdf.rio.solutions.BinarySolutionsFormat;
+import com.bigdata.rdf.rio.solutions.BinarySolutionsParserFactory;
+
 /**
  * Utility class for generating accept heades modeled on
  * {@link RDFFormat#getAcceptParams(Iterable, boolean, RDFFormat)}, but extended
@@ -218,16 +221,32 @@ public class AcceptHeaderFactory {
      * solution sets together because the boolean format overlaps the solution
      * set format (they are both [application/sparql-results+xml] so putting
      * them together blurs the quality annotations.
+     * <p>
+     * Note: The {@link BinarySolutionsFormat} is preferred. Servers which do
+     * not support that format will fall back on the other formats, which are
+     * still accepted with a lower quality score.
      */
     public static String getDefaultSolutionsAcceptHeader() {
        
+        final TupleQueryResultParserRegistry registry = TupleQueryResultParserRegistry
+                .getInstance();
+        
+        if (!registry.has(BinarySolutionsFormat.FORMAT)) {
+
+            /*
+             * Note: The service provider declaration might not be visible to
+             * the client (e.g., when using the client jar). Referencing the
+             * format also ensures that it is registered before we list the
+             * formats.
+             */
+            registry.add(new BinarySolutionsParserFactory());
+
+        }
+
         // Copy into a Set.
         final Set<TupleQueryResultFormat> values = new LinkedHashSet<TupleQueryResultFormat>(
                 TupleQueryResultFormat.values());
         
-        final TupleQueryResultParserRegistry registry = TupleQueryResultParserRegistry
-                .getInstance();
-        
         final Iterator<TupleQueryResultFormat> itr = values.iterator();
 
         while (itr.hasNext()) {
@@ -250,7 +269,7 @@ public class AcceptHeaderFactory {
         }
         
         final List<String> list2 = AcceptHeaderFactory.getAcceptParams(values,
-                TupleQueryResultFormat.BINARY);
+                BinarySolutionsFormat.FORMAT);
 
         return toString(list2);
         
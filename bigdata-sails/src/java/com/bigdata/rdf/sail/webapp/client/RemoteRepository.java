@@ -27,6 +27,7 @@ import info.aduna.io.IOUtil;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -49,6 +50,7 @@ import javax.xml.parsers.SAXParserFactory;
 
 import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.mime.FormBodyPart;
 import org.apache.http.entity.mime.MultipartEntity;
 import org.apache.http.entity.mime.content.ByteArrayBody;
@@ -179,6 +181,25 @@ public class RemoteRepository {
      * a GET. 1000 is a safe value but it could reduce http caching.
      */
     static public final int DEFAULT_MAX_REQUEST_URL_LENGTH = 1000;
+
+    /**
+     * The name of the system property that may be used to specify the value
+     * of the <code>Accept-Encoding</code> header sent with each request. An
+     * empty string disables response compression.
+     * 
+     * @see #DEFAULT_ACCEPT_ENCODING
+     */
+    static public final String ACCEPT_ENCODING = RemoteRepository.class
+            .getName() + ".acceptEncoding";
+
+    /**
+     * The default requests <code>gzip</code> compressed responses. These are
+     * decompressed incrementally as the response is read by the
+     * <code>GZIPContentDecoder</code> which the jetty {@link HttpClient}
+     * installs by default. Other codings require a decoder to be registered
+     * with the {@link HttpClient}.
+     */
+    static public final String DEFAULT_ACCEPT_ENCODING = "gzip";
     
     /**
      * HTTP header may be used to specify the timeout for a query.
@@ -226,6 +247,12 @@ public class RemoteRepository {
      */
     private volatile String queryMethod;
 
+    /**
+     * The value of the <code>Accept-Encoding</code> header -or-
+     * <code>null</code> if the header is not sent.
+     */
+    private volatile String acceptEncoding;
+
     /**
      * The name of the property whose value is the namespace of the KB to be
      * created.
@@ -299,6 +326,36 @@ public class RemoteRepository {
         }
 
     }
+
+    /**
+     * Return the value of the <code>Accept-Encoding</code> header sent with
+     * each request -or- <code>null</code> if responses will not be
+     * compressed (default {@value #DEFAULT_ACCEPT_ENCODING}).
+     * 
+     * @see #setAcceptEncoding(String)
+     */
+    public String getAcceptEncoding() {
+
+        return acceptEncoding;
+
+    }
+
+    /**
+     * Set the value of the <code>Accept-Encoding</code> header sent with each
+     * request.
+     * 
+     * @param acceptEncoding
+     *            The header value -or- <code>null</code> or an empty string to
+     *            request uncompressed responses.
+     * 
+     * @see #getAcceptEncoding()
+     */
+    public void setAcceptEncoding(final String acceptEncoding) {
+
+        this.acceptEncoding = acceptEncoding == null
+                || acceptEncoding.trim().length() == 0 ? null : acceptEncoding;
+
+    }
     
 //    /**
 //     * 
@@ -390,6 +447,9 @@ public class RemoteRepository {
         
         setQueryMethod(System.getProperty(QUERY_METHOD, DEFAULT_QUERY_METHOD));
         
+        setAcceptEncoding(System.getProperty(ACCEPT_ENCODING,
+                DEFAULT_ACCEPT_ENCODING));
+        
     }
 
 //	public JettyRemoteRepository(String sparqlEndpointURL, boolean useLBS,
@@ -868,7 +928,25 @@ public class RemoteRepository {
         
         add.prepareForWire();
         
-        if (add.format != null) {
+        // Opened iff streaming a file (closed below).
+        InputStream fileStream = null;
+        
+        if (add.format != null && add.data == null
+                && (add.file != null || add.is != null)) {
+            
+            /*
+             * Stream the data (ingest). The length is unknown so the request
+             * will use a chunked transfer encoding.
+             */
+            final InputStreamEntity entity = new InputStreamEntity(
+                    add.is != null ? add.is
+                            : (fileStream = new FileInputStream(add.file)), -1);
+            
+            entity.setContentType(add.format.getDefaultMIMEType());
+            
+            opts.entity = entity;
+            
+        } else if (add.format != null) {
             
             final ByteArrayEntity entity = new ByteArrayEntity(add.data);
 
@@ -877,6 +955,11 @@ public class RemoteRepository {
             opts.entity = entity;
             
         }
+        
+        if (add.ingest) {
+            // streaming ingest w/ group commit.
+            opts.addRequestParam("ingest");
+        }
             
         if (add.uri != null) {
             // set the resource to load : FIXME REST API allows multiple URIs, but RemoteRepository does not.
@@ -904,6 +987,9 @@ public class RemoteRepository {
         	if (response != null)
         		response.abort();
         	
+            if (fileStream != null)
+                fileStream.close();
+            
         }
         
     }
@@ -1398,6 +1484,7 @@ public class RemoteRepository {
         private Reader reader;
         private RDFFormat format;
         private Resource[] context;
+        private boolean ingest = false;
         
         public AddOp(final String uri) {
             this.uri = uri;
@@ -1434,9 +1521,23 @@ public class RemoteRepository {
             this.context = context;
         }
         
+        /**
+         * When <code>true</code>, the data is streamed to the server and
+         * loaded using group commit with other concurrent ingest requests
+         * (default <code>false</code>). The data is not buffered by the client
+         * and the load is NOT atomic.
+         */
+        public void setIngest(final boolean ingest) {
+            this.ingest = ingest;
+        }
+        
         private void prepareForWire() throws Exception {
             
-            if (file != null) {
+            if (ingest && (file != null || is != null)) {
+                
+                // Streamed by add(AddOp).
+                
+            } else if (file != null) {
 
                 // set the data
                 data = IOUtil.readBytes(file);
@@ -1659,6 +1760,15 @@ public class RemoteRepository {
                 }
 
             }
+
+            if (acceptEncoding != null
+                    && (opts.requestHeaders == null || !opts.requestHeaders
+                            .containsKey("Accept-Encoding"))) {
+
+                // Request a compressed response (decoded by the HttpClient).
+                request.header("Accept-Encoding", acceptEncoding);
+
+            }
             
 //            // conn = doConnect(urlString.toString(), opts.method);
 //            final URL url = new URL(urlString.toString());
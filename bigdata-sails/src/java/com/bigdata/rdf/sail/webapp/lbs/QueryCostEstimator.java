@@ -0,0 +1,274 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sail.webapp.lbs;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Iterator;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.openrdf.query.MalformedQueryException;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.algebra.evaluation.QueryBindingSet;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.rdf.sail.sparql.Bigdata2ASTSPARQLParser;
+import com.bigdata.rdf.sparql.ast.ASTContainer;
+import com.bigdata.rdf.sparql.ast.NamedSubqueriesNode;
+import com.bigdata.rdf.sparql.ast.NamedSubqueryRoot;
+import com.bigdata.rdf.sparql.ast.QueryRoot;
+import com.bigdata.rdf.sparql.ast.StatementPatternNode;
+import com.bigdata.rdf.sparql.ast.eval.ASTEvalHelper;
+import com.bigdata.rdf.sparql.ast.optimizers.StaticOptimizer;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * Static helper methods used to estimate the cost of a SPARQL query from the
+ * request before it is proxied to a service.
+ * <p>
+ * The cost of a query is estimated by running the query through the AST
+ * optimizers against the local service (the data on each service joined with
+ * the met quorum is the same). The cost is the sum of the estimated
+ * cardinality (fast range counts) of the statement patterns in the optimized
+ * AST, which is the same information used by the {@link StaticOptimizer} to
+ * order the joins. It is an estimate of the #of tuples that the query will
+ * read, not of the #of solutions that it will produce.
+ * <p>
+ * Note: {@link HttpServletRequest#getParameter(String)} consumes the request
+ * entity, which is not compatible with proxying the request. The query is
+ * therefore only visible to the load balancer when it is given as a URL query
+ * parameter (e.g., an HTTP GET).
+ */
+public class QueryCostEstimator {
+
+    /**
+     * The cost reported when the cost of the request can not be estimated.
+     */
+    public static final long UNKNOWN = -1L;
+
+    /**
+     * The name of the URL query parameter for a SPARQL query.
+     */
+    private static final String ATTR_QUERY = "query";
+
+    private static final String UTF8 = "UTF-8";
+
+    /**
+     * Return the SPARQL query from the URL query parameters of the request
+     * without consuming the request entity.
+     * 
+     * @param request
+     *            The request.
+     * 
+     * @return The query -or- <code>null</code> if the request does not
+     *         specify a query in its URL query parameters.
+     */
+    public static String getQueryString(final HttpServletRequest request) {
+
+        return getURLQueryParameter(request.getQueryString(), ATTR_QUERY);
+
+    }
+
+    /**
+     * Return the first value of a parameter in a URL query string.
+     * 
+     * @param queryString
+     *            The URL query string (without the leading <code>?</code>).
+     * @param name
+     *            The name of the parameter.
+     * 
+     * @return The decoded value -or- <code>null</code> if the parameter does
+     *         not appear.
+     */
+    static String getURLQueryParameter(final String queryString,
+            final String name) {
+
+        if (queryString == null || queryString.length() == 0)
+            return null;
+
+        for (String pair : queryString.split("&")) {
+
+            final int pos = pair.indexOf('=');
+
+            final String key = pos == -1 ? pair : pair.substring(0, pos);
+
+            if (!name.equals(decode(key)))
+                continue;
+
+            return pos == -1 ? "" : decode(pair.substring(pos + 1));
+
+        }
+
+        return null;
+
+    }
+
+    private static String decode(final String s) {
+
+        try {
+            return URLDecoder.decode(s, UTF8);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        } catch (IllegalArgumentException e) {
+            // Malformed escape sequence.
+            return s;
+        }
+
+    }
+
+    /**
+     * Return the namespace addressed by a request.
+     * 
+     * @param requestURI
+     *            The <code>Request-URI</code>.
+     * @param defaultNamespace
+     *            The namespace to use when the request does not identify one.
+     * 
+     * @return The namespace.
+     */
+    public static String getNamespace(final String requestURI,
+            final String defaultNamespace) {
+
+        final int snmsp = requestURI.indexOf("/namespace/");
+
+        if (snmsp == -1)
+            return defaultNamespace;
+
+        final int beginIndex = snmsp + "/namespace/".length();
+
+        int endIndex = requestURI.indexOf('/', beginIndex);
+
+        if (endIndex == -1)
+            endIndex = requestURI.length();
+
+        return decode(requestURI.substring(beginIndex, endIndex));
+
+    }
+
+    /**
+     * Estimate the cost of a query.
+     * 
+     * @param tripleStore
+     *            The triple store against which the query would run.
+     * @param queryStr
+     *            The query.
+     * @param baseURI
+     *            The base URI for the query.
+     * 
+     * @return The estimated cost -or- {@link #UNKNOWN} if the request is not
+     *         a query.
+     * 
+     * @throws MalformedQueryException
+     *             if the query could not be parsed.
+     * @throws QueryEvaluationException
+     *             if the query could not be optimized.
+     */
+    public static long estimateCost(final AbstractTripleStore tripleStore,
+            final String queryStr, final String baseURI)
+            throws MalformedQueryException, QueryEvaluationException {
+
+        final ASTContainer astContainer = new Bigdata2ASTSPARQLParser(
+                tripleStore).parseQuery2(queryStr, baseURI);
+
+        if (!astContainer.isQuery())
+            return UNKNOWN;
+
+        final QueryRoot optimizedQuery = ASTEvalHelper.optimizeQuery(
+                tripleStore, astContainer, new QueryBindingSet());
+
+        return getCost(optimizedQuery);
+
+    }
+
+    /**
+     * Return the sum of the estimated cardinality of the statement patterns in
+     * an optimized query (including named subqueries). Statement patterns
+     * without an estimate do not contribute to the cost.
+     * 
+     * @param optimizedQuery
+     *            The optimized AST.
+     */
+    public static long getCost(final QueryRoot optimizedQuery) {
+
+        long cost = getCost(optimizedQuery.getWhereClause());
+
+        final NamedSubqueriesNode namedSubqueries = optimizedQuery
+                .getNamedSubqueries();
+
+        if (namedSubqueries != null) {
+
+            for (NamedSubqueryRoot subquery : namedSubqueries) {
+
+                cost = add(cost, getCost(subquery.getWhereClause()));
+
+            }
+
+        }
+
+        return cost;
+
+    }
+
+    private static long getCost(final BOp whereClause) {
+
+        if (whereClause == null)
+            return 0L;
+
+        long cost = 0L;
+
+        final Iterator<StatementPatternNode> itr = BOpUtility.visitAll(
+                whereClause, StatementPatternNode.class);
+
+        while (itr.hasNext()) {
+
+            final long estCard = itr.next().getEstimatedCardinality(null/* opt */);
+
+            if (estCard > 0L)
+                cost = add(cost, estCard);
+
+        }
+
+        return cost;
+
+    }
+
+    /**
+     * Add two non-negative values without overflow.
+     */
+    private static long add(final long a, final long b) {
+
+        final long c = a + b;
+
+        return c < 0L ? Long.MAX_VALUE : c;
+
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sail.webapp.lbs;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The query workload of a service as seen by the load balancer. This is the
+ * #of queries running on the service when it was last sampled plus the #of
+ * requests which have been directed to the service since then.
+ */
+public class ServiceLoad {
+
+    /**
+     * The service {@link UUID}.
+     */
+    private final UUID serviceUUID;
+
+    /**
+     * The #of running queries on the service when it was last sampled.
+     */
+    private volatile long runningQueryCount = 0L;
+
+    /**
+     * The #of requests directed to the service since it was last sampled.
+     */
+    private final AtomicLong dispatchCount = new AtomicLong();
+
+    public ServiceLoad(final UUID serviceUUID) {
+
+        if (serviceUUID == null)
+            throw new IllegalArgumentException();
+
+        this.serviceUUID = serviceUUID;
+
+    }
+
+    /**
+     * The service {@link UUID}.
+     */
+    public UUID getServiceUUID() {
+
+        return serviceUUID;
+
+    }
+
+    /**
+     * Update the #of running queries for the service. This also clears the
+     * #of requests directed to the service since it was last sampled.
+     * 
+     * @param runningQueryCount
+     *            The #of queries running on the service.
+     */
+    public void setRunningQueryCount(final long runningQueryCount) {
+
+        this.runningQueryCount = runningQueryCount;
+
+        dispatchCount.set(0L);
+
+    }
+
+    /**
+     * Note that a request was directed to the service.
+     */
+    public void dispatched() {
+
+        dispatchCount.incrementAndGet();
+
+    }
+
+    /**
+     * The estimated #of queries running on the service.
+     */
+    public long getLoad() {
+
+        return runningQueryCount + dispatchCount.get();
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "{serviceUUID=" + serviceUUID
+                + ",runningQueryCount=" + runningQueryCount
+                + ",dispatchCount=" + dispatchCount.get() + "}";
+
+    }
+
+    /**
+     * Choose the service having the least load. Heavy requests prefer the
+     * reserved services while other requests prefer the services which are
+     * not reserved. If there is no service in the preferred set, then any
+     * service may be chosen.
+     * 
+     * @param services
+     *            The services joined with the met quorum.
+     * @param loads
+     *            The load on each service. A service which does not appear in
+     *            this map has no load.
+     * @param reserved
+     *            The services reserved for heavy requests.
+     * @param heavy
+     *            <code>true</code> iff the request is heavy.
+     * @param startIndex
+     *            The index in <i>services</i> at which the scan begins, which
+     *            is used to spread requests over services having the same
+     *            load.
+     * 
+     * @return The chosen service -or- <code>null</code> if there is no
+     *         service.
+     */
+    public static ServiceScore chooseService(final ServiceScore[] services,
+            final Map<UUID, ServiceLoad> loads, final Set<UUID> reserved,
+            final boolean heavy, final long startIndex) {
+
+        if (services == null || services.length == 0)
+            return null;
+
+        final ServiceScore preferred = chooseService(services, loads,
+                reserved, heavy, startIndex, true/* restrict */);
+
+        if (preferred != null)
+            return preferred;
+
+        return chooseService(services, loads, reserved, heavy, startIndex,
+                false/* restrict */);
+
+    }
+
+    private static ServiceScore chooseService(final ServiceScore[] services,
+            final Map<UUID, ServiceLoad> loads, final Set<UUID> reserved,
+            final boolean heavy, final long startIndex, final boolean restrict) {
+
+        ServiceScore best = null;
+
+        long bestLoad = Long.MAX_VALUE;
+
+        for (int i = 0; i < services.length; i++) {
+
+            final int index = (int) Math
+                    .abs(((i + startIndex) % services.length));
+
+            final ServiceScore serviceScore = services[index];
+
+            if (serviceScore == null)
+                continue;
+
+            if (restrict
+                    && heavy != reserved.contains(serviceScore
+                            .getServiceUUID())) {
+                // Not in the preferred set of services.
+                continue;
+            }
+
+            final ServiceLoad load = loads.get(serviceScore.getServiceUUID());
+
+            final long n = load == null ? 0L : load.getLoad();
+
+            if (n < bestLoad) {
+
+                best = serviceScore;
+
+                bestLoad = n;
+
+            }
+
+        }
+
+        return best;
+
+    }
+
+}
@@ -0,0 +1,661 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sail.webapp.lbs.policy;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.log4j.Logger;
+import org.eclipse.jetty.client.HttpClient;
+
+import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.bop.fed.QueryEngineFactory;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounter;
+import com.bigdata.counters.ICounterNode;
+import com.bigdata.journal.IIndexManager;
+import com.bigdata.journal.ITx;
+import com.bigdata.journal.Journal;
+import com.bigdata.journal.Journal.IJournalCounters;
+import com.bigdata.journal.jini.ha.HAJournal;
+import com.bigdata.rdf.sail.webapp.ConfigParams;
+import com.bigdata.rdf.sail.webapp.HALoadBalancerServlet;
+import com.bigdata.rdf.sail.webapp.lbs.AbstractLBSPolicy;
+import com.bigdata.rdf.sail.webapp.lbs.QueryCostEstimator;
+import com.bigdata.rdf.sail.webapp.lbs.ServiceLoad;
+import com.bigdata.rdf.sail.webapp.lbs.ServiceScore;
+import com.bigdata.rdf.sail.webapp.lbs.policy.counters.CountersLBSPolicy;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.util.InnerCause;
+
+/**
+ * Policy directs each read request to the service having the fewest running
+ * queries, taking into account the estimated cost of the query.
+ * <p>
+ * The #of running queries on each service joined with the met quorum is
+ * sampled periodically from the {@link QueryEngine} of that service (directly
+ * for the local service and through the <code>/counters</code> servlet for the
+ * other services). Requests directed to a service since it was last sampled
+ * count towards its load.
+ * <p>
+ * The cost of a query is estimated by the {@link QueryCostEstimator} using
+ * the AST optimizers against the local service. A query whose estimated cost
+ * is at least {@link InitParams#HEAVY_QUERY_COST} is heavy. If any services
+ * are listed in {@link InitParams#HEAVY_QUERY_SERVICES}, then heavy queries
+ * are directed to those services and other requests are directed to the
+ * remaining services, so long running analytic queries do not compete with
+ * latency sensitive ones. Requests whose cost can not be estimated (e.g., a
+ * query sent in the request entity of a POST) are not heavy.
+ * 
+ * @see QueryCostEstimator
+ * @see ServiceLoad
+ */
+public class QueryCostLBSPolicy extends AbstractLBSPolicy {
+
+    private static final Logger log = Logger
+            .getLogger(QueryCostLBSPolicy.class);
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Servlet <code>init-param</code> values understood by the
+     * {@link QueryCostLBSPolicy}.
+     * 
+     * @see HALoadBalancerServlet#getConfigParam(ServletConfig, Class, String,
+     *      String) for how these <code>init-param</code> values can be set in
+     *      <code>web.xml</code> and via environment variables.
+     */
+    public interface InitParams extends AbstractLBSPolicy.InitParams {
+
+        /**
+         * The estimated cost at or above which a query is heavy (default
+         * {@value #DEFAULT_HEAVY_QUERY_COST}).
+         * 
+         * @see QueryCostEstimator
+         */
+        String HEAVY_QUERY_COST = "heavyQueryCost";
+
+        String DEFAULT_HEAVY_QUERY_COST = "1000000";
+
+        /**
+         * A comma separated list of the service {@link UUID}s of the services
+         * reserved for heavy queries (default is none). When this is empty,
+         * all requests are directed to the least loaded service.
+         */
+        String HEAVY_QUERY_SERVICES = "heavyQueryServices";
+
+        String DEFAULT_HEAVY_QUERY_SERVICES = "";
+
+        /**
+         * The delay in milliseconds between samples of the #of running
+         * queries on each service (default
+         * {@value #DEFAULT_LOAD_DISCOVERY_DELAY}).
+         */
+        String LOAD_DISCOVERY_DELAY = "loadDiscoveryDelay";
+
+        String DEFAULT_LOAD_DISCOVERY_DELAY = "5000"; // ms.
+
+        /**
+         * The maximum #of query cost estimates which are cached (default
+         * {@value #DEFAULT_COST_CACHE_CAPACITY}). The estimates are cached by
+         * namespace and query string and are not invalidated by commits since
+         * the estimated cardinalities change slowly. This may be ZERO to
+         * disable the cache.
+         */
+        String COST_CACHE_CAPACITY = "costCacheCapacity";
+
+        String DEFAULT_COST_CACHE_CAPACITY = "1000";
+
+    }
+
+    /**
+     * @see InitParams#HEAVY_QUERY_COST
+     */
+    private long heavyQueryCost;
+
+    /**
+     * @see InitParams#HEAVY_QUERY_SERVICES
+     */
+    private Set<UUID> heavyQueryServices = Collections.emptySet();
+
+    /**
+     * @see InitParams#LOAD_DISCOVERY_DELAY
+     */
+    private long loadDiscoveryDelay;
+
+    /**
+     * @see InitParams#COST_CACHE_CAPACITY
+     */
+    private int costCacheCapacity;
+
+    /**
+     * The namespace used for requests which do not specify one.
+     */
+    private String defaultNamespace;
+
+    /**
+     * The load on each known service.
+     */
+    private final ConcurrentHashMap<UUID, ServiceLoad> loads = new ConcurrentHashMap<UUID, ServiceLoad>();
+
+    /**
+     * LRU cache of query cost estimates (synchronized).
+     */
+    private Map<String, Long> costCache;
+
+    /**
+     * The {@link Future} of a task that periodically samples the #of running
+     * queries on each service.
+     */
+    private ScheduledFuture<?> scheduledFuture;
+
+    /**
+     * Used to spread requests over services having the same load.
+     */
+    private final AtomicLong nextService = new AtomicLong(0L);
+
+    /**
+     * This is used to defeat the httpd cache for the <code>counters</code>
+     * servlet.
+     */
+    private final AtomicInteger nextValue = new AtomicInteger();
+
+    /**
+     * The #of requests classified as heavy.
+     */
+    private final AtomicLong heavyRequestCount = new AtomicLong();
+
+    @Override
+    protected void toString(final StringBuilder sb) {
+
+        super.toString(sb);
+
+        sb.append(",heavyQueryCost=" + heavyQueryCost);
+
+        sb.append(",heavyQueryServices=" + heavyQueryServices);
+
+        sb.append(",loadDiscoveryDelay=" + loadDiscoveryDelay);
+
+        sb.append(",heavyRequestCount=" + heavyRequestCount.get());
+
+        sb.append(",loads=" + loads.values());
+
+    }
+
+    @Override
+    public void init(final ServletConfig servletConfig,
+            final IIndexManager indexManager) throws ServletException {
+
+        super.init(servletConfig, indexManager);
+
+        {
+
+            final String s = HALoadBalancerServlet.getConfigParam(
+                    servletConfig, //
+                    QueryCostLBSPolicy.class,// owningClass
+                    InitParams.HEAVY_QUERY_COST,
+                    InitParams.DEFAULT_HEAVY_QUERY_COST);
+
+            heavyQueryCost = Long.valueOf(s);
+
+            if (log.isInfoEnabled())
+                log.info(InitParams.HEAVY_QUERY_COST + "=" + heavyQueryCost);
+
+        }
+
+        {
+
+            final String s = HALoadBalancerServlet.getConfigParam(
+                    servletConfig, //
+                    QueryCostLBSPolicy.class,// owningClass
+                    InitParams.HEAVY_QUERY_SERVICES,
+                    InitParams.DEFAULT_HEAVY_QUERY_SERVICES);
+
+            final Set<UUID> tmp = new LinkedHashSet<UUID>();
+
+            for (String t : s.split(",")) {
+
+                t = t.trim();
+
+                if (t.length() == 0)
+                    continue;
+
+                try {
+                    tmp.add(UUID.fromString(t));
+                } catch (IllegalArgumentException ex) {
+                    throw new ServletException(
+                            InitParams.HEAVY_QUERY_SERVICES + "=" + s, ex);
+                }
+
+            }
+
+            heavyQueryServices = Collections.unmodifiableSet(tmp);
+
+            if (log.isInfoEnabled())
+                log.info(InitParams.HEAVY_QUERY_SERVICES + "="
+                        + heavyQueryServices);
+
+        }
+
+        {
+
+            final String s = HALoadBalancerServlet.getConfigParam(
+                    servletConfig, //
+                    QueryCostLBSPolicy.class,// owningClass
+                    InitParams.LOAD_DISCOVERY_DELAY,
+                    InitParams.DEFAULT_LOAD_DISCOVERY_DELAY);
+
+            loadDiscoveryDelay = Long.valueOf(s);
+
+            if (log.isInfoEnabled())
+                log.info(InitParams.LOAD_DISCOVERY_DELAY + "="
+                        + loadDiscoveryDelay);
+
+        }
+
+        {
+
+            final String s = HALoadBalancerServlet.getConfigParam(
+                    servletConfig, //
+                    QueryCostLBSPolicy.class,// owningClass
+                    InitParams.COST_CACHE_CAPACITY,
+                    InitParams.DEFAULT_COST_CACHE_CAPACITY);
+
+            costCacheCapacity = Integer.valueOf(s);
+
+            if (costCacheCapacity < 0)
+                throw new ServletException(InitParams.COST_CACHE_CAPACITY
+                        + "=" + s);
+
+            costCache = Collections
+                    .synchronizedMap(new LinkedHashMap<String, Long>(16,
+                            .75f, true/* accessOrder */) {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        protected boolean removeEldestEntry(
+                                final Map.Entry<String, Long> eldest) {
+                            return size() > costCacheCapacity;
+                        }
+                    });
+
+        }
+
+        {
+
+            final String s = servletConfig.getServletContext()
+                    .getInitParameter(ConfigParams.NAMESPACE);
+
+            defaultNamespace = s == null ? ConfigParams.DEFAULT_NAMESPACE : s
+                    .trim();
+
+        }
+
+        /*
+         * Setup a scheduled task to sample the load on the services.
+         */
+        scheduledFuture = ((Journal) indexManager).addScheduledTask(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            updateLoads();
+                        } catch (RuntimeException ex) {
+                            if (InnerCause.isInnerCause(ex,
+                                    InterruptedException.class)) {
+                                // Terminate if interrupted.
+                                throw ex;
+                            }
+                            /*
+                             * Note: If the task thows an exception it will not
+                             * be rescheduled, therefore log @ ERROR rather than
+                             * allowing the unchecked exception to be
+                             * propagated.
+                             */
+                            log.error(ex, ex);
+                        }
+                    }
+                }, loadDiscoveryDelay, loadDiscoveryDelay,
+                TimeUnit.MILLISECONDS);
+
+    }
+
+    @Override
+    public void destroy() {
+
+        super.destroy();
+
+        if (scheduledFuture != null) {
+
+            scheduledFuture.cancel(true/* mayInterruptIfRunning */);
+
+            scheduledFuture = null;
+
+        }
+
+        loads.clear();
+
+        if (costCache != null)
+            costCache.clear();
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This directs the request to the least loaded service in the preferred
+     * set of services for the estimated cost of the request.
+     */
+    @Override
+    public String getReaderURI(final HttpServletRequest request) {
+
+        final ServiceScore[] serviceScores = this.serviceTableRef.get();
+
+        if (serviceScores == null) {
+
+            // Nothing discovered. Can't proxy.
+            return null;
+
+        }
+
+        final boolean heavy = !heavyQueryServices.isEmpty()
+                && isHeavy(request);
+
+        final ServiceScore serviceScore = ServiceLoad.chooseService(
+                serviceScores, loads, heavyQueryServices, heavy,
+                nextService.getAndIncrement());
+
+        if (serviceScore == null) {
+
+            // No service. Can't proxy.
+            return null;
+
+        }
+
+        // track #of requests to each service.
+        serviceScore.nrequests.increment();
+
+        getServiceLoad(serviceScore.getServiceUUID()).dispatched();
+
+        return serviceScore.getRequestURI();
+
+    }
+
+    private ServiceLoad getServiceLoad(final UUID serviceUUID) {
+
+        ServiceLoad load = loads.get(serviceUUID);
+
+        if (load == null) {
+
+            final ServiceLoad tmp = loads.putIfAbsent(serviceUUID,
+                    load = new ServiceLoad(serviceUUID));
+
+            if (tmp != null)
+                load = tmp;
+
+        }
+
+        return load;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the request is a query whose estimated
+     * cost is at least {@link InitParams#HEAVY_QUERY_COST}.
+     */
+    private boolean isHeavy(final HttpServletRequest request) {
+
+        final String queryStr = QueryCostEstimator.getQueryString(request);
+
+        if (queryStr == null) {
+
+            // Not visible to the load balancer.
+            return false;
+
+        }
+
+        final String namespace = QueryCostEstimator.getNamespace(
+                request.getRequestURI(), defaultNamespace);
+
+        final long cost = getCost(namespace, queryStr, request
+                .getRequestURL().toString());
+
+        final boolean heavy = cost >= heavyQueryCost;
+
+        if (heavy)
+            heavyRequestCount.incrementAndGet();
+
+        if (log.isDebugEnabled())
+            log.debug("namespace=" + namespace + ", cost=" + cost
+                    + ", heavy=" + heavy);
+
+        return heavy;
+
+    }
+
+    /**
+     * Return the estimated cost of a query.
+     * 
+     * @return The estimated cost -or- {@link QueryCostEstimator#UNKNOWN}.
+     */
+    private long getCost(final String namespace, final String queryStr,
+            final String baseURI) {
+
+        final String key = namespace + "\n" + queryStr;
+
+        final Long cached = costCache.get(key);
+
+        if (cached != null)
+            return cached;
+
+        final HAJournal journal = getJournal();
+
+        if (journal == null)
+            return QueryCostEstimator.UNKNOWN;
+
+        final AbstractTripleStore tripleStore = (AbstractTripleStore) journal
+                .getResourceLocator().locate(namespace, ITx.READ_COMMITTED);
+
+        if (tripleStore == null) {
+
+            // No such namespace.
+            return QueryCostEstimator.UNKNOWN;
+
+        }
+
+        long cost;
+        try {
+
+            cost = QueryCostEstimator.estimateCost(tripleStore, queryStr,
+                    baseURI);
+
+        } catch (Exception ex) {
+
+            /*
+             * Note: The request is still proxied. The service will report the
+             * problem with the query.
+             */
+
+            if (log.isInfoEnabled())
+                log.info("Could not estimate cost: " + ex);
+
+            cost = QueryCostEstimator.UNKNOWN;
+
+        }
+
+        if (costCacheCapacity > 0)
+            costCache.put(key, cost);
+
+        return cost;
+
+    }
+
+    /**
+     * Sample the #of running queries on each service joined with the met
+     * quorum.
+     */
+    protected void updateLoads() {
+
+        final HAJournal journal = getJournal();
+
+        final ServiceScore[] serviceScores = serviceTableRef.get();
+
+        if (journal == null || serviceScores == null)
+            return;
+
+        final UUID localServiceId = serviceIDRef.get();
+
+        for (ServiceScore serviceScore : serviceScores) {
+
+            if (serviceScore == null || serviceScore.getRequestURI() == null)
+                continue;
+
+            final UUID serviceUUID = serviceScore.getServiceUUID();
+
+            final long runningQueryCount;
+            try {
+
+                if (serviceUUID.equals(localServiceId)) {
+
+                    final QueryEngine queryEngine = QueryEngineFactory
+                            .getExistingQueryController(journal);
+
+                    runningQueryCount = queryEngine == null ? 0L
+                            : queryEngine.getRunningQueries().length;
+
+                } else {
+
+                    runningQueryCount = getRemoteRunningQueryCount(journal,
+                            serviceScore.getRequestURI());
+
+                }
+
+            } catch (Exception ex) {
+
+                if (InnerCause.isInnerCause(ex, InterruptedException.class)) {
+                    // Terminate if interrupted.
+                    throw new RuntimeException(ex);
+                }
+
+                log.warn("Could not sample load: service=" + serviceScore
+                        + " : " + ex);
+
+                continue;
+
+            }
+
+            getServiceLoad(serviceUUID).setRunningQueryCount(
+                    runningQueryCount);
+
+        }
+
+        // Drop services which are no longer joined.
+        for (UUID serviceUUID : loads.keySet()) {
+
+            boolean found = false;
+
+            for (ServiceScore serviceScore : serviceScores) {
+
+                if (serviceScore != null
+                        && serviceUUID.equals(serviceScore.getServiceUUID())) {
+                    found = true;
+                    break;
+                }
+
+            }
+
+            if (!found)
+                loads.remove(serviceUUID);
+
+        }
+
+        if (log.isDebugEnabled())
+            log.debug("loads=" + loads.values());
+
+    }
+
+    /**
+     * Return the #of running queries reported by the {@link QueryEngine} of
+     * a remote service.
+     */
+    private long getRemoteRunningQueryCount(final Journal journal,
+            final String requestURI) throws Exception {
+
+        QueryEngine queryEngine = QueryEngineFactory
+                .getExistingQueryController(journal);
+
+        if (queryEngine == null) {
+
+            /*
+             * No queries have been run. We do not have access to the
+             * HTTPClient yet.
+             */
+            queryEngine = QueryEngineFactory.getQueryController(journal);
+
+        }
+
+        final HttpClient cm = queryEngine.getClientConnectionManager();
+
+        final CounterSet counterSet = CountersLBSPolicy.doCountersQuery(cm,
+                requestURI, "/" + IJournalCounters.queryEngine + "/",
+                1/* depth */, nextValue.incrementAndGet());
+
+        final ICounterNode node = counterSet.getPath("/"
+                + IJournalCounters.queryEngine + "/runningQueryCount");
+
+        if (node == null || !node.isCounter()) {
+
+            // No queries have been run on that service.
+            return 0L;
+
+        }
+
+        final Object value = ((ICounter<?>) node).getValue();
+
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+
+    }
+
+}
@@ -251,6 +251,35 @@ public class CountersLBSPolicy extends AbstractHostLBSPolicy {
             final String hostname, final String baseRequestURI,
             final int uniqueId) throws Exception {
 
+        // OS counters are under the hostname.
+        // Note: Necessary to each counters. E.g., /hostname/CPU/XXXX.
+        return doCountersQuery(cm, baseRequestURI, "/" + hostname + "/",
+                3/* depth */, uniqueId);
+
+    }
+
+    /**
+     * Do an HTTP GET to the remote service and return the performance counters
+     * for that service which are spanned by the given path.
+     * 
+     * @param cm
+     *            The client used to issue the request.
+     * @param baseRequestURI
+     *            The <code>Request-URI</code> of the web application on the
+     *            remote service.
+     * @param path
+     *            The path of the counters of interest.
+     * @param depth
+     *            The depth of the counters to be reported.
+     * @param uniqueId
+     *            A value used to defeat the httpd cache.
+     * 
+     * @return The counters.
+     */
+    public static CounterSet doCountersQuery(final HttpClient cm,
+            final String baseRequestURI, final String path, final int depth,
+            final int uniqueId) throws Exception {
+
         final String uriStr = baseRequestURI + "/counters";
 
         final ConnectOptions o = new ConnectOptions(uriStr);
@@ -258,12 +287,10 @@ public class CountersLBSPolicy extends AbstractHostLBSPolicy {
         o.setAcceptHeader(ConnectOptions.MIME_APPLICATION_XML);
 
         o.method = "GET";
-                
-        // OS counters are under the hostname.
-        o.addRequestParam("path", "/" + hostname + "/");
 
-        // Note: Necessary to each counters. E.g., /hostname/CPU/XXXX.
-        o.addRequestParam("depth", "3");
+        o.addRequestParam("path", path);
+
+        o.addRequestParam("depth", Integer.toString(depth));
 
         // Used to defeat the httpd cache on /counters.
         o.addRequestParam("uniqueId", Integer.toString(uniqueId));
@@ -304,8 +331,8 @@ public class CountersLBSPolicy extends AbstractHostLBSPolicy {
                 didDrainEntity = true;
 
                 if (log.isDebugEnabled())
-                    log.debug("hostname=" + hostname + ": counters="
-                            + counterSet);
+                    log.debug("uri=" + uriStr + ", path=" + path
+                            + ": counters=" + counterSet);
 
                 return counterSet;
                 
@@ -59,6 +59,15 @@ public class TestAll extends TestCase {
 
         // Test suite of NSS startup behavior and overrides.
         suite.addTestSuite(TestNanoSparqlServer.class);
+
+        // Test suite for admission control and scheduling of requests.
+        suite.addTestSuite(TestQueryScheduler.class);
+
+        // Test suite for non-blocking response output.
+        suite.addTestSuite(TestAsyncResponse.class);
+
+        // Test suite for response compression.
+        suite.addTestSuite(TestCompressedResponse.class);
 //
 //        /*
 //         * WebApp Client.
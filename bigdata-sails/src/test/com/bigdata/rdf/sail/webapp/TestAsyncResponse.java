@@ -0,0 +1,373 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sail.webapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import junit.framework.TestCase2;
+
+/**
+ * Test suite for the non-blocking producer stream used by
+ * {@link AsyncResponse}.
+ */
+public class TestAsyncResponse extends TestCase2 {
+
+    public TestAsyncResponse() {
+
+    }
+
+    public TestAsyncResponse(final String name) {
+
+        super(name);
+
+    }
+
+    /**
+     * A container output stream whose readiness is controlled by the test.
+     */
+    private static class MockServletOutputStream extends ServletOutputStream {
+
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        boolean ready = true;
+
+        int flushCount = 0;
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(final WriteListener writeListener) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            if (!ready)
+                throw new IllegalStateException();
+            data.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len)
+                throws IOException {
+            if (!ready)
+                throw new IllegalStateException();
+            data.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            flushCount++;
+        }
+
+    }
+
+    private static class MockProducer extends
+            AsyncResponse.ProducerOutputStream {
+
+        int completeCount = 0;
+
+        MockProducer(final ServletOutputStream out, final long maxMemory) {
+            this(out, maxMemory, 1024 * 1024);
+        }
+
+        MockProducer(final ServletOutputStream out, final long maxMemory,
+                final long maxSpill) {
+            super(out, maxMemory, maxSpill);
+        }
+
+        @Override
+        protected void complete() {
+            completeCount++;
+        }
+
+    }
+
+    private static byte[] newData(final int len) {
+
+        final byte[] a = new byte[len];
+
+        for (int i = 0; i < len; i++)
+            a[i] = (byte) i;
+
+        return a;
+
+    }
+
+    /**
+     * Bytes are passed through when the client keeps up and the request is
+     * completed on close.
+     */
+    public void test_passThrough() throws IOException {
+
+        final MockServletOutputStream out = new MockServletOutputStream();
+
+        final MockProducer p = new MockProducer(out, 1024 * 1024);
+
+        final byte[] data = newData(20000);
+
+        p.write(data);
+
+        // Full chunks were handed off.
+        assertEquals(2 * AsyncResponse.ProducerOutputStream.CHUNK_SIZE,
+                out.data.size());
+
+        p.flush();
+
+        assertEquals(data.length, out.data.size());
+
+        assertEquals(1, out.flushCount);
+
+        assertEquals(0, p.completeCount);
+
+        p.close();
+
+        assertEquals(1, p.completeCount);
+
+        assertEquals(data, out.data.toByteArray());
+
+        // close() is idempotent.
+        p.close();
+
+        assertEquals(1, p.completeCount);
+
+    }
+
+    /**
+     * The producer does not block when the client is not ready. The bytes are
+     * buffered, spilled beyond the memory limit, and written in order once
+     * the client is ready.
+     */
+    public void test_spillWhenNotReady() throws IOException {
+
+        final MockServletOutputStream out = new MockServletOutputStream();
+
+        out.ready = false;
+
+        final MockProducer p = new MockProducer(out,
+                2 * AsyncResponse.ProducerOutputStream.CHUNK_SIZE);
+
+        final byte[] data = newData(100000);
+
+        p.write(data);
+
+        p.close();
+
+        assertEquals(0, out.data.size());
+
+        assertEquals(data.length, p.getBytesBuffered());
+
+        assertEquals(data.length - 2
+                * AsyncResponse.ProducerOutputStream.CHUNK_SIZE,
+                p.getBytesSpilled());
+
+        // Not completed until everything was written.
+        assertEquals(0, p.completeCount);
+
+        out.ready = true;
+
+        p.onWritePossible();
+
+        assertEquals(1, p.completeCount);
+
+        assertEquals(0, p.getBytesBuffered());
+
+        assertEquals(data, out.data.toByteArray());
+
+    }
+
+    /**
+     * The producer blocks once the memory and spill limits are reached and
+     * resumes once the client has accepted enough of the response.
+     */
+    public void test_blockAtSpillLimit() throws Exception {
+
+        final int chunkSize = AsyncResponse.ProducerOutputStream.CHUNK_SIZE;
+
+        final MockServletOutputStream out = new MockServletOutputStream();
+
+        out.ready = false;
+
+        final MockProducer p = new MockProducer(out, 2 * chunkSize,
+                2 * chunkSize);
+
+        final byte[] data = newData(10 * chunkSize);
+
+        final FutureTask<Void> ft = new FutureTask<Void>(
+                new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        p.write(data);
+                        p.close();
+                        return null;
+                    }
+                });
+
+        final Thread t = new Thread(ft);
+
+        t.setDaemon(true);
+
+        t.start();
+
+        try {
+            ft.get(500, TimeUnit.MILLISECONDS);
+            fail("Producer should be blocked");
+        } catch (TimeoutException ex) {
+            // ignore.
+        }
+
+        // The memory and spill limits plus the chunk which is waiting.
+        assertEquals(5 * chunkSize, p.getBytesBuffered());
+
+        assertEquals(2 * chunkSize, p.getBytesSpilled());
+
+        assertEquals(0, out.data.size());
+
+        synchronized (p) {
+            out.ready = true;
+        }
+
+        p.onWritePossible();
+
+        ft.get(5000, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, p.completeCount);
+
+        assertEquals(data, out.data.toByteArray());
+
+    }
+
+    /**
+     * A producer which is blocked at the spill limit fails if the container
+     * reports an error.
+     */
+    public void test_errorWakesBlockedProducer() throws Exception {
+
+        final int chunkSize = AsyncResponse.ProducerOutputStream.CHUNK_SIZE;
+
+        final MockServletOutputStream out = new MockServletOutputStream();
+
+        out.ready = false;
+
+        // Never spill.
+        final MockProducer p = new MockProducer(out, 2 * chunkSize, 0L);
+
+        final FutureTask<Void> ft = new FutureTask<Void>(
+                new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        p.write(newData(10 * chunkSize));
+                        return null;
+                    }
+                });
+
+        final Thread t = new Thread(ft);
+
+        t.setDaemon(true);
+
+        t.start();
+
+        try {
+            ft.get(500, TimeUnit.MILLISECONDS);
+            fail("Producer should be blocked");
+        } catch (TimeoutException ex) {
+            // ignore.
+        }
+
+        // The memory limit plus the chunk which is waiting.
+        assertEquals(3 * chunkSize, p.getBytesBuffered());
+
+        assertEquals(0L, p.getBytesSpilled());
+
+        p.onError(new IOException("Client disconnected"));
+
+        try {
+            ft.get(5000, TimeUnit.MILLISECONDS);
+            fail("Expecting: " + IOException.class);
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IOException);
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * Once the container reports an error the producer fails on its next
+     * write and the request is completed when the producer closes the stream.
+     */
+    public void test_errorAbortsProducer() throws IOException {
+
+        final MockServletOutputStream out = new MockServletOutputStream();
+
+        out.ready = false;
+
+        final MockProducer p = new MockProducer(out, 1024 * 1024);
+
+        p.write(newData(100));
+
+        p.onError(new IOException("Client disconnected"));
+
+        assertEquals(0, p.getBytesBuffered());
+
+        try {
+            p.write(newData(100));
+            fail("Expecting: " + IOException.class);
+        } catch (IOException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        assertEquals(0, p.completeCount);
+
+        try {
+            p.close();
+            fail("Expecting: " + IOException.class);
+        } catch (IOException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        assertEquals(1, p.completeCount);
+
+    }
+
+}
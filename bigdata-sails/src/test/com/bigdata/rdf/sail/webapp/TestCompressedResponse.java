@@ -0,0 +1,227 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sail.webapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.rdf.sail.webapp.CompressedResponse.PipelinedDeflaterOutputStream;
+
+/**
+ * Test suite for {@link CompressedResponse}.
+ */
+public class TestCompressedResponse extends TestCase2 {
+
+    public TestCompressedResponse() {
+
+    }
+
+    public TestCompressedResponse(final String name) {
+
+        super(name);
+
+    }
+
+    private ExecutorService service;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        service = Executors.newCachedThreadPool();
+
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        if (service != null) {
+            service.shutdownNow();
+            service = null;
+        }
+
+        super.tearDown();
+
+    }
+
+    public void test_getContentCoding() {
+
+        assertNull(CompressedResponse.getContentCoding(null));
+        assertNull(CompressedResponse.getContentCoding(""));
+        assertNull(CompressedResponse.getContentCoding("identity"));
+        assertNull(CompressedResponse.getContentCoding("br"));
+
+        assertEquals("gzip", CompressedResponse.getContentCoding("gzip"));
+        assertEquals("gzip", CompressedResponse.getContentCoding("x-gzip"));
+        assertEquals("gzip",
+                CompressedResponse.getContentCoding("deflate, gzip"));
+        assertEquals("gzip", CompressedResponse.getContentCoding("*"));
+        assertEquals("deflate",
+                CompressedResponse.getContentCoding("deflate"));
+        assertEquals("deflate", CompressedResponse
+                .getContentCoding("gzip;q=0.5, deflate"));
+
+        // q=0 means "not acceptable".
+        assertNull(CompressedResponse.getContentCoding("gzip;q=0"));
+        assertEquals("deflate", CompressedResponse
+                .getContentCoding("*, gzip;q=0"));
+
+    }
+
+    private static byte[] newData(final int len) {
+
+        final Random r = new Random(len);
+
+        final byte[] a = new byte[len];
+
+        // compressible: a small alphabet.
+        for (int i = 0; i < len; i++)
+            a[i] = (byte) ('a' + r.nextInt(8));
+
+        return a;
+
+    }
+
+    private static byte[] decode(final byte[] data, final boolean gzip)
+            throws IOException {
+
+        final InputStream is = gzip ? new GZIPInputStream(
+                new ByteArrayInputStream(data)) : new InflaterInputStream(
+                new ByteArrayInputStream(data));
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        final byte[] buf = new byte[4096];
+
+        int n;
+        while ((n = is.read(buf)) != -1)
+            baos.write(buf, 0, n);
+
+        return baos.toByteArray();
+
+    }
+
+    private void doRoundTrip(final int len, final boolean gzip,
+            final boolean expectPipelined) throws IOException {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        final PipelinedDeflaterOutputStream os = new PipelinedDeflaterOutputStream(
+                out, gzip, 1/* level */, service);
+
+        final byte[] data = newData(len);
+
+        // write in odd sized pieces.
+        for (int off = 0; off < len;) {
+
+            final int n = Math.min(len - off, 1000);
+
+            os.write(data, off, n);
+
+            off += n;
+
+        }
+
+        assertEquals(expectPipelined, os.isPipelined());
+
+        os.close();
+
+        assertTrue(out.size() < len || len == 0);
+
+        assertEquals(data, decode(out.toByteArray(), gzip));
+
+    }
+
+    public void test_gzip_small() throws IOException {
+
+        doRoundTrip(0, true/* gzip */, false/* pipelined */);
+
+        doRoundTrip(1000, true/* gzip */, false/* pipelined */);
+
+    }
+
+    public void test_gzip_pipelined() throws IOException {
+
+        doRoundTrip(10 * PipelinedDeflaterOutputStream.BLOCK_SIZE + 17,
+                true/* gzip */, true/* pipelined */);
+
+    }
+
+    public void test_deflate_pipelined() throws IOException {
+
+        doRoundTrip(10 * PipelinedDeflaterOutputStream.BLOCK_SIZE + 17,
+                false/* gzip */, true/* pipelined */);
+
+    }
+
+    /**
+     * A flush makes everything written so far decodable by the client.
+     */
+    public void test_flush() throws IOException {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        final PipelinedDeflaterOutputStream os = new PipelinedDeflaterOutputStream(
+                out, false/* gzip */, 1/* level */, service);
+
+        final byte[] data = newData(100);
+
+        os.write(data);
+
+        os.flush();
+
+        final InflaterInputStream is = new InflaterInputStream(
+                new ByteArrayInputStream(out.toByteArray()));
+
+        final byte[] a = new byte[data.length];
+
+        int off = 0;
+        while (off < a.length) {
+            final int n = is.read(a, off, a.length - off);
+            assertTrue(n > 0);
+            off += n;
+        }
+
+        assertEquals(data, a);
+
+        os.close();
+
+    }
+
+}
@@ -23,16 +23,22 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.sail.webapp;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -810,6 +816,88 @@ public class TestNanoSparqlClient<S extends IIndexManager> extends
 
 	}
 
+	/**
+	 * Streaming ingest (POST w/ BODY and <code>?ingest</code>).
+	 */
+	public void test_POST_INGEST_withBody_NTRIPLES() throws Exception {
+
+		final int ntriples = 23;
+
+		final AddOp add = new AddOp(new ByteArrayInputStream(genNTRIPLES(
+				ntriples, RDFFormat.NTRIPLES)), RDFFormat.NTRIPLES);
+
+		add.setIngest(true);
+
+		assertEquals(ntriples, m_repo.add(add));
+
+		// The statements are visible once the request is acknowledged.
+		assertEquals(ntriples, countResults(m_repo.prepareTupleQuery(
+				"select * where {?s ?p ?o}").evaluate()));
+
+	}
+
+	/**
+	 * Concurrent streaming ingest requests. Each request must report its own
+	 * mutation count and all statements must be visible once every request
+	 * has been acknowledged.
+	 */
+	public void test_POST_INGEST_concurrent() throws Exception {
+
+		final int nrequests = 5;
+
+		final int ntriples = 100;
+
+		final ExecutorService service = Executors
+				.newFixedThreadPool(nrequests);
+
+		try {
+
+			final List<Future<Long>> futures = new ArrayList<Future<Long>>();
+
+			for (int i = 0; i < nrequests; i++) {
+
+				final Graph g = new GraphImpl();
+
+				final URI s = new URIImpl("http://www.bigdata.org/ingest#" + i);
+
+				for (int j = 0; j < ntriples; j++) {
+
+					g.add(s, RDF.TYPE, new URIImpl("http://www.bigdata.org/c#"
+							+ j));
+
+				}
+
+				final byte[] data = writeOnBuffer(RDFFormat.NTRIPLES, g);
+
+				futures.add(service.submit(new Callable<Long>() {
+					@Override
+					public Long call() throws Exception {
+						final AddOp add = new AddOp(new ByteArrayInputStream(
+								data), RDFFormat.NTRIPLES);
+						add.setIngest(true);
+						return m_repo.add(add);
+					}
+				}));
+
+			}
+
+			for (Future<Long> f : futures) {
+
+				assertEquals(ntriples, f.get().longValue());
+
+			}
+
+		} finally {
+
+			service.shutdownNow();
+
+		}
+
+		assertEquals(nrequests * ntriples, countResults(m_repo
+				.prepareTupleQuery("select * where {?s ?p ?o}").evaluate()));
+
+	}
+
 	// TODO Write test for UPDATE where we override the default context using
 	// the context-uri.
 	public void test_POST_INSERT_triples_with_BODY_and_defaultContext()
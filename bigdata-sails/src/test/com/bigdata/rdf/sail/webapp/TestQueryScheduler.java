@@ -0,0 +1,276 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sail.webapp;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.journal.ITx;
+
+/**
+ * Test suite for {@link QueryScheduler}.
+ */
+public class TestQueryScheduler extends TestCase2 {
+
+    public TestQueryScheduler() {
+
+    }
+
+    public TestQueryScheduler(final String name) {
+
+        super(name);
+
+    }
+
+    private ExecutorService service;
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        if (service != null) {
+            service.shutdownNow();
+            service = null;
+        }
+
+        super.tearDown();
+
+    }
+
+    private static SparqlEndpointConfig newConfig(
+            final int maxNamespaceQueries, final int maxClientQueries,
+            final int maxQueuedQueries, final Map<String, Integer> weights) {
+
+        return new SparqlEndpointConfig("kb", ITx.READ_COMMITTED,
+                1/* queryThreadPoolSize */, false/* describeEachNamedGraph */,
+                false/* readOnly */, 0L/* queryTimeout */,
+                false/* nativeSolutionWriters */, maxNamespaceQueries,
+                maxClientQueries, maxQueuedQueries, weights, 0/* fastLane */);
+
+    }
+
+    /**
+     * A task which blocks until the latch is released.
+     */
+    private static FutureTask<Void> newBlocker(final CountDownLatch latch) {
+
+        return new FutureTask<Void>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                latch.await();
+                return null;
+            }
+        });
+
+    }
+
+    /**
+     * A task which records its name when it runs.
+     */
+    private static FutureTask<Void> newTask(final List<String> order,
+            final String name) {
+
+        return new FutureTask<Void>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                synchronized (order) {
+                    order.add(name);
+                }
+                return null;
+            }
+        });
+
+    }
+
+    public void test_parseWeights() {
+
+        final Map<String, Integer> m = QueryScheduler
+                .parseWeights(" kb=4, other = 2 ,,");
+
+        assertEquals(2, m.size());
+        assertEquals(Integer.valueOf(4), m.get("kb"));
+        assertEquals(Integer.valueOf(2), m.get("other"));
+
+        assertTrue(QueryScheduler.parseWeights("").isEmpty());
+
+        for (String s : new String[] { "kb", "kb=0", "kb=x", "=1" }) {
+            try {
+                QueryScheduler.parseWeights(s);
+                fail("Expecting: " + IllegalArgumentException.class + " for "
+                        + s);
+            } catch (IllegalArgumentException ex) {
+                if (log.isInfoEnabled())
+                    log.info("Ignoring expected exception: " + ex);
+            }
+        }
+
+    }
+
+    /**
+     * A namespace which has been busy does not get ahead of a namespace which
+     * has just become active, even though its requests were queued first.
+     */
+    public void test_fairQueuing() throws Exception {
+
+        service = Executors.newSingleThreadExecutor();
+
+        final QueryScheduler scheduler = new QueryScheduler(service,
+                1/* maxRunning */, null/* fastLane */, newConfig(0, 0, 0,
+                        Collections.<String, Integer> emptyMap()));
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        final List<String> order = new LinkedList<String>();
+
+        final FutureTask<Void> blocker = newBlocker(latch);
+
+        scheduler.execute("a", null, false, blocker);
+
+        final FutureTask<Void> a1 = newTask(order, "a1");
+        final FutureTask<Void> a2 = newTask(order, "a2");
+        final FutureTask<Void> b1 = newTask(order, "b1");
+
+        scheduler.execute("a", null, false, a1);
+        scheduler.execute("a", null, false, a2);
+        scheduler.execute("b", null, false, b1);
+
+        latch.countDown();
+
+        a2.get(5, TimeUnit.SECONDS);
+        b1.get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, order.size());
+        assertEquals("b1", order.get(0));
+        assertEquals("a1", order.get(1));
+        assertEquals("a2", order.get(2));
+
+    }
+
+    /**
+     * A request is refused once the queue for its namespace is full.
+     */
+    public void test_maxQueuedQueries() throws Exception {
+
+        service = Executors.newSingleThreadExecutor();
+
+        final QueryScheduler scheduler = new QueryScheduler(service,
+                1/* maxRunning */, null/* fastLane */, newConfig(0, 0, 1,
+                        Collections.<String, Integer> emptyMap()));
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        final List<String> order = new LinkedList<String>();
+
+        scheduler.execute("a", null, false, newBlocker(latch));
+
+        final FutureTask<Void> a1 = newTask(order, "a1");
+
+        scheduler.execute("a", null, false, a1);
+
+        try {
+            scheduler.execute("a", null, false, newTask(order, "a2"));
+            fail("Expecting: " + RejectedExecutionException.class);
+        } catch (RejectedExecutionException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        // Another namespace has its own queue.
+        final FutureTask<Void> b1 = newTask(order, "b1");
+
+        scheduler.execute("b", null, false, b1);
+
+        latch.countDown();
+
+        a1.get(5, TimeUnit.SECONDS);
+        b1.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, order.size());
+
+    }
+
+    /**
+     * A namespace (or a client) at its concurrency limit does not prevent the
+     * requests of other namespaces (or clients) from running.
+     */
+    public void test_concurrencyLimits() throws Exception {
+
+        service = Executors.newFixedThreadPool(2);
+
+        final QueryScheduler scheduler = new QueryScheduler(service,
+                2/* maxRunning */, null/* fastLane */, newConfig(1, 1, 0,
+                        Collections.<String, Integer> emptyMap()));
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        final List<String> order = new LinkedList<String>();
+
+        final FutureTask<Void> blocker = newBlocker(latch);
+
+        scheduler.execute("a", "client1", false, blocker);
+
+        final FutureTask<Void> a1 = newTask(order, "a1");
+        final FutureTask<Void> b1 = newTask(order, "b1");
+        final FutureTask<Void> b2 = newTask(order, "b2");
+
+        // namespace [a] is at its limit.
+        scheduler.execute("a", "client2", false, a1);
+
+        // client1 is at its limit.
+        scheduler.execute("b", "client1", false, b1);
+
+        // neither limit applies.
+        scheduler.execute("b", "client2", false, b2);
+
+        b2.get(5, TimeUnit.SECONDS);
+
+        assertFalse(a1.isDone());
+        assertFalse(b1.isDone());
+
+        latch.countDown();
+
+        a1.get(5, TimeUnit.SECONDS);
+        b1.get(5, TimeUnit.SECONDS);
+
+        assertEquals("b2", order.get(0));
+        assertEquals(3, order.size());
+
+    }
+
+}
@@ -56,6 +56,9 @@ public class TestAll extends TestCase {
         final TestSuite suite = new TestSuite("LBS");
 
         suite.addTestSuite(TestAbstractHostLBSPolicy.class);
+
+        // query cost based load balancing.
+        suite.addTestSuite(TestQueryCostLBSPolicy.class);
         
         return suite;
 
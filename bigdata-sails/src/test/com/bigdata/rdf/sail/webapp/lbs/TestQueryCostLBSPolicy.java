@@ -0,0 +1,224 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.rdf.sail.webapp.lbs;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.rdf.sail.webapp.lbs.policy.QueryCostLBSPolicy;
+
+/**
+ * Test suite for the helper classes of the {@link QueryCostLBSPolicy}.
+ */
+public class TestQueryCostLBSPolicy extends TestCase2 {
+
+    public TestQueryCostLBSPolicy() {
+    }
+
+    public TestQueryCostLBSPolicy(String name) {
+        super(name);
+    }
+
+    private final UUID S1 = UUID.randomUUID();
+    private final UUID S2 = UUID.randomUUID();
+    private final UUID S3 = UUID.randomUUID();
+
+    private ServiceScore[] getServices() {
+
+        return new ServiceScore[] {
+                new ServiceScore(S1, "H1", "http://H1:8080/bigdata"),
+                new ServiceScore(S2, "H2", "http://H2:8080/bigdata"),
+                new ServiceScore(S3, "H3", "http://H3:8080/bigdata") };
+
+    }
+
+    private static void setLoad(final Map<UUID, ServiceLoad> loads,
+            final UUID serviceUUID, final long runningQueryCount) {
+
+        final ServiceLoad load = new ServiceLoad(serviceUUID);
+
+        load.setRunningQueryCount(runningQueryCount);
+
+        loads.put(serviceUUID, load);
+
+    }
+
+    /**
+     * Requests are directed to the least loaded service and requests directed
+     * to a service count towards its load until it is sampled again.
+     */
+    public void test_chooseService_leastLoad() {
+
+        final ServiceScore[] services = getServices();
+
+        final Map<UUID, ServiceLoad> loads = new HashMap<UUID, ServiceLoad>();
+
+        setLoad(loads, S1, 3);
+        setLoad(loads, S2, 1);
+        setLoad(loads, S3, 2);
+
+        final Set<UUID> reserved = Collections.emptySet();
+
+        assertEquals(S2,
+                ServiceLoad.chooseService(services, loads, reserved,
+                        false/* heavy */, 0L/* startIndex */)
+                        .getServiceUUID());
+
+        // Two requests dispatched to S2 since it was sampled.
+        loads.get(S2).dispatched();
+        loads.get(S2).dispatched();
+
+        assertEquals(3L, loads.get(S2).getLoad());
+
+        assertEquals(S3,
+                ServiceLoad.chooseService(services, loads, reserved,
+                        false/* heavy */, 0L/* startIndex */)
+                        .getServiceUUID());
+
+        // Sampling clears the dispatch count.
+        loads.get(S2).setRunningQueryCount(0L);
+
+        assertEquals(0L, loads.get(S2).getLoad());
+
+    }
+
+    /**
+     * Services having the same load are chosen starting from the given index.
+     */
+    public void test_chooseService_ties() {
+
+        final ServiceScore[] services = getServices();
+
+        final Map<UUID, ServiceLoad> loads = new HashMap<UUID, ServiceLoad>();
+
+        final Set<UUID> reserved = Collections.emptySet();
+
+        assertEquals(S1, ServiceLoad.chooseService(services, loads, reserved,
+                false/* heavy */, 0L).getServiceUUID());
+
+        assertEquals(S2, ServiceLoad.chooseService(services, loads, reserved,
+                false/* heavy */, 1L).getServiceUUID());
+
+        assertEquals(S3, ServiceLoad.chooseService(services, loads, reserved,
+                false/* heavy */, 5L).getServiceUUID());
+
+    }
+
+    /**
+     * Heavy requests are directed to the reserved services and other requests
+     * to the remaining services, regardless of the load.
+     */
+    public void test_chooseService_reserved() {
+
+        final ServiceScore[] services = getServices();
+
+        final Map<UUID, ServiceLoad> loads = new HashMap<UUID, ServiceLoad>();
+
+        setLoad(loads, S1, 10);
+        setLoad(loads, S2, 0);
+        setLoad(loads, S3, 5);
+
+        final Set<UUID> reserved = Collections.singleton(S1);
+
+        assertEquals(S1, ServiceLoad.chooseService(services, loads, reserved,
+                true/* heavy */, 0L).getServiceUUID());
+
+        assertEquals(S2, ServiceLoad.chooseService(services, loads, reserved,
+                false/* heavy */, 0L).getServiceUUID());
+
+    }
+
+    /**
+     * If there is no service in the preferred set, then any service may be
+     * chosen. Empty slots in the service table are never chosen.
+     */
+    public void test_chooseService_fallback() {
+
+        final ServiceScore[] services = new ServiceScore[] {
+                null,
+                new ServiceScore(S2, "H2", "http://H2:8080/bigdata"), };
+
+        final Map<UUID, ServiceLoad> loads = new HashMap<UUID, ServiceLoad>();
+
+        // The reserved service is not joined with the quorum.
+        assertEquals(S2, ServiceLoad.chooseService(services, loads,
+                Collections.singleton(S1), true/* heavy */, 0L)
+                .getServiceUUID());
+
+        // All services are reserved.
+        assertEquals(S2, ServiceLoad.chooseService(services, loads,
+                Collections.singleton(S2), false/* heavy */, 0L)
+                .getServiceUUID());
+
+        // No service.
+        assertNull(ServiceLoad.chooseService(new ServiceScore[] { null },
+                loads, Collections.<UUID> emptySet(), false/* heavy */, 0L));
+
+        assertNull(ServiceLoad.chooseService(new ServiceScore[0], loads,
+                Collections.<UUID> emptySet(), false/* heavy */, 0L));
+
+    }
+
+    public void test_getURLQueryParameter() {
+
+        assertNull(QueryCostEstimator.getURLQueryParameter(null, "query"));
+
+        assertNull(QueryCostEstimator.getURLQueryParameter("timestamp=12",
+                "query"));
+
+        assertEquals("SELECT * {?s ?p ?o}",
+                QueryCostEstimator.getURLQueryParameter(
+                        "timestamp=12&query=SELECT+*+%7B%3Fs+%3Fp+%3Fo%7D",
+                        "query"));
+
+        // Not confused by a parameter having the same prefix.
+        assertEquals("x", QueryCostEstimator.getURLQueryParameter(
+                "queryId=1&query=x", "query"));
+
+    }
+
+    public void test_getNamespace() {
+
+        assertEquals("kb", QueryCostEstimator.getNamespace(
+                "/bigdata/sparql", "kb"));
+
+        assertEquals("foo", QueryCostEstimator.getNamespace(
+                "/bigdata/namespace/foo/sparql", "kb"));
+
+        assertEquals("foo", QueryCostEstimator.getNamespace(
+                "/bigdata/namespace/foo", "kb"));
+
+    }
+
+}
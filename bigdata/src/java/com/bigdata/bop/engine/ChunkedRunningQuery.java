@@ -131,6 +131,26 @@ public class ChunkedRunningQuery extends AbstractRunningQuery {
      */
     private final ConcurrentMap<BSBundle, BlockingQueue<IChunkMessage<IBindingSet>>> operatorQueues;
 
+    /**
+     * Used to profile a sample of the operator tasks for this query.
+     */
+    private final OperatorProfiler profiler;
+
+    /**
+     * The shape of the query plan (lazily computed the first time an operator
+     * task is profiled).
+     * 
+     * @see OperatorProfiler#getPlan(PipelineOp)
+     */
+    private volatile String profilePlan;
+
+    /**
+     * The signature of the query (lazily computed with {@link #profilePlan}).
+     * 
+     * @see OperatorProfiler#getSignature(String)
+     */
+    private volatile String profileSignature;
+
     /**
      * Set to <code>true</code> to make {@link #operatorQueues} and ordered map.
      * When <code>true</code>, {@link #consumeChunk()} will have an ordered bias
@@ -228,6 +248,29 @@ public class ChunkedRunningQuery extends AbstractRunningQuery {
 
         }
 
+        this.profiler = OperatorProfiler.getInstance(queryEngine);
+
+    }
+
+    /**
+     * Record a profiled operator task.
+     */
+    private void profile(final OperatorProfiler.Sample sample,
+            final ChunkTask t) {
+
+        if (profileSignature == null) {
+
+            // Note: benign data race.
+            final String plan = OperatorProfiler.getPlan(getQuery());
+
+            profilePlan = plan;
+
+            profileSignature = OperatorProfiler.getSignature(plan);
+
+        }
+
+        profiler.end(sample, profileSignature, profilePlan, t.bopId, t.bop);
+
     }
 
     /**
@@ -887,6 +930,7 @@ public class ChunkedRunningQuery extends AbstractRunningQuery {
                 /*
                  * Run the operator task.
                  */
+                final OperatorProfiler.Sample sample = profiler.begin();
                 final long begin = System.currentTimeMillis();
                 try {
                     c.operatorStartCount.increment();
@@ -904,6 +948,8 @@ public class ChunkedRunningQuery extends AbstractRunningQuery {
                     c.operatorActiveCount.decrement();
                     t.context.getStats().elapsed.add(System.currentTimeMillis()
                             - begin);
+                    if (sample != null)
+                        profile(sample, t);
                 }
 
                 // Notify query controller that operator task did run.
@@ -0,0 +1,692 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.engine;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
+import com.bigdata.counters.OneShotInstrument;
+
+/**
+ * Sampled profiling of operator evaluation which is shared by all queries
+ * running on the same {@link QueryEngine}. A random sample of the operator
+ * tasks run by the {@link ChunkedRunningQuery} is timed (wall clock time,
+ * thread CPU time, and bytes allocated by the thread when the JVM supports
+ * those measurements). The samples are aggregated by query signature and
+ * operator over a sliding window so the operators where the time goes for the
+ * workload can be reported without turning on the {@link QueryLog}.
+ * <p>
+ * The query signature is a hash of the shape of the query plan (the class and
+ * bop identifier of each {@link PipelineOp} in the pipeline). Queries which
+ * differ only in their constants have the same signature.
+ * <p>
+ * The sliding window is divided into {@link Options#BUCKETS} buckets. Samples
+ * are recorded into the bucket for the current time and a bucket is cleared
+ * when it is reused, so the window advances one bucket at a time.
+ * 
+ * @see QueryEngine#getCounters()
+ */
+public class OperatorProfiler implements ICounterSetAccess {
+
+    private static final transient Logger log = Logger
+            .getLogger(OperatorProfiler.class);
+
+    /**
+     * Options understood by the {@link OperatorProfiler}. These are specified
+     * using {@link System#getProperty(String)}.
+     */
+    public interface Options {
+
+        /**
+         * On average, one in this many operator tasks is profiled (default
+         * {@value #DEFAULT_SAMPLE_INTERVAL}). Use ONE (1) to profile every
+         * task and ZERO (0) to disable profiling.
+         */
+        String SAMPLE_INTERVAL = OperatorProfiler.class.getName()
+                + ".sampleInterval";
+
+        String DEFAULT_SAMPLE_INTERVAL = "100";
+
+        /**
+         * The duration of the sliding window in milliseconds (default
+         * {@value #DEFAULT_WINDOW}).
+         */
+        String WINDOW = OperatorProfiler.class.getName() + ".window";
+
+        String DEFAULT_WINDOW = "300000"; // 5 minutes.
+
+        /**
+         * The #of buckets into which the sliding window is divided (default
+         * {@value #DEFAULT_BUCKETS}).
+         */
+        String BUCKETS = OperatorProfiler.class.getName() + ".buckets";
+
+        String DEFAULT_BUCKETS = "10";
+
+    }
+
+    /**
+     * The profilers for each {@link QueryEngine}.
+     */
+    private static final Map<QueryEngine, OperatorProfiler> instances = new WeakHashMap<QueryEngine, OperatorProfiler>();
+
+    /**
+     * Return the {@link OperatorProfiler} for the {@link QueryEngine}.
+     */
+    public static OperatorProfiler getInstance(final QueryEngine queryEngine) {
+
+        if (queryEngine == null)
+            throw new IllegalArgumentException();
+
+        synchronized (instances) {
+
+            OperatorProfiler profiler = instances.get(queryEngine);
+
+            if (profiler == null) {
+
+                profiler = new OperatorProfiler(
+                        Integer.valueOf(System.getProperty(
+                                Options.SAMPLE_INTERVAL,
+                                Options.DEFAULT_SAMPLE_INTERVAL)),
+                        Long.valueOf(System.getProperty(Options.WINDOW,
+                                Options.DEFAULT_WINDOW)),
+                        Integer.valueOf(System.getProperty(Options.BUCKETS,
+                                Options.DEFAULT_BUCKETS)));
+
+                instances.put(queryEngine, profiler);
+
+            }
+
+            return profiler;
+
+        }
+
+    }
+
+    /**
+     * Used to measure the CPU time and allocations of the current thread.
+     */
+    private static final ThreadMXBean threadMXBean = ManagementFactory
+            .getThreadMXBean();
+
+    /**
+     * <code>true</code> iff the CPU time of the current thread is available.
+     */
+    private static final boolean cpuTimeSupported;
+
+    /**
+     * The extended bean iff the bytes allocated by a thread are available.
+     */
+    private static final com.sun.management.ThreadMXBean allocationMXBean;
+
+    static {
+
+        boolean cpu = false;
+        try {
+            cpu = threadMXBean.isCurrentThreadCpuTimeSupported()
+                    && threadMXBean.isThreadCpuTimeEnabled();
+        } catch (UnsupportedOperationException ex) {
+            // ignore.
+        }
+        cpuTimeSupported = cpu;
+
+        com.sun.management.ThreadMXBean alloc = null;
+        try {
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean tmp = (com.sun.management.ThreadMXBean) threadMXBean;
+                if (tmp.isThreadAllocatedMemorySupported()
+                        && tmp.isThreadAllocatedMemoryEnabled())
+                    alloc = tmp;
+            }
+        } catch (UnsupportedOperationException ex) {
+            // ignore.
+        } catch (LinkageError ex) {
+            // Not a HotSpot derived JVM.
+        }
+        allocationMXBean = alloc;
+
+        if (log.isInfoEnabled())
+            log.info("cpuTimeSupported=" + cpuTimeSupported
+                    + ", allocationSupported=" + (allocationMXBean != null));
+
+    }
+
+    private final int sampleInterval;
+
+    private final long window;
+
+    private final long bucketMillis;
+
+    /**
+     * The buckets of the sliding window. The bucket for a given time is at
+     * the index <code>epoch % buckets.length()</code>, where the epoch is the
+     * time divided by {@link #bucketMillis}.
+     */
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    /**
+     * The #of operator tasks which were profiled.
+     */
+    private final CAT sampleCount = new CAT();
+
+    /**
+     * @param sampleInterval
+     *            On average, one in this many operator tasks is profiled. When
+     *            ZERO (0), nothing is profiled.
+     * @param window
+     *            The duration of the sliding window in milliseconds.
+     * @param nbuckets
+     *            The #of buckets into which the window is divided.
+     */
+    public OperatorProfiler(final int sampleInterval, final long window,
+            final int nbuckets) {
+
+        if (sampleInterval < 0)
+            throw new IllegalArgumentException(Options.SAMPLE_INTERVAL);
+
+        if (nbuckets <= 0)
+            throw new IllegalArgumentException(Options.BUCKETS);
+
+        if (window < nbuckets)
+            throw new IllegalArgumentException(Options.WINDOW);
+
+        this.sampleInterval = sampleInterval;
+
+        this.window = window;
+
+        this.bucketMillis = window / nbuckets;
+
+        this.buckets = new AtomicReferenceArray<Bucket>(nbuckets);
+
+    }
+
+    /**
+     * <code>true</code> unless profiling is disabled.
+     */
+    public boolean isEnabled() {
+
+        return sampleInterval != 0;
+
+    }
+
+    /**
+     * On average, one in this many operator tasks is profiled.
+     */
+    public int getSampleInterval() {
+
+        return sampleInterval;
+
+    }
+
+    /**
+     * The duration of the sliding window in milliseconds.
+     */
+    public long getWindow() {
+
+        return window;
+
+    }
+
+    /**
+     * Decide whether the operator task about to run in the caller's thread
+     * will be profiled.
+     * 
+     * @return The start of the {@link Sample} -or- <code>null</code> if the
+     *         task is not profiled.
+     */
+    public Sample begin() {
+
+        if (sampleInterval == 0)
+            return null;
+
+        if (sampleInterval > 1
+                && ThreadLocalRandom.current().nextInt(sampleInterval) != 0)
+            return null;
+
+        return new Sample();
+
+    }
+
+    /**
+     * Record a {@link Sample} once the operator task has run. This MUST be
+     * invoked in the same thread as {@link #begin()}.
+     * 
+     * @param sample
+     *            The sample returned by {@link #begin()}.
+     * @param signature
+     *            The signature of the query.
+     * @param plan
+     *            A human readable description of the query plan (only used
+     *            the first time a signature is seen within a bucket).
+     * @param bopId
+     *            The bop identifier of the operator.
+     * @param bop
+     *            The operator.
+     */
+    public void end(final Sample sample, final String signature,
+            final String plan, final int bopId, final BOp bop) {
+
+        final long wallNanos = System.nanoTime() - sample.wallNanos;
+
+        final long cpuNanos = sample.cpuNanos == -1L ? 0L : threadMXBean
+                .getCurrentThreadCpuTime() - sample.cpuNanos;
+
+        final long allocatedBytes = sample.allocatedBytes == -1L ? 0L
+                : allocationMXBean.getThreadAllocatedBytes(Thread
+                        .currentThread().getId()) - sample.allocatedBytes;
+
+        record(System.currentTimeMillis(), signature, plan, bopId, bop
+                .getClass().getSimpleName(), wallNanos, cpuNanos,
+                allocatedBytes);
+
+    }
+
+    /**
+     * Record the measurements for one operator task.
+     */
+    void record(final long now, final String signature, final String plan,
+            final int bopId, final String bopName, final long wallNanos,
+            final long cpuNanos, final long allocatedBytes) {
+
+        final long epoch = now / bucketMillis;
+
+        final int index = (int) (epoch % buckets.length());
+
+        Bucket bucket = buckets.get(index);
+
+        if (bucket == null || bucket.epoch != epoch) {
+
+            // Start a new bucket, discarding the old samples (if any).
+            final Bucket tmp = new Bucket(epoch);
+
+            if (buckets.compareAndSet(index, bucket, tmp)) {
+
+                bucket = tmp;
+
+            } else {
+
+                // Someone else won the data race.
+                bucket = buckets.get(index);
+
+            }
+
+        }
+
+        final String key = signature + ":" + bopId;
+
+        OperatorProfile p = bucket.profiles.get(key);
+
+        if (p == null) {
+
+            final OperatorProfile tmp = bucket.profiles.putIfAbsent(key,
+                    p = new OperatorProfile(signature, plan, bopId, bopName));
+
+            if (tmp != null)
+                p = tmp;
+
+        }
+
+        p.add(1L, wallNanos, cpuNanos, allocatedBytes);
+
+        sampleCount.increment();
+
+    }
+
+    /**
+     * Return the operators having the greatest cumulative wall clock time in
+     * the profiled operator tasks over the sliding window.
+     * 
+     * @param limit
+     *            The maximum #of operators to report.
+     * 
+     * @return The operators in descending order by cumulative wall clock time.
+     */
+    public List<OperatorProfile> getTopOperators(final int limit) {
+
+        return getTopOperators(System.currentTimeMillis(), limit);
+
+    }
+
+    List<OperatorProfile> getTopOperators(final long now, final int limit) {
+
+        if (limit <= 0)
+            throw new IllegalArgumentException();
+
+        final long epoch = now / bucketMillis;
+
+        final Map<String, OperatorProfile> map = new LinkedHashMap<String, OperatorProfile>();
+
+        for (int i = 0; i < buckets.length(); i++) {
+
+            final Bucket bucket = buckets.get(i);
+
+            if (bucket == null || bucket.epoch <= epoch - buckets.length()
+                    || bucket.epoch > epoch) {
+                // Empty or outside of the window.
+                continue;
+            }
+
+            for (Map.Entry<String, OperatorProfile> e : bucket.profiles
+                    .entrySet()) {
+
+                final OperatorProfile p = e.getValue();
+
+                OperatorProfile q = map.get(e.getKey());
+
+                if (q == null) {
+
+                    map.put(e.getKey(), q = new OperatorProfile(p.signature,
+                            p.plan, p.bopId, p.bopName));
+
+                }
+
+                q.add(p);
+
+            }
+
+        }
+
+        final List<OperatorProfile> a = new ArrayList<OperatorProfile>(
+                map.values());
+
+        Collections.sort(a, new Comparator<OperatorProfile>() {
+            @Override
+            public int compare(final OperatorProfile o1,
+                    final OperatorProfile o2) {
+                final long t1 = o1.getWallNanos();
+                final long t2 = o2.getWallNanos();
+                return t1 < t2 ? 1 : t1 > t2 ? -1 : 0;
+            }
+        });
+
+        return a.size() > limit ? a.subList(0, limit) : a;
+
+    }
+
+    /**
+     * Return the signature of a query. This is a hash of the shape of the
+     * query plan returned by {@link #getPlan(PipelineOp)}.
+     */
+    public static String getSignature(final String plan) {
+
+        return Integer.toHexString(plan.hashCode());
+
+    }
+
+    /**
+     * Return a description of the shape of a query plan. This is the class
+     * and bop identifier of each {@link PipelineOp} in the pipeline.
+     */
+    public static String getPlan(final PipelineOp query) {
+
+        final StringBuilder sb = new StringBuilder();
+
+        final Iterator<BOp> itr = BOpUtility.preOrderIterator(query);
+
+        while (itr.hasNext()) {
+
+            final BOp op = itr.next();
+
+            if (!(op instanceof PipelineOp))
+                continue;
+
+            if (sb.length() > 0)
+                sb.append(';');
+
+            sb.append(op.getClass().getSimpleName());
+
+            sb.append('#');
+
+            sb.append(op.getProperty(BOp.Annotations.BOP_ID, -1));
+
+        }
+
+        return sb.toString();
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter("sampleInterval", new OneShotInstrument<Integer>(
+                sampleInterval));
+
+        root.addCounter("window", new OneShotInstrument<Long>(window));
+
+        root.addCounter("sampleCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(sampleCount.get());
+            }
+        });
+
+        return root;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "{sampleInterval="
+                + sampleInterval + ",window=" + window + ",buckets="
+                + buckets.length() + ",sampleCount=" + sampleCount.get()
+                + "}";
+
+    }
+
+    /**
+     * The start of the measurements for an operator task.
+     */
+    public static class Sample {
+
+        private final long wallNanos;
+
+        private final long cpuNanos;
+
+        private final long allocatedBytes;
+
+        private Sample() {
+
+            this.allocatedBytes = allocationMXBean == null ? -1L
+                    : allocationMXBean.getThreadAllocatedBytes(Thread
+                            .currentThread().getId());
+
+            this.cpuNanos = cpuTimeSupported ? threadMXBean
+                    .getCurrentThreadCpuTime() : -1L;
+
+            this.wallNanos = System.nanoTime();
+
+        }
+
+    }
+
+    /**
+     * The samples for some interval of the sliding window.
+     */
+    private static class Bucket {
+
+        final long epoch;
+
+        final ConcurrentHashMap<String, OperatorProfile> profiles = new ConcurrentHashMap<String, OperatorProfile>();
+
+        Bucket(final long epoch) {
+
+            this.epoch = epoch;
+
+        }
+
+    }
+
+    /**
+     * The aggregated measurements for an operator of the queries having some
+     * signature.
+     */
+    public static class OperatorProfile {
+
+        private final String signature;
+
+        private final String plan;
+
+        private final int bopId;
+
+        private final String bopName;
+
+        private final CAT sampleCount = new CAT();
+
+        private final CAT wallNanos = new CAT();
+
+        private final CAT cpuNanos = new CAT();
+
+        private final CAT allocatedBytes = new CAT();
+
+        OperatorProfile(final String signature, final String plan,
+                final int bopId, final String bopName) {
+
+            this.signature = signature;
+            this.plan = plan;
+            this.bopId = bopId;
+            this.bopName = bopName;
+
+        }
+
+        void add(final long sampleCount, final long wallNanos,
+                final long cpuNanos, final long allocatedBytes) {
+
+            this.sampleCount.add(sampleCount);
+            this.wallNanos.add(wallNanos);
+            this.cpuNanos.add(cpuNanos);
+            this.allocatedBytes.add(allocatedBytes);
+
+        }
+
+        void add(final OperatorProfile p) {
+
+            add(p.getSampleCount(), p.getWallNanos(), p.getCPUNanos(),
+                    p.getAllocatedBytes());
+
+        }
+
+        /**
+         * The signature of the query.
+         * 
+         * @see OperatorProfiler#getSignature(String)
+         */
+        public String getSignature() {
+            return signature;
+        }
+
+        /**
+         * The shape of the query plan.
+         * 
+         * @see OperatorProfiler#getPlan(PipelineOp)
+         */
+        public String getPlan() {
+            return plan;
+        }
+
+        /**
+         * The bop identifier of the operator.
+         */
+        public int getBOpId() {
+            return bopId;
+        }
+
+        /**
+         * The simple class name of the operator.
+         */
+        public String getBOpName() {
+            return bopName;
+        }
+
+        /**
+         * The #of profiled operator tasks.
+         */
+        public long getSampleCount() {
+            return sampleCount.get();
+        }
+
+        /**
+         * The cumulative wall clock time of the profiled operator tasks.
+         */
+        public long getWallNanos() {
+            return wallNanos.get();
+        }
+
+        /**
+         * The cumulative CPU time of the profiled operator tasks (ZERO if not
+         * supported by the JVM).
+         */
+        public long getCPUNanos() {
+            return cpuNanos.get();
+        }
+
+        /**
+         * The cumulative bytes allocated by the profiled operator tasks (ZERO
+         * if not supported by the JVM).
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes.get();
+        }
+
+        @Override
+        public String toString() {
+
+            return getClass().getSimpleName() + "{signature=" + signature
+                    + ",bopId=" + bopId + ",bopName=" + bopName
+                    + ",sampleCount=" + getSampleCount() + ",wallNanos="
+                    + getWallNanos() + ",cpuNanos=" + getCPUNanos()
+                    + ",allocatedBytes=" + getAllocatedBytes() + "}";
+
+        }
+
+    }
+
+}
@@ -61,6 +61,7 @@ import com.bigdata.bop.IQueryAttributes;
 import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.bindingSet.ListBindingSet;
 import com.bigdata.bop.fed.QueryEngineFactory;
+import com.bigdata.bop.joinGraph.rto.SampleCache;
 import com.bigdata.btree.BTree;
 import com.bigdata.btree.IndexSegment;
 import com.bigdata.btree.view.FusedView;
@@ -68,6 +69,7 @@ import com.bigdata.cache.ConcurrentWeakValueCache;
 import com.bigdata.concurrent.FutureTaskMon;
 import com.bigdata.counters.CounterSet;
 import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
 import com.bigdata.journal.ConcurrencyManager;
 import com.bigdata.journal.IIndexManager;
 import com.bigdata.journal.Journal;
@@ -272,6 +274,22 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
         // global counters.
         root.attach(counters.getCounters());
 
+        // #of queries currently running (used by load balancers).
+        root.addCounter("runningQueryCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue((long) runningQueries.size());
+            }
+        });
+
+        // runtime query optimizer sample cache and timings.
+        root.makePath("RTO").attach(
+                SampleCache.getInstance(this).getCounters());
+
+        // sampled operator profiling.
+        root.makePath("Operator Profile").attach(
+                OperatorProfiler.getInstance(this).getCounters());
+
 //        // counters per tagged query group.
 //        {
 //
@@ -84,6 +84,13 @@ public class BaseJoinStats extends BOpStats {
      */
     public final CAT accessPathUnitsIn = new CAT();
 
+    /**
+     * The #of access paths which were restricted by a semi-join filter.
+     * 
+     * @see SemiJoinFilter
+     */
+    public final CAT semiJoinFilterCount = new CAT();
+
     @Override
     public void add(final BOpStats o) {
 
@@ -103,6 +110,8 @@ public class BaseJoinStats extends BOpStats {
 
             accessPathUnitsIn.add(t.accessPathUnitsIn.get());
 
+            semiJoinFilterCount.add(t.semiJoinFilterCount.get());
+
         }
 
     }
@@ -115,6 +124,7 @@ public class BaseJoinStats extends BOpStats {
         sb.append(",accessPathRangeCount=" + accessPathRangeCount.get());
         sb.append(",accessPathChunksIn=" + accessPathChunksIn.get());
         sb.append(",accessPathUnitsIn=" + accessPathUnitsIn.get());
+        sb.append(",semiJoinFilterCount=" + semiJoinFilterCount.get());
     }
 
 }
@@ -27,7 +27,11 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.bop.join;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.FutureTask;
 
@@ -36,23 +40,35 @@ import org.apache.log4j.Logger;
 import com.bigdata.bop.BOp;
 import com.bigdata.bop.BOpContext;
 import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Constant;
 import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
 import com.bigdata.bop.IPredicate;
 import com.bigdata.bop.IQueryAttributes;
 import com.bigdata.bop.IShardwisePipelineOp;
 import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
 import com.bigdata.bop.NV;
 import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.controller.INamedSolutionSetRef;
 import com.bigdata.bop.controller.NamedSetAnnotations;
+import com.bigdata.btree.BytesUtil;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.rdf.internal.IV;
 import com.bigdata.relation.IRelation;
 import com.bigdata.relation.accesspath.AbstractUnsynchronizedArrayBuffer;
 import com.bigdata.relation.accesspath.IAccessPath;
 import com.bigdata.relation.accesspath.IBindingSetAccessPath;
+import com.bigdata.relation.accesspath.ElementFilter;
 import com.bigdata.relation.accesspath.IBlockingBuffer;
 import com.bigdata.relation.accesspath.UnsyncLocalOutputBuffer;
+import com.bigdata.striterator.IKeyOrder;
 
+import cutthecrap.utils.striterators.FilterBase;
 import cutthecrap.utils.striterators.ICloseableIterator;
+import cutthecrap.utils.striterators.IFilter;
+import cutthecrap.utils.striterators.NOPFilter;
 
 /**
  * Abstract base class for both JVM and native memory hash join against an
@@ -77,6 +93,35 @@ abstract public class HashJoinOp<E> extends PipelineOp implements
     public interface Annotations extends AccessPathJoinAnnotations,
             NamedSetAnnotations, HashJoinAnnotations {
 
+        /**
+         * When <code>true</code>, the distinct values bound for a join
+         * variable by the buffered solutions are collected before the access
+         * path is scanned and are used as a semi-join filter for that access
+         * path (default {@value #DEFAULT_SEMI_JOIN_FILTER}). Elements which
+         * can not join are then dropped at the index. When the join variable
+         * is the first unbound component of the key for the access path, the
+         * scan also skips over the key ranges which can not join.
+         * 
+         * @see SemiJoinFilter
+         * @see SemiJoinAdvancer
+         */
+        String SEMI_JOIN_FILTER = HashJoinOp.class.getName()
+                + ".semiJoinFilter";
+
+        boolean DEFAULT_SEMI_JOIN_FILTER = true;
+
+        /**
+         * The maximum #of distinct values in a semi-join filter (default
+         * {@value #DEFAULT_SEMI_JOIN_FILTER_MAX_VALUES}). No filter is used if
+         * the buffered solutions bind more distinct values than this for the
+         * join variable or at least as many as the range count of the access
+         * path.
+         */
+        String SEMI_JOIN_FILTER_MAX_VALUES = HashJoinOp.class.getName()
+                + ".semiJoinFilterMaxValues";
+
+        int DEFAULT_SEMI_JOIN_FILTER_MAX_VALUES = 100000;
+
     }
 
     /**
@@ -350,12 +395,200 @@ abstract public class HashJoinOp<E> extends PipelineOp implements
          * access path will be used to probe the hash index to identify
          * solutions that can join.
          */
-        private IBindingSetAccessPath<?> getAccessPath() {
+        private IBindingSetAccessPath<?> getAccessPath(
+                final IPredicate<E> pred) {
 
             return (IBindingSetAccessPath<?>) context.getAccessPath(relation,
                     pred);
 
         }
+
+        /**
+         * Return a copy of the predicate having a semi-join filter for the
+         * distinct values bound for a join variable by the buffered solutions.
+         * 
+         * @param accessPath
+         *            The access path for the predicate.
+         * @param rangeCount
+         *            The fast range count of that access path.
+         * 
+         * @return The new predicate -or- <code>null</code> if a semi-join
+         *         filter is disabled, is not possible, or would not be
+         *         selective.
+         */
+        private IPredicate<E> getSemiJoinPredicate(
+                final IAccessPath<?> accessPath, final long rangeCount) {
+
+            if (!op.getProperty(Annotations.SEMI_JOIN_FILTER,
+                    Annotations.DEFAULT_SEMI_JOIN_FILTER))
+                return null;
+
+            /*
+             * Find a join variable which is used by the predicate.
+             */
+            IVariable<?> var = null;
+            int index = -1;
+            for (IVariable<?> v : state.getJoinVars()) {
+                for (int i = 0; i < pred.arity() && var == null; i++) {
+                    if (v.equals(pred.get(i))) {
+                        var = v;
+                        index = i;
+                    }
+                }
+            }
+
+            if (var == null)
+                return null;
+
+            final long maxValues = Math.min(rangeCount, op.getProperty(
+                    Annotations.SEMI_JOIN_FILTER_MAX_VALUES,
+                    Annotations.DEFAULT_SEMI_JOIN_FILTER_MAX_VALUES));
+
+            /*
+             * Collect the distinct values for the join variable.
+             */
+            final Set<Object> values = new HashSet<Object>();
+
+            final ICloseableIterator<IBindingSet> itr = state.indexScan();
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final IConstant<?> c = itr.next().get(var);
+
+                    if (c == null) {
+                        // Not bound in some solution.
+                        return null;
+                    }
+
+                    final Object val = c.get();
+
+                    if (val instanceof IV && ((IV<?, ?>) val).isNullIV()) {
+                        /*
+                         * A mock IV is not in the index, so it can not join
+                         * with an element read from the access path.
+                         */
+                        continue;
+                    }
+
+                    if (values.add(val) && values.size() >= maxValues) {
+                        // Not selective.
+                        return null;
+                    }
+
+                }
+
+            } finally {
+
+                itr.close();
+
+            }
+
+            final IFilter elementFilter = ElementFilter
+                    .newInstance(new SemiJoinFilter<E>(index, values));
+
+            final IFilter current = pred.getIndexLocalFilter();
+
+            final SemiJoinAdvancer<E> advancer = current == null ? newAdvancer(
+                    accessPath, var, index, values) : null;
+
+            final FilterBase filter;
+            int flags = pred.getProperty(IPredicate.Annotations.FLAGS,
+                    IPredicate.Annotations.DEFAULT_FLAGS);
+            if (advancer != null) {
+                // The advancer MUST run directly against the cursor.
+                filter = advancer;
+                flags |= IRangeQuery.CURSOR;
+            } else {
+                filter = new NOPFilter();
+                if (current != null)
+                    filter.addFilter(current);
+            }
+            filter.addFilter(elementFilter);
+
+            if (log.isInfoEnabled())
+                log.info("Semi-join filter: var=" + var + ", nvalues="
+                        + values.size() + ", rangeCount=" + rangeCount
+                        + ", advancer=" + (advancer != null));
+
+            stats.semiJoinFilterCount.increment();
+
+            @SuppressWarnings("unchecked")
+            final IPredicate<E> tmp = (IPredicate<E>) pred.setProperty(
+                    IPredicate.Annotations.INDEX_LOCAL_FILTER, filter)
+                    .setProperty(IPredicate.Annotations.FLAGS, flags);
+
+            return tmp;
+
+        }
+
+        /**
+         * Return a {@link SemiJoinAdvancer} which will skip over the key
+         * ranges which can not join.
+         * 
+         * @return The advancer -or- <code>null</code> if the join variable is
+         *         not the first unbound component of the key for the access
+         *         path, or if binding it would make the predicate fully bound.
+         */
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private SemiJoinAdvancer<E> newAdvancer(
+                final IAccessPath<?> accessPath, final IVariable<?> var,
+                final int index, final Set<Object> values) {
+
+            final IKeyOrder<E> keyOrder = (IKeyOrder<E>) accessPath
+                    .getKeyOrder();
+
+            final int keyArity = keyOrder.getKeyArity();
+
+            // The #of leading components of the key bound to constants.
+            int keyPos = 0;
+            while (keyPos < keyArity) {
+                final int i = keyOrder.getKeyOrder(keyPos);
+                final IVariableOrConstant<?> t = i < pred.arity() ? pred
+                        .get(i) : null;
+                if (t == null || !t.isConstant())
+                    break;
+                keyPos++;
+            }
+
+            if (keyPos + 1 >= keyArity || keyOrder.getKeyOrder(keyPos) != index)
+                return null;
+
+            final IKeyBuilder keyBuilder = accessPath.getIndex()
+                    .getIndexMetadata().getTupleSerializer().getKeyBuilder();
+
+            // The key range for each value, as {fromKey,toKey}.
+            final byte[][][] ranges = new byte[values.size()][][];
+
+            int n = 0;
+            for (Object val : values) {
+                final IPredicate<E> asBound = pred.asBound(var, new Constant(
+                        val));
+                ranges[n++] = new byte[][] {
+                        keyOrder.getFromKey(keyBuilder, asBound),
+                        keyOrder.getToKey(keyBuilder, asBound) };
+            }
+
+            Arrays.sort(ranges, new Comparator<byte[][]>() {
+                @Override
+                public int compare(final byte[][] o1, final byte[][] o2) {
+                    return BytesUtil.compareBytes(o1[0], o2[0]);
+                }
+            });
+
+            final byte[][] fromKeys = new byte[n][];
+
+            final byte[][] toKeys = new byte[n][];
+
+            for (int i = 0; i < n; i++) {
+                fromKeys[i] = ranges[i][0];
+                toKeys[i] = ranges[i][1];
+            }
+
+            return new SemiJoinAdvancer<E>(fromKeys, toKeys);
+
+        }
         
         /**
          * Do a hash join of the buffered solutions with the access path.
@@ -365,15 +598,25 @@ abstract public class HashJoinOp<E> extends PipelineOp implements
             if (state.isEmpty())
                 return;
 
-            final IBindingSetAccessPath<?> accessPath = getAccessPath();
+            IBindingSetAccessPath<?> accessPath = getAccessPath(pred);
+
+            final long rangeCount = accessPath.rangeCount(false/* exact */);
+
+            final IPredicate<E> semiJoinPred = getSemiJoinPredicate(
+                    (IAccessPath<?>) accessPath, rangeCount);
+
+            if (semiJoinPred != null) {
+
+                accessPath = getAccessPath(semiJoinPred);
+
+            }
 
             if (log.isInfoEnabled())
                 log.info("accessPath=" + accessPath);
 
             stats.accessPathCount.increment();
 
-            stats.accessPathRangeCount.add(accessPath
-                    .rangeCount(false/* exact */));
+            stats.accessPathRangeCount.add(rangeCount);
 
             final UnsyncLocalOutputBuffer<IBindingSet> unsyncBuffer = new UnsyncLocalOutputBuffer<IBindingSet>(
                     op.getChunkCapacity(), sink);
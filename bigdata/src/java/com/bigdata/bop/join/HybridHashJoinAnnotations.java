@@ -0,0 +1,65 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.bop.join;
+
+import com.bigdata.bop.HashMapAnnotations;
+
+/**
+ * Annotations for hybrid hash joins, which buffer solutions on the Java heap
+ * until a heap budget is exceeded and then spill hash partitions onto the
+ * native heap.
+ * 
+ * @see HybridHashJoinUtility
+ */
+public interface HybridHashJoinAnnotations extends HTreeHashJoinAnnotations,
+        HashMapAnnotations {
+
+    /**
+     * The #of hash partitions (default {@value #DEFAULT_PARTITION_COUNT}). This
+     * MUST be a power of two. Each partition is either on the Java heap or has
+     * been spilled onto the native heap.
+     */
+    String PARTITION_COUNT = HybridHashJoinAnnotations.class.getName()
+            + ".partitionCount";
+
+    int DEFAULT_PARTITION_COUNT = 16;
+
+    /**
+     * The maximum #of solutions which may be buffered on the Java heap by all
+     * hybrid hash joins of the same query (default
+     * {@value #DEFAULT_MAX_HEAP_SOLUTIONS}). Once this budget is exceeded, the
+     * largest partition on the Java heap is spilled onto the native heap.
+     */
+    String MAX_HEAP_SOLUTIONS = HybridHashJoinAnnotations.class.getName()
+            + ".maxHeapSolutions";
+
+    long DEFAULT_MAX_HEAP_SOLUTIONS = 1000000L;
+
+}
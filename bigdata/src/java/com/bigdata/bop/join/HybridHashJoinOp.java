@@ -0,0 +1,154 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.bop.join;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IQueryAttributes;
+import com.bigdata.bop.ISingleThreadedOp;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.controller.INamedSolutionSetRef;
+import com.bigdata.relation.accesspath.IAccessPath;
+
+/**
+ * A hash join against an {@link IAccessPath} based on the
+ * {@link HybridHashJoinUtility}. Source solutions are buffered on the Java
+ * heap until the heap budget for the query is exceeded, at which point hash
+ * partitions are spilled onto the native heap. Once ALL source solutions have
+ * been buffered, the hash join will run a single pass over the
+ * {@link IAccessPath} for the target predicate.
+ * <p>
+ * Like the {@link HTreeHashJoinOp}, this operator relies on last pass
+ * evaluation and does not require the query engine to buffer all source
+ * solutions on the Java heap before the operator runs.
+ * 
+ * @see HybridHashJoinUtility
+ */
+public class HybridHashJoinOp<E> extends HashJoinOp<E> implements
+        ISingleThreadedOp {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends HashJoinOp.Annotations,
+            HybridHashJoinAnnotations {
+
+    }
+
+    /**
+     * The key for the query attribute which tracks the #of solutions buffered
+     * on the Java heap by the hybrid hash joins of a query.
+     */
+    static final String HEAP_SOLUTIONS = HybridHashJoinOp.class.getName()
+            + ".heapSolutions";
+
+    /**
+     * @param op
+     */
+    public HybridHashJoinOp(final HybridHashJoinOp<E> op) {
+
+        super(op);
+
+    }
+
+    public HybridHashJoinOp(final BOp[] args, final NV... annotations) {
+
+        this(args, NV.asMap(annotations));
+
+    }
+
+    /**
+     * @param args
+     * @param annotations
+     */
+    public HybridHashJoinOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        assertMaxParallelOne();
+
+        if (!isLastPassRequested()) {
+            /*
+             * Last pass evaluation must be requested. This operator relies on
+             * last pass evaluation semantics to produce its outputs.
+             */
+            throw new IllegalArgumentException(PipelineOp.Annotations.LAST_PASS
+                    + "=" + isLastPassRequested());
+        }
+
+    }
+
+    @Override
+    protected IHashJoinUtility newState(final BOpContext<IBindingSet> context,
+            final INamedSolutionSetRef namedSetRef, final JoinTypeEnum joinType) {
+
+        final IQueryAttributes attrs = context.getQueryAttributes(namedSetRef
+                .getQueryId());
+
+        AtomicLong heapSolutions = (AtomicLong) attrs.get(HEAP_SOLUTIONS);
+
+        if (heapSolutions == null) {
+
+            final AtomicLong tmp = (AtomicLong) attrs.putIfAbsent(
+                    HEAP_SOLUTIONS, heapSolutions = new AtomicLong());
+
+            if (tmp != null)
+                heapSolutions = tmp;
+
+        }
+
+        return new HybridHashJoinUtility(context.getRunningQuery()
+                .getMemoryManager(), this, joinType, heapSolutions);
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The {@link HybridHashJoinOp} runs the hash join exactly once, on the
+     * last evaluation pass.
+     */
+    @Override
+    protected boolean runHashJoin(final BOpContext<?> context,
+            final IHashJoinUtility state) {
+
+        return context.isLastInvocation();
+
+    }
+
+}
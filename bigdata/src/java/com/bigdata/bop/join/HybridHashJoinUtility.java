@@ -0,0 +1,895 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.bop.join;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.relation.accesspath.BufferClosedException;
+import com.bigdata.relation.accesspath.EmptyCloseableIterator;
+import com.bigdata.relation.accesspath.IBuffer;
+import com.bigdata.relation.accesspath.MultiSourceSequentialCloseableIterator;
+import com.bigdata.relation.accesspath.ThickCloseableIterator;
+import com.bigdata.rwstore.sector.IMemoryManager;
+import com.bigdata.util.InnerCause;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A hybrid hash join. The solutions are hash partitioned on the join
+ * variables. Each partition starts out as a {@link JVMHashJoinUtility}. When
+ * the #of solutions buffered on the Java heap by the hybrid hash joins of a
+ * query exceeds {@link HybridHashJoinAnnotations#MAX_HEAP_SOLUTIONS}, the
+ * largest partition on the Java heap is spilled: its solutions are copied into
+ * an {@link HTreeHashJoinUtility} backed by the {@link IMemoryManager} and the
+ * partition continues on the native heap. Solutions to be joined are
+ * partitioned in the same manner and each partition is joined against the
+ * corresponding hash index. Hash joins which fit in memory therefore run at
+ * the speed of the {@link JVMHashJoinUtility} while larger hash joins degrade
+ * gracefully to the {@link HTreeHashJoinUtility} partition by partition rather
+ * than running out of Java heap.
+ * <p>
+ * Note: Solutions can only join if they have the same bindings for the join
+ * variables, so they are always found in the same partition. A spilled
+ * partition is probed directly on the native heap. Unlike a classic GRACE hash
+ * join, the solutions to be joined against a spilled partition do not need to
+ * be written out and joined in a second pass.
+ * 
+ * @see HybridHashJoinAnnotations
+ * @see HybridHashJoinOp
+ */
+public class HybridHashJoinUtility implements IHashJoinUtility {
+
+    private static final Logger log = Logger
+            .getLogger(HybridHashJoinUtility.class);
+
+    /**
+     * <code>true</code> until the state is discarded by {@link #release()}.
+     */
+    private final AtomicBoolean open = new AtomicBoolean(true);
+
+    /**
+     * Used to create the {@link HTreeHashJoinUtility} for spilled partitions.
+     */
+    private final IMemoryManager mmgr;
+
+    /**
+     * The operator whose annotations are used to initialize each partition.
+     */
+    private final PipelineOp op;
+
+    /**
+     * The type of join to be performed.
+     */
+    private final JoinTypeEnum joinType;
+
+    /**
+     * @see HashJoinAnnotations#ASK_VAR
+     */
+    private final IVariable<?> askVar;
+
+    /**
+     * The join variables.
+     */
+    private final IVariable<?>[] joinVars;
+
+    /**
+     * The variables to be retained (optional).
+     */
+    private final IVariable<?>[] selectVars;
+
+    /**
+     * The join constraints (optional).
+     */
+    private final IConstraint[] constraints;
+
+    /**
+     * The variables used to assign solutions to partitions. These are the
+     * variables used as the key of the hash index by the partitions.
+     */
+    private final IVariable<?>[] partitionVars;
+
+    /**
+     * The hash partitions. A partition is <code>null</code> until a solution
+     * is assigned to it.
+     */
+    private final IHashJoinUtility[] partitions;
+
+    /**
+     * The #of solutions in each partition while that partition is on the Java
+     * heap and ZERO (0) once it has been spilled.
+     */
+    private final long[] heapCounts;
+
+    /**
+     * The #of solutions buffered on the Java heap by all hybrid hash joins
+     * sharing the same heap budget.
+     */
+    private final AtomicLong heapSolutions;
+
+    /**
+     * @see HybridHashJoinAnnotations#MAX_HEAP_SOLUTIONS
+     */
+    private final long maxHeapSolutions;
+
+    /**
+     * The #of partitions which have been spilled onto the native heap.
+     */
+    private int spilledPartitionCount = 0;
+
+    /**
+     * @param mmgr
+     *            The memory manager used for spilled partitions.
+     * @param op
+     *            The operator whose annotations will inform construction of
+     *            the hash index.
+     * @param joinType
+     *            The type of join to be performed.
+     * @param heapSolutions
+     *            The #of solutions buffered on the Java heap against the heap
+     *            budget. This is normally shared by all hybrid hash joins in
+     *            the same query.
+     * 
+     * @see HybridHashJoinAnnotations
+     */
+    public HybridHashJoinUtility(final IMemoryManager mmgr,
+            final PipelineOp op, final JoinTypeEnum joinType,
+            final AtomicLong heapSolutions) {
+
+        if (mmgr == null)
+            throw new IllegalArgumentException();
+
+        if (op == null)
+            throw new IllegalArgumentException();
+
+        if (joinType == null)
+            throw new IllegalArgumentException();
+
+        if (heapSolutions == null)
+            throw new IllegalArgumentException();
+
+        this.mmgr = mmgr;
+        this.op = op;
+        this.joinType = joinType;
+        this.heapSolutions = heapSolutions;
+
+        final boolean filter = joinType == JoinTypeEnum.Filter;
+
+        this.askVar = (IVariable<?>) op
+                .getProperty(HashJoinAnnotations.ASK_VAR);
+
+        this.joinVars = (IVariable<?>[]) op
+                .getRequiredProperty(HashJoinAnnotations.JOIN_VARS);
+
+        this.selectVars = filter ? joinVars : (IVariable<?>[]) op
+                .getProperty(JoinAnnotations.SELECT);
+
+        this.constraints = (IConstraint[]) op
+                .getProperty(JoinAnnotations.CONSTRAINTS);
+
+        final IVariable<?>[] tmp = filter ? (IVariable<?>[]) op
+                .getProperty(JoinAnnotations.SELECT) : null;
+
+        this.partitionVars = tmp != null ? tmp : joinVars;
+
+        final int partitionCount = op.getProperty(
+                HybridHashJoinAnnotations.PARTITION_COUNT,
+                HybridHashJoinAnnotations.DEFAULT_PARTITION_COUNT);
+
+        if (partitionCount <= 0 || Integer.bitCount(partitionCount) != 1)
+            throw new IllegalArgumentException(
+                    HybridHashJoinAnnotations.PARTITION_COUNT + "="
+                            + partitionCount);
+
+        this.maxHeapSolutions = op.getProperty(
+                HybridHashJoinAnnotations.MAX_HEAP_SOLUTIONS,
+                HybridHashJoinAnnotations.DEFAULT_MAX_HEAP_SOLUTIONS);
+
+        if (maxHeapSolutions < 0)
+            throw new IllegalArgumentException(
+                    HybridHashJoinAnnotations.MAX_HEAP_SOLUTIONS + "="
+                            + maxHeapSolutions);
+
+        this.partitions = new IHashJoinUtility[partitionCount];
+
+        this.heapCounts = new long[partitionCount];
+
+    }
+
+    /**
+     * Human readable representation of the {@link IHashJoinUtility} metadata
+     * (but not the solutions themselves).
+     */
+    @Override
+    public String toString() {
+
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append(getClass().getSimpleName());
+
+        sb.append("{open=" + open);
+        sb.append(",joinType=" + joinType);
+        if (askVar != null)
+            sb.append(",askVar=" + askVar);
+        sb.append(",joinVars=" + Arrays.toString(joinVars));
+        if (selectVars != null)
+            sb.append(",selectVars=" + Arrays.toString(selectVars));
+        if (constraints != null)
+            sb.append(",constraints=" + Arrays.toString(constraints));
+        sb.append(",partitions=" + partitions.length);
+        sb.append(",spilled=" + spilledPartitionCount);
+        sb.append(",size=" + getRightSolutionCount());
+        sb.append("}");
+
+        return sb.toString();
+
+    }
+
+    @Override
+    public JoinTypeEnum getJoinType() {
+        return joinType;
+    }
+
+    @Override
+    public IVariable<?> getAskVar() {
+        return askVar;
+    }
+
+    @Override
+    public IVariable<?>[] getJoinVars() {
+        return joinVars;
+    }
+
+    @Override
+    public IVariable<?>[] getSelectVars() {
+        return selectVars;
+    }
+
+    @Override
+    public IConstraint[] getConstraints() {
+        return constraints;
+    }
+
+    /**
+     * The #of hash partitions.
+     */
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * The #of hash partitions which have been spilled onto the native heap.
+     */
+    public int getSpilledPartitionCount() {
+        return spilledPartitionCount;
+    }
+
+    /**
+     * The #of solutions buffered on the Java heap by this hash join.
+     */
+    public long getHeapSolutionCount() {
+
+        long n = 0;
+
+        for (long c : heapCounts)
+            n += c;
+
+        return n;
+
+    }
+
+    @Override
+    public boolean isEmpty() {
+
+        return getRightSolutionCount() == 0;
+
+    }
+
+    @Override
+    public long getRightSolutionCount() {
+
+        long n = 0;
+
+        for (IHashJoinUtility p : partitions) {
+
+            if (p != null)
+                n += p.getRightSolutionCount();
+
+        }
+
+        return n;
+
+    }
+
+    @Override
+    public void release() {
+
+        if (!open.compareAndSet(true/* expect */, false/* update */)) {
+            // Already closed.
+            return;
+        }
+
+        for (int i = 0; i < partitions.length; i++) {
+
+            if (partitions[i] != null) {
+
+                partitions[i].release();
+
+                partitions[i] = null;
+
+            }
+
+            heapSolutions.addAndGet(-heapCounts[i]);
+
+            heapCounts[i] = 0;
+
+        }
+
+    }
+
+    /**
+     * Return the partition for a solution.
+     */
+    private int partition(final IBindingSet bset) {
+
+        int h = 1;
+
+        for (IVariable<?> v : partitionVars) {
+
+            final IConstant<?> c = bset.get(v);
+
+            h = 31 * h + (c == null ? 0 : c.hashCode());
+
+        }
+
+        // Spread the high bits since the partition count is a power of two.
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+
+        return h & (partitions.length - 1);
+
+    }
+
+    /**
+     * Split a chunk of solutions into chunks for each partition.
+     */
+    private IBindingSet[][] split(final IBindingSet[] chunk) {
+
+        final int[] counts = new int[partitions.length];
+
+        final int[] index = new int[chunk.length];
+
+        for (int i = 0; i < chunk.length; i++) {
+
+            counts[index[i] = partition(chunk[i])]++;
+
+        }
+
+        final IBindingSet[][] a = new IBindingSet[partitions.length][];
+
+        for (int p = 0; p < a.length; p++) {
+
+            if (counts[p] > 0)
+                a[p] = new IBindingSet[counts[p]];
+
+            counts[p] = 0;
+
+        }
+
+        for (int i = 0; i < chunk.length; i++) {
+
+            final int p = index[i];
+
+            a[p][counts[p]++] = chunk[i];
+
+        }
+
+        return a;
+
+    }
+
+    private static ICloseableIterator<IBindingSet[]> asIterator(
+            final IBindingSet[] chunk) {
+
+        return new ThickCloseableIterator<IBindingSet[]>(
+                new IBindingSet[][] { chunk });
+
+    }
+
+    /**
+     * Return the partition, creating it on the Java heap if necessary.
+     */
+    private IHashJoinUtility getPartition(final int p) {
+
+        IHashJoinUtility tmp = partitions[p];
+
+        if (tmp == null) {
+
+            partitions[p] = tmp = new JVMHashJoinUtility(op, joinType);
+
+        }
+
+        return tmp;
+
+    }
+
+    private boolean isSpilled(final int p) {
+
+        return partitions[p] instanceof HTreeHashJoinUtility;
+
+    }
+
+    /**
+     * Account for solutions added to a partition and spill partitions while
+     * the heap budget is exceeded.
+     */
+    private void accepted(final int p, final long naccepted) {
+
+        if (!isSpilled(p)) {
+
+            heapCounts[p] += naccepted;
+
+            heapSolutions.addAndGet(naccepted);
+
+        }
+
+        while (heapSolutions.get() > maxHeapSolutions) {
+
+            int largest = -1;
+
+            for (int i = 0; i < partitions.length; i++) {
+
+                if (heapCounts[i] > 0
+                        && (largest == -1 || heapCounts[i] > heapCounts[largest])) {
+
+                    largest = i;
+
+                }
+
+            }
+
+            if (largest == -1) {
+
+                // Nothing left on the Java heap for this hash join.
+                break;
+
+            }
+
+            spill(largest);
+
+        }
+
+    }
+
+    /**
+     * Spill a partition from the Java heap onto the native heap.
+     */
+    private void spill(final int p) {
+
+        final IHashJoinUtility src = partitions[p];
+
+        final HTreeHashJoinUtility dst = new HTreeHashJoinUtility(mmgr, op,
+                joinType);
+
+        final long n = heapCounts[p];
+
+        final IBindingSet[] a = new IBindingSet[(int) n];
+
+        final ICloseableIterator<IBindingSet> itr = src.indexScan();
+
+        try {
+
+            int i = 0;
+
+            while (itr.hasNext()) {
+
+                a[i++] = itr.next();
+
+            }
+
+            if (i != n)
+                throw new AssertionError("Expected " + n + " solutions, not "
+                        + i);
+
+        } finally {
+
+            itr.close();
+
+        }
+
+        dst.acceptSolutions(asIterator(a), new BOpStats());
+
+        src.release();
+
+        partitions[p] = dst;
+
+        heapCounts[p] = 0;
+
+        heapSolutions.addAndGet(-n);
+
+        spilledPartitionCount++;
+
+        if (log.isInfoEnabled())
+            log.info("Spilled partition " + p + " with " + n
+                    + " solutions: " + this);
+
+    }
+
+    @Override
+    public long acceptSolutions(final ICloseableIterator<IBindingSet[]> itr,
+            final BOpStats stats) {
+
+        try {
+
+            long naccepted = 0;
+
+            while (itr.hasNext()) {
+
+                final IBindingSet[] chunk = itr.next();
+
+                if (stats != null) {
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(chunk.length);
+                }
+
+                final IBindingSet[][] a = split(chunk);
+
+                for (int p = 0; p < a.length; p++) {
+
+                    if (a[p] == null)
+                        continue;
+
+                    final long n = getPartition(p).acceptSolutions(
+                            asIterator(a[p]), new BOpStats());
+
+                    accepted(p, n);
+
+                    naccepted += n;
+
+                }
+
+            }
+
+            return naccepted;
+
+        } catch (Throwable t) {
+
+            throw launderThrowable(t);
+
+        } finally {
+
+            itr.close();
+
+        }
+
+    }
+
+    @Override
+    public long filterSolutions(final ICloseableIterator<IBindingSet[]> itr,
+            final BOpStats stats, final IBuffer<IBindingSet> sink) {
+
+        try {
+
+            long naccepted = 0;
+
+            while (itr.hasNext()) {
+
+                final IBindingSet[] chunk = itr.next();
+
+                if (stats != null) {
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(chunk.length);
+                }
+
+                final IBindingSet[][] a = split(chunk);
+
+                for (int p = 0; p < a.length; p++) {
+
+                    if (a[p] == null)
+                        continue;
+
+                    final long n = getPartition(p).filterSolutions(
+                            asIterator(a[p]), new BOpStats(), sink);
+
+                    accepted(p, n);
+
+                    naccepted += n;
+
+                }
+
+            }
+
+            return naccepted;
+
+        } catch (Throwable t) {
+
+            throw launderThrowable(t);
+
+        } finally {
+
+            itr.close();
+
+        }
+
+    }
+
+    @Override
+    public void hashJoin(//
+            final ICloseableIterator<IBindingSet[]> leftItr,//
+            final BOpStats stats,//
+            final IBuffer<IBindingSet> outputBuffer//
+    ) {
+
+        hashJoin2(leftItr, stats, outputBuffer, constraints);
+
+    }
+
+    @Override
+    public void hashJoin2(//
+            final ICloseableIterator<IBindingSet[]> leftItr,//
+            final BOpStats stats,//
+            final IBuffer<IBindingSet> outputBuffer,//
+            final IConstraint[] constraints//
+    ) {
+
+        try {
+
+            while (leftItr.hasNext()) {
+
+                final IBindingSet[] chunk = leftItr.next();
+
+                if (stats != null) {
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(chunk.length);
+                }
+
+                final IBindingSet[][] a = split(chunk);
+
+                for (int p = 0; p < a.length; p++) {
+
+                    if (a[p] == null || partitions[p] == null) {
+
+                        // Nothing in the hash index for that partition.
+                        continue;
+
+                    }
+
+                    partitions[p].hashJoin2(asIterator(a[p]), null/* stats */,
+                            outputBuffer, constraints);
+
+                }
+
+            }
+
+        } catch (Throwable t) {
+
+            throw launderThrowable(t);
+
+        } finally {
+
+            leftItr.close();
+
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The merge join is performed for each partition in turn. All instances
+     * must be {@link HybridHashJoinUtility}s having the same #of partitions. If
+     * a partition has been spilled by any instance, then that partition is
+     * spilled by all instances before the merge join since the partitions
+     * being joined must have the same concrete type.
+     */
+    @Override
+    public void mergeJoin(//
+            final IHashJoinUtility[] others,//
+            final IBuffer<IBindingSet> outputBuffer,//
+            final IConstraint[] constraints,//
+            final boolean optional//
+    ) {
+
+        final HybridHashJoinUtility[] a = new HybridHashJoinUtility[others.length];
+
+        for (int i = 0; i < others.length; i++) {
+
+            if (!(others[i] instanceof HybridHashJoinUtility))
+                throw new IllegalArgumentException();
+
+            a[i] = (HybridHashJoinUtility) others[i];
+
+            if (a[i].partitions.length != partitions.length)
+                throw new IllegalArgumentException();
+
+        }
+
+        for (int p = 0; p < partitions.length; p++) {
+
+            if (partitions[p] == null) {
+
+                // No required solutions in this partition.
+                continue;
+
+            }
+
+            boolean spilled = isSpilled(p);
+
+            for (HybridHashJoinUtility other : a) {
+
+                other.getPartition(p);
+
+                spilled |= other.isSpilled(p);
+
+            }
+
+            if (spilled) {
+
+                /*
+                 * Note: The spilled partitions are checkpointed since the
+                 * source solutions were already saved when they were on the
+                 * Java heap.
+                 */
+
+                if (!isSpilled(p)) {
+                    spill(p);
+                    partitions[p].saveSolutionSet();
+                }
+
+                for (HybridHashJoinUtility other : a) {
+
+                    if (!other.isSpilled(p)) {
+                        other.spill(p);
+                        other.partitions[p].saveSolutionSet();
+                    }
+
+                }
+
+            }
+
+            final IHashJoinUtility[] tmp = new IHashJoinUtility[a.length];
+
+            for (int i = 0; i < a.length; i++) {
+
+                tmp[i] = a[i].partitions[p];
+
+            }
+
+            partitions[p].mergeJoin(tmp, outputBuffer, constraints, optional);
+
+        }
+
+    }
+
+    @Override
+    public void saveSolutionSet() {
+
+        for (IHashJoinUtility p : partitions) {
+
+            if (p != null)
+                p.saveSolutionSet();
+
+        }
+
+    }
+
+    @Override
+    public void outputOptionals(final IBuffer<IBindingSet> outputBuffer) {
+
+        for (IHashJoinUtility p : partitions) {
+
+            if (p != null)
+                p.outputOptionals(outputBuffer);
+
+        }
+
+    }
+
+    @Override
+    public void outputSolutions(final IBuffer<IBindingSet> out,
+            final IDistinctFilter filter) {
+
+        for (IHashJoinUtility p : partitions) {
+
+            if (p != null)
+                p.outputSolutions(out, filter);
+
+        }
+
+    }
+
+    @Override
+    public ICloseableIterator<IBindingSet> indexScan() {
+
+        final MultiSourceSequentialCloseableIterator<IBindingSet> itr = new MultiSourceSequentialCloseableIterator<IBindingSet>(
+                new EmptyCloseableIterator<IBindingSet>());
+
+        for (IHashJoinUtility p : partitions) {
+
+            if (p != null)
+                itr.add(p.indexScan());
+
+        }
+
+        return itr;
+
+    }
+
+    @Override
+    public void outputJoinSet(final IBuffer<IBindingSet> out) {
+
+        for (IHashJoinUtility p : partitions) {
+
+            if (p != null)
+                p.outputJoinSet(out);
+
+        }
+
+    }
+
+    /**
+     * Adds metadata about the {@link IHashJoinUtility} state to the stack
+     * trace.
+     * 
+     * @param t
+     *            The thrown error.
+     * 
+     * @return The laundered exception.
+     */
+    private RuntimeException launderThrowable(final Throwable t) {
+
+        final String msg = "cause=" + t + ", state=" + toString();
+
+        if (!InnerCause.isInnerCause(t, InterruptedException.class)
+                && !InnerCause.isInnerCause(t, BufferClosedException.class)) {
+
+            /*
+             * Some sort of unexpected exception.
+             */
+
+            log.error(msg, t);
+
+        }
+
+        return new RuntimeException(msg, t);
+
+    }
+
+}
@@ -36,13 +36,18 @@ import com.bigdata.bop.IConstant;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.bindingSet.ListBindingSet;
 import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
 import com.bigdata.relation.accesspath.IBuffer;
 
 import cutthecrap.utils.striterators.ICloseableIterator;
 
 /**
  * Utility class for imposing a DISTINCT filter on {@link IBindingSet}. This
- * class is thread-safe. It is based on a {@link ConcurrentHashMap}.
+ * class is thread-safe. Solutions whose as-bound values are all
+ * {@link com.bigdata.rdf.internal.IV}s are tracked by a set of
+ * {@link PackedIVHashTable}s, each guarded by its own monitor. Other solutions
+ * are tracked by a {@link ConcurrentHashMap}.
  * 
  * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
  */
@@ -107,6 +112,22 @@ public class JVMDistinctFilter implements IDistinctFilter {
      */
     private final ConcurrentHashMap<Solution, Solution> map;
 
+    /**
+     * The hash tables for solutions whose as-bound values can be packed. A
+     * solution is assigned to a table by the high bits of the hash code of
+     * its packed key. Each table is guarded by its own monitor.
+     * <p>
+     * Note: The tables are shared state and can not be discarded or cleared
+     * until the last invocation!!!
+     */
+    private final PackedIVHashTable[] tables;
+
+    /**
+     * The #of bits of the hash code used to select a table from
+     * {@link #tables}.
+     */
+    private final int tableBits;
+
     /**
      * 
      * @param vars
@@ -130,6 +151,22 @@ public class JVMDistinctFilter implements IDistinctFilter {
         this.map = new ConcurrentHashMap<Solution, Solution>(initialCapacity,
                 loadFactor, concurrencyLevel);
 
+        int bits = 0;
+
+        while (bits < 6 && (1 << bits) < concurrencyLevel)
+            bits++;
+
+        this.tableBits = bits;
+
+        this.tables = new PackedIVHashTable[1 << bits];
+
+        for (int i = 0; i < tables.length; i++) {
+
+            tables[i] = new PackedIVHashTable(initialCapacity >> bits,
+                    loadFactor);
+
+        }
+
     }
 
     /* (non-Javadoc)
@@ -140,6 +177,16 @@ public class JVMDistinctFilter implements IDistinctFilter {
 
         map.clear();
 
+        for (PackedIVHashTable t : tables) {
+
+            synchronized (t) {
+
+                t.clear();
+
+            }
+
+        }
+
     }
 
     @Override
@@ -174,12 +221,37 @@ public class JVMDistinctFilter implements IDistinctFilter {
 
         }
 
-        final Solution s = new Solution(r);
-
         if (log.isTraceEnabled())
             log.trace("considering: " + Arrays.toString(r));
 
-        final boolean distinct = map.putIfAbsent(s, s) == null;
+        final boolean distinct;
+
+        final IKeyBuilder keyBuilder = new KeyBuilder(vars.length << 4);
+
+        if (PackedIVHashTable.encode(keyBuilder, r)) {
+
+            final byte[] key = keyBuilder.array();
+
+            final int len = keyBuilder.len();
+
+            final int hash = PackedIVHashTable.hash(key, 0, len);
+
+            final PackedIVHashTable t = tables[tableBits == 0 ? 0
+                    : (hash * 0x9E3779B9) >>> (32 - tableBits)];
+
+            synchronized (t) {
+
+                distinct = t.insert(key, len, hash) >= 0;
+
+            }
+
+        } else {
+
+            final Solution s = new Solution(r);
+
+            distinct = map.putIfAbsent(s, s) == null;
+
+        }
 
         if (distinct && log.isDebugEnabled())
             log.debug("accepted: " + Arrays.toString(r));
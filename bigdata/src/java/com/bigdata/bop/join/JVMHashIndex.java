@@ -40,13 +40,23 @@ import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IConstant;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.solutions.JVMDistinctBindingSetsOp;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
 import com.bigdata.counters.CAT;
 
+import cutthecrap.utils.striterators.Striterator;
+
 /**
  * A hash index for {@link IBindingSet}s that supports duplicate solutions and
  * hit counts. The hit counts are used to detect {@link IBindingSet}s that do
  * not join for OPTIONAL, MINUS, and related kinds of "negation" joins.
  * <p>
+ * When the as-bound values of the join variables are all
+ * {@link com.bigdata.rdf.internal.IV}s, the solution is indexed in a
+ * {@link PackedIVHashTable} keyed on the packed IVs and its {@link Bucket} is
+ * kept in an array indexed by the entry in that table. Otherwise a {@link Key}
+ * is formed and the solution is indexed in the backing map.
+ * <p>
  * Note: The {@link JVMDistinctBindingSetsOp} does not use this class right now
  * because it enjoys better concurrency than the {@link JVMHashIndex}. Also see
  * {@link JVMDistinctFilter}, which is the backing implementation for the
@@ -132,10 +142,7 @@ public class JVMHashIndex {
      * @see #keyVars
      * @see #indexSolutionsHavingUnboundJoinVars
      */
-    private Key makeKey(//final IVariable<?>[] keyVars,
-            final IBindingSet bset
-//            final boolean indexSolutionsHavingUnboundJoinVars
-            ) {
+    private IConstant<?>[] getKeyValues(final IBindingSet bset) {
 
         final IConstant<?>[] vals = new IConstant<?>[keyVars.length];
 
@@ -145,35 +152,42 @@ public class JVMHashIndex {
 
             vals[i] = bset.get(v);
 
-        }
+            if (vals[i] == null && !indexSolutionsHavingUnboundJoinVars) {
 
-        int h = ONE;
+                /*
+                 * Drop solution having an unbound join variable.
+                 */
 
-//        for (IVariable<?> v : keyVars) {
-//
-//            final IConstant<?> c = bset.get(v);
+                if (log.isDebugEnabled())
+                    log.debug("Join variable is not bound: var=" + v
+                            + ", solution=" + bset);
 
-        for (int i = 0; i < keyVars.length; i++) {
+                return null;
 
-            final IVariable<?> v = keyVars[i];
-            
-            final IConstant<?> c = vals[i];
-            
-            if (c == null) {
+            }
+
+        }
 
-                if (!indexSolutionsHavingUnboundJoinVars) {
+        return vals;
 
-                    /*
-                     * Drop solution having an unbound join variable.
-                     */
+    }
 
-                    if (log.isDebugEnabled())
-                        log.debug("Join variable is not bound: var=" + v
-                                + ", solution=" + bset);
+    /**
+     * Return the {@link Key} for the as-bound values of the join variables.
+     * This is used when the as-bound values can not be packed.
+     * 
+     * @param vals
+     *            The as-bound values.
+     */
+    private Key makeKey(final IConstant<?>[] vals) {
 
-                    return null;
+        int h = ONE;
 
-                }
+        for (int i = 0; i < vals.length; i++) {
+
+            final IConstant<?> c = vals[i];
+            
+            if (c == null) {
 
                 continue;
                 
@@ -185,12 +199,58 @@ public class JVMHashIndex {
 
         if (log.isTraceEnabled())
             log.trace("hashCode=" + h + ", joinVars="
-                    + Arrays.toString(keyVars) + " : " + bset);
+                    + Arrays.toString(keyVars) + " : " + Arrays.toString(vals));
 
         return new Key(h, vals);
 
     }
 
+    /**
+     * Encode the as-bound values of the join variables into the given key
+     * builder.
+     * 
+     * @param keyBuilder
+     *            The key builder (it is reset first).
+     * @param vals
+     *            The as-bound values.
+     * 
+     * @return <code>true</code> iff the as-bound values could be packed.
+     */
+    static private boolean pack(final IKeyBuilder keyBuilder,
+            final IConstant<?>[] vals) {
+
+        keyBuilder.reset();
+
+        return PackedIVHashTable.encode(keyBuilder, vals);
+
+    }
+
+    /**
+     * Return the hash code for the packed key in the given key builder.
+     */
+    static private int packedHash(final IKeyBuilder keyBuilder) {
+
+        return PackedIVHashTable.hash(keyBuilder.array(), 0,
+                keyBuilder.len());
+
+    }
+
+    /**
+     * Set the {@link Bucket} for a new entry in the {@link #table}.
+     */
+    private void setPackedBucket(final int entry, final Bucket b) {
+
+        if (entry >= packedBuckets.length) {
+
+            packedBuckets = Arrays.copyOf(packedBuckets,
+                    Math.max(entry + 1, packedBuckets.length << 1));
+
+        }
+
+        packedBuckets[entry] = b;
+
+    }
+
     /**
      * Wrapper for the keys in the hash table. This is necessary for the hash
      * table to compare the keys as equal and also provides efficiencies in the
@@ -446,10 +506,36 @@ public class JVMHashIndex {
     private final boolean indexSolutionsHavingUnboundJoinVars;
 
     /**
-     * The backing map - this is NOT thread safe.
+     * The backing map - this is NOT thread safe. This is used for solutions
+     * whose as-bound values for the {@link #keyVars} can not be packed.
      */
     private final Map<Key, Bucket> map;
 
+    /**
+     * The hash table for solutions whose as-bound values for the
+     * {@link #keyVars} can be packed - this is NOT thread safe.
+     */
+    private final PackedIVHashTable table;
+
+    /**
+     * The {@link Bucket}s for the entries in the {@link #table}, indexed by
+     * the entry.
+     */
+    private Bucket[] packedBuckets;
+
+    /**
+     * Used to form the packed keys when adding solutions. This is only used
+     * by the (single) writer. Probes use their own key builder since a saved
+     * index may be probed by concurrent readers.
+     */
+    private final IKeyBuilder keyBuilder;
+
+    /**
+     * The initial capacity of the key builder for a probe (it is grown if
+     * necessary).
+     */
+    private static final int PROBE_KEY_CAPACITY = 64;
+
     /**
      * @param keyVars
      *            The variables that are used to form the keys in the hash index
@@ -499,6 +585,12 @@ public class JVMHashIndex {
 
         this.map = map;
 
+        this.table = new PackedIVHashTable(16/* initialCapacity */, .75f/* loadFactor */);
+
+        this.packedBuckets = new Bucket[16];
+
+        this.keyBuilder = new KeyBuilder();
+
         this.indexSolutionsHavingUnboundJoinVars = indexSolutionsHavingUnboundJoinVars;
 
         this.keyVars = keyVars;
@@ -511,22 +603,45 @@ public class JVMHashIndex {
      * @param bset
      *            The {@link IBindingSet}.
      * 
-     * @return The {@link Key} iff the solution was added to the index and
-     *         <code>null</code> iff the solution was not added (because a
-     *         {@link Key} could not be formed for the solution given the
-     *         specified {@link #keyVars}).
+     * @return <code>true</code> iff the solution was added to the index and
+     *         <code>false</code> iff the solution was not added (because a key
+     *         could not be formed for the solution given the specified
+     *         {@link #keyVars}).
      */
-    public Key add(final IBindingSet bset) {
+    public boolean add(final IBindingSet bset) {
 
-        final Key key = makeKey(bset);
+        final IConstant<?>[] vals = getKeyValues(bset);
 
-        if (key == null) {
+        if (vals == null) {
 
             // Drop solution.
-            return null;
+            return false;
+
+        }
+
+        if (pack(keyBuilder, vals)) {
+
+            final int hash = packedHash(keyBuilder);
+
+            final int entry = table.insert(keyBuilder.array(),
+                    keyBuilder.len(), hash);
+
+            if (entry >= 0) {
+
+                setPackedBucket(entry, new Bucket(hash, bset));
+
+            } else {
+
+                packedBuckets[-entry - 1].add(bset);
+
+            }
+
+            return true;
 
         }
 
+        final Key key = makeKey(vals);
+
         /*
          * TODO There is an opportunity for CONCURRENT hash map for at least the
          * DISTINCT SOLUTIONS filter and perhaps for others as well. However, to
@@ -584,7 +699,7 @@ public class JVMHashIndex {
 
         }
 
-        return key;
+        return true;
 
     }
 
@@ -599,9 +714,31 @@ public class JVMHashIndex {
      */
     public boolean addDistinct(final IBindingSet bset) {
 
-        final Key key = makeKey(bset);
+        final IConstant<?>[] vals = getKeyValues(bset);
+
+        assert vals != null;
+
+        if (pack(keyBuilder, vals)) {
+
+            final int hash = packedHash(keyBuilder);
 
-        assert key != null;
+            final int entry = table.insert(keyBuilder.array(),
+                    keyBuilder.len(), hash);
+
+            if (entry >= 0) {
+
+                // New bucket holding just this solution.
+                setPackedBucket(entry, new Bucket(hash, bset));
+
+                return true;
+
+            }
+
+            return packedBuckets[-entry - 1].addDistinct(bset);
+
+        }
+
+        final Key key = makeKey(vals);
 
         Bucket b = map.get(key);
 
@@ -630,6 +767,8 @@ public class JVMHashIndex {
 
     /**
      * Return the hash {@link Bucket} into which the given solution is mapped.
+     * This may be invoked by concurrent readers once the index is no longer
+     * being written (e.g., a saved solution set).
      * <p>
      * Note: The caller must apply an appropriate join constraint in order to
      * correctly reject solutions that (a) violate the join contract; and (b)
@@ -644,25 +783,57 @@ public class JVMHashIndex {
      */
     public Bucket getBucket(final IBindingSet left) {
 
-        final Key key = makeKey(left);
+        final IConstant<?>[] vals = getKeyValues(left);
 
-        if (key == null) {
+        if (vals == null) {
 
             return null;
 
         }
 
+        /*
+         * Note: A local key builder is used since concurrent readers may
+         * probe a saved index.
+         */
+        final IKeyBuilder probeKeyBuilder = new KeyBuilder(PROBE_KEY_CAPACITY);
+
+        if (pack(probeKeyBuilder, vals)) {
+
+            // Probe the hash table.
+            final int entry = table.get(probeKeyBuilder.array(),
+                    probeKeyBuilder.len(), packedHash(probeKeyBuilder));
+
+            return entry < 0 ? null : packedBuckets[entry];
+
+        }
+
         // Probe the hash map : May return [null]!
-        return map.get(key);
+        return map.get(makeKey(vals));
 
     }
 
     /**
      * Visit all buckets in the hash index.
      */
+    @SuppressWarnings("unchecked")
     public Iterator<Bucket> buckets() {
 
-        return map.values().iterator();
+        if (table.size() == 0) {
+
+            return map.values().iterator();
+
+        }
+
+        final Iterator<Bucket> itr = Arrays.asList(packedBuckets)
+                .subList(0, table.size()).iterator();
+
+        if (map.isEmpty()) {
+
+            return itr;
+
+        }
+
+        return new Striterator(itr).append(map.values().iterator());
 
     }
 
@@ -675,7 +846,7 @@ public class JVMHashIndex {
      */
     public int bucketCount() {
 
-        return map.size();
+        return table.size() + map.size();
 
     }
 
@@ -688,9 +859,11 @@ public class JVMHashIndex {
         final Iterator<Bucket> bucketIterator = map.values()
                 .iterator();
 
-        final Bucket[] a = new Bucket[map.size()];
+        final Bucket[] a = new Bucket[table.size() + map.size()];
+
+        System.arraycopy(packedBuckets, 0, a, 0, table.size());
 
-        int i = 0;
+        int i = table.size();
 
         while (bucketIterator.hasNext()) {
 
@@ -414,7 +414,7 @@ public class JVMHashJoinUtility implements IHashJoinUtility {
 
             for (IBindingSet bset : all) {
 
-                if (index.add(bset) == null) {
+                if (!index.add(bset)) {
 
                     continue;
 
@@ -0,0 +1,229 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.relation.accesspath.IBuffer;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A lossy filter for SPARQL <code>REDUCED</code>. REDUCED permits, but does
+ * not require, the elimination of duplicate solutions. This filter remembers
+ * the most recent solution for each slot of a fixed size, direct mapped
+ * cache. A solution is dropped iff it is equal to the solution in its slot.
+ * Otherwise it replaces that solution and is accepted. Duplicates which are
+ * close together in the solution stream are therefore eliminated while the
+ * heap used by the filter is bounded by the capacity of the cache.
+ * <p>
+ * This class is thread-safe. Concurrent updates of the same slot may cause a
+ * duplicate to be accepted, which is permitted by REDUCED.
+ * 
+ * @see JVMDistinctFilter
+ */
+public class JVMReducedFilter implements IDistinctFilter {
+
+    /**
+     * The variables used to impose the REDUCED constraint.
+     */
+    private final IVariable<?>[] vars;
+
+    /**
+     * The cache. Each slot holds either the packed key of a solution (a
+     * <code>byte[]</code>) or, for solutions which can not be packed, the
+     * {@link java.util.List} of their as-bound values.
+     */
+    private final AtomicReferenceArray<Object> cache;
+
+    /**
+     * The mask used to map a hash code onto a slot.
+     */
+    private final int mask;
+
+    /**
+     * 
+     * @param vars
+     *            The set of variables on which the REDUCED filter will be
+     *            imposed. Only these variables will be present in the
+     *            "accepted" solutions.
+     * @param capacity
+     *            The #of slots in the cache. This is rounded up to a power of
+     *            two.
+     */
+    public JVMReducedFilter(final IVariable<?>[] vars, final int capacity) {
+
+        if (vars == null)
+            throw new IllegalArgumentException();
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+
+        this.vars = vars;
+
+        int n = 1;
+
+        while (n < capacity && n < (1 << 30))
+            n <<= 1;
+
+        this.cache = new AtomicReferenceArray<Object>(n);
+
+        this.mask = n - 1;
+
+    }
+
+    @Override
+    public IVariable<?>[] getProjectedVars() {
+
+        return vars;
+
+    }
+
+    @Override
+    public IBindingSet accept(final IBindingSet bset) {
+
+        final IConstant<?>[] r = new IConstant<?>[vars.length];
+
+        for (int i = 0; i < vars.length; i++) {
+
+            r[i] = bset.get(vars[i]);
+
+        }
+
+        final IKeyBuilder keyBuilder = new KeyBuilder(vars.length << 4);
+
+        final Object key;
+        final int hash;
+
+        if (PackedIVHashTable.encode(keyBuilder, r)) {
+
+            key = keyBuilder.getKey();
+
+            hash = PackedIVHashTable.hash((byte[]) key, 0,
+                    ((byte[]) key).length);
+
+        } else {
+
+            key = Arrays.asList(r);
+
+            hash = key.hashCode() * 0x9E3779B9;
+
+        }
+
+        final int slot = hash & mask;
+
+        final Object old = cache.getAndSet(slot, key);
+
+        if (old != null && equals(old, key)) {
+
+            // Recently seen solution.
+            return null;
+
+        }
+
+        final ListBindingSet tmp = new ListBindingSet();
+
+        for (int i = 0; i < vars.length; i++) {
+
+            if (r[i] != null)
+                tmp.set(vars[i], r[i]);
+
+        }
+
+        return tmp;
+
+    }
+
+    private static boolean equals(final Object a, final Object b) {
+
+        if (a instanceof byte[]) {
+
+            return b instanceof byte[]
+                    && Arrays.equals((byte[]) a, (byte[]) b);
+
+        }
+
+        return a.equals(b);
+
+    }
+
+    @Override
+    public long filterSolutions(final ICloseableIterator<IBindingSet[]> itr,
+            final BOpStats stats, final IBuffer<IBindingSet> sink) {
+
+        long n = 0L;
+
+        while (itr.hasNext()) {
+
+            final IBindingSet[] a = itr.next();
+
+            stats.chunksIn.increment();
+            stats.unitsIn.add(a.length);
+
+            for (IBindingSet bset : a) {
+
+                if ((bset = accept(bset)) == null) {
+
+                    // Drop recently seen solution.
+                    continue;
+
+                }
+
+                sink.add(bset);
+
+                n++;
+
+            }
+
+        }
+
+        return n;
+
+    }
+
+    @Override
+    public void release() {
+
+        for (int i = 0; i < cache.length(); i++) {
+
+            cache.set(i, null);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,1151 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.btree.BytesUtil;
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleCursor;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.btree.keys.NoSuccessorException;
+import com.bigdata.btree.keys.SuccessorUtil;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.SPOKeyOrder;
+import com.bigdata.rdf.spo.SPORelation;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.UnsyncLocalOutputBuffer;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A worst-case optimal multi-way join of triple patterns using the leapfrog
+ * triejoin algorithm. This is useful for cyclic graph patterns, such as
+ * triangles (<code>?a :knows ?b . ?b :knows ?c . ?c :knows ?a</code>), for
+ * which any plan of binary joins can produce intermediate results which are
+ * much larger than the final result.
+ * <p>
+ * The variables are bound one at a time in a fixed {@link Annotations#ORDER}.
+ * Each triple pattern is read from a statement index whose key order visits
+ * the variables of that triple pattern in the same order, so the statement
+ * index may be treated as a trie over those variables. The constants of the
+ * triple pattern are fixed levels of the trie. To bind a variable, the
+ * access paths for all triple patterns which use that variable are
+ * intersected by repeatedly seeking the one which is behind to the current
+ * value of the one which is ahead ({@link ITupleCursor#seek(byte[])}). When
+ * they agree, the value is bound and the next variable is bound in the same
+ * manner. No intermediate solutions are materialized.
+ * <p>
+ * For triples, each of SPO, POS, and OSP visits two of the positions of a
+ * triple pattern in one order and one of the three indices visits them in the
+ * other order, so any variable order can be used for triple patterns having
+ * at most two variables.
+ * <p>
+ * Note: This operator is only defined for triples on a local index. It does
+ * not support OPTIONAL, index local filters, or access path filters.
+ * 
+ * @see #getKeyOrder(IPredicate, IVariable[])
+ * @see #getVariableOrder(IPredicate[])
+ */
+public class LeapfrogTriejoinOp extends PipelineOp {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    private static final transient Logger log = Logger
+            .getLogger(LeapfrogTriejoinOp.class);
+
+    public interface Annotations extends JoinAnnotations {
+
+        /**
+         * The {@link IPredicate}[] to be joined.
+         */
+        String PREDICATES = LeapfrogTriejoinOp.class.getName()
+                + ".predicates";
+
+        /**
+         * The {@link IVariable}[] specifying the order in which the variables
+         * of the {@link #PREDICATES} are bound. Each variable of each predicate
+         * must appear in this array and
+         * {@link LeapfrogTriejoinOp#getKeyOrder(IPredicate, IVariable[])} must
+         * be defined for each predicate.
+         * 
+         * @see LeapfrogTriejoinOp#getVariableOrder(IPredicate[])
+         */
+        String ORDER = LeapfrogTriejoinOp.class.getName() + ".order";
+
+    }
+
+    /**
+     * Deep copy constructor.
+     */
+    public LeapfrogTriejoinOp(final LeapfrogTriejoinOp op) {
+
+        super(op);
+
+    }
+
+    /**
+     * Shallow copy constructor.
+     * 
+     * @param args
+     * @param annotations
+     */
+    public LeapfrogTriejoinOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        final IPredicate<ISPO>[] preds = getPredicates();
+
+        if (preds.length == 0)
+            throw new IllegalArgumentException(Annotations.PREDICATES);
+
+        final IVariable<?>[] order = getOrder();
+
+        for (IPredicate<ISPO> pred : preds) {
+
+            if (getKeyOrder(pred, order) == null)
+                throw new IllegalArgumentException(Annotations.ORDER + "="
+                        + Arrays.toString(order) + ", pred=" + pred);
+
+        }
+
+    }
+
+    public LeapfrogTriejoinOp(final BOp[] args, final NV... annotations) {
+
+        this(args, NV.asMap(annotations));
+
+    }
+
+    /**
+     * @see Annotations#PREDICATES
+     */
+    @SuppressWarnings("unchecked")
+    public IPredicate<ISPO>[] getPredicates() {
+
+        return (IPredicate<ISPO>[]) getRequiredProperty(Annotations.PREDICATES);
+
+    }
+
+    /**
+     * @see Annotations#ORDER
+     */
+    public IVariable<?>[] getOrder() {
+
+        return (IVariable<?>[]) getRequiredProperty(Annotations.ORDER);
+
+    }
+
+    /**
+     * @see Annotations#SELECT
+     */
+    protected IVariable<?>[] getSelect() {
+
+        return getProperty(Annotations.SELECT, null/* defaultValue */);
+
+    }
+
+    /**
+     * @see Annotations#CONSTRAINTS
+     */
+    protected IConstraint[] constraints() {
+
+        return getProperty(Annotations.CONSTRAINTS, null/* defaultValue */);
+
+    }
+
+    /**
+     * Return the triples mode statement index whose key order visits the
+     * variables of the predicate in the given variable order. If there is more
+     * than one such index, the one having the most leading constants is
+     * returned since it reads the smallest key range.
+     * 
+     * @param pred
+     *            The predicate.
+     * @param order
+     *            The variable order.
+     * 
+     * @return The key order -or- <code>null</code> if the predicate is not a
+     *         triple pattern, is OPTIONAL, has an index local filter or an
+     *         access path filter, uses the same variable more than once, uses
+     *         a variable which is not in the variable order, or if no
+     *         statement index is consistent with the variable order.
+     */
+    public static SPOKeyOrder getKeyOrder(final IPredicate<?> pred,
+            final IVariable<?>[] order) {
+
+        if (pred.arity() != 3 || pred.isOptional()
+                || pred.getIndexLocalFilter() != null
+                || pred.getAccessPathFilter() != null)
+            return null;
+
+        // The position of each component in the variable order and -1 if bound.
+        final int[] rank = new int[3];
+
+        for (int i = 0; i < 3; i++) {
+
+            final IVariableOrConstant<?> t = pred.get(i);
+
+            if (t.isConstant()) {
+
+                rank[i] = -1;
+
+                continue;
+
+            }
+
+            rank[i] = indexOf(order, (IVariable<?>) t);
+
+            if (rank[i] == -1)
+                return null;
+
+            for (int j = 0; j < i; j++) {
+
+                if (rank[j] == rank[i]) {
+                    // The same variable appears more than once.
+                    return null;
+                }
+
+            }
+
+        }
+
+        SPOKeyOrder best = null;
+
+        int bestLeading = -1;
+
+        for (SPOKeyOrder keyOrder : new SPOKeyOrder[] { SPOKeyOrder.SPO,
+                SPOKeyOrder.POS, SPOKeyOrder.OSP }) {
+
+            int last = -1;
+
+            int leading = 0;
+
+            boolean ok = true;
+
+            for (int k = 0; k < 3 && ok; k++) {
+
+                final int r = rank[keyOrder.getKeyOrder(k)];
+
+                if (r == -1) {
+
+                    if (leading == k)
+                        leading++;
+
+                } else if (r < last) {
+
+                    ok = false;
+
+                } else {
+
+                    last = r;
+
+                }
+
+            }
+
+            if (ok && leading > bestLeading) {
+
+                best = keyOrder;
+
+                bestLeading = leading;
+
+            }
+
+        }
+
+        return best;
+
+    }
+
+    private static int indexOf(final IVariable<?>[] order,
+            final IVariable<?> var) {
+
+        for (int i = 0; i < order.length; i++) {
+
+            if (order[i].equals(var))
+                return i;
+
+        }
+
+        return -1;
+
+    }
+
+    /**
+     * Return a variable order for the predicates. The first variable is the
+     * one which is used by the most predicates. Each following variable is the
+     * one which shares the most predicates with the variables already in the
+     * order, so the intersections are constrained as early as possible.
+     * 
+     * @param preds
+     *            The predicates.
+     * 
+     * @return The variable order -or- <code>null</code> if
+     *         {@link #getKeyOrder(IPredicate, IVariable[])} is not defined for
+     *         each predicate under that order.
+     */
+    public static IVariable<?>[] getVariableOrder(final IPredicate<?>[] preds) {
+
+        // The predicates using each variable.
+        final Map<IVariable<?>, List<IPredicate<?>>> uses = new LinkedHashMap<IVariable<?>, List<IPredicate<?>>>();
+
+        for (IPredicate<?> pred : preds) {
+
+            for (int i = 0; i < pred.arity(); i++) {
+
+                final IVariableOrConstant<?> t = pred.get(i);
+
+                if (t == null || t.isConstant())
+                    continue;
+
+                List<IPredicate<?>> list = uses.get(t);
+
+                if (list == null)
+                    uses.put((IVariable<?>) t,
+                            list = new LinkedList<IPredicate<?>>());
+
+                if (!list.contains(pred))
+                    list.add(pred);
+
+            }
+
+        }
+
+        final List<IVariable<?>> order = new ArrayList<IVariable<?>>(
+                uses.size());
+
+        while (order.size() < uses.size()) {
+
+            IVariable<?> best = null;
+
+            int bestShared = -1, bestUses = -1;
+
+            for (Map.Entry<IVariable<?>, List<IPredicate<?>>> e : uses
+                    .entrySet()) {
+
+                if (order.contains(e.getKey()))
+                    continue;
+
+                // #of predicates shared with the variables already ordered.
+                int shared = 0;
+
+                for (IPredicate<?> pred : e.getValue()) {
+
+                    for (IVariable<?> v : order) {
+
+                        if (uses.get(v).contains(pred)) {
+                            shared++;
+                            break;
+                        }
+
+                    }
+
+                }
+
+                final int n = e.getValue().size();
+
+                if (shared > bestShared
+                        || (shared == bestShared && n > bestUses)) {
+
+                    best = e.getKey();
+
+                    bestShared = shared;
+
+                    bestUses = n;
+
+                }
+
+            }
+
+            order.add(best);
+
+        }
+
+        final IVariable<?>[] a = order.toArray(new IVariable[order.size()]);
+
+        for (IPredicate<?> pred : preds) {
+
+            if (getKeyOrder(pred, a) == null)
+                return null;
+
+        }
+
+        return a;
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        return new FutureTask<Void>(new ChunkTask(this, context));
+
+    }
+
+    /**
+     * Return the successor of a key prefix and <code>null</code> if there is
+     * no successor.
+     */
+    private static byte[] successor(final byte[] key) {
+
+        try {
+
+            return SuccessorUtil.successor(key.clone());
+
+        } catch (NoSuccessorException ex) {
+
+            return null;
+
+        }
+
+    }
+
+    private static boolean startsWith(final byte[] key, final byte[] prefix) {
+
+        if (key.length < prefix.length)
+            return false;
+
+        for (int i = 0; i < prefix.length; i++) {
+
+            if (key[i] != prefix[i])
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * A triple pattern (as bound by a source solution) viewed as a trie over
+     * its variables. Each open {@link Level} is a scan of the distinct values
+     * of one variable for the values already bound for the variables which
+     * precede it in the key order.
+     */
+    private static class Trie {
+
+        private final IPredicate<ISPO> asBound;
+
+        private final SPOKeyOrder keyOrder;
+
+        private final IIndex ndx;
+
+        /**
+         * The position of the variable in the variable order for each
+         * component of the key and -1 if that component is bound.
+         */
+        private final int[] rank = new int[3];
+
+        /**
+         * The key positions of the variables, in key order.
+         */
+        private final int[] varPositions;
+
+        /**
+         * The open levels.
+         */
+        private final LinkedList<Level> stack = new LinkedList<Level>();
+
+        private final IKeyBuilder keyBuilder = new KeyBuilder();
+
+        Trie(final SPORelation relation, final IPredicate<ISPO> asBound,
+                final IVariable<?>[] order) {
+
+            this.asBound = asBound;
+
+            this.keyOrder = getKeyOrder(asBound, order);
+
+            this.ndx = relation.getIndex(keyOrder);
+
+            int nvars = 0;
+
+            for (int k = 0; k < 3; k++) {
+
+                final IVariableOrConstant<?> t = asBound.get(keyOrder
+                        .getKeyOrder(k));
+
+                rank[k] = t.isConstant() ? -1 : indexOf(order,
+                        (IVariable<?>) t);
+
+                if (rank[k] != -1)
+                    nvars++;
+
+            }
+
+            varPositions = new int[nvars];
+
+            for (int k = 0, j = 0; k < 3; k++) {
+
+                if (rank[k] != -1)
+                    varPositions[j++] = k;
+
+            }
+
+        }
+
+        /**
+         * Return <code>true</code> iff the trie uses the variable.
+         */
+        boolean uses(final int var) {
+
+            for (int k = 0; k < 3; k++) {
+
+                if (rank[k] == var)
+                    return true;
+
+            }
+
+            return false;
+
+        }
+
+        /**
+         * Return the encoded key components before the given key position.
+         */
+        @SuppressWarnings("rawtypes")
+        private byte[] prefix(final int keyPos, final IV[] values) {
+
+            keyBuilder.reset();
+
+            for (int k = 0; k < keyPos; k++) {
+
+                final IV iv = rank[k] == -1 ? (IV) asBound.get(
+                        keyOrder.getKeyOrder(k)).get() : values[rank[k]];
+
+                iv.encode(keyBuilder);
+
+            }
+
+            return keyBuilder.getKey();
+
+        }
+
+        /**
+         * Return <code>true</code> iff there is a statement for the triple
+         * pattern. This is used when the triple pattern has no variables.
+         */
+        boolean exists() {
+
+            final byte[] key = prefix(3, null/* values */);
+
+            return ndx.rangeIterator(key, successor(key), 1/* capacity */,
+                    IRangeQuery.KEYS, null/* filter */).hasNext();
+
+        }
+
+        /**
+         * Open the next level of the trie. The variables which precede it in
+         * the key order must already be bound.
+         */
+        @SuppressWarnings("rawtypes")
+        Level open(final IV[] values) {
+
+            final int keyPos = varPositions[stack.size()];
+
+            final byte[] prefix = prefix(keyPos, values);
+
+            // The constants which immediately follow the variable.
+            keyBuilder.reset();
+
+            for (int k = keyPos + 1; k < 3 && rank[k] == -1; k++) {
+
+                ((IV) asBound.get(keyOrder.getKeyOrder(k)).get())
+                        .encode(keyBuilder);
+
+            }
+
+            final byte[] suffix = keyBuilder.getKey();
+
+            final Level level = new Level(ndx, prefix, suffix,
+                    keyOrder.getKeyOrder(keyPos));
+
+            stack.addLast(level);
+
+            return level;
+
+        }
+
+        /**
+         * Close the last opened level.
+         */
+        void close() {
+
+            stack.removeLast();
+
+        }
+
+    } // Trie
+
+    /**
+     * A scan of the distinct values of one variable in a key range. The scan
+     * is always positioned on the first tuple for its current value.
+     */
+    private static class Level {
+
+        /**
+         * The encoded key components before the variable.
+         */
+        private final byte[] prefix;
+
+        /**
+         * The encoded constants immediately following the variable (may be
+         * empty).
+         */
+        private final byte[] suffix;
+
+        /**
+         * The index of the variable in the {@link ISPO}.
+         */
+        private final int index;
+
+        /**
+         * The exclusive upper bound for the scan and <code>null</code> if the
+         * scan runs to the end of the index.
+         */
+        private final byte[] toKey;
+
+        private final ITupleIterator<ISPO> itr;
+
+        /**
+         * The same iterator if it supports {@link ITupleCursor#seek(byte[])}
+         * and otherwise <code>null</code>.
+         */
+        private final ITupleCursor<ISPO> cursor;
+
+        private final IKeyBuilder keyBuilder = new KeyBuilder();
+
+        /**
+         * The current value and <code>null</code> if the scan is exhausted.
+         */
+        @SuppressWarnings("rawtypes")
+        private IV value;
+
+        /**
+         * The encoded {@link #value}.
+         */
+        private byte[] valueKey;
+
+        /**
+         * The #of seeks.
+         */
+        private long nseeks;
+
+        @SuppressWarnings("unchecked")
+        Level(final IIndex ndx, final byte[] prefix, final byte[] suffix,
+                final int index) {
+
+            this.prefix = prefix;
+
+            this.suffix = suffix;
+
+            this.index = index;
+
+            this.toKey = prefix.length == 0 ? null : successor(prefix);
+
+            this.itr = ndx.rangeIterator(prefix.length == 0 ? null : prefix,
+                    toKey, 0/* capacity */, IRangeQuery.KEYS
+                            | IRangeQuery.VALS | IRangeQuery.CURSOR, null/* filter */);
+
+            this.cursor = itr instanceof ITupleCursor ? (ITupleCursor<ISPO>) itr
+                    : null;
+
+            land(itr.hasNext() ? itr.next() : null);
+
+        }
+
+        boolean atEnd() {
+
+            return value == null;
+
+        }
+
+        @SuppressWarnings("rawtypes")
+        private byte[] key(final IV v, final boolean withSuffix) {
+
+            keyBuilder.reset();
+
+            keyBuilder.append(prefix);
+
+            v.encode(keyBuilder);
+
+            if (withSuffix)
+                keyBuilder.append(suffix);
+
+            return keyBuilder.getKey();
+
+        }
+
+        /**
+         * Position the scan on the first tuple GTE the key.
+         */
+        private ITuple<ISPO> seek(final byte[] key) {
+
+            if (key == null
+                    || (toKey != null && BytesUtil.compareBytes(key, toKey) >= 0)) {
+
+                // Exhausted.
+                return null;
+
+            }
+
+            nseeks++;
+
+            if (cursor != null) {
+
+                final ITuple<ISPO> t = cursor.seek(key);
+
+                if (t != null)
+                    return t;
+
+                return cursor.hasNext() ? cursor.next() : null;
+
+            }
+
+            // Scan forward.
+            while (itr.hasNext()) {
+
+                final ITuple<ISPO> t = itr.next();
+
+                if (BytesUtil.compareBytes(t.getKey(), key) >= 0)
+                    return t;
+
+            }
+
+            return null;
+
+        }
+
+        /**
+         * Advance from the given tuple to the first tuple whose value is
+         * followed by the constants in {@link #suffix}.
+         */
+        @SuppressWarnings("rawtypes")
+        private void land(ITuple<ISPO> t) {
+
+            while (t != null) {
+
+                final IV v = t.getObject().get(index);
+
+                final byte[] key = key(v, true/* withSuffix */);
+
+                if (startsWith(t.getKey(), key)) {
+
+                    value = v;
+                    valueKey = key(v, false/* withSuffix */);
+                    return;
+
+                }
+
+                if (BytesUtil.compareBytes(t.getKey(), key) < 0) {
+
+                    // Skip ahead to the constants for this value.
+                    t = seek(key);
+
+                } else {
+
+                    // Skip past this value.
+                    t = seek(successor(key(v, false/* withSuffix */)));
+
+                }
+
+            }
+
+            value = null;
+            valueKey = null;
+
+        }
+
+        /**
+         * Advance to the next distinct value.
+         */
+        void next() {
+
+            land(seek(successor(valueKey)));
+
+        }
+
+        /**
+         * Advance to the first value GTE the given value.
+         */
+        @SuppressWarnings("rawtypes")
+        void seek(final IV v) {
+
+            land(seek(key(v, true/* withSuffix */)));
+
+        }
+
+    } // Level
+
+    /**
+     * Orders the open levels for a variable by their current value. Since the
+     * levels for a variable share the same key prefix structure up to the
+     * variable, comparing the keys up to and including the variable compares
+     * the values.
+     */
+    private static final Comparator<Level> levelComparator = new Comparator<Level>() {
+
+        @Override
+        public int compare(final Level a, final Level b) {
+
+            return compareValues(a, b);
+
+        }
+
+    };
+
+    /**
+     * Compare the current values of two levels.
+     */
+    private static int compareValues(final Level a, final Level b) {
+
+        return BytesUtil.compareBytesWithLenAndOffset(a.prefix.length,
+                a.valueKey.length - a.prefix.length, a.valueKey,
+                b.prefix.length, b.valueKey.length - b.prefix.length,
+                b.valueKey);
+
+    }
+
+    /**
+     * Run the leapfrog triejoin for each source solution.
+     */
+    static private class ChunkTask implements Callable<Void> {
+
+        private final LeapfrogTriejoinOp op;
+
+        private final BOpContext<IBindingSet> context;
+
+        private final IPredicate<ISPO>[] preds;
+
+        private final IVariable<?>[] order;
+
+        private final SPORelation relation;
+
+        private final IVariable<?>[] selectVars;
+
+        private final IConstraint[] constraints;
+
+        /**
+         * The #of seeks for the current source solution.
+         */
+        private long nseeks;
+
+        ChunkTask(final LeapfrogTriejoinOp op,
+                final BOpContext<IBindingSet> context) {
+
+            this.op = op;
+
+            this.context = context;
+
+            this.preds = op.getPredicates();
+
+            this.order = op.getOrder();
+
+            this.relation = (SPORelation) context.getRelation(preds[0]);
+
+            this.selectVars = op.getSelect();
+
+            this.constraints = op.constraints();
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final BOpStats stats = context.getStats();
+
+            final ICloseableIterator<IBindingSet[]> source = context
+                    .getSource();
+
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            final UnsyncLocalOutputBuffer<IBindingSet> unsyncBuffer = new UnsyncLocalOutputBuffer<IBindingSet>(
+                    op.getChunkCapacity(), sink);
+
+            try {
+
+                while (source.hasNext()) {
+
+                    final IBindingSet[] chunk = source.next();
+
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(chunk.length);
+
+                    for (IBindingSet bindingSet : chunk) {
+
+                        join(bindingSet, unsyncBuffer);
+
+                    }
+
+                }
+
+                // flush the unsync buffer.
+                unsyncBuffer.flush();
+
+                // flush the sink.
+                sink.flush();
+
+                // Done.
+                return null;
+
+            } finally {
+
+                sink.close();
+
+                source.close();
+
+            }
+
+        }
+
+        /**
+         * Join the predicates as bound by the source solution.
+         */
+        @SuppressWarnings("rawtypes")
+        private void join(final IBindingSet bindingSet,
+                final UnsyncLocalOutputBuffer<IBindingSet> out) {
+
+            final List<Trie> tries = new ArrayList<Trie>(preds.length);
+
+            for (IPredicate<ISPO> pred : preds) {
+
+                final IPredicate<ISPO> asBound = pred.asBound(bindingSet);
+
+                if (asBound == null) {
+                    // Inconsistent with the source solution.
+                    return;
+                }
+
+                final Trie trie = new Trie(relation, asBound, order);
+
+                if (trie.varPositions.length == 0) {
+
+                    // Fully bound by the source solution.
+                    if (!trie.exists())
+                        return;
+
+                    continue;
+
+                }
+
+                tries.add(trie);
+
+            }
+
+            // The variables which are not bound by the source solution.
+            final List<Integer> unbound = new ArrayList<Integer>(order.length);
+
+            // The tries using each of those variables.
+            final List<Trie[]> participants = new ArrayList<Trie[]>(
+                    order.length);
+
+            for (int i = 0; i < order.length; i++) {
+
+                final List<Trie> list = new LinkedList<Trie>();
+
+                for (Trie trie : tries) {
+
+                    if (trie.uses(i))
+                        list.add(trie);
+
+                }
+
+                if (list.isEmpty())
+                    continue;
+
+                unbound.add(i);
+
+                participants.add(list.toArray(new Trie[list.size()]));
+
+            }
+
+            final IV[] values = new IV[order.length];
+
+            nseeks = 0L;
+
+            final long nsolutions = search(0/* depth */, unbound,
+                    participants, values, bindingSet, out);
+
+            if (log.isDebugEnabled()) {
+
+                log.debug("order=" + Arrays.toString(order) + ", nsolutions="
+                        + nsolutions + ", nseeks=" + nseeks);
+
+            }
+
+        }
+
+        /**
+         * Bind the variable at the given depth using a leapfrog join of the
+         * tries which use that variable and recursively bind the remaining
+         * variables.
+         * 
+         * @return The #of solutions which were produced.
+         */
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        private long search(final int depth, final List<Integer> unbound,
+                final List<Trie[]> participants, final IV[] values,
+                final IBindingSet bindingSet,
+                final UnsyncLocalOutputBuffer<IBindingSet> out) {
+
+            if (depth == unbound.size()) {
+
+                IBindingSet bset = bindingSet.clone();
+
+                for (int var : unbound) {
+
+                    bset.set(order[var], new Constant<IV>(values[var]));
+
+                }
+
+                if (constraints != null
+                        && !BOpUtility.isConsistent(constraints, bset))
+                    return 0L;
+
+                if (selectVars != null)
+                    bset = bset.copy(selectVars);
+
+                out.add(bset);
+
+                return 1L;
+
+            }
+
+            final int var = unbound.get(depth);
+
+            final Trie[] tries = participants.get(depth);
+
+            final int k = tries.length;
+
+            final Level[] levels = new Level[k];
+
+            long nsolutions = 0L;
+
+            int nopened = 0;
+
+            try {
+
+                for (int i = 0; i < k; i++) {
+
+                    levels[i] = tries[i].open(values);
+
+                    nopened++;
+
+                    if (levels[i].atEnd())
+                        return 0L;
+
+                }
+
+                Arrays.sort(levels, levelComparator);
+
+                int p = 0;
+
+                Level max = levels[k - 1];
+
+                while (true) {
+
+                    final Level l = levels[p];
+
+                    if (compareValues(l, max) == 0) {
+
+                        // All levels agree on the value.
+                        values[var] = l.value;
+
+                        nsolutions += search(depth + 1, unbound,
+                                participants, values, bindingSet, out);
+
+                        l.next();
+
+                    } else {
+
+                        l.seek(max.value);
+
+                    }
+
+                    if (l.atEnd())
+                        break;
+
+                    max = l;
+
+                    p = (p + 1) % k;
+
+                }
+
+                return nsolutions;
+
+            } finally {
+
+                values[var] = null;
+
+                for (int i = 0; i < nopened; i++) {
+
+                    nseeks += levels[i].nseeks;
+
+                    tries[i].close();
+
+                }
+
+            }
+
+        }
+
+    } // ChunkTask
+
+}
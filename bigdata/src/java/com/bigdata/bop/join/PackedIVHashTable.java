@@ -0,0 +1,487 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.bop.join;
+
+import java.util.Arrays;
+
+import com.bigdata.bop.IConstant;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.IVUtility;
+
+/**
+ * An open addressing hash table whose keys are the packed {@link IV}s for the
+ * as-bound values of some ordered set of variables. The keys are stored in a
+ * single byte[] and each entry is identified by its index in insertion order.
+ * Callers keep any payload for an entry in an array indexed by that entry
+ * index. This avoids a wrapper object, a hash map entry and the repeated
+ * computation of {@link IV#hashCode()} for each key, which is most of the
+ * per-solution overhead of a {@link java.util.HashMap} keyed on the as-bound
+ * {@link IConstant}s.
+ * <p>
+ * Keys are formed by {@link #encode(IKeyBuilder, IConstant[])}. Only real
+ * {@link IV}s can be encoded. Solutions having any other kind of value (and
+ * mock {@link IV}s, which do not have a unique encoding) must be handled by
+ * the caller using an object based hash map.
+ * <p>
+ * Note: This class is NOT thread-safe.
+ * 
+ * @see JVMHashIndex
+ * @see JVMDistinctFilter
+ */
+public class PackedIVHashTable {
+
+    /**
+     * The maximum #of slots in the hash table.
+     */
+    private static final int MAX_SLOTS = 1 << 30;
+
+    /**
+     * The fraction of the slots which may be used before the table is grown.
+     */
+    private final float loadFactor;
+
+    /**
+     * The slots. Each slot is either ZERO (empty) or the index of an entry
+     * plus ONE (1).
+     */
+    private int[] slots;
+
+    /**
+     * The #of entries at which the slots will be doubled.
+     */
+    private int threshold;
+
+    /**
+     * The packed keys for all entries.
+     */
+    private byte[] keys;
+
+    /**
+     * The #of bytes used in {@link #keys}.
+     */
+    private int keysLen;
+
+    /**
+     * The offset of the key for each entry in {@link #keys}.
+     */
+    private int[] offsets;
+
+    /**
+     * The hash code of the key for each entry.
+     */
+    private int[] hashes;
+
+    /**
+     * The #of entries.
+     */
+    private int size;
+
+    /**
+     * @param initialCapacity
+     *            The expected #of entries.
+     * @param loadFactor
+     *            The fraction of the slots which may be used before the table
+     *            is grown.
+     */
+    public PackedIVHashTable(final int initialCapacity, final float loadFactor) {
+
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException();
+
+        if (loadFactor <= 0f || loadFactor >= 1f)
+            throw new IllegalArgumentException();
+
+        this.loadFactor = loadFactor;
+
+        int n = 16;
+
+        while (n < MAX_SLOTS && n * loadFactor < initialCapacity)
+            n <<= 1;
+
+        this.slots = new int[n];
+
+        this.threshold = (int) (n * loadFactor);
+
+        final int capacity = Math.max(threshold, 16);
+
+        this.offsets = new int[capacity + 1];
+
+        this.hashes = new int[capacity];
+
+        this.keys = new byte[capacity * 10];
+
+    }
+
+    /**
+     * Encode the as-bound values. Each value is encoded as an {@link IV}. An
+     * unbound value (a <code>null</code>) is encoded as the null {@link IV}.
+     * 
+     * @param keyBuilder
+     *            The key builder. The key is appended to any data already in
+     *            the key builder.
+     * @param vals
+     *            The as-bound values.
+     * 
+     * @return <code>true</code> iff all values could be encoded. When
+     *         <code>false</code> is returned, the contents of the key builder
+     *         are undefined.
+     */
+    public static boolean encode(final IKeyBuilder keyBuilder,
+            final IConstant<?>[] vals) {
+
+        for (int i = 0; i < vals.length; i++) {
+
+            if (!encode(keyBuilder, vals[i] == null ? null : vals[i].get()))
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Encode a single value.
+     * 
+     * @param keyBuilder
+     *            The key builder.
+     * @param val
+     *            The value (may be <code>null</code>).
+     * 
+     * @return <code>true</code> iff the value could be encoded.
+     */
+    @SuppressWarnings("rawtypes")
+    public static boolean encode(final IKeyBuilder keyBuilder,
+            final Object val) {
+
+        if (val == null) {
+
+            IVUtility.encode(keyBuilder, null);
+
+            return true;
+
+        }
+
+        if (!(val instanceof IV))
+            return false;
+
+        final IV iv = (IV) val;
+
+        if (iv.isNullIV()) {
+
+            // Mock IVs all share the same encoding.
+            return false;
+
+        }
+
+        IVUtility.encode(keyBuilder, iv);
+
+        return true;
+
+    }
+
+    /**
+     * Return the hash code for a packed key.
+     * 
+     * @param a
+     *            The key.
+     * @param off
+     *            The offset of the first byte of the key.
+     * @param len
+     *            The length of the key.
+     */
+    public static int hash(final byte[] a, final int off, final int len) {
+
+        // FNV-1a
+        int h = 0x811c9dc5;
+
+        for (int i = off; i < off + len; i++) {
+
+            h ^= a[i];
+
+            h *= 0x01000193;
+
+        }
+
+        // Spread the bits so the low bits may be used to index the slots.
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+
+        return h;
+
+    }
+
+    /**
+     * The #of entries.
+     */
+    public int size() {
+
+        return size;
+
+    }
+
+    /**
+     * The #of bytes used by the packed keys.
+     */
+    public long getKeyBytes() {
+
+        return keysLen;
+
+    }
+
+    /**
+     * Return the hash code of the key for an entry.
+     * 
+     * @param entry
+     *            The index of the entry.
+     */
+    public int hash(final int entry) {
+
+        if (entry < 0 || entry >= size)
+            throw new IndexOutOfBoundsException();
+
+        return hashes[entry];
+
+    }
+
+    /**
+     * Return a copy of the key for an entry.
+     * 
+     * @param entry
+     *            The index of the entry.
+     */
+    public byte[] getKey(final int entry) {
+
+        if (entry < 0 || entry >= size)
+            throw new IndexOutOfBoundsException();
+
+        return Arrays.copyOfRange(keys, offsets[entry], offsets[entry + 1]);
+
+    }
+
+    /**
+     * Return the entry for the key.
+     * 
+     * @param key
+     *            The packed key.
+     * @param len
+     *            The length of the key.
+     * @param hash
+     *            The hash code of the key as computed by
+     *            {@link #hash(byte[], int, int)}.
+     * 
+     * @return The index of the entry -or- <code>-1</code> if the key is not
+     *         in the table.
+     */
+    public int get(final byte[] key, final int len, final int hash) {
+
+        final int mask = slots.length - 1;
+
+        int i = hash & mask;
+
+        while (true) {
+
+            final int s = slots[i];
+
+            if (s == 0)
+                return -1;
+
+            if (matches(s - 1, key, len, hash))
+                return s - 1;
+
+            i = (i + 1) & mask;
+
+        }
+
+    }
+
+    /**
+     * Insert the key unless it is already in the table.
+     * 
+     * @param key
+     *            The packed key.
+     * @param len
+     *            The length of the key.
+     * @param hash
+     *            The hash code of the key as computed by
+     *            {@link #hash(byte[], int, int)}.
+     * 
+     * @return The index of the new entry -or- <code>(-(entry) - 1)</code>
+     *         if the key was already in the table, where <i>entry</i> is the
+     *         index of the existing entry.
+     */
+    public int insert(final byte[] key, final int len, final int hash) {
+
+        final int mask = slots.length - 1;
+
+        int i = hash & mask;
+
+        while (true) {
+
+            final int s = slots[i];
+
+            if (s == 0)
+                break;
+
+            if (matches(s - 1, key, len, hash))
+                return -(s - 1) - 1;
+
+            i = (i + 1) & mask;
+
+        }
+
+        if (size >= slots.length - 1)
+            throw new IllegalStateException("Hash table is full");
+
+        final int entry = size;
+
+        ensureEntryCapacity(len);
+
+        System.arraycopy(key, 0, keys, keysLen, len);
+
+        offsets[entry] = keysLen;
+
+        keysLen += len;
+
+        offsets[entry + 1] = keysLen;
+
+        hashes[entry] = hash;
+
+        slots[i] = entry + 1;
+
+        size++;
+
+        if (size > threshold)
+            rehash();
+
+        return entry;
+
+    }
+
+    /**
+     * Discard all entries.
+     */
+    public void clear() {
+
+        Arrays.fill(slots, 0);
+
+        size = 0;
+
+        keysLen = 0;
+
+    }
+
+    private boolean matches(final int entry, final byte[] key, final int len,
+            final int hash) {
+
+        if (hashes[entry] != hash)
+            return false;
+
+        final int off = offsets[entry];
+
+        if (offsets[entry + 1] - off != len)
+            return false;
+
+        for (int j = 0; j < len; j++) {
+
+            if (keys[off + j] != key[j])
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    private void ensureEntryCapacity(final int len) {
+
+        if (size + 1 >= offsets.length) {
+
+            final int n = Math.max(16, (int) Math.min(
+                    (long) offsets.length << 1, Integer.MAX_VALUE - 8));
+
+            offsets = Arrays.copyOf(offsets, n);
+
+            hashes = Arrays.copyOf(hashes, n);
+
+        }
+
+        if (keysLen + len > keys.length) {
+
+            final long n = Math.max((long) keys.length << 1,
+                    (long) keysLen + len);
+
+            if (n > Integer.MAX_VALUE - 8)
+                throw new IllegalStateException("Keys exceed 2G");
+
+            keys = Arrays.copyOf(keys, (int) n);
+
+        }
+
+    }
+
+    /**
+     * Double the #of slots. The entries do not move.
+     */
+    private void rehash() {
+
+        if (slots.length >= MAX_SLOTS) {
+
+            // Can not grow. The table will fill up to this many entries.
+            threshold = Integer.MAX_VALUE;
+
+            return;
+
+        }
+
+        final int[] a = new int[slots.length << 1];
+
+        final int mask = a.length - 1;
+
+        for (int entry = 0; entry < size; entry++) {
+
+            int i = hashes[entry] & mask;
+
+            while (a[i] != 0)
+                i = (i + 1) & mask;
+
+            a[i] = entry + 1;
+
+        }
+
+        slots = a;
+
+        threshold = (int) (a.length * loadFactor);
+
+    }
+
+}
@@ -27,6 +27,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.bop.join;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -55,9 +56,15 @@ import com.bigdata.bop.IShardwisePipelineOp;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.NV;
 import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.bindingSet.ListBindingSet;
 import com.bigdata.bop.engine.AbstractRunningQuery;
 import com.bigdata.bop.engine.QueryTimeoutException;
+import com.bigdata.btree.AbstractBTree;
 import com.bigdata.btree.BytesUtil;
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.IMultiKeyProbeVisitor;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITuple;
 import com.bigdata.btree.keys.IKeyBuilder;
 import com.bigdata.concurrent.FutureTaskMon;
 import com.bigdata.relation.IRelation;
@@ -221,6 +228,44 @@ public class PipelineJoin<E> extends PipelineOp implements
 
         boolean DEFAULT_REORDER_ACCESS_PATHS = true;
 
+        /**
+         * When <code>true</code>, the access paths generated for a chunk of
+         * source solutions which read on the same local {@link AbstractBTree}
+         * are evaluated by a single batched probe of that index rather than one
+         * range iteration per access path (default
+         * {@value #DEFAULT_MULTI_KEY_PROBE}). The batched probe reuses the leaf
+         * cursor from one key range to the next, so most access paths are
+         * located without a descent from the root of the index.
+         * <p>
+         * Note: This is only done when {@link #REORDER_ACCESS_PATHS} is
+         * <code>true</code> and there are at least
+         * {@link #MULTI_KEY_PROBE_MIN_TASKS} such access paths. Access paths
+         * having a filter (including the filter for a variable which appears
+         * more than once in the predicate), star joins, cutoff joins, and
+         * access paths on a view of more than one index are always evaluated
+         * one at a time.
+         * 
+         * @see AbstractBTree#multiKeyProbe(byte[][], byte[][], int,
+         *      IMultiKeyProbeVisitor)
+         * @see PipelineJoinStats#descentsSaved
+         */
+        String MULTI_KEY_PROBE = (PipelineJoin.class.getName() + ".multiKeyProbe")
+                .intern();
+
+        boolean DEFAULT_MULTI_KEY_PROBE = true;
+
+        /**
+         * The minimum #of access paths for a chunk of source solutions before
+         * they will be evaluated using a batched probe (default
+         * {@value #DEFAULT_MULTI_KEY_PROBE_MIN_TASKS}).
+         * 
+         * @see #MULTI_KEY_PROBE
+         */
+        String MULTI_KEY_PROBE_MIN_TASKS = (PipelineJoin.class.getName() + ".multiKeyProbeMinTasks")
+                .intern();
+
+        int DEFAULT_MULTI_KEY_PROBE_MIN_TASKS = 50;
+
 	}
 
 	/**
@@ -441,6 +486,21 @@ public class PipelineJoin<E> extends PipelineOp implements
          */
 		final private boolean reorderAccessPaths;
 
+        /**
+         * When <code>true</code>, access paths may be evaluated using a batched
+         * probe of the index.
+         * 
+         * @see Annotations#MULTI_KEY_PROBE
+         */
+		final private boolean multiKeyProbe;
+
+        /**
+         * The minimum #of access paths for a batched probe.
+         * 
+         * @see Annotations#MULTI_KEY_PROBE_MIN_TASKS
+         */
+		final private int multiKeyProbeMinTasks;
+
 		/**
 		 * Used to enforce the {@link Annotations#LIMIT} iff one is specified.
 		 */
@@ -545,6 +605,15 @@ public class PipelineJoin<E> extends PipelineOp implements
             this.reorderAccessPaths = joinOp.getProperty(
                     Annotations.REORDER_ACCESS_PATHS,
                     Annotations.DEFAULT_REORDER_ACCESS_PATHS);
+            this.multiKeyProbe = reorderAccessPaths
+                    && joinOp.getProperty(Annotations.MULTI_KEY_PROBE,
+                            Annotations.DEFAULT_MULTI_KEY_PROBE)
+                    && predicate.getProperty(
+                            IPredicate.Annotations.CUTOFF_LIMIT,
+                            IPredicate.Annotations.DEFAULT_CUTOFF_LIMIT) == Long.MAX_VALUE;
+            this.multiKeyProbeMinTasks = joinOp.getProperty(
+                    Annotations.MULTI_KEY_PROBE_MIN_TASKS,
+                    Annotations.DEFAULT_MULTI_KEY_PROBE_MIN_TASKS);
 
 			this.threadLocalBufferFactory = new TLBFactory(sink);
 
@@ -962,7 +1031,7 @@ public class PipelineJoin<E> extends PipelineOp implements
 					/*
 					 * Generate (and optionally coalesce) the access path tasks.
 					 */
-					final AccessPathTask[] tasks = generateAccessPaths(chunk);
+					AccessPathTask[] tasks = generateAccessPaths(chunk);
 
                     /*
                      * Reorder those tasks for better index read performance.
@@ -970,6 +1039,13 @@ public class PipelineJoin<E> extends PipelineOp implements
                     if (reorderAccessPaths)
                         reorderTasks(tasks);
 
+                    /*
+                     * Evaluate the access paths which read on the same local
+                     * index using a batched probe of that index.
+                     */
+                    if (multiKeyProbe && tasks.length >= multiKeyProbeMinTasks)
+                        tasks = executeMultiKeyProbe(tasks);
+
 					/*
 					 * Execute the tasks (either in the caller's thread or on
 					 * the supplied service).
@@ -1412,6 +1488,236 @@ public class PipelineJoin<E> extends PipelineOp implements
 
 			}
 
+			/**
+			 * Evaluate the access paths which read on the same local
+			 * {@link AbstractBTree} using a single batched probe of that index.
+			 * The tasks are visited in their given order, which is the
+			 * <i>fromKey</i> order established by {@link #reorderTasks(AccessPathTask[])}.
+			 * 
+			 * @param tasks
+			 *            The tasks.
+			 * 
+			 * @return The tasks which were not evaluated by the batched probe and
+			 *         which must still be executed.
+			 * 
+			 * @see Annotations#MULTI_KEY_PROBE
+			 */
+			protected AccessPathTask[] executeMultiKeyProbe(
+					final AccessPathTask[] tasks) throws Exception {
+
+				AbstractBTree ndx = null;
+
+				final List<AccessPathTask> batch = new ArrayList<AccessPathTask>(
+						tasks.length);
+
+				final List<AccessPathTask> remaining = new LinkedList<AccessPathTask>();
+
+				for (AccessPathTask task : tasks) {
+
+					final AbstractBTree t = task.getMultiKeyProbeIndex();
+
+					if (t != null && (ndx == null || ndx == t)) {
+
+						ndx = t;
+
+						batch.add(task);
+
+					} else {
+
+						remaining.add(task);
+
+					}
+
+				}
+
+				final int n = batch.size();
+
+				if (n < multiKeyProbeMinTasks) {
+
+					// Not enough access paths to be worth while.
+					return tasks;
+
+				}
+
+				halted();
+
+				final byte[][] fromKeys = new byte[n][];
+
+				final byte[][] toKeys = new byte[n][];
+
+				for (int i = 0; i < n; i++) {
+
+					final AccessPathTask task = batch.get(i);
+
+					final AccessPath<E> accessPath = (AccessPath<E>) task.accessPath;
+
+					fromKeys[i] = accessPath.getFromKey();
+
+					toKeys[i] = accessPath.getToKey();
+
+					stats.accessPathCount.increment();
+
+					// #of input solutions consumed (pre-increment).
+					stats.inputSolutions.add(task.bindingSets.length);
+
+				}
+
+				// Each thread gets its own buffer.
+				final AbstractUnsynchronizedArrayBuffer<IBindingSet> unsyncBuffer = threadLocalBufferFactory
+						.get();
+
+				final MultiKeyProbeVisitor visitor = new MultiKeyProbeVisitor(
+						batch, unsyncBuffer,
+						((AccessPath<E>) batch.get(0).accessPath)
+								.getChunkCapacity());
+
+				final long ndescents = ndx.multiKeyProbe(fromKeys, toKeys,
+						IRangeQuery.DEFAULT, visitor);
+
+				// join any buffered elements for the last access path.
+				visitor.flush();
+
+				if (optional) {
+
+					for (AccessPathTask task : batch) {
+
+						task.outputOptionals(unsyncBuffer);
+
+					}
+
+				}
+
+				stats.multiKeyProbeCount.increment();
+
+				stats.descentsSaved.add(n - ndescents);
+
+				if (log.isDebugEnabled())
+					log.debug("Batched probe: #accessPaths=" + n
+							+ ", #descents=" + ndescents + ", #remaining="
+							+ remaining.size());
+
+				return remaining.toArray(new JoinTask.AccessPathTask[remaining
+						.size()]);
+
+			}
+
+		}
+
+		/**
+		 * Collects the elements visited by a batched probe into chunks and joins
+		 * each chunk with the source solutions of the {@link AccessPathTask} for
+		 * the key range in which those elements were found.
+		 * 
+		 * @see BindingSetConsumerTask#executeMultiKeyProbe(AccessPathTask[])
+		 */
+		private class MultiKeyProbeVisitor implements IMultiKeyProbeVisitor {
+
+			/**
+			 * The tasks, correlated with the key ranges of the probe.
+			 */
+			private final List<AccessPathTask> tasks;
+
+			/**
+			 * The buffer on which the joined solutions are written.
+			 */
+			private final AbstractUnsynchronizedArrayBuffer<IBindingSet> unsyncBuffer;
+
+			/**
+			 * The elements buffered for the current key range.
+			 */
+			private final Object[] elements;
+
+			/**
+			 * The #of buffered elements.
+			 */
+			private int n = 0;
+
+			/**
+			 * The index of the current key range.
+			 */
+			private int current = -1;
+
+			public MultiKeyProbeVisitor(final List<AccessPathTask> tasks,
+					final AbstractUnsynchronizedArrayBuffer<IBindingSet> unsyncBuffer,
+					final int chunkCapacity) {
+
+				this.tasks = tasks;
+
+				this.unsyncBuffer = unsyncBuffer;
+
+				this.elements = new Object[Math.max(1, chunkCapacity)];
+
+			}
+
+			@Override
+			public boolean visit(final int index, final ITuple<?> tuple) {
+
+				if (index != current) {
+
+					// first element for a new key range.
+					flush();
+
+					current = index;
+
+				}
+
+				elements[n++] = tuple.getObject();
+
+				if (n == elements.length)
+					flush();
+
+				return !isDone();
+
+			}
+
+			/**
+			 * Join the buffered elements (if any) with the source solutions for
+			 * the current key range.
+			 */
+			void flush() {
+
+				if (n == 0)
+					return;
+
+				final AccessPathTask task = tasks.get(current);
+
+				final IPredicate<E> asBound = task.accessPath.getPredicate();
+
+				final IBindingSet[] rightChunk = new IBindingSet[n];
+
+				for (int i = 0; i < n; i++) {
+
+					// Resolve the element to a solution.
+					final IBindingSet bset = new ListBindingSet();
+
+					BOpContext.copyValues((IElement) elements[i], asBound, bset);
+
+					rightChunk[i] = bset;
+
+					elements[i] = null;
+
+				}
+
+				n = 0;
+
+				stats.accessPathChunksIn.increment();
+
+				stats.accessPathUnitsIn.add(rightChunk.length);
+
+				stats.accessPathRangeCount.add(rightChunk.length);
+
+				try {
+
+					task.joinChunk(rightChunk, unsyncBuffer);
+
+				} catch (InterruptedException ex) {
+
+					throw new RuntimeException(ex);
+
+				}
+
+			}
+
 		}
 
 		/**
@@ -1486,6 +1792,47 @@ public class PipelineJoin<E> extends PipelineOp implements
 
 			}
 
+			/**
+			 * Return the local {@link AbstractBTree} iff the {@link #accessPath}
+			 * may be evaluated by a batched probe of that index and
+			 * <code>null</code> otherwise.
+			 * 
+			 * @see Annotations#MULTI_KEY_PROBE
+			 */
+			protected AbstractBTree getMultiKeyProbeIndex() {
+
+				if (!(accessPath instanceof AccessPath<?>))
+					return null;
+
+				if (accessPath.getPredicate() instanceof IStarJoin<?>)
+					return null;
+
+				final AccessPath<E> ap = (AccessPath<E>) accessPath;
+
+				if (ap.hasFilter()) {
+
+					/*
+					 * Note: This also excludes an access path with a variable
+					 * which appears more than once in the predicate since that
+					 * is handled by an index local filter.
+					 */
+					return null;
+
+				}
+
+				final IIndex ndx = ap.getIndex();
+
+				if (!(ndx instanceof AbstractBTree)) {
+
+					// Not a local B+Tree (e.g., a fused view).
+					return null;
+
+				}
+
+				return (AbstractBTree) ndx;
+
+			}
+
 			@Override
 			public int hashCode() {
 				return super.hashCode();
@@ -1789,97 +2136,66 @@ public class PipelineJoin<E> extends PipelineOp implements
                     while (itr.hasNext()) {
 
                         halted();
-                        
-                        int naccepted = 0;
-                        
-                        final IBindingSet[] rightChunk = itr.next(); // AP solution chunk.
-                        
-                        for(IBindingSet right : rightChunk) { // next solution from AP.
-                        
-                        int bindex = 0; // index 1:1 with bindingSets[].
-                        for (IBindingSet left : bindingSets) { // upstream pipeline solutions.
-
-                            // join solutions.
-                            final IBindingSet bset = BOpContext.bind(left, right,
-//                                    true/* leftIsPipeline */,
-                                    constraints,
-                                    variablesToKeep);
-                            
-                            if (bset != null) {
-                                // solutions joined.
-                                if (limit != Long.MAX_VALUE
-                                        && exactOutputCount.incrementAndGet() > limit) {
-                                    // break query @ limit.
-                                    if (log.isInfoEnabled())
-                                        log.info("Breaking query @ limit: limit=" + limit
-                                                + ", exactOutputCount="
-                                                + exactOutputCount.get());
-                                    halt((Void) null);
-                                    break;
-                                }
-
-                                // Accept this binding set.
-                                unsyncBuffer.add(bset);
-
-                                // #of binding sets accepted.
-                                naccepted++;
-                                
-                                // #of elements accepted for this binding set.
-                                this.naccepted[bindex]++;
-
-                                // #of output solutions generated.
-                                stats.outputSolutions.increment(); 
 
-                            }
+                        // join a chunk of AP solutions.
+                        joinChunk(itr.next(), unsyncBuffer);
 
-                            if (bindex++ % 50 == 0) {
-                                // Periodically check for an interrupt.
-                                if (Thread.interrupted())
-                                    throw new InterruptedException();
-                            }
+                    }
 
-                        }
+                    if (optional) {
 
-                        if (log.isDebugEnabled())
-                            if (naccepted == 0) {
-                                log.debug("Rejected solution: " + right);
-                            } else {
-                                log.debug("Accepted solution for " + naccepted
-                                        + " of " + bindingSets.length
-                                        + " possible bindingSet combinations: "
-                                        + right);
-                            }
+                        outputOptionals(unsyncBuffer);
 
-                    } // next left (upstream) solution from leftChunk (aka bindingSets).
+                    }
 
-                    } // next right (AP) solution from rightChunk
-                    
-                    if (optional) {
+                    return;
 
-                        /*
-                         * Note: when NO binding sets were accepted AND the
-                         * predicate is OPTIONAL then we output the _original_
-                         * binding set(s) to the sink join task(s). The
-                         * CONSTRAINT(s) are NOT applied for the optional
-                         * solutions.
-                         */
+                } catch (Throwable t) {
+
+                    // ensure query halts.
+                    halt(t);
+                    if (getCause() != null) {
+                        // abnormal termination.
+                        throw new RuntimeException(t);
+                    }
+                    // normal termination - ignore exception.
+
+                } finally {
+
+                    itr.close();
 
-                        // Thread-local buffer iff optional sink is in use.
-                        final AbstractUnsynchronizedArrayBuffer<IBindingSet> unsyncBuffer2 = threadLocalBufferFactory2 == null ? null
-                                : threadLocalBufferFactory2.get();
+                }
+
+            }
+
+            /**
+             * Join a chunk of solutions visited on the {@link #accessPath} with
+             * the {@link #bindingSets}.
+             * 
+             * @param rightChunk
+             *            A chunk of solutions from the {@link #accessPath}.
+             * @param unsyncBuffer
+             *            The buffer on which the joined solutions are written.
+             */
+            protected void joinChunk(final IBindingSet[] rightChunk,
+                    final AbstractUnsynchronizedArrayBuffer<IBindingSet> unsyncBuffer)
+                    throws InterruptedException {
 
-                        for (int bindex = 0; bindex < bindingSets.length; bindex++) {
+                int naccepted = 0;
 
-                            if (naccepted[bindex] > 0)
-                                continue;
+                for (IBindingSet right : rightChunk) { // next solution from AP.
 
-                            final IBindingSet bs = bindingSets[bindex];
+                    int bindex = 0; // index 1:1 with bindingSets[].
+                    for (IBindingSet left : bindingSets) { // upstream pipeline solutions.
 
-                            if (log.isTraceEnabled())
-                                log
-                                        .trace("Passing on solution which fails an optional join: "
-                                                + bs);
+                        // join solutions.
+                        final IBindingSet bset = BOpContext.bind(left, right,
+//                                true/* leftIsPipeline */,
+                                constraints,
+                                variablesToKeep);
 
+                        if (bset != null) {
+                            // solutions joined.
                             if (limit != Long.MAX_VALUE
                                     && exactOutputCount.incrementAndGet() > limit) {
                                 // break query @ limit.
@@ -1891,34 +2207,92 @@ public class PipelineJoin<E> extends PipelineOp implements
                                 break;
                             }
 
-                            if (unsyncBuffer2 == null) {
-                                // use the default sink.
-                                unsyncBuffer.add(bs);
-                            } else {
-                                // use the alternative sink.
-                                unsyncBuffer2.add(bs);
-                            }
+                            // Accept this binding set.
+                            unsyncBuffer.add(bset);
 
+                            // #of binding sets accepted.
+                            naccepted++;
+
+                            // #of elements accepted for this binding set.
+                            this.naccepted[bindex]++;
+
+                            // #of output solutions generated.
                             stats.outputSolutions.increment();
 
                         }
 
-                    }
-                    return;
+                        if (bindex++ % 50 == 0) {
+                            // Periodically check for an interrupt.
+                            if (Thread.interrupted())
+                                throw new InterruptedException();
+                        }
 
-                } catch (Throwable t) {
+                    } // next left (upstream) solution from leftChunk (aka bindingSets).
 
-                    // ensure query halts.
-                    halt(t);
-                    if (getCause() != null) {
-                        // abnormal termination.
-                        throw new RuntimeException(t);
+                    if (log.isDebugEnabled())
+                        if (naccepted == 0) {
+                            log.debug("Rejected solution: " + right);
+                        } else {
+                            log.debug("Accepted solution for " + naccepted
+                                    + " of " + bindingSets.length
+                                    + " possible bindingSet combinations: "
+                                    + right);
+                        }
+
+                } // next right (AP) solution from rightChunk
+
+            }
+
+            /**
+             * Output each of the {@link #bindingSets} for which no solutions
+             * were accepted (this implements the semantics of OPTIONAL).
+             * <p>
+             * Note: when NO binding sets were accepted AND the predicate is
+             * OPTIONAL then we output the _original_ binding set(s) to the sink
+             * join task(s). The CONSTRAINT(s) are NOT applied for the optional
+             * solutions.
+             * 
+             * @param unsyncBuffer
+             *            The buffer for the default sink.
+             */
+            protected void outputOptionals(
+                    final AbstractUnsynchronizedArrayBuffer<IBindingSet> unsyncBuffer) {
+
+                // Thread-local buffer iff optional sink is in use.
+                final AbstractUnsynchronizedArrayBuffer<IBindingSet> unsyncBuffer2 = threadLocalBufferFactory2 == null ? null
+                        : threadLocalBufferFactory2.get();
+
+                for (int bindex = 0; bindex < bindingSets.length; bindex++) {
+
+                    if (naccepted[bindex] > 0)
+                        continue;
+
+                    final IBindingSet bs = bindingSets[bindex];
+
+                    if (log.isTraceEnabled())
+                        log.trace("Passing on solution which fails an optional join: "
+                                + bs);
+
+                    if (limit != Long.MAX_VALUE
+                            && exactOutputCount.incrementAndGet() > limit) {
+                        // break query @ limit.
+                        if (log.isInfoEnabled())
+                            log.info("Breaking query @ limit: limit=" + limit
+                                    + ", exactOutputCount="
+                                    + exactOutputCount.get());
+                        halt((Void) null);
+                        break;
                     }
-                    // normal termination - ignore exception.
 
-                } finally {
+                    if (unsyncBuffer2 == null) {
+                        // use the default sink.
+                        unsyncBuffer.add(bs);
+                    } else {
+                        // use the alternative sink.
+                        unsyncBuffer2.add(bs);
+                    }
 
-                    itr.close();
+                    stats.outputSolutions.increment();
 
                 }
 
@@ -63,6 +63,23 @@ public class PipelineJoinStats extends BaseJoinStats {
      */
     public final CAT outputSolutions = new CAT();
 
+    /**
+     * The #of batched probes used to evaluate the access paths for a chunk of
+     * source solutions.
+     * 
+     * @see Annotations#MULTI_KEY_PROBE
+     */
+    public final CAT multiKeyProbeCount = new CAT();
+
+    /**
+     * The #of descents from the root of the index which were avoided by
+     * batched probes. This is the #of access paths evaluated by those probes
+     * less the #of descents which they actually performed.
+     * 
+     * @see Annotations#MULTI_KEY_PROBE
+     */
+    public final CAT descentsSaved = new CAT();
+
     /**
      * The estimated join hit ratio. This is computed as
      * 
@@ -128,6 +145,10 @@ public class PipelineJoinStats extends BaseJoinStats {
 
 			outputSolutions.add(t.outputSolutions.get());
 
+			multiKeyProbeCount.add(t.multiKeyProbeCount.get());
+
+			descentsSaved.add(t.descentsSaved.get());
+
 			// if (t.fanIn > this.fanIn) {
 			// // maximum reported fanIn for this join dimension.
 			// this.fanIn = t.fanIn;
@@ -146,6 +167,8 @@ public class PipelineJoinStats extends BaseJoinStats {
 		sb.append(",inputSolutions=" + inputSolutions.get());
 		sb.append(",outputSolutions=" + outputSolutions.get());
 		sb.append(",joinHitRatio=" + getJoinHitRatio());
+		sb.append(",multiKeyProbeCount=" + multiKeyProbeCount.get());
+		sb.append(",descentsSaved=" + descentsSaved.get());
 	}
 
 }
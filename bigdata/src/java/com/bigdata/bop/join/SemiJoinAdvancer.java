@@ -0,0 +1,165 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import com.bigdata.btree.BytesUtil;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.KeyOutOfRangeException;
+import com.bigdata.btree.filter.Advancer;
+
+/**
+ * Skips over the key ranges of an access path which can not contain elements
+ * accepted by a {@link SemiJoinFilter}. This is possible when the join
+ * variable is the first unbound component of the key for the access path. The
+ * key range for each value bound for the join variable is given, and the
+ * cursor is advanced to the start of the next key range whenever it leaves
+ * the current one.
+ * <p>
+ * Note: The tuple on which the cursor lands is still visited even if it lies
+ * beyond the last key range, so this MUST be used together with the
+ * {@link SemiJoinFilter}.
+ * 
+ * @see HashJoinOp.Annotations#SEMI_JOIN_FILTER
+ */
+public class SemiJoinAdvancer<E> extends Advancer<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The inclusive lower bound of each key range (in key order).
+     */
+    private final byte[][] fromKeys;
+
+    /**
+     * The exclusive upper bound of each key range (in key order).
+     */
+    private final byte[][] toKeys;
+
+    /**
+     * The index of the current key range.
+     */
+    private transient int current;
+
+    /**
+     * @param fromKeys
+     *            The inclusive lower bound of each key range.
+     * @param toKeys
+     *            The exclusive upper bound of each key range.
+     * 
+     *            The key ranges MUST be disjoint and in key order.
+     */
+    public SemiJoinAdvancer(final byte[][] fromKeys, final byte[][] toKeys) {
+
+        if (fromKeys == null)
+            throw new IllegalArgumentException();
+
+        if (toKeys == null)
+            throw new IllegalArgumentException();
+
+        if (fromKeys.length != toKeys.length)
+            throw new IllegalArgumentException();
+
+        this.fromKeys = fromKeys;
+
+        this.toKeys = toKeys;
+
+    }
+
+    @Override
+    protected boolean init() {
+
+        if (fromKeys.length == 0) {
+            // Nothing can join.
+            return false;
+        }
+
+        current = 0;
+
+        try {
+
+            src.seek(fromKeys[0]);
+
+        } catch (KeyOutOfRangeException ex) {
+
+            /*
+             * The first key range starts before this index partition. Scan
+             * from the start of the partition.
+             */
+
+        }
+
+        return true;
+
+    }
+
+    @Override
+    protected void advance(final ITuple<E> tuple) {
+
+        final byte[] key = tuple.getKey();
+
+        while (current < toKeys.length
+                && BytesUtil.compareBytes(key, toKeys[current]) >= 0) {
+
+            current++;
+
+        }
+
+        if (current == toKeys.length) {
+
+            // Beyond the last key range.
+            throw new NoMoreKeyRanges(BytesUtil.toString(key));
+
+        }
+
+        if (BytesUtil.compareBytes(key, fromKeys[current]) < 0) {
+
+            // Skip to the start of the next key range.
+            src.seek(fromKeys[current]);
+
+        }
+
+    }
+
+    /**
+     * Thrown once the cursor is beyond the last key range. The
+     * {@link Advancer} treats this as the end of the scan.
+     */
+    private static class NoMoreKeyRanges extends KeyOutOfRangeException {
+
+        private static final long serialVersionUID = 1L;
+
+        NoMoreKeyRanges(final String msg) {
+
+            super(msg);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.Set;
+
+import com.bigdata.bop.IElement;
+import com.bigdata.relation.accesspath.IElementFilter;
+
+/**
+ * A semi-join filter for an access path. Elements are only accepted if the
+ * value at a given index of the element is one of the values bound for the
+ * join variable by the intermediate solutions which will be joined against
+ * that access path. Elements rejected by this filter can not join, so the
+ * filter may be evaluated at the index, before the elements are turned into
+ * solutions and probe a hash index.
+ * 
+ * @see SemiJoinAdvancer
+ * @see HashJoinOp.Annotations#SEMI_JOIN_FILTER
+ */
+public class SemiJoinFilter<E> implements IElementFilter<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The index of the join variable in the element.
+     */
+    private final int index;
+
+    /**
+     * The values bound for the join variable.
+     */
+    private final Set<Object> values;
+
+    /**
+     * @param index
+     *            The index of the join variable in the element.
+     * @param values
+     *            The values bound for the join variable.
+     */
+    public SemiJoinFilter(final int index, final Set<Object> values) {
+
+        if (index < 0)
+            throw new IllegalArgumentException();
+
+        if (values == null)
+            throw new IllegalArgumentException();
+
+        this.index = index;
+
+        this.values = values;
+
+    }
+
+    @Override
+    public boolean isValid(final Object e) {
+
+        return values.contains(((IElement) e).get(index));
+
+    }
+
+    @Override
+    public boolean canAccept(final Object o) {
+
+        return o instanceof IElement;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "{index=" + index + ",nvalues="
+                + values.size() + "}";
+
+    }
+
+}
@@ -0,0 +1,886 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.btree.BytesUtil;
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleCursor;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.btree.keys.NoSuccessorException;
+import com.bigdata.btree.keys.SuccessorUtil;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.SPOKeyOrder;
+import com.bigdata.rdf.spo.SPORelation;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.UnsyncLocalOutputBuffer;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A sort-merge join of two triple patterns which share a join variable. Each
+ * triple pattern is read from a statement index in which the tuples are
+ * ordered on the join variable, either because the join variable is the first
+ * component of the key (e.g., <code>?s :p ?o</code> on SPO when joining on
+ * <code>?s</code>) or because it follows a bound first component (e.g.,
+ * <code>?x :p ?o</code> on POS when joining on <code>?o</code>). The two
+ * indices are then scanned in lockstep. Whichever side is behind skips ahead
+ * to the current join value of the other side using
+ * {@link ITupleCursor#seek(byte[])}, so the cost is proportional to the #of
+ * distinct join values visited on each side rather than to the #of solutions
+ * on one side times the cost of a probe of the other side.
+ * <p>
+ * When the join variable is the first component of the key and the second
+ * component is bound (e.g., the predicate for <code>?s :p ?o</code> on SPO),
+ * the seeks also position the cursor directly on the tuples having that bound
+ * value, so the tuples for other predicates of the same subject are skipped.
+ * <p>
+ * Note: This operator is only defined for triples on a local index. It does
+ * not support OPTIONAL, index local filters, or access path filters.
+ * 
+ * @see #getKeyOrder(IPredicate, IVariable)
+ */
+public class SortMergeJoinOp extends PipelineOp {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    private static final transient Logger log = Logger
+            .getLogger(SortMergeJoinOp.class);
+
+    public interface Annotations extends JoinAnnotations {
+
+        /**
+         * The {@link IPredicate} for the left side of the join.
+         */
+        String LEFT_PREDICATE = SortMergeJoinOp.class.getName()
+                + ".leftPredicate";
+
+        /**
+         * The {@link IPredicate} for the right side of the join.
+         */
+        String RIGHT_PREDICATE = SortMergeJoinOp.class.getName()
+                + ".rightPredicate";
+
+        /**
+         * The {@link IVariable} on which the access paths for the two
+         * predicates are merged. This variable must appear in both predicates
+         * and {@link SortMergeJoinOp#getKeyOrder(IPredicate, IVariable)} must
+         * be defined for each of them.
+         */
+        String JOIN_VAR = SortMergeJoinOp.class.getName() + ".joinVar";
+
+    }
+
+    /**
+     * Deep copy constructor.
+     */
+    public SortMergeJoinOp(final SortMergeJoinOp op) {
+
+        super(op);
+
+    }
+
+    /**
+     * Shallow copy constructor.
+     * 
+     * @param args
+     * @param annotations
+     */
+    public SortMergeJoinOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        final IVariable<?> joinVar = getJoinVar();
+
+        if (getKeyOrder(getLeftPredicate(), joinVar) == null)
+            throw new IllegalArgumentException(Annotations.LEFT_PREDICATE);
+
+        if (getKeyOrder(getRightPredicate(), joinVar) == null)
+            throw new IllegalArgumentException(Annotations.RIGHT_PREDICATE);
+
+    }
+
+    public SortMergeJoinOp(final BOp[] args, final NV... annotations) {
+
+        this(args, NV.asMap(annotations));
+
+    }
+
+    /**
+     * @see Annotations#LEFT_PREDICATE
+     */
+    @SuppressWarnings("unchecked")
+    public IPredicate<ISPO> getLeftPredicate() {
+
+        return (IPredicate<ISPO>) getRequiredProperty(Annotations.LEFT_PREDICATE);
+
+    }
+
+    /**
+     * @see Annotations#RIGHT_PREDICATE
+     */
+    @SuppressWarnings("unchecked")
+    public IPredicate<ISPO> getRightPredicate() {
+
+        return (IPredicate<ISPO>) getRequiredProperty(Annotations.RIGHT_PREDICATE);
+
+    }
+
+    /**
+     * @see Annotations#JOIN_VAR
+     */
+    public IVariable<?> getJoinVar() {
+
+        return (IVariable<?>) getRequiredProperty(Annotations.JOIN_VAR);
+
+    }
+
+    /**
+     * @see Annotations#SELECT
+     */
+    protected IVariable<?>[] getSelect() {
+
+        return getProperty(Annotations.SELECT, null/* defaultValue */);
+
+    }
+
+    /**
+     * @see Annotations#CONSTRAINTS
+     */
+    protected IConstraint[] constraints() {
+
+        return getProperty(Annotations.CONSTRAINTS, null/* defaultValue */);
+
+    }
+
+    /**
+     * Return the triples mode statement index whose tuples are ordered on the
+     * given variable when reading the access path for the predicate. The
+     * variable must appear exactly once in the predicate. The index is chosen
+     * such that the variable is either the second component of the key and
+     * the first component is bound (a key-range scan) or the first component
+     * of the key (a full index scan, skipping ahead on the bound second
+     * component if there is one).
+     * 
+     * @param pred
+     *            The predicate.
+     * @param var
+     *            The join variable.
+     * 
+     * @return The key order -or- <code>null</code> if the predicate is not a
+     *         triple pattern, is OPTIONAL, has an index local filter or an
+     *         access path filter, or does not have exactly one occurrence of
+     *         the variable.
+     */
+    public static SPOKeyOrder getKeyOrder(final IPredicate<?> pred,
+            final IVariable<?> var) {
+
+        if (pred.arity() != 3 || pred.isOptional()
+                || pred.getIndexLocalFilter() != null
+                || pred.getAccessPathFilter() != null)
+            return null;
+
+        int joinIndex = -1;
+
+        for (int i = 0; i < 3; i++) {
+
+            if (var.equals(pred.get(i))) {
+
+                if (joinIndex != -1) {
+                    // More than one occurrence.
+                    return null;
+                }
+
+                joinIndex = i;
+
+            }
+
+        }
+
+        if (joinIndex == -1)
+            return null;
+
+        SPOKeyOrder leading = null;
+
+        for (SPOKeyOrder keyOrder : new SPOKeyOrder[] { SPOKeyOrder.SPO,
+                SPOKeyOrder.POS, SPOKeyOrder.OSP }) {
+
+            if (keyOrder.getKeyOrder(0) == joinIndex) {
+
+                leading = keyOrder;
+
+            } else if (keyOrder.getKeyOrder(1) == joinIndex
+                    && pred.get(keyOrder.getKeyOrder(0)).isConstant()) {
+
+                // Prefer a key-range scan.
+                return keyOrder;
+
+            }
+
+        }
+
+        return leading;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the access path for the predicate is read
+     * using a key-range scan of the index chosen by
+     * {@link #getKeyOrder(IPredicate, IVariable)}. This is the case when the
+     * variable is the second component of the key and the first component is
+     * bound. Otherwise the join variable is the first component of the key
+     * and the merge is a full index scan whose cost is proportional to the #of
+     * distinct values of that component in the index.
+     * 
+     * @param pred
+     *            The predicate.
+     * @param var
+     *            The join variable.
+     */
+    public static boolean isKeyRangeScan(final IPredicate<?> pred,
+            final IVariable<?> var) {
+
+        final SPOKeyOrder keyOrder = getKeyOrder(pred, var);
+
+        return keyOrder != null
+                && pred.get(keyOrder.getKeyOrder(0)).isConstant();
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        return new FutureTask<Void>(new ChunkTask(this, context));
+
+    }
+
+    /**
+     * One side of the merge. This is a scan of the statement index chosen by
+     * {@link SortMergeJoinOp#getKeyOrder(IPredicate, IVariable)} which is
+     * always positioned on the first tuple having some join value.
+     */
+    private static class Side {
+
+        /**
+         * The predicate (not as bound).
+         */
+        private final IPredicate<ISPO> pred;
+
+        /**
+         * The as bound predicate.
+         */
+        private final IPredicate<ISPO> asBound;
+
+        /**
+         * The index of the join variable in the predicate.
+         */
+        private final int joinIndex;
+
+        /**
+         * The encoded bound first component of the key (if the join variable
+         * is the second component of the key) and otherwise an empty byte[].
+         */
+        private final byte[] prefix;
+
+        /**
+         * The bound component of the key which immediately follows the join
+         * variable and <code>null</code> if that component is not bound.
+         */
+        private final IV<?, ?> next;
+
+        /**
+         * The exclusive upper bound for the scan and <code>null</code> if the
+         * scan runs to the end of the index.
+         */
+        private final byte[] toKey;
+
+        private final ITupleIterator<ISPO> itr;
+
+        /**
+         * The same iterator if it supports {@link ITupleCursor#seek(byte[])}
+         * and otherwise <code>null</code>.
+         */
+        private final ITupleCursor<ISPO> cursor;
+
+        private final IKeyBuilder keyBuilder = new KeyBuilder();
+
+        /**
+         * The current tuple and <code>null</code> if the scan is exhausted.
+         */
+        private ITuple<ISPO> tuple;
+
+        /**
+         * The join value for the current tuple.
+         */
+        private IV<?, ?> joinValue;
+
+        /**
+         * The encoded {@link #joinValue}.
+         */
+        private byte[] joinKey;
+
+        /**
+         * The #of seeks.
+         */
+        private long nseeks;
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Side(final SPORelation relation, final IPredicate<ISPO> pred,
+                final IPredicate<ISPO> asBound, final IVariable<?> joinVar,
+                final IConstant<?> boundJoinValue) {
+
+            this.pred = pred;
+
+            this.asBound = asBound;
+
+            final SPOKeyOrder keyOrder = getKeyOrder(pred, joinVar);
+
+            int j = -1;
+            for (int i = 0; i < 3; i++) {
+                if (joinVar.equals(pred.get(i)))
+                    j = i;
+            }
+            this.joinIndex = j;
+
+            int keyPos = 0;
+            while (keyOrder.getKeyOrder(keyPos) != joinIndex)
+                keyPos++;
+
+            keyBuilder.reset();
+
+            if (keyPos == 1) {
+
+                ((IV) asBound.get(keyOrder.getKeyOrder(0)).get())
+                        .encode(keyBuilder);
+
+            }
+
+            this.prefix = keyBuilder.getKey();
+
+            final IVariableOrConstant<?> t = keyPos == 2 ? null : asBound
+                    .get(keyOrder.getKeyOrder(keyPos + 1));
+
+            this.next = t != null && t.isConstant() ? (IV<?, ?>) t.get()
+                    : null;
+
+            final byte[] fromKey;
+
+            if (boundJoinValue != null) {
+
+                // The join variable is bound by the source solution.
+                fromKey = prefixKey((IV<?, ?>) boundJoinValue.get());
+
+            } else {
+
+                fromKey = prefix;
+
+            }
+
+            this.toKey = fromKey.length == 0 ? null : successor(fromKey);
+
+            final IIndex ndx = relation.getIndex(keyOrder);
+
+            this.itr = ndx.rangeIterator(fromKey.length == 0 ? null
+                    : fromKey, toKey, 0/* capacity */, IRangeQuery.KEYS
+                    | IRangeQuery.VALS | IRangeQuery.CURSOR, null/* filter */);
+
+            this.cursor = itr instanceof ITupleCursor ? (ITupleCursor<ISPO>) itr
+                    : null;
+
+            land(itr.hasNext() ? itr.next() : null);
+
+        }
+
+        /**
+         * Return the encoded prefix followed by the encoded join value.
+         */
+        private byte[] prefixKey(final IV<?, ?> v) {
+
+            keyBuilder.reset();
+
+            keyBuilder.append(prefix);
+
+            v.encode(keyBuilder);
+
+            return keyBuilder.getKey();
+
+        }
+
+        /**
+         * Return the key of the first tuple which could join for the given
+         * join value.
+         */
+        private byte[] seekKey(final IV<?, ?> v) {
+
+            keyBuilder.reset();
+
+            keyBuilder.append(prefix);
+
+            v.encode(keyBuilder);
+
+            if (next != null)
+                next.encode(keyBuilder);
+
+            return keyBuilder.getKey();
+
+        }
+
+        /**
+         * Return the successor of a key prefix and <code>null</code> if there
+         * is no successor.
+         */
+        private static byte[] successor(final byte[] key) {
+
+            try {
+
+                return SuccessorUtil.successor(key.clone());
+
+            } catch (NoSuccessorException ex) {
+
+                return null;
+
+            }
+
+        }
+
+        /**
+         * Position the scan on the first tuple GTE the key.
+         */
+        private ITuple<ISPO> seek(final byte[] key) {
+
+            if (key == null
+                    || (toKey != null && BytesUtil.compareBytes(key, toKey) >= 0)) {
+
+                // Exhausted.
+                return null;
+
+            }
+
+            nseeks++;
+
+            if (cursor != null) {
+
+                final ITuple<ISPO> t = cursor.seek(key);
+
+                if (t != null)
+                    return t;
+
+                return cursor.hasNext() ? cursor.next() : null;
+
+            }
+
+            // Scan forward.
+            while (itr.hasNext()) {
+
+                final ITuple<ISPO> t = itr.next();
+
+                if (BytesUtil.compareBytes(t.getKey(), key) >= 0)
+                    return t;
+
+            }
+
+            return null;
+
+        }
+
+        /**
+         * Advance from the given tuple to the first tuple which could join,
+         * skipping over join values for which the component following the
+         * join variable does not have the bound value.
+         */
+        private void land(ITuple<ISPO> t) {
+
+            while (t != null) {
+
+                final IV<?, ?> v = t.getObject().get(joinIndex);
+
+                final byte[] key = seekKey(v);
+
+                if (startsWith(t.getKey(), key)) {
+
+                    tuple = t;
+                    joinValue = v;
+                    joinKey = encode(v);
+                    return;
+
+                }
+
+                if (BytesUtil.compareBytes(t.getKey(), key) < 0) {
+
+                    // Skip ahead to the bound value for this join value.
+                    t = seek(key);
+
+                } else {
+
+                    // Skip past this join value.
+                    t = seek(successor(prefixKey(v)));
+
+                }
+
+            }
+
+            tuple = null;
+            joinValue = null;
+            joinKey = null;
+
+        }
+
+        private byte[] encode(final IV<?, ?> v) {
+
+            keyBuilder.reset();
+
+            v.encode(keyBuilder);
+
+            return keyBuilder.getKey();
+
+        }
+
+        /**
+         * Skip ahead to the first tuple whose join value is GTE the given
+         * join value.
+         */
+        void seekTo(final IV<?, ?> v) {
+
+            land(seek(seekKey(v)));
+
+        }
+
+        /**
+         * Collect the statements for the current join value and advance to
+         * the next join value.
+         */
+        List<ISPO> group() {
+
+            final byte[] key = seekKey(joinValue);
+
+            final List<ISPO> group = new LinkedList<ISPO>();
+
+            ITuple<ISPO> t = tuple;
+
+            while (t != null && startsWith(t.getKey(), key)) {
+
+                group.add(t.getObject());
+
+                t = itr.hasNext() ? itr.next() : null;
+
+            }
+
+            land(t);
+
+            return group;
+
+        }
+
+        /**
+         * Return the solution formed by binding the statement on the solution
+         * and <code>null</code> if the statement does not match the predicate
+         * or a binding is not consistent with the solution.
+         */
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        IBindingSet bind(final IBindingSet src, final ISPO spo) {
+
+            IBindingSet bset = null;
+
+            for (int i = 0; i < 3; i++) {
+
+                final IVariableOrConstant<?> t = pred.get(i);
+
+                final IV iv = spo.get(i);
+
+                if (t.isConstant()) {
+
+                    if (!t.get().equals(iv))
+                        return null;
+
+                    continue;
+
+                }
+
+                final IVariableOrConstant<?> u = asBound.get(i);
+
+                if (u.isConstant()) {
+
+                    // Bound by the source solution.
+                    if (!u.get().equals(iv))
+                        return null;
+
+                    continue;
+
+                }
+
+                final IVariable<?> var = (IVariable<?>) t;
+
+                if (bset == null)
+                    bset = src.clone();
+
+                final IConstant<?> c = bset.get(var);
+
+                if (c != null) {
+
+                    // Variable appears more than once in the predicate.
+                    if (!c.get().equals(iv))
+                        return null;
+
+                } else {
+
+                    bset.set(var, new Constant<IV>(iv));
+
+                }
+
+            }
+
+            return bset == null ? src.clone() : bset;
+
+        }
+
+    } // Side
+
+    private static boolean startsWith(final byte[] key, final byte[] prefix) {
+
+        if (key.length < prefix.length)
+            return false;
+
+        for (int i = 0; i < prefix.length; i++) {
+
+            if (key[i] != prefix[i])
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Merge the two access paths for each source solution.
+     */
+    static private class ChunkTask implements Callable<Void> {
+
+        private final SortMergeJoinOp op;
+
+        private final BOpContext<IBindingSet> context;
+
+        private final IVariable<?> joinVar;
+
+        private final IPredicate<ISPO> leftPred;
+
+        private final IPredicate<ISPO> rightPred;
+
+        private final SPORelation relation;
+
+        ChunkTask(final SortMergeJoinOp op,
+                final BOpContext<IBindingSet> context) {
+
+            this.op = op;
+
+            this.context = context;
+
+            this.joinVar = op.getJoinVar();
+
+            this.leftPred = op.getLeftPredicate();
+
+            this.rightPred = op.getRightPredicate();
+
+            this.relation = (SPORelation) context.getRelation(leftPred);
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final BOpStats stats = context.getStats();
+
+            final ICloseableIterator<IBindingSet[]> source = context
+                    .getSource();
+
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            final UnsyncLocalOutputBuffer<IBindingSet> unsyncBuffer = new UnsyncLocalOutputBuffer<IBindingSet>(
+                    op.getChunkCapacity(), sink);
+
+            final IVariable<?>[] selectVars = op.getSelect();
+
+            final IConstraint[] constraints = op.constraints();
+
+            try {
+
+                while (source.hasNext()) {
+
+                    final IBindingSet[] chunk = source.next();
+
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(chunk.length);
+
+                    for (IBindingSet bindingSet : chunk) {
+
+                        merge(bindingSet, selectVars, constraints,
+                                unsyncBuffer);
+
+                    }
+
+                }
+
+                // flush the unsync buffer.
+                unsyncBuffer.flush();
+
+                // flush the sink.
+                sink.flush();
+
+                // Done.
+                return null;
+
+            } finally {
+
+                sink.close();
+
+                source.close();
+
+            }
+
+        }
+
+        /**
+         * Merge the access paths for the predicates as bound by the source
+         * solution.
+         */
+        private void merge(final IBindingSet bindingSet,
+                final IVariable<?>[] selectVars,
+                final IConstraint[] constraints,
+                final UnsyncLocalOutputBuffer<IBindingSet> out) {
+
+            final IPredicate<ISPO> leftAsBound = leftPred.asBound(bindingSet);
+
+            final IPredicate<ISPO> rightAsBound = rightPred
+                    .asBound(bindingSet);
+
+            if (leftAsBound == null || rightAsBound == null)
+                return;
+
+            final IConstant<?> boundJoinValue = bindingSet.get(joinVar);
+
+            final Side left = new Side(relation, leftPred, leftAsBound,
+                    joinVar, boundJoinValue);
+
+            final Side right = new Side(relation, rightPred, rightAsBound,
+                    joinVar, boundJoinValue);
+
+            long ngroups = 0;
+
+            while (left.tuple != null && right.tuple != null) {
+
+                final int cmp = BytesUtil.compareBytes(left.joinKey,
+                        right.joinKey);
+
+                if (cmp < 0) {
+
+                    left.seekTo(right.joinValue);
+
+                } else if (cmp > 0) {
+
+                    right.seekTo(left.joinValue);
+
+                } else {
+
+                    final List<ISPO> leftGroup = left.group();
+
+                    final List<ISPO> rightGroup = right.group();
+
+                    ngroups++;
+
+                    for (ISPO l : leftGroup) {
+
+                        final IBindingSet tmp = left.bind(bindingSet, l);
+
+                        if (tmp == null)
+                            continue;
+
+                        for (ISPO r : rightGroup) {
+
+                            IBindingSet bset = right.bind(tmp, r);
+
+                            if (bset == null)
+                                continue;
+
+                            if (constraints != null
+                                    && !BOpUtility.isConsistent(constraints,
+                                            bset))
+                                continue;
+
+                            if (selectVars != null)
+                                bset = bset.copy(selectVars);
+
+                            out.add(bset);
+
+                        }
+
+                    }
+
+                }
+
+            }
+
+            if (log.isDebugEnabled())
+                log.debug("joinVar=" + joinVar + ", ngroups=" + ngroups
+                        + ", leftSeeks=" + left.nseeks + ", rightSeeks="
+                        + right.nseeks);
+
+        }
+
+    } // ChunkTask
+
+}
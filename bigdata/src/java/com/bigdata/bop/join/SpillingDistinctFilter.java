@@ -0,0 +1,586 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.join;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.btree.BytesUtil;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.io.DataInputBuffer;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.rawstore.Bytes;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.IVUtility;
+import com.bigdata.relation.accesspath.IBuffer;
+import com.bigdata.rwstore.sector.IMemoryManager;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A DISTINCT filter for {@link IBindingSet}s which uses a bounded amount of
+ * JVM heap. Solutions are tracked in a {@link PackedIVHashTable} until the
+ * table would exceed the heap budget. Up to that point, each distinct
+ * solution is accepted immediately. Once the budget is exceeded, the table is
+ * sorted and written onto the {@link IMemoryManager} as a run of keys which
+ * have already been emitted. From then on, solutions are only recorded and
+ * the table is written out as another sorted run each time it fills up. The
+ * deferred solutions are emitted by {@link #outputSpilledSolutions(IBuffer)},
+ * which merges the runs and drops any key which was either emitted before the
+ * first spill or which occurs in more than one run.
+ * <p>
+ * Solutions whose as-bound values can not be packed as {@link IV}s are always
+ * tracked on the JVM heap and accepted immediately. Solutions which are
+ * emitted from the spilled runs are decoded from their keys and therefore do
+ * not carry any cached {@link com.bigdata.rdf.model.BigdataValue}s.
+ * <p>
+ * Note: This class is NOT thread-safe.
+ * 
+ * @see JVMDistinctFilter
+ */
+public class SpillingDistinctFilter implements IDistinctFilter {
+
+    private static final Logger log = Logger
+            .getLogger(SpillingDistinctFilter.class);
+
+    /**
+     * The target size of each block of a run written onto the
+     * {@link IMemoryManager}.
+     */
+    private static final int BLOCK_SIZE = 64 * Bytes.kilobyte32;
+
+    /**
+     * The estimated per-entry overhead of the {@link PackedIVHashTable} (slot,
+     * offset and hash) in addition to the bytes of the key.
+     */
+    private static final int ENTRY_OVERHEAD = 16;
+
+    /**
+     * The variables used to impose a distinct constraint.
+     */
+    private final IVariable<?>[] vars;
+
+    /**
+     * The backing store for the spilled runs.
+     */
+    private final IMemoryManager mmgr;
+
+    /**
+     * The maximum #of bytes for the in-memory hash table.
+     */
+    private final long maxHeapBytes;
+
+    /**
+     * The packed keys for the solutions seen since the last spill.
+     */
+    private final PackedIVHashTable table;
+
+    /**
+     * Solutions which could not be packed.
+     */
+    private final HashSet<List<IConstant<?>>> other;
+
+    /**
+     * The sorted runs of keys written onto the {@link #mmgr}.
+     */
+    private final List<Run> runs = new ArrayList<Run>();
+
+    /**
+     * <code>true</code> once the first run has been spilled. From that point
+     * on, packable solutions are deferred until
+     * {@link #outputSpilledSolutions(IBuffer)}.
+     */
+    private boolean spilling = false;
+
+    /**
+     * The #of keys written onto the spilled runs.
+     */
+    private long spilledKeyCount = 0L;
+
+    /**
+     * A sorted run of keys. Each block is a sequence of
+     * <code>{packed(len), key}</code> records.
+     */
+    private static class Run {
+
+        /**
+         * <code>true</code> iff the keys in this run were emitted when they
+         * were first seen.
+         */
+        final boolean emitted;
+
+        /**
+         * The addresses of the blocks of the run, in key order.
+         */
+        final List<Long> addrs = new ArrayList<Long>();
+
+        Run(final boolean emitted) {
+            this.emitted = emitted;
+        }
+
+    }
+
+    /**
+     * Reads the keys of a {@link Run} in order.
+     */
+    private class RunReader implements Comparable<RunReader> {
+
+        private final Run run;
+
+        private int block = 0;
+
+        private DataInputBuffer in = null;
+
+        private int remaining = 0;
+
+        /**
+         * The current key -or- <code>null</code> if the run is exhausted.
+         */
+        byte[] key;
+
+        RunReader(final Run run) throws IOException {
+            this.run = run;
+            next();
+        }
+
+        void next() throws IOException {
+            while (remaining == 0) {
+                if (block == run.addrs.size()) {
+                    key = null;
+                    return;
+                }
+                final byte[] b = mmgr.read(run.addrs.get(block++));
+                in = new DataInputBuffer(b);
+                remaining = b.length;
+            }
+            final long pos0 = in.position();
+            final byte[] k = new byte[(int) in.unpackLong()];
+            in.readFully(k);
+            remaining -= (int) (in.position() - pos0);
+            key = k;
+        }
+
+        @Override
+        public int compareTo(final RunReader o) {
+            return BytesUtil.compareBytes(key, o.key);
+        }
+
+    }
+
+    /**
+     * 
+     * @param vars
+     *            The set of variables on which the DISTINCT filter will be
+     *            imposed. Only these variables will be present in the
+     *            "accepted" solutions.
+     * @param initialCapacity
+     *            The initial capacity of the hash table.
+     * @param loadFactor
+     *            The load factor of the hash table.
+     * @param maxHeapBytes
+     *            The maximum #of bytes for the in-memory hash table before it
+     *            is spilled onto the {@link IMemoryManager}.
+     * @param mmgr
+     *            The backing store for the spilled runs.
+     */
+    public SpillingDistinctFilter(final IVariable<?>[] vars,
+            final int initialCapacity, final float loadFactor,
+            final long maxHeapBytes, final IMemoryManager mmgr) {
+
+        if (vars == null)
+            throw new IllegalArgumentException();
+
+        if (maxHeapBytes <= 0)
+            throw new IllegalArgumentException();
+
+        if (mmgr == null)
+            throw new IllegalArgumentException();
+
+        this.vars = vars;
+        this.maxHeapBytes = maxHeapBytes;
+        this.mmgr = mmgr;
+        this.table = new PackedIVHashTable(initialCapacity, loadFactor);
+        this.other = new HashSet<List<IConstant<?>>>();
+
+    }
+
+    @Override
+    public IVariable<?>[] getProjectedVars() {
+
+        return vars;
+
+    }
+
+    /**
+     * The #of sorted runs written onto the {@link IMemoryManager}.
+     */
+    public int getRunCount() {
+
+        return runs.size();
+
+    }
+
+    /**
+     * The #of keys written onto the sorted runs. A key may appear in more
+     * than one run.
+     */
+    public long getSpilledKeyCount() {
+
+        return spilledKeyCount;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: Once the filter has begun to spill, this returns
+     * <code>null</code> for all solutions whose as-bound values can be
+     * packed. Those solutions are reported by
+     * {@link #outputSpilledSolutions(IBuffer)}.
+     */
+    @Override
+    public IBindingSet accept(final IBindingSet bset) {
+
+        final IConstant<?>[] r = new IConstant<?>[vars.length];
+
+        for (int i = 0; i < vars.length; i++) {
+
+            r[i] = bset.get(vars[i]);
+
+        }
+
+        final IKeyBuilder keyBuilder = new KeyBuilder(vars.length << 4);
+
+        if (!PackedIVHashTable.encode(keyBuilder, r)) {
+
+            if (!other.add(Arrays.asList(r)))
+                return null;
+
+            return newBindingSet(r);
+
+        }
+
+        final byte[] key = keyBuilder.array();
+
+        final int len = keyBuilder.len();
+
+        if (table.insert(key, len, PackedIVHashTable.hash(key, 0, len)) < 0) {
+
+            // Duplicate of a solution seen since the last spill.
+            return null;
+
+        }
+
+        final boolean distinct = !spilling;
+
+        if (table.getKeyBytes() + (long) table.size() * ENTRY_OVERHEAD > maxHeapBytes) {
+
+            /*
+             * The first run holds the solutions which were already emitted.
+             * Any subsequent run is deferred.
+             */
+            spill(!spilling/* emitted */);
+
+            spilling = true;
+
+        }
+
+        return distinct ? newBindingSet(r) : null;
+
+    }
+
+    @Override
+    public long filterSolutions(final ICloseableIterator<IBindingSet[]> itr,
+            final BOpStats stats, final IBuffer<IBindingSet> sink) {
+
+        long n = 0L;
+
+        while (itr.hasNext()) {
+
+            final IBindingSet[] a = itr.next();
+
+            stats.chunksIn.increment();
+            stats.unitsIn.add(a.length);
+
+            for (IBindingSet bset : a) {
+
+                if ((bset = accept(bset)) == null) {
+
+                    // Drop duplicate (or deferred) solution.
+                    continue;
+
+                }
+
+                sink.add(bset);
+
+                n++;
+
+            }
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * Emit the distinct solutions which were deferred once the filter began to
+     * spill. This must be invoked once, after the last source solution has
+     * been presented to the filter.
+     * 
+     * @param sink
+     *            The sink onto which the solutions will be written.
+     * 
+     * @return The #of solutions written onto the sink.
+     */
+    public long outputSpilledSolutions(final IBuffer<IBindingSet> sink) {
+
+        if (!spilling) {
+
+            // Everything was already emitted.
+            return 0L;
+
+        }
+
+        if (table.size() > 0)
+            spill(false/* emitted */);
+
+        long n = 0L;
+
+        try {
+
+            final PriorityQueue<RunReader> pq = new PriorityQueue<RunReader>(
+                    runs.size());
+
+            for (Run run : runs) {
+
+                final RunReader r = new RunReader(run);
+
+                if (r.key != null)
+                    pq.add(r);
+
+            }
+
+            final List<RunReader> same = new ArrayList<RunReader>();
+
+            while (!pq.isEmpty()) {
+
+                final RunReader first = pq.poll();
+
+                final byte[] key = first.key;
+
+                boolean emitted = first.run.emitted;
+
+                same.add(first);
+
+                while (!pq.isEmpty()
+                        && BytesUtil.bytesEqual(key, pq.peek().key)) {
+
+                    final RunReader r = pq.poll();
+
+                    emitted |= r.run.emitted;
+
+                    same.add(r);
+
+                }
+
+                if (!emitted) {
+
+                    sink.add(decode(key));
+
+                    n++;
+
+                }
+
+                for (RunReader r : same) {
+
+                    r.next();
+
+                    if (r.key != null)
+                        pq.add(r);
+
+                }
+
+                same.clear();
+
+            }
+
+        } catch (IOException ex) {
+
+            throw new RuntimeException(ex);
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("runs=" + runs.size() + ", spilledKeys="
+                    + spilledKeyCount + ", emitted=" + n);
+
+        freeRuns();
+
+        return n;
+
+    }
+
+    @Override
+    public void release() {
+
+        freeRuns();
+
+        table.clear();
+
+        other.clear();
+
+    }
+
+    /**
+     * Sort the keys in the hash table, write them onto a new run and clear
+     * the hash table.
+     * 
+     * @param emitted
+     *            <code>true</code> iff the keys were already emitted.
+     */
+    private void spill(final boolean emitted) {
+
+        final int n = table.size();
+
+        final byte[][] keys = new byte[n][];
+
+        for (int i = 0; i < n; i++) {
+
+            keys[i] = table.getKey(i);
+
+        }
+
+        Arrays.sort(keys, BytesUtil.UnsignedByteArrayComparator.INSTANCE);
+
+        final Run run = new Run(emitted);
+
+        final DataOutputBuffer out = new DataOutputBuffer(BLOCK_SIZE);
+
+        for (byte[] key : keys) {
+
+            out.packLong(key.length);
+
+            out.put(key);
+
+            if (out.pos() >= BLOCK_SIZE)
+                flush(run, out);
+
+        }
+
+        if (out.pos() > 0)
+            flush(run, out);
+
+        runs.add(run);
+
+        spilledKeyCount += n;
+
+        table.clear();
+
+        if (log.isInfoEnabled())
+            log.info("Spilled run: keys=" + n + ", blocks=" + run.addrs.size()
+                    + ", emitted=" + emitted);
+
+    }
+
+    private void flush(final Run run, final DataOutputBuffer out) {
+
+        run.addrs.add(mmgr.allocate(ByteBuffer.wrap(out.array(), 0, out.pos())));
+
+        out.reset();
+
+    }
+
+    private void freeRuns() {
+
+        for (Run run : runs) {
+
+            for (Long addr : run.addrs) {
+
+                mmgr.free(addr);
+
+            }
+
+        }
+
+        runs.clear();
+
+    }
+
+    /**
+     * Decode a packed key into a solution on the projected variables.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private IBindingSet decode(final byte[] key) {
+
+        final IV[] ivs = IVUtility.decode(key, vars.length);
+
+        final ListBindingSet tmp = new ListBindingSet();
+
+        for (int i = 0; i < vars.length; i++) {
+
+            if (ivs[i] != null)
+                tmp.set((IVariable) vars[i], new Constant<IV>(ivs[i]));
+
+        }
+
+        return tmp;
+
+    }
+
+    private IBindingSet newBindingSet(final IConstant<?>[] vals) {
+
+        final ListBindingSet tmp = new ListBindingSet();
+
+        for (int i = 0; i < vars.length; i++) {
+
+            if (vals[i] != null)
+                tmp.set(vars[i], vals[i]);
+
+        }
+
+        return tmp;
+
+    }
+
+}
@@ -1771,16 +1771,48 @@ public class JGraph {
             // The path segment
             final IPredicate<?>[] preds = new IPredicate[] { v.pred, vp.pred };
 
-            // cutoff join of the edge (v,vp)
-            final EdgeSample edgeSample = AST2BOpRTO.cutoffJoin(//
-                    queryEngine,// 
-                    joinGraph,//
-                    limit, // sample limit
-                    preds, // ordered path segment.
-                    C, // constraints
-                    pathIsComplete,//
-                    v.sample // sourceSample
-                    );
+            /*
+             * Note: The constraints are not part of the shape of the edge, so
+             * an edge is only cached if no constraint would attach to it.
+             */
+            final SampleCache sampleCache = SampleCache.getInstance(queryEngine);
+
+            boolean cacheable = sampleCache.isEnabled();
+
+            if (cacheable && C != null && C.length > 0) {
+
+                for (IConstraint[] a : PartitionedJoinGroup
+                        .getJoinGraphConstraints(preds, C,
+                                null/* knownBound */, pathIsComplete)) {
+
+                    if (a != null && a.length > 0)
+                        cacheable = false;
+
+                }
+
+            }
+
+            EdgeSample edgeSample = cacheable ? sampleCache.getEdgeSample(v,
+                    vp, limit, pathIsComplete) : null;
+
+            if (edgeSample == null) {
+
+                // cutoff join of the edge (v,vp)
+                edgeSample = AST2BOpRTO.cutoffJoin(//
+                        queryEngine,// 
+                        joinGraph,//
+                        limit, // sample limit
+                        preds, // ordered path segment.
+                        C, // constraints
+                        pathIsComplete,//
+                        v.sample // sourceSample
+                        );
+
+                if (cacheable)
+                    sampleCache.putEdgeSample(v, vp, pathIsComplete,
+                            edgeSample);
+
+            }
 
             final Path p = new Path(v, vp, edgeSample);
             
@@ -32,6 +32,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
 
 import com.bigdata.bop.BOp;
 import com.bigdata.bop.BOpContext;
@@ -102,8 +105,8 @@ public class JoinGraph extends PipelineOp {
 
 	private static final long serialVersionUID = 1L;
 
-//    private static final transient Logger log = Logger
-//            .getLogger(JoinGraph.class);
+    private static final transient Logger log = Logger
+            .getLogger(JoinGraph.class);
 
     /**
 	 * Known annotations.
@@ -445,6 +448,11 @@ public class JoinGraph extends PipelineOp {
 	    @Override
 	    public Void call() throws Exception {
 	        
+            final SampleCache sampleCache = SampleCache.getInstance(context
+                    .getRunningQuery().getQueryEngine());
+
+            long elapsed_queryOptimizer = 0L;
+
             if (getQueryPlan(context.getRunningQuery()) == null) {
                 
                 /*
@@ -455,7 +463,7 @@ public class JoinGraph extends PipelineOp {
                  * concurrent evaluation, just like MAX_PARALLEL.
                  */
                 
-                // final long begin = System.nanoTime();
+                final long begin = System.nanoTime();
 
                 // Create the join graph.
                 final JGraph g = new JGraph(JoinGraph.this);
@@ -504,9 +512,6 @@ public class JoinGraph extends PipelineOp {
                 // Set attribute for the join path samples.
                 setSamples(context.getRunningQuery(), edgeSamples);
 
-                // final long mark = System.nanoTime();
-                //
-                // final long elapsed_queryOptimizer = mark - begin;
 
                 /*
                  * Generate the query from the selected join path.
@@ -518,21 +523,37 @@ public class JoinGraph extends PipelineOp {
                 // Set attribute for the join path samples.
                 setQueryPlan(context.getRunningQuery(), queryOp);
 
+                elapsed_queryOptimizer = System.nanoTime() - begin;
+
+                sampleCache.addSamplingNanos(elapsed_queryOptimizer);
+
             }
 	        
             // The query plan.
             final PipelineOp queryOp = getQueryPlan(context.getRunningQuery());
             
-            // Run the query, blocking until it is done.
-	        JoinGraph.runSubquery(context, queryOp);
-
-//	        final long elapsed_queryExecution = System.nanoTime() - mark;
-//	        
-//            if (log.isInfoEnabled())
-//                log.info("RTO: queryOptimizer="
-//                        + TimeUnit.NANOSECONDS.toMillis(elapsed_queryOptimizer)
-//                        + ", queryExecution="
-//                        + TimeUnit.NANOSECONDS.toMillis(elapsed_queryExecution));
+            final long mark = System.nanoTime();
+
+            try {
+
+                // Run the query, blocking until it is done.
+                JoinGraph.runSubquery(context, queryOp);
+
+            } finally {
+
+                final long elapsed_queryExecution = System.nanoTime() - mark;
+
+                sampleCache.addExecutionNanos(elapsed_queryExecution);
+
+                if (log.isInfoEnabled())
+                    log.info("RTO: queryOptimizer="
+                            + TimeUnit.NANOSECONDS
+                                    .toMillis(elapsed_queryOptimizer)
+                            + ", queryExecution="
+                            + TimeUnit.NANOSECONDS
+                                    .toMillis(elapsed_queryExecution));
+
+            }
 
 	        return null;
 
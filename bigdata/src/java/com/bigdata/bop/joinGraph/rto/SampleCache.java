@@ -0,0 +1,809 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.joinGraph.rto;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.ap.SampleIndex.SampleType;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.btree.BytesUtil;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.sparql.ast.eval.AST2BOpBase;
+
+/**
+ * A cache of {@link VertexSample}s and of the {@link EdgeSample}s for the
+ * initial edges of the join graph which is shared by all runtime optimized
+ * queries against the same {@link QueryEngine}. The cache is organized by the
+ * namespace of the relation read by the vertices. Samples are keyed by the
+ * shape of the predicate(s): the relation, the constants, the pattern in which
+ * variables are used, and the annotations which are not specific to a query
+ * (the bop identifier, timestamp and estimated cardinality are ignored). The
+ * variables in a cached sample are renamed to canonical variables and renamed
+ * back to the variables of the query when the sample is reused.
+ * <p>
+ * A cached sample is invalidated when the fast range count of a vertex in the
+ * view being queried has drifted by more than {@link Options#MAX_DRIFT} from
+ * its range count when the sample was taken. An exact sample is invalidated by
+ * any change in the range count. Only edge samples whose estimate is
+ * {@link EstimateEnum#Normal} or {@link EstimateEnum#Exact} are cached, so
+ * edges having a cardinality estimate underflow or a lower bound are always
+ * re-sampled. Edges to which a constraint would be attached are not cached
+ * since the constraint is not part of the shape.
+ * <p>
+ * The cache also reports the time spent by the RTO sampling (deciding on the
+ * join order) and executing the selected join order.
+ */
+public class SampleCache implements ICounterSetAccess {
+
+    private static final transient Logger log = Logger
+            .getLogger(SampleCache.class);
+
+    /**
+     * Options understood by the {@link SampleCache}. These are specified
+     * using {@link System#getProperty(String)}.
+     */
+    public interface Options {
+
+        /**
+         * When <code>true</code>, samples are cached (default
+         * {@value #DEFAULT_ENABLED}).
+         */
+        String ENABLED = SampleCache.class.getName() + ".enabled";
+
+        String DEFAULT_ENABLED = "true";
+
+        /**
+         * The maximum #of vertex and edge samples retained for each namespace
+         * (default {@value #DEFAULT_CAPACITY}). The least recently used
+         * samples are evicted first.
+         */
+        String CAPACITY = SampleCache.class.getName() + ".capacity";
+
+        String DEFAULT_CAPACITY = "1000";
+
+        /**
+         * The maximum relative change in the range count of a vertex for which
+         * a cached sample will be reused (default {@value #DEFAULT_MAX_DRIFT}).
+         */
+        String MAX_DRIFT = SampleCache.class.getName() + ".maxDrift";
+
+        String DEFAULT_MAX_DRIFT = ".1";
+
+    }
+
+    /**
+     * The caches for each {@link QueryEngine}.
+     */
+    private static final Map<QueryEngine, SampleCache> instances = new WeakHashMap<QueryEngine, SampleCache>();
+
+    /**
+     * Return the {@link SampleCache} for the {@link QueryEngine}.
+     */
+    public static SampleCache getInstance(final QueryEngine queryEngine) {
+
+        if (queryEngine == null)
+            throw new IllegalArgumentException();
+
+        synchronized (instances) {
+
+            SampleCache cache = instances.get(queryEngine);
+
+            if (cache == null) {
+
+                cache = new SampleCache(
+                        Boolean.valueOf(System.getProperty(Options.ENABLED,
+                                Options.DEFAULT_ENABLED)),
+                        Integer.valueOf(System.getProperty(Options.CAPACITY,
+                                Options.DEFAULT_CAPACITY)),
+                        Double.valueOf(System.getProperty(Options.MAX_DRIFT,
+                                Options.DEFAULT_MAX_DRIFT)));
+
+                instances.put(queryEngine, cache);
+
+            }
+
+            return cache;
+
+        }
+
+    }
+
+    private final boolean enabled;
+
+    private final int capacity;
+
+    private final double maxDrift;
+
+    /**
+     * The cached samples for each namespace.
+     */
+    private final ConcurrentHashMap<String, Map<String, Object>> namespaces = new ConcurrentHashMap<String, Map<String, Object>>();
+
+    /*
+     * Counters.
+     */
+
+    private final CAT vertexHitCount = new CAT();
+
+    private final CAT vertexMissCount = new CAT();
+
+    private final CAT edgeHitCount = new CAT();
+
+    private final CAT edgeMissCount = new CAT();
+
+    private final CAT invalidationCount = new CAT();
+
+    private final CAT samplingNanos = new CAT();
+
+    private final CAT executionNanos = new CAT();
+
+    /**
+     * @param enabled
+     *            When <code>false</code>, nothing is cached, but the time
+     *            spent sampling and executing is still reported.
+     * @param capacity
+     *            The maximum #of samples for each namespace.
+     * @param maxDrift
+     *            The maximum relative change in the range count of a vertex
+     *            for which a sample will be reused.
+     */
+    public SampleCache(final boolean enabled, final int capacity,
+            final double maxDrift) {
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException(Options.CAPACITY);
+
+        if (maxDrift < 0d)
+            throw new IllegalArgumentException(Options.MAX_DRIFT);
+
+        this.enabled = enabled;
+
+        this.capacity = capacity;
+
+        this.maxDrift = maxDrift;
+
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+
+    }
+
+    /**
+     * Discard the cached samples for a namespace.
+     */
+    public void clear(final String namespace) {
+
+        namespaces.remove(namespace);
+
+    }
+
+    /**
+     * Report the time spent by the RTO deciding on a join order (sampling).
+     */
+    void addSamplingNanos(final long nanos) {
+
+        samplingNanos.add(nanos);
+
+    }
+
+    /**
+     * Report the time spent executing a join order selected by the RTO.
+     */
+    void addExecutionNanos(final long nanos) {
+
+        executionNanos.add(nanos);
+
+    }
+
+    /**
+     * A cached vertex sample.
+     */
+    private static class VertexEntry {
+
+        /**
+         * The range count of the vertex when it was sampled.
+         */
+        final long rangeCount;
+
+        /**
+         * The sample (using canonical variables).
+         */
+        final VertexSample sample;
+
+        VertexEntry(final long rangeCount, final VertexSample sample) {
+            this.rangeCount = rangeCount;
+            this.sample = sample;
+        }
+
+    }
+
+    /**
+     * A cached edge sample.
+     */
+    private static class EdgeEntry {
+
+        /**
+         * The estimated cardinality of the source and target vertices when
+         * the edge was sampled.
+         */
+        final long sourceCard, targetCard;
+
+        final int inputCount;
+        final long tuplesRead;
+        final long sumRangeCount;
+        final long outputCount;
+        final long adjCard;
+        final double f;
+        final long estCard;
+        final long estRead;
+        final int limit;
+        final EstimateEnum estimateEnum;
+
+        /**
+         * The sample (using canonical variables).
+         */
+        final IBindingSet[] sample;
+
+        EdgeEntry(final long sourceCard, final long targetCard,
+                final EdgeSample s, final IBindingSet[] sample) {
+            this.sourceCard = sourceCard;
+            this.targetCard = targetCard;
+            this.inputCount = s.inputCount;
+            this.tuplesRead = s.tuplesRead;
+            this.sumRangeCount = s.sumRangeCount;
+            this.outputCount = s.outputCount;
+            this.adjCard = s.adjCard;
+            this.f = s.f;
+            this.estCard = s.estCard;
+            this.estRead = s.estRead;
+            this.limit = s.limit;
+            this.estimateEnum = s.estimateEnum;
+            this.sample = sample;
+        }
+
+    }
+
+    /**
+     * The shape of one or more predicates together with the mapping between
+     * their variables and the canonical variables.
+     */
+    private static class Shape {
+
+        final String namespace;
+
+        final String key;
+
+        final Map<IVariable<?>, IVariable<?>> toCanonical = new LinkedHashMap<IVariable<?>, IVariable<?>>();
+
+        final Map<IVariable<?>, IVariable<?>> fromCanonical = new LinkedHashMap<IVariable<?>, IVariable<?>>();
+
+        Shape(final IPredicate<?>[] preds, final String suffix) {
+
+            this.namespace = preds[0].getOnlyRelationName();
+
+            final StringBuilder sb = new StringBuilder();
+
+            for (IPredicate<?> pred : preds) {
+
+                sb.append(pred.getOnlyRelationName());
+
+                sb.append("(");
+
+                for (int i = 0; i < pred.arity(); i++) {
+
+                    if (i > 0)
+                        sb.append(",");
+
+                    append(sb, pred.get(i));
+
+                }
+
+                sb.append(")");
+
+                final Map<String, Object> anns = new TreeMap<String, Object>(
+                        pred.annotations());
+
+                anns.remove(BOp.Annotations.BOP_ID);
+                anns.remove(IPredicate.Annotations.TIMESTAMP);
+                anns.remove(AST2BOpBase.Annotations.ESTIMATED_CARDINALITY);
+
+                for (Map.Entry<String, Object> e : anns.entrySet()) {
+
+                    sb.append("[");
+                    sb.append(e.getKey());
+                    sb.append("=");
+                    append(sb, e.getValue());
+                    sb.append("]");
+
+                }
+
+            }
+
+            sb.append(suffix);
+
+            this.key = sb.toString();
+
+        }
+
+        private void append(final StringBuilder sb, final Object t) {
+
+            if (t instanceof IVariable<?>) {
+
+                IVariable<?> v = toCanonical.get(t);
+
+                if (v == null) {
+
+                    v = Var.var("-rto-" + toCanonical.size());
+
+                    toCanonical.put((IVariable<?>) t, v);
+
+                    fromCanonical.put(v, (IVariable<?>) t);
+
+                }
+
+                sb.append(v.getName());
+
+            } else if (t instanceof IVariableOrConstant<?>) {
+
+                append(sb, ((IVariableOrConstant<?>) t).get());
+
+            } else if (t instanceof IV) {
+
+                // Note: IV.toString() reports the cached value (if any).
+                final IKeyBuilder keyBuilder = new KeyBuilder();
+
+                ((IV<?, ?>) t).encode(keyBuilder);
+
+                sb.append(BytesUtil.toString(keyBuilder.getKey()));
+
+            } else if (t instanceof Object[]) {
+
+                sb.append("[");
+
+                for (Object o : (Object[]) t) {
+
+                    append(sb, o);
+
+                    sb.append(",");
+
+                }
+
+                sb.append("]");
+
+            } else {
+
+                sb.append(t);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Return the renamed sample.
+     */
+    @SuppressWarnings("rawtypes")
+    private static IBindingSet[] rename(final IBindingSet[] a,
+            final Map<IVariable<?>, IVariable<?>> map) {
+
+        final IBindingSet[] b = new IBindingSet[a.length];
+
+        for (int i = 0; i < a.length; i++) {
+
+            final IBindingSet bset = new ListBindingSet();
+
+            final Iterator<Map.Entry<IVariable, IConstant>> itr = a[i]
+                    .iterator();
+
+            while (itr.hasNext()) {
+
+                final Map.Entry<IVariable, IConstant> e = itr.next();
+
+                final IVariable<?> v = map.get(e.getKey());
+
+                bset.set(v == null ? e.getKey() : v,
+                        new Constant(e.getValue().get()));
+
+            }
+
+            b[i] = bset;
+
+        }
+
+        return b;
+
+    }
+
+    /**
+     * Return <code>true</code> if the new value is within the allowed drift of
+     * the old value.
+     */
+    private boolean isFresh(final long oldValue, final long newValue,
+            final boolean exact) {
+
+        if (exact)
+            return oldValue == newValue;
+
+        return Math.abs(newValue - oldValue) <= maxDrift
+                * Math.max(oldValue, 1L);
+
+    }
+
+    /**
+     * Return the samples for the namespace, creating the LRU map if
+     * necessary.
+     */
+    private Map<String, Object> getSamples(final String namespace) {
+
+        Map<String, Object> map = namespaces.get(namespace);
+
+        if (map == null) {
+
+            final Map<String, Object> tmp = new LinkedHashMap<String, Object>(
+                    16, .75f, true/* accessOrder */) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        final Map.Entry<String, Object> eldest) {
+
+                    return size() > capacity;
+
+                }
+
+            };
+
+            map = namespaces.putIfAbsent(namespace, tmp);
+
+            if (map == null)
+                map = tmp;
+
+        }
+
+        return map;
+
+    }
+
+    private Object get(final Shape shape) {
+
+        final Map<String, Object> map = getSamples(shape.namespace);
+
+        synchronized (map) {
+
+            return map.get(shape.key);
+
+        }
+
+    }
+
+    private void put(final Shape shape, final Object entry) {
+
+        final Map<String, Object> map = getSamples(shape.namespace);
+
+        synchronized (map) {
+
+            map.put(shape.key, entry);
+
+        }
+
+    }
+
+    private void remove(final Shape shape) {
+
+        final Map<String, Object> map = getSamples(shape.namespace);
+
+        synchronized (map) {
+
+            map.remove(shape.key);
+
+        }
+
+        invalidationCount.increment();
+
+    }
+
+    /**
+     * Return a cached sample for the vertex.
+     * 
+     * @param pred
+     *            The predicate for the vertex.
+     * @param limit
+     *            The minimum sample limit.
+     * @param sampleType
+     *            The type of sample.
+     * @param rangeCount
+     *            The current range count of the vertex.
+     * 
+     * @return The sample -or- <code>null</code> if there is no cached sample
+     *         having at least that limit which is consistent with the current
+     *         range count.
+     */
+    public VertexSample getVertexSample(final IPredicate<?> pred,
+            final int limit, final SampleType sampleType, final long rangeCount) {
+
+        if (!enabled)
+            return null;
+
+        final Shape shape = new Shape(new IPredicate[] { pred }, "{"
+                + sampleType + "}");
+
+        final VertexEntry e = (VertexEntry) get(shape);
+
+        if (e != null && !isFresh(e.rangeCount, rangeCount, e.sample.isExact())) {
+
+            if (log.isDebugEnabled())
+                log.debug("Range count drift: " + shape.key + ", old="
+                        + e.rangeCount + ", new=" + rangeCount);
+
+            remove(shape);
+
+        } else if (e != null && (e.sample.limit >= limit || e.sample.isExact())) {
+
+            vertexHitCount.increment();
+
+            return new VertexSample(
+                    e.sample.isExact() ? e.sample.estCard : rangeCount,
+                    e.sample.limit, e.sample.estimateEnum, rename(
+                            e.sample.getSample(), shape.fromCanonical));
+
+        }
+
+        vertexMissCount.increment();
+
+        return null;
+
+    }
+
+    /**
+     * Cache the sample for a vertex.
+     * 
+     * @param pred
+     *            The predicate for the vertex.
+     * @param sampleType
+     *            The type of sample.
+     * @param rangeCount
+     *            The range count of the vertex when it was sampled.
+     * @param sample
+     *            The sample.
+     */
+    public void putVertexSample(final IPredicate<?> pred,
+            final SampleType sampleType, final long rangeCount,
+            final VertexSample sample) {
+
+        if (!enabled)
+            return;
+
+        final Shape shape = new Shape(new IPredicate[] { pred }, "{"
+                + sampleType + "}");
+
+        put(shape, new VertexEntry(rangeCount, new VertexSample(sample.estCard,
+                sample.limit, sample.estimateEnum, rename(sample.getSample(),
+                        shape.toCanonical))));
+
+    }
+
+    /**
+     * Return a cached sample for an initial edge of the join graph.
+     * 
+     * @param v
+     *            The source vertex, which must have been sampled.
+     * @param vp
+     *            The target vertex, which must have been sampled.
+     * @param limit
+     *            The minimum sample limit.
+     * @param pathIsComplete
+     *            <code>true</code> iff the edge is the entire join graph.
+     * 
+     * @return The sample -or- <code>null</code> if there is no cached sample
+     *         having at least that limit which is consistent with the current
+     *         estimated cardinality of the vertices.
+     */
+    public EdgeSample getEdgeSample(final Vertex v, final Vertex vp,
+            final int limit, final boolean pathIsComplete) {
+
+        if (!enabled)
+            return null;
+
+        final Shape shape = new Shape(new IPredicate[] { v.pred, vp.pred },
+                "{complete=" + pathIsComplete + "}");
+
+        final EdgeEntry e = (EdgeEntry) get(shape);
+
+        final boolean exact = e != null
+                && e.estimateEnum == EstimateEnum.Exact;
+
+        if (e != null
+                && (!isFresh(e.sourceCard, v.sample.estCard, exact) || !isFresh(
+                        e.targetCard, vp.sample.estCard, exact))) {
+
+            remove(shape);
+
+        } else if (e != null && (e.limit >= limit || exact)) {
+
+            edgeHitCount.increment();
+
+            return new EdgeSample(v.sample, e.inputCount, e.tuplesRead,
+                    e.sumRangeCount, e.outputCount, e.adjCard, e.f, e.estCard,
+                    e.estRead, e.limit, e.estimateEnum, rename(e.sample,
+                            shape.fromCanonical));
+
+        }
+
+        edgeMissCount.increment();
+
+        return null;
+
+    }
+
+    /**
+     * Cache the sample for an initial edge of the join graph. The sample is
+     * ignored unless its estimate is {@link EstimateEnum#Normal} or
+     * {@link EstimateEnum#Exact}.
+     * 
+     * @param v
+     *            The source vertex.
+     * @param vp
+     *            The target vertex.
+     * @param pathIsComplete
+     *            <code>true</code> iff the edge is the entire join graph.
+     * @param sample
+     *            The sample.
+     */
+    public void putEdgeSample(final Vertex v, final Vertex vp,
+            final boolean pathIsComplete, final EdgeSample sample) {
+
+        if (!enabled)
+            return;
+
+        switch (sample.estimateEnum) {
+        case Normal:
+        case Exact:
+            break;
+        default:
+            // Uncertain estimate. Always re-sample.
+            return;
+        }
+
+        final IBindingSet[] a = sample.getSample();
+
+        if (a == null) {
+            // Released.
+            return;
+        }
+
+        final Shape shape = new Shape(new IPredicate[] { v.pred, vp.pred },
+                "{complete=" + pathIsComplete + "}");
+
+        put(shape, new EdgeEntry(v.sample.estCard, vp.sample.estCard, sample,
+                rename(a, shape.toCanonical)));
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter("vertexHitCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(vertexHitCount.get());
+            }
+        });
+
+        root.addCounter("vertexMissCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(vertexMissCount.get());
+            }
+        });
+
+        root.addCounter("edgeHitCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(edgeHitCount.get());
+            }
+        });
+
+        root.addCounter("edgeMissCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(edgeMissCount.get());
+            }
+        });
+
+        // #of samples discarded due to range count drift.
+        root.addCounter("invalidationCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(invalidationCount.get());
+            }
+        });
+
+        // The #of cached samples.
+        root.addCounter("size", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                long n = 0;
+                for (Map<String, Object> map : namespaces.values()) {
+                    synchronized (map) {
+                        n += map.size();
+                    }
+                }
+                setValue(n);
+            }
+        });
+
+        // Time spent deciding on the join order.
+        root.addCounter("samplingMillis", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(samplingNanos.get() / 1000000L);
+            }
+        });
+
+        // Time spent executing the selected join order.
+        root.addCounter("executionMillis", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(executionNanos.get() / 1000000L);
+            }
+        });
+
+        return root;
+
+    }
+
+}
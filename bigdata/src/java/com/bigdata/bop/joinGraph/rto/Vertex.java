@@ -195,6 +195,32 @@ public class Vertex implements Serializable {
         final long rangeCount = oldSample == null ? ap
                 .rangeCount(false/* exact */) : oldSample.estCard;
 
+        final SampleCache sampleCache = SampleCache.getInstance(queryEngine);
+
+        if (oldSample == null) {
+
+            /*
+             * Reuse a sample of a vertex having the same shape if the range
+             * count has not drifted too far since that sample was taken.
+             */
+
+            final VertexSample cachedSample = sampleCache.getVertexSample(
+                    pred, limit, sampleType, rangeCount);
+
+            if (cachedSample != null) {
+
+                sample = cachedSample;
+
+                if (log.isTraceEnabled())
+                    log.trace("Cached: id=" + pred.getId() + ", sample="
+                            + sample);
+
+                return;
+
+            }
+
+        }
+
         if (rangeCount <= limit) {
 
             /*
@@ -246,6 +272,8 @@ public class Vertex implements Serializable {
 
         }
 
+        sampleCache.putVertexSample(pred, sampleType, rangeCount, sample);
+
         if (log.isTraceEnabled())
             log.trace("Sampled: id=" + pred.getId() + ", sample=" + sample);
 
@@ -156,6 +156,17 @@ public class JVMDistinctBindingSetsOp extends PipelineOp {
         
     }
 
+    /**
+     * Return a new filter for the solutions. The filter is shared by all
+     * invocations of this operator for a given query.
+     */
+    protected IDistinctFilter newDistinctFilter() {
+
+        return new JVMDistinctFilter(getVariables(), getInitialCapacity(),
+                getLoadFactor(), getConcurrencyLevel());
+
+    }
+
     public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
 
         return new FutureTask<Void>(new DistinctTask(this, context));
@@ -180,8 +191,6 @@ public class JVMDistinctBindingSetsOp extends PipelineOp {
 
             this.chunkCapacity = op.getChunkCapacity();
             
-            final IVariable<?>[] vars = op.getVariables();
-
             /*
              * The map is shared state across invocations of this operator task.
              */
@@ -195,9 +204,7 @@ public class JVMDistinctBindingSetsOp extends PipelineOp {
 
                 if (filter == null) {
 
-                    filter = new JVMDistinctFilter(vars,
-                            op.getInitialCapacity(), op.getLoadFactor(),
-                            op.getConcurrencyLevel());
+                    filter = op.newDistinctFilter();
 
                     final IDistinctFilter tmp = (IDistinctFilter) attribs
                             .putIfAbsent(key, filter);
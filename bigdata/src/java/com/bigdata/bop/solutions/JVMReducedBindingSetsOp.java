@@ -0,0 +1,111 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.Map;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.join.IDistinctFilter;
+import com.bigdata.bop.join.JVMReducedFilter;
+
+/**
+ * A pipelined REDUCED operator. REDUCED permits, but does not require, the
+ * elimination of duplicate solutions. This operator drops a solution when it
+ * duplicates a recently seen solution, as determined by a bounded and lossy
+ * cache. The heap used by this operator is therefore fixed by
+ * {@link Annotations#CACHE_CAPACITY} rather than by the #of distinct
+ * solutions.
+ * 
+ * @see JVMReducedFilter
+ */
+public class JVMReducedBindingSetsOp extends JVMDistinctBindingSetsOp {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends JVMDistinctBindingSetsOp.Annotations {
+
+        /**
+         * The #of slots in the cache of recently seen solutions.
+         */
+        String CACHE_CAPACITY = JVMReducedBindingSetsOp.class.getName()
+                + ".cacheCapacity";
+
+        int DEFAULT_CACHE_CAPACITY = 10000;
+
+    }
+
+    /**
+     * Constructor required for {@link com.bigdata.bop.BOpUtility#deepCopy(FilterNode)}.
+     */
+    public JVMReducedBindingSetsOp(final JVMReducedBindingSetsOp op) {
+        super(op);
+    }
+
+    /**
+     * Required shallow copy constructor.
+     */
+    public JVMReducedBindingSetsOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        if (getCacheCapacity() <= 0)
+            throw new IllegalArgumentException(Annotations.CACHE_CAPACITY
+                    + "=" + getCacheCapacity());
+
+    }
+
+    public JVMReducedBindingSetsOp(final BOp[] args, NV... annotations) {
+
+        this(args, NV.asMap(annotations));
+
+    }
+
+    /**
+     * @see Annotations#CACHE_CAPACITY
+     */
+    public int getCacheCapacity() {
+
+        return getProperty(Annotations.CACHE_CAPACITY,
+                Annotations.DEFAULT_CACHE_CAPACITY);
+
+    }
+
+    @Override
+    protected IDistinctFilter newDistinctFilter() {
+
+        return new JVMReducedFilter(getVariables(), getCacheCapacity());
+
+    }
+
+}
@@ -24,6 +24,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package com.bigdata.bop.solutions;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -34,6 +35,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.FutureTask;
 
 import org.apache.log4j.Logger;
@@ -52,6 +54,9 @@ import com.bigdata.bop.IVariable;
 import com.bigdata.bop.aggregate.IAggregate;
 import com.bigdata.bop.bindingSet.ListBindingSet;
 import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.join.PackedIVHashTable;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
 import com.bigdata.htree.HTree;
 import com.bigdata.rdf.error.SparqlTypeErrorException;
 import com.bigdata.relation.accesspath.IBlockingBuffer;
@@ -61,6 +66,13 @@ import cutthecrap.utils.striterators.ICloseableIterator;
 
 /**
  * An in-memory at-once generalized aggregation operator.
+ * <p>
+ * Solutions are grouped using a {@link PackedIVHashTable} when the computed
+ * values of the GROUP_BY expressions are all
+ * {@link com.bigdata.rdf.internal.IV}s and using a {@link LinkedHashMap}
+ * otherwise. The solutions may be hash partitioned on the GROUP_BY
+ * expressions in order to group and aggregate the partitions in parallel (see
+ * {@link Annotations#PARTITION_COUNT}).
  * 
  * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
  * @version $Id: DistinctElementFilter.java 3466 2010-08-27 14:28:04Z
@@ -79,6 +91,20 @@ public class MemoryGroupByOp extends GroupByOp {
     public interface Annotations extends GroupByOp.Annotations,
             HashMapAnnotations {
 
+        /**
+         * The #of partitions into which the solutions are hash partitioned on
+         * the GROUP_BY expressions (default
+         * {@value #DEFAULT_PARTITION_COUNT}). When greater than ONE, each
+         * partition is grouped and aggregated by a separate task and the
+         * output of those tasks is combined. This has no effect when there is
+         * no GROUP_BY clause (all solutions fall into a single implicit group)
+         * or when the aggregates are nested.
+         */
+        String PARTITION_COUNT = MemoryGroupByOp.class.getName()
+                + ".partitionCount";
+
+        int DEFAULT_PARTITION_COUNT = 1;
+
 	}
 
     /**
@@ -124,6 +150,10 @@ public class MemoryGroupByOp extends GroupByOp {
         
         getRequiredProperty(Annotations.GROUP_BY_REWRITE);
         
+        if (getPartitionCount() < 1)
+            throw new IllegalArgumentException(Annotations.PARTITION_COUNT
+                    + "=" + getPartitionCount());
+
 	}
     
     /**
@@ -146,6 +176,16 @@ public class MemoryGroupByOp extends GroupByOp {
 
     }
 
+    /**
+     * @see Annotations#PARTITION_COUNT
+     */
+    public int getPartitionCount() {
+
+        return getProperty(Annotations.PARTITION_COUNT,
+                Annotations.DEFAULT_PARTITION_COUNT);
+
+    }
+
     @Override
     public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
 
@@ -175,19 +215,19 @@ public class MemoryGroupByOp extends GroupByOp {
 		}
 
         /**
-         * Return a new {@link SolutionGroup} given the value expressions and
-         * the binding set.
+         * Return the computed values for the value expressions given the
+         * binding set.
          * 
          * @param groupBy
          *            The value expressions to be computed.
          * @param bset
          *            The binding set.
          * 
-         * @return The new {@link SolutionGroup} -or- <code>null</code> if any
-         *         of the value expressions evaluates or a <code>null</code>
-         *         -OR- throws a {@link SparqlTypeErrorException}.
+         * @return The computed values -or- <code>null</code> if any of the
+         *         value expressions evaluates or a <code>null</code> -OR-
+         *         throws a {@link SparqlTypeErrorException}.
          */
-        static SolutionGroup newInstance(final IValueExpression<?>[] groupBy,
+        static IConstant<?>[] asBound(final IValueExpression<?>[] groupBy,
                 final IBindingSet bset, final BOpStats stats) {
 
             final IConstant<?>[] r = new IConstant<?>[groupBy.length];
@@ -228,7 +268,7 @@ public class MemoryGroupByOp extends GroupByOp {
 
             }
 
-            return new SolutionGroup(r);
+            return r;
             
         }
 
@@ -291,11 +331,12 @@ public class MemoryGroupByOp extends GroupByOp {
         private final BOpContext<IBindingSet> context;
 
         /**
-         * A map whose keys are the computed bindings on the GROUP_BY
-         * expressions and whose values are the solution multisets which fall
-         * into a given group.
+         * The partitions into which the solutions are hash partitioned on the
+         * computed bindings for the GROUP_BY expressions. There is a single
+         * partition unless {@link Annotations#PARTITION_COUNT} was specified.
+         * This is <code>null</code> if there is no GROUP_BY clause.
          */
-        private final LinkedHashMap<SolutionGroup, SolutionMultiSet> map;
+        private final Partition[] partitions;
 
         private final IGroupByState groupByState;
 
@@ -320,22 +361,289 @@ public class MemoryGroupByOp extends GroupByOp {
             
             this.groupBy = groupByState.getGroupByClause();
 
-            // The map is only defined if a GROUP_BY clause was used.
-            this.map = groupBy == null ? null
-                    : new LinkedHashMap<SolutionGroup, SolutionMultiSet>(
-                            op.getInitialCapacity(), op.getLoadFactor());
+            if (groupBy == null) {
+
+                // The partitions are only defined if a GROUP_BY clause was used.
+                this.partitions = null;
+
+            } else {
+
+                /*
+                 * Note: Nested aggregates are evaluated by a single partition
+                 * since the IAggregates nested within an IAggregate would be
+                 * shared by the clones of the outer IAggregate.
+                 */
+                final int npartitions = groupByState.isNestedAggregates() ? 1
+                        : op.getPartitionCount();
+
+                this.partitions = new Partition[npartitions];
+
+                for (int i = 0; i < npartitions; i++) {
+
+                    partitions[i] = new Partition(op, npartitions > 1/* clone */);
+
+                }
+
+            }
 
         }
 
         /**
-         * Add the solution to the multiset for the appropriate group. If we can
-         * not compute the GROUP_BY value expressions for a solution, then the
-         * solution is dropped.
+         * The solutions (and their groups) for one hash partition of the
+         * GROUP_BY keys. Since all solutions for a given group are assigned to
+         * the same partition, each partition may be grouped and aggregated
+         * independently and the output of the partitions is simply combined.
+         * This also preserves the semantics of DISTINCT aggregates and
+         * GROUP_CONCAT, both of which need to see every solution in a group.
+         */
+        private class Partition implements Callable<List<IBindingSet>> {
+
+            /**
+             * A map whose keys are the computed bindings on the GROUP_BY
+             * expressions and whose values are the solution multisets which
+             * fall into a given group.
+             */
+            private final LinkedHashMap<SolutionGroup, SolutionMultiSet> map;
+
+            /**
+             * A hash table whose keys are the packed computed bindings on the
+             * GROUP_BY expressions. This is used instead of the {@link #map}
+             * when all computed bindings for a solution are
+             * {@link com.bigdata.rdf.internal.IV}s.
+             */
+            private final PackedIVHashTable table;
+
+            /**
+             * The solution multisets for the entries in the {@link #table},
+             * indexed by the entry.
+             */
+            private SolutionMultiSet[] packedGroups;
+
+            /**
+             * Used to form the packed keys.
+             */
+            private final IKeyBuilder keyBuilder;
+
+            /**
+             * The aggregates to be computed for each group. These are cloned
+             * when there is more than one partition since the
+             * {@link IAggregate}s have internal state.
+             */
+            private final LinkedHashMap<IAggregate<?>, IVariable<?>> aggExpr;
+
+            /**
+             * The computed bindings on the GROUP_BY expressions for the
+             * solutions in {@link #pending}.
+             */
+            private final List<IConstant<?>[]> pendingVals = new ArrayList<IConstant<?>[]>();
+
+            /**
+             * The solutions assigned to this partition which have not yet been
+             * grouped.
+             */
+            private final List<IBindingSet> pending = new ArrayList<IBindingSet>();
+
+            Partition(final MemoryGroupByOp op, final boolean clone) {
+
+                this.map = new LinkedHashMap<SolutionGroup, SolutionMultiSet>(
+                        op.getInitialCapacity(), op.getLoadFactor());
+
+                this.table = new PackedIVHashTable(op.getInitialCapacity(),
+                        op.getLoadFactor());
+
+                this.packedGroups = new SolutionMultiSet[16];
+
+                this.keyBuilder = new KeyBuilder();
+
+                if (clone) {
+
+                    this.aggExpr = new LinkedHashMap<IAggregate<?>, IVariable<?>>();
+
+                    for (Map.Entry<IAggregate<?>, IVariable<?>> e : rewrite
+                            .getAggExpr().entrySet()) {
+
+                        // Note: IAggregates MUST be cloned to avoid side-effects.
+                        aggExpr.put((IAggregate<?>) e.getKey().clone(),
+                                e.getValue());
+
+                    }
+
+                } else {
+
+                    this.aggExpr = rewrite.getAggExpr();
+
+                }
+
+            }
+
+            /**
+             * Add the solution to the multiset for the appropriate group.
+             * 
+             * @param vals
+             *            The computed bindings on the GROUP_BY expressions.
+             * @param bset
+             *            The solution.
+             */
+            private void accept(final IConstant<?>[] vals,
+                    final IBindingSet bset) {
+
+                SolutionMultiSet m;
+
+                keyBuilder.reset();
+
+                if (PackedIVHashTable.encode(keyBuilder, vals)) {
+
+                    final int entry = table.insert(keyBuilder.array(),
+                            keyBuilder.len(), PackedIVHashTable.hash(
+                                    keyBuilder.array(), 0, keyBuilder.len()));
+
+                    if (entry >= 0) {
+
+                        if (entry >= packedGroups.length) {
+
+                            packedGroups = Arrays.copyOf(packedGroups,
+                                    packedGroups.length << 1);
+
+                        }
+
+                        packedGroups[entry] = m = new SolutionMultiSet();
+
+                    } else {
+
+                        m = packedGroups[-entry - 1];
+
+                    }
+
+                } else {
+
+                    final SolutionGroup s = new SolutionGroup(vals);
+
+                    m = map.get(s);
+
+                    if (m == null) {
+
+                        map.put(s, m = new SolutionMultiSet());
+
+                    }
+
+                }
+
+                // Accept the solution.
+                if (log.isTraceEnabled())
+                    log.trace("Accepting solution: " + bset);
+
+                m.add(bset);
+
+            }
+
+            /**
+             * Compute the aggregate solution for each group in this partition
+             * and then discard the groups.
+             * 
+             * @param accepted
+             *            The aggregate solutions are added to this list.
+             */
+            private void output(final List<IBindingSet> accepted) {
+
+                for (int i = 0; i < table.size(); i++) {
+
+                    // Compute the aggregate for that group.
+                    final IBindingSet bset = aggregate(
+                            packedGroups[i].solutions, aggExpr);
+
+                    if (bset != null) {
+
+                        if (log.isDebugEnabled())
+                            log.debug("output: group=" + i + ", solution="
+                                    + bset);
+
+                        accepted.add(bset);
+
+                    } else {
+
+                        if (log.isDebugEnabled())
+                            log.debug("output: group=" + i + " : dropped.");
+
+                    }
+
+                }
+
+                for (Map.Entry<SolutionGroup, SolutionMultiSet> e : map
+                        .entrySet()) {
+
+                    final SolutionMultiSet m = e.getValue();
+
+                    // Compute the aggregate for that group.
+                    final IBindingSet bset = aggregate(m.solutions, aggExpr);
+
+                    if (bset != null) {
+
+                        if (log.isDebugEnabled())
+                            log.debug("output: groupBy=" + e.getKey()
+                                    + ", solution=" + bset);
+
+                        accepted.add(bset);
+
+                    } else {
+
+                        if (log.isDebugEnabled())
+                            log.debug("output: groupBy=" + e.getKey()
+                                    + " : dropped.");
+
+                    }
+
+                }
+
+                // discard the map.
+                map.clear();
+
+                table.clear();
+
+                packedGroups = null;
+
+            }
+
+            /**
+             * Group the pending solutions and compute the aggregate solution
+             * for each group.
+             */
+            @Override
+            public List<IBindingSet> call() throws Exception {
+
+                final int n = pending.size();
+
+                for (int i = 0; i < n; i++) {
+
+                    accept(pendingVals.get(i), pending.get(i));
+
+                }
+
+                pendingVals.clear();
+
+                pending.clear();
+
+                final List<IBindingSet> accepted = new LinkedList<IBindingSet>();
+
+                output(accepted);
+
+                return accepted;
+
+            }
+
+        } // Partition
+
+        /**
+         * Compute the GROUP_BY value expressions for the solution and return
+         * them. If we can not compute the GROUP_BY value expressions for a
+         * solution, then the solution is dropped.
          * 
          * @param bset
          *            The solution.
+         * 
+         * @return The computed values -or- <code>null</code> if the solution
+         *         was dropped.
          */
-        private void accept(final IBindingSet bset) {
+        private IConstant<?>[] asBound(final IBindingSet bset) {
 
             if (groupBy == null || groupBy.length == 0)
                 throw new IllegalArgumentException();
@@ -343,33 +651,89 @@ public class MemoryGroupByOp extends GroupByOp {
             if (bset == null)
                 throw new IllegalArgumentException();
 
-            final SolutionGroup s = SolutionGroup.newInstance(groupBy, bset,
+            final IConstant<?>[] vals = SolutionGroup.asBound(groupBy, bset,
                     stats);
 
-            if (s == null) {
+            if (vals == null) {
 
                 // Drop the solution.
 
                 if (log.isDebugEnabled())
                     log.debug("Dropping solution: " + bset);
 
-                return;
-
             }
 
-            SolutionMultiSet m = map.get(s);
+            return vals;
 
-            if (m == null) {
+        }
+
+        /**
+         * Return the index of the partition for the computed values of the
+         * GROUP_BY expressions.
+         */
+        private int getPartition(final IConstant<?>[] vals) {
 
-                map.put(s, m = new SolutionMultiSet());
+            final int h = Arrays.hashCode(vals);
+
+            return ((h ^ (h >>> 16)) & 0x7fffffff) % partitions.length;
+
+        }
+
+        /**
+         * Group and aggregate each partition in a separate task and combine
+         * their output.
+         * 
+         * @param accepted
+         *            The aggregate solutions are added to this list.
+         */
+        private void runPartitions(final List<IBindingSet> accepted)
+                throws Exception {
+
+            final List<FutureTask<List<IBindingSet>>> futures = new ArrayList<FutureTask<List<IBindingSet>>>(
+                    partitions.length);
+
+            for (Partition p : partitions) {
+
+                futures.add(new FutureTask<List<IBindingSet>>(p));
 
             }
 
-            // Accept the solution.
-            if (log.isTraceEnabled())
-                log.trace("Accepting solution: " + bset);
+            // Note: null for some unit tests.
+            final Executor executor = context.getExecutorService();
+
+            try {
+
+                for (FutureTask<List<IBindingSet>> ft : futures) {
+
+                    if (executor == null) {
+
+                        // Run in the caller's thread.
+                        ft.run();
+
+                    } else {
+
+                        executor.execute(ft);
+
+                    }
+
+                }
+
+                for (FutureTask<List<IBindingSet>> ft : futures) {
+
+                    accepted.addAll(ft.get());
+
+                }
+
+            } finally {
+
+                // Ensure that all tasks are done.
+                for (FutureTask<List<IBindingSet>> ft : futures) {
 
-            m.add(bset);
+                    ft.cancel(true/* mayInterruptIfRunning */);
+
+                }
+
+            }
 
         }
 
@@ -385,8 +749,6 @@ public class MemoryGroupByOp extends GroupByOp {
 
                 final List<IBindingSet> accepted = new LinkedList<IBindingSet>();
 
-                int naccepted = 0;
-
                 if (groupBy == null) {
 
                     /*
@@ -410,7 +772,8 @@ public class MemoryGroupByOp extends GroupByOp {
                     }
                     
                     // Compute the aggregate for that group.
-                    final IBindingSet bset = aggregate(m.solutions);
+                    final IBindingSet bset = aggregate(m.solutions,
+                            rewrite.getAggExpr());
 
                     if (bset != null) {
 
@@ -419,8 +782,6 @@ public class MemoryGroupByOp extends GroupByOp {
 
                         accepted.add(bset);
 
-                        naccepted++;
-
                     } else {
 
                         if (log.isDebugEnabled())
@@ -428,12 +789,14 @@ public class MemoryGroupByOp extends GroupByOp {
                         
                     }
 
-                } else {
+                } else if (partitions.length == 1) {
 
                     /*
                      * Group the solutions.
                      */
                     
+                    final Partition p = partitions[0];
+
                     while (itr.hasNext()) {
 
                         final IBindingSet[] a = itr.next();
@@ -443,48 +806,58 @@ public class MemoryGroupByOp extends GroupByOp {
 
                         for (IBindingSet bset : a) {
 
-                            accept(bset);
+                            final IConstant<?>[] vals = asBound(bset);
+
+                            if (vals != null)
+                                p.accept(vals, bset);
 
                         }
 
                     }
 
-                    for (Map.Entry<SolutionGroup, SolutionMultiSet> e : map
-                            .entrySet()) {
+                    p.output(accepted);
 
-                        final SolutionMultiSet m = e.getValue();
+                } else {
 
-                        // Compute the aggregate for that group.
-                        final IBindingSet bset = aggregate(m.solutions);
+                    /*
+                     * Hash partition the solutions on the GROUP_BY keys, then
+                     * group and aggregate the partitions in parallel.
+                     */
 
-                        if (bset != null) {
-                            
-                            if (log.isDebugEnabled())
-                                log.debug("output: groupBy=" + e.getKey()
-                                        + ", solution=" + bset);
+                    while (itr.hasNext()) {
 
-                            accepted.add(bset);
+                        final IBindingSet[] a = itr.next();
+
+                        stats.chunksIn.increment();
+                        stats.unitsIn.add(a.length);
+
+                        for (IBindingSet bset : a) {
+
+                            final IConstant<?>[] vals = asBound(bset);
+
+                            if (vals != null) {
+
+                                final Partition p = partitions[getPartition(vals)];
+
+                                p.pendingVals.add(vals);
+
+                                p.pending.add(bset);
+
+                            }
 
-                            naccepted++;
-                            
-                        } else {
-                            
-                            if (log.isDebugEnabled())
-                                log.debug("output: groupBy=" + e.getKey()
-                                        + " : dropped.");
-                            
                         }
 
                     }
 
-                    // discard the map.
-                    map.clear();
+                    runPartitions(accepted);
 
                 }
 
                 /*
                  * Output the aggregated bindings for the accepted solutions.
                  */
+                final int naccepted = accepted.size();
+
                 if (naccepted > 0) {
 
                     final IBindingSet[] b = accepted
@@ -511,11 +884,17 @@ public class MemoryGroupByOp extends GroupByOp {
         /**
          * Compute the aggregate solution for a solution multiset (aka a group).
          * 
+         * @param solutions
+         *            The solutions in the group.
+         * @param aggExpr
+         *            The aggregates to be computed.
+         * 
          * @return The aggregate solution -or- <code>null</code> if the solution
          *         for the group was dropped (type error or violated HAVING
          *         constraint).
          */
-        private IBindingSet aggregate(final Iterable<IBindingSet> solutions) {
+        private IBindingSet aggregate(final Iterable<IBindingSet> solutions,
+                final LinkedHashMap<IAggregate<?>, IVariable<?>> aggExpr) {
             /**
              * The intermediate solution with all bindings produced when
              * evaluating this solution group. Evaluation begins by binding any
@@ -609,8 +988,8 @@ public class MemoryGroupByOp extends GroupByOp {
 
                 final boolean nestedAggregates = groupByState.isNestedAggregates();
                 
-                final Iterator<Map.Entry<IAggregate<?>, IVariable<?>>> itr = rewrite
-                        .getAggExpr().entrySet().iterator();
+                final Iterator<Map.Entry<IAggregate<?>, IVariable<?>>> itr = aggExpr
+                        .entrySet().iterator();
 
                 while (itr.hasNext()) {
                 
@@ -0,0 +1,376 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.bop.solutions;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.solutions.PipelinedAggregationOp.SolutionGroup;
+import com.bigdata.bop.solutions.PipelinedAggregationOp.SolutionGroupState;
+import com.bigdata.rdf.error.SparqlTypeErrorException;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A streaming aggregation operator for solutions which arrive ordered on the
+ * GROUP_BY value expressions. Only the current group is held in memory. Each
+ * group is finalized and written onto the sink as soon as a solution for a
+ * different group is observed, so memory use does not depend on the #of
+ * groups and the first groups are reported before the input is exhausted.
+ * <p>
+ * The same restrictions apply as for the {@link PipelinedAggregationOp} (no
+ * DISTINCT, no nested aggregates). In addition, all solutions for a group MUST
+ * be contiguous in the input. If a group is observed again after a solution
+ * for another group, then it will be reported more than once. The query
+ * planner only uses this operator when static analysis shows that the input is
+ * ordered on the GROUP_BY variables.
+ * <p>
+ * When there is no GROUP_BY clause, all solutions belong to a single implicit
+ * group and this operator behaves exactly like the
+ * {@link PipelinedAggregationOp}.
+ * 
+ * @see com.bigdata.rdf.sparql.ast.StaticAnalysis#getOrderedVariables(com.bigdata.rdf.sparql.ast.QueryBase)
+ */
+public class OrderedGroupByOp extends PipelinedAggregationOp {
+
+    private final static transient Logger log = Logger
+            .getLogger(OrderedGroupByOp.class);
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends PipelinedAggregationOp.Annotations {
+
+    }
+
+    /**
+     * Deep copy constructor.
+     */
+    public OrderedGroupByOp(final OrderedGroupByOp op) {
+        super(op);
+    }
+
+    /**
+     * Required shallow copy constructor.
+     */
+    public OrderedGroupByOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        final IGroupByState groupByState = (IGroupByState) getRequiredProperty(Annotations.GROUP_BY_STATE);
+
+        if (groupByState.getGroupByClause() == null) {
+
+            // A single implicit group.
+            return super.eval(context);
+
+        }
+
+        return new FutureTask<Void>(new ChunkTask(this, context));
+
+    }
+
+    /**
+     * Shared execution state for the {@link OrderedGroupByOp}. This is the
+     * group which was open at the end of the previous invocation.
+     */
+    private static class SharedState {
+
+        /**
+         * The current group (if any).
+         */
+        private SolutionGroup group;
+
+        /**
+         * The state for the current group (if any).
+         */
+        private SolutionGroupState groupState;
+
+    }
+
+    /**
+     * Task executing on the node.
+     */
+    static private class ChunkTask implements Callable<Void> {
+
+        private final BOpContext<IBindingSet> context;
+
+        private final SharedState sharedState;
+
+        private final IGroupByState groupByState;
+
+        private final IGroupByRewriteState rewrite;
+
+        private final IValueExpression<?>[] groupBy;
+
+        private final Object sharedStateKey;
+
+        private final BOpStats stats;
+
+        ChunkTask(final OrderedGroupByOp op,
+                final BOpContext<IBindingSet> context) {
+
+            this.context = context;
+
+            this.sharedStateKey = op.getId();
+
+            this.stats = context.getStats();
+
+            this.groupByState = (IGroupByState) op
+                    .getRequiredProperty(Annotations.GROUP_BY_STATE);
+
+            this.rewrite = (IGroupByRewriteState) op
+                    .getRequiredProperty(Annotations.GROUP_BY_REWRITE);
+
+            this.groupBy = groupByState.getGroupByClause();
+
+            /*
+             * Note: The operator is single threaded so there is no data race
+             * for the shared state.
+             */
+            SharedState tmp = (SharedState) context.getRunningQuery()
+                    .getAttributes().get(sharedStateKey);
+
+            if (tmp == null) {
+
+                tmp = new SharedState();
+
+                context.getRunningQuery().getAttributes()
+                        .put(sharedStateKey, tmp);
+
+            }
+
+            this.sharedState = tmp;
+
+        }
+
+        /**
+         * Discard the shared state (this can not be discarded until the last
+         * invocation).
+         */
+        private void release() {
+
+            context.getRunningQuery().getAttributes().remove(sharedStateKey);
+
+        }
+
+        /**
+         * Update the state of the {@link com.bigdata.bop.aggregate.IAggregate}s
+         * for the group of the solution. If the solution begins a new group,
+         * then the current group is finalized first.
+         * 
+         * @param bset
+         *            The solution.
+         * @param outList
+         *            The output solutions.
+         */
+        private void accept(final IBindingSet bset,
+                final List<IBindingSet> outList) {
+
+            final SolutionGroup s = SolutionGroup.newInstance(groupBy, bset,
+                    stats);
+
+            if (s == null) {
+
+                // Drop the solution.
+
+                if (log.isDebugEnabled())
+                    log.debug("Dropping solution: " + bset);
+
+                return;
+
+            }
+
+            if (sharedState.group == null || !sharedState.group.equals(s)) {
+
+                // Close the current group.
+                closeGroup(outList);
+
+                sharedState.group = s;
+
+                sharedState.groupState = new SolutionGroupState(groupBy,
+                        rewrite.getAggExpr(), bset);
+
+            }
+
+            // Accept the solution.
+            if (log.isTraceEnabled())
+                log.trace("Accepting solution: " + bset);
+
+            // Update the aggregates.
+            doAggregate(sharedState.groupState.aggExpr, bset, stats);
+
+        }
+
+        /**
+         * Finalize the current group (if any) and add its solution to the
+         * output iff the optional HAVING constraint(s) are satisfied.
+         * 
+         * @param outList
+         *            The output solutions.
+         */
+        private void closeGroup(final List<IBindingSet> outList) {
+
+            final SolutionGroupState groupState = sharedState.groupState;
+
+            if (groupState == null)
+                return;
+
+            sharedState.group = null;
+
+            sharedState.groupState = null;
+
+            final IBindingSet aggregates = groupState.aggregates;
+
+            // Finalize and bind on [aggregates].
+            finalizeAggregates(groupState.aggExpr, aggregates, stats);
+
+            // Evaluate SELECT expressions.
+            for (IValueExpression<?> expr : rewrite.getSelect2()) {
+
+                try {
+                    expr.get(aggregates);
+                } catch (SparqlTypeErrorException ex) {
+                    TypeErrorLog.handleTypeError(ex, expr, stats);
+                    continue;
+                } catch (IllegalArgumentException ex) {
+                    /*
+                     * Note: See PipelinedAggregationOp. This is presumed to
+                     * be new Constant(null) and is treated as an (implicit)
+                     * SPARQL type error for this SELECT expression.
+                     */
+                    TypeErrorLog.handleTypeError(ex, expr, stats);
+                    continue;
+                }
+
+            }
+
+            // Verify optional HAVING constraint(s)
+            final IConstraint[] having2 = rewrite.getHaving2();
+
+            final boolean drop = having2 != null
+                    && !BOpUtility.isConsistent(having2, aggregates);
+
+            if (log.isInfoEnabled())
+                log.info((drop ? "drop" : "keep") + " : " + aggregates);
+
+            if (!drop) {
+
+                // project out only selected variables.
+                outList.add(aggregates.copy(groupByState.getSelectVars()
+                        .toArray(new IVariable[0])));
+
+            }
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final ICloseableIterator<IBindingSet[]> itr = context
+                    .getSource();
+
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            try {
+
+                // The solutions to be written onto the sink.
+                final List<IBindingSet> outList = new LinkedList<IBindingSet>();
+
+                while (itr.hasNext()) {
+
+                    final IBindingSet[] a = itr.next();
+
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(a.length);
+
+                    for (IBindingSet bset : a) {
+
+                        accept(bset, outList);
+
+                    }
+
+                }
+
+                if (context.isLastInvocation()) {
+
+                    // Close the last group.
+                    closeGroup(outList);
+
+                    // Discard the shared state.
+                    release();
+
+                }
+
+                if (!outList.isEmpty()) {
+
+                    // Write the solutions onto the sink.
+                    sink.add(outList.toArray(new IBindingSet[0]));
+
+                    sink.flush();
+
+                }
+
+                // done.
+                return null;
+
+            } finally {
+
+                sink.close();
+
+            }
+
+        }
+
+    }
+
+}
@@ -181,7 +181,7 @@ public class PipelinedAggregationOp extends GroupByOp implements
     /**
      * Wrapper used for the solution groups.
      */
-    private static class SolutionGroup {
+    static class SolutionGroup {
 
         /** The hash code for {@link #vals}. */
         private final int hash;
@@ -284,13 +284,13 @@ public class PipelinedAggregationOp extends GroupByOp implements
      * State associated with each {@link SolutionGroup} (this is not used if all
      * solutions belong to a single implicit group).
      */
-    private static class SolutionGroupState {
+    static class SolutionGroupState {
         
         /**
          * The aggregate expressions to be evaluated. The {@link IAggregate}s
          * MUST have been cloned to avoid side-effect across groups.
          */
-        private final LinkedHashMap<IAggregate<?>, IVariable<?>> aggExpr;
+        final LinkedHashMap<IAggregate<?>, IVariable<?>> aggExpr;
 
         /**
          * The intermediate solution with all bindings produced when evaluating
@@ -298,7 +298,7 @@ public class PipelinedAggregationOp extends GroupByOp implements
          * by the GROUP_BY clause are projected onto {@link #aggregates} by 
          * the constructor.
          */
-        private final IBindingSet aggregates;
+        final IBindingSet aggregates;
 
         /**
          * 
@@ -857,7 +857,7 @@ public class PipelinedAggregationOp extends GroupByOp implements
      * @param stats
      *            Used to report type errors.
      */
-    static private void doAggregate(
+    static void doAggregate(
             final LinkedHashMap<IAggregate<?>, IVariable<?>> aggExpr,
             final IBindingSet bset,
             final BOpStats stats) {
@@ -900,7 +900,7 @@ public class PipelinedAggregationOp extends GroupByOp implements
      * @param aggregates
      *            The binding set where the aggregates will become bound.
      */
-    static private void finalizeAggregates(
+    static void finalizeAggregates(
             final LinkedHashMap<IAggregate<?>, IVariable<?>> aggExpr,
             final IBindingSet aggregates,
             final BOpStats stats) {
@@ -0,0 +1,297 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.HashMapAnnotations;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IQueryAttributes;
+import com.bigdata.bop.ISingleThreadedOp;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.join.SpillingDistinctFilter;
+import com.bigdata.rawstore.Bytes;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.UnsyncLocalOutputBuffer;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A DISTINCT operator for very large result sets. Solutions are tracked in an
+ * in-memory hash table of packed {@link com.bigdata.rdf.internal.IV}s and
+ * passed on as soon as they are known to be distinct. Once the hash table
+ * exceeds {@link Annotations#MAX_HEAP_BYTES}, it is written onto the query's
+ * {@link com.bigdata.rwstore.sector.IMemoryManager} as a sorted run and the
+ * remaining distinct solutions are only emitted on the last pass by merging
+ * the sorted runs. Unlike {@link JVMDistinctBindingSetsOp}, the heap used by
+ * this operator is bounded. Unlike {@link HTreeDistinctBindingSetsOp}, no
+ * index is maintained on the native heap and nothing is written there until
+ * the heap budget is exhausted.
+ * <p>
+ * Note: This operator does not preserve the order of the solutions.
+ * 
+ * @see SpillingDistinctFilter
+ */
+public class SpillingDistinctBindingSetsOp extends PipelineOp implements
+        ISingleThreadedOp {
+
+    private final static transient Logger log = Logger
+            .getLogger(SpillingDistinctBindingSetsOp.class);
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends PipelineOp.Annotations,
+            HashMapAnnotations, DistinctAnnotations {
+
+        /**
+         * The maximum #of bytes for the in-memory hash table before it is
+         * spilled onto the memory manager.
+         */
+        String MAX_HEAP_BYTES = SpillingDistinctBindingSetsOp.class.getName()
+                + ".maxHeapBytes";
+
+        long DEFAULT_MAX_HEAP_BYTES = 64 * Bytes.megabyte;
+
+    }
+
+    /**
+     * Constructor required for {@link com.bigdata.bop.BOpUtility#deepCopy(FilterNode)}.
+     */
+    public SpillingDistinctBindingSetsOp(final SpillingDistinctBindingSetsOp op) {
+        super(op);
+    }
+
+    /**
+     * Required shallow copy constructor.
+     */
+    public SpillingDistinctBindingSetsOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        switch (getEvaluationContext()) {
+        case CONTROLLER:
+            break;
+        default:
+            throw new UnsupportedOperationException(
+                    Annotations.EVALUATION_CONTEXT + "="
+                            + getEvaluationContext());
+        }
+
+        // The spilled solutions are emitted on the last pass.
+        if (!isLastPassRequested()) {
+            throw new UnsupportedOperationException(Annotations.LAST_PASS
+                    + "=" + isLastPassRequested());
+        }
+
+        // The filter is not thread-safe.
+        assertMaxParallelOne();
+
+        final IVariable<?>[] vars = (IVariable[]) getProperty(Annotations.VARIABLES);
+
+        if (vars == null || vars.length == 0)
+            throw new IllegalArgumentException();
+
+        if (getMaxHeapBytes() <= 0)
+            throw new IllegalArgumentException(Annotations.MAX_HEAP_BYTES
+                    + "=" + getMaxHeapBytes());
+
+    }
+
+    public SpillingDistinctBindingSetsOp(final BOp[] args, NV... annotations) {
+
+        this(args, NV.asMap(annotations));
+
+    }
+
+    /**
+     * @see Annotations#INITIAL_CAPACITY
+     */
+    public int getInitialCapacity() {
+
+        return getProperty(Annotations.INITIAL_CAPACITY,
+                Annotations.DEFAULT_INITIAL_CAPACITY);
+
+    }
+
+    /**
+     * @see Annotations#LOAD_FACTOR
+     */
+    public float getLoadFactor() {
+
+        return getProperty(Annotations.LOAD_FACTOR,
+                Annotations.DEFAULT_LOAD_FACTOR);
+
+    }
+
+    /**
+     * @see Annotations#MAX_HEAP_BYTES
+     */
+    public long getMaxHeapBytes() {
+
+        return getProperty(Annotations.MAX_HEAP_BYTES,
+                Annotations.DEFAULT_MAX_HEAP_BYTES);
+
+    }
+
+    /**
+     * @see Annotations#VARIABLES
+     */
+    public IVariable<?>[] getVariables() {
+
+        return (IVariable<?>[]) getRequiredProperty(Annotations.VARIABLES);
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        return new FutureTask<Void>(new DistinctTask(this, context));
+
+    }
+
+    /**
+     * Task executing on the node.
+     */
+    static private class DistinctTask implements Callable<Void> {
+
+        private final BOpContext<IBindingSet> context;
+
+        private final int chunkCapacity;
+
+        /**
+         * The {@link IQueryAttributes} for the
+         * {@link com.bigdata.bop.engine.IRunningQuery} off which we hang the
+         * filter.
+         */
+        private final IQueryAttributes attrs;
+
+        /**
+         * The name of the key under which the {@link #filter} is stored in the
+         * {@link IQueryAttributes}.
+         */
+        private final String key;
+
+        private final SpillingDistinctFilter filter;
+
+        DistinctTask(final SpillingDistinctBindingSetsOp op,
+                final BOpContext<IBindingSet> context) {
+
+            this.context = context;
+
+            this.chunkCapacity = op.getChunkCapacity();
+
+            this.attrs = context.getQueryAttributes();
+
+            this.key = Integer.toString(op.getId());
+
+            SpillingDistinctFilter filter = (SpillingDistinctFilter) attrs
+                    .get(key);
+
+            if (filter == null) {
+
+                filter = new SpillingDistinctFilter(op.getVariables(),
+                        op.getInitialCapacity(), op.getLoadFactor(),
+                        op.getMaxHeapBytes(), context.getRunningQuery()
+                                .getMemoryManager());
+
+                if (attrs.putIfAbsent(key, filter) != null)
+                    throw new AssertionError();
+
+            }
+
+            this.filter = filter;
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final ICloseableIterator<IBindingSet[]> itr = context.getSource();
+
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            final boolean lastInvocation = context.isLastInvocation();
+
+            try {
+
+                final UnsyncLocalOutputBuffer<IBindingSet> unsyncBuffer = new UnsyncLocalOutputBuffer<IBindingSet>(
+                        chunkCapacity, sink);
+
+                filter.filterSolutions(itr, context.getStats(), unsyncBuffer);
+
+                if (lastInvocation) {
+
+                    filter.outputSpilledSolutions(unsyncBuffer);
+
+                    if (log.isInfoEnabled())
+                        log.info("runs=" + filter.getRunCount()
+                                + ", spilledKeys="
+                                + filter.getSpilledKeyCount());
+
+                }
+
+                unsyncBuffer.flush();
+
+                sink.flush();
+
+                // done.
+                return null;
+
+            } finally {
+
+                if (lastInvocation) {
+
+                    // Discard the operator's internal state.
+                    filter.release();
+
+                    attrs.remove(key);
+
+                }
+
+                sink.close();
+
+            }
+
+        }
+
+    }
+
+}
@@ -3251,6 +3251,260 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
         
     }
 
+    /**
+     * Visit the tuples in each of a sequence of key ranges using a single
+     * {@link ILeafCursor}. Unlike issuing one {@link ITupleIterator} per key
+     * range, the cursor is only positioned by a descent from the root when the
+     * <i>fromKey</i> of the next key range does not fall within the current
+     * leaf or its right sibling. When the key ranges are ordered by
+     * <i>fromKey</i> and clustered, most of them are located by a binary
+     * search within a leaf which is already in hand.
+     * <p>
+     * Deleted tuples are not visited.
+     * 
+     * @param fromKeys
+     *            The inclusive lower bound of each key range. A
+     *            <code>null</code> element means the first key in the index.
+     *            The key ranges SHOULD be ordered by <i>fromKey</i>, but this
+     *            is not required for correctness.
+     * @param toKeys
+     *            The exclusive upper bound of each key range. A
+     *            <code>null</code> element means that there is no upper bound.
+     * @param flags
+     *            The {@link IRangeQuery} flags used to materialize the tuples.
+     * @param visitor
+     *            Invoked for each tuple in each key range.
+     * 
+     * @return The #of times that the cursor was positioned by a descent from
+     *         the root of the index.
+     * 
+     * @throws IllegalArgumentException
+     *             if any argument is <code>null</code>.
+     * @throws IllegalArgumentException
+     *             if <i>fromKeys</i> and <i>toKeys</i> do not have the same
+     *             length.
+     */
+    public long multiKeyProbe(final byte[][] fromKeys, final byte[][] toKeys,
+            final int flags, final IMultiKeyProbeVisitor visitor) {
+
+        if (fromKeys == null)
+            throw new IllegalArgumentException();
+
+        if (toKeys == null)
+            throw new IllegalArgumentException();
+
+        if (fromKeys.length != toKeys.length)
+            throw new IllegalArgumentException();
+
+        if (visitor == null)
+            throw new IllegalArgumentException();
+
+        final Tuple tuple = new Tuple(this, flags);
+
+        ILeafCursor<?> cursor = null;
+
+        /*
+         * When non-null, all keys in the leaves before the current leaf are
+         * known to be LT this key (it is the toKey of the last key range to
+         * have been scanned).
+         */
+        byte[] bound = null;
+
+        long ndescents = 0;
+
+        for (int i = 0; i < fromKeys.length; i++) {
+
+            final byte[] fromKey = fromKeys[i];
+
+            final byte[] toKey = toKeys[i];
+
+            if (fromKey != null && toKey != null
+                    && BytesUtil.compareBytes(fromKey, toKey) >= 0) {
+
+                // empty key range.
+                continue;
+
+            }
+
+            final byte[] lowerBound = bound;
+
+            bound = null;
+
+            Leaf leaf = null;
+
+            int index = -1;
+
+            if (fromKey == null) {
+
+                if (cursor == null) {
+                    cursor = newLeafCursor(SeekEnum.First);
+                    leaf = cursor.leaf();
+                } else {
+                    leaf = cursor.first();
+                }
+
+                ndescents++;
+
+                index = 0;
+
+            } else if (cursor != null) {
+
+                /*
+                 * Try to locate the fromKey in the current leaf or its right
+                 * sibling without a descent from the root.
+                 */
+
+                leaf = cursor.leaf();
+
+                final int nkeys = leaf.getKeyCount();
+
+                final int pos = leaf.getKeys().search(fromKey);
+
+                final int ins = pos >= 0 ? pos : -pos - 1;
+
+                if (ins == nkeys) {
+
+                    // fromKey is GT the last key in this leaf.
+                    leaf = cursor.next();
+
+                    if (leaf == null) {
+
+                        // Nothing follows fromKey in the index.
+                        continue;
+
+                    }
+
+                    final int pos2 = leaf.getKeys().search(fromKey);
+
+                    final int ins2 = pos2 >= 0 ? pos2 : -pos2 - 1;
+
+                    if (ins2 < leaf.getKeyCount()) {
+
+                        // found in the right sibling.
+                        index = ins2;
+
+                    }
+
+                } else if (pos >= 0
+                        || ins > 0
+                        || (lowerBound != null && BytesUtil.compareBytes(
+                                lowerBound, fromKey) <= 0)) {
+
+                    // found in this leaf.
+                    index = ins;
+
+                }
+
+                /*
+                 * Otherwise fromKey is LT the first key in this leaf and we do
+                 * not know whether it belongs to a prior leaf.
+                 */
+
+            }
+
+            if (index == -1) {
+
+                // descend from the root.
+                if (cursor == null) {
+                    cursor = newLeafCursor(fromKey);
+                    leaf = cursor.leaf();
+                } else {
+                    leaf = cursor.seek(fromKey);
+                }
+
+                ndescents++;
+
+                final int pos = leaf.getKeys().search(fromKey);
+
+                index = pos >= 0 ? pos : -pos - 1;
+
+                if (index == leaf.getKeyCount()) {
+
+                    // The successor of fromKey is in the next leaf (if any).
+                    leaf = cursor.next();
+
+                    if (leaf == null) {
+
+                        // Nothing follows fromKey in the index.
+                        continue;
+
+                    }
+
+                    index = 0;
+
+                }
+
+            }
+
+            /*
+             * Scan the key range.
+             */
+            while (true) {
+
+                final int nkeys = leaf.getKeyCount();
+
+                int end = nkeys;
+
+                if (toKey != null) {
+
+                    final int pos = leaf.getKeys().search(toKey);
+
+                    end = pos >= 0 ? pos : -pos - 1;
+
+                }
+
+                final boolean hasDeleteMarkers = leaf.hasDeleteMarkers();
+
+                for (int j = index; j < end; j++) {
+
+                    if (hasDeleteMarkers && leaf.getDeleteMarker(j)) {
+
+                        // skip deleted tuple.
+                        continue;
+
+                    }
+
+                    tuple.copy(j, leaf);
+
+                    if (!visitor.visit(i, tuple)) {
+
+                        // halted by the visitor.
+                        return ndescents;
+
+                    }
+
+                }
+
+                if (end < nkeys) {
+
+                    // end of the key range.
+                    bound = toKey;
+
+                    break;
+
+                }
+
+                final Leaf next = cursor.next();
+
+                if (next == null) {
+
+                    // end of the index.
+                    break;
+
+                }
+
+                leaf = next;
+
+                index = 0;
+
+            }
+
+        }
+
+        return ndescents;
+
+    }
+
     /**
      * Return a cursor that may be used to efficiently locate and scan the
      * leaves in the B+Tree. The cursor will be initially positioned on the leaf
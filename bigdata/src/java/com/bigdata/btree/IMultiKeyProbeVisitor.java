@@ -0,0 +1,52 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.btree;
+
+/**
+ * Visitor for the tuples located by
+ * {@link AbstractBTree#multiKeyProbe(byte[][], byte[][], int, IMultiKeyProbeVisitor)}.
+ */
+public interface IMultiKeyProbeVisitor {
+
+    /**
+     * Visit a tuple.
+     * 
+     * @param index
+     *            The index of the key range in which the tuple was found.
+     * @param tuple
+     *            The tuple. The same instance is reused for each tuple
+     *            visited, so the caller must copy out any data which it needs
+     *            to retain.
+     * 
+     * @return <code>true</code> to continue the probe and <code>false</code>
+     *         to halt the probe without visiting any more tuples.
+     */
+    boolean visit(int index, ITuple<?> tuple);
+
+}
@@ -29,9 +29,11 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
@@ -214,6 +216,21 @@ abstract public class QuorumPipelineImpl<S extends HAPipelineGlue> /*extends
         
     }
 
+    /**
+     * When <code>true</code>, the leader sends each message and payload
+     * directly to every follower in parallel rather than to the first follower
+     * which then relays it along the chained write pipeline. The followers do
+     * not relay in this mode, so the commit latency no longer grows with the
+     * length of the pipeline. The default returns <code>false</code>.
+     * <p>
+     * Note: This MUST return the same value on all services in the quorum.
+     */
+    protected boolean isParallelSend() {
+
+        return false;
+
+    }
+
     /**
      * The {@link QuorumMember}.
      */
@@ -238,6 +255,14 @@ abstract public class QuorumPipelineImpl<S extends HAPipelineGlue> /*extends
     /** send service (iff this is the leader). */
     private HASendService sendService;
 
+    /**
+     * The send services used by the leader for the followers other than the
+     * first follower when {@link #isParallelSend()}. The first follower is
+     * always reached through the {@link #sendService}. Entries are created
+     * lazily and are guarded by the {@link #lock}.
+     */
+    private final Map<UUID, HASendService> parallelSendServices = new HashMap<UUID, HASendService>();
+
     /**
      * The receive service (iff this is a follower in a met quorum).
      */
@@ -641,11 +666,16 @@ abstract public class QuorumPipelineImpl<S extends HAPipelineGlue> /*extends
                      * Reconfigure the receive service to change how it is
                      * relaying (we were relaying, so the receiveService was
                      * running but not the sendService).
+                     * 
+                     * Note: Followers do not relay if the leader sends in
+                     * parallel.
                      */
+                    final InetSocketAddress addrRelay = isParallelSend() ? null
+                            : addrNext;
                     if (log.isDebugEnabled())
                         log.debug("receiveService.changeDownStream(): addrNext="
-                                + addrNext);
-                    receiveService.changeDownStream(addrNext);
+                                + addrRelay);
+                    receiveService.changeDownStream(addrRelay);
                 }
                 // populate and/or clear the cache.
                 pipelineStateRef.set(nextState);
@@ -664,10 +694,14 @@ abstract public class QuorumPipelineImpl<S extends HAPipelineGlue> /*extends
             super.pipelineUpstreamChange();
             lock.lock();
             try {
-                if (receiveService != null) {
+                if (receiveService != null && !isParallelSend()) {
                     /*
                      * Make sure that the receiveService closes out its client
                      * connection with the old upstream service.
+                     * 
+                     * Note: If the leader sends in parallel then the leader is
+                     * always the upstream service and the connection remains
+                     * valid.
                      */
                     if (log.isInfoEnabled())
                         log.info("receiveService=" + receiveService);
@@ -745,6 +779,10 @@ abstract public class QuorumPipelineImpl<S extends HAPipelineGlue> /*extends
                         sendService.terminate();
                         sendService = null;
                     }
+                    for (HASendService s : parallelSendServices.values()) {
+                        s.terminate();
+                    }
+                    parallelSendServices.clear();
                 }
                 /*
                  * Follower tear down.
@@ -894,8 +932,9 @@ abstract public class QuorumPipelineImpl<S extends HAPipelineGlue> /*extends
 //                        : member.getService(downstreamId).getWritePipelineAddr();
 //                final InetSocketAddress addrNext = getAddrNext(downstreamId);
                 final PipelineState<S> nextServiceState = getAddrNext(downstreamId);
-                final InetSocketAddress addrNext = nextServiceState == null ? null
-                        : nextServiceState.addr;
+                // Note: Followers do not relay if the leader sends in parallel.
+                final InetSocketAddress addrNext = nextServiceState == null
+                        || isParallelSend() ? null : nextServiceState.addr;
                 // Setup the receive service.
                 receiveService = new HAReceiveService<HAMessageWrapper>(
                         addrSelf, addrNext,
@@ -1737,6 +1776,22 @@ abstract public class QuorumPipelineImpl<S extends HAPipelineGlue> /*extends
 
                 final ByteBuffer b = this.b.duplicate();
 
+                if (isParallelSend()) {
+
+                    final UUID[] pipeline = member.getQuorum().getPipeline();
+
+                    if (pipeline.length > 2) {
+
+                        // More than one follower: send to each directly.
+                        sendParallel(quorumToken, req, snd, msg, b,
+                                downstream, sendService, pipeline);
+
+                        return;
+
+                    }
+
+                }
+
                 new SendBufferTask<S>(member, quorumToken, req, snd, msg, b,
                         downstream, sendService, QuorumPipelineImpl.this,
                         sendLock).call();
@@ -1918,123 +1973,290 @@ abstract public class QuorumPipelineImpl<S extends HAPipelineGlue> /*extends
         private void doRunWithLock() throws InterruptedException,
                 ExecutionException, IOException {
 
+            try {
+                doSend();
+            } catch (Throwable t) {
+                launderPipelineException(true/* isLeader */, token, member, outerClass, t);
+            }
+        }
+
+        /**
+         * Send the buffer and await the outcome of both the local send and the
+         * remote receive. Errors are thrown to the caller without being
+         * laundered.
+         */
+        private void doSend() throws Exception {
+
             // Get Future for send() outcome on local service.
             final Future<Void> futLoc = sendService.send(b, snd.getMarker());
             try {
-                try {
 
-                    // Get Future for receive outcome on the remote service
-                    // (RMI).
-                    final Future<Void> futRmt;
-                    try {
-                        futRmt = downstream.service.receiveAndReplicate(req,
-                                snd, msg);
-                    } catch (IOException ex) { // RMI error.
-                        throw new ImmediateDownstreamReplicationException(ex);
-                    }
+                // Get Future for receive outcome on the remote service
+                // (RMI).
+                final Future<Void> futRmt;
+                try {
+                    futRmt = downstream.service.receiveAndReplicate(req,
+                            snd, msg);
+                } catch (IOException ex) { // RMI error.
+                    throw new ImmediateDownstreamReplicationException(ex);
+                }
 
-                    try {
+                try {
 
+                    /*
+                     * Await the Futures, but spend more time waiting on the
+                     * local Future and only check the remote Future every
+                     * second. Timeouts are ignored during this loop - they
+                     * are used to let us wait longer on the local Future
+                     * than on the remote Future. ExecutionExceptions are
+                     * also ignored. We want to continue this loop until
+                     * both Futures are done. Interrupts are not trapped, so
+                     * an interrupt will still exit the loop.
+                     * 
+                     * It appears that it is possible for futSnd to be
+                     * blocked and not generate an error. If we do not exit
+                     * the loop and check the futRec future in this case
+                     * then we coul loop continuously. This does rather beg
+                     * the question of whether we should only be checking
+                     * futRec at this stage.
+                     * 
+                     * Note: [futRmt] is currently a ThickFuture to avoid
+                     * historical problems with DGC and is already done by
+                     * the time the RMI returns that ThickFuture to us.
+                     * Therefore the loop below can be commented out. All we
+                     * are really doing is waiting on futSnd and verifying
+                     * that the [token] remains valid.
+                     */
+                    while ((!futLoc.isDone() || !futRmt.isDone())) {
                         /*
-                         * Await the Futures, but spend more time waiting on the
-                         * local Future and only check the remote Future every
-                         * second. Timeouts are ignored during this loop - they
-                         * are used to let us wait longer on the local Future
-                         * than on the remote Future. ExecutionExceptions are
-                         * also ignored. We want to continue this loop until
-                         * both Futures are done. Interrupts are not trapped, so
-                         * an interrupt will still exit the loop.
-                         * 
-                         * It appears that it is possible for futSnd to be
-                         * blocked and not generate an error. If we do not exit
-                         * the loop and check the futRec future in this case
-                         * then we coul loop continuously. This does rather beg
-                         * the question of whether we should only be checking
-                         * futRec at this stage.
-                         * 
-                         * Note: [futRmt] is currently a ThickFuture to avoid
-                         * historical problems with DGC and is already done by
-                         * the time the RMI returns that ThickFuture to us.
-                         * Therefore the loop below can be commented out. All we
-                         * are really doing is waiting on futSnd and verifying
-                         * that the [token] remains valid.
+                         * Make sure leader's quorum token remains valid for
+                         * ALL writes.
                          */
-                        while ((!futLoc.isDone() || !futRmt.isDone())) {
+                        member.assertLeader(token);
+                        try {
+                            futLoc.get(500L, TimeUnit.MILLISECONDS);
+                        } catch (TimeoutException ignore) {
+                        } catch (ExecutionException ignore) {
                             /*
-                             * Make sure leader's quorum token remains valid for
-                             * ALL writes.
+                             * Try the other Future with timeout and cancel
+                             * if not done.
                              */
-                            member.assertLeader(token);
                             try {
-                                futLoc.get(500L, TimeUnit.MILLISECONDS);
-                            } catch (TimeoutException ignore) {
-                            } catch (ExecutionException ignore) {
-                                /*
-                                 * Try the other Future with timeout and cancel
-                                 * if not done.
-                                 */
-                                try {
-                                    futRmt.get(500L, TimeUnit.MILLISECONDS);
-                                } catch(TimeoutException ex) { // Ignore.
-                                } catch(ExecutionException ex) { // Ignore.
-                                } finally {
-                                    futRmt.cancel(true/* mayInterruptIfRunning */);
-                                }
-                                /*
-                                 * Note: Both futures are DONE at this point.
-                                 */
+                                futRmt.get(500L, TimeUnit.MILLISECONDS);
+                            } catch(TimeoutException ex) { // Ignore.
+                            } catch(ExecutionException ex) { // Ignore.
+                            } finally {
+                                futRmt.cancel(true/* mayInterruptIfRunning */);
                             }
+                            /*
+                             * Note: Both futures are DONE at this point.
+                             */
+                        }
+                        try {
+                            futRmt.get(500L, TimeUnit.MILLISECONDS);
+                        } catch (TimeoutException ignore) {
+                        } catch (ExecutionException ignore) {
+                            /*
+                             * Try the other Future with timeout and cancel
+                             * if not done.
+                             */
                             try {
-                                futRmt.get(500L, TimeUnit.MILLISECONDS);
-                            } catch (TimeoutException ignore) {
-                            } catch (ExecutionException ignore) {
-                                /*
-                                 * Try the other Future with timeout and cancel
-                                 * if not done.
-                                 */
-                                try {
-                                    futLoc.get(500L, TimeUnit.MILLISECONDS);
-                                } catch(TimeoutException ex) { // Ignore.
-                                } catch(ExecutionException ex) { // Ignore.
-                                } finally {
-                                    futLoc.cancel(true/* mayInterruptIfRunning */);
-                                }
-                                /*
-                                 * Note: Both futures are DONE at this point.
-                                 */
+                                futLoc.get(500L, TimeUnit.MILLISECONDS);
+                            } catch(TimeoutException ex) { // Ignore.
+                            } catch(ExecutionException ex) { // Ignore.
+                            } finally {
+                                futLoc.cancel(true/* mayInterruptIfRunning */);
                             }
                             /*
                              * Note: Both futures are DONE at this point.
                              */
                         }
-                                                
                         /*
-                         * Note: We want to check the remote Future for the
-                         * downstream service first in order to accurately
-                         * report the service that was the source of a pipeline
-                         * replication problem.
+                         * Note: Both futures are DONE at this point.
                          */
-                        futRmt.get();
-                        futLoc.get();
-
-                    } finally {
-                        if (!futRmt.isDone()) {
-                            // cancel remote Future unless done.
-                            futRmt.cancel(true/* mayInterruptIfRunning */);
-                        }
                     }
+                                            
+                    /*
+                     * Note: We want to check the remote Future for the
+                     * downstream service first in order to accurately
+                     * report the service that was the source of a pipeline
+                     * replication problem.
+                     */
+                    futRmt.get();
+                    futLoc.get();
 
                 } finally {
-                    // cancel the local Future.
-                    futLoc.cancel(true/* mayInterruptIfRunning */);
+                    if (!futRmt.isDone()) {
+                        // cancel remote Future unless done.
+                        futRmt.cancel(true/* mayInterruptIfRunning */);
+                    }
                 }
-            } catch (Throwable t) {
-                launderPipelineException(true/* isLeader */, token, member, outerClass, t);
+
+            } finally {
+                // cancel the local Future.
+                futLoc.cancel(true/* mayInterruptIfRunning */);
             }
         }
         
     } // class SendBufferTask
 
+    /**
+     * Send a buffer from the leader to each follower in parallel. The first
+     * follower is reached through the {@link #sendService}. The other
+     * followers are reached through {@link #parallelSendServices}. The
+     * {@link #sendLock} is held until all followers have received the payload.
+     * <p>
+     * Note: The caller MUST hold the {@link #lock}.
+     * 
+     * @param pipeline
+     *            The current pipeline order. The leader is at index ZERO.
+     */
+    private void sendParallel(final long token, final IHASyncRequest req,
+            final IHASendState snd, final IHAWriteMessage msg,
+            final ByteBuffer b, final PipelineState<S> downstream,
+            final HASendService sendService, final UUID[] pipeline)
+            throws Exception {
+
+        sendLock.acquire();
+
+        try {
+
+            // Discard send services for followers that left the pipeline.
+            final Iterator<Map.Entry<UUID, HASendService>> itr = parallelSendServices
+                    .entrySet().iterator();
+
+            while (itr.hasNext()) {
+
+                final Map.Entry<UUID, HASendService> e = itr.next();
+
+                if (getIndex(e.getKey(), pipeline) < 2) {
+
+                    e.getValue().terminate();
+
+                    itr.remove();
+
+                }
+
+            }
+
+            final List<Future<Void>> futures = new LinkedList<Future<Void>>();
+
+            try {
+
+                for (int i = 1; i < pipeline.length; i++) {
+
+                    final UUID followerId = pipeline[i];
+
+                    final PipelineState<S> state;
+                    final HASendService svc;
+
+                    if (i == 1) {
+
+                        state = downstream;
+                        svc = sendService;
+
+                    } else {
+
+                        svc = getParallelSendService(followerId);
+                        state = new PipelineState<S>(
+                                member.getService(followerId),
+                                svc.getAddrNext());
+
+                    }
+
+                    final SendBufferTask<S> task = new SendBufferTask<S>(
+                            member, token, req, snd, msg, b.duplicate(),
+                            state, svc, this, sendLock);
+
+                    final FutureTask<Void> ft = new FutureTask<Void>(
+                            new Callable<Void>() {
+                                @Override
+                                public Void call() throws Exception {
+                                    try {
+                                        task.doSend();
+                                        return null;
+                                    } catch (Throwable t) {
+                                        /*
+                                         * Report the follower as the problem
+                                         * service.
+                                         */
+                                        throw new PipelineImmediateDownstreamReplicationException(
+                                                serviceId, new UUID[] { null,
+                                                        followerId }, t);
+                                    }
+                                }
+                            });
+
+                    futures.add(ft);
+
+                    member.getExecutor().execute(ft);
+
+                }
+
+                // Await all followers, reporting the first error (if any).
+                Throwable firstCause = null;
+
+                for (Future<Void> f : futures) {
+
+                    try {
+                        f.get();
+                    } catch (ExecutionException ex) {
+                        if (firstCause == null)
+                            firstCause = ex;
+                    }
+
+                }
+
+                if (firstCause != null)
+                    launderPipelineException(true/* isLeader */, token,
+                            member, this, firstCause);
+
+            } finally {
+
+                for (Future<Void> f : futures) {
+
+                    f.cancel(true/* mayInterruptIfRunning */);
+
+                }
+
+            }
+
+        } finally {
+
+            sendLock.release();
+
+        }
+
+    }
+
+    /**
+     * Return the {@link HASendService} used by the leader to send directly to
+     * the specified follower, starting it if necessary.
+     * <p>
+     * Note: The caller MUST hold the {@link #lock}.
+     */
+    private HASendService getParallelSendService(final UUID followerId) {
+
+        HASendService s = parallelSendServices.get(followerId);
+
+        if (s == null) {
+
+            // RMI to discover the write pipeline address of the follower.
+            final PipelineState<S> state = innerEventHandler
+                    .getAddrNext(followerId);
+
+            s = new HASendService();
+
+            s.start(state.addr);
+
+            parallelSendServices.put(followerId, s);
+
+        }
+
+        return s;
+
+    }
+
     /**
      * Launder an exception thrown during pipeline replication.
      * 
@@ -2369,10 +2591,11 @@ abstract public class QuorumPipelineImpl<S extends HAPipelineGlue> /*extends
             
             final HAReceiveService<HAMessageWrapper> receiveService = getHAReceiveService();
 
-            if (downstream == null) {
+            if (downstream == null || isParallelSend()) {
 
                 /*
-                 * This is the last service in the write pipeline, so just
+                 * This is the last service in the write pipeline (or the
+                 * leader is sending to each follower in parallel), so just
                  * receive the buffer.
                  * 
                  * Note: The receive service is executing this Future locally on
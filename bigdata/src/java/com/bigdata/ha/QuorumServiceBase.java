@@ -127,6 +127,13 @@ abstract public class QuorumServiceBase<S extends HAGlue, L extends AbstractJour
                 return QuorumServiceBase.this.getRetrySendTimeoutNanos();
                 
             }
+
+            @Override
+            protected boolean isParallelSend() {
+
+                return QuorumServiceBase.this.isParallelSend();
+
+            }
             
             @Override
             public UUID getStoreUUID() {
@@ -182,6 +189,19 @@ abstract public class QuorumServiceBase<S extends HAGlue, L extends AbstractJour
     
     abstract protected long getRetrySendTimeoutNanos();
 
+    /**
+     * Return <code>true</code> iff the leader should send write cache blocks
+     * to each follower in parallel rather than along the chained write
+     * pipeline. The default implementation returns <code>false</code>.
+     * 
+     * @see QuorumPipelineImpl#isParallelSend()
+     */
+    protected boolean isParallelSend() {
+
+        return false;
+
+    }
+
     @Override
     public S getService() {
         
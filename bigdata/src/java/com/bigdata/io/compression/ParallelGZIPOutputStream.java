@@ -0,0 +1,308 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.io.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.GZIPOutputStream;
+
+import com.bigdata.rawstore.Bytes;
+
+/**
+ * An {@link OutputStream} which compresses fixed size blocks of its input in
+ * parallel. Each block is written as a complete GZIP member. The output is a
+ * sequence of concatenated GZIP members, which is a valid GZIP file that may be
+ * read using a {@link java.util.zip.GZIPInputStream} or <code>gunzip</code>.
+ * <p>
+ * The blocks are compressed by tasks submitted to the caller's
+ * {@link Executor}. At most <i>nparallel</i> blocks are compressed
+ * concurrently. The compressed blocks are written onto the backing
+ * {@link OutputStream} in the order in which they were written onto this
+ * stream by the thread writing on this stream.
+ * <p>
+ * Note: This class is not thread-safe.
+ */
+public class ParallelGZIPOutputStream extends OutputStream {
+
+    /**
+     * The default size of the blocks which are compressed in parallel.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = Bytes.megabyte32;
+
+    private final OutputStream out;
+
+    private final Executor executor;
+
+    private final int nparallel;
+
+    private final int blockSize;
+
+    /**
+     * The compression tasks in the order in which their outputs must be
+     * written.
+     */
+    private final LinkedList<FutureTask<byte[]>> pending = new LinkedList<FutureTask<byte[]>>();
+
+    /**
+     * The block currently being filled.
+     */
+    private byte[] block;
+
+    /**
+     * The #of bytes in the {@link #block}.
+     */
+    private int pos = 0;
+
+    /**
+     * <code>true</code> iff at least one GZIP member was written.
+     */
+    private boolean wroteMember = false;
+
+    private boolean closed = false;
+
+    /**
+     * 
+     * @param out
+     *            The backing stream.
+     * @param executor
+     *            The executor on which the blocks will be compressed.
+     * @param nparallel
+     *            The maximum #of blocks which will be compressed concurrently.
+     */
+    public ParallelGZIPOutputStream(final OutputStream out,
+            final Executor executor, final int nparallel) {
+
+        this(out, executor, nparallel, DEFAULT_BLOCK_SIZE);
+
+    }
+
+    /**
+     * 
+     * @param out
+     *            The backing stream.
+     * @param executor
+     *            The executor on which the blocks will be compressed.
+     * @param nparallel
+     *            The maximum #of blocks which will be compressed concurrently.
+     * @param blockSize
+     *            The size of the blocks to be compressed.
+     */
+    public ParallelGZIPOutputStream(final OutputStream out,
+            final Executor executor, final int nparallel, final int blockSize) {
+
+        if (out == null)
+            throw new IllegalArgumentException();
+
+        if (executor == null)
+            throw new IllegalArgumentException();
+
+        if (nparallel <= 0)
+            throw new IllegalArgumentException();
+
+        if (blockSize <= 0)
+            throw new IllegalArgumentException();
+
+        this.out = out;
+        this.executor = executor;
+        this.nparallel = nparallel;
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+
+        if (closed)
+            throw new IOException("Closed");
+
+        block[pos++] = (byte) b;
+
+        if (pos == blockSize)
+            submitBlock();
+
+    }
+
+    @Override
+    public void write(final byte[] b, int off, int len) throws IOException {
+
+        if (closed)
+            throw new IOException("Closed");
+
+        while (len > 0) {
+
+            final int n = Math.min(len, blockSize - pos);
+
+            System.arraycopy(b, off, block, pos, n);
+
+            pos += n;
+            off += n;
+            len -= n;
+
+            if (pos == blockSize)
+                submitBlock();
+
+        }
+
+    }
+
+    /**
+     * Compresses any buffered data as a GZIP member, writes all compressed
+     * members onto the backing stream and flushes the backing stream.
+     */
+    @Override
+    public void flush() throws IOException {
+
+        if (closed)
+            throw new IOException("Closed");
+
+        if (pos > 0)
+            submitBlock();
+
+        while (!pending.isEmpty())
+            writeMember();
+
+        out.flush();
+
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed)
+            return;
+
+        try {
+
+            flush();
+
+            if (!wroteMember) {
+
+                /*
+                 * An empty GZIP member so the output is a valid GZIP file
+                 * even if nothing was written.
+                 */
+                out.write(compress(block, 0));
+
+            }
+
+        } finally {
+
+            closed = true;
+
+            for (FutureTask<byte[]> ft : pending)
+                ft.cancel(true/* mayInterruptIfRunning */);
+
+            pending.clear();
+
+            out.close();
+
+        }
+
+    }
+
+    /**
+     * Submit the current block for compression, first writing out the oldest
+     * compressed block if there are already <i>nparallel</i> blocks in
+     * progress.
+     */
+    private void submitBlock() throws IOException {
+
+        while (pending.size() >= nparallel)
+            writeMember();
+
+        final byte[] b = block;
+        final int len = pos;
+
+        final FutureTask<byte[]> ft = new FutureTask<byte[]>(
+                new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() throws Exception {
+                        return compress(b, len);
+                    }
+                });
+
+        pending.add(ft);
+
+        executor.execute(ft);
+
+        // Note: The submitted block is owned by the task.
+        block = new byte[blockSize];
+        pos = 0;
+
+    }
+
+    /**
+     * Wait for the oldest compression task and write its output.
+     */
+    private void writeMember() throws IOException {
+
+        final FutureTask<byte[]> ft = pending.removeFirst();
+
+        final byte[] member;
+        try {
+            member = ft.get();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e);
+        }
+
+        out.write(member);
+
+        wroteMember = true;
+
+    }
+
+    /**
+     * Compress the data as a complete GZIP member.
+     */
+    private static byte[] compress(final byte[] b, final int len)
+            throws IOException {
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(
+                len / 2 + 64);
+
+        final GZIPOutputStream gzos = new GZIPOutputStream(baos);
+
+        gzos.write(b, 0, len);
+
+        gzos.close();
+
+        return baos.toByteArray();
+
+    }
+
+}
@@ -34,10 +34,12 @@ import java.io.StringReader;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
@@ -56,6 +58,9 @@ import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IPredicate;
 import com.bigdata.btree.DefaultTupleSerializer;
 import com.bigdata.btree.IIndex;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleIterator;
 import com.bigdata.btree.IndexMetadata;
 import com.bigdata.btree.IndexTypeEnum;
 import com.bigdata.btree.keys.DefaultKeyBuilderFactory;
@@ -63,6 +68,7 @@ import com.bigdata.btree.keys.IKeyBuilder;
 import com.bigdata.btree.keys.IKeyBuilderFactory;
 import com.bigdata.btree.keys.KeyBuilder;
 import com.bigdata.btree.keys.StrengthEnum;
+import com.bigdata.btree.keys.SuccessorUtil;
 import com.bigdata.btree.raba.codec.EmptyRabaValueCoder;
 import com.bigdata.cache.ConcurrentWeakValueCacheWithTimeout;
 import com.bigdata.journal.IIndexManager;
@@ -381,6 +387,45 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
         String DEFAULT_HIT_CACHE_TIMEOUT_MILLIS =
                String.valueOf(TimeUnit.MINUTES.toMillis(1));
         
+        /**
+         * When <code>true</code>, a term dictionary is maintained alongside
+         * the full text index (default {@value #DEFAULT_TERM_DICTIONARY}). The
+         * term dictionary has one tuple per distinct token, associating the
+         * Unicode sort key of the token (which is also the key prefix for the
+         * postings of that token) with the token text and the #of documents in
+         * which the token was indexed.
+         * <p>
+         * When enabled, prefix match queries first enumerate the candidate
+         * tokens from the term dictionary, ranked by document frequency, and
+         * then read only the postings for the top
+         * {@link #TERM_DICTIONARY_MAX_CANDIDATES} candidates of each query
+         * token rather than scanning the postings of every matching token. The
+         * term dictionary also supports prefix and edit distance completion of
+         * tokens. See {@link FullTextIndex#completeTerm(String, int, int)}.
+         * <p>
+         * Note: This option must be specified when the index is created.
+         */
+        String TERM_DICTIONARY = FullTextIndex.class.getName()
+                + ".termDictionary";
+
+        String DEFAULT_TERM_DICTIONARY = "false";
+
+        /**
+         * The maximum #of candidate tokens from the term dictionary whose
+         * postings will be read for each token in a prefix match query
+         * (default {@value #DEFAULT_TERM_DICTIONARY_MAX_CANDIDATES}). The most
+         * frequent candidates are used and a warning is logged when candidates
+         * are dropped, since postings for the dropped candidates are not read
+         * and their hits are not reported. Use ZERO (0) to read the postings
+         * for all candidates.
+         * 
+         * @see #TERM_DICTIONARY
+         */
+        String TERM_DICTIONARY_MAX_CANDIDATES = FullTextIndex.class.getName()
+                + ".termDictionaryMaxCandidates";
+
+        String DEFAULT_TERM_DICTIONARY_MAX_CANDIDATES = "100";
+        
     }
     
     /**
@@ -437,6 +482,16 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
      */
     private final long hitCacheTimeoutMillis;
 
+    /**
+     * See {@link Options#TERM_DICTIONARY}.
+     */
+    private final boolean termDictionary;
+
+    /**
+     * See {@link Options#TERM_DICTIONARY_MAX_CANDIDATES}.
+     */
+    private final int termDictionaryMaxCandidates;
+
     /**
      * See {@link Options#HIT_CACHE_SIZE}.
      */
@@ -466,6 +521,60 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
      * The basename of the search index.
      */
     public static final transient String NAME_SEARCH = "search";
+
+    /**
+     * The basename of the term dictionary index.
+     * 
+     * @see Options#TERM_DICTIONARY
+     */
+    public static final transient String NAME_TERM_DICTIONARY = "termDictionary";
+
+    /**
+     * The term dictionary index (iff enabled).
+     */
+    volatile private IIndex termDict;
+
+    /**
+     * Return <code>true</code> iff the term dictionary is maintained.
+     * 
+     * @see Options#TERM_DICTIONARY
+     */
+    public boolean isTermDictionaryEnabled() {
+        
+        return termDictionary;
+        
+    }
+
+    /**
+     * The index used to associate tokens with their document frequency.
+     * 
+     * @throws IllegalStateException
+     *             if the term dictionary is not enabled.
+     * 
+     * @see Options#TERM_DICTIONARY
+     */
+    public IIndex getTermDictionary() {
+
+        if (!isTermDictionaryEnabled())
+            throw new IllegalStateException();
+
+        if (termDict == null) {
+
+            synchronized (this) {
+
+                termDict = getIndex(getNamespace() + "."
+                        + NAME_TERM_DICTIONARY);
+
+                if (termDict == null)
+                    throw new IllegalStateException();
+
+            }
+
+        }
+
+        return termDict;
+
+    }
     
     /**
      * <code>true</code> unless {{@link #getTimestamp()} is {@link ITx#UNISOLATED}.
@@ -564,6 +673,29 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
 
         }
 
+        {
+
+            termDictionary = Boolean.parseBoolean(properties.getProperty(
+                    Options.TERM_DICTIONARY, Options.DEFAULT_TERM_DICTIONARY));
+
+            if (log.isInfoEnabled())
+                log.info(Options.TERM_DICTIONARY + "=" + termDictionary);
+
+            termDictionaryMaxCandidates = Integer.parseInt(properties
+                    .getProperty(Options.TERM_DICTIONARY_MAX_CANDIDATES,
+                            Options.DEFAULT_TERM_DICTIONARY_MAX_CANDIDATES));
+
+            if (termDictionaryMaxCandidates < 0)
+                throw new IllegalArgumentException(
+                        Options.TERM_DICTIONARY_MAX_CANDIDATES + "="
+                                + termDictionaryMaxCandidates);
+
+            if (log.isInfoEnabled())
+                log.info(Options.TERM_DICTIONARY_MAX_CANDIDATES + "="
+                        + termDictionaryMaxCandidates);
+
+        }
+
         this.cache =
                new ConcurrentWeakValueCacheWithTimeout<FullTextQuery, Hit<V>[]>(
                                hitCacheSize, hitCacheTimeoutMillis);
@@ -703,6 +835,8 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
             if (log.isInfoEnabled())
                 log.info("Registered new text index: name=" + name);
 
+            createTermDictionary();
+
             /*
              * Note: defer resolution of the index.
              */
@@ -731,6 +865,8 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
 
             indexManager.dropIndex(getNamespace() +"."+ NAME_SEARCH);
 
+            destroyTermDictionary();
+
         } finally {
 
             unlock(resourceLock);
@@ -739,6 +875,49 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
         
     }
 
+    /**
+     * Conditionally registers the term dictionary index.
+     * 
+     * @see Options#TERM_DICTIONARY
+     */
+    protected void createTermDictionary() {
+
+        if (!isTermDictionaryEnabled())
+            return;
+
+        final String name = getNamespace() + "." + NAME_TERM_DICTIONARY;
+
+        final IIndexManager indexManager = getIndexManager();
+
+        /*
+         * Note: The keys are formed using the key builder for the search index
+         * and the values are encoded by TermCompletion, so the default tuple
+         * serializer is fine.
+         */
+        final IndexMetadata indexMetadata = new IndexMetadata(indexManager,
+                getProperties(), name, UUID.randomUUID(), IndexTypeEnum.BTree);
+
+        indexManager.registerIndex(indexMetadata);
+
+        if (log.isInfoEnabled())
+            log.info("Registered new term dictionary: name=" + name);
+
+    }
+
+    /**
+     * Conditionally drops the term dictionary index.
+     * 
+     * @see Options#TERM_DICTIONARY
+     */
+    protected void destroyTermDictionary() {
+
+        if (!isTermDictionaryEnabled())
+            return;
+
+        getIndexManager().dropIndex(getNamespace() + "." + NAME_TERM_DICTIONARY);
+
+    }
+
     /**
      * Return the token analyzer to be used for the given language code.
      * 
@@ -992,7 +1171,8 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
          * not specified a regex.
          */
         if (qdata.distinctTermCount() == 1 &&
-        		!query.isMatchExact() && query.getMatchRegex() == null) {
+        		!query.isMatchExact() && query.getMatchRegex() == null &&
+        		!(query.isPrefixMatch() && isTermDictionaryEnabled())) {
         	
         	final boolean prefixMatch = query.isPrefixMatch();
         	
@@ -1431,6 +1611,12 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
     protected Hit<V>[] executeQuery(final TermFrequencyData<V> qdata,
     		final boolean prefixMatch, final long timeout, final TimeUnit unit) {
     	
+        if (prefixMatch && isTermDictionaryEnabled()) {
+
+            return executeTermDictionaryQuery(qdata, timeout, unit);
+
+        }
+
         final IHitCollector<V> hits;
         
         if (qdata.distinctTermCount() == 1) {
@@ -1485,6 +1671,145 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
 
             }
 
+            runReadTasks(tasks, timeout, unit);
+
+        }
+        
+        return hits.getHits();
+
+    }
+
+    /**
+     * Prefix match query using the term dictionary. Each query token is
+     * expanded into the most frequent tokens in the term dictionary having
+     * that token as a prefix and then only the postings for those tokens are
+     * read.
+     * 
+     * @see Options#TERM_DICTIONARY
+     * @see Options#TERM_DICTIONARY_MAX_CANDIDATES
+     */
+    @SuppressWarnings("unchecked")
+    protected Hit<V>[] executeTermDictionaryQuery(
+            final TermFrequencyData<V> qdata, final long timeout,
+            final TimeUnit unit) {
+
+        final int nterms = qdata.terms.size();
+
+        // The candidate tokens, the query token index and the query term weight.
+        final List<String> tokens = new ArrayList<String>();
+        final List<Integer> termNdxs = new ArrayList<Integer>();
+        final List<Double> weights = new ArrayList<Double>();
+
+        {
+            
+            int i = 0;
+            for (Map.Entry<String, ITermMetadata> e : qdata.terms.entrySet()) {
+
+                final double weight = e.getValue().getLocalTermWeight();
+
+                /*
+                 * Note: One more candidate than the limit is requested so we
+                 * can tell whether any candidates were dropped.
+                 */
+                final int limit = termDictionaryMaxCandidates == 0 ? Integer.MAX_VALUE
+                        : termDictionaryMaxCandidates + 1;
+
+                List<TermCompletion> a = completeTerm(e.getKey(),
+                        0/* maxEditDistance */, limit);
+
+                if (termDictionaryMaxCandidates != 0
+                        && a.size() > termDictionaryMaxCandidates) {
+
+                    log.warn("Prefix match on token=" + e.getKey()
+                            + " limited to the "
+                            + termDictionaryMaxCandidates
+                            + " most frequent candidates: see "
+                            + Options.TERM_DICTIONARY_MAX_CANDIDATES);
+
+                    a = a.subList(0, termDictionaryMaxCandidates);
+
+                }
+
+                for (TermCompletion c : a) {
+
+                    tokens.add(c.getToken());
+                    termNdxs.add(i);
+                    weights.add(weight);
+
+                }
+
+                i++;
+
+            }
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("query tokens=" + qdata.terms.keySet() + ", candidates="
+                    + tokens);
+
+        if (tokens.isEmpty()) {
+
+            return new Hit[] {};
+
+        }
+
+        final int ncandidates = tokens.size();
+
+        final IHitCollector<V> hits;
+        {
+
+            final List<CountIndexTask<V>> tasks = new ArrayList<CountIndexTask<V>>(
+                    ncandidates);
+
+            for (int j = 0; j < ncandidates; j++) {
+
+                tasks.add(new CountIndexTask<V>(tokens.get(j), termNdxs.get(j),
+                        nterms, false/* prefixMatch */, weights.get(j), this));
+
+            }
+
+            if (ncandidates == 1) {
+
+                hits = new SingleTokenHitCollector<V>(tasks.get(0));
+
+            } else {
+
+                hits = new MultiTokenHitCollector<V>(tasks);
+
+            }
+
+        }
+
+        {
+
+            final List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(
+                    ncandidates);
+
+            for (int j = 0; j < ncandidates; j++) {
+
+                tasks.add(new ReadIndexTask<V>(tokens.get(j), termNdxs.get(j),
+                        nterms, false/* prefixMatch */, weights.get(j), this,
+                        hits));
+
+            }
+
+            runReadTasks(tasks, timeout, unit);
+
+        }
+
+        return hits.getHits();
+
+    }
+
+    /**
+     * Run the tasks reading on the full text index.
+     */
+    private void runReadTasks(final List<Callable<Object>> tasks,
+            final long timeout, final TimeUnit unit) {
+
+        {
+
             final ExecutionHelper<Object> executionHelper = new ExecutionHelper<Object>(
                     getExecutorService(), timeout, unit);
 
@@ -1521,8 +1846,205 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
             }
 
         }
-        
-        return hits.getHits();
+
+    }
+
+    /**
+     * Complete a token using the term dictionary. The token is matched as a
+     * prefix of the indexed tokens. When <i>maxEditDistance</i> is positive,
+     * the indexed tokens having a prefix within that edit distance of the
+     * given token are also reported. In order to bound the scan, fuzzy matches
+     * must share the first character of the given token.
+     * <p>
+     * This is intended for type-ahead and only reads on the term dictionary,
+     * which has one tuple per distinct token. The postings of a reported token
+     * may be read by a search for that token without prefix match.
+     * 
+     * @param token
+     *            The (partial) token. It is lower cased in the same manner as
+     *            the indexed tokens.
+     * @param maxEditDistance
+     *            The maximum edit distance (ZERO for prefix completion only).
+     * @param limit
+     *            The maximum #of completions to report.
+     * 
+     * @return The completions, ordered by increasing edit distance and then
+     *         by decreasing document frequency.
+     * 
+     * @throws IllegalStateException
+     *             if the term dictionary is not enabled.
+     * 
+     * @see Options#TERM_DICTIONARY
+     */
+    public List<TermCompletion> completeTerm(final String token,
+            final int maxEditDistance, final int limit) {
+
+        if (token == null || token.length() == 0)
+            throw new IllegalArgumentException();
+
+        if (maxEditDistance < 0)
+            throw new IllegalArgumentException();
+
+        if (limit <= 0)
+            throw new IllegalArgumentException();
+
+        final IIndex ndx = getTermDictionary();
+
+        final String q = token.toLowerCase(Locale.ROOT);
+
+        /*
+         * Scan all tokens sharing the given token as a prefix or, for fuzzy
+         * completion, sharing its first character.
+         */
+        final byte[] fromKey = getPrefixKey(maxEditDistance == 0 ? q : q
+                .substring(0, 1));
+
+        final byte[] toKey = SuccessorUtil.successor(fromKey.clone());
+
+        // The worst completion is at the head of the queue.
+        final PriorityQueue<TermCompletion> queue = new PriorityQueue<TermCompletion>(
+                Math.min(limit, 1000) + 1, Collections.reverseOrder());
+
+        final ITupleIterator<?> itr = ndx.rangeIterator(fromKey, toKey,
+                0/* capacity */, IRangeQuery.KEYS | IRangeQuery.VALS, null/* filter */);
+
+        long nvisited = 0;
+
+        while (itr.hasNext()) {
+
+            final ITuple<?> tuple = itr.next();
+
+            nvisited++;
+
+            final byte[] val = tuple.getValue();
+
+            final String t = TermCompletion.decodeToken(val);
+
+            final int editDistance;
+
+            if (maxEditDistance == 0) {
+
+                editDistance = 0;
+
+            } else {
+
+                editDistance = prefixEditDistance(q, t.toLowerCase(Locale.ROOT),
+                        maxEditDistance);
+
+                if (editDistance > maxEditDistance)
+                    continue;
+
+            }
+
+            queue.add(new TermCompletion(tuple.getKey(), t, TermCompletion
+                    .decodeDocFreq(val), editDistance));
+
+            if (queue.size() > limit) {
+
+                // drop the worst completion.
+                queue.poll();
+
+            }
+
+        }
+
+        final TermCompletion[] a = queue.toArray(new TermCompletion[queue
+                .size()]);
+
+        Arrays.sort(a);
+
+        if (log.isInfoEnabled())
+            log.info("token=" + token + ", maxEditDistance=" + maxEditDistance
+                    + ", nvisited=" + nvisited + ", ncompletions=" + a.length);
+
+        return Arrays.asList(a);
+
+    }
+
+    /**
+     * Return the key prefix for all tokens having the given text as a prefix.
+     * 
+     * @see AbstractIndexTask
+     */
+    private byte[] getPrefixKey(final String text) {
+
+        final byte[] tmp = getKeyBuilder().reset()
+                .appendText(text, true/* unicode */, false/* successor */)
+                .getKey();
+
+        /*
+         * Note: Lop off the pad byte and the run-length, exactly as done for
+         * prefix search by AbstractIndexTask.
+         */
+        final byte[] key = new byte[tmp.length - 3];
+
+        System.arraycopy(tmp, 0, key, 0, key.length);
+
+        return key;
+
+    }
+
+    /**
+     * Return the minimum edit distance (Levenshtein distance) between
+     * <i>prefix</i> and any prefix of <i>token</i>. The computation stops once
+     * the distance is known to exceed <i>max</i>, in which case some value
+     * greater than <i>max</i> is returned.
+     */
+    static int prefixEditDistance(final String prefix, final String token,
+            final int max) {
+
+        final int m = prefix.length();
+
+        final int n = token.length();
+
+        // distance from prefix[0:i) to token[0:j) for the previous row (j-1).
+        int[] prev = new int[m + 1];
+
+        int[] cur = new int[m + 1];
+
+        for (int i = 0; i <= m; i++)
+            prev[i] = i;
+
+        // best distance to any prefix of the token seen so far.
+        int best = prev[m];
+
+        for (int j = 1; j <= n; j++) {
+
+            cur[0] = j;
+
+            int rowMin = cur[0];
+
+            final char c = token.charAt(j - 1);
+
+            for (int i = 1; i <= m; i++) {
+
+                final int cost = prefix.charAt(i - 1) == c ? 0 : 1;
+
+                cur[i] = Math.min(Math.min(cur[i - 1] + 1, prev[i] + 1),
+                        prev[i - 1] + cost);
+
+                if (cur[i] < rowMin)
+                    rowMin = cur[i];
+
+            }
+
+            if (cur[m] < best)
+                best = cur[m];
+
+            if (rowMin > max) {
+
+                // All further prefixes of the token are too far away.
+                break;
+
+            }
+
+            final int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+
+        }
+
+        return best;
 
     }
     
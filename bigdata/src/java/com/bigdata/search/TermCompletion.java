@@ -0,0 +1,210 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.search;
+
+import java.io.IOException;
+
+import com.bigdata.io.DataInputBuffer;
+import com.bigdata.io.DataOutputBuffer;
+
+/**
+ * An entry in the term dictionary of a {@link FullTextIndex}. Each entry
+ * associates the Unicode sort key of a token (the key of the term dictionary
+ * and also the key prefix for all postings of that token in the full text
+ * index) with the token text and the number of documents in which the token
+ * has been indexed.
+ * <p>
+ * The value of a term dictionary tuple is:
+ *
+ * <pre>
+ *
+ *             {packed(docFreq), utf(token)}
+ *
+ * </pre>
+ *
+ * @see FullTextIndex.Options#TERM_DICTIONARY
+ * @see TermDictionaryWriteProc
+ */
+public class TermCompletion implements Comparable<TermCompletion> {
+
+    /**
+     * The Unicode sort key for the token.
+     */
+    private final byte[] key;
+
+    /**
+     * The token text.
+     */
+    private final String token;
+
+    /**
+     * The #of documents in which the token was indexed.
+     */
+    private final long docFreq;
+
+    /**
+     * The edit distance of the token from the completed prefix (ZERO for a
+     * prefix match).
+     */
+    private final int editDistance;
+
+    public TermCompletion(final byte[] key, final String token,
+            final long docFreq, final int editDistance) {
+
+        if (key == null)
+            throw new IllegalArgumentException();
+
+        if (token == null)
+            throw new IllegalArgumentException();
+
+        this.key = key;
+        this.token = token;
+        this.docFreq = docFreq;
+        this.editDistance = editDistance;
+
+    }
+
+    /**
+     * The Unicode sort key for the token. This is also the key prefix for the
+     * postings of the token in the full text index.
+     */
+    public byte[] getKey() {
+
+        return key;
+
+    }
+
+    /**
+     * The token text.
+     */
+    public String getToken() {
+
+        return token;
+
+    }
+
+    /**
+     * The #of documents in which the token was indexed.
+     */
+    public long getDocFreq() {
+
+        return docFreq;
+
+    }
+
+    /**
+     * The edit distance of the token from the completed prefix.
+     */
+    public int getEditDistance() {
+
+        return editDistance;
+
+    }
+
+    /**
+     * Orders completions by increasing edit distance and then by decreasing
+     * document frequency, with ties broken by the token text.
+     */
+    @Override
+    public int compareTo(final TermCompletion o) {
+
+        if (editDistance != o.editDistance)
+            return editDistance < o.editDistance ? -1 : 1;
+
+        if (docFreq != o.docFreq)
+            return docFreq > o.docFreq ? -1 : 1;
+
+        return token.compareTo(o.token);
+
+    }
+
+    @Override
+    public String toString() {
+
+        return "TermCompletion{token=" + token + ",docFreq=" + docFreq
+                + ",editDistance=" + editDistance + "}";
+
+    }
+
+    /**
+     * Encode the value of a term dictionary tuple.
+     *
+     * @param docFreq
+     *            The document frequency.
+     * @param token
+     *            The token text.
+     *
+     * @return The encoded value.
+     */
+    static public byte[] encodeValue(final long docFreq, final String token) {
+
+        final DataOutputBuffer buf = new DataOutputBuffer(token.length() + 8);
+
+        buf.packLong(docFreq);
+
+        try {
+            buf.writeUTF(token);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        return buf.toByteArray();
+
+    }
+
+    /**
+     * Decode the document frequency from the value of a term dictionary tuple.
+     */
+    static public long decodeDocFreq(final byte[] val) {
+
+        try {
+            return new DataInputBuffer(val).unpackLong();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+    }
+
+    /**
+     * Decode the token text from the value of a term dictionary tuple.
+     */
+    static public String decodeToken(final byte[] val) {
+
+        final DataInputBuffer in = new DataInputBuffer(val);
+
+        try {
+            in.unpackLong();
+            return in.readUTF();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.search;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.proc.AbstractKeyArrayIndexProcedure;
+import com.bigdata.btree.proc.AbstractKeyArrayIndexProcedureConstructor;
+import com.bigdata.btree.proc.IParallelizableIndexProcedure;
+import com.bigdata.btree.raba.codec.IRabaCoder;
+import com.bigdata.relation.IMutableRelationIndexWriteProcedure;
+
+/**
+ * Writes on the term dictionary of the text index. Each key is the Unicode
+ * sort key of a token. Each value is encoded by
+ * {@link TermCompletion#encodeValue(long, String)} and carries the #of
+ * documents which were just indexed for that token. That count is added to
+ * the document frequency already recorded for the token (if any).
+ * <p>
+ * Note: The document frequency is maintained by addition, so it is an upper
+ * bound if the same {document,token} is indexed more than once. It is only
+ * used to rank candidate tokens for completion.
+ *
+ * @see TextIndexWriteProc
+ * @see FullTextIndex.Options#TERM_DICTIONARY
+ */
+public class TermDictionaryWriteProc extends
+        AbstractKeyArrayIndexProcedure<Long> implements
+        IParallelizableIndexProcedure<Long>,
+        IMutableRelationIndexWriteProcedure<Long> {
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = -6478839133049736170L;
+
+    private static transient final Logger log = Logger
+            .getLogger(TermDictionaryWriteProc.class);
+
+    public static class TermDictionaryWriteProcConstructor extends
+            AbstractKeyArrayIndexProcedureConstructor<TermDictionaryWriteProc> {
+
+        public static TermDictionaryWriteProcConstructor INSTANCE = new TermDictionaryWriteProcConstructor();
+
+        /**
+         * Values are required.
+         */
+        @Override
+        public final boolean sendValues() {
+
+            return true;
+
+        }
+
+        private TermDictionaryWriteProcConstructor() {
+        }
+
+        @Override
+        public TermDictionaryWriteProc newInstance(final IRabaCoder keySer,
+                final IRabaCoder valSer, final int fromIndex,
+                final int toIndex, final byte[][] keys, final byte[][] vals) {
+
+            return new TermDictionaryWriteProc(keySer, valSer, fromIndex,
+                    toIndex, keys, vals);
+
+        }
+
+    }
+
+    /**
+     * De-serialization constructor.
+     */
+    public TermDictionaryWriteProc() {
+
+    }
+
+    protected TermDictionaryWriteProc(final IRabaCoder keySer,
+            final IRabaCoder valSer, final int fromIndex, final int toIndex,
+            final byte[][] keys, final byte[][] vals) {
+
+        super(keySer, valSer, fromIndex, toIndex, keys, vals);
+
+        assert vals != null;
+
+    }
+
+    @Override
+    public final boolean isReadOnly() {
+
+        return false;
+
+    }
+
+    /**
+     * @return The #of tokens which were not previously found in the term
+     *         dictionary as a {@link Long}.
+     */
+    @Override
+    public Long apply(final IIndex ndx) {
+
+        long newTokenCount = 0;
+
+        final int n = getKeyCount();
+
+        for (int i = 0; i < n; i++) {
+
+            final byte[] key = getKey(i);
+            assert key != null;
+            assert key.length > 0;
+
+            final byte[] val = getValue(i);
+            assert val != null;
+
+            final byte[] oldval = ndx.lookup(key);
+
+            if (oldval == null) {
+
+                ndx.insert(key, val);
+
+                newTokenCount++;
+
+            } else {
+
+                /*
+                 * Note: The token text of the existing entry is retained. Two
+                 * tokens having the same Unicode sort key are the same token
+                 * as far as the full text index is concerned.
+                 */
+                final long docFreq = TermCompletion.decodeDocFreq(oldval)
+                        + TermCompletion.decodeDocFreq(val);
+
+                ndx.insert(key, TermCompletion.encodeValue(docFreq,
+                        TermCompletion.decodeToken(oldval)));
+
+            }
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("wrote " + n + " tokens of which " + newTokenCount
+                    + " were new");
+
+        return newTokenCount;
+
+    }
+
+}
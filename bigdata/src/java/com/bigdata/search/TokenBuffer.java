@@ -1,11 +1,13 @@
 package com.bigdata.search;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
 
 import com.bigdata.btree.ITupleSerializer;
+import com.bigdata.btree.keys.IKeyBuilder;
 import com.bigdata.btree.keys.KV;
 import com.bigdata.btree.proc.LongAggregator;
 
@@ -361,6 +363,13 @@ public class TokenBuffer<V extends Comparable<V>> {
         // Batch write on the index.
         writeOnIndex(n, keys, vals);
 
+        if (textIndexer.isTermDictionaryEnabled()) {
+
+            // Batch write on the term dictionary.
+            writeOnTermDictionary();
+            
+        }
+
         // Clear the buffer.
         reset();
         
@@ -425,6 +434,106 @@ public class TokenBuffer<V extends Comparable<V>> {
         
     }
     
+    /**
+     * Writes the #of documents in the buffer for each distinct token onto the
+     * term dictionary.
+     * 
+     * @return The #of tokens which were not previously found in the term
+     *         dictionary.
+     * 
+     * @see FullTextIndex.Options#TERM_DICTIONARY
+     */
+    protected long writeOnTermDictionary() {
+
+        /*
+         * Count the distinct documents for each token. All fields of a given
+         * document are adjacent in the buffer, so we only need to remember the
+         * last document in which each token was observed.
+         */
+        final Map<String, V> lastDocIds = new HashMap<String, V>();
+
+        final Map<String, long[]> docFreqs = new HashMap<String, long[]>();
+
+        for (int i = 0; i < count; i++) {
+
+            final TermFrequencyData<V> termFreq = buffer[i];
+
+            for (String termText : termFreq.terms.keySet()) {
+
+                final V lastDocId = lastDocIds.put(termText, termFreq.docId);
+
+                long[] docFreq = docFreqs.get(termText);
+
+                if (docFreq == null) {
+
+                    docFreqs.put(termText, docFreq = new long[1]);
+
+                } else if (lastDocId != null
+                        && lastDocId.equals(termFreq.docId)) {
+
+                    // another field of the same document.
+                    continue;
+
+                }
+
+                docFreq[0]++;
+
+            }
+
+        }
+
+        final int ntokens = docFreqs.size();
+
+        final KV[] a = new KV[ntokens];
+
+        final IKeyBuilder keyBuilder = textIndexer.getKeyBuilder();
+
+        int n = 0;
+
+        for (Map.Entry<String, long[]> e : docFreqs.entrySet()) {
+
+            final String termText = e.getKey();
+
+            final byte[] key = keyBuilder.reset()
+                    .appendText(termText, true/* unicode */, false/* successor */)
+                    .getKey();
+
+            final byte[] val = TermCompletion.encodeValue(e.getValue()[0],
+                    termText);
+
+            a[n++] = new KV(key, val);
+
+        }
+
+        // Sort into index order.
+        Arrays.sort(a);
+
+        final byte[][] keys = new byte[ntokens][];
+
+        final byte[][] vals = new byte[ntokens][];
+
+        for (int i = 0; i < ntokens; i++) {
+
+            keys[i] = a[i].key;
+
+            vals[i] = a[i].val;
+
+        }
+
+        final LongAggregator resultHandler = new LongAggregator();
+
+        textIndexer.getTermDictionary().submit(0, // fromIndex
+                ntokens, // toIndex
+                keys,//
+                vals,//
+                TermDictionaryWriteProc.TermDictionaryWriteProcConstructor.INSTANCE,//
+                resultHandler//
+                );
+
+        return resultHandler.getResult();
+
+    }
+
     /**
      * Writes on the index.
      *  
@@ -84,6 +84,9 @@ public class TestAll extends TestCase {
         // test suite for the bop statistics class.
         suite.addTestSuite(TestBOpStats.class);
 
+        // test suite for sampled operator profiling.
+        suite.addTestSuite(TestOperatorProfiler.class);
+
         // test suite for startOp messages.
         suite.addTestSuite(TestStartOpMessage.class);
         
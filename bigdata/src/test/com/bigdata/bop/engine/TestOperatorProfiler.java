@@ -0,0 +1,351 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.engine;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.bset.StartOp;
+import com.bigdata.bop.engine.OperatorProfiler.OperatorProfile;
+import com.bigdata.bop.solutions.SliceOp;
+import com.bigdata.journal.BufferMode;
+import com.bigdata.journal.Journal;
+
+/**
+ * Test suite for {@link OperatorProfiler}.
+ */
+public class TestOperatorProfiler extends TestCase2 {
+
+    public TestOperatorProfiler() {
+    }
+
+    public TestOperatorProfiler(String name) {
+        super(name);
+    }
+
+    public void test_ctor_correctRejection() {
+
+        try {
+            new OperatorProfiler(-1/* sampleInterval */, 1000L, 10);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        try {
+            new OperatorProfiler(1, 1000L, 0/* nbuckets */);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        try {
+            new OperatorProfiler(1, 5L/* window */, 10);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    public void test_sampling() {
+
+        // disabled.
+        {
+            final OperatorProfiler p = new OperatorProfiler(0, 1000L, 10);
+            assertFalse(p.isEnabled());
+            for (int i = 0; i < 100; i++)
+                assertNull(p.begin());
+        }
+
+        // every task.
+        {
+            final OperatorProfiler p = new OperatorProfiler(1, 1000L, 10);
+            assertTrue(p.isEnabled());
+            for (int i = 0; i < 100; i++)
+                assertNotNull(p.begin());
+        }
+
+    }
+
+    /**
+     * Samples are aggregated by signature and operator and reported in
+     * descending order by cumulative wall clock time.
+     */
+    public void test_topOperators() {
+
+        final OperatorProfiler p = new OperatorProfiler(1, 1000L, 10);
+
+        final long now = 10000L;
+
+        p.record(now, "a", "A#1;B#2", 1, "A", 10, 5, 100);
+        p.record(now, "a", "A#1;B#2", 1, "A", 20, 5, 100);
+        p.record(now, "a", "A#1;B#2", 2, "B", 50, 40, 1000);
+        // same bopId, different signature.
+        p.record(now + 150, "b", "A#1", 1, "A", 5, 1, 10);
+
+        final List<OperatorProfile> a = p.getTopOperators(now + 150, 10);
+
+        assertEquals(3, a.size());
+
+        assertEquals("a", a.get(0).getSignature());
+        assertEquals(2, a.get(0).getBOpId());
+        assertEquals("B", a.get(0).getBOpName());
+        assertEquals(1L, a.get(0).getSampleCount());
+        assertEquals(50L, a.get(0).getWallNanos());
+
+        assertEquals("a", a.get(1).getSignature());
+        assertEquals(1, a.get(1).getBOpId());
+        assertEquals("A#1;B#2", a.get(1).getPlan());
+        assertEquals(2L, a.get(1).getSampleCount());
+        assertEquals(30L, a.get(1).getWallNanos());
+        assertEquals(10L, a.get(1).getCPUNanos());
+        assertEquals(200L, a.get(1).getAllocatedBytes());
+
+        assertEquals("b", a.get(2).getSignature());
+
+        // limit.
+        assertEquals(1, p.getTopOperators(now + 150, 1).size());
+
+    }
+
+    /**
+     * Samples older than the window are no longer reported and a bucket is
+     * cleared when it is reused.
+     */
+    public void test_slidingWindow() {
+
+        // 10 buckets of 100ms each.
+        final OperatorProfiler p = new OperatorProfiler(1, 1000L, 10);
+
+        final long now = 10000L;
+
+        p.record(now, "a", "A#1", 1, "A", 10, 0, 0);
+
+        p.record(now + 500, "a", "A#1", 1, "A", 20, 0, 0);
+
+        assertEquals(30L, p.getTopOperators(now + 500, 10).get(0)
+                .getWallNanos());
+
+        // The first sample has left the window.
+        assertEquals(20L, p.getTopOperators(now + 1000, 10).get(0)
+                .getWallNanos());
+
+        // Reuses the bucket of the first sample.
+        p.record(now + 1000, "a", "A#1", 1, "A", 40, 0, 0);
+
+        assertEquals(60L, p.getTopOperators(now + 1000, 10).get(0)
+                .getWallNanos());
+
+        // Everything has left the window.
+        assertEquals(0, p.getTopOperators(now + 5000, 10).size());
+
+    }
+
+    /**
+     * The plan describes the pipeline and queries having the same plan have
+     * the same signature.
+     */
+    public void test_plan() {
+
+        final PipelineOp startOp = new StartOp(new BOp[] {},
+                NV.asMap(new NV[] {//
+                        new NV(BOp.Annotations.BOP_ID, 1),//
+                        new NV(StartOp.Annotations.EVALUATION_CONTEXT,
+                                BOpEvaluationContext.CONTROLLER),//
+                }));
+
+        final PipelineOp sliceOp = new SliceOp(new BOp[] { startOp },
+                NV.asMap(new NV[] {//
+                        new NV(BOp.Annotations.BOP_ID, 2),//
+                        new NV(SliceOp.Annotations.EVALUATION_CONTEXT,
+                                BOpEvaluationContext.CONTROLLER),//
+                        new NV(PipelineOp.Annotations.SHARED_STATE, true),//
+                        new NV(PipelineOp.Annotations.REORDER_SOLUTIONS, false),//
+                        new NV(SliceOp.Annotations.LIMIT, 10L),//
+                }));
+
+        final String plan = OperatorProfiler.getPlan(sliceOp);
+
+        assertEquals("SliceOp#2;StartOp#1", plan);
+
+        assertEquals(OperatorProfiler.getSignature(plan),
+                OperatorProfiler.getSignature("SliceOp#2;StartOp#1"));
+
+        assertFalse(OperatorProfiler.getSignature(plan).equals(
+                OperatorProfiler.getSignature(OperatorProfiler
+                        .getPlan(startOp))));
+
+    }
+
+    /**
+     * An operator task is timed in the thread in which it runs.
+     */
+    public void test_profile() throws InterruptedException {
+
+        final OperatorProfiler p = new OperatorProfiler(1, 60000L, 10);
+
+        final PipelineOp startOp = new StartOp(new BOp[] {},
+                NV.asMap(new NV[] {//
+                        new NV(BOp.Annotations.BOP_ID, 1),//
+                        new NV(StartOp.Annotations.EVALUATION_CONTEXT,
+                                BOpEvaluationContext.CONTROLLER),//
+                }));
+
+        final OperatorProfiler.Sample sample = p.begin();
+
+        Thread.sleep(10/* ms */);
+
+        p.end(sample, "a", "StartOp#1", 1, startOp);
+
+        final List<OperatorProfile> a = p.getTopOperators(10);
+
+        assertEquals(1, a.size());
+
+        assertEquals("StartOp", a.get(0).getBOpName());
+
+        assertTrue(a.get(0).getWallNanos() >= 10000000L);
+
+        assertTrue(a.get(0).getCPUNanos() >= 0L);
+
+    }
+
+    /**
+     * The operator tasks of a query run by the {@link QueryEngine} are
+     * profiled when every task is sampled.
+     */
+    public void test_queryEngine() throws Exception {
+
+        final Properties properties = new Properties(getProperties());
+
+        properties.setProperty(Journal.Options.BUFFER_MODE,
+                BufferMode.Transient.toString());
+
+        final Journal jnl = new Journal(properties);
+
+        final String sampleInterval = System
+                .getProperty(OperatorProfiler.Options.SAMPLE_INTERVAL);
+
+        System.setProperty(OperatorProfiler.Options.SAMPLE_INTERVAL, "1");
+
+        try {
+
+            final QueryEngine queryEngine = new QueryEngine(jnl);
+
+            queryEngine.init();
+
+            try {
+
+                final PipelineOp startOp = new StartOp(new BOp[] {},
+                        NV.asMap(new NV[] {//
+                                new NV(BOp.Annotations.BOP_ID, 1),//
+                                new NV(StartOp.Annotations.EVALUATION_CONTEXT,
+                                        BOpEvaluationContext.CONTROLLER),//
+                        }));
+
+                final PipelineOp query = new SliceOp(new BOp[] { startOp },
+                        NV.asMap(new NV[] {//
+                                new NV(BOp.Annotations.BOP_ID, 2),//
+                                new NV(SliceOp.Annotations.EVALUATION_CONTEXT,
+                                        BOpEvaluationContext.CONTROLLER),//
+                                new NV(PipelineOp.Annotations.SHARED_STATE,
+                                        true),//
+                                new NV(PipelineOp.Annotations.REORDER_SOLUTIONS,
+                                        false),//
+                                new NV(SliceOp.Annotations.LIMIT, 10L),//
+                        }));
+
+                final IRunningQuery runningQuery = queryEngine.eval(
+                        UUID.randomUUID(), query, new ListBindingSet());
+
+                AbstractQueryEngineTestCase.assertSameSolutions(
+                        new IBindingSet[] { new ListBindingSet() },
+                        runningQuery);
+
+                runningQuery.get();
+
+                final List<OperatorProfile> a = OperatorProfiler.getInstance(
+                        queryEngine).getTopOperators(10);
+
+                assertEquals(2, a.size());
+
+                final String signature = OperatorProfiler
+                        .getSignature("SliceOp#2;StartOp#1");
+
+                for (OperatorProfile x : a) {
+
+                    assertEquals(signature, x.getSignature());
+
+                    assertEquals("SliceOp#2;StartOp#1", x.getPlan());
+
+                    assertTrue(x.getSampleCount() >= 1);
+
+                    if (x.getBOpId() == 1) {
+                        assertEquals("StartOp", x.getBOpName());
+                    } else {
+                        assertEquals(2, x.getBOpId());
+                        assertEquals("SliceOp", x.getBOpName());
+                    }
+
+                }
+
+            } finally {
+
+                queryEngine.shutdownNow();
+
+            }
+
+        } finally {
+
+            if (sampleInterval == null) {
+                System.clearProperty(OperatorProfiler.Options.SAMPLE_INTERVAL);
+            } else {
+                System.setProperty(OperatorProfiler.Options.SAMPLE_INTERVAL,
+                        sampleInterval);
+            }
+
+            jnl.destroy();
+
+        }
+
+    }
+
+}
@@ -1073,4 +1073,146 @@ abstract public class AbstractHashJoinOpTestCase extends TestCase2 {
         
     }
 
+    /**
+     * Unit test for a semi-join filter. The source solutions bind the join
+     * variable [x] to two distinct values while the access path has seven
+     * elements. Only the four elements which can join are read from the
+     * access path. The join variable is the object position, which is the
+     * first unbound component of the key for the POS index, so the scan also
+     * skips over the key ranges which can not join.
+     */
+    public void test_join_semiJoinFilter() throws InterruptedException,
+            ExecutionException {
+
+        final BaseJoinStats stats = doSemiJoinFilterTest(true/* enabled */);
+
+        assertEquals(1L, stats.semiJoinFilterCount.get());
+        assertEquals(1L, stats.accessPathCount.get());
+        assertEquals(4L, stats.accessPathUnitsIn.get());
+
+    }
+
+    /**
+     * Variant of {@link #test_join_semiJoinFilter()} with the semi-join filter
+     * disabled. The same solutions are produced, but all elements are read
+     * from the access path.
+     */
+    public void test_join_semiJoinFilter_disabled()
+            throws InterruptedException, ExecutionException {
+
+        final BaseJoinStats stats = doSemiJoinFilterTest(false/* enabled */);
+
+        assertEquals(0L, stats.semiJoinFilterCount.get());
+        assertEquals(1L, stats.accessPathCount.get());
+        assertEquals(7L, stats.accessPathUnitsIn.get());
+
+    }
+
+    private BaseJoinStats doSemiJoinFilterTest(final boolean enabled)
+            throws InterruptedException, ExecutionException {
+
+        final int joinId = 2;
+        final int predId = 3;
+        @SuppressWarnings("unchecked")
+        final IVariable<IV> x = Var.var("x");
+        @SuppressWarnings("unchecked")
+        final IVariable<IV> z = Var.var("z");
+        @SuppressWarnings("unchecked")
+        final IVariable<IV>[] joinVars = new IVariable[] { x };
+        final UUID queryId = UUID.randomUUID();
+
+        // (?z knows ?x)
+        final Predicate<IV> predOp = new Predicate<IV>(
+                new IVariableOrConstant[] { z, new Constant<IV>(setup.knows),
+                        x }, NV.asMap(new NV[] {//
+                        new NV(Predicate.Annotations.RELATION_NAME,
+                                new String[] { setup.spoNamespace }),//
+                        new NV(Predicate.Annotations.BOP_ID, predId),//
+                        new NV(Annotations.TIMESTAMP, ITx.READ_COMMITTED),//
+                }));
+
+        final PipelineOp query = newJoin(new BOp[] {}, joinId, joinVars,
+                predOp, queryId, new NV(HashJoinOp.Annotations.SEMI_JOIN_FILTER,
+                        enabled));
+
+        // the expected solutions.
+        final IBindingSet[] expected = new IBindingSet[] {//
+                new ListBindingSet(//
+                        new IVariable[] { x, z },//
+                        new IConstant[] { new Constant<IV>(setup.brad),
+                                new Constant<IV>(setup.paul) }//
+                ),//
+                new ListBindingSet(//
+                        new IVariable[] { x, z },//
+                        new IConstant[] { new Constant<IV>(setup.brad),
+                                new Constant<IV>(setup.john) }//
+                ),//
+                new ListBindingSet(//
+                        new IVariable[] { x, z },//
+                        new IConstant[] { new Constant<IV>(setup.brad),
+                                new Constant<IV>(setup.mary) }//
+                ),//
+                new ListBindingSet(//
+                        new IVariable[] { x, z },//
+                        new IConstant[] { new Constant<IV>(setup.fred),
+                                new Constant<IV>(setup.brad) }//
+                ),//
+        };
+
+        final IBindingSet[] initialBindingSets;
+        {
+            final List<IBindingSet> list = new LinkedList<IBindingSet>();
+
+            IBindingSet tmp;
+
+            tmp = new ListBindingSet();
+            tmp.set(x, new Constant<IV>(setup.brad));
+            list.add(tmp);
+
+            tmp = new ListBindingSet();
+            tmp.set(x, new Constant<IV>(setup.fred));
+            list.add(tmp);
+
+            initialBindingSets = list.toArray(new IBindingSet[0]);
+
+        }
+
+        final MockQueryContext queryContext = new MockQueryContext(queryId);
+        try {
+
+            final BaseJoinStats stats = (BaseJoinStats) query.newStats();
+
+            final IAsynchronousIterator<IBindingSet[]> source = new ThickAsynchronousIterator<IBindingSet[]>(
+                    new IBindingSet[][] { initialBindingSets });
+
+            final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                    query, stats);
+
+            final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                    new MockRunningQuery(null/* fed */,
+                            setup.jnl/* indexManager */, queryContext),
+                    -1/* partitionId */, stats, query/* op */,
+                    true/* lastInvocation */, source, sink, null/* sink2 */);
+
+            // get task.
+            final FutureTask<Void> ft = query.eval(context);
+
+            // execute task.
+            setup.jnl.getExecutorService().execute(ft);
+
+            AbstractQueryEngineTestCase.assertSameSolutionsAnyOrder(expected,
+                    sink.iterator(), ft);
+
+            assertEquals(4L, stats.unitsOut.get());
+
+            return stats;
+
+        } finally {
+
+            queryContext.close();
+
+        }
+
+    }
+
 }
@@ -63,15 +63,25 @@ public class TestAll extends TestCase {
         // Test suite for pipeline join.
         suite.addTestSuite(TestPipelineJoin.class);
 
+        // Test suite for the packed IV hash table.
+        suite.addTestSuite(TestPackedIVHashTable.class);
+
+        // Test suite for concurrent probes of a JVM hash index.
+        suite.addTestSuite(TestJVMHashIndex.class);
+
         // Test suite for the guts of the JVM hash join logic.
         suite.addTestSuite(TestJVMHashJoinUtility.class);
 
         // Test suite for the guts of the HTree hash join logic.
         suite.addTestSuite(TestHTreeHashJoinUtility.class);
+
+        // Test suite for the guts of the hybrid hash join logic.
+        suite.addTestSuite(TestHybridHashJoinUtility.class);
         
         // Test suite for a hash join with an access path.
         suite.addTestSuite(TestJVMHashJoinOp.class); // JVM
         suite.addTestSuite(TestHTreeHashJoinOp.class); // HTree
+        suite.addTestSuite(TestHybridHashJoinOp.class); // Hybrid
         
         // Test suite for building a hash index from solutions and joining that
         // hash index back into the pipeline.
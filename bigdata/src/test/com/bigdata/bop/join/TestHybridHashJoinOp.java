@@ -0,0 +1,179 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.bop.join;
+
+import java.util.Map;
+import java.util.UUID;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IPredicate.Annotations;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.NamedSolutionSetRefUtility;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.ap.Predicate;
+import com.bigdata.bop.controller.NamedSetAnnotations;
+import com.bigdata.journal.ITx;
+import com.bigdata.rdf.internal.IV;
+
+/**
+ * Unit tests for the {@link HybridHashJoinOp} operator.
+ * <p>
+ * Note: The operator is run with a heap budget of a single solution so the
+ * hash index is spilled onto the native heap by the inherited tests.
+ */
+@SuppressWarnings("rawtypes")
+public class TestHybridHashJoinOp extends AbstractHashJoinOpTestCase {
+
+    /**
+     * 
+     */
+    public TestHybridHashJoinOp() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestHybridHashJoinOp(String name) {
+        super(name);
+    }
+
+    @Override
+    protected PipelineOp newJoin(final BOp[] args, final int joinId,
+            final IVariable<IV>[] joinVars,
+            final Predicate<IV> predOp,
+            final UUID queryId,
+            final NV... annotations) {
+
+        final Map<String,Object> tmp = NV.asMap(
+                new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER), //
+                new NV(Predicate.Annotations.BOP_ID, joinId),//
+                new NV(PipelineJoin.Annotations.PREDICATE, predOp),//
+                new NV(HTreeHashJoinAnnotations.RELATION_NAME,
+                       predOp.getRequiredProperty(Predicate.Annotations.RELATION_NAME)),//
+                new NV(HashJoinAnnotations.JOIN_VARS, joinVars),//
+                new NV(PipelineOp.Annotations.LAST_PASS, true),//
+                new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                new NV(HybridHashJoinAnnotations.PARTITION_COUNT, 2),//
+                new NV(HybridHashJoinAnnotations.MAX_HEAP_SOLUTIONS, 1L),//
+                new NV(NamedSetAnnotations.NAMED_SET_REF,
+                        NamedSolutionSetRefUtility.newInstance(queryId,
+                                getName(), joinVars))//
+                );
+
+        if (annotations != null) {
+         
+            for (NV nv : annotations) {
+            
+                tmp.put(nv.getName(), nv.getValue());
+                
+            }
+            
+        }
+        
+        final PipelineOp joinOp = new HybridHashJoinOp<IV>(args, tmp);
+
+        return joinOp;
+        
+    }
+
+    /**
+     * Correct rejection tests for the constructor.
+     */
+    public void test_correctRejection() {
+        
+        final BOp[] emptyArgs = new BOp[]{};
+        final int joinId = 1;
+        final int predId = 2;
+        @SuppressWarnings("unchecked")
+        final IVariable<IV> x = Var.var("x");
+
+        final UUID queryId = UUID.randomUUID();
+        
+        final IVariable[] joinVars = new IVariable[]{x};
+
+        final NV namedSet = new NV(NamedSetAnnotations.NAMED_SET_REF,
+                NamedSolutionSetRefUtility.newInstance(queryId, getName(),
+                        joinVars));
+
+        final Predicate<IV> pred = new Predicate<IV>(new IVariableOrConstant[] {
+                new Constant<String>("Mary"), Var.var("x") }, NV
+                .asMap(new NV[] {//
+                        new NV(Predicate.Annotations.RELATION_NAME,
+                                new String[] { setup.spoNamespace }),//
+                        new NV(Predicate.Annotations.BOP_ID, predId),//
+                        new NV(Annotations.TIMESTAMP,
+                                ITx.READ_COMMITTED),//
+                }));
+        
+        // last pass evaluation not requested.
+        try {
+            new HybridHashJoinOp<IV>(emptyArgs, NV.asMap(new NV[] {//
+                    new NV(BOp.Annotations.BOP_ID, joinId),//
+                            new NV(HashJoinAnnotations.JOIN_VARS,new IVariable[]{x}),//
+                            new NV(PipelineOp.Annotations.EVALUATION_CONTEXT,
+                                    BOpEvaluationContext.CONTROLLER),//
+                            new NV(AccessPathJoinAnnotations.PREDICATE,pred),//
+                            new NV(PipelineOp.Annotations.LAST_PASS, false),//
+                            new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                            namedSet,//
+                    }));
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+        
+        // maxParallel not set to ONE (1).
+        try {
+            new HybridHashJoinOp<IV>(emptyArgs, NV.asMap(new NV[] {//
+                    new NV(BOp.Annotations.BOP_ID, joinId),//
+                            new NV(HashJoinAnnotations.JOIN_VARS,new IVariable[]{x}),//
+                            new NV(PipelineOp.Annotations.EVALUATION_CONTEXT,
+                                    BOpEvaluationContext.CONTROLLER),//
+                            new NV(AccessPathJoinAnnotations.PREDICATE,pred),//
+                            new NV(PipelineOp.Annotations.LAST_PASS, true),//
+                            new NV(PipelineOp.Annotations.MAX_PARALLEL, 2),//
+                            namedSet,//
+                    }));
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+        
+    }
+
+}
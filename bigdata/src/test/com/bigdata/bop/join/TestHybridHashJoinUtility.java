@@ -0,0 +1,208 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.bop.join;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.io.DirectBufferPool;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rwstore.sector.MemoryManager;
+import com.bigdata.striterator.Chunkerator;
+
+/**
+ * Test suite for the {@link HybridHashJoinUtility}.
+ * <p>
+ * Note: The utility is run with a very small heap budget so the inherited
+ * tests exercise the logic which spills partitions onto the native heap.
+ */
+public class TestHybridHashJoinUtility extends AbstractHashJoinUtilityTestCase {
+
+    /**
+     * 
+     */
+    public TestHybridHashJoinUtility() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestHybridHashJoinUtility(String name) {
+        super(name);
+    }
+
+    private MemoryManager mmgr;
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        if (mmgr != null) {
+            mmgr.clear();
+            mmgr = null;
+        }
+
+        super.tearDown();
+
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        mmgr = new MemoryManager(DirectBufferPool.INSTANCE);
+
+    }
+
+    /**
+     * Return a copy of the operator which uses a small #of partitions and
+     * allows at most two solutions on the JVM heap.
+     */
+    private PipelineOp newSpillingOp(final PipelineOp op) {
+
+        final List<NV> anns = new LinkedList<NV>();
+
+        for (Map.Entry<String, Object> e : op.annotations().entrySet()) {
+
+            anns.add(new NV(e.getKey(), e.getValue()));
+
+        }
+
+        anns.add(new NV(HybridHashJoinAnnotations.PARTITION_COUNT, 4));
+
+        anns.add(new NV(HybridHashJoinAnnotations.MAX_HEAP_SOLUTIONS, 2L));
+
+        return new MockPipelineOp(BOp.NOARGS, anns.toArray(new NV[anns
+                .size()]));
+
+    }
+
+    @Override
+    protected HybridHashJoinUtility newHashJoinUtility(final PipelineOp op,
+            final JoinTypeEnum joinType) {
+
+        return new HybridHashJoinUtility(mmgr, newSpillingOp(op), joinType,
+                new AtomicLong());
+
+    }
+
+    /**
+     * Verify that partitions are spilled once the heap budget is exceeded and
+     * that the join still produces each solution exactly once.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_spill() {
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+
+        final PipelineOp op = new MockPipelineOp(BOp.NOARGS, 
+                new NV(HTreeHashJoinAnnotations.RELATION_NAME,
+                        new String[] { getName() }),//
+                new NV(HashJoinAnnotations.JOIN_VARS, new IVariable[] { x })//
+                );
+
+        final HybridHashJoinUtility state = newHashJoinUtility(op,
+                JoinTypeEnum.Normal);
+
+        try {
+
+            final int n = 50;
+
+            final List<IBindingSet> right = new LinkedList<IBindingSet>();
+            final List<IBindingSet> left = new LinkedList<IBindingSet>();
+            final IBindingSet[] expected = new IBindingSet[n];
+
+            for (int i = 0; i < n; i++) {
+
+                final IV xv = new TermId(VTE.URI, i + 1);
+                final IV yv = new TermId(VTE.LITERAL, i + 1);
+
+                right.add(new ListBindingSet(new IVariable[] { x, y },
+                        new Constant[] { new Constant(xv), new Constant(yv) }));
+
+                left.add(new ListBindingSet(new IVariable[] { x },
+                        new Constant[] { new Constant(xv) }));
+
+                expected[i] = new ListBindingSet(new IVariable[] { x, y },
+                        new Constant[] { new Constant(xv), new Constant(yv) });
+
+            }
+
+            final BOpStats stats = new BOpStats();
+
+            state.acceptSolutions(
+                    new Chunkerator<IBindingSet>(right.iterator(), 7/* chunkSize */,
+                            IBindingSet.class), stats);
+
+            assertEquals(n, state.getRightSolutionCount());
+
+            assertEquals(n, stats.unitsIn.get());
+
+            assertEquals(4, state.getPartitionCount());
+
+            assertTrue(state.getSpilledPartitionCount() > 0);
+
+            assertTrue(state.getHeapSolutionCount() <= 2);
+
+            assertSameSolutionsAnyOrder(
+                    right.toArray(new IBindingSet[right.size()]),
+                    state.indexScan());
+
+            final TestBuffer<IBindingSet> outputBuffer = new TestBuffer<IBindingSet>();
+
+            state.hashJoin(new Chunkerator<IBindingSet>(left.iterator(),
+                    10/* chunkSize */, IBindingSet.class), null/* stats */,
+                    outputBuffer);
+
+            assertSameSolutionsAnyOrder(expected, outputBuffer.iterator());
+
+        } finally {
+
+            state.release();
+
+        }
+
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.bop.join;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.join.JVMHashIndex.Bucket;
+import com.bigdata.bop.join.JVMHashIndex.Key;
+import com.bigdata.bop.join.JVMHashIndex.SolutionHit;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+
+/**
+ * Test suite for {@link JVMHashIndex}.
+ */
+public class TestJVMHashIndex extends TestCase2 {
+
+    public TestJVMHashIndex() {
+    }
+
+    public TestJVMHashIndex(final String name) {
+        super(name);
+    }
+
+    /**
+     * Return the join value for the i<sup>th</sup> solution. Different kinds
+     * of {@link IV}s are used so the packed keys have different lengths.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static IConstant<IV> value(final int i) {
+
+        final IV iv = (i % 2 == 0) ? new TermId(VTE.URI, i + 1L)
+                : new XSDNumericIV(i);
+
+        return new Constant<IV>(iv);
+
+    }
+
+    /**
+     * A saved index is probed by concurrent readers (e.g., a named solution
+     * set joined by several instances of the same operator). Each probe must
+     * locate the bucket for its own solution.
+     */
+    public void test_concurrentProbes() throws Exception {
+
+        final IVariable<?> x = Var.var("x");
+
+        final JVMHashIndex index = new JVMHashIndex(new IVariable[] { x },
+                false/* indexSolutionsHavingUnboundJoinVars */,
+                new LinkedHashMap<Key, Bucket>());
+
+        final int n = 2000;
+
+        for (int i = 0; i < n; i++) {
+
+            final IBindingSet bset = new ListBindingSet();
+
+            bset.set(x, value(i));
+
+            index.add(bset);
+
+        }
+
+        final int nthreads = 8;
+
+        final ExecutorService service = Executors
+                .newFixedThreadPool(nthreads);
+
+        try {
+
+            final List<Future<Void>> futures = new LinkedList<Future<Void>>();
+
+            for (int t = 0; t < nthreads; t++) {
+
+                final int offset = t * 97;
+
+                futures.add(service.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+
+                        for (int trial = 0; trial < 20; trial++) {
+
+                            for (int j = 0; j < n; j++) {
+
+                                final int i = (j + offset) % n;
+
+                                final IBindingSet probe = new ListBindingSet();
+
+                                probe.set(x, value(i));
+
+                                final Bucket b = index.getBucket(probe);
+
+                                assertNotNull("i=" + i, b);
+
+                                final Iterator<SolutionHit> itr = b.iterator();
+
+                                assertTrue(itr.hasNext());
+
+                                assertEquals(value(i), itr.next().solution
+                                        .get(x));
+
+                                assertFalse(itr.hasNext());
+
+                            }
+
+                        }
+
+                        return null;
+
+                    }
+
+                }));
+
+            }
+
+            for (Future<Void> f : futures) {
+
+                f.get();
+
+            }
+
+        } finally {
+
+            service.shutdownNow();
+
+        }
+
+    }
+
+}
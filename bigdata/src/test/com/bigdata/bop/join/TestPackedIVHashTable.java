@@ -0,0 +1,159 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+
+package com.bigdata.bop.join;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IConstant;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+
+/**
+ * Test suite for {@link PackedIVHashTable}.
+ */
+public class TestPackedIVHashTable extends TestCase2 {
+
+    public TestPackedIVHashTable() {
+    }
+
+    public TestPackedIVHashTable(final String name) {
+        super(name);
+    }
+
+    private final IKeyBuilder keyBuilder = new KeyBuilder();
+
+    /**
+     * Pack the values into the {@link #keyBuilder}.
+     */
+    private boolean pack(final IConstant<?>... vals) {
+
+        keyBuilder.reset();
+
+        return PackedIVHashTable.encode(keyBuilder, vals);
+
+    }
+
+    private int insert(final PackedIVHashTable t) {
+
+        return t.insert(keyBuilder.array(), keyBuilder.len(),
+                PackedIVHashTable.hash(keyBuilder.array(), 0, keyBuilder.len()));
+
+    }
+
+    private int get(final PackedIVHashTable t) {
+
+        return t.get(keyBuilder.array(), keyBuilder.len(),
+                PackedIVHashTable.hash(keyBuilder.array(), 0, keyBuilder.len()));
+
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static IConstant<IV> c(final IV iv) {
+
+        return new Constant<IV>(iv);
+
+    }
+
+    /**
+     * Values which are not {@link IV}s and mock {@link IV}s can not be
+     * packed.
+     */
+    @SuppressWarnings("rawtypes")
+    public void test_encode() {
+
+        assertTrue(pack(c(new TermId(VTE.URI, 1L)), null/* unbound */,
+                c(new XSDNumericIV(12))));
+
+        assertFalse(pack(new Constant<String>("a")));
+
+        assertFalse(pack(c(TermId.mockIV(VTE.URI))));
+
+        // An unbound value is distinct from a bound value.
+        pack(c(new TermId(VTE.URI, 1L)), null);
+        final byte[] a = keyBuilder.getKey();
+        pack(null, c(new TermId(VTE.URI, 1L)));
+        final byte[] b = keyBuilder.getKey();
+        assertFalse(java.util.Arrays.equals(a, b));
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    public void test_insertAndGet() {
+
+        final PackedIVHashTable t = new PackedIVHashTable(2/* initialCapacity */,
+                .75f/* loadFactor */);
+
+        final int n = 1000;
+
+        for (int i = 0; i < n; i++) {
+
+            assertTrue(pack(c(new TermId(VTE.URI, i + 1)), c(new XSDNumericIV(i % 7))));
+
+            assertEquals(-1, get(t));
+
+            assertEquals(i, insert(t));
+
+        }
+
+        assertEquals(n, t.size());
+
+        for (int i = 0; i < n; i++) {
+
+            pack(c(new TermId(VTE.URI, i + 1)), c(new XSDNumericIV(i % 7)));
+
+            assertEquals(i, get(t));
+
+            // Duplicate key.
+            assertEquals(-i - 1, insert(t));
+
+        }
+
+        assertEquals(n, t.size());
+
+        // Not found.
+        pack(c(new TermId(VTE.URI, n + 1)), c(new XSDNumericIV(0)));
+        assertEquals(-1, get(t));
+
+        t.clear();
+
+        assertEquals(0, t.size());
+
+        pack(c(new TermId(VTE.URI, 1)), c(new XSDNumericIV(0)));
+        assertEquals(-1, get(t));
+        assertEquals(0, insert(t));
+
+    }
+
+}
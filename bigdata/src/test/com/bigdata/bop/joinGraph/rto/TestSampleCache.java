@@ -0,0 +1,236 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.joinGraph.rto;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.ap.Predicate;
+import com.bigdata.bop.ap.SampleIndex.SampleType;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+
+/**
+ * Unit tests for the {@link SampleCache}.
+ */
+public class TestSampleCache extends TestCase2 {
+
+    public TestSampleCache() {
+    }
+
+    public TestSampleCache(String name) {
+        super(name);
+    }
+
+    private static final String namespace = "kb.spo";
+
+    private IPredicate<?> newPredicate(final int bopId, final BOp... args) {
+
+        return new Predicate(args, //
+                new NV(Predicate.Annotations.BOP_ID, bopId),//
+                new NV(Predicate.Annotations.RELATION_NAME,
+                        new String[] { namespace })//
+        );
+
+    }
+
+    private IBindingSet[] newSample(final IVariable<?> var, final long... vals) {
+
+        final IBindingSet[] a = new IBindingSet[vals.length];
+
+        for (int i = 0; i < vals.length; i++) {
+
+            a[i] = new ListBindingSet(new IVariable[] { var },
+                    new IConstant[] { new Constant<Long>(vals[i]) });
+
+        }
+
+        return a;
+
+    }
+
+    /**
+     * A vertex sample is reused for a predicate having the same shape but
+     * different variables and bop identifier. The variables in the sample are
+     * renamed.
+     */
+    public void test_vertexSample_sameShape() {
+
+        final SampleCache cache = new SampleCache(true/* enabled */,
+                10/* capacity */, .1d/* maxDrift */);
+
+        final IPredicate<?> p1 = newPredicate(1, Var.var("x"),
+                new Constant<Long>(5L));
+
+        final IPredicate<?> p2 = newPredicate(2, Var.var("y"),
+                new Constant<Long>(5L));
+
+        final IPredicate<?> p3 = newPredicate(3, Var.var("y"),
+                new Constant<Long>(6L));
+
+        cache.putVertexSample(p1, SampleType.RANDOM, 1000L, new VertexSample(
+                1000L, 2/* limit */, EstimateEnum.Normal, newSample(
+                        Var.var("x"), 1L, 2L)));
+
+        // different constant.
+        assertNull(cache.getVertexSample(p3, 2, SampleType.RANDOM, 1000L));
+
+        // different sample type.
+        assertNull(cache.getVertexSample(p2, 2, SampleType.EVEN, 1000L));
+
+        // larger limit.
+        assertNull(cache.getVertexSample(p2, 3, SampleType.RANDOM, 1000L));
+
+        final VertexSample s = cache.getVertexSample(p2, 2, SampleType.RANDOM,
+                1050L);
+
+        assertNotNull(s);
+
+        // the estimate reflects the current range count.
+        assertEquals(1050L, s.estCard);
+
+        assertEquals(EstimateEnum.Normal, s.estimateEnum);
+
+        assertEquals(2, s.getSample().length);
+
+        assertEquals(new Constant<Long>(1L), s.getSample()[0].get(Var
+                .var("y")));
+
+        assertNull(s.getSample()[0].get(Var.var("x")));
+
+    }
+
+    /**
+     * A vertex sample is invalidated when the range count drifts too far.
+     */
+    public void test_vertexSample_drift() {
+
+        final SampleCache cache = new SampleCache(true/* enabled */,
+                10/* capacity */, .1d/* maxDrift */);
+
+        final IPredicate<?> p1 = newPredicate(1, Var.var("x"),
+                new Constant<Long>(5L));
+
+        cache.putVertexSample(p1, SampleType.RANDOM, 1000L, new VertexSample(
+                1000L, 2/* limit */, EstimateEnum.Normal, newSample(
+                        Var.var("x"), 1L, 2L)));
+
+        assertNull(cache.getVertexSample(p1, 2, SampleType.RANDOM, 1200L));
+
+        // the stale sample was discarded.
+        assertNull(cache.getVertexSample(p1, 2, SampleType.RANDOM, 1000L));
+
+        // an exact sample is invalidated by any change.
+        cache.putVertexSample(p1, SampleType.RANDOM, 2L, new VertexSample(2L,
+                2/* limit */, EstimateEnum.Exact, newSample(Var.var("x"), 1L,
+                        2L)));
+
+        assertNotNull(cache.getVertexSample(p1, 100, SampleType.RANDOM, 2L));
+
+        assertNull(cache.getVertexSample(p1, 2, SampleType.RANDOM, 3L));
+
+    }
+
+    /**
+     * Edges whose estimate is uncertain are not cached.
+     */
+    public void test_edgeSample() {
+
+        final SampleCache cache = new SampleCache(true/* enabled */,
+                10/* capacity */, .1d/* maxDrift */);
+
+        final Vertex v = new Vertex(newPredicate(1, Var.var("x"),
+                new Constant<Long>(5L)));
+
+        final Vertex vp = new Vertex(newPredicate(2, Var.var("x"),
+                Var.var("z")));
+
+        v.sample = new VertexSample(1000L, 2/* limit */, EstimateEnum.Normal,
+                newSample(Var.var("x"), 1L, 2L));
+
+        vp.sample = new VertexSample(5000L, 2/* limit */,
+                EstimateEnum.Normal, newSample(Var.var("x"), 1L, 2L));
+
+        cache.putEdgeSample(v, vp, false/* pathIsComplete */, new EdgeSample(
+                v.sample, 2/* inputCount */, 2L/* tuplesRead */,
+                2L/* sumRangeCount */, 0L/* outputCount */, 0L/* adjCard */,
+                0d/* f */, 0L/* estCard */, 2000L/* estRead */, 2/* limit */,
+                EstimateEnum.Underflow, new IBindingSet[0]));
+
+        assertNull(cache.getEdgeSample(v, vp, 2, false/* pathIsComplete */));
+
+        cache.putEdgeSample(v, vp, false/* pathIsComplete */, new EdgeSample(
+                v.sample, 2/* inputCount */, 4L/* tuplesRead */,
+                4L/* sumRangeCount */, 2L/* outputCount */, 2L/* adjCard */,
+                1d/* f */, 1000L/* estCard */, 2000L/* estRead */,
+                2/* limit */, EstimateEnum.Normal, newSample(Var.var("x"), 1L,
+                        2L)));
+
+        // different pathIsComplete.
+        assertNull(cache.getEdgeSample(v, vp, 2, true/* pathIsComplete */));
+
+        final EdgeSample s = cache.getEdgeSample(v, vp, 2, false/* pathIsComplete */);
+
+        assertNotNull(s);
+
+        assertEquals(1000L, s.estCard);
+
+        assertEquals(2, s.getSample().length);
+
+        // the source vertex estimate has drifted.
+        v.sample = new VertexSample(2000L, 2/* limit */, EstimateEnum.Normal,
+                newSample(Var.var("x"), 1L, 2L));
+
+        assertNull(cache.getEdgeSample(v, vp, 2, false/* pathIsComplete */));
+
+    }
+
+    public void test_disabled() {
+
+        final SampleCache cache = new SampleCache(false/* enabled */,
+                10/* capacity */, .1d/* maxDrift */);
+
+        final IPredicate<?> p1 = newPredicate(1, Var.var("x"),
+                new Constant<Long>(5L));
+
+        cache.putVertexSample(p1, SampleType.RANDOM, 1000L, new VertexSample(
+                1000L, 2/* limit */, EstimateEnum.Normal, newSample(
+                        Var.var("x"), 1L, 2L)));
+
+        assertNull(cache.getVertexSample(p1, 2, SampleType.RANDOM, 1000L));
+
+    }
+
+}
@@ -78,6 +78,12 @@ public class TestAll extends TestCase {
         // test distinct operator for binding sets using HTree.
         suite.addTestSuite(TestHTreeDistinctBindingSets.class);
 
+        // test distinct operator which spills sorted runs to the native heap.
+        suite.addTestSuite(TestSpillingDistinctBindingSets.class);
+
+        // test reduced operator using a bounded cache.
+        suite.addTestSuite(TestJVMReducedBindingSets.class);
+
         /*
          * Sorting
          */
@@ -100,6 +106,7 @@ public class TestAll extends TestCase {
         
         // In-memory generalized aggregation operator
         suite.addTestSuite(TestMemoryGroupByOp.class);
+        suite.addTestSuite(TestPartitionedMemoryGroupByOp.class);
 
         // FIXME Enable test for Native memory generalized aggregation operator
 //        suite.addTestSuite(TestHTreeGroupByOp.class);
@@ -107,6 +114,9 @@ public class TestAll extends TestCase {
         // Pipelined aggregation operator.
         suite.addTestSuite(TestPipelinedAggregationOp.class);
 
+        // Streaming aggregation over ordered solutions.
+        suite.addTestSuite(TestOrderedGroupByOp.class);
+
         return suite;
         
     }
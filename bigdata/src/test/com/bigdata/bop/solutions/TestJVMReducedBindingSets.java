@@ -0,0 +1,63 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+
+/**
+ * Unit tests for {@link JVMReducedBindingSetsOp}. The duplicates in the test
+ * data are adjacent, so they are always found in the cache.
+ */
+public class TestJVMReducedBindingSets extends
+        AbstractDistinctSolutionsTestCase {
+
+    /**
+     * 
+     */
+    public TestJVMReducedBindingSets() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestJVMReducedBindingSets(String name) {
+        super(name);
+    }
+
+    @Override
+    protected PipelineOp newDistinctBindingSetsOp(final BOp[] args,
+            final NV... anns) {
+
+        return new JVMReducedBindingSetsOp(args, anns);
+
+    }
+
+}
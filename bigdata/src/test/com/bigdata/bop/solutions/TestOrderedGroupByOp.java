@@ -0,0 +1,236 @@
+/**
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package com.bigdata.bop.solutions;
+
+import java.math.BigInteger;
+import java.util.concurrent.FutureTask;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Bind;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableFactory;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.AbstractQueryEngineTestCase;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.engine.BlockingBufferWithStats;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.MockRunningQuery;
+import com.bigdata.bop.rdf.aggregate.COUNT;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDIntegerIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.ThickAsynchronousIterator;
+
+/**
+ * Unit tests for {@link OrderedGroupByOp}.
+ * <p>
+ * Note: The solutions for each group are contiguous in the test data for the
+ * inherited tests.
+ */
+public class TestOrderedGroupByOp extends AbstractAggregationTestCase {
+    
+    public TestOrderedGroupByOp() {
+    }
+
+    public TestOrderedGroupByOp(String name) {
+        super(name);
+    }
+
+    @Override
+    protected GroupByOp newFixture(IValueExpression<?>[] select,
+            IValueExpression<?>[] groupBy, IConstraint[] having) {
+
+        final int groupById = 1;
+
+        final IVariableFactory variableFactory = new MockVariableFactory();
+
+        final IGroupByState groupByState = new GroupByState(//
+                select, groupBy, having);
+
+        final IGroupByRewriteState groupByRewrite = new GroupByRewriter(
+                groupByState) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public IVariable<?> var() {
+                return variableFactory.var();
+            }
+
+        };
+
+        final GroupByOp query = new OrderedGroupByOp(new BOp[] {},
+                NV.asMap(new NV[] {//
+                        new NV(BOp.Annotations.BOP_ID, groupById),//
+                        new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                                BOpEvaluationContext.CONTROLLER),//
+                        new NV(PipelineOp.Annotations.PIPELINED, true),//
+                        new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                        new NV(PipelineOp.Annotations.SHARED_STATE, true),//
+                        new NV(PipelineOp.Annotations.LAST_PASS, true),//
+                        new NV(GroupByOp.Annotations.GROUP_BY_STATE, groupByState), //
+                        new NV(GroupByOp.Annotations.GROUP_BY_REWRITE, groupByRewrite), //
+                }));
+
+        return query;
+    }
+
+    @Override
+    protected boolean isPipelinedAggregationOp() {
+
+        return true;
+        
+    }
+
+    /**
+     * Run one invocation of the operator and verify the solutions written onto
+     * the sink.
+     */
+    private void runInvocation(final GroupByOp query, final BOpStats stats,
+            final IBindingSet[] data, final boolean lastInvocation,
+            final IBindingSet[] expected) throws Exception {
+
+        final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                query, stats);
+
+        final IRunningQuery runningQuery = new MockRunningQuery(null/* fed */
+        , null/* indexManager */
+        , queryContext
+        );
+
+        final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                runningQuery, -1/* partitionId */, stats, query/* op */,
+                lastInvocation, new ThickAsynchronousIterator<IBindingSet[]>(
+                        new IBindingSet[][] { data }), sink, null/* sink2 */
+        );
+
+        final FutureTask<Void> ft = query.eval(context);
+
+        ft.run();
+
+        AbstractQueryEngineTestCase.assertSameSolutionsAnyOrder(expected,
+                sink.iterator(), ft);
+
+    }
+
+    /**
+     * Verify that a group is reported as soon as a solution for the next group
+     * is observed and that the open group is carried across invocations.
+     * 
+     * <pre>
+     * SELECT ?org (COUNT(?book) AS ?n) GROUP BY ?org
+     * </pre>
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_orderedGroupBy_streaming() throws Exception {
+
+        final IVariable<IV> org = Var.var("org");
+        final IVariable<IV> book = Var.var("book");
+        final IVariable<IV> n = Var.var("n");
+
+        final IConstant<IV> org1 = uri(1, "org1");
+        final IConstant<IV> org2 = uri(2, "org2");
+        final IConstant<IV> org3 = uri(3, "org3");
+        final IConstant<IV> book1 = uri(4, "book1");
+        final IConstant<IV> book2 = uri(5, "book2");
+        final IConstant<IV> book3 = uri(6, "book3");
+        final IConstant<IV> book4 = uri(7, "book4");
+        final IConstant<IV> book5 = uri(8, "book5");
+
+        final GroupByOp query = newFixture(//
+                new IValueExpression[] { org,
+                        new Bind(n, new COUNT(false/* distinct */, book)) }, // select
+                new IValueExpression[] { org }, // groupBy
+                null // having
+                );
+
+        final BOpStats stats = query.newStats();
+
+        final IVariable<?>[] vars = new IVariable<?>[] { org, book };
+
+        // org1 is closed by the first solution for org2.
+        runInvocation(query, stats, new IBindingSet[] {
+                new ListBindingSet(vars, new IConstant[] { org1, book1 }),
+                new ListBindingSet(vars, new IConstant[] { org1, book2 }),
+                new ListBindingSet(vars, new IConstant[] { org2, book3 }), },
+                false/* lastInvocation */, new IBindingSet[] {//
+                new ListBindingSet(new IVariable<?>[] { org, n },
+                        new IConstant[] { org1, count(2) }) });
+
+        // org2 spans both invocations. org3 is closed by the last invocation.
+        runInvocation(query, stats, new IBindingSet[] {
+                new ListBindingSet(vars, new IConstant[] { org2, book4 }),
+                new ListBindingSet(vars, new IConstant[] { org3, book5 }), },
+                true/* lastInvocation */, new IBindingSet[] {//
+                new ListBindingSet(new IVariable<?>[] { org, n },
+                        new IConstant[] { org2, count(2) }),//
+                new ListBindingSet(new IVariable<?>[] { org, n },
+                        new IConstant[] { org3, count(1) }) });
+
+        assertEquals(5, stats.unitsIn.get());
+        assertEquals(3, stats.unitsOut.get());
+
+    }
+
+    /**
+     * Return a constant for a {@link TermId} having a cached URI.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private IConstant<IV> uri(final long termId, final String localName) {
+
+        final BigdataValueFactory f = BigdataValueFactoryImpl
+                .getInstance(getName());
+
+        final TermId iv = new TermId<BigdataValue>(VTE.URI, termId);
+
+        iv.setValue(f.createURI("http://www.bigdata.com/" + localName));
+
+        return new Constant<IV>(iv);
+
+    }
+
+    private static IConstant<XSDIntegerIV<BigdataLiteral>> count(final long n) {
+
+        return new Constant<XSDIntegerIV<BigdataLiteral>>(
+                new XSDIntegerIV<BigdataLiteral>(BigInteger.valueOf(n)));
+
+    }
+
+}
@@ -0,0 +1,247 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.math.BigInteger;
+import java.util.concurrent.FutureTask;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Bind;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.IVariableFactory;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.AbstractQueryEngineTestCase;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.engine.BlockingBufferWithStats;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.MockRunningQuery;
+import com.bigdata.bop.rdf.aggregate.COUNT;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.literal.XSDIntegerIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+import com.bigdata.relation.accesspath.IAsynchronousIterator;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.ThickAsynchronousIterator;
+
+/**
+ * Unit tests for {@link MemoryGroupByOp} when the solutions are hash
+ * partitioned on the GROUP_BY expressions.
+ * 
+ * @see MemoryGroupByOp.Annotations#PARTITION_COUNT
+ */
+public class TestPartitionedMemoryGroupByOp extends AbstractAggregationTestCase {
+
+    public TestPartitionedMemoryGroupByOp() {
+    }
+
+    public TestPartitionedMemoryGroupByOp(String name) {
+        super(name);
+    }
+
+    @Override
+    protected GroupByOp newFixture(IValueExpression<?>[] select,
+            IValueExpression<?>[] groupBy, IConstraint[] having) {
+
+        final int groupById = 1;
+
+        final IVariableFactory variableFactory = new MockVariableFactory();
+
+        final IGroupByState groupByState = new GroupByState(//
+                select, groupBy, having);
+
+        final IGroupByRewriteState groupByRewrite = new GroupByRewriter(
+                groupByState) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public IVariable<?> var() {
+                return variableFactory.var();
+            }
+
+        };
+
+        final GroupByOp query = new MemoryGroupByOp(new BOp[] {},
+                NV.asMap(new NV[] {//
+                        new NV(BOp.Annotations.BOP_ID, groupById),//
+                        new NV(BOp.Annotations.EVALUATION_CONTEXT,
+                                BOpEvaluationContext.CONTROLLER),//
+                        new NV(PipelineOp.Annotations.PIPELINED, false),//
+                        new NV(PipelineOp.Annotations.MAX_MEMORY, 0),//
+                        new NV(MemoryGroupByOp.Annotations.PARTITION_COUNT, 3),//
+                        new NV(GroupByOp.Annotations.GROUP_BY_STATE, groupByState), //
+                        new NV(GroupByOp.Annotations.GROUP_BY_REWRITE, groupByRewrite), //
+                }));
+
+        return query;
+    }
+
+    @Override
+    protected boolean isPipelinedAggregationOp() {
+        return false;
+    }
+
+    /**
+     * Verify that the groups are spread over the partitions and that COUNT
+     * and COUNT(DISTINCT) are computed correctly for each group.
+     * 
+     * <pre>
+     * SELECT ?g (COUNT(?x) AS ?n) (COUNT(DISTINCT ?x) AS ?nd)
+     * GROUP BY ?g
+     * </pre>
+     * 
+     * Each of the 20 groups has the solutions <code>?x=a, ?x=a, ?x=b</code>.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_partitioned_count_and_countDistinct() {
+
+        final IVariable<IV> g = Var.var("g");
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> n = Var.var("n");
+        final IVariable<IV> nd = Var.var("nd");
+
+        final int ngroups = 20;
+
+        final IConstant<IV> a = uri(1, "a");
+        final IConstant<IV> b = uri(2, "b");
+
+        final GroupByOp query = newFixture(//
+                new IValueExpression[] {
+                        g,
+                        new Bind(n, new COUNT(false/* distinct */,
+                                (IValueExpression<IV>) x)),
+                        new Bind(nd, new COUNT(true/* distinct */,
+                                (IValueExpression<IV>) x)) }, // select
+                new IValueExpression[] { g }, // groupBy
+                null // having
+        );
+
+        final IBindingSet[] data = new IBindingSet[ngroups * 3];
+
+        final IBindingSet[] expected = new IBindingSet[ngroups];
+
+        final IConstant<XSDIntegerIV<BigdataLiteral>> three = new Constant<XSDIntegerIV<BigdataLiteral>>(
+                new XSDIntegerIV<BigdataLiteral>(BigInteger.valueOf(3)));
+
+        final IConstant<XSDIntegerIV<BigdataLiteral>> two = new Constant<XSDIntegerIV<BigdataLiteral>>(
+                new XSDIntegerIV<BigdataLiteral>(BigInteger.valueOf(2)));
+
+        for (int i = 0; i < ngroups; i++) {
+
+            final IConstant<IV> gi = uri(100 + i, "g" + i);
+
+            // Note: The solutions for the groups are interleaved.
+            data[i] = new ListBindingSet(new IVariable<?>[] { g, x },
+                    new IConstant[] { gi, a });
+            data[ngroups + i] = new ListBindingSet(new IVariable<?>[] { g, x },
+                    new IConstant[] { gi, b });
+            data[2 * ngroups + i] = new ListBindingSet(new IVariable<?>[] {
+                    g, x }, new IConstant[] { gi, a });
+
+            expected[i] = new ListBindingSet(new IVariable<?>[] { g, n, nd },
+                    new IConstant[] { gi, three, two });
+
+        }
+
+        final BOpStats stats = query.newStats();
+
+        final IAsynchronousIterator<IBindingSet[]> source = new ThickAsynchronousIterator<IBindingSet[]>(
+                new IBindingSet[][] { data });
+
+        final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                query, stats);
+
+        final IRunningQuery runningQuery = new MockRunningQuery(null/* fed */
+        , null/* indexManager */,
+        queryContext
+        );
+
+        // Note: [lastInvocation:=true] forces the solutions to be emitted.
+        final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                runningQuery, -1/* partitionId */
+                , stats, query/* op */, true/* lastInvocation */, source, sink,
+                null/* sink2 */
+        );
+
+        final FutureTask<Void> ft = query.eval(context);
+        // Run the query.
+        {
+            final Thread t = new Thread() {
+                public void run() {
+                    ft.run();
+                }
+            };
+            t.setDaemon(true);
+            t.start();
+        }
+
+        // Check the solutions.
+        AbstractQueryEngineTestCase.assertSameSolutionsAnyOrder(expected,
+                sink.iterator(), ft);
+
+        assertEquals(1, stats.chunksIn.get());
+        assertEquals(ngroups * 3, stats.unitsIn.get());
+        assertEquals(ngroups, stats.unitsOut.get());
+        assertEquals(1, stats.chunksOut.get());
+
+    }
+
+    /**
+     * Return a constant for a {@link TermId} having a cached URI.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private IConstant<IV> uri(final long termId, final String localName) {
+
+        final BigdataValueFactory f = BigdataValueFactoryImpl
+                .getInstance(getName());
+
+        final TermId iv = new TermId<BigdataValue>(VTE.URI, termId);
+
+        iv.setValue(f.createURI("http://www.bigdata.com/" + localName));
+
+        return new Constant<IV>(iv);
+
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.AbstractQueryEngineTestCase;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.engine.BlockingBufferWithStats;
+import com.bigdata.bop.engine.MockRunningQuery;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.relation.accesspath.IAsynchronousIterator;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.ThickAsynchronousIterator;
+
+/**
+ * Unit tests for {@link SpillingDistinctBindingSetsOp}.
+ */
+public class TestSpillingDistinctBindingSets extends
+        AbstractDistinctSolutionsTestCase {
+
+    /**
+     * 
+     */
+    public TestSpillingDistinctBindingSets() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestSpillingDistinctBindingSets(String name) {
+        super(name);
+    }
+
+    @Override
+    protected PipelineOp newDistinctBindingSetsOp(final BOp[] args,
+            final NV... anns) {
+
+        final NV[] tmp = new NV[anns.length + 1];
+
+        System.arraycopy(anns, 0, tmp, 0, anns.length);
+
+        tmp[anns.length] = new NV(PipelineOp.Annotations.LAST_PASS, true);
+
+        return new SpillingDistinctBindingSetsOp(args, tmp);
+
+    }
+
+    /**
+     * Unit test with a heap budget so small that every solution after the
+     * first is spilled onto the memory manager. The first solution is emitted
+     * immediately. The others are emitted on the last pass when the sorted
+     * runs are merged, and the first solution is not emitted again even though
+     * it reappears after the filter began to spill.
+     */
+    @SuppressWarnings("rawtypes")
+    public void test_distinctBindingSets_spill() throws InterruptedException,
+            ExecutionException {
+
+        final UUID queryId = UUID.randomUUID();
+
+        final Var<?> x = Var.var("x");
+
+        final IVariable<?>[] vars = new IVariable[] { x };
+
+        final PipelineOp query = new SpillingDistinctBindingSetsOp(
+                new BOp[] {},//
+                new NV(SpillingDistinctBindingSetsOp.Annotations.BOP_ID, 1),//
+                new NV(SpillingDistinctBindingSetsOp.Annotations.VARIABLES,
+                        vars),//
+                new NV(SpillingDistinctBindingSetsOp.Annotations.MAX_HEAP_BYTES,
+                        1L),//
+                new NV(PipelineOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER),//
+                new NV(PipelineOp.Annotations.SHARED_STATE, true),//
+                new NV(PipelineOp.Annotations.MAX_PARALLEL, 1),//
+                new NV(PipelineOp.Annotations.LAST_PASS, true)//
+        );
+
+        // the expected solutions
+        final IBindingSet[] expected = new IBindingSet[] {//
+                new ListBindingSet(//
+                        new IVariable[] { x },//
+                        new IConstant[] { new Constant<IV>(setup.john) }//
+                ), new ListBindingSet(//
+                        new IVariable[] { x },//
+                        new IConstant[] { new Constant<IV>(setup.mary) }//
+                ), new ListBindingSet(//
+                        new IVariable[] { x },//
+                        new IConstant[] { new Constant<IV>(setup.paul) }//
+                ), new ListBindingSet(//
+                        new IVariable[] { x },//
+                        new IConstant[] { new Constant<IV>(setup.leon) }//
+                ), };
+
+        // The data plus a duplicate of the first solution.
+        final List<IBindingSet> data = new LinkedList<IBindingSet>(setup.data);
+
+        data.add(setup.data.get(0).clone());
+
+        final MockQueryContext queryContext = new MockQueryContext(queryId);
+        try {
+
+            final BOpStats stats = query.newStats();
+
+            final IAsynchronousIterator<IBindingSet[]> source = new ThickAsynchronousIterator<IBindingSet[]>(
+                    new IBindingSet[][] { data.toArray(new IBindingSet[0]) });
+
+            final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                    query, stats);
+
+            final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                    new MockRunningQuery(null/* fed */, null/* indexManager */,
+                            queryContext), -1/* partitionId */, stats,
+                    query/* op */, true/* lastInvocation */, source, sink,
+                    null/* sink2 */);
+
+            final FutureTask<Void> ft = query.eval(context);
+
+            ft.run();
+
+            AbstractQueryEngineTestCase.assertSameSolutionsAnyOrder("",
+                    expected, sink.iterator(), ft);
+
+            assertEquals(1L, stats.chunksIn.get());
+            assertEquals(7L, stats.unitsIn.get());
+            assertEquals(4L, stats.unitsOut.get());
+
+            // The operator's state was released.
+            assertNull(queryContext.getAttributes().get(
+                    Integer.toString(query.getId())));
+
+        } finally {
+
+            queryContext.close();
+
+        }
+
+    }
+
+}
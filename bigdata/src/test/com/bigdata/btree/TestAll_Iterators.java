@@ -75,6 +75,9 @@ public class TestAll_Iterators extends TestCase {
         // test chunked iterators.
         suite.addTestSuite(TestChunkedIterators.class);
 
+        // test batched probes of sorted key ranges.
+        suite.addTestSuite(TestMultiKeyProbe.class);
+
         return suite;
 
     }
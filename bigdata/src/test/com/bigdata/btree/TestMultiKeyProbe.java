@@ -0,0 +1,278 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.btree;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.btree.keys.TestKeyBuilder;
+import com.bigdata.rawstore.SimpleMemoryRawStore;
+
+/**
+ * Test suite for
+ * {@link AbstractBTree#multiKeyProbe(byte[][], byte[][], int, IMultiKeyProbeVisitor)}
+ * .
+ */
+public class TestMultiKeyProbe extends TestCase2 {
+
+    public TestMultiKeyProbe() {
+    }
+
+    public TestMultiKeyProbe(String name) {
+        super(name);
+    }
+
+    /**
+     * Return a {@link BTree} with a small branching factor whose keys are the
+     * even integers in [2:200].
+     */
+    private BTree getBTree(final boolean deleteMarkers) {
+
+        final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+        md.setBranchingFactor(3);
+
+        md.setDeleteMarkers(deleteMarkers);
+
+        final BTree btree = BTree.create(new SimpleMemoryRawStore(), md);
+
+        for (int i = 2; i <= 200; i += 2) {
+
+            btree.insert(TestKeyBuilder.asSortKey(i), "v" + i);
+
+        }
+
+        return btree;
+
+    }
+
+    /**
+     * Collects the visited tuples as "index:value".
+     */
+    private static class Collector implements IMultiKeyProbeVisitor {
+
+        final List<String> visited = new LinkedList<String>();
+
+        @Override
+        public boolean visit(final int index, final ITuple<?> tuple) {
+
+            visited.add(index + ":" + tuple.getObject());
+
+            return true;
+
+        }
+
+    }
+
+    /**
+     * Return the expected visitation order using one range iterator per key
+     * range.
+     */
+    private List<String> expected(final BTree btree, final byte[][] fromKeys,
+            final byte[][] toKeys) {
+
+        final List<String> expected = new LinkedList<String>();
+
+        for (int i = 0; i < fromKeys.length; i++) {
+
+            if (fromKeys[i] != null && toKeys[i] != null
+                    && BytesUtil.compareBytes(fromKeys[i], toKeys[i]) >= 0)
+                continue;
+
+            final ITupleIterator<?> itr = btree.rangeIterator(fromKeys[i],
+                    toKeys[i]);
+
+            while (itr.hasNext()) {
+
+                expected.add(i + ":" + itr.next().getObject());
+
+            }
+
+        }
+
+        return expected;
+
+    }
+
+    /**
+     * Sorted and clustered key ranges are located with far fewer descents
+     * than key ranges, and visit the same tuples as a range iterator for each
+     * key range.
+     */
+    public void test_sortedKeyRanges() {
+
+        final BTree btree = getBTree(false/* deleteMarkers */);
+
+        final int n = 60;
+
+        final byte[][] fromKeys = new byte[n][];
+        final byte[][] toKeys = new byte[n][];
+
+        for (int i = 0; i < n; i++) {
+
+            // ranges of 3 integers starting at odd and even values.
+            fromKeys[i] = TestKeyBuilder.asSortKey(i * 3 + 1);
+            toKeys[i] = TestKeyBuilder.asSortKey(i * 3 + 4);
+
+        }
+
+        final Collector c = new Collector();
+
+        final long ndescents = btree.multiKeyProbe(fromKeys, toKeys,
+                IRangeQuery.DEFAULT, c);
+
+        assertEquals(expected(btree, fromKeys, toKeys), c.visited);
+
+        assertTrue("ndescents=" + ndescents, ndescents < n / 2);
+
+    }
+
+    /**
+     * Unordered key ranges, empty key ranges, key ranges beyond the last key
+     * and unbounded key ranges.
+     */
+    public void test_edgeCases() {
+
+        final BTree btree = getBTree(false/* deleteMarkers */);
+
+        final byte[][] fromKeys = new byte[][] {//
+                TestKeyBuilder.asSortKey(150),//
+                TestKeyBuilder.asSortKey(10),// out of order.
+                TestKeyBuilder.asSortKey(20),// empty range.
+                TestKeyBuilder.asSortKey(1),// before the first key.
+                TestKeyBuilder.asSortKey(500),// after the last key.
+                TestKeyBuilder.asSortKey(196),// no upper bound.
+                null,// no lower bound.
+        };
+
+        final byte[][] toKeys = new byte[][] {//
+                TestKeyBuilder.asSortKey(157),//
+                TestKeyBuilder.asSortKey(13),//
+                TestKeyBuilder.asSortKey(20),//
+                TestKeyBuilder.asSortKey(5),//
+                TestKeyBuilder.asSortKey(600),//
+                null,//
+                TestKeyBuilder.asSortKey(7),//
+        };
+
+        final Collector c = new Collector();
+
+        btree.multiKeyProbe(fromKeys, toKeys, IRangeQuery.DEFAULT, c);
+
+        assertEquals(expected(btree, fromKeys, toKeys), c.visited);
+
+    }
+
+    /**
+     * Deleted tuples are not visited.
+     */
+    public void test_deleteMarkers() {
+
+        final BTree btree = getBTree(true/* deleteMarkers */);
+
+        btree.remove(TestKeyBuilder.asSortKey(12));
+
+        final Collector c = new Collector();
+
+        btree.multiKeyProbe(new byte[][] { TestKeyBuilder.asSortKey(10) },
+                new byte[][] { TestKeyBuilder.asSortKey(15) },
+                IRangeQuery.DEFAULT, c);
+
+        // keys 10, 12 and 14 are in [10:15), but 12 was deleted.
+        assertEquals(2, c.visited.size());
+
+        assertEquals("0:v10", c.visited.get(0));
+
+        assertEquals("0:v14", c.visited.get(1));
+
+    }
+
+    /**
+     * The visitor may halt the probe.
+     */
+    public void test_halt() {
+
+        final BTree btree = getBTree(false/* deleteMarkers */);
+
+        final List<String> visited = new LinkedList<String>();
+
+        btree.multiKeyProbe(new byte[][] { null, null }, new byte[][] {
+                null, null }, IRangeQuery.DEFAULT,
+                new IMultiKeyProbeVisitor() {
+                    @Override
+                    public boolean visit(final int index, final ITuple<?> tuple) {
+                        visited.add(index + ":" + tuple.getObject());
+                        return visited.size() < 3;
+                    }
+                });
+
+        assertEquals(3, visited.size());
+
+        assertEquals("0:v6", visited.get(2));
+
+    }
+
+    /**
+     * An empty index.
+     */
+    public void test_emptyIndex() {
+
+        final BTree btree = BTree.create(new SimpleMemoryRawStore(),
+                new IndexMetadata(UUID.randomUUID()));
+
+        final Collector c = new Collector();
+
+        btree.multiKeyProbe(
+                new byte[][] { null, TestKeyBuilder.asSortKey(1) },
+                new byte[][] { null, TestKeyBuilder.asSortKey(2) },
+                IRangeQuery.DEFAULT, c);
+
+        assertEquals(0, c.visited.size());
+
+    }
+
+    public void test_correctRejection() {
+
+        final BTree btree = getBTree(false/* deleteMarkers */);
+
+        try {
+            btree.multiKeyProbe(new byte[1][], new byte[2][],
+                    IRangeQuery.DEFAULT, new Collector());
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+}
@@ -76,6 +76,9 @@ public class TestAll extends TestCase {
         // Test suite for message compression.
         suite.addTestSuite(TestCompressorRegistry.class);
 
+        // Test suite for parallel GZIP compression of streams.
+        suite.addTestSuite(TestParallelGZIPOutputStream.class);
+
         return suite;
         
     }
@@ -0,0 +1,186 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.io.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase2;
+
+/**
+ * Test suite for {@link ParallelGZIPOutputStream}.
+ */
+public class TestParallelGZIPOutputStream extends TestCase2 {
+
+    public TestParallelGZIPOutputStream() {
+    }
+
+    public TestParallelGZIPOutputStream(final String name) {
+        super(name);
+    }
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        super.tearDown();
+    }
+
+    /**
+     * An empty stream is still a valid GZIP file.
+     */
+    public void test_empty() throws IOException {
+
+        doRoundTrip(new byte[0], 3/* nparallel */, 1024/* blockSize */);
+
+    }
+
+    /**
+     * Less than one block.
+     */
+    public void test_partialBlock() throws IOException {
+
+        doRoundTrip(randomBytes(100), 3/* nparallel */, 1024/* blockSize */);
+
+    }
+
+    /**
+     * Many blocks and a partial block with more blocks than the parallelism.
+     */
+    public void test_manyBlocks() throws IOException {
+
+        doRoundTrip(randomBytes(1024 * 37 + 11), 3/* nparallel */,
+                1024/* blockSize */);
+
+    }
+
+    /**
+     * Exact multiple of the block size, written one byte at a time.
+     */
+    public void test_singleByteWrites() throws IOException {
+
+        final byte[] expected = randomBytes(1024 * 4);
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        final ParallelGZIPOutputStream os = new ParallelGZIPOutputStream(baos,
+                executor, 2/* nparallel */, 1024/* blockSize */);
+
+        for (byte b : expected)
+            os.write(b);
+
+        os.close();
+
+        assertEquals(expected, gunzip(baos.toByteArray()));
+
+    }
+
+    private void doRoundTrip(final byte[] expected, final int nparallel,
+            final int blockSize) throws IOException {
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        final ParallelGZIPOutputStream os = new ParallelGZIPOutputStream(baos,
+                executor, nparallel, blockSize);
+
+        // Write in odd sized chunks.
+        int off = 0;
+        while (off < expected.length) {
+            final int len = Math.min(expected.length - off, 777);
+            os.write(expected, off, len);
+            off += len;
+        }
+
+        os.close();
+
+        assertEquals(expected, gunzip(baos.toByteArray()));
+
+    }
+
+    /**
+     * Bytes with some redundancy so they will compress.
+     */
+    private byte[] randomBytes(final int len) {
+
+        final Random r = new Random();
+
+        final byte[] a = new byte[len];
+
+        for (int i = 0; i < len; i++) {
+
+            a[i] = (byte) r.nextInt(16);
+
+        }
+
+        return a;
+
+    }
+
+    private static byte[] gunzip(final byte[] a) throws IOException {
+
+        final GZIPInputStream is = new GZIPInputStream(
+                new ByteArrayInputStream(a));
+
+        try {
+
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+            final byte[] buf = new byte[512];
+
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                baos.write(buf, 0, n);
+            }
+
+            return baos.toByteArray();
+
+        } finally {
+
+            is.close();
+
+        }
+
+    }
+
+}
@@ -104,6 +104,9 @@ public class TestAll extends TestCase {
         // test of prefix search
         suite.addTestSuite(TestPrefixSearch.class);
         
+        // test of the term dictionary (prefix and fuzzy completion).
+        suite.addTestSuite(TestTermDictionary.class);
+        
         // test verifies search index is restart safe.
         suite.addTestSuite(TestSearchRestartSafe.class);
         
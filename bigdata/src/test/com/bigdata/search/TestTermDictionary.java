@@ -0,0 +1,248 @@
+/*
+
+Copyright (C) SYSTAP, LLC 2006-2015.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@systap.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 19, 2026
+ */
+
+package com.bigdata.search;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import com.bigdata.rdf.lexicon.ITextIndexer.FullTextQuery;
+
+/**
+ * Unit tests for the term dictionary used for prefix and fuzzy completion of
+ * tokens.
+ *
+ * @see FullTextIndex.Options#TERM_DICTIONARY
+ */
+public class TestTermDictionary extends AbstractSearchTest {
+
+    public TestTermDictionary() {
+    }
+
+    public TestTermDictionary(String name) {
+
+        super(name);
+
+    }
+
+    private static final String languageCode = "EN";
+
+    /**
+     * Index a few documents. "brown" occurs in three documents, "broom" in
+     * two and "brook" in one.
+     */
+    private void indexDocuments() {
+
+        final TokenBuffer<Long> buffer = new TokenBuffer<Long>(2, getNdx());
+
+        getNdx().index(buffer, 1L, 0, languageCode,
+                new StringReader("The quick brown dog"));
+
+        getNdx().index(buffer, 2L, 0, languageCode,
+                new StringReader("The slow brown cow and the broom"));
+
+        // Note: two fields of the same document.
+        getNdx().index(buffer, 3L, 0, languageCode,
+                new StringReader("brown broom"));
+
+        getNdx().index(buffer, 3L, 1, languageCode,
+                new StringReader("brown brook"));
+
+        buffer.flush();
+
+    }
+
+    public void test_prefixEditDistance() {
+
+        assertEquals(0, FullTextIndex.prefixEditDistance("bro", "brown", 2));
+        assertEquals(0, FullTextIndex.prefixEditDistance("brown", "brown", 2));
+        assertEquals(1, FullTextIndex.prefixEditDistance("brw", "brown", 2));
+        assertEquals(1, FullTextIndex.prefixEditDistance("bruwn", "brown", 2));
+        assertEquals(1, FullTextIndex.prefixEditDistance("brownn", "brown", 2));
+        assertTrue(FullTextIndex.prefixEditDistance("cat", "brown", 1) > 1);
+
+    }
+
+    public void test_disabledByDefault() {
+
+        init();
+
+        assertFalse(getNdx().isTermDictionaryEnabled());
+
+        try {
+            getNdx().getTermDictionary();
+            fail("Expecting: " + IllegalStateException.class);
+        } catch (IllegalStateException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    public void test_prefixCompletion() {
+
+        init(FullTextIndex.Options.TERM_DICTIONARY, "true");
+
+        indexDocuments();
+
+        final List<TermCompletion> a = getNdx().completeTerm("bro",
+                0/* maxEditDistance */, 10/* limit */);
+
+        assertEquals(3, a.size());
+
+        assertEquals("brown", a.get(0).getToken());
+        assertEquals(3L, a.get(0).getDocFreq());
+
+        assertEquals("broom", a.get(1).getToken());
+        assertEquals(2L, a.get(1).getDocFreq());
+
+        assertEquals("brook", a.get(2).getToken());
+        assertEquals(1L, a.get(2).getDocFreq());
+
+        // limit is respected and keeps the most frequent tokens.
+        final List<TermCompletion> b = getNdx().completeTerm("BRO",
+                0/* maxEditDistance */, 1/* limit */);
+
+        assertEquals(1, b.size());
+
+        assertEquals("brown", b.get(0).getToken());
+
+        // no completions.
+        assertEquals(0, getNdx().completeTerm("zzz", 0, 10).size());
+
+    }
+
+    /**
+     * The completed token is folded without regard to the default
+     * {@link Locale} (in a Turkish locale, "I" folds to a dotless "i").
+     */
+    public void test_prefixCompletion_locale() {
+
+        init(FullTextIndex.Options.TERM_DICTIONARY, "true");
+
+        indexDocuments();
+
+        final Locale defaultLocale = Locale.getDefault();
+
+        try {
+
+            Locale.setDefault(new Locale("tr", "TR"));
+
+            final List<TermCompletion> a = getNdx().completeTerm("QUI",
+                    0/* maxEditDistance */, 10/* limit */);
+
+            assertEquals(1, a.size());
+
+            assertEquals("quick", a.get(0).getToken());
+
+        } finally {
+
+            Locale.setDefault(defaultLocale);
+
+        }
+
+    }
+
+    public void test_fuzzyCompletion() {
+
+        init(FullTextIndex.Options.TERM_DICTIONARY, "true");
+
+        indexDocuments();
+
+        // Not a prefix of any token.
+        assertEquals(0, getNdx().completeTerm("brw", 0, 10).size());
+
+        final List<TermCompletion> a = getNdx().completeTerm("brw",
+                1/* maxEditDistance */, 10/* limit */);
+
+        assertEquals(3, a.size());
+
+        for (TermCompletion c : a) {
+
+            assertEquals(1, c.getEditDistance());
+
+        }
+
+        assertEquals("brown", a.get(0).getToken());
+
+    }
+
+    public void test_prefixSearch() {
+
+        init(FullTextIndex.Options.TERM_DICTIONARY, "true",
+                FullTextIndex.Options.TERM_DICTIONARY_MAX_CANDIDATES, "1");
+
+        indexDocuments();
+
+        final FullTextQuery query = new FullTextQuery("bro", languageCode,
+                true/* prefixMatch */, null/* regex */,
+                false/* matchAllTerms */, false/* matchExact */,
+                0d/* minCosine */, 1.0d/* maxCosine */, 1/* minRank */,
+                Integer.MAX_VALUE/* maxRank */, Long.MAX_VALUE/* timeout */,
+                TimeUnit.MILLISECONDS);
+
+        /*
+         * Only the postings for "brown" are read, which is found in all three
+         * documents.
+         */
+        assertEquals(3, getNdx().search(query).size());
+
+        assertEquals(3, getNdx().count(query));
+
+        // exact match is unchanged.
+        assertEquals(2, getNdx().search(
+                new FullTextQuery("broom", languageCode, false/* prefixMatch */))
+                .size());
+
+    }
+
+    /**
+     * All candidates are read when the #of candidates is not limited.
+     */
+    public void test_prefixSearch_unlimited() {
+
+        init(FullTextIndex.Options.TERM_DICTIONARY, "true",
+                FullTextIndex.Options.TERM_DICTIONARY_MAX_CANDIDATES, "0");
+
+        indexDocuments();
+
+        final FullTextQuery query = new FullTextQuery("broo", languageCode,
+                true/* prefixMatch */, null/* regex */,
+                false/* matchAllTerms */, false/* matchExact */,
+                0d/* minCosine */, 1.0d/* maxCosine */, 1/* minRank */,
+                Integer.MAX_VALUE/* maxRank */, Long.MAX_VALUE/* timeout */,
+                TimeUnit.MILLISECONDS);
+
+        // "broom" (documents 2 and 3) and "brook" (document 3).
+        assertEquals(2, getNdx().search(query).size());
+
+    }
+
+}